@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.benchmarks;
+
+import java.nio.ByteBuffer;
+
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+import net.java.slee.resource.diameter.base.events.avp.AvpUtilities;
+
+import org.jdiameter.api.Message;
+import org.jdiameter.api.Stack;
+import org.jdiameter.client.api.IMessage;
+import org.mobicents.diameter.dictionary.AvpDictionary;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.base.tests.factories.BaseFactoriesTest.MyConfiguration;
+
+/**
+ * Stack and dictionary shared by all benchmarks, initialized as in the
+ * factories tests, plus helpers to go to and from the wire form.
+ */
+final class BenchmarkStack {
+
+  private static final Stack stack;
+
+  static {
+    stack = new org.jdiameter.client.impl.StackImpl();
+    try {
+      stack.init(new MyConfiguration());
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Failed to initialize the stack.", e);
+    }
+
+    try {
+      AvpDictionary.INSTANCE.parseDictionary(BenchmarkStack.class.getClassLoader().getResourceAsStream("dictionary.xml"));
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Failed to parse dictionary file.", e);
+    }
+  }
+
+  private BenchmarkStack() {
+  }
+
+  static Stack getStack() {
+    return stack;
+  }
+
+  static byte[] encode(DiameterMessage message) throws Exception {
+    ByteBuffer buffer = AvpUtilities.getParser().encodeMessage((IMessage) ((DiameterMessageImpl) message).getGenericData());
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+
+    return bytes;
+  }
+
+  static Message decode(byte[] bytes) throws Exception {
+    return AvpUtilities.getParser().createMessage(bytes);
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.java.slee.resource.diameter.cca.events.CreditControlAnswer;
+import net.java.slee.resource.diameter.cca.events.CreditControlRequest;
+import net.java.slee.resource.diameter.cca.events.avp.CcRequestType;
+import net.java.slee.resource.diameter.cca.events.avp.GrantedServiceUnitAvp;
+import net.java.slee.resource.diameter.cca.events.avp.MultipleServicesCreditControlAvp;
+import net.java.slee.resource.diameter.cca.events.avp.RequestedServiceUnitAvp;
+import net.java.slee.resource.diameter.cca.events.avp.SubscriptionIdType;
+import net.java.slee.resource.diameter.cca.events.avp.UsedServiceUnitAvp;
+
+import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.cca.CreditControlAVPFactoryImpl;
+import org.mobicents.slee.resource.diameter.cca.CreditControlMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.cca.events.CreditControlAnswerImpl;
+import org.mobicents.slee.resource.diameter.cca.events.CreditControlRequestImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Credit-Control Request creation through {@link CreditControlMessageFactoryImpl},
+ * parsing of CCR-I/U/T from their wire form and access to nested
+ * Multiple-Services-Credit-Control AVPs of a Credit-Control-Answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreditControlBenchmark {
+
+  private static final int MSCC_COUNT = 4;
+
+  private CreditControlMessageFactoryImpl messageFactory;
+  private CreditControlAVPFactoryImpl avpFactory;
+
+  private byte[] ccrInitial;
+  private byte[] ccrUpdate;
+  private byte[] ccrTerminate;
+  private byte[] ccaUpdate;
+
+  @Setup
+  public void setup() throws Exception {
+    Stack stack = BenchmarkStack.getStack();
+    avpFactory = new CreditControlAVPFactoryImpl(new DiameterAvpFactoryImpl());
+    messageFactory = new CreditControlMessageFactoryImpl(new DiameterMessageFactoryImpl(stack), stack.getSessionFactory().getNewSession(), stack, avpFactory);
+
+    ccrInitial = BenchmarkStack.encode(createCcr(CcRequestType.INITIAL_REQUEST, 0));
+    ccrUpdate = BenchmarkStack.encode(createCcr(CcRequestType.UPDATE_REQUEST, 1));
+    ccrTerminate = BenchmarkStack.encode(createCcr(CcRequestType.TERMINATION_REQUEST, 2));
+
+    CreditControlAnswer cca = messageFactory.createCreditControlAnswer(createCcr(CcRequestType.UPDATE_REQUEST, 1));
+    cca.setResultCode(2001);
+    MultipleServicesCreditControlAvp[] msccs = new MultipleServicesCreditControlAvp[MSCC_COUNT];
+    for (int i = 0; i < MSCC_COUNT; i++) {
+      msccs[i] = avpFactory.createMultipleServicesCreditControl();
+      msccs[i].setRatingGroup(i + 1);
+      msccs[i].setResultCode(2001);
+      msccs[i].setValidityTime(3600);
+      GrantedServiceUnitAvp gsu = avpFactory.createGrantedServiceUnit();
+      gsu.setCreditControlTotalOctets(1048576L * (i + 1));
+      gsu.setCreditControlTime(600);
+      msccs[i].setGrantedServiceUnit(gsu);
+      UsedServiceUnitAvp usu = avpFactory.createUsedServiceUnit();
+      usu.setCreditControlTotalOctets(524288L);
+      msccs[i].setUsedServiceUnit(usu);
+    }
+    cca.setMultipleServicesCreditControls(msccs);
+    ccaUpdate = BenchmarkStack.encode(cca);
+  }
+
+  private CreditControlRequest createCcr(CcRequestType ccRequestType, long ccRequestNumber) {
+    CreditControlRequest ccr = messageFactory.createCreditControlRequest();
+    ccr.setCcRequestType(ccRequestType);
+    ccr.setCcRequestNumber(ccRequestNumber);
+    ccr.setServiceContextId("32251@3gpp.org");
+    ccr.setSubscriptionId(avpFactory.createSubscriptionId(SubscriptionIdType.END_USER_E164, "351912345678"));
+
+    MultipleServicesCreditControlAvp mscc = avpFactory.createMultipleServicesCreditControl();
+    mscc.setRatingGroup(1);
+    if (ccRequestType != CcRequestType.TERMINATION_REQUEST) {
+      RequestedServiceUnitAvp rsu = avpFactory.createRequestedServiceUnit();
+      rsu.setCreditControlTotalOctets(1048576L);
+      mscc.setRequestedServiceUnit(rsu);
+    }
+    if (ccRequestType != CcRequestType.INITIAL_REQUEST) {
+      UsedServiceUnitAvp usu = avpFactory.createUsedServiceUnit();
+      usu.setCreditControlTotalOctets(524288L);
+      mscc.setUsedServiceUnit(usu);
+    }
+    ccr.setMultipleServicesCreditControl(mscc);
+
+    return ccr;
+  }
+
+  @Benchmark
+  public CreditControlRequest createCcrInitial() {
+    return createCcr(CcRequestType.INITIAL_REQUEST, 0);
+  }
+
+  @Benchmark
+  public CreditControlRequest createCcrUpdate() {
+    return createCcr(CcRequestType.UPDATE_REQUEST, 1);
+  }
+
+  @Benchmark
+  public CreditControlRequest createCcrTerminate() {
+    return createCcr(CcRequestType.TERMINATION_REQUEST, 2);
+  }
+
+  @Benchmark
+  public void parseCcrInitial(Blackhole bh) throws Exception {
+    parseCcr(ccrInitial, bh);
+  }
+
+  @Benchmark
+  public void parseCcrUpdate(Blackhole bh) throws Exception {
+    parseCcr(ccrUpdate, bh);
+  }
+
+  @Benchmark
+  public void parseCcrTerminate(Blackhole bh) throws Exception {
+    parseCcr(ccrTerminate, bh);
+  }
+
+  private void parseCcr(byte[] bytes, Blackhole bh) throws Exception {
+    CreditControlRequest ccr = new CreditControlRequestImpl(BenchmarkStack.decode(bytes));
+    bh.consume(ccr.getSessionId());
+    bh.consume(ccr.getCcRequestType());
+    bh.consume(ccr.getCcRequestNumber());
+    bh.consume(ccr.getSubscriptionIds());
+    bh.consume(ccr.getMultipleServicesCreditControls());
+  }
+
+  @Benchmark
+  public void msccNestedAccess(Blackhole bh) throws Exception {
+    CreditControlAnswer cca = new CreditControlAnswerImpl(BenchmarkStack.decode(ccaUpdate));
+    for (MultipleServicesCreditControlAvp mscc : cca.getMultipleServicesCreditControls()) {
+      bh.consume(mscc.getRatingGroup());
+      bh.consume(mscc.getResultCode());
+      GrantedServiceUnitAvp gsu = mscc.getGrantedServiceUnit();
+      bh.consume(gsu.getCreditControlTotalOctets());
+      bh.consume(gsu.getCreditControlTime());
+      for (UsedServiceUnitAvp usu : mscc.getUsedServiceUnits()) {
+        bh.consume(usu.getCreditControlTotalOctets());
+      }
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.java.slee.resource.diameter.cca.events.CreditControlRequest;
+import net.java.slee.resource.diameter.cca.events.avp.CcRequestType;
+import net.java.slee.resource.diameter.cca.events.avp.SubscriptionIdType;
+
+import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.cca.CreditControlAVPFactoryImpl;
+import org.mobicents.slee.resource.diameter.cca.CreditControlMessageFactoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl#getAvps()}
+ * on a Credit-Control-Request, which wraps every top level AVP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiameterMessageAvpsBenchmark {
+
+  private CreditControlRequest ccr;
+
+  @Setup
+  public void setup() throws Exception {
+    Stack stack = BenchmarkStack.getStack();
+    CreditControlAVPFactoryImpl avpFactory = new CreditControlAVPFactoryImpl(new DiameterAvpFactoryImpl());
+    CreditControlMessageFactoryImpl messageFactory = new CreditControlMessageFactoryImpl(new DiameterMessageFactoryImpl(stack), stack.getSessionFactory().getNewSession(), stack, avpFactory);
+
+    ccr = messageFactory.createCreditControlRequest();
+    ccr.setCcRequestType(CcRequestType.INITIAL_REQUEST);
+    ccr.setCcRequestNumber(0);
+    ccr.setServiceContextId("32251@3gpp.org");
+    ccr.setSubscriptionId(avpFactory.createSubscriptionId(SubscriptionIdType.END_USER_E164, "351912345678"));
+    ccr.setMultipleServicesCreditControl(avpFactory.createMultipleServicesCreditControl());
+  }
+
+  @Benchmark
+  public void getAvps(Blackhole bh) {
+    bh.consume(ccr.getAvps());
+  }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import net.java.slee.resource.diameter.gq.GqAvpFactory;
+import net.java.slee.resource.diameter.gq.GqProvider;
+import net.java.slee.resource.diameter.gq.events.avp.MediaComponentDescription;
+
+import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.gq.CompiledSDPConverter;
+import org.mobicents.slee.resource.diameter.gq.GqAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.gq.SDPConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of an SDP offer/answer pair to Media-Component-Description AVPs,
+ * through the javax.sdp based {@link SDPConverter} and through
+ * {@link CompiledSDPConverter}, with and without hitting its cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GqSdpConversionBenchmark {
+
+  private static final String OFFER =
+      "v=0\r\n" +
+      "o=alice 2890844526 2890844526 IN IP4 10.0.0.1\r\n" +
+      "s=-\r\n" +
+      "c=IN IP4 10.0.0.1\r\n" +
+      "t=0 0\r\n" +
+      "m=audio 49170 RTP/AVP 0 8 97 101\r\n" +
+      "b=AS:64\r\n" +
+      "b=RS:800\r\n" +
+      "b=RR:2400\r\n" +
+      "a=rtpmap:0 PCMU/8000\r\n" +
+      "a=rtpmap:8 PCMA/8000\r\n" +
+      "a=rtpmap:97 AMR/8000\r\n" +
+      "a=rtpmap:101 telephone-event/8000\r\n" +
+      "a=fmtp:101 0-15\r\n" +
+      "a=ptime:20\r\n" +
+      "a=sendrecv\r\n" +
+      "m=video 51372 RTP/AVP 99\r\n" +
+      "b=AS:384\r\n" +
+      "a=rtpmap:99 H264/90000\r\n" +
+      "a=fmtp:99 profile-level-id=42e01f\r\n";
+
+  private static final String ANSWER =
+      "v=0\r\n" +
+      "o=bob 2808844564 2808844564 IN IP4 10.0.0.2\r\n" +
+      "s=-\r\n" +
+      "c=IN IP4 10.0.0.2\r\n" +
+      "t=0 0\r\n" +
+      "m=audio 3456 RTP/AVP 0 101\r\n" +
+      "b=AS:64\r\n" +
+      "a=rtpmap:0 PCMU/8000\r\n" +
+      "a=rtpmap:101 telephone-event/8000\r\n" +
+      "a=ptime:20\r\n" +
+      "m=video 3458 RTP/AVP 99\r\n" +
+      "b=AS:384\r\n" +
+      "a=rtpmap:99 H264/90000\r\n";
+
+  private GqProvider gqProvider;
+  private GqAvpFactory avpFactory;
+
+  // a different offer on each invocation, so that the cache is missed
+  private String[] uncachedOffers;
+  private int uncachedIndex;
+
+  @Setup
+  public void setup() throws Exception {
+    // loads the dictionary
+    BenchmarkStack.getStack();
+
+    avpFactory = new GqAvpFactoryImpl(new DiameterAvpFactoryImpl());
+    gqProvider = (GqProvider) Proxy.newProxyInstance(GqProvider.class.getClassLoader(), new Class<?>[] {GqProvider.class},
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("getGqAvpFactory")) {
+              return avpFactory;
+            }
+            throw new UnsupportedOperationException(method.getName());
+          }
+        });
+
+    uncachedOffers = new String[4096];
+    for (int i = 0; i < uncachedOffers.length; i++) {
+      uncachedOffers[i] = OFFER.replace("o=alice 2890844526", "o=alice " + i);
+    }
+  }
+
+  @Benchmark
+  public MediaComponentDescription[] javaxSdp() throws Exception {
+    return SDPConverter.convertSDP(gqProvider, OFFER, ANSWER);
+  }
+
+  @Benchmark
+  public MediaComponentDescription[] compiled() throws Exception {
+    return CompiledSDPConverter.convertSDP(avpFactory, uncachedOffers[uncachedIndex++ & (uncachedOffers.length - 1)], ANSWER);
+  }
+
+  @Benchmark
+  public MediaComponentDescription[] compiledCached() throws Exception {
+    return CompiledSDPConverter.convertSDP(avpFactory, OFFER, ANSWER);
+  }
+
+  @Benchmark
+  public MediaComponentDescription[] javaxSdpOfferOnly() throws Exception {
+    return SDPConverter.convertSDP(gqProvider, OFFER);
+  }
+
+  @Benchmark
+  public MediaComponentDescription[] compiledOfferOnly() throws Exception {
+    return CompiledSDPConverter.convertSDP(avpFactory, uncachedOffers[uncachedIndex++ & (uncachedOffers.length - 1)]);
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.java.slee.resource.diameter.s6a.events.UpdateLocationAnswer;
+import net.java.slee.resource.diameter.s6a.events.avp.AMBRAvp;
+import net.java.slee.resource.diameter.s6a.events.avp.APNConfigurationAvp;
+import net.java.slee.resource.diameter.s6a.events.avp.APNConfigurationProfileAvp;
+import net.java.slee.resource.diameter.s6a.events.avp.PDNType;
+import net.java.slee.resource.diameter.s6a.events.avp.SubscriberStatus;
+import net.java.slee.resource.diameter.s6a.events.avp.SubscriptionDataAvp;
+
+import org.jdiameter.api.Request;
+import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.s6a.S6aAVPFactoryImpl;
+import org.mobicents.slee.resource.diameter.s6a.S6aMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.s6a.events.UpdateLocationAnswerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding of the Subscription-Data grouped AVP of an S6a Update-Location-Answer,
+ * from its wire form down to the APN configuration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class S6aSubscriptionDataBenchmark {
+
+  private byte[] ula;
+
+  @Setup
+  public void setup() throws Exception {
+    S6aMessageFactoryImpl messageFactory = new S6aMessageFactoryImpl(BenchmarkStack.getStack());
+    S6aAVPFactoryImpl avpFactory = new S6aAVPFactoryImpl(new DiameterAvpFactoryImpl());
+
+    Request ulr = (Request) ((DiameterMessageImpl) messageFactory.createUpdateLocationRequest()).getGenericData();
+    UpdateLocationAnswer answer = new UpdateLocationAnswerImpl(ulr.createAnswer(2001));
+    answer.setULAFlags(1);
+
+    AMBRAvp ambr = avpFactory.createAMBR();
+    ambr.setMaxRequestedBandwidthUL(50000000L);
+    ambr.setMaxRequestedBandwidthDL(100000000L);
+
+    APNConfigurationAvp apnConfiguration = avpFactory.createAPNConfiguration();
+    apnConfiguration.setContextIdentifier(1);
+    apnConfiguration.setPDNType(PDNType.IPv4);
+    apnConfiguration.setServiceSelection("internet");
+    apnConfiguration.setAMBR(ambr);
+
+    APNConfigurationProfileAvp apnConfigurationProfile = avpFactory.createAPNConfigurationProfile();
+    apnConfigurationProfile.setContextIdentifier(1);
+    apnConfigurationProfile.setAPNConfiguration(apnConfiguration);
+
+    SubscriptionDataAvp subscriptionData = avpFactory.createSubscriptionData();
+    subscriptionData.setSubscriberStatus(SubscriberStatus.SERVICE_GRANTED);
+    subscriptionData.setMSISDN(new byte[] { 0x53, 0x19, 0x21, 0x43, 0x65, (byte) 0x87 });
+    subscriptionData.setAccessRestrictionData(0);
+    subscriptionData.setAMBR(ambr);
+    subscriptionData.setAPNConfigurationProfile(apnConfigurationProfile);
+    answer.setSubscriptionData(subscriptionData);
+
+    ula = BenchmarkStack.encode(answer);
+  }
+
+  @Benchmark
+  public void decodeSubscriptionData(Blackhole bh) throws Exception {
+    UpdateLocationAnswer answer = new UpdateLocationAnswerImpl(BenchmarkStack.decode(ula));
+    SubscriptionDataAvp subscriptionData = answer.getSubscriptionData();
+    bh.consume(subscriptionData.getSubscriberStatus());
+    bh.consume(subscriptionData.getMSISDN());
+    bh.consume(subscriptionData.getAMBR().getMaxRequestedBandwidthDL());
+
+    APNConfigurationAvp apnConfiguration = subscriptionData.getAPNConfigurationProfile().getAPNConfiguration();
+    bh.consume(apnConfiguration.getServiceSelection());
+    bh.consume(apnConfiguration.getPDNType());
+    bh.consume(apnConfiguration.getAMBR().getMaxRequestedBandwidthUL());
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.benchmarks;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import net.java.slee.resource.diameter.sh.events.UserDataAnswer;
+import net.java.slee.resource.diameter.sh.events.avp.userdata.ShData;
+
+import org.jdiameter.api.Request;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.sh.client.ShClientMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.sh.events.UserDataAnswerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JAXB unmarshalling of the Sh User-Data AVP of a User-Data-Answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShUserDataBenchmark {
+
+  private static final String USER_DATA =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+      "<Sh-Data>" +
+        "<PublicIdentifiers>" +
+          "<IMSPublicIdentity>sip:alice@mobicents.org</IMSPublicIdentity>" +
+          "<IMSPublicIdentity>tel:+351912345678</IMSPublicIdentity>" +
+          "<MSISDN>351912345678</MSISDN>" +
+        "</PublicIdentifiers>" +
+        "<Sh-IMS-Data>" +
+          "<SCSCFName>sip:scscf.mobicents.org:6060</SCSCFName>" +
+          "<IMSUserState>1</IMSUserState>" +
+        "</Sh-IMS-Data>" +
+      "</Sh-Data>";
+
+  private UserDataAnswer uda;
+
+  @Setup
+  public void setup() throws Exception {
+    ShClientMessageFactoryImpl messageFactory = new ShClientMessageFactoryImpl(BenchmarkStack.getStack());
+
+    Request udr = (Request) ((DiameterMessageImpl) messageFactory.createUserDataRequest()).getGenericData();
+    uda = new UserDataAnswerImpl(udr.createAnswer(2001));
+    uda.setUserData(USER_DATA.getBytes(Charset.forName("UTF-8")));
+  }
+
+  @Benchmark
+  public void unmarshalUserData(Blackhole bh) throws Exception {
+    ShData shData = uda.getUserDataObject();
+    bh.consume(shData.getPublicIdentifiers().getIMSPublicIdentity());
+    bh.consume(shData.getShIMSData().getSCSCFName());
+  }
+
+}
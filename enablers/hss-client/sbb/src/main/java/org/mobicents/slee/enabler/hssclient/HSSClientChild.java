@@ -25,6 +25,10 @@ package org.mobicents.slee.enabler.hssclient;
 import java.io.IOException;
 
 /**
+ * When the enabler User-Data cache is enabled, a request for data already
+ * cached is answered right away, by invoking the parent's delivery callback
+ * before returning null instead of a Session-Id, so the parent SBB must be
+ * reentrant. See {@link UserDataCache}.
  * 
  * @author <a href=mailto:brainslog@gmail.com> Alexandre Mendonca </a>
  */
@@ -40,7 +44,7 @@ public interface HSSClientChild {
    * @param serviceIndications the Service-Indication(s) value(s)
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getRepositoryData(String publicIdentity, byte[][] serviceIndications, String destinationRealm, String destinationHost) throws IOException;
@@ -55,7 +59,7 @@ public interface HSSClientChild {
    *                    ALL_IDENTITIES (0), REGISTERED_IDENTITIES (1), IMPLICIT_IDENTITIES (2)
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getIMSPublicIdentity(String publicIdentity, byte[] msisdn, int[] identitySets, String destinationRealm, String destinationHost) throws IOException;
@@ -67,7 +71,7 @@ public interface HSSClientChild {
    * @param publicIdentity the IMS Public User Identity or Public Service Identity value
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getIMSUserState(String publicIdentity, String destinationRealm, String destinationHost) throws IOException;
@@ -79,7 +83,7 @@ public interface HSSClientChild {
    * @param publicIdentity the IMS Public User Identity or Public Service Identity value
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getSCSCFName(String publicIdentity, String destinationRealm, String destinationHost) throws IOException;
@@ -92,7 +96,7 @@ public interface HSSClientChild {
    * @param serverName the Server-Name value, a SIP URI identifying the AS
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getInitialFilterCriteria(String publicIdentity, String serverName, String destinationRealm, String destinationHost) throws IOException;
@@ -105,7 +109,7 @@ public interface HSSClientChild {
    * @param requestedDomain the Requested-Domain value indicating the access domain for which the data is requested: CS-Domain (0), PS-Domain (1)
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getLocationInformation(byte[] msisdn, int requestedDomain, String destinationRealm, String destinationHost) throws IOException;
@@ -118,7 +122,7 @@ public interface HSSClientChild {
    * @param requestedDomain the Requested-Domain value indicating the access domain for which the data is requested: CS-Domain (0), PS-Domain (1)
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getUserState(byte[] msisdn, int requestedDomain, String destinationRealm, String destinationHost) throws IOException;
@@ -131,7 +135,7 @@ public interface HSSClientChild {
    * @param msisdn the MSISDN value (if any)
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getChargingInformation(String publicIdentity, byte[] msisdn, String destinationRealm, String destinationHost) throws IOException;
@@ -144,7 +148,7 @@ public interface HSSClientChild {
    * @param msisdn the MSISDN value (if any)
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getMSISDN(String publicIdentity, byte[] msisdn, String destinationRealm, String destinationHost) throws IOException;
@@ -156,7 +160,7 @@ public interface HSSClientChild {
    * @param publicIdentity the IMS Public User Identity or Public Service Identity value
    * @param destinationRealm the Diameter realm to which the request is to be sent to
    * @param destinationHost (optional parameter) the Diameter host (in the specified realm) to which the request is to be sent to
-   * @return a String representing the sent request Session-Id for possible matching
+   * @return a String representing the sent request Session-Id for possible matching, or null if answered from the cache
    * @throws IOException
    */
   public String getPSIActivation(String publicIdentity, String destinationRealm, String destinationHost) throws IOException;
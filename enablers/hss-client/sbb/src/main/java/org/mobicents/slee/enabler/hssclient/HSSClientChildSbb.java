@@ -24,15 +24,25 @@ package org.mobicents.slee.enabler.hssclient;
 
 import java.io.IOException;
 
+import javax.management.JMException;
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.slee.ActivityContextInterface;
+import javax.slee.ActivityEndEvent;
+import javax.slee.Address;
 import javax.slee.CreateException;
 import javax.slee.RolledBackContext;
 import javax.slee.Sbb;
 import javax.slee.SbbContext;
+import javax.slee.UnrecognizedActivityException;
+import javax.slee.facilities.TimerEvent;
+import javax.slee.facilities.TimerFacility;
+import javax.slee.facilities.TimerOptions;
 import javax.slee.facilities.Tracer;
+import javax.slee.nullactivity.NullActivity;
+import javax.slee.nullactivity.NullActivityContextInterfaceFactory;
+import javax.slee.nullactivity.NullActivityFactory;
 
 import org.mobicents.slee.SbbContextExt;
 
@@ -67,7 +77,13 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
 
   private static Tracer tracer;
 
+  private static UserDataCache userDataCache;
+  // SBB objects sharing the User-Data cache, it is released with the last one
+  private static int userDataCacheUsers;
+  private static InFlightUserDataRequests inFlightRequests;
+
   protected SbbContextExt sbbContext;
+  private boolean usingUserDataCache;
 
   protected ShClientProvider diameterShClientSbbInterface = null;
   protected ShClientActivityContextInterfaceFactory diameterShClientACIF = null;
@@ -75,8 +91,14 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
   protected ShClientMessageFactory diameterShClientMessageFactory = null;
   protected DiameterShAvpFactory diameterShClientAvpFactory = null;
 
+  protected TimerFacility timerFacility = null;
+  protected NullActivityFactory nullActivityFactory = null;
+  protected NullActivityContextInterfaceFactory nullActivityACIF = null;
+
   public abstract RequestMappingACI asSbbActivityContextInterface(ActivityContextInterface aci);
 
+  public abstract void fireUserDataAnswer(UserDataAnswer event, ActivityContextInterface aci, Address address);
+
   protected HSSClientParentSbbLocalObject getParent() {
 	  return (HSSClientParentSbbLocalObject) sbbContext.getSbbLocalObject().getParent();
   }
@@ -96,14 +118,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-    
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getIMSPublicIdentity(String publicIdentity, byte[] msisdn, int[] identitySets, String destinationRealm, String destinationHost) throws IOException {
@@ -123,14 +138,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getIMSUserState(String publicIdentity, String destinationRealm, String destinationHost) throws IOException {
@@ -145,14 +153,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getSCSCFName(String publicIdentity, String destinationRealm, String destinationHost) throws IOException {
@@ -167,14 +168,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getInitialFilterCriteria(String publicIdentity, String serverName, String destinationRealm, String destinationHost) throws IOException {
@@ -190,14 +184,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getLocationInformation(byte[] msisdn, int requestedDomain, String destinationRealm, String destinationHost) throws IOException {
@@ -213,14 +200,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getUserState(byte[] msisdn, int requestedDomain, String destinationRealm, String destinationHost) throws IOException {
@@ -236,14 +216,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getChargingInformation(String publicIdentity, byte[] msisdn, String destinationRealm, String destinationHost) throws IOException {
@@ -258,14 +231,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getMSISDN(String publicIdentity, byte[] msisdn, String destinationRealm, String destinationHost) throws IOException {
@@ -280,14 +246,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String getPSIActivation(String publicIdentity, String destinationRealm, String destinationHost) throws IOException {
@@ -302,14 +261,7 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
       udr.setDestinationHost(new DiameterIdentity(destinationHost));
     }
 
-    ShClientActivity activity = getShClientActivity();
-    activity.sendUserDataRequest(udr);
-
-    // Store request for future matching
-    storeRequestInACI(activity, udr);
-    
-    // Return Session-Id, may be used as identifier
-    return activity.getSessionId();
+    return sendUserDataRequest(udr);
   }
 
   public String updateRepositoryData(String publicIdentity, String data, String destinationRealm, String destinationHost) throws IOException {
@@ -516,6 +468,93 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
     return new String[]{publicIdentity, msisdn};
   }
 
+  private String sendUserDataRequest(UserDataRequest udr) throws IOException {
+    MessageData requestData = new MessageData(udr);
+
+    // Answer from the cache if possible, saving the HSS round-trip
+    String data = userDataCache.get(requestData);
+    if (data != null) {
+      if (tracer.isFineEnabled()) {
+        tracer.fine("Delivering cached User-Data for " + (requestData.getPublicIdentity() != null ? requestData.getPublicIdentity() : new String(requestData.getMsisdn())));
+      }
+      deliverUserData(getParent(), requestData, 2001L, data);
+      return null;
+    }
+
+    // Wait for the answer to an identical request already sent, if any
+    String sessionId = inFlightRequests.find(requestData);
+    if (sessionId != null) {
+      waitForUserDataAnswer(requestData, sessionId);
+      return sessionId;
+    }
+
+    // An answer overtaken by a notification for the identity must not be cached
+    long generation = userDataCache.getGeneration(requestData);
+
+    ShClientActivity activity = getShClientActivity();
+    activity.sendUserDataRequest(udr);
+
+    // Store request for future matching
+    storeRequestInACI(activity, requestData).setUserDataGeneration(generation);
+    inFlightRequests.sent(requestData, activity.getSessionId());
+
+    // Return Session-Id, may be used as identifier
+    return activity.getSessionId();
+  }
+
+  /**
+   * Waits on a null activity for the answer to an identical in-flight request.
+   * The wait is registered on the timer event, once this transaction commits.
+   */
+  private void waitForUserDataAnswer(MessageData requestData, String sessionId) throws IOException {
+    try {
+      NullActivity activity = nullActivityFactory.createNullActivity();
+      ActivityContextInterface aci = nullActivityACIF.getActivityContextInterface(activity);
+      aci.attach(sbbContext.getSbbLocalObject());
+
+      RequestMappingACI rmACI = asSbbActivityContextInterface(aci);
+      rmACI.setRequestData(requestData);
+      rmACI.setSharedSessionId(sessionId);
+
+      timerFacility.setTimer(aci, null, System.currentTimeMillis(), new TimerOptions());
+    }
+    catch (Exception e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  private UserDataRequest createUserDataRequest(MessageData udrData) {
+    UserIdentityAvp userIdentityAvp = createUserIdentityAvp(udrData.getPublicIdentity(), udrData.getMsisdn());
+
+    UserDataRequest udr = diameterShClientMessageFactory.createUserDataRequest(userIdentityAvp, udrData.getDataReference());
+    udr.setAuthSessionState(AuthSessionStateType.NO_STATE_MAINTAINED);
+    if(udrData.getServiceIndications() != null) {
+      udr.setServiceIndications(udrData.getServiceIndications());
+    }
+    if(udrData.getIdentitySets() != null) {
+      int[] identitySets = udrData.getIdentitySets();
+      IdentitySetType[] typeIdentitySets = new IdentitySetType[identitySets.length];
+      for(int i = 0; i < identitySets.length; i++) {
+        typeIdentitySets[i] = IdentitySetType.fromInt(identitySets[i]);
+      }
+      udr.setIdentitySets(typeIdentitySets);
+    }
+    if(udrData.getServerName() != null) {
+      udr.setServerName(udrData.getServerName());
+    }
+    if(udrData.getRequestedDomain() != null) {
+      udr.setRequestedDomain(udrData.getRequestedDomain());
+    }
+
+    // Set destination -- Realm is mandatory, host is optional
+    udr.setDestinationRealm(new DiameterIdentity(udrData.getDestinationRealm()));
+    if(udrData.getDestinationHost() != null) {
+      udr.setDestinationHost(new DiameterIdentity(udrData.getDestinationHost()));
+    }
+
+    return udr;
+  }
+
   private ShClientActivity getShClientActivity() throws IOException {
     try {
       ShClientActivity activity = diameterShClientSbbInterface.createShClientActivity();
@@ -529,10 +568,55 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
   }
   
   private void storeRequestInACI(ShClientActivity activity, DiameterShMessage message) {
+    storeRequestInACI(activity, new MessageData(message));
+  }
+
+  private RequestMappingACI storeRequestInACI(ShClientActivity activity, MessageData requestData) {
     ActivityContextInterface aci = diameterShClientACIF.getActivityContextInterface(activity);
     RequestMappingACI rmACI = asSbbActivityContextInterface(aci);
     
-    rmACI.setRequestData(new MessageData(message));
+    rmACI.setRequestData(requestData);
+    return rmACI;
+  }
+
+  private void deliverUserData(HSSClientParentSbbLocalObject parent, MessageData udrData, long resultCode, String data) {
+    DataReferenceType dataRef = udrData.getDataReference();
+    switch(dataRef.getValue()) {
+    case DataReferenceType._REPOSITORY_DATA:
+      parent.deliverRepositoryData(udrData.getPublicIdentity(), udrData.getServiceIndications(), resultCode, data);
+      break;
+    case DataReferenceType._IMS_PUBLIC_IDENTITY:
+      parent.deliverIMSPublicIdentity(udrData.getPublicIdentity(), udrData.getMsisdn(), udrData.getIdentitySets(), resultCode, data);
+      break;
+    case DataReferenceType._IMS_USER_STATE:
+      parent.deliverIMSUserState(udrData.getPublicIdentity(), resultCode, data);
+      break;
+    case DataReferenceType._S_CSCFNAME:
+      parent.deliverSCSCFName(udrData.getPublicIdentity(), resultCode, data);
+      break;
+    case DataReferenceType._INITIAL_FILTER_CRITERIA:
+      parent.deliverInitialFilterCriteria(udrData.getPublicIdentity(), udrData.getServerName(), resultCode, data);
+      break;
+    case DataReferenceType._LOCATION_INFORMATION:
+      RequestedDomainType requestedDomain = udrData.getRequestedDomain();
+      parent.deliverLocationInformation(udrData.getMsisdn(), requestedDomain != null ? requestedDomain.getValue() : null, resultCode, data);
+      break;
+    case DataReferenceType._USER_STATE:
+      requestedDomain = udrData.getRequestedDomain();
+      parent.deliverUserState(udrData.getMsisdn(), requestedDomain != null ? requestedDomain.getValue() : null, resultCode, data);
+      break;
+    case DataReferenceType._CHARGING_INFORMATION:
+      parent.deliverChargingInformation(udrData.getPublicIdentity(), udrData.getMsisdn(), resultCode, data);
+      break;
+    case DataReferenceType._MSISDN:
+      parent.deliverMSISDN(udrData.getPublicIdentity(), udrData.getMsisdn(), resultCode, data);
+      break;
+    case DataReferenceType._PSI_ACTIVATION:
+      parent.deliverPSIActivation(udrData.getPublicIdentity(), resultCode, data);
+      break;
+    default:
+      //
+    }
   }
 
   // -- EVENT HANDLERS FOR DIAMETER REQUESTS ----------------------------------
@@ -545,8 +629,11 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
     SubsReqType subsReqType = snrData.getSubsReqType();
     long resultCode = event.getResultCode();
 
-    // only one data ref should be present.. but at least one must!
-    DataReferenceType dataRef = snrData.getDataReferences()[0];
+    if(resultCode == 2001L) {
+      userDataCache.subscriptionChanged(snrData, event.hasExpiryTime() ? event.getExpiryTime() : null);
+    }
+
+    DataReferenceType dataRef = snrData.getDataReference();
     switch(dataRef.getValue()) {
     case DataReferenceType._REPOSITORY_DATA:
       byte[][] serviceIndications = snrData.getServiceIndications();
@@ -578,6 +665,11 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
 
     long resultCode = event.getResultCode();
 
+    // the cached data, if any, is no longer valid
+    if(resultCode == 2001L) {
+      userDataCache.invalidate(purData);
+    }
+
     switch(dataRef.getValue()) {
     case DataReferenceType._REPOSITORY_DATA:
       getParent().updateRepositoryDataResponse(purData.getPublicIdentity(), resultCode);
@@ -605,6 +697,9 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
     String [] userIdentityValues = getUserIdentityValues(event);
     String data = new String(event.getUserData());
 
+    // The notified data changed, drop it from the cache
+    userDataCache.invalidate(userIdentityValues[0], userIdentityValues[1]);
+
     // Deliver to parent
     getParent().receivedProfileUpdate(userIdentityValues[0], userIdentityValues[1].getBytes(), data, event.getOriginRealm().toString(), event.getOriginHost().toString());
   }
@@ -615,53 +710,79 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
     String data = new String(event.getUserData());
     long resultCode = event.getResultCode();
 
-    // only one data ref should be present.. but at least one must!
-    DataReferenceType dataRef = udrData.getDataReferences()[0];
-    switch(dataRef.getValue()) {
-    case DataReferenceType._REPOSITORY_DATA:
-      getParent().deliverRepositoryData(udrData.getPublicIdentity(), udrData.getServiceIndications(), resultCode, data);
-      break;
-    case DataReferenceType._IMS_PUBLIC_IDENTITY:
-      IdentitySetType[] identitySets = udrData.getIdentitySets();
-      int[] intIdentitySets = new int[identitySets.length];
-      for(int i = 0; i < identitySets.length; i++) {
-      	intIdentitySets[i] = identitySets[i].getValue();
+    // Answer to an identical request this one waited for
+    if(aci.getActivity() instanceof NullActivity) {
+      aci.detach(sbbContext.getSbbLocalObject());
+      ((NullActivity) aci.getActivity()).endActivity();
+
+      deliverUserData(getParent(), udrData, resultCode, data);
+      return;
+    }
+
+    if(resultCode == 2001L) {
+      userDataCache.put(udrData, data, aci.getUserDataGeneration());
+    }
+
+    deliverUserData(getParent(), udrData, resultCode, data);
+
+    // Fire the answer to the parents which sent identical requests meanwhile,
+    // each one gets it in its own transaction. If the delivery above fails,
+    // the waiters are kept and resend their requests when the activity ends.
+    for(NullActivity waiter : inFlightRequests.answered(udrData, event.getSessionId())) {
+      try {
+        fireUserDataAnswer(event, nullActivityACIF.getActivityContextInterface(waiter), null);
+      }
+      catch (UnrecognizedActivityException e) {
+        tracer.warning("Parent waiting for User-Data is gone.", e);
       }
-      getParent().deliverIMSPublicIdentity(udrData.getPublicIdentity(), udrData.getMsisdn(), intIdentitySets, resultCode, data);
-      break;
-    case DataReferenceType._IMS_USER_STATE:
-      getParent().deliverIMSUserState(udrData.getPublicIdentity(), resultCode, data);
-      break;
-    case DataReferenceType._S_CSCFNAME:
-      getParent().deliverSCSCFName(udrData.getPublicIdentity(), resultCode, data);
-      break;
-    case DataReferenceType._INITIAL_FILTER_CRITERIA:
-      getParent().deliverInitialFilterCriteria(udrData.getPublicIdentity(), udrData.getServerName(), resultCode, data);
-      break;
-    case DataReferenceType._LOCATION_INFORMATION:
-      RequestedDomainType requestedDomain = udrData.getRequestedDomain();
-      getParent().deliverLocationInformation(udrData.getMsisdn(), requestedDomain != null ? requestedDomain.getValue() : null, resultCode, data);
-      break;
-    case DataReferenceType._USER_STATE:
-      requestedDomain = udrData.getRequestedDomain();
-      getParent().deliverUserState(udrData.getMsisdn(), requestedDomain != null ? requestedDomain.getValue() : null, resultCode, data);
-      break;
-    case DataReferenceType._CHARGING_INFORMATION:
-      getParent().deliverChargingInformation(udrData.getPublicIdentity(), udrData.getMsisdn(), resultCode, data);
-      break;
-    case DataReferenceType._MSISDN:
-      getParent().deliverMSISDN(udrData.getPublicIdentity(), udrData.getMsisdn(), resultCode, data);
-      break;
-    case DataReferenceType._PSI_ACTIVATION:
-      getParent().deliverPSIActivation(udrData.getPublicIdentity(), resultCode, data);
-      break;
-    default:
-      //
     }
 
     aci.detach(sbbContext.getSbbLocalObject());
   }
 
+  public void onTimerEvent(TimerEvent event, RequestMappingACI aci) {
+    NullActivity activity = (NullActivity) aci.getActivity();
+    MessageData udrData = aci.getRequestData();
+
+    // Now that the decision to wait is committed, register for the answer
+    String sessionId = aci.getSharedSessionId();
+    if(sessionId != null) {
+      aci.setSharedSessionId(null);
+      if(inFlightRequests.join(sessionId, activity)) {
+        return;
+      }
+    }
+
+    // The shared request was answered meanwhile, or ended without an answer
+    aci.detach(sbbContext.getSbbLocalObject());
+    activity.endActivity();
+
+    try {
+      sendUserDataRequest(createUserDataRequest(udrData));
+    }
+    catch (IOException e) {
+      tracer.warning("Failed to send User-Data-Request for a parent waiting for an identical one.", e);
+    }
+  }
+
+  public void onActivityEndEvent(ActivityEndEvent event, RequestMappingACI aci) {
+    MessageData udrData = aci.getRequestData();
+    if(!(aci.getActivity() instanceof ShClientActivity) || udrData == null || udrData.getRequestType() != MessageData.USER_DATA_REQUEST) {
+      return;
+    }
+
+    // The answer was not delivered, let the waiters send their own requests
+    String sessionId = ((ShClientActivity) aci.getActivity()).getSessionId();
+    for(NullActivity waiter : inFlightRequests.ended(udrData, sessionId)) {
+      try {
+        timerFacility.setTimer(nullActivityACIF.getActivityContextInterface(waiter), null, System.currentTimeMillis(), new TimerOptions());
+      }
+      catch (UnrecognizedActivityException e) {
+        tracer.warning("Parent waiting for User-Data is gone.", e);
+      }
+    }
+  }
+
   // -- SBB OBJECT LIFECYCLE METHODS ------------------------------------------
 
   /*
@@ -753,18 +874,88 @@ public abstract class HSSClientChildSbb implements Sbb, HSSClientChild {
 
       diameterShClientMessageFactory = diameterShClientSbbInterface.getClientMessageFactory();
       diameterShClientAvpFactory = diameterShClientSbbInterface.getClientAvpFactory();
+
+      timerFacility = (TimerFacility) context.lookup("slee/facilities/timer");
+      nullActivityFactory = (NullActivityFactory) context.lookup("slee/nullactivity/factory");
+      nullActivityACIF = (NullActivityContextInterfaceFactory) context.lookup("slee/nullactivity/activitycontextinterfacefactory");
+
+      if (!usingUserDataCache) {
+        acquireUserDataCache(context);
+        usingUserDataCache = true;
+      }
+      if (inFlightRequests == null) {
+        inFlightRequests = createInFlightRequests(context);
+      }
     }
     catch (NamingException e) {
       tracer.severe("Can't set sbb context.", e);
     }
   }
 
+  private static synchronized void acquireUserDataCache(Context context) {
+    if (userDataCacheUsers++ == 0) {
+      userDataCache = createUserDataCache(context);
+    }
+  }
+
+  /**
+   * Unregisters the cache MBean when the last SBB object is discarded, as done
+   * by the SLEE when the services using the enabler are deactivated.
+   */
+  private static synchronized void releaseUserDataCache() {
+    if (--userDataCacheUsers == 0) {
+      try {
+        userDataCache.unregister();
+      }
+      catch (JMException e) {
+        tracer.warning("Failed to unregister User-Data cache MBean.", e);
+      }
+      userDataCache.clear();
+    }
+  }
+
+  private static UserDataCache createUserDataCache(Context context) {
+    UserDataCache cache = UserDataCache.getInstance();
+    try {
+      cache.setMaxEntries((Integer) context.lookup("userDataCacheMaxEntries"));
+      cache.setTimeToLive((Long) context.lookup("userDataCacheTimeToLive"));
+    }
+    catch (NamingException e) {
+      tracer.warning("User-Data cache not configured, leaving it disabled.", e);
+    }
+
+    try {
+      cache.register();
+    }
+    catch (JMException e) {
+      tracer.warning("Failed to register User-Data cache MBean.", e);
+    }
+
+    return cache;
+  }
+
+  private static InFlightUserDataRequests createInFlightRequests(Context context) {
+    InFlightUserDataRequests requests = InFlightUserDataRequests.getInstance();
+    try {
+      requests.setTimeout((Long) context.lookup("userDataRequestCoalescingTimeout"));
+    }
+    catch (NamingException e) {
+      tracer.warning("User-Data-Request coalescing not configured, leaving it disabled.", e);
+    }
+
+    return requests;
+  }
+
   /*
    * (non-Javadoc)
    * @see javax.slee.Sbb#unsetSbbContext()
    */
   @Override
   public void unsetSbbContext() {
+    if (usingUserDataCache) {
+      releaseUserDataCache();
+      usingUserDataCache = false;
+    }
     this.sbbContext = null;
   }
 }
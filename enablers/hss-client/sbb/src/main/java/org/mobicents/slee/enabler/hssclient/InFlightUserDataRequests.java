@@ -0,0 +1,217 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing
+ * of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License, v. 2.0.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * v. 2.0 along with this distribution; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301, USA.
+ */
+package org.mobicents.slee.enabler.hssclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.slee.nullactivity.NullActivity;
+
+/**
+ * User-Data-Requests sent to the HSS and not yet answered, shared by all HSS
+ * Client Enabler child SBBs, so that identical requests - same access key and
+ * destination - sent meanwhile wait for the answer to the first one instead of
+ * being sent too. Each waiting child SBB is attached to a null activity, on
+ * which the child SBB receiving the answer fires it.
+ * 
+ * A request is only joined by new waiters within the timeout, so an answer
+ * lost to a Diameter timeout does not hold further requests. The waiters
+ * already registered are kept until the request is answered or its activity
+ * ends. Coalescing is disabled, with a 0 timeout, until configured.
+ */
+class InFlightUserDataRequests {
+
+  private static final InFlightUserDataRequests INSTANCE = new InFlightUserDataRequests();
+
+  // the requests new waiters may join, by access key and destination
+  private final Map<UserDataKey, InFlightRequest> joinable = new HashMap<UserDataKey, InFlightRequest>();
+  // the shared requests not yet answered, by Session-Id
+  private final Map<String, InFlightRequest> requests = new HashMap<String, InFlightRequest>();
+
+  private volatile long timeout = 0;
+
+  /**
+   * @return the in-flight requests shared by the child SBBs of this enabler deployment
+   */
+  static InFlightUserDataRequests getInstance() {
+    return INSTANCE;
+  }
+
+  InFlightUserDataRequests() {
+  }
+
+  boolean isEnabled() {
+    return timeout > 0;
+  }
+
+  /**
+   * @param timeout the time, in milliseconds, a sent request may be joined by identical ones, or 0 to disable coalescing
+   */
+  void setTimeout(long timeout) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout must not be negative: " + timeout);
+    }
+
+    this.timeout = timeout;
+    if (timeout == 0) {
+      synchronized (this) {
+        joinable.clear();
+      }
+    }
+  }
+
+  /**
+   * Looks up an identical in-flight request a parent may wait for, instead of
+   * sending its own. The waiter is registered with {@link #join(String, NullActivity)}
+   * once the transaction deciding to wait is committed.
+   * 
+   * @param request the data of the User-Data-Request to be sent
+   * @return the Session-Id of the in-flight request, or null if none and the request must be sent
+   */
+  String find(MessageData request) {
+    UserDataKey key = isEnabled() ? UserDataKey.of(request, true) : null;
+    if (key == null) {
+      return null;
+    }
+
+    synchronized (this) {
+      InFlightRequest inFlight = joinable.get(key);
+      if (inFlight == null) {
+        return null;
+      }
+      if (inFlight.isExpired(currentTimeMillis())) {
+        joinable.remove(key);
+        return null;
+      }
+
+      return inFlight.sessionId;
+    }
+  }
+
+  /**
+   * Registers a waiter for the answer to an in-flight request found before,
+   * even if it can no longer be joined by new ones.
+   * 
+   * @param sessionId the Session-Id of the in-flight request
+   * @param waiter the null activity to fire the answer on
+   * @return false if the request was already answered or its activity ended
+   */
+  synchronized boolean join(String sessionId, NullActivity waiter) {
+    InFlightRequest inFlight = requests.get(sessionId);
+    if (inFlight == null) {
+      return false;
+    }
+
+    inFlight.waiters.add(waiter);
+    return true;
+  }
+
+  /**
+   * Shares a sent request with identical ones, unless one is already in flight.
+   * 
+   * @param request the data of the sent User-Data-Request
+   * @param sessionId the Session-Id of the request
+   */
+  void sent(MessageData request, String sessionId) {
+    UserDataKey key = isEnabled() ? UserDataKey.of(request, true) : null;
+    if (key == null) {
+      return;
+    }
+
+    long now = currentTimeMillis();
+    synchronized (this) {
+      InFlightRequest inFlight = joinable.get(key);
+      if (inFlight == null || inFlight.isExpired(now)) {
+        inFlight = new InFlightRequest(sessionId, now + timeout);
+        joinable.put(key, inFlight);
+        requests.put(sessionId, inFlight);
+      }
+    }
+  }
+
+  /**
+   * Stops sharing an answered request.
+   * 
+   * @param request the data of the answered User-Data-Request
+   * @param sessionId the Session-Id of the answer
+   * @return the null activities of the waiters to fire the answer on
+   */
+  List<NullActivity> answered(MessageData request, String sessionId) {
+    return remove(request, sessionId);
+  }
+
+  /**
+   * Stops sharing a request whose activity ended without its answer being
+   * delivered, e.g. due to a Diameter timeout.
+   * 
+   * @param request the data of the User-Data-Request
+   * @param sessionId the Session-Id of the request
+   * @return the null activities of the waiters, which must send their own requests
+   */
+  List<NullActivity> ended(MessageData request, String sessionId) {
+    return remove(request, sessionId);
+  }
+
+  private List<NullActivity> remove(MessageData request, String sessionId) {
+    UserDataKey key = UserDataKey.of(request, true);
+
+    synchronized (this) {
+      InFlightRequest inFlight = requests.remove(sessionId);
+      if (inFlight == null) {
+        return Collections.emptyList();
+      }
+
+      if (key != null && joinable.get(key) == inFlight) {
+        joinable.remove(key);
+      }
+      return inFlight.waiters;
+    }
+  }
+
+  /**
+   * @return the current time, in milliseconds
+   */
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private static final class InFlightRequest {
+
+    private final String sessionId;
+    private final long expiryTime;
+    private final List<NullActivity> waiters = new ArrayList<NullActivity>(2);
+
+    private InFlightRequest(String sessionId, long expiryTime) {
+      this.sessionId = sessionId;
+      this.expiryTime = expiryTime;
+    }
+
+    boolean isExpired(long now) {
+      return now > expiryTime;
+    }
+  }
+
+}
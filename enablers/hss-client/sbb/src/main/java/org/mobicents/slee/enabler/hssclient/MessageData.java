@@ -1,7 +1,7 @@
 /*
  * JBoss, Home of Professional Open Source
  *
- * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
  * as indicated by the @authors tag. All rights reserved.
  * See the copyright.txt in the distribution for a full listing
  * of individual contributors.
@@ -22,7 +22,10 @@
  */
 package org.mobicents.slee.enabler.hssclient;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 import net.java.slee.resource.diameter.sh.events.DiameterShMessage;
 import net.java.slee.resource.diameter.sh.events.ProfileUpdateRequest;
@@ -36,75 +39,109 @@ import net.java.slee.resource.diameter.sh.events.avp.SubsReqType;
 import net.java.slee.resource.diameter.sh.events.avp.UserIdentityAvp;
 
 /**
- * Data container for request and answer matching
+ * Data container for request and answer matching. Only the request values
+ * needed to deliver the answer to the parent are kept, enumerated ones as
+ * their int values, and it is externalized field by field, so an outstanding
+ * request costs a few dozen bytes in the activity context.
  * 
  * @author <a href=mailto:brainslog@gmail.com> Alexandre Mendonca </a>
  */
-public class MessageData implements Serializable {
+public class MessageData implements Externalizable {
 
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
+
+  public static final byte USER_DATA_REQUEST = 1;
+  public static final byte PROFILE_UPDATE_REQUEST = 2;
+  public static final byte SUBSCRIBE_NOTIFICATIONS_REQUEST = 3;
+  public static final byte PUSH_NOTIFICATION_REQUEST = 4;
+
+  private static final int NONE = -1;
+
+  // externalized field presence flags
+  private static final int PUBLIC_IDENTITY = 0x01;
+  private static final int MSISDN = 0x02;
+  private static final int SERVICE_INDICATIONS = 0x04;
+  private static final int IDENTITY_SETS = 0x08;
+  private static final int SERVER_NAME = 0x10;
+  private static final int DESTINATION_REALM = 0x20;
+  private static final int DESTINATION_HOST = 0x40;
+
+  private byte requestType;
 
-  private String sessionId = null;
   private String publicIdentity = null;
   private String msisdn = null;
 
-  private DataReferenceType dataReference;
-  private DataReferenceType[] dataReferences;
+  private int dataReference = NONE;
 
   private byte[][] serviceIndications;
 
-  private IdentitySetType[] identitySets;
+  private int[] identitySets;
   private String serverName;
-  private RequestedDomainType requestedDomain;
+  private int requestedDomain = NONE;
+
+  private int subsReqType = NONE;
 
-  private SubsReqType subsReqType;
+  private String destinationRealm;
+  private String destinationHost;
+
+  /**
+   * For externalization only.
+   */
+  public MessageData() {
+  }
 
   public MessageData(DiameterShMessage message) {
 
-    this.sessionId = message.getSessionId();
+    UserIdentityAvp uIdAvp = null;
+    DataReferenceType[] dataReferences = null;
 
     if(message instanceof UserDataRequest) {
       UserDataRequest udr = (UserDataRequest) message;
-
-      // retrieve public identity or msisdn
-      UserIdentityAvp uIdAvp = udr.getUserIdentity();
-      this.publicIdentity = uIdAvp.getPublicIdentity();
-      this.msisdn = uIdAvp.getMsisdn();
-
-      this.dataReferences = udr.getDataReferences();
-      this.serviceIndications = udr.getServiceIndications();
-      this.identitySets = udr.getIdentitySets();        
+      this.requestType = USER_DATA_REQUEST;
+
+      uIdAvp = udr.getUserIdentity();
+      dataReferences = udr.getDataReferences();
+      this.serviceIndications = emptyToNull(udr.getServiceIndications());
+
+      IdentitySetType[] typeIdentitySets = udr.getIdentitySets();
+      if(typeIdentitySets != null && typeIdentitySets.length > 0) {
+        this.identitySets = new int[typeIdentitySets.length];
+        for(int i = 0; i < typeIdentitySets.length; i++) {
+          this.identitySets[i] = typeIdentitySets[i].getValue();
+        }
+      }
       if(udr.hasServerName()) {
         this.serverName = udr.getServerName();
       }
       if(udr.hasRequestedDomain()) {
-        this.requestedDomain = udr.getRequestedDomain();
+        this.requestedDomain = udr.getRequestedDomain().getValue();
+      }
+      if(udr.hasDestinationRealm()) {
+        this.destinationRealm = udr.getDestinationRealm().toString();
+      }
+      if(udr.hasDestinationHost()) {
+        this.destinationHost = udr.getDestinationHost().toString();
       }
     }
     else if(message instanceof ProfileUpdateRequest) {
       ProfileUpdateRequest pur = (ProfileUpdateRequest) message;
+      this.requestType = PROFILE_UPDATE_REQUEST;
 
-      // retrieve public identity or msisdn
-      UserIdentityAvp uIdAvp = pur.getUserIdentity();
-      this.publicIdentity = uIdAvp.getPublicIdentity();
-      this.msisdn = uIdAvp.getMsisdn();
-
-      this.dataReference = pur.getDataReference();
+      uIdAvp = pur.getUserIdentity();
+      if(pur.hasDataReference()) {
+        this.dataReference = pur.getDataReference().getValue();
+      }
     }
     else if(message instanceof SubscribeNotificationsRequest) {
       SubscribeNotificationsRequest snr = (SubscribeNotificationsRequest) message;
+      this.requestType = SUBSCRIBE_NOTIFICATIONS_REQUEST;
 
-      // retrieve public identity or msisdn
-      UserIdentityAvp uIdAvp = snr.getUserIdentity();
-      this.publicIdentity = uIdAvp.getPublicIdentity();
-      this.msisdn = uIdAvp.getMsisdn();
-
+      uIdAvp = snr.getUserIdentity();
       if(snr.hasSubsReqType()) {
-        this.subsReqType = snr.getSubsReqType();
+        this.subsReqType = snr.getSubsReqType().getValue();
       }
-      this.dataReferences = snr.getDataReferences();
-
-      this.serviceIndications = snr.getServiceIndications();
+      dataReferences = snr.getDataReferences();
+      this.serviceIndications = emptyToNull(snr.getServiceIndications());
 
       if(snr.hasServerName()) {
         this.serverName = snr.getServerName();
@@ -112,19 +149,32 @@ public class MessageData implements Serializable {
     }
     else if(message instanceof PushNotificationRequest) {
       PushNotificationRequest pnr = (PushNotificationRequest) message;
+      this.requestType = PUSH_NOTIFICATION_REQUEST;
+
+      uIdAvp = pnr.getUserIdentity();
+    }
 
-      // retrieve public identity or msisdn
-      UserIdentityAvp uIdAvp = pnr.getUserIdentity();
+    // retrieve public identity or msisdn
+    if(uIdAvp != null) {
       this.publicIdentity = uIdAvp.getPublicIdentity();
       this.msisdn = uIdAvp.getMsisdn();
     }
+
+    // only one data ref is sent by the enabler
+    if(dataReferences != null && dataReferences.length > 0) {
+      this.dataReference = dataReferences[0].getValue();
+    }
+  }
+
+  private static byte[][] emptyToNull(byte[][] values) {
+    return values != null && values.length > 0 ? values : null;
   }
 
   /**
-   * @return the sessionId
+   * @return the type of the request, one of USER_DATA_REQUEST, PROFILE_UPDATE_REQUEST, SUBSCRIBE_NOTIFICATIONS_REQUEST or PUSH_NOTIFICATION_REQUEST
    */
-  public String getSessionId() {
-    return sessionId;
+  public byte getRequestType() {
+    return requestType;
   }
 
   /**
@@ -145,14 +195,7 @@ public class MessageData implements Serializable {
    * @return the dataReference
    */
   public DataReferenceType getDataReference() {
-    return dataReference;
-  }
-
-  /**
-   * @return the dataReferences
-   */
-  public DataReferenceType[] getDataReferences() {
-    return dataReferences;
+    return dataReference != NONE ? DataReferenceType.fromInt(dataReference) : null;
   }
 
   /**
@@ -165,7 +208,7 @@ public class MessageData implements Serializable {
   /**
    * @return the identitySets
    */
-  public IdentitySetType[] getIdentitySets() {
+  public int[] getIdentitySets() {
     return identitySets;
   }
 
@@ -180,14 +223,115 @@ public class MessageData implements Serializable {
    * @return the requestedDomain
    */
   public RequestedDomainType getRequestedDomain() {
-    return requestedDomain;
+    return requestedDomain != NONE ? RequestedDomainType.fromInt(requestedDomain) : null;
   }
 
   /**
    * @return the subsReqType
    */
   public SubsReqType getSubsReqType() {
-    return subsReqType;
+    return subsReqType != NONE ? SubsReqType.fromInt(subsReqType) : null;
+  }
+
+  /**
+   * @return the destinationRealm
+   */
+  public String getDestinationRealm() {
+    return destinationRealm;
+  }
+
+  /**
+   * @return the destinationHost
+   */
+  public String getDestinationHost() {
+    return destinationHost;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+   */
+  public void writeExternal(ObjectOutput out) throws IOException {
+    int flags = (publicIdentity != null ? PUBLIC_IDENTITY : 0) | (msisdn != null ? MSISDN : 0) |
+        (serviceIndications != null ? SERVICE_INDICATIONS : 0) | (identitySets != null ? IDENTITY_SETS : 0) |
+        (serverName != null ? SERVER_NAME : 0) | (destinationRealm != null ? DESTINATION_REALM : 0) |
+        (destinationHost != null ? DESTINATION_HOST : 0);
+
+    out.writeByte(requestType);
+    out.writeByte(flags);
+    out.writeByte(dataReference);
+    out.writeByte(requestedDomain);
+    out.writeByte(subsReqType);
+
+    if(publicIdentity != null) {
+      out.writeUTF(publicIdentity);
+    }
+    if(msisdn != null) {
+      out.writeUTF(msisdn);
+    }
+    if(serviceIndications != null) {
+      out.writeShort(serviceIndications.length);
+      for(byte[] serviceIndication : serviceIndications) {
+        out.writeShort(serviceIndication.length);
+        out.write(serviceIndication);
+      }
+    }
+    if(identitySets != null) {
+      out.writeByte(identitySets.length);
+      for(int identitySet : identitySets) {
+        out.writeByte(identitySet);
+      }
+    }
+    if(serverName != null) {
+      out.writeUTF(serverName);
+    }
+    if(destinationRealm != null) {
+      out.writeUTF(destinationRealm);
+    }
+    if(destinationHost != null) {
+      out.writeUTF(destinationHost);
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+   */
+  public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+    requestType = in.readByte();
+    int flags = in.readByte();
+    dataReference = in.readByte();
+    requestedDomain = in.readByte();
+    subsReqType = in.readByte();
+
+    if((flags & PUBLIC_IDENTITY) != 0) {
+      publicIdentity = in.readUTF();
+    }
+    if((flags & MSISDN) != 0) {
+      msisdn = in.readUTF();
+    }
+    if((flags & SERVICE_INDICATIONS) != 0) {
+      serviceIndications = new byte[in.readUnsignedShort()][];
+      for(int i = 0; i < serviceIndications.length; i++) {
+        serviceIndications[i] = new byte[in.readUnsignedShort()];
+        in.readFully(serviceIndications[i]);
+      }
+    }
+    if((flags & IDENTITY_SETS) != 0) {
+      identitySets = new int[in.readByte()];
+      for(int i = 0; i < identitySets.length; i++) {
+        identitySets[i] = in.readByte();
+      }
+    }
+    if((flags & SERVER_NAME) != 0) {
+      serverName = in.readUTF();
+    }
+    if((flags & DESTINATION_REALM) != 0) {
+      destinationRealm = in.readUTF();
+    }
+    if((flags & DESTINATION_HOST) != 0) {
+      destinationHost = in.readUTF();
+    }
   }
 
 }
@@ -34,4 +34,18 @@ public interface RequestMappingACI extends ActivityContextInterface {
 
   void setRequestData(MessageData data);
 
+  /**
+   * @return the User-Data cache invalidation generation taken when the User-Data-Request was sent
+   */
+  public long getUserDataGeneration();
+
+  void setUserDataGeneration(long generation);
+
+  /**
+   * @return the Session-Id of the in-flight User-Data-Request waited for, until the wait is registered
+   */
+  public String getSharedSessionId();
+
+  void setSharedSessionId(String sessionId);
+
 }
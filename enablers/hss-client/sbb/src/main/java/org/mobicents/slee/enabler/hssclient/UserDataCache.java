@@ -0,0 +1,514 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing
+ * of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License, v. 2.0.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * v. 2.0 along with this distribution; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301, USA.
+ */
+package org.mobicents.slee.enabler.hssclient;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.java.slee.resource.diameter.sh.events.avp.DataReferenceType;
+import net.java.slee.resource.diameter.sh.events.avp.SubsReqType;
+
+/**
+ * Cache of successful User-Data-Answer data, shared by all HSS Client Enabler
+ * child SBBs, keyed by the access key of the request: public identity or
+ * MSISDN, Data-Reference and Service-Indication(s), Identity-Set(s),
+ * Server-Name or Requested-Domain.
+ * 
+ * Answers are kept until their time to live expires, or until they are the
+ * least recently used ones and the cache is full. Answers for an identity are
+ * also removed when the HSS pushes a notification for it, for the data
+ * references subscribed to, and when the enabler updates its data. An answer
+ * to a request sent before such an invalidation is not cached, see
+ * {@link #getGeneration(MessageData)}.
+ * 
+ * The cache is disabled, with 0 max entries, until configured.
+ */
+public class UserDataCache implements UserDataCacheMBean {
+
+  public static final String OBJECT_NAME = "org.mobicents.slee.enabler:service=HSSClientUserDataCache";
+
+  public static final long DEFAULT_TIME_TO_LIVE = 300;
+
+  private static final int GENERATIONS = 1024;
+  private static final long SUBSCRIPTION_PURGE_INTERVAL = 60000;
+
+  private static final UserDataCache INSTANCE = new UserDataCache();
+
+  private final LinkedHashMap<UserDataKey, Entry> entries = new LinkedHashMap<UserDataKey, Entry>(16, 0.75f, true);
+  private final Map<String, Set<UserDataKey>> keysByIdentity = new HashMap<String, Set<UserDataKey>>();
+  // expiry time of the subscribed data references, by identity
+  private final Map<String, Map<Integer, Long>> subscriptions = new HashMap<String, Map<Integer, Long>>();
+  private long nextSubscriptionPurge;
+
+  // invalidation generations, identities are hashed to one of them
+  private final long[] generations = new long[GENERATIONS];
+
+  private volatile int maxEntries = 0;
+  private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @return the cache shared by the child SBBs of this enabler deployment
+   */
+  public static UserDataCache getInstance() {
+    return INSTANCE;
+  }
+
+  UserDataCache() {
+  }
+
+  /**
+   * Registers the cache in the platform MBean server, replacing the one of a
+   * previous deployment of the enabler, if any.
+   * 
+   * @throws JMException if the registration fails
+   */
+  public void register() throws JMException {
+    ObjectName name = new ObjectName(OBJECT_NAME);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+    server.registerMBean(this, name);
+  }
+
+  /**
+   * Removes the cache from the platform MBean server, if registered.
+   * 
+   * @throws JMException if the unregistration fails
+   */
+  public void unregister() throws JMException {
+    ObjectName name = new ObjectName(OBJECT_NAME);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+  }
+
+  public boolean isEnabled() {
+    return maxEntries > 0;
+  }
+
+  /**
+   * Looks up the data of a previous answer to an equivalent User-Data-Request.
+   * 
+   * @param request the data of the User-Data-Request to be sent
+   * @return the cached User-Data, or null if none
+   */
+  public String get(MessageData request) {
+    if (!isEnabled()) {
+      return null;
+    }
+
+    UserDataKey key = UserDataKey.of(request, false);
+    if (key == null) {
+      return null;
+    }
+
+    String data = null;
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        if (entry.isExpired(currentTimeMillis())) {
+          remove(key);
+          evictions.incrementAndGet();
+        }
+        else {
+          data = entry.data;
+        }
+      }
+    }
+
+    if (data != null) {
+      hits.incrementAndGet();
+    }
+    else {
+      misses.incrementAndGet();
+    }
+
+    return data;
+  }
+
+  /**
+   * Returns the invalidation generation of the identity of a User-Data-Request.
+   * It is to be taken before the request is sent and given back with its answer
+   * to {@link #put(MessageData, String, long)}, which drops the answer if the
+   * identity was invalidated meanwhile. Identities share a fixed number of
+   * generations, so an invalidation may drop answers for other identities too,
+   * but never lets a stale one in.
+   * 
+   * @param request the data of the User-Data-Request to be sent
+   * @return the current invalidation generation of its identity
+   */
+  public synchronized long getGeneration(MessageData request) {
+    String identity = UserDataKey.getIdentity(request);
+
+    return identity != null ? generations[generationIndex(identity)] : 0;
+  }
+
+  /**
+   * Stores the data of a successful User-Data-Answer, unless the identity was
+   * invalidated since the request was sent.
+   * 
+   * @param request the data of the answered User-Data-Request
+   * @param data the User-Data of the answer
+   * @param generation the invalidation generation taken before sending the request
+   */
+  public void put(MessageData request, String data, long generation) {
+    if (!isEnabled() || data == null) {
+      return;
+    }
+
+    UserDataKey key = UserDataKey.of(request, false);
+    if (key == null) {
+      return;
+    }
+
+    long expiryTime = timeToLive > 0 ? currentTimeMillis() + timeToLive * 1000 : Long.MAX_VALUE;
+    synchronized (this) {
+      if (generations[generationIndex(key.getIdentity())] != generation) {
+        // a notification or update overtook the answer, it may be stale
+        return;
+      }
+      if (entries.put(key, new Entry(data, expiryTime)) == null) {
+        Set<UserDataKey> keys = keysByIdentity.get(key.getIdentity());
+        if (keys == null) {
+          keys = new HashSet<UserDataKey>();
+          keysByIdentity.put(key.getIdentity(), keys);
+        }
+        keys.add(key);
+      }
+      evict(maxEntries);
+    }
+  }
+
+  /**
+   * Records a successful subscription or unsubscription, so that notifications
+   * for the identity only invalidate the data references subscribed to. The
+   * subscription is forgotten once expired. Subscriptions are kept for at most
+   * as many identities as the cache has entries; notifications for the others
+   * invalidate all their data references.
+   * 
+   * @param request the data of the answered Subscribe-Notifications-Request
+   * @param expiryTime the Expiry-Time of the answer, or null if the subscription does not expire
+   */
+  public void subscriptionChanged(MessageData request, Date expiryTime) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    String identity = UserDataKey.getIdentity(request);
+    DataReferenceType dataReference = request.getDataReference();
+    if (identity == null || dataReference == null) {
+      return;
+    }
+
+    boolean unsubscribe = request.getSubsReqType() != null && request.getSubsReqType().getValue() == SubsReqType._UNSUBSCRIBE;
+    long now = currentTimeMillis();
+    synchronized (this) {
+      Map<Integer, Long> subscribed = subscriptions.get(identity);
+      if (unsubscribe) {
+        if (subscribed != null) {
+          subscribed.remove(dataReference.getValue());
+          if (subscribed.isEmpty()) {
+            subscriptions.remove(identity);
+          }
+        }
+      }
+      else {
+        if (subscribed == null) {
+          if (subscriptions.size() >= maxEntries) {
+            purgeSubscriptions(now);
+            if (subscriptions.size() >= maxEntries) {
+              // not recorded, a notification then invalidates all its data
+              return;
+            }
+          }
+          subscribed = new HashMap<Integer, Long>();
+          subscriptions.put(identity, subscribed);
+        }
+        subscribed.put(dataReference.getValue(), expiryTime != null ? expiryTime.getTime() : Long.MAX_VALUE);
+      }
+
+      if (now >= nextSubscriptionPurge) {
+        purgeSubscriptions(now);
+        nextSubscriptionPurge = now + SUBSCRIPTION_PURGE_INTERVAL;
+      }
+    }
+  }
+
+  /**
+   * Removes the cached data of an identity the HSS pushed a notification for.
+   * Only the data references subscribed to are removed, or all if there is no
+   * known subscription for the identity.
+   * 
+   * @param publicIdentity the notified public identity, if any
+   * @param msisdn the notified MSISDN, if any
+   * @return the number of answers removed
+   */
+  public int invalidate(String publicIdentity, String msisdn) {
+    int removed = 0;
+    long now = currentTimeMillis();
+    synchronized (this) {
+      if (publicIdentity != null) {
+        removed += invalidate(publicIdentity, getSubscribedDataReferences(publicIdentity, now));
+      }
+      if (msisdn != null) {
+        removed += invalidate(msisdn, getSubscribedDataReferences(msisdn, now));
+      }
+    }
+    invalidations.addAndGet(removed);
+
+    return removed;
+  }
+
+  /**
+   * Removes the cached data updated by a successful Profile-Update-Request.
+   * 
+   * @param request the data of the answered Profile-Update-Request
+   * @return the number of answers removed
+   */
+  public int invalidate(MessageData request) {
+    String identity = UserDataKey.getIdentity(request);
+    if (identity == null || request.getDataReference() == null) {
+      return 0;
+    }
+
+    int removed;
+    synchronized (this) {
+      removed = invalidate(identity, Collections.singleton(request.getDataReference().getValue()));
+    }
+    invalidations.addAndGet(removed);
+
+    return removed;
+  }
+
+  private int invalidate(String identity, Set<Integer> dataReferences) {
+    generations[generationIndex(identity)]++;
+
+    Set<UserDataKey> keys = keysByIdentity.get(identity);
+    if (keys == null) {
+      return 0;
+    }
+
+    int removed = 0;
+    for (Iterator<UserDataKey> it = keys.iterator(); it.hasNext();) {
+      UserDataKey key = it.next();
+      if (dataReferences == null || dataReferences.contains(key.getDataReference())) {
+        it.remove();
+        entries.remove(key);
+        removed++;
+      }
+    }
+    if (keys.isEmpty()) {
+      keysByIdentity.remove(identity);
+    }
+
+    return removed;
+  }
+
+  private Set<Integer> getSubscribedDataReferences(String identity, long now) {
+    Map<Integer, Long> subscribed = subscriptions.get(identity);
+    if (subscribed == null) {
+      return null;
+    }
+
+    purgeExpired(subscribed, now);
+    if (subscribed.isEmpty()) {
+      subscriptions.remove(identity);
+      return null;
+    }
+
+    return subscribed.keySet();
+  }
+
+  private void purgeSubscriptions(long now) {
+    for (Iterator<Map<Integer, Long>> it = subscriptions.values().iterator(); it.hasNext();) {
+      Map<Integer, Long> subscribed = it.next();
+      purgeExpired(subscribed, now);
+      if (subscribed.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  private static void purgeExpired(Map<Integer, Long> subscribed, long now) {
+    for (Iterator<Long> it = subscribed.values().iterator(); it.hasNext();) {
+      if (now > it.next()) {
+        it.remove();
+      }
+    }
+  }
+
+  private static int generationIndex(String identity) {
+    return (identity.hashCode() & 0x7fffffff) % GENERATIONS;
+  }
+
+  /**
+   * @return the current time, in milliseconds
+   */
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private void remove(UserDataKey key) {
+    entries.remove(key);
+    unindex(key);
+  }
+
+  private void unindex(UserDataKey key) {
+    Set<UserDataKey> keys = keysByIdentity.get(key.getIdentity());
+    if (keys != null) {
+      keys.remove(key);
+      if (keys.isEmpty()) {
+        keysByIdentity.remove(key.getIdentity());
+      }
+    }
+  }
+
+  private void evict(int max) {
+    Iterator<UserDataKey> it = entries.keySet().iterator();
+    while (entries.size() > max && it.hasNext()) {
+      UserDataKey key = it.next();
+      it.remove();
+      unindex(key);
+      evictions.incrementAndGet();
+    }
+  }
+
+  // -- MBEAN METHODS ---------------------------------------------------------
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public synchronized void setMaxEntries(int maxEntries) {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("Max entries must not be negative: " + maxEntries);
+    }
+
+    this.maxEntries = maxEntries;
+    evict(maxEntries);
+    if (subscriptions.size() > maxEntries) {
+      // forgetting them only makes notifications invalidate more
+      subscriptions.clear();
+    }
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Sets the time an answer is kept in the cache, applied to answers cached from now on.
+   * 
+   * @param timeToLive the time to live, in seconds, or 0 to keep answers until invalidated or evicted
+   */
+  public void setTimeToLive(long timeToLive) {
+    if (timeToLive < 0) {
+      throw new IllegalArgumentException("Time to live must not be negative: " + timeToLive);
+    }
+
+    this.timeToLive = timeToLive;
+  }
+
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public double getHitRatio() {
+    long hits = this.hits.get();
+    long lookups = hits + misses.get();
+
+    return lookups > 0 ? (double) hits / lookups : 0;
+  }
+
+  public long getInvalidations() {
+    return invalidations.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  public synchronized int getSubscribedIdentities() {
+    purgeSubscriptions(currentTimeMillis());
+
+    return subscriptions.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    keysByIdentity.clear();
+    subscriptions.clear();
+  }
+
+  public void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+    invalidations.set(0);
+    evictions.set(0);
+  }
+
+  // -- CACHE ENTRY -----------------------------------------------------------
+
+  private static final class Entry {
+
+    private final String data;
+    private final long expiryTime;
+
+    private Entry(String data, long expiryTime) {
+      this.data = data;
+      this.expiryTime = expiryTime;
+    }
+
+    boolean isExpired(long now) {
+      return now > expiryTime;
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing
+ * of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License, v. 2.0.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * v. 2.0 along with this distribution; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301, USA.
+ */
+package org.mobicents.slee.enabler.hssclient;
+
+/**
+ * Management interface of the HSS Client Enabler User-Data cache.
+ */
+public interface UserDataCacheMBean {
+
+  /**
+   * @return the maximum number of cached answers, 0 if the cache is disabled
+   */
+  public int getMaxEntries();
+
+  /**
+   * Sets the maximum number of cached answers, evicting the least recently used
+   * ones if there are more. Setting it to 0 disables the cache and clears it.
+   * 
+   * @param maxEntries the maximum number of cached answers
+   */
+  public void setMaxEntries(int maxEntries);
+
+  /**
+   * @return the time, in seconds, an answer is kept in the cache
+   */
+  public long getTimeToLive();
+
+  public void setTimeToLive(long timeToLive);
+
+  public int getSize();
+
+  /**
+   * @return the number of User-Data requests answered from the cache, each one an HSS round-trip saved
+   */
+  public long getHits();
+
+  public long getMisses();
+
+  /**
+   * @return the ratio of hits to lookups, between 0 and 1
+   */
+  public double getHitRatio();
+
+  /**
+   * @return the number of answers removed due to Push-Notification-Requests or Profile-Update-Requests
+   */
+  public long getInvalidations();
+
+  /**
+   * @return the number of answers removed because they expired or the cache was full
+   */
+  public long getEvictions();
+
+  /**
+   * @return the number of public identities and MSISDNs with an active Sh subscription
+   */
+  public int getSubscribedIdentities();
+
+  /**
+   * Removes all cached answers and known subscriptions, keeping the statistics.
+   * Until subscribed again, notifications remove all the cached answers of the
+   * notified identity.
+   */
+  public void clear();
+
+  /**
+   * Sets all statistics back to 0.
+   */
+  public void resetStatistics();
+
+}
@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing
+ * of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License, v. 2.0.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * v. 2.0 along with this distribution; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301, USA.
+ */
+package org.mobicents.slee.enabler.hssclient;
+
+import net.java.slee.resource.diameter.sh.events.avp.DataReferenceType;
+
+/**
+ * Access key of a User-Data-Request: public identity or MSISDN, Data-Reference
+ * and, depending on it, Service-Indication(s), Identity-Set(s), Server-Name or
+ * Requested-Domain. Optionally the destination realm and host are part of it.
+ */
+final class UserDataKey {
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final String identity;
+  private final int dataReference;
+  private final String accessKey;
+
+  private UserDataKey(String identity, int dataReference, String accessKey) {
+    this.identity = identity;
+    this.dataReference = dataReference;
+    this.accessKey = accessKey;
+  }
+
+  /**
+   * @param request the data of a User-Data-Request
+   * @param withDestination whether the destination realm and host are part of the key
+   * @return the key of the request, or null if it has no identity or data reference
+   */
+  static UserDataKey of(MessageData request, boolean withDestination) {
+    String identity = getIdentity(request);
+    DataReferenceType dataReference = request.getDataReference();
+    if (identity == null || dataReference == null) {
+      return null;
+    }
+
+    // the rest of the access key, depending on the data reference; values are
+    // hex encoded or length prefixed, so that none can pass for a separator
+    StringBuilder accessKey = new StringBuilder();
+    byte[][] serviceIndications = request.getServiceIndications();
+    if (serviceIndications != null) {
+      for (byte[] serviceIndication : serviceIndications) {
+        appendHex(accessKey, serviceIndication).append(',');
+      }
+    }
+    accessKey.append('|');
+    int[] identitySets = request.getIdentitySets();
+    if (identitySets != null) {
+      for (int identitySet : identitySets) {
+        accessKey.append(identitySet).append(',');
+      }
+    }
+    accessKey.append('|');
+    appendString(accessKey, request.getServerName()).append('|');
+    if (request.getRequestedDomain() != null) {
+      accessKey.append(request.getRequestedDomain().getValue());
+    }
+    if (withDestination) {
+      accessKey.append('|');
+      appendString(accessKey, request.getDestinationRealm()).append('|');
+      appendString(accessKey, request.getDestinationHost());
+    }
+
+    return new UserDataKey(identity, dataReference.getValue(), accessKey.toString());
+  }
+
+  /**
+   * @return the public identity of the request, or its MSISDN if none, or null if neither is present
+   */
+  static String getIdentity(MessageData request) {
+    if (request.getPublicIdentity() != null) {
+      return request.getPublicIdentity();
+    }
+
+    byte[] msisdn = request.getMsisdn();
+    return msisdn != null && msisdn.length > 0 ? new String(msisdn) : null;
+  }
+
+  private static StringBuilder appendHex(StringBuilder sb, byte[] bytes) {
+    for (byte b : bytes) {
+      sb.append(HEX_DIGITS[(b >> 4) & 0x0f]).append(HEX_DIGITS[b & 0x0f]);
+    }
+
+    return sb;
+  }
+
+  private static StringBuilder appendString(StringBuilder sb, String value) {
+    // -1 tells a missing value from an empty one
+    return value != null ? sb.append(value.length()).append(':').append(value) : sb.append(-1);
+  }
+
+  String getIdentity() {
+    return identity;
+  }
+
+  int getDataReference() {
+    return dataReference;
+  }
+
+  @Override
+  public int hashCode() {
+    return (identity.hashCode() * 31 + dataReference) * 31 + accessKey.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof UserDataKey)) {
+      return false;
+    }
+
+    UserDataKey other = (UserDataKey) obj;
+    return dataReference == other.dataReference && identity.equals(other.identity) && accessKey.equals(other.accessKey);
+  }
+
+}
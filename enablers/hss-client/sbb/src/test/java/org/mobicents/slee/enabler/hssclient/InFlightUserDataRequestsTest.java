@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing
+ * of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License, v. 2.0.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * v. 2.0 along with this distribution; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301, USA.
+ */
+package org.mobicents.slee.enabler.hssclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mobicents.slee.enabler.hssclient.ShRequestAssistant.createRequest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import javax.slee.nullactivity.NullActivity;
+
+import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
+import net.java.slee.resource.diameter.sh.events.UserDataRequest;
+import net.java.slee.resource.diameter.sh.events.avp.DataReferenceType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the HSS Client Enabler {@link InFlightUserDataRequests}.
+ */
+public class InFlightUserDataRequestsTest {
+
+  private static final MessageData REQUEST = new MessageData(createRequest(UserDataRequest.class, "sip:alice@mobicents.org", null,
+      "getDataReferences", new DataReferenceType[] { DataReferenceType.IMS_USER_STATE }, "getDestinationRealm", new DiameterIdentity("mobicents.org")));
+
+  private long now = 1000000;
+
+  private InFlightUserDataRequests requests = new InFlightUserDataRequests() {
+    @Override
+    long currentTimeMillis() {
+      return now;
+    }
+  };
+
+  @Before
+  public void setUp() {
+    requests.setTimeout(1000);
+  }
+
+  /**
+   * Checks that the waiters of a request are delivered its answer.
+   */
+  @Test
+  public void testWaitersAnswered() {
+    requests.sent(REQUEST, "first");
+    assertEquals("first", requests.find(REQUEST));
+
+    NullActivity waiter = createWaiter();
+    assertTrue(requests.join("first", waiter));
+
+    assertEquals(Arrays.asList(waiter), requests.answered(REQUEST, "first"));
+    assertNull(requests.find(REQUEST));
+    assertFalse(requests.join("first", createWaiter()));
+  }
+
+  /**
+   * Checks that a request past its timeout is no longer found, but keeps its waiters until answered.
+   */
+  @Test
+  public void testTimeoutKeepsWaiters() {
+    requests.sent(REQUEST, "first");
+    NullActivity waiter = createWaiter();
+    requests.join("first", waiter);
+
+    now += 1001;
+    assertNull(requests.find(REQUEST));
+    requests.sent(REQUEST, "second");
+    assertEquals("second", requests.find(REQUEST));
+
+    // a waiter accepted before the timeout may still register
+    NullActivity lateWaiter = createWaiter();
+    assertTrue(requests.join("first", lateWaiter));
+
+    assertEquals(Arrays.asList(waiter, lateWaiter), requests.answered(REQUEST, "first"));
+    assertEquals("second", requests.find(REQUEST));
+  }
+
+  /**
+   * Checks that the waiters of a request are returned when its activity ends unanswered.
+   */
+  @Test
+  public void testActivityEndReturnsWaiters() {
+    requests.sent(REQUEST, "first");
+    NullActivity waiter = createWaiter();
+    requests.join("first", waiter);
+
+    assertEquals(Arrays.asList(waiter), requests.ended(REQUEST, "first"));
+    assertTrue(requests.answered(REQUEST, "first").isEmpty());
+  }
+
+  private static NullActivity createWaiter() {
+    return (NullActivity) Proxy.newProxyInstance(NullActivity.class.getClassLoader(), new Class<?>[] { NullActivity.class }, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("equals")) {
+          return proxy == args[0];
+        }
+        if (method.getName().equals("hashCode")) {
+          return System.identityHashCode(proxy);
+        }
+
+        return null;
+      }
+    });
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing
+ * of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License, v. 2.0.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * v. 2.0 along with this distribution; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301, USA.
+ */
+package org.mobicents.slee.enabler.hssclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mobicents.slee.enabler.hssclient.ShRequestAssistant.createRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
+import net.java.slee.resource.diameter.sh.events.ProfileUpdateRequest;
+import net.java.slee.resource.diameter.sh.events.PushNotificationRequest;
+import net.java.slee.resource.diameter.sh.events.SubscribeNotificationsRequest;
+import net.java.slee.resource.diameter.sh.events.UserDataRequest;
+import net.java.slee.resource.diameter.sh.events.avp.DataReferenceType;
+import net.java.slee.resource.diameter.sh.events.avp.IdentitySetType;
+import net.java.slee.resource.diameter.sh.events.avp.RequestedDomainType;
+import net.java.slee.resource.diameter.sh.events.avp.SubsReqType;
+
+import org.junit.Test;
+
+/**
+ * Tests for the HSS Client Enabler {@link MessageData} externalization.
+ */
+public class MessageDataTest {
+
+  private static final String IDENTITY = "sip:alice@mobicents.org";
+  private static final String MSISDN = "351912345678";
+  private static final String REALM = "mobicents.org";
+  private static final String HOST = "hss.mobicents.org";
+
+  // request type, flags, data reference, requested domain and subs req type
+  private static final int HEADER_SIZE = 5;
+
+  /**
+   * Checks that a User-Data-Request round-trips with the expected size.
+   */
+  @Test
+  public void testUserDataRequest() throws Exception {
+    MessageData data = new MessageData(createRequest(UserDataRequest.class, IDENTITY, null,
+        "getDataReferences", new DataReferenceType[] { DataReferenceType.IMS_PUBLIC_IDENTITY },
+        "getIdentitySets", new IdentitySetType[] { IdentitySetType.ALL_IDENTITIES, IdentitySetType.IMPLICIT_IDENTITIES },
+        "getDestinationRealm", new DiameterIdentity(REALM), "getDestinationHost", new DiameterIdentity(HOST)));
+
+    byte[] bytes = externalize(data);
+    assertEquals(HEADER_SIZE + utfSize(IDENTITY) + 1 + 2 + utfSize(REALM) + utfSize(HOST), bytes.length);
+
+    MessageData copy = internalize(bytes);
+    assertEquals(MessageData.USER_DATA_REQUEST, copy.getRequestType());
+    assertEquals(IDENTITY, copy.getPublicIdentity());
+    assertNull(copy.getMsisdn());
+    assertEquals(DataReferenceType.IMS_PUBLIC_IDENTITY, copy.getDataReference());
+    assertArrayEquals(new int[] { IdentitySetType._ALL_IDENTITIES, IdentitySetType._IMPLICIT_IDENTITIES }, copy.getIdentitySets());
+    assertNull(copy.getServiceIndications());
+    assertNull(copy.getRequestedDomain());
+    assertEquals(REALM, copy.getDestinationRealm());
+    assertEquals(HOST, copy.getDestinationHost());
+  }
+
+  /**
+   * Checks that a User-Data-Request by MSISDN with a Requested-Domain round-trips with the expected size.
+   */
+  @Test
+  public void testUserDataRequestByMsisdn() throws Exception {
+    MessageData data = new MessageData(createRequest(UserDataRequest.class, null, MSISDN,
+        "getDataReferences", new DataReferenceType[] { DataReferenceType.LOCATION_INFORMATION },
+        "getRequestedDomain", RequestedDomainType.PS_DOMAIN, "getDestinationRealm", new DiameterIdentity(REALM)));
+
+    byte[] bytes = externalize(data);
+    assertEquals(HEADER_SIZE + utfSize(MSISDN) + utfSize(REALM), bytes.length);
+
+    MessageData copy = internalize(bytes);
+    assertNull(copy.getPublicIdentity());
+    assertArrayEquals(MSISDN.getBytes(), copy.getMsisdn());
+    assertEquals(DataReferenceType.LOCATION_INFORMATION, copy.getDataReference());
+    assertEquals(RequestedDomainType.PS_DOMAIN, copy.getRequestedDomain());
+    assertNull(copy.getDestinationHost());
+  }
+
+  /**
+   * Checks that a Profile-Update-Request round-trips with the expected size.
+   */
+  @Test
+  public void testProfileUpdateRequest() throws Exception {
+    MessageData data = new MessageData(createRequest(ProfileUpdateRequest.class, IDENTITY, null,
+        "getDataReference", DataReferenceType.REPOSITORY_DATA));
+
+    byte[] bytes = externalize(data);
+    assertEquals(HEADER_SIZE + utfSize(IDENTITY), bytes.length);
+
+    MessageData copy = internalize(bytes);
+    assertEquals(MessageData.PROFILE_UPDATE_REQUEST, copy.getRequestType());
+    assertEquals(IDENTITY, copy.getPublicIdentity());
+    assertEquals(DataReferenceType.REPOSITORY_DATA, copy.getDataReference());
+    assertNull(copy.getSubsReqType());
+  }
+
+  /**
+   * Checks that a Subscribe-Notifications-Request round-trips with the expected size.
+   */
+  @Test
+  public void testSubscribeNotificationsRequest() throws Exception {
+    byte[][] serviceIndications = new byte[][] { "ServiceA".getBytes(), "ServiceB".getBytes() };
+    MessageData data = new MessageData(createRequest(SubscribeNotificationsRequest.class, IDENTITY, null,
+        "getDataReferences", new DataReferenceType[] { DataReferenceType.REPOSITORY_DATA },
+        "getSubsReqType", SubsReqType.SUBSCRIBE, "getServiceIndications", serviceIndications));
+
+    byte[] bytes = externalize(data);
+    assertEquals(HEADER_SIZE + utfSize(IDENTITY) + 2 + (2 + 8) * 2, bytes.length);
+
+    MessageData copy = internalize(bytes);
+    assertEquals(MessageData.SUBSCRIBE_NOTIFICATIONS_REQUEST, copy.getRequestType());
+    assertEquals(DataReferenceType.REPOSITORY_DATA, copy.getDataReference());
+    assertEquals(SubsReqType.SUBSCRIBE, copy.getSubsReqType());
+    assertEquals(2, copy.getServiceIndications().length);
+    assertArrayEquals(serviceIndications[1], copy.getServiceIndications()[1]);
+  }
+
+  /**
+   * Checks that a Push-Notification-Request round-trips with the expected size.
+   */
+  @Test
+  public void testPushNotificationRequest() throws Exception {
+    MessageData data = new MessageData(createRequest(PushNotificationRequest.class, IDENTITY, MSISDN));
+
+    byte[] bytes = externalize(data);
+    assertEquals(HEADER_SIZE + utfSize(IDENTITY) + utfSize(MSISDN), bytes.length);
+
+    MessageData copy = internalize(bytes);
+    assertEquals(MessageData.PUSH_NOTIFICATION_REQUEST, copy.getRequestType());
+    assertEquals(IDENTITY, copy.getPublicIdentity());
+    assertArrayEquals(MSISDN.getBytes(), copy.getMsisdn());
+    assertNull(copy.getDataReference());
+  }
+
+  /**
+   * Checks that Service-Indication lengths above 32767 bytes round-trip.
+   */
+  @Test
+  public void testLargeServiceIndication() throws Exception {
+    byte[][] serviceIndications = new byte[][] { new byte[40000] };
+    MessageData data = new MessageData(createRequest(UserDataRequest.class, IDENTITY, null,
+        "getDataReferences", new DataReferenceType[] { DataReferenceType.REPOSITORY_DATA }, "getServiceIndications", serviceIndications));
+
+    MessageData copy = internalize(externalize(data));
+    assertEquals(40000, copy.getServiceIndications()[0].length);
+  }
+
+  private static int utfSize(String value) {
+    return 2 + value.length();
+  }
+
+  private static byte[] externalize(MessageData data) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutput out = new DataObjectOutput(bytes);
+    data.writeExternal(out);
+    out.flush();
+
+    return bytes.toByteArray();
+  }
+
+  private static MessageData internalize(byte[] bytes) throws Exception {
+    MessageData data = new MessageData();
+    ObjectInput in = new DataObjectInput(new ByteArrayInputStream(bytes));
+    data.readExternal(in);
+    assertEquals("Unread bytes", 0, in.available());
+
+    return data;
+  }
+
+  /**
+   * Object output writing only primitive data, to measure the externalized size.
+   */
+  private static class DataObjectOutput extends DataOutputStream implements ObjectOutput {
+
+    DataObjectOutput(ByteArrayOutputStream out) {
+      super(out);
+    }
+
+    public void writeObject(Object obj) {
+      throw new UnsupportedOperationException("MessageData must only externalize primitive data");
+    }
+  }
+
+  private static class DataObjectInput extends DataInputStream implements ObjectInput {
+
+    DataObjectInput(ByteArrayInputStream in) {
+      super(in);
+    }
+
+    public Object readObject() {
+      throw new UnsupportedOperationException("MessageData must only externalize primitive data");
+    }
+  }
+
+}
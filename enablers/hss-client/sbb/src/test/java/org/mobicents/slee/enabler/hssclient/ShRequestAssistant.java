@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing
+ * of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License, v. 2.0.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * v. 2.0 along with this distribution; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301, USA.
+ */
+package org.mobicents.slee.enabler.hssclient;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.java.slee.resource.diameter.sh.events.DiameterShMessage;
+import net.java.slee.resource.diameter.sh.events.avp.UserIdentityAvp;
+
+/**
+ * Creates Sh requests backed by a map of getter values, to build
+ * {@link MessageData} from.
+ */
+public class ShRequestAssistant {
+
+  /**
+   * @param type the request interface
+   * @param publicIdentity the public identity of the User-Identity AVP, may be null
+   * @param msisdn the MSISDN of the User-Identity AVP, may be null
+   * @param getterValues pairs of getter name and value, e.g. "getDataReferences", new DataReferenceType[] {...}
+   * @return a request answering the given getters, and the matching has* methods with true
+   */
+  public static <T extends DiameterShMessage> T createRequest(Class<T> type, String publicIdentity, String msisdn, Object... getterValues) {
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("getUserIdentity", createUserIdentity(publicIdentity, msisdn));
+    for (int i = 0; i < getterValues.length; i += 2) {
+      values.put((String) getterValues[i], getterValues[i + 1]);
+    }
+
+    return type.cast(createProxy(type, values));
+  }
+
+  private static UserIdentityAvp createUserIdentity(String publicIdentity, String msisdn) {
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("getPublicIdentity", publicIdentity);
+    values.put("getMsisdn", msisdn);
+
+    return (UserIdentityAvp) createProxy(UserIdentityAvp.class, values);
+  }
+
+  private static Object createProxy(Class<?> type, final Map<String, Object> values) {
+    return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.startsWith("has")) {
+          return values.get("get" + name.substring(3)) != null;
+        }
+        if (method.getReturnType() == boolean.class) {
+          return false;
+        }
+
+        return values.get(name);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,257 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing
+ * of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License, v. 2.0.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * v. 2.0 along with this distribution; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301, USA.
+ */
+package org.mobicents.slee.enabler.hssclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mobicents.slee.enabler.hssclient.ShRequestAssistant.createRequest;
+
+import java.util.Date;
+
+import net.java.slee.resource.diameter.sh.events.SubscribeNotificationsRequest;
+import net.java.slee.resource.diameter.sh.events.UserDataRequest;
+import net.java.slee.resource.diameter.sh.events.avp.DataReferenceType;
+import net.java.slee.resource.diameter.sh.events.avp.SubsReqType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the HSS Client Enabler {@link UserDataCache}.
+ */
+public class UserDataCacheTest {
+
+  private static final String IDENTITY = "sip:alice@mobicents.org";
+
+  private long now = 1000000;
+
+  private UserDataCache cache = new UserDataCache() {
+    @Override
+    long currentTimeMillis() {
+      return now;
+    }
+  };
+
+  @Before
+  public void setUp() {
+    cache.setMaxEntries(10);
+    cache.setTimeToLive(60);
+  }
+
+  /**
+   * Checks that the least recently used answer is evicted when the cache is full.
+   */
+  @Test
+  public void testLeastRecentlyUsedEvicted() {
+    cache.setMaxEntries(2);
+    MessageData first = userDataRequest("sip:first@mobicents.org", DataReferenceType.IMS_USER_STATE);
+    MessageData second = userDataRequest("sip:second@mobicents.org", DataReferenceType.IMS_USER_STATE);
+    MessageData third = userDataRequest("sip:third@mobicents.org", DataReferenceType.IMS_USER_STATE);
+
+    put(first, "first");
+    put(second, "second");
+    assertEquals("first", cache.get(first));
+    put(third, "third");
+
+    assertEquals("first", cache.get(first));
+    assertNull(cache.get(second));
+    assertEquals("third", cache.get(third));
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  /**
+   * Checks that an answer is evicted once its time to live expires.
+   */
+  @Test
+  public void testExpiredAnswerEvicted() {
+    MessageData request = userDataRequest(IDENTITY, DataReferenceType.IMS_USER_STATE);
+    put(request, "data");
+
+    now += 60000;
+    assertEquals("data", cache.get(request));
+
+    now += 1;
+    assertNull(cache.get(request));
+    assertEquals(0, cache.getSize());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  /**
+   * Checks that a notification only invalidates the subscribed Data-References of the identity.
+   */
+  @Test
+  public void testNotificationInvalidatesSubscribedDataReferences() {
+    MessageData repositoryData = userDataRequest(IDENTITY, DataReferenceType.REPOSITORY_DATA);
+    MessageData userState = userDataRequest(IDENTITY, DataReferenceType.IMS_USER_STATE);
+    put(repositoryData, "repository");
+    put(userState, "state");
+
+    cache.subscriptionChanged(subscribeRequest(DataReferenceType.REPOSITORY_DATA, SubsReqType.SUBSCRIBE), null);
+    assertEquals(1, cache.invalidate(IDENTITY, null));
+
+    assertNull(cache.get(repositoryData));
+    assertEquals("state", cache.get(userState));
+    assertEquals(1, cache.getInvalidations());
+  }
+
+  /**
+   * Checks that a notification invalidates all the data of the identity if it is not subscribed.
+   */
+  @Test
+  public void testNotificationWithoutSubscriptionInvalidatesAll() {
+    put(userDataRequest(IDENTITY, DataReferenceType.REPOSITORY_DATA), "repository");
+    put(userDataRequest(IDENTITY, DataReferenceType.IMS_USER_STATE), "state");
+
+    cache.subscriptionChanged(subscribeRequest(DataReferenceType.REPOSITORY_DATA, SubsReqType.SUBSCRIBE), null);
+    cache.subscriptionChanged(subscribeRequest(DataReferenceType.REPOSITORY_DATA, SubsReqType.UNSUBSCRIBE), null);
+
+    assertEquals(0, cache.getSubscribedIdentities());
+    assertEquals(2, cache.invalidate(IDENTITY, null));
+    assertEquals(0, cache.getSize());
+  }
+
+  /**
+   * Checks that a subscription is forgotten once its Expiry-Time is reached.
+   */
+  @Test
+  public void testExpiredSubscriptionPurged() {
+    put(userDataRequest(IDENTITY, DataReferenceType.REPOSITORY_DATA), "repository");
+    put(userDataRequest(IDENTITY, DataReferenceType.IMS_USER_STATE), "state");
+
+    cache.subscriptionChanged(subscribeRequest(DataReferenceType.REPOSITORY_DATA, SubsReqType.SUBSCRIBE), new Date(now + 1000));
+    assertEquals(1, cache.getSubscribedIdentities());
+
+    now += 1001;
+    assertEquals(0, cache.getSubscribedIdentities());
+    assertEquals(2, cache.invalidate(IDENTITY, null));
+  }
+
+  /**
+   * Checks that an answer to a request sent before the identity was invalidated is not cached.
+   */
+  @Test
+  public void testAnswerOvertakenByInvalidationNotCached() {
+    MessageData request = userDataRequest(IDENTITY, DataReferenceType.REPOSITORY_DATA);
+    long generation = cache.getGeneration(request);
+
+    cache.invalidate(IDENTITY, null);
+    cache.put(request, "stale", generation);
+    assertNull(cache.get(request));
+
+    cache.put(request, "fresh", cache.getGeneration(request));
+    assertEquals("fresh", cache.get(request));
+  }
+
+  /**
+   * Checks that Service-Indications are not confused by their content, whatever bytes they hold.
+   */
+  @Test
+  public void testServiceIndicationsKeptApart() {
+    MessageData joined = userDataRequest(IDENTITY, new byte[][] { "a,b".getBytes() });
+    MessageData split = userDataRequest(IDENTITY, new byte[][] { "a".getBytes(), "b".getBytes() });
+    MessageData invalid = userDataRequest(IDENTITY, new byte[][] { { (byte) 0xff } });
+    MessageData otherInvalid = userDataRequest(IDENTITY, new byte[][] { { (byte) 0xfe } });
+
+    put(joined, "joined");
+    put(split, "split");
+    put(invalid, "invalid");
+    put(otherInvalid, "otherInvalid");
+
+    assertEquals("joined", cache.get(joined));
+    assertEquals("split", cache.get(split));
+    assertEquals("invalid", cache.get(invalid));
+    assertEquals("otherInvalid", cache.get(otherInvalid));
+    assertEquals(4, cache.getSize());
+  }
+
+  /**
+   * Checks that subscriptions are not recorded while the cache is disabled.
+   */
+  @Test
+  public void testSubscriptionIgnoredWhenDisabled() {
+    cache.setMaxEntries(0);
+    cache.subscriptionChanged(subscribeRequest(DataReferenceType.REPOSITORY_DATA, SubsReqType.SUBSCRIBE), null);
+
+    assertEquals(0, cache.getSubscribedIdentities());
+  }
+
+  /**
+   * Checks that subscriptions are kept for at most as many identities as the cache has entries.
+   */
+  @Test
+  public void testSubscriptionsCapped() {
+    cache.setMaxEntries(2);
+    cache.subscriptionChanged(subscribeRequest("sip:first@mobicents.org", DataReferenceType.REPOSITORY_DATA), null);
+    cache.subscriptionChanged(subscribeRequest("sip:second@mobicents.org", DataReferenceType.REPOSITORY_DATA), null);
+    cache.subscriptionChanged(subscribeRequest("sip:third@mobicents.org", DataReferenceType.REPOSITORY_DATA), null);
+    assertEquals(2, cache.getSubscribedIdentities());
+
+    // without a recorded subscription, a notification invalidates all the data of the identity
+    put(userDataRequest("sip:third@mobicents.org", DataReferenceType.REPOSITORY_DATA), "repository");
+    put(userDataRequest("sip:third@mobicents.org", DataReferenceType.IMS_USER_STATE), "state");
+    assertEquals(2, cache.invalidate("sip:third@mobicents.org", null));
+
+    cache.setMaxEntries(1);
+    assertEquals(0, cache.getSubscribedIdentities());
+  }
+
+  /**
+   * Checks that clearing the cache also forgets the subscriptions.
+   */
+  @Test
+  public void testClearForgetsSubscriptions() {
+    put(userDataRequest(IDENTITY, DataReferenceType.REPOSITORY_DATA), "repository");
+    cache.subscriptionChanged(subscribeRequest(DataReferenceType.REPOSITORY_DATA, SubsReqType.SUBSCRIBE), null);
+
+    cache.clear();
+
+    assertEquals(0, cache.getSize());
+    assertEquals(0, cache.getSubscribedIdentities());
+  }
+
+  private void put(MessageData request, String data) {
+    cache.put(request, data, cache.getGeneration(request));
+  }
+
+  private static MessageData userDataRequest(String publicIdentity, DataReferenceType dataReference) {
+    return new MessageData(createRequest(UserDataRequest.class, publicIdentity, null,
+        "getDataReferences", new DataReferenceType[] { dataReference }));
+  }
+
+  private static MessageData userDataRequest(String publicIdentity, byte[][] serviceIndications) {
+    return new MessageData(createRequest(UserDataRequest.class, publicIdentity, null,
+        "getDataReferences", new DataReferenceType[] { DataReferenceType.REPOSITORY_DATA }, "getServiceIndications", serviceIndications));
+  }
+
+  private static MessageData subscribeRequest(DataReferenceType dataReference, SubsReqType subsReqType) {
+    return new MessageData(createRequest(SubscribeNotificationsRequest.class, IDENTITY, null,
+        "getDataReferences", new DataReferenceType[] { dataReference }, "getSubsReqType", subsReqType));
+  }
+
+  private static MessageData subscribeRequest(String publicIdentity, DataReferenceType dataReference) {
+    return new MessageData(createRequest(SubscribeNotificationsRequest.class, publicIdentity, null,
+        "getDataReferences", new DataReferenceType[] { dataReference }, "getSubsReqType", SubsReqType.SUBSCRIBE));
+  }
+
+}
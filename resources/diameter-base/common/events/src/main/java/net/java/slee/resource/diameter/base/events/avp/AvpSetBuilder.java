@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package net.java.slee.resource.diameter.base.events.avp;
+
+import java.util.Arrays;
+
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+
+import org.jdiameter.api.AvpSet;
+import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.base.events.avp.GroupedAvpImpl;
+
+/**
+ * Collects the AVPs for a message or Grouped AVP, to have them validated and
+ * added at once.
+ * 
+ * Setting AVPs one by one validates each of them against the dictionary, which
+ * means counting the AVPs already present for every AVP added. The builder
+ * instead validates all of them in a single pass when built, before any is
+ * added, so a message is either built with all its AVPs or left untouched.
+ * 
+ * A builder is not thread-safe and can be reused after being built.
+ */
+public class AvpSetBuilder {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private DiameterAvp[] avps;
+  private int size;
+
+  public AvpSetBuilder() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize the number of AVPs expected to be added
+   */
+  public AvpSetBuilder(int expectedSize) {
+    this.avps = new DiameterAvp[Math.max(expectedSize, 1)];
+  }
+
+  /**
+   * Adds an AVP, to be validated and added when built. Null AVPs are ignored.
+   * 
+   * @param avp the AVP to add
+   * @return this builder
+   */
+  public AvpSetBuilder add(DiameterAvp avp) {
+    if (avp != null) {
+      if (size == avps.length) {
+        avps = Arrays.copyOf(avps, size * 2);
+      }
+      avps[size++] = avp;
+    }
+
+    return this;
+  }
+
+  /**
+   * Adds the AVPs in the given array, in the order they appear.
+   * 
+   * @param avps the AVPs to add
+   * @return this builder
+   */
+  public AvpSetBuilder add(DiameterAvp[] avps) {
+    if (avps != null) {
+      for (DiameterAvp avp : avps) {
+        add(avp);
+      }
+    }
+
+    return this;
+  }
+
+  /**
+   * Adds a Grouped AVP with the given code and Vendor-Id, holding the AVPs
+   * collected by another builder.
+   * 
+   * @param avpCode the code of the Grouped AVP
+   * @param vendorId the Vendor-Id of the Grouped AVP
+   * @param children the builder with the child AVPs
+   * @return this builder
+   * @throws AvpNotAllowedException if the child AVPs are not valid for the Grouped AVP
+   */
+  public AvpSetBuilder add(int avpCode, long vendorId, AvpSetBuilder children) throws AvpNotAllowedException {
+    return add(children.buildGrouped(avpCode, vendorId));
+  }
+
+  /**
+   * @return the number of AVPs collected
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return a copy of the AVPs collected, in the order they were added
+   */
+  public DiameterAvp[] getAvps() {
+    return Arrays.copyOf(avps, size);
+  }
+
+  /**
+   * Removes all the AVPs collected.
+   */
+  public void clear() {
+    Arrays.fill(avps, 0, size, null);
+    size = 0;
+  }
+
+  /**
+   * Validates the collected AVPs for the given message, and adds them to it.
+   * Session-Id and the AVPs which should be close to the header are placed as
+   * when set individually.
+   * 
+   * @param message the message to add the AVPs to
+   * @throws AvpNotAllowedException if any of the AVPs is not allowed in the message, or exceeds its multiplicity. No AVP is added in that case.
+   */
+  public void build(DiameterMessage message) throws AvpNotAllowedException {
+    build(((DiameterMessageImpl) message).getGenericData());
+  }
+
+  /**
+   * Validates the collected AVPs for the given message, and adds them to it.
+   * 
+   * @param message the message to add the AVPs to
+   * @throws AvpNotAllowedException if any of the AVPs is not allowed in the message, or exceeds its multiplicity. No AVP is added in that case.
+   */
+  public void build(Message message) throws AvpNotAllowedException {
+    AvpUtilities.performPreAddOperations(message, avps, size);
+
+    AvpSet set = message.getAvps();
+    for (int i = 0; i < size; i++) {
+      AvpUtilities.addAvp(avps[i], set);
+    }
+  }
+
+  /**
+   * Validates the collected AVPs as children of the given Grouped AVP, and adds
+   * them to it.
+   * 
+   * @param parent the Grouped AVP to add the AVPs to
+   * @throws AvpNotAllowedException if any of the AVPs is not allowed in the Grouped AVP, or exceeds its multiplicity. No AVP is added in that case.
+   */
+  public void build(GroupedAvp parent) throws AvpNotAllowedException {
+    AvpUtilities.performPreAddOperations(parent, avps, size);
+
+    parent.setExtensionAvps(getAvps());
+  }
+
+  /**
+   * Creates a Grouped AVP with the given code and Vendor-Id holding the
+   * collected AVPs, validated as its children.
+   * 
+   * @param avpCode the code of the Grouped AVP
+   * @param vendorId the Vendor-Id of the Grouped AVP
+   * @return the new Grouped AVP
+   * @throws AvpNotAllowedException if any of the AVPs is not allowed in the Grouped AVP, or exceeds its multiplicity
+   */
+  public GroupedAvp buildGrouped(int avpCode, long vendorId) throws AvpNotAllowedException {
+    GroupedAvp grouped = (GroupedAvp) AvpUtilities.createAvp(avpCode, vendorId, GroupedAvpImpl.class);
+    build(grouped);
+
+    return grouped;
+  }
+
+}
@@ -25,11 +25,14 @@ package net.java.slee.resource.diameter.base.events.avp;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.jdiameter.api.Avp;
@@ -41,8 +44,11 @@ import org.jdiameter.api.validation.MessageRepresentation;
 import org.jdiameter.client.api.parser.ParseException;
 import org.jdiameter.client.impl.parser.MessageParser;
 import org.jdiameter.common.impl.validation.DictionaryImpl;
-import org.mobicents.diameter.dictionary.AvpDictionary;
-import org.mobicents.diameter.dictionary.AvpRepresentation;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpMetadataIndex;
+import org.mobicents.slee.resource.diameter.base.events.avp.BaseAvpCodecs;
 import org.mobicents.slee.resource.diameter.base.events.avp.DiameterAvpImpl;
 import org.mobicents.slee.resource.diameter.base.events.avp.GroupedAvpImpl;
 
@@ -69,6 +75,8 @@ public class AvpUtilities {
     // Just so we have it
     parser = new MessageParser();
     dictionary = DictionaryImpl.INSTANCE;
+    // Base AVP types codecs, other applications register their own
+    BaseAvpCodecs.register();
   }
 
   public static void setParser(MessageParser singletonParser) {
@@ -164,14 +172,107 @@ public class AvpUtilities {
   }
 
   /**
-   * Returns an {@link AvpRepresentation} of the AVP with the given code and given Vendor-Id, if found.
-   * 
-   * @param avpCode the code of the AVP
-   * @param vendorId the Vendor-Id of the AVP
-   * @return
+   * Batch version of {@link #performPreAddOperations(Object, int, long, AvpSet)}, validating the addition of several
+   * AVPs at once. The AVPs are counted by code and Vendor-Id in a single pass, so the multiplicity of each distinct AVP
+   * is checked once, instead of the parent set being scanned again for every AVP added.
+   *
+   * @param parent the Message/Grouped AVP where AVPs will be added to, for validation purposes. if null, no validation is performed.
+   * @param avps the AVPs to be added
+   * @param count the number of AVPs, from the start of the array, to be added
+   * @throws AvpNotAllowedException if any of the AVPs is not allowed in the parent, or exceeds its multiplicity
+   */
+  static void performPreAddOperations(Object parent, DiameterAvp[] avps, int count) throws AvpNotAllowedException {
+    if (!dictionary.isEnabled() || count == 0) {
+      // no need to proceed any further.. no validation
+      return;
+    }
+
+    if(parent instanceof Message) {
+      Message msg = (Message) parent;
+
+      MessageRepresentation msgRep = dictionary.getMessage(msg.getCommandCode(), msg.getApplicationId(), msg.isRequest());
+
+      // if we don't know anything about this message, let's just move on..
+      if(msgRep == null) {
+        if(logger.isDebugEnabled()) {
+          logger.debug("Unable to find message in dictionary, skipping validation. (Command Code: " + msg.getCommandCode() + ", Application-Id: " + msg.getApplicationId() + ")");
+        }
+        return;
+      }
+
+      for (int i = 0; i < count; i++) {
+        if (!msgRep.isAllowed(avps[i].getCode(), avps[i].getVendorId())) {
+          throw new AvpNotAllowedException("Avp defined by code: " + avps[i].getCode() + ", vendorId: " + avps[i].getVendorId() + " is not allowed in message - code: "
+              + msg.getCommandCode() + ", appId: " + msg.getApplicationId() + ", isRequest: " + msg.isRequest(), avps[i].getCode(), avps[i].getVendorId());
+        }
+      }
+
+      AvpSet set = msg.getAvps();
+      for (Map.Entry<Long, int[]> entry : countAvps(avps, count).entrySet()) {
+        int avpCode = (int) entry.getKey().longValue();
+        long vendorId = entry.getKey() >>> 32;
+
+        // Session-Id is replaced, not added, so whatever is already there does not count
+        if (avpCode == Avp.SESSION_ID && vendorId == 0) {
+          continue;
+        }
+        if (!msgRep.isCountValidForMultiplicity(set, avpCode, vendorId, entry.getValue()[0])) {
+          throw new AvpNotAllowedException("Avp not allowed, count exceeded.", avpCode, vendorId);
+        }
+      }
+    }
+    else if (parent instanceof GroupedAvp) {
+      GroupedAvpImpl gAvp = (GroupedAvpImpl) parent;
+
+      org.jdiameter.api.validation.AvpRepresentation parentAvpRep = dictionary.getAvp(gAvp.getCode(), gAvp.getVendorId());
+
+      // if we don't know anything about this avp, let's just move on..
+      if(parentAvpRep == null) {
+        if(logger.isDebugEnabled()) {
+          logger.debug("Unable to find parent AVP in dictionary, skipping validation. (AVP Code: " + gAvp.getCode() + ", Vendor-Id: " + gAvp.getVendorId() + ")");
+        }
+        return;
+      }
+
+      for (int i = 0; i < count; i++) {
+        if (!parentAvpRep.isAllowed(avps[i].getCode(), avps[i].getVendorId())) {
+          throw new AvpNotAllowedException("AVP with Code '" + avps[i].getCode() + "' and Vendor-Id '" + avps[i].getVendorId() + "' is not allowed as a child of AVP with Code '"
+              + parentAvpRep.getCode() + "' and Vendor-Id '" + parentAvpRep.getVendorId() + "'.", avps[i].getCode(), avps[i].getVendorId());
+        }
+      }
+
+      AvpSet set = gAvp.getGenericData();
+      for (Map.Entry<Long, int[]> entry : countAvps(avps, count).entrySet()) {
+        int avpCode = (int) entry.getKey().longValue();
+        long vendorId = entry.getKey() >>> 32;
+
+        org.jdiameter.api.validation.AvpRepresentation avpRep = dictionary.getAvp(avpCode, vendorId);
+        if (avpRep != null && !avpRep.isCountValidForMultiplicity(set, entry.getValue()[0])) {
+          throw new AvpNotAllowedException("Avp not allowed, count exceeded.", avpCode, vendorId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the occurrences of each AVP, keyed as in {@link AvpMetadataIndex#key(int, long)}, keeping the order in which
+   * they first appear so that validation failures are reported for the first offending AVP.
    */
-  private static AvpRepresentation getAvpRepresentation(int avpCode, long vendorId) {
-    return AvpDictionary.INSTANCE.getAvp(avpCode);
+  private static Map<Long, int[]> countAvps(DiameterAvp[] avps, int count) {
+    Map<Long, int[]> counts = new LinkedHashMap<Long, int[]>(count * 2);
+
+    for (int i = 0; i < count; i++) {
+      Long key = AvpMetadataIndex.key(avps[i].getCode(), avps[i].getVendorId());
+      int[] n = counts.get(key);
+      if (n == null) {
+        counts.put(key, new int[] { 1 });
+      }
+      else {
+        n[0]++;
+      }
+    }
+
+    return counts;
   }
 
   /**
@@ -198,7 +299,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsString(Object parent, int avpCode, long vendorId, boolean isOctetString, AvpSet set, String value) {
-    AvpRepresentation rep = getAvpRepresentation(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsString(parent, avpCode, vendorId, isOctetString, set, rep.isMandatory(), rep.isProtected(), value);
@@ -336,7 +437,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsOctetString(Object parent, int avpCode, long vendorId, AvpSet set, String value) {
-    AvpRepresentation rep = getAvpRepresentation(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsOctetString(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -453,7 +554,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsUTF8String(Object parent, int avpCode, long vendorId, AvpSet set, String value) {
-    AvpRepresentation rep = getAvpRepresentation(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsUTF8String(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -602,7 +703,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsUnsigned32(Object parent, int avpCode, long vendorId, AvpSet set, long value) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsUnsigned32(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -731,7 +832,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsUnsigned64(Object parent, int avpCode, long vendorId, AvpSet set, long value) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsUnsigned64(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -860,7 +961,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsInteger32(Object parent, int avpCode, long vendorId, AvpSet set, int value) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsInteger32(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -989,7 +1090,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsInteger64(Object parent, int avpCode, long vendorId, AvpSet set, long value) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsInteger64(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -1106,7 +1207,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsFloat32(Object parent, int avpCode, long vendorId, AvpSet set, float value) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsFloat32(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -1223,7 +1324,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsFloat64(Object parent, int avpCode, long vendorId, AvpSet set, double value) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsFloat64(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -1340,7 +1441,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsTime(Object parent, int avpCode, long vendorId, AvpSet set, Date value) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsTime(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -1457,7 +1558,7 @@ public class AvpUtilities {
    * @param childs the value of the AVP to add
    */
   public static AvpSet setAvpAsGrouped(Object parent, int avpCode, long vendorId, AvpSet set, DiameterAvp[] childs) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       return setAvpAsGrouped(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), childs);
@@ -1580,7 +1681,7 @@ public class AvpUtilities {
    * @param value the value of the AVP to add
    */
   public static void setAvpAsRaw(Object parent, int avpCode, long vendorId, AvpSet set, byte[] value) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if (rep != null) {
       setAvpAsRaw(parent, avpCode, vendorId, set, rep.isMandatory(), rep.isProtected(), value);
@@ -1635,15 +1736,29 @@ public class AvpUtilities {
     try {
       AvpSet avpSet = set.getAvps(avpCode);
 
+      GroupedAvpFactory factory = AvpCodecRegistry.getGroupedFactory(clazz);
+      if (factory != null) {
+        Object[] array = factory.newArray(avpSet.size());
+        int i = 0;
+
+        for(Avp avp : avpSet) {
+          AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, avp.getVendorId());
+
+          array[i++] = factory.newInstance(rep.getCode(), rep.getVendorId(), rep.getRuleMandatoryAsInt(), rep.getRuleProtectedAsInt(), avp.getRawData());
+        }
+
+        return array;
+      }
+
       Object array = Array.newInstance(clazz, avpSet.size());
       int i = 0;
 
       Constructor c = clazz.getConstructor(int.class, long.class, int.class, int.class, byte[].class);
 
-      AvpRepresentation rep = null;
+      AvpMetadataIndex.Entry rep = null;
 
       for(Avp avp : avpSet) {
-        rep = AvpDictionary.INSTANCE.getAvp(avpCode, avp.getVendorId());
+        rep = AvpMetadataIndex.get(avpCode, avp.getVendorId());
 
         Array.set(array, i++, c.newInstance(rep.getCode(), rep.getVendorId(), rep.getRuleMandatoryAsInt(), rep.getRuleProtectedAsInt(), avp.getRawData()));
       }
@@ -1663,11 +1778,15 @@ public class AvpUtilities {
       Avp avp = set.getAvp(avpCode, vendorId);
 
       if (avp != null) {
-        AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+        AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
 
-        Constructor c = null;
+        GroupedAvpFactory factory = AvpCodecRegistry.getGroupedFactory(clazz);
+        if (factory != null) {
+          return factory.newInstance(rep.getCode(), rep.getVendorId(), rep.getRuleMandatoryAsInt(), rep.getRuleProtectedAsInt(), avp.getRawData());
+        }
 
-        c = clazz.getConstructor(int.class, long.class, int.class, int.class, byte[].class);
+        // not registered, fallback to reflection
+        Constructor c = clazz.getConstructor(int.class, long.class, int.class, int.class, byte[].class);
         return c.newInstance(rep.getCode(), rep.getVendorId(), rep.getRuleMandatoryAsInt(), rep.getRuleProtectedAsInt(), avp.getRawData());
       }
     }
@@ -1684,11 +1803,23 @@ public class AvpUtilities {
     try {
       AvpSet avpSet = set.getAvps(avpCode, vendorId);
 
+      AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpCode, vendorId);
+
+      GroupedAvpFactory factory = AvpCodecRegistry.getGroupedFactory(clazz);
+      if (factory != null) {
+        Object[] array = factory.newArray(avpSet.size());
+        int i = 0;
+
+        for(Avp avp : avpSet) {
+          array[i++] = factory.newInstance(rep.getCode(), rep.getVendorId(), rep.getRuleMandatoryAsInt(), rep.getRuleProtectedAsInt(), avp.getRawData());
+        }
+
+        return array;
+      }
+
       Object array = Array.newInstance(clazz, avpSet.size());
       int i = 0;
 
-      AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
-
       Constructor c = clazz.getConstructor(int.class, long.class, int.class, int.class, byte[].class);
 
       for(Avp avp : avpSet) {
@@ -1706,7 +1837,7 @@ public class AvpUtilities {
   }
 
   public static void addAvp(Object parent, String avpName, AvpSet set, Object avp) {
-    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(avpName);
+    AvpMetadataIndex.Entry rep = AvpMetadataIndex.get(avpName);
 
     if(rep != null) {
       addAvp(parent, rep.getCode(), rep.getVendorId(), set, avp);
@@ -1730,13 +1861,13 @@ public class AvpUtilities {
    * @param set the AvpSet where to add the AVP
    */
   public static void addAvp(Object parent, int avpCode, long vendorId, AvpSet set, Object avp) {
-    AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if(avpRep != null) {
-      DiameterAvpType avpType = DiameterAvpType.fromString(avpRep.getType());
+      DiameterAvpType avpType = avpRep.getType();
 
-      boolean isMandatoryAvp = !(avpRep.getRuleMandatory().equals("mustnot") || avpRep.getRuleMandatory().equals("shouldnot"));
-      boolean isProtectedAvp = avpRep.getRuleProtected().equals("must");
+      boolean isMandatoryAvp = avpRep.isMandatoryBit();
+      boolean isProtectedAvp = avpRep.isProtectedBit();
 
       if(avp instanceof byte[]) {
         setAvpAsRaw(parent, avpCode, vendorId, set, isMandatoryAvp, isProtectedAvp, (byte[]) avp);
@@ -1968,7 +2099,7 @@ public class AvpUtilities {
     try {
       int value = getAvpAsInteger32(avpCode, set);
 
-      return clazz.getMethod("fromInt", int.class).invoke(null, value);
+      return enumeratedFromInt(clazz, value);
     }
     catch (Exception e) {
       if(logger.isDebugEnabled()) { 
@@ -1979,32 +2110,14 @@ public class AvpUtilities {
   }
 
   public static Object[] getAvpsAsEnumerated(int avpCode, AvpSet set, Class clazz) {
-    Object array = Array.newInstance(clazz, 0);
-
-    try {
-      int[] values = getAvpsAsInteger32(avpCode, set);
-
-      array = Array.newInstance(clazz, values.length);
-      int i = 0;
-
-      for(int value : values) {
-        Array.set(array, i++, clazz.getMethod("fromInt", int.class).invoke(null, value));
-      }
-    }
-    catch (Exception e) {
-      if(logger.isDebugEnabled()) { 
-        logger.debug("Failed to obtain AVP with code " + avpCode + " as type Enumerated.", e);
-      }
-    }
-
-    return (Object[]) array;
+    return getAvpsAsEnumerated(avpCode, getAvpsAsInteger32(avpCode, set), clazz);
   }
 
   public static Object getAvpAsEnumerated(int avpCode, long vendorId, AvpSet set, Class clazz) {
     try {
       int value = getAvpAsInteger32(avpCode, vendorId, set);
 
-      return clazz.getMethod("fromInt", int.class).invoke(null, value);
+      return enumeratedFromInt(clazz, value);
     }
     catch (Exception e) {
       if(logger.isDebugEnabled()) { 
@@ -2015,32 +2128,58 @@ public class AvpUtilities {
   }
 
   public static Object[] getAvpsAsEnumerated(int avpCode, long vendorId, AvpSet set, Class clazz) {
-    Object array = Array.newInstance(clazz, 0);
+    return getAvpsAsEnumerated(avpCode, getAvpsAsInteger32(avpCode, vendorId, set), clazz);
+  }
+
+  private static Object[] getAvpsAsEnumerated(int avpCode, int[] values, Class clazz) {
+    EnumeratedFactory factory = AvpCodecRegistry.getEnumeratedFactory(clazz);
 
     try {
-      int[] values = getAvpsAsInteger32(avpCode, vendorId, set);
+      if (factory != null) {
+        Object[] array = factory.newArray(values.length);
+        int i = 0;
+
+        for(int value : values) {
+          array[i++] = factory.fromInt(value);
+        }
 
-      array = Array.newInstance(clazz, values.length);
+        return array;
+      }
+
+      Object array = Array.newInstance(clazz, values.length);
       int i = 0;
 
+      Method fromInt = clazz.getMethod("fromInt", int.class);
       for(int value : values) {
-        Array.set(array, i++, clazz.getMethod("fromInt", int.class).invoke(null, value));
+        Array.set(array, i++, fromInt.invoke(null, value));
       }
+
+      return (Object[]) array;
     }
     catch (Exception e) {
       if(logger.isDebugEnabled()) { 
-        logger.debug("Failed to obtain AVP with code " + avpCode + " and Vendor-Id " + vendorId + " as type Enumerated.", e);
+        logger.debug("Failed to obtain AVP with code " + avpCode + " as type Enumerated.", e);
       }
+      return factory != null ? factory.newArray(0) : (Object[]) Array.newInstance(clazz, 0);
+    }
+  }
+
+  private static Object enumeratedFromInt(Class clazz, int value) throws Exception {
+    EnumeratedFactory factory = AvpCodecRegistry.getEnumeratedFactory(clazz);
+
+    if (factory != null) {
+      return factory.fromInt(value);
     }
 
-    return (Object[]) array;
+    // not registered, fallback to reflection
+    return clazz.getMethod("fromInt", int.class).invoke(null, value);
   }
 
   public static IPFilterRule getAvpAsIPFilterRule(int avpCode, AvpSet set) {
     try {
       String value = getAvpAsUTF8String(avpCode, set);
 
-      return value != null ? new IPFilterRule(value) : null;
+      return value != null ? IPFilterRule.valueOf(value) : null;
     }
     catch (Exception e) {
       if(logger.isDebugEnabled()) { 
@@ -2055,7 +2194,7 @@ public class AvpUtilities {
 
     for(String value : getAvpsAsUTF8String(avpCode, set)) {
       if(value != null) {
-        values.add(new IPFilterRule(value));
+        values.add(IPFilterRule.valueOf(value));
       }
     }
 
@@ -2066,7 +2205,7 @@ public class AvpUtilities {
     try {
       String value = getAvpAsUTF8String(avpCode, vendorId, set);
 
-      return value != null ? new IPFilterRule(value) : null;
+      return value != null ? IPFilterRule.valueOf(value) : null;
     }
     catch (Exception e) {
       if(logger.isDebugEnabled()) { 
@@ -2081,7 +2220,7 @@ public class AvpUtilities {
 
     for(String value : getAvpsAsUTF8String(avpCode, set)) {
       if(value != null) {
-        values.add(new IPFilterRule(value));
+        values.add(IPFilterRule.valueOf(value));
       }
     }
 
@@ -2128,7 +2267,7 @@ public class AvpUtilities {
   }
 
   public static Object getAvp(String avpName, AvpSet set) {
-    AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpName);
+    AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpName);
 
     if(avpRep != null) {
       return getAvp(avpRep.getCode(), avpRep.getVendorId(), set);
@@ -2147,10 +2286,10 @@ public class AvpUtilities {
    * @return an AVP with the given code and Vendor-Id, or null if none is present.
    */
   public static Object getAvp(int avpCode, long vendorId, AvpSet set) {
-    AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if(avpRep != null) {
-      DiameterAvpType avpType = DiameterAvpType.fromString(avpRep.getType());
+      DiameterAvpType avpType = avpRep.getType();
 
       switch (avpType.getType()) {
         case DiameterAvpType._ADDRESS:
@@ -2166,7 +2305,7 @@ public class AvpUtilities {
             return null;
           }
         case DiameterAvpType._IP_FILTER_RULE:
-          return new IPFilterRule(getAvpAsUTF8String(avpCode, vendorId, set));
+          return IPFilterRule.valueOf(getAvpAsUTF8String(avpCode, vendorId, set));
         case DiameterAvpType._OCTET_STRING:
           return getAvpAsOctetString(avpCode, vendorId, set);
         case DiameterAvpType._QOS_FILTER_RULE:
@@ -2456,9 +2595,9 @@ public class AvpUtilities {
   }
 
   private static DiameterAvpType getAvpType(int avpCode, long vendorId) {
-    AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpCode, vendorId);
 
-    return avpRep != null ? DiameterAvpType.fromString(avpRep.getType()) : null;
+    return avpRep != null ? avpRep.getType() : null;
   }
 
   public static DiameterAvp createAvp(int avpCode, Class avpImplClass) {
@@ -2479,18 +2618,26 @@ public class AvpUtilities {
 
   public static DiameterAvp createAvp(int avpCode, long vendorId, byte[] value, DiameterAvp[] childAVPs, Class avpImplClass) {
     try {
-      AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+      AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpCode, vendorId);
 
       int mandatoryAvp = avpRep.getRuleMandatoryAsInt();
       int protectedAvp = avpRep.getRuleProtectedAsInt();
 
       if(avpImplClass == DiameterAvpImpl.class) {
-        Constructor avpConstructor = avpImplClass.getConstructor(int.class, long.class, int.class, int.class, byte[].class, DiameterAvpType.class);
-        return (DiameterAvp) avpConstructor.newInstance(avpCode, vendorId, mandatoryAvp, protectedAvp, value != null ? value : new byte[]{}, DiameterAvpType.fromString(avpRep.getType()));
+        return new DiameterAvpImpl(avpCode, vendorId, mandatoryAvp, protectedAvp, value != null ? value : new byte[]{}, avpRep.getType());
       }
       else {
-        Constructor avpConstructor = avpImplClass.getConstructor(int.class, long.class, int.class, int.class, byte[].class);
-        GroupedAvp returnAvp = (GroupedAvp) avpConstructor.newInstance(avpCode, vendorId, mandatoryAvp, protectedAvp, value != null ? value : new byte[]{});
+        GroupedAvpFactory factory = AvpCodecRegistry.getGroupedFactory(avpImplClass);
+        GroupedAvp returnAvp = null;
+
+        if (factory != null) {
+          returnAvp = (GroupedAvp) factory.newInstance(avpCode, vendorId, mandatoryAvp, protectedAvp, value != null ? value : new byte[]{});
+        }
+        else {
+          // not registered, fallback to reflection
+          Constructor avpConstructor = avpImplClass.getConstructor(int.class, long.class, int.class, int.class, byte[].class);
+          returnAvp = (GroupedAvp) avpConstructor.newInstance(avpCode, vendorId, mandatoryAvp, protectedAvp, value != null ? value : new byte[]{});
+        }
 
         returnAvp.setExtensionAvps(childAVPs);
 
@@ -22,6 +22,9 @@
 
 package net.java.slee.resource.diameter.base.events.avp;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -185,6 +188,11 @@ import java.util.regex.Matcher;
  * infrastructure.
  * <p/>
  * The rule syntax is a modified subset of ipfw(8) from FreeBSD.
+ * <p/>
+ * Instances are immutable. The text form is parsed once, with addresses kept
+ * as integer words and masks, ports as ranges and the options as bitsets, so
+ * that {@link #matches(int, byte[], int, byte[], int)} does not handle strings.
+ * Use {@link #valueOf(String)} to share the parsed form of recurring rules.
  *
  * @author Open Cloud
  * @author baranowb
@@ -197,9 +205,35 @@ public class IPFilterRule {
   public static final int DIR_IN = 0;
   public static final int DIR_OUT = 1;
 
+  // TCP flags, as in the TCP header
+  public static final int TCP_FLAG_FIN = 0x01;
+  public static final int TCP_FLAG_SYN = 0x02;
+  public static final int TCP_FLAG_RST = 0x04;
+  public static final int TCP_FLAG_PSH = 0x08;
+  public static final int TCP_FLAG_ACK = 0x10;
+  public static final int TCP_FLAG_URG = 0x20;
+
+  public static final int IP_OPTION_SSRR = 0x01;
+  public static final int IP_OPTION_LSRR = 0x02;
+  public static final int IP_OPTION_RR = 0x04;
+  public static final int IP_OPTION_TS = 0x08;
+
+  public static final int TCP_OPTION_MSS = 0x01;
+  public static final int TCP_OPTION_WINDOW = 0x02;
+  public static final int TCP_OPTION_SACK = 0x04;
+  public static final int TCP_OPTION_TS = 0x08;
+  public static final int TCP_OPTION_CC = 0x10;
+
   private static final String[] EMPTY_STRING_ARRAY = new String[0];
   private static final int[] EMPTY_INT_ARRAY = new int[0];
 
+  private static final String[] TCP_FLAG_NAMES = new String[] {"fin", "syn", "rst", "psh", "ack", "urg"};
+  private static final String[] IP_OPTION_NAMES = new String[] {"ssrr", "lsrr", "rr", "ts"};
+  private static final String[] TCP_OPTION_NAMES = new String[] {"mss", "window", "sack", "ts", "cc"};
+
+  private static final int MAX_CACHE_SIZE = 4096;
+  private static final ConcurrentHashMap<String, IPFilterRule> cache = new ConcurrentHashMap<String, IPFilterRule>();
+
   private int action;
   private int direction;
   private boolean anyProtocol;
@@ -216,15 +250,60 @@ public class IPFilterRule {
   private String tcpFlags = null;
   private String icmpTypes = null;
 
+  // options split and converted to bitsets, the "absent" bits are those preceded by '!'
+  private String[] ipOptionsList = EMPTY_STRING_ARRAY;
+  private String[] tcpOptionsList = EMPTY_STRING_ARRAY;
+  private String[] tcpFlagsList = EMPTY_STRING_ARRAY;
+  private String[] icmpTypesList = EMPTY_STRING_ARRAY;
+  private int requiredIpOptions;
+  private int absentIpOptions;
+  private int requiredTcpOptions;
+  private int absentTcpOptions;
+  private int requiredTcpFlags;
+  private int absentTcpFlags;
+
+  private volatile String ruleString;
+
   public IPFilterRule(String rule) {
     parseRule(rule);
   }
 
+  /**
+   * Returns the parsed form of the rule, shared with previous calls for the
+   * same text form while it is cached.
+   *
+   * @param rule the rule, in text form
+   * @return the parsed rule
+   * @throws IllegalArgumentException if the rule can not be parsed
+   */
+  public static IPFilterRule valueOf(String rule) {
+    IPFilterRule ipFilterRule = cache.get(rule);
+    if (ipFilterRule == null) {
+      ipFilterRule = new IPFilterRule(rule);
+      if (cache.size() >= MAX_CACHE_SIZE) {
+        // rules usually carry per-session addresses, no point in keeping the old ones around
+        cache.clear();
+      }
+      cache.put(rule, ipFilterRule);
+    }
+
+    return ipFilterRule;
+  }
+
   public String toString() {
     return getRuleString();
   }
 
   public String getRuleString() {
+    String ruleString = this.ruleString;
+    if (ruleString == null) {
+      ruleString = this.ruleString = buildRuleString();
+    }
+
+    return ruleString;
+  }
+
+  private String buildRuleString() {
     StringBuffer ruleBuf = new StringBuffer();
     ruleBuf.append(action == ACTION_PERMIT ? "permit ":"deny ");
     ruleBuf.append(direction == DIR_IN ? "in ":"out ");
@@ -287,7 +366,7 @@ public class IPFilterRule {
   }
 
   public int[][] getSourcePorts() {
-    return sourceAddressSet.ports;
+    return copy(sourceAddressSet.ports);
   }
 
   public String getDestIp() {
@@ -307,7 +386,20 @@ public class IPFilterRule {
   }
 
   public int[][] getDestPorts() {
-    return destAddressSet.ports;
+    return copy(destAddressSet.ports);
+  }
+
+  private static int[][] copy(int[][] ports) {
+    if (ports == null) {
+      return null;
+    }
+
+    int[][] copy = new int[ports.length][];
+    for (int i = 0; i < ports.length; i++) {
+      copy[i] = ports[i].clone();
+    }
+
+    return copy;
   }
 
   public boolean isFragment() {
@@ -315,11 +407,39 @@ public class IPFilterRule {
   }
 
   public String[] getIpOptions() {
-    return ipOptions == null ? EMPTY_STRING_ARRAY : ipOptions.split(",");
+    return ipOptionsList.length == 0 ? EMPTY_STRING_ARRAY : ipOptionsList.clone();
+  }
+
+  /**
+   * @return the IP options which must be present, as IP_OPTION_* bits
+   */
+  public int getRequiredIpOptions() {
+    return requiredIpOptions;
+  }
+
+  /**
+   * @return the IP options which must not be present, as IP_OPTION_* bits
+   */
+  public int getAbsentIpOptions() {
+    return absentIpOptions;
   }
 
   public String[] getTcpOptions() {
-    return tcpOptions == null ? EMPTY_STRING_ARRAY : tcpOptions.split(",");
+    return tcpOptionsList.length == 0 ? EMPTY_STRING_ARRAY : tcpOptionsList.clone();
+  }
+
+  /**
+   * @return the TCP options which must be present, as TCP_OPTION_* bits
+   */
+  public int getRequiredTcpOptions() {
+    return requiredTcpOptions;
+  }
+
+  /**
+   * @return the TCP options which must not be present, as TCP_OPTION_* bits
+   */
+  public int getAbsentTcpOptions() {
+    return absentTcpOptions;
   }
 
   public boolean isEstablished() {
@@ -331,11 +451,25 @@ public class IPFilterRule {
   }
 
   public String[] getTcpFlags() {
-    return tcpFlags == null ? EMPTY_STRING_ARRAY : tcpFlags.split(",");
+    return tcpFlagsList.length == 0 ? EMPTY_STRING_ARRAY : tcpFlagsList.clone();
+  }
+
+  /**
+   * @return the TCP flags which must be set, as TCP_FLAG_* bits
+   */
+  public int getRequiredTcpFlags() {
+    return requiredTcpFlags;
+  }
+
+  /**
+   * @return the TCP flags which must not be set, as TCP_FLAG_* bits
+   */
+  public int getAbsentTcpFlags() {
+    return absentTcpFlags;
   }
 
   public String[] getIcmpTypes() {
-    return icmpTypes == null ? EMPTY_STRING_ARRAY : icmpTypes.split(",");
+    return icmpTypesList.length == 0 ? EMPTY_STRING_ARRAY : icmpTypesList.clone();
   }
 
   public int[] getNumericIcmpTypes() {
@@ -343,14 +477,63 @@ public class IPFilterRule {
     return EMPTY_INT_ARRAY;
   }
 
+  /**
+   * Checks if a packet matches the protocol, addresses and ports of this rule.
+   * The direction and action are not taken into account, nor are the options,
+   * see {@link #matchesTcpFlags(int)} for these. The "assigned" keyword never
+   * matches, as the addresses assigned to the terminal are not known to the rule.
+   *
+   * @param protocol the IP protocol number of the packet
+   * @param sourceAddress the source address, 4 or 16 bytes
+   * @param sourcePort the source port, or -1 if the protocol has no ports
+   * @param destAddress the destination address, 4 or 16 bytes
+   * @param destPort the destination port, or -1 if the protocol has no ports
+   * @return true if the packet matches
+   */
+  public boolean matches(int protocol, byte[] sourceAddress, int sourcePort, byte[] destAddress, int destPort) {
+    return (anyProtocol || this.protocol == protocol) && sourceAddressSet.matches(sourceAddress, sourcePort)
+        && destAddressSet.matches(destAddress, destPort);
+  }
+
+  /**
+   * As {@link #matches(int, byte[], int, byte[], int)}, for IPv4 addresses as integers.
+   */
+  public boolean matches(int protocol, int sourceAddress, int sourcePort, int destAddress, int destPort) {
+    return (anyProtocol || this.protocol == protocol) && sourceAddressSet.matches(sourceAddress, sourcePort)
+        && destAddressSet.matches(destAddress, destPort);
+  }
+
+  /**
+   * As {@link #matches(int, byte[], int, byte[], int)}.
+   */
+  public boolean matches(int protocol, InetAddress sourceAddress, int sourcePort, InetAddress destAddress, int destPort) {
+    return matches(protocol, sourceAddress.getAddress(), sourcePort, destAddress.getAddress(), destPort);
+  }
+
+  /**
+   * Checks if the TCP flags of a packet satisfy the established, setup and
+   * tcpflags options of this rule.
+   *
+   * @param tcpFlags the flags of the TCP header, as TCP_FLAG_* bits
+   * @return true if the flags match, or if the rule has none of these options
+   */
+  public boolean matchesTcpFlags(int tcpFlags) {
+    if (established && (tcpFlags & (TCP_FLAG_RST | TCP_FLAG_ACK)) == 0) {
+      return false;
+    }
+    if (setup && ((tcpFlags & TCP_FLAG_SYN) == 0 || (tcpFlags & TCP_FLAG_ACK) != 0)) {
+      return false;
+    }
+
+    return (tcpFlags & requiredTcpFlags) == requiredTcpFlags && (tcpFlags & absentTcpFlags) == 0;
+  }
+
   private void parseRule(String rule) {
 
     //THIS: \\s+(.+?)((frag|tcpoptions|setup|ipoptions|established|setup|tcpflags|icmptypes)(.+))? matches - everything, or everything up to keywords if they are there.
     //defines group 5 as everything and group 6 as leftover, aka options, which are optional. 6 has two subgroups, one to match keyword, second to swallow everything after keyword.
     //other way would be to match by word boundary - but would have to check if present word ia a port declaration or options. this seems better idea.
-    Pattern ruleParser = Pattern.compile("(.+)\\s+(.+)\\s+(.+)\\s+from\\s+(.+)\\s+to\\s+(.+?)((frag|tcpoptions|setup|ipoptions|established|setup|tcpflags|icmptypes)(.*))?");
-
-    Matcher matcher = ruleParser.matcher(rule.trim());
+    Matcher matcher = RULE_PATTERN.matcher(rule.trim());
 
     if(matcher.matches()) {
       parseAction(matcher.group(1), rule);
@@ -412,8 +595,7 @@ public class IPFilterRule {
     // MONSTER KILL: matches keywords, IPv4 and IPv6 address
     // this is actually a bit bad, allows any/24 for instance...
     // 1   2                                            22              23 
-    Pattern ipv4Pattern = Pattern.compile("(!?)(any|assigned|"+ipv4Regexp+"|"+ipv6Regexp+")(/[0-9]{1,3})?( [0-9,-]*)?");
-    Matcher matcher = ipv4Pattern.matcher(addressSetString);
+    Matcher matcher = ADDRESS_SET_PATTERN.matcher(addressSetString);
     if(matcher.matches()) {
       addressSet.notMatch = "!".equals(matcher.group(1));
       if("assigned".equals(matcher.group(2))) {
@@ -455,13 +637,14 @@ public class IPFilterRule {
       }
     }
     else fail(rule, addressSetString);
+
+    addressSet.compile();
     return addressSet;
   }
 
   private void parseOptions(String options, String rule) {
     if(options != null && options.length() > 0) {
-      Pattern optionsSplitter = Pattern.compile("\\s+");
-      String[] optionsArray = optionsSplitter.split(options);
+      String[] optionsArray = OPTIONS_SPLITTER.split(options);
       for (int i = 0; i < optionsArray.length; i++) {
         String option = optionsArray[i];
         if("frag".equals(option)) fragment = true;
@@ -473,7 +656,45 @@ public class IPFilterRule {
         else if("icmptypes".equals(option)) icmpTypes = optionsArray[++i];
         else fail(rule, option);
       }
+
+      if(ipOptions != null) {
+        ipOptionsList = ipOptions.split(",");
+        requiredIpOptions = toBits(ipOptionsList, IP_OPTION_NAMES, false);
+        absentIpOptions = toBits(ipOptionsList, IP_OPTION_NAMES, true);
+      }
+      if(tcpOptions != null) {
+        tcpOptionsList = tcpOptions.split(",");
+        requiredTcpOptions = toBits(tcpOptionsList, TCP_OPTION_NAMES, false);
+        absentTcpOptions = toBits(tcpOptionsList, TCP_OPTION_NAMES, true);
+      }
+      if(tcpFlags != null) {
+        tcpFlagsList = tcpFlags.split(",");
+        requiredTcpFlags = toBits(tcpFlagsList, TCP_FLAG_NAMES, false);
+        absentTcpFlags = toBits(tcpFlagsList, TCP_FLAG_NAMES, true);
+      }
+      if(icmpTypes != null) {
+        icmpTypesList = icmpTypes.split(",");
+      }
+    }
+  }
+
+  // bit i is set for names[i], unknown names are left out
+  private static int toBits(String[] values, String[] names, boolean negated) {
+    int bits = 0;
+    for (String value : values) {
+      boolean isNegated = value.startsWith("!");
+      if (isNegated == negated) {
+        String name = isNegated ? value.substring(1) : value;
+        for (int i = 0; i < names.length; i++) {
+          if (names[i].equals(name)) {
+            bits |= 1 << i;
+            break;
+          }
+        }
+      }
     }
+
+    return bits;
   }
 
   private void fail(String rule, String error) {
@@ -504,15 +725,147 @@ public class IPFilterRule {
         }
       }
     }
+
+    private void compile() {
+      if (ports != null) {
+        portRanges = new int[ports.length * 2];
+        for (int i = 0; i < ports.length; i++) {
+          portRanges[i * 2] = ports[i][0];
+          portRanges[i * 2 + 1] = ports[i][1];
+        }
+      }
+
+      if (assignedIps || "any".equals(ip)) {
+        return;
+      }
+
+      byte[] address = toBytes(ip);
+      if (address == null) {
+        // accepted by the rule pattern but not a valid address, never matches
+        return;
+      }
+
+      int length = address.length / 4;
+      int prefix = bits < 0 ? address.length * 8 : Math.min(bits, address.length * 8);
+      words = new int[length];
+      masks = new int[length];
+      for (int i = 0; i < length; i++) {
+        int wordBits = Math.max(0, Math.min(32, prefix - i * 32));
+        masks[i] = wordBits == 0 ? 0 : -1 << (32 - wordBits);
+        words[i] = word(address, i) & masks[i];
+      }
+    }
+
+    private boolean matches(byte[] address, int port) {
+      return matchesAddress(address) != notMatch && matchesPort(port);
+    }
+
+    private boolean matches(int address, int port) {
+      boolean matches;
+      if (assignedIps) {
+        matches = false;
+      }
+      else if (words == null) {
+        matches = "any".equals(ip);
+      }
+      else {
+        matches = words.length == 1 && (address & masks[0]) == words[0];
+      }
+
+      return matches != notMatch && matchesPort(port);
+    }
+
+    private boolean matchesAddress(byte[] address) {
+      if (assignedIps) {
+        return false;
+      }
+      if (words == null) {
+        return "any".equals(ip);
+      }
+      if (address == null || address.length != words.length * 4) {
+        // same IP version is required for a match
+        return false;
+      }
+      for (int i = 0; i < words.length; i++) {
+        if ((word(address, i) & masks[i]) != words[i]) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    private boolean matchesPort(int port) {
+      if (portRanges == null) {
+        return true;
+      }
+      for (int i = 0; i < portRanges.length; i += 2) {
+        if (port >= portRanges[i] && port <= portRanges[i + 1]) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
     private String ip;
     private int bits = -1;
     private int[][] ports;
     private boolean assignedIps = false;
     private boolean notMatch = false;
+
+    // binary form of ip and bits, null if any, assigned or not a valid address
+    private int[] words;
+    private int[] masks;
+    // pairs of lower and upper bound, null if no ports
+    private int[] portRanges;
+  }
+
+  private static int word(byte[] address, int index) {
+    int offset = index * 4;
+    return (address[offset] & 0xFF) << 24 | (address[offset + 1] & 0xFF) << 16 | (address[offset + 2] & 0xFF) << 8 | (address[offset + 3] & 0xFF);
+  }
+
+  private static byte[] toBytes(String ip) {
+    if (ip.indexOf(':') < 0) {
+      // dotted quad, parsed here as the pattern is lenient on separators
+      byte[] address = new byte[4];
+      int octet = 0;
+      int value = -1;
+      for (int i = 0; i <= ip.length(); i++) {
+        char c = i < ip.length() ? ip.charAt(i) : '.';
+        if (c >= '0' && c <= '9') {
+          value = (value < 0 ? 0 : value * 10) + (c - '0');
+        }
+        else {
+          if (value < 0 || value > 255 || octet > 3) {
+            return null;
+          }
+          address[octet++] = (byte) value;
+          value = -1;
+        }
+      }
+
+      return octet == 4 ? address : null;
+    }
+
+    try {
+      // a literal, so no lookup is made
+      InetAddress address = InetAddress.getByName(ip);
+      return address.getAddress();
+    }
+    catch (UnknownHostException e) {
+      return null;
+    }
   }
 
   //some helper statics to make it cleaner
   private static final String ipv4Regexp = "(25[0-6]|2[0-4][0-9]|1[0-9]{1,2}|[0-9]{1,2}).(25[0-6]|2[0-4][0-9]|1[0-9]{1,2}|[0-9]{1,2}).(25[0-6]|2[0-4][0-9]|1[0-9]{1,2}|[0-9]{1,2}).(25[0-6]|2[0-4][0-9]|1[0-9]{1,2}|[0-9]{1,2})";
   private static final String ipv6Regexp = "((?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4})|(((?:[0-9A-Fa-f]{1,4}(?::[0-9A-Fa-f]{1,4})*)?)::((?:[0-9A-Fa-f]{1,4}(?::[0-9A-Fa-f]{1,4})*)?))|(((?:[0-9A-Fa-f]{1,4}:){6,6})(25[0-5]|2[0-4]\\d|[0-1]?\\d?\\d)(\\.(25[0-5]|2[0-4]\\d|[0-1]?\\d?\\d)){3})|(((?:[0-9A-Fa-f]{1,4}(?::[0-9A-Fa-f]{1,4})*)?) ::((?:[0-9A-Fa-f]{1,4}:)*)(25[0-5]|2[0-4]\\d|[0-1]?\\d?\\d)(\\.(25[0-5]|2[0-4]\\d|[0-1]?\\d?\\d)){3})";
 
+  // see parseRule and parseAddressSet
+  private static final Pattern RULE_PATTERN = Pattern.compile("(.+)\\s+(.+)\\s+(.+)\\s+from\\s+(.+)\\s+to\\s+(.+?)((frag|tcpoptions|setup|ipoptions|established|setup|tcpflags|icmptypes)(.*))?");
+  private static final Pattern ADDRESS_SET_PATTERN = Pattern.compile("(!?)(any|assigned|"+ipv4Regexp+"|"+ipv6Regexp+")(/[0-9]{1,3})?( [0-9,-]*)?");
+  private static final Pattern OPTIONS_SPLITTER = Pattern.compile("\\s+");
+
 }
@@ -47,8 +47,7 @@ import org.jdiameter.api.Avp;
 import org.jdiameter.api.AvpDataException;
 import org.jdiameter.api.AvpSet;
 import org.jdiameter.api.Message;
-import org.mobicents.diameter.dictionary.AvpDictionary;
-import org.mobicents.diameter.dictionary.AvpRepresentation;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpMetadataIndex;
 import org.mobicents.slee.resource.diameter.base.events.avp.DiameterAvpImpl;
 import org.mobicents.slee.resource.diameter.base.events.avp.FailedAvpImpl;
 import org.mobicents.slee.resource.diameter.base.events.avp.GroupedAvpImpl;
@@ -67,6 +66,9 @@ public abstract class DiameterMessageImpl implements DiameterMessage {
 
   protected Message message = null;
 
+  // System.nanoTime() at creation, for latency traces
+  private final long creationTime = System.nanoTime();
+
   /**
    * Constructor taking a jDiameter {@link Message} as argument.
    * 
@@ -76,6 +78,13 @@ public abstract class DiameterMessageImpl implements DiameterMessage {
     this.message = message;
   }
 
+  /**
+   * @return the value of System.nanoTime() when this event object was created
+   */
+  public long getCreationTime() {
+    return creationTime;
+  }
+
   // Begin of DiameterMessage Implementation
 
   /**
@@ -450,25 +459,21 @@ public abstract class DiameterMessageImpl implements DiameterMessage {
     List<DiameterAvp> avps = new ArrayList<DiameterAvp>();
 
     for (Avp a : set) {
-      AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(a.getCode(), a.getVendorId());
+      AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(a.getCode(), a.getVendorId());
 
       if (avpRep == null) {
         //log.error("Avp with code: " + a.getCode() + " VendorId: " + a.getVendorId() + " is not listed in dictionary, skipping!");
         continue;
       }
       else {
-        if (avpRep.getType().equals("Grouped")) {
+        if (avpRep.isGrouped()) {
           // TODO: There's no info about if AVP has mandatory or protected flags set...
-          GroupedAvpImpl gAVP = new GroupedAvpImpl(a.getCode(), a.getVendorId(), avpRep.getRuleMandatoryAsInt(), avpRep.getRuleProtectedAsInt(), a.getRaw());
-
-          gAVP.setExtensionAvps(getAvpsInternal(a.getGrouped()));
-
-          // This is a grouped AVP... let's make it like that.
-          avps.add(gAVP);
+          // This is a grouped AVP... let's make it like that, its children are only decoded if accessed.
+          avps.add(new GroupedAvpImpl(a.getCode(), a.getVendorId(), avpRep.getRuleMandatoryAsInt(), avpRep.getRuleProtectedAsInt(), a.getRawData()));
         }
         else {
           // TODO: There's no info about if AVP has mandatory or protected flags set...
-          avps.add(new DiameterAvpImpl(a.getCode(), a.getVendorId(), avpRep.getRuleMandatoryAsInt(), avpRep.getRuleProtectedAsInt(), a.getRaw(), DiameterAvpType.fromString(avpRep.getType())));
+          avps.add(new DiameterAvpImpl(a.getCode(), a.getVendorId(), avpRep.getRuleMandatoryAsInt(), avpRep.getRuleProtectedAsInt(), a.getRaw(), avpRep.getType()));
         }
       }
     }
@@ -482,7 +487,7 @@ public abstract class DiameterMessageImpl implements DiameterMessage {
     boolean isGrouped = false;
 
     try {
-      String avpType = AvpDictionary.INSTANCE.getAvp(avp.getCode(), avp.getVendorId()).getType();
+      String avpType = AvpMetadataIndex.get(avp.getCode(), avp.getVendorId()).getTypeName();
 
       if ("Integer32".equals(avpType) || "AppId".equals(avpType)) {
         avpValue = avp.getInteger32();
@@ -883,7 +888,7 @@ public abstract class DiameterMessageImpl implements DiameterMessage {
   }
 
   protected Object getAvp(String avpName) {
-    AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpName);
+    AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpName);
 
     if(avpRep != null) {
       return getAvp(avpRep.getCode(), avpRep.getVendorId());
@@ -893,11 +898,11 @@ public abstract class DiameterMessageImpl implements DiameterMessage {
   }
 
   protected Object getAvp(int avpCode, long vendorId) {
-    AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if(avpRep != null)
     {
-      int avpType = AvpRepresentation.Type.valueOf(avpRep.getType()).ordinal();
+      int avpType = avpRep.getRepresentationType();
 
       switch (avpType)
       {
@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.events.avp;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of precomputed factories for Grouped AVP implementation classes and
+ * Enumerated types, used by {@link net.java.slee.resource.diameter.base.events.avp.AvpUtilities}
+ * to build AVP values without going through reflection.
+ *
+ * Each Diameter application module fills this registry from its own codec table
+ * when that table class is loaded. Classes which are not registered are still
+ * handled by AvpUtilities through reflection.
+ */
+public final class AvpCodecRegistry {
+
+  /**
+   * Factory for a Grouped AVP implementation class, equivalent to its
+   * (int code, long vendorId, int mnd, int prt, byte[] value) constructor.
+   */
+  public interface GroupedAvpFactory {
+
+    Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value);
+
+    Object[] newArray(int size);
+  }
+
+  /**
+   * Factory for an Enumerated type, equivalent to its static fromInt(int) method.
+   */
+  public interface EnumeratedFactory {
+
+    Object fromInt(int value);
+
+    Object[] newArray(int size);
+  }
+
+  private static final ConcurrentHashMap<Class<?>, GroupedAvpFactory> groupedFactories = new ConcurrentHashMap<Class<?>, GroupedAvpFactory>(256);
+  private static final ConcurrentHashMap<Class<?>, EnumeratedFactory> enumeratedFactories = new ConcurrentHashMap<Class<?>, EnumeratedFactory>(256);
+
+  private AvpCodecRegistry() {
+  }
+
+  public static void registerGrouped(Class<?> avpImplClass, GroupedAvpFactory factory) {
+    groupedFactories.putIfAbsent(avpImplClass, factory);
+  }
+
+  public static void registerEnumerated(Class<?> enumeratedClass, EnumeratedFactory factory) {
+    enumeratedFactories.putIfAbsent(enumeratedClass, factory);
+  }
+
+  /**
+   * Returns the factory registered for the given Grouped AVP implementation class.
+   *
+   * @param avpImplClass the implementation class
+   * @return the registered factory, or null if none is registered
+   */
+  public static GroupedAvpFactory getGroupedFactory(Class<?> avpImplClass) {
+    return groupedFactories.get(avpImplClass);
+  }
+
+  /**
+   * Returns the factory registered for the given Enumerated type.
+   *
+   * @param enumeratedClass the Enumerated type class
+   * @return the registered factory, or null if none is registered
+   */
+  public static EnumeratedFactory getEnumeratedFactory(Class<?> enumeratedClass) {
+    return enumeratedFactories.get(enumeratedClass);
+  }
+
+}
@@ -0,0 +1,315 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.events.avp;
+
+import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
+import net.java.slee.resource.diameter.base.events.avp.DiameterAvpType;
+
+import org.mobicents.diameter.dictionary.AvpDictionary;
+import org.mobicents.diameter.dictionary.AvpRepresentation;
+
+/**
+ * Index of AVP metadata, keyed by AVP code and Vendor-Id packed into a long.
+ *
+ * Each entry is resolved from the {@link AvpDictionary} on first lookup, with
+ * its type and flag rules already converted, so that encoding and decoding do
+ * not need to parse the dictionary type and rule strings for every AVP. AVPs
+ * not present in the dictionary are not indexed.
+ */
+public final class AvpMetadataIndex {
+
+  /**
+   * Metadata of a single AVP, as defined in the dictionary.
+   */
+  public static final class Entry {
+
+    // the key this entry was looked up with
+    private final long key;
+
+    private final int code;
+    private final long vendorId;
+    private final String name;
+    private final String typeName;
+    private final DiameterAvpType type;
+    private final int representationType;
+
+    private final boolean mandatory;
+    private final boolean protected_;
+    private final boolean mandatoryBit;
+    private final boolean protectedBit;
+    private final int ruleMandatoryAsInt;
+    private final int ruleProtectedAsInt;
+    private final boolean grouped;
+
+    private final AvpRepresentation representation;
+
+    private Entry(long key, AvpRepresentation rep) {
+      this.key = key;
+      this.code = rep.getCode();
+      this.vendorId = rep.getVendorId();
+      this.name = rep.getName();
+      this.typeName = rep.getType();
+
+      DiameterAvpType diameterAvpType = null;
+      try {
+        diameterAvpType = DiameterAvpType.fromString(typeName);
+      }
+      catch (IllegalArgumentException iae) {
+        // not a base type (eg: AppId, VendorId), left as null
+      }
+      this.type = diameterAvpType;
+
+      int repType = -1;
+      try {
+        repType = AvpRepresentation.Type.valueOf(typeName).ordinal();
+      }
+      catch (IllegalArgumentException iae) {
+        // not a representation type, left as -1
+      }
+      this.representationType = repType;
+
+      this.mandatory = rep.isMandatory();
+      this.protected_ = rep.isProtected();
+      String ruleMandatoryName = rep.getRuleMandatory();
+      this.mandatoryBit = !("mustnot".equals(ruleMandatoryName) || "shouldnot".equals(ruleMandatoryName));
+      this.protectedBit = "must".equals(rep.getRuleProtected());
+      this.ruleMandatoryAsInt = rep.getRuleMandatoryAsInt();
+      this.ruleProtectedAsInt = rep.getRuleProtectedAsInt();
+      this.grouped = rep.isGrouped();
+
+      this.representation = rep;
+    }
+
+    public int getCode() {
+      return code;
+    }
+
+    public long getVendorId() {
+      return vendorId;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the type name, as in the dictionary
+     */
+    public String getTypeName() {
+      return typeName;
+    }
+
+    /**
+     * @return the resolved type
+     * @throws IllegalArgumentException if the dictionary type is not one of {@link DiameterAvpType}, as {@link DiameterAvpType#fromString(String)}
+     */
+    public DiameterAvpType getType() {
+      if (type == null) {
+        throw new IllegalArgumentException("Unknown type: " + typeName);
+      }
+
+      return type;
+    }
+
+    /**
+     * @return the ordinal of the {@link AvpRepresentation.Type} for the type name
+     * @throws IllegalArgumentException if the dictionary type is not one of {@link AvpRepresentation.Type}
+     */
+    public int getRepresentationType() {
+      if (representationType < 0) {
+        throw new IllegalArgumentException("Unknown type: " + typeName);
+      }
+
+      return representationType;
+    }
+
+    /**
+     * @return the value of {@link AvpRepresentation#isMandatory()}
+     */
+    public boolean isMandatory() {
+      return mandatory;
+    }
+
+    /**
+     * @return the value of {@link AvpRepresentation#isProtected()}
+     */
+    public boolean isProtected() {
+      return protected_;
+    }
+
+    /**
+     * @return true if the M bit is to be set when adding this AVP, ie, if the rule is neither 'mustnot' nor 'shouldnot'
+     */
+    public boolean isMandatoryBit() {
+      return mandatoryBit;
+    }
+
+    /**
+     * @return true if the P bit is to be set when adding this AVP, ie, if the rule is 'must'
+     */
+    public boolean isProtectedBit() {
+      return protectedBit;
+    }
+
+    /**
+     * @return the mandatory rule, as one of the DiameterAvp.FLAG_RULE_* values
+     * @see DiameterAvp#FLAG_RULE_MUST
+     */
+    public int getRuleMandatoryAsInt() {
+      return ruleMandatoryAsInt;
+    }
+
+    /**
+     * @return the protected rule, as one of the DiameterAvp.FLAG_RULE_* values
+     * @see DiameterAvp#FLAG_RULE_MUST
+     */
+    public int getRuleProtectedAsInt() {
+      return ruleProtectedAsInt;
+    }
+
+    public boolean isGrouped() {
+      return grouped;
+    }
+
+    public AvpRepresentation getRepresentation() {
+      return representation;
+    }
+  }
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  // open addressing table, entries are immutable so they can be read without locking
+  private static volatile Entry[] table = new Entry[INITIAL_CAPACITY];
+  private static int size = 0;
+
+  private AvpMetadataIndex() {
+  }
+
+  /**
+   * Packs an AVP code and Vendor-Id into a single key.
+   *
+   * @param code the AVP code
+   * @param vendorId the AVP Vendor-Id
+   * @return the packed key
+   */
+  public static long key(int code, long vendorId) {
+    return (vendorId << 32) | (code & 0xFFFFFFFFL);
+  }
+
+  private static int slot(long key, int mask) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  /**
+   * Returns the metadata for the AVP with the given code and Vendor-Id.
+   *
+   * @param code the AVP code
+   * @param vendorId the AVP Vendor-Id
+   * @return the metadata, or null if the AVP is not in the dictionary
+   */
+  public static Entry get(int code, long vendorId) {
+    long key = key(code, vendorId);
+    Entry[] t = table;
+    int mask = t.length - 1;
+
+    for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+      Entry e = t[i];
+      if (e == null) {
+        break;
+      }
+      if (e.key == key) {
+        return e;
+      }
+    }
+
+    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(code, vendorId);
+    if (rep == null) {
+      return null;
+    }
+
+    return put(new Entry(key, rep));
+  }
+
+  /**
+   * Returns the metadata for the AVP with the given name.
+   *
+   * @param name the AVP name
+   * @return the metadata, or null if the AVP is not in the dictionary
+   */
+  public static Entry get(String name) {
+    AvpRepresentation rep = AvpDictionary.INSTANCE.getAvp(name);
+
+    return rep != null ? get(rep.getCode(), rep.getVendorId()) : null;
+  }
+
+  private static synchronized Entry put(Entry entry) {
+    Entry[] t = table;
+    int mask = t.length - 1;
+
+    int i = slot(entry.key, mask);
+    for (Entry e = t[i]; e != null; i = (i + 1) & mask, e = t[i]) {
+      if (e.key == entry.key) {
+        // someone else got here first
+        return e;
+      }
+    }
+
+    if ((size + 1) * 2 > t.length) {
+      // keep load factor under 0.5, publish a new table
+      Entry[] newTable = new Entry[t.length * 2];
+      for (Entry e : t) {
+        if (e != null) {
+          newTable[insertionSlot(newTable, e)] = e;
+        }
+      }
+      newTable[insertionSlot(newTable, entry)] = entry;
+      table = newTable;
+    }
+    else {
+      t[i] = entry;
+    }
+    size++;
+
+    return entry;
+  }
+
+  private static int insertionSlot(Entry[] t, Entry entry) {
+    int mask = t.length - 1;
+    int i = slot(entry.key, mask);
+    while (t[i] != null) {
+      i = (i + 1) & mask;
+    }
+
+    return i;
+  }
+
+  /**
+   * Drops all indexed entries. To be called if the dictionary is loaded again.
+   */
+  public static synchronized void clear() {
+    table = new Entry[INITIAL_CAPACITY];
+    size = 0;
+  }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.events.avp;
+
+import net.java.slee.resource.diameter.base.events.avp.AccountingRealtimeRequiredType;
+import net.java.slee.resource.diameter.base.events.avp.AccountingRecordType;
+import net.java.slee.resource.diameter.base.events.avp.AddressType;
+import net.java.slee.resource.diameter.base.events.avp.AuthRequestType;
+import net.java.slee.resource.diameter.base.events.avp.AuthSessionStateType;
+import net.java.slee.resource.diameter.base.events.avp.DiameterAvpType;
+import net.java.slee.resource.diameter.base.events.avp.DisconnectCauseType;
+import net.java.slee.resource.diameter.base.events.avp.ReAuthRequestType;
+import net.java.slee.resource.diameter.base.events.avp.RedirectHostUsageType;
+import net.java.slee.resource.diameter.base.events.avp.SessionServerFailoverType;
+import net.java.slee.resource.diameter.base.events.avp.TerminationCauseType;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+
+/**
+ * Codec table for the Diameter Base AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class BaseAvpCodecs {
+
+  static {
+    AvpCodecRegistry.registerEnumerated(AccountingRealtimeRequiredType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AccountingRealtimeRequiredType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AccountingRealtimeRequiredType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(AccountingRecordType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AccountingRecordType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AccountingRecordType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(AddressType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AddressType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AddressType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(AuthRequestType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AuthRequestType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AuthRequestType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(AuthSessionStateType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AuthSessionStateType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AuthSessionStateType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(DiameterAvpType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return DiameterAvpType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new DiameterAvpType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(DisconnectCauseType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return DisconnectCauseType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new DisconnectCauseType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReAuthRequestType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReAuthRequestType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReAuthRequestType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RedirectHostUsageType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RedirectHostUsageType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RedirectHostUsageType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SessionServerFailoverType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SessionServerFailoverType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SessionServerFailoverType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(TerminationCauseType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return TerminationCauseType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TerminationCauseType[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ExperimentalResultAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ExperimentalResultAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ExperimentalResultAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(FailedAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new FailedAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FailedAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(GroupedAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new GroupedAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new GroupedAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ProxyInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ProxyInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ProxyInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(VendorSpecificApplicationIdAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new VendorSpecificApplicationIdAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new VendorSpecificApplicationIdAvpImpl[size];
+      }
+    });
+  }
+
+  private BaseAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
@@ -43,8 +43,6 @@ import org.apache.log4j.Logger;
 import org.jdiameter.api.Avp;
 import org.jdiameter.api.AvpDataException;
 import org.jdiameter.api.AvpSet;
-import org.mobicents.diameter.dictionary.AvpDictionary;
-import org.mobicents.diameter.dictionary.AvpRepresentation;
 
 /**
  * 
@@ -58,7 +56,11 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
 
   private static transient final Logger logger = Logger.getLogger(GroupedAvpImpl.class);
 
-  protected transient AvpSet avpSet;
+  // Child AVPs, decoded from the value only when first accessed
+  private transient AvpSet avpSet;
+
+  // The inherited value field holds the encoded child AVPs, being null when
+  // avpSet has been changed since it was last encoded.
 
   public GroupedAvpImpl() {
     super();
@@ -66,24 +68,50 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
 
   public GroupedAvpImpl(int code, long vendorId, int mnd, int prt, byte[] value) {
     super(code, vendorId, mnd, prt, value, DiameterAvpType.GROUPED);
+  }
 
-    try {
-      avpSet = AvpUtilities.getParser().decodeAvpSet(value);
-    }
-    catch (IOException ioe) {
-      logger.error("Failure creating Grouped AVP.", ioe);
-    }
-    catch (AvpDataException ade) {
-      logger.error("Failure creating Grouped AVP.", ade);
+  /**
+   * Returns the child AVPs of this Grouped AVP, decoding them from the raw
+   * value if that has not been done yet.
+   * 
+   * @return the (decoded) child AVPs
+   */
+  private AvpSet getDecodedAvps() {
+    if (avpSet == null) {
+      try {
+        avpSet = AvpUtilities.getParser().decodeAvpSet(value != null ? value : new byte[0]);
+      }
+      catch (IOException ioe) {
+        logger.error("Failure decoding Grouped AVP.", ioe);
+      }
+      catch (AvpDataException ade) {
+        logger.error("Failure decoding Grouped AVP.", ade);
+      }
     }
+
+    return avpSet;
+  }
+
+  /**
+   * Returns the child AVPs of this Grouped AVP for changing them. The cached
+   * encoded value is dropped, to be encoded again when needed.
+   * 
+   * @return the (decoded) child AVPs
+   */
+  private AvpSet getMutableAvps() {
+    AvpSet set = getDecodedAvps();
+    value = null;
+
+    return set;
   }
 
   public DiameterAvp[] getExtensionAvps() {
     DiameterAvp[] acc = new DiameterAvp[0];
 
-    if(avpSet != null && avpSet.size() > 0) {
+    AvpSet set = getDecodedAvps();
+    if(set != null && set.size() > 0) {
       try {
-        acc = getExtensionAvpsInternal(avpSet);
+        acc = getExtensionAvpsInternal(set);
       }
       catch (Exception e) {
         logger.error("Failure getting Extension AVPs.", e);
@@ -99,8 +127,9 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
     }
 
     try {
+      AvpSet set = getMutableAvps();
       for (DiameterAvp avp : extensions) {
-        addAvp(avp, avpSet);
+        addAvp(avp, set);
       }
     }
     catch (Exception e) {
@@ -129,30 +158,38 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
   }
 
   public byte[] byteArrayValue() {
-    return AvpUtilities.getParser().encodeAvpSet(avpSet);
+    if (value == null) {
+      value = AvpUtilities.getParser().encodeAvpSet(getDecodedAvps());
+    }
+
+    return value;
   }
 
+  /**
+   * Returns the child AVPs of this Grouped AVP. As the returned set may be
+   * changed by the caller, the cached encoded value is dropped.
+   * 
+   * @return the child AVPs
+   */
   public AvpSet getGenericData() {
-	  return avpSet;
+    return getMutableAvps();
   }
 
   public Object clone() {
-    // TODO: Confirm it works as supposed! Findbugs complained...
-    // return new GroupedAvpImpl(code, vendorId, mnd, prt, byteArrayValue());
-    return super.clone();
+    GroupedAvpImpl clone = (GroupedAvpImpl) super.clone();
+    if (clone != null) {
+      // do not share the (mutable) child AVPs, the clone decodes its own when needed
+      clone.value = byteArrayValue();
+      clone.avpSet = null;
+    }
+
+    return clone;
   }
 
   private void addAvp(DiameterAvp avp, AvpSet set) {
-    if(avp instanceof GroupedAvp) {
-        AvpSet avpSet = set.addGroupedAvp(avp.getCode(), avp.getVendorId(), avp.getMandatoryRule() != DiameterAvp.FLAG_RULE_MUSTNOT, avp.getProtectedRule() == DiameterAvp.FLAG_RULE_MUST);
-
-      DiameterAvp[] groupedAVPs = ((GroupedAvp)avp).getExtensionAvps();
-      for(DiameterAvp avpFromGroup : groupedAVPs) {
-        addAvp(avpFromGroup, avpSet);
-      }
-    }
-    else if(avp != null) {
-        set.addAvp(avp.getCode(), avp.byteArrayValue(), avp.getVendorId(), avp.getMandatoryRule() != DiameterAvp.FLAG_RULE_MUSTNOT, avp.getProtectedRule() == DiameterAvp.FLAG_RULE_MUST);
+    // grouped AVPs are also copied as their encoded value, no need to decode and re-add their children
+    if(avp != null) {
+      set.addAvp(avp.getCode(), avp.byteArrayValue(), avp.getVendorId(), avp.getMandatoryRule() != DiameterAvp.FLAG_RULE_MUSTNOT, avp.getProtectedRule() == DiameterAvp.FLAG_RULE_MUST);
     }
   }
 
@@ -160,28 +197,22 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
     List<DiameterAvp> avps = new ArrayList<DiameterAvp>();
 
     for (Avp a : set) {
-      AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(a.getCode(), a.getVendorId());
+      AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(a.getCode(), a.getVendorId());
       if(avpRep != null) {
         if(avpRep.isGrouped()) {
-          AvpSet grouped = a.getGrouped(); // warning, this changes getRaw to return byte[0] if successful
-          GroupedAvpImpl gAVP = new GroupedAvpImpl(a.getCode(), a.getVendorId(),
-              a.isMandatory() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.isEncrypted() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.getRaw());
-
-          gAVP.setExtensionAvps(getExtensionAvpsInternal(grouped));
-          avps.add(gAVP);
+          // children are only decoded if accessed
+          avps.add(new GroupedAvpImpl(a.getCode(), a.getVendorId(), a.isMandatory() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT,
+              a.isEncrypted() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.getRawData()));
         }        
         else {
-          avps.add(new DiameterAvpImpl(a.getCode(), a.getVendorId(), a.isMandatory() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.isEncrypted() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.getRaw(), DiameterAvpType.fromString(avpRep.getType())));
+          avps.add(new DiameterAvpImpl(a.getCode(), a.getVendorId(), a.isMandatory() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.isEncrypted() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.getRaw(), avpRep.getType()));
         }
       }
       else { // we don't have it in dictionary
         try {
-          AvpSet grouped = a.getGrouped(); // warning, this changes getRaw to return byte[0] if successful
-          GroupedAvpImpl gAVP = new GroupedAvpImpl(a.getCode(), a.getVendorId(),
-              a.isMandatory() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.isEncrypted() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.getRaw());
-
-          gAVP.setExtensionAvps(getExtensionAvpsInternal(grouped));
-          avps.add(gAVP);
+          a.getGrouped(); // just to check if it can be decoded as grouped
+          avps.add(new GroupedAvpImpl(a.getCode(), a.getVendorId(), a.isMandatory() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT,
+              a.isEncrypted() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.getRawData()));
         }
         catch (AvpDataException ade) {
           avps.add(new DiameterAvpImpl(a.getCode(), a.getVendorId(), a.isMandatory() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.isEncrypted() ? DiameterAvp.FLAG_RULE_MUST : DiameterAvp.FLAG_RULE_MUSTNOT, a.getRaw(), null));
@@ -195,339 +226,339 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
   // AVP Utilities Proxy Methods
 
   protected Date getAvpAsTime(int code) {
-    return AvpUtilities.getAvpAsTime(code, avpSet);
+    return AvpUtilities.getAvpAsTime(code, getDecodedAvps());
   }
 
   protected Date getAvpAsTime(int code, long vendorId) {
-    return AvpUtilities.getAvpAsTime(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsTime(code, vendorId, getDecodedAvps());
   }
 
   protected Date[] getAvpsAsTime(int code) {
-    return AvpUtilities.getAvpsAsTime(code, avpSet);
+    return AvpUtilities.getAvpsAsTime(code, getDecodedAvps());
   }
 
   protected Date[] getAvpsAsTime(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsTime(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsTime(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsTime(int code, long vendorId, Date value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsTime(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsTime(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected float getAvpAsFloat32(int code) {
-    return AvpUtilities.getAvpAsFloat32(code, avpSet);
+    return AvpUtilities.getAvpAsFloat32(code, getDecodedAvps());
   }
 
   protected float getAvpAsFloat32(int code, long vendorId) {
-    return AvpUtilities.getAvpAsFloat32(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsFloat32(code, vendorId, getDecodedAvps());
   }
 
   protected float[] getAvpsAsFloat32(int code) {
-    return AvpUtilities.getAvpsAsFloat32(code, avpSet);
+    return AvpUtilities.getAvpsAsFloat32(code, getDecodedAvps());
   }
 
   protected float[] getAvpsAsFloat32(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsFloat32(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsFloat32(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsFloat32(int code, long vendorId, float value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsFloat32(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsFloat32(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected double getAvpAsFloat64(int code) {
-    return AvpUtilities.getAvpAsFloat64(code, avpSet);
+    return AvpUtilities.getAvpAsFloat64(code, getDecodedAvps());
   }
 
   protected double getAvpAsFloat64(int code, long vendorId) {
-    return AvpUtilities.getAvpAsFloat64(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsFloat64(code, vendorId, getDecodedAvps());
   }
 
   protected double[] getAvpsAsFloat64(int code) {
-    return AvpUtilities.getAvpsAsFloat64(code, avpSet);
+    return AvpUtilities.getAvpsAsFloat64(code, getDecodedAvps());
   }
 
   protected double[] getAvpsAsFloat64(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsFloat64(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsFloat64(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsFloat64(int code, long vendorId, float value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsFloat64(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsFloat64(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected byte[] getAvpAsGrouped(int code) {
-    return AvpUtilities.getAvpAsGrouped(code, avpSet);
+    return AvpUtilities.getAvpAsGrouped(code, getDecodedAvps());
   }
 
   protected byte[] getAvpAsGrouped(int code, long vendorId) {
-    return AvpUtilities.getAvpAsGrouped(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsGrouped(code, vendorId, getDecodedAvps());
   }
 
   protected byte[][] getAvpsAsGrouped(int code) {
-    return AvpUtilities.getAvpsAsGrouped(code, avpSet);
+    return AvpUtilities.getAvpsAsGrouped(code, getDecodedAvps());
   }
 
   protected byte[][] getAvpsAsGrouped(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsGrouped(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsGrouped(code, vendorId, getDecodedAvps());
   }
 
   protected AvpSet setAvpAsGrouped(int code, long vendorId, DiameterAvp[] childs, boolean isMandatory, boolean isProtected) {
-    return AvpUtilities.setAvpAsGrouped(this, code, vendorId, avpSet, isMandatory, isProtected, childs);
+    return AvpUtilities.setAvpAsGrouped(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, childs);
   }
 
   protected int getAvpAsInteger32(int code) {
-    return AvpUtilities.getAvpAsInteger32(code, avpSet);
+    return AvpUtilities.getAvpAsInteger32(code, getDecodedAvps());
   }
 
   protected int getAvpAsInteger32(int code, long vendorId) {
-    return AvpUtilities.getAvpAsInteger32(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsInteger32(code, vendorId, getDecodedAvps());
   }
 
   protected int[] getAvpsAsInteger32(int code) {
-    return AvpUtilities.getAvpsAsInteger32(code, avpSet);
+    return AvpUtilities.getAvpsAsInteger32(code, getDecodedAvps());
   }
 
   protected int[] getAvpsAsInteger32(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsInteger32(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsInteger32(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsInteger32(int code, long vendorId, int value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsInteger32(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsInteger32(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected long getAvpAsInteger64(int code) {
-    return AvpUtilities.getAvpAsInteger64(code, avpSet);
+    return AvpUtilities.getAvpAsInteger64(code, getDecodedAvps());
   }
 
   protected long getAvpAsInteger64(int code, long vendorId) {
-    return AvpUtilities.getAvpAsInteger64(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsInteger64(code, vendorId, getDecodedAvps());
   }
 
   protected long[] getAvpsAsInteger64(int code) {
-    return AvpUtilities.getAvpsAsInteger64(code, avpSet);
+    return AvpUtilities.getAvpsAsInteger64(code, getDecodedAvps());
   }
 
   protected long[] getAvpsAsInteger64(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsInteger64(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsInteger64(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsInteger64(int code, long vendorId, long value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsInteger64(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsInteger64(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected long getAvpAsUnsigned32(int code) {
-    return AvpUtilities.getAvpAsUnsigned32(code, avpSet);
+    return AvpUtilities.getAvpAsUnsigned32(code, getDecodedAvps());
   }
 
   protected long getAvpAsUnsigned32(int code, long vendorId) {
-    return AvpUtilities.getAvpAsUnsigned32(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsUnsigned32(code, vendorId, getDecodedAvps());
   }
 
   protected long[] getAvpsAsUnsigned32(int code) {
-    return AvpUtilities.getAvpsAsUnsigned32(code, avpSet);
+    return AvpUtilities.getAvpsAsUnsigned32(code, getDecodedAvps());
   }
 
   protected long[] getAvpsAsUnsigned32(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsUnsigned32(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsUnsigned32(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsUnsigned32(int code, long vendorId, long value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsUnsigned32(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsUnsigned32(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected long getAvpAsUnsigned64(int code) {
-    return AvpUtilities.getAvpAsUnsigned64(code, avpSet);
+    return AvpUtilities.getAvpAsUnsigned64(code, getDecodedAvps());
   }
 
   protected long getAvpAsUnsigned64(int code, long vendorId) {
-    return AvpUtilities.getAvpAsUnsigned64(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsUnsigned64(code, vendorId, getDecodedAvps());
   }
 
   protected long[] getAvpsAsUnsigned64(int code) {
-    return AvpUtilities.getAvpsAsUnsigned64(code, avpSet);
+    return AvpUtilities.getAvpsAsUnsigned64(code, getDecodedAvps());
   }
 
   protected long[] getAvpsAsUnsigned64(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsUnsigned64(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsUnsigned64(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsUnsigned64(int code, long vendorId, long value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsUnsigned64(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsUnsigned64(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected String getAvpAsUTF8String(int code) {
-    return AvpUtilities.getAvpAsUTF8String(code, avpSet);
+    return AvpUtilities.getAvpAsUTF8String(code, getDecodedAvps());
   }
 
   protected String getAvpAsUTF8String(int code, long vendorId) {
-    return AvpUtilities.getAvpAsUTF8String(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsUTF8String(code, vendorId, getDecodedAvps());
   }
 
   protected String[] getAvpsAsUTF8String(int code) {
-    return AvpUtilities.getAvpsAsUTF8String(code, avpSet);
+    return AvpUtilities.getAvpsAsUTF8String(code, getDecodedAvps());
   }
 
   protected String[] getAvpsAsUTF8String(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsUTF8String(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsUTF8String(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsUTF8String(int code, long vendorId, String value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsUTF8String(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsUTF8String(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected byte[] getAvpAsOctetString(int code) {
-    return AvpUtilities.getAvpAsOctetString(code, avpSet);
+    return AvpUtilities.getAvpAsOctetString(code, getDecodedAvps());
   }
 
   protected byte[] getAvpAsOctetString(int code, long vendorId) {
-    return AvpUtilities.getAvpAsOctetString(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsOctetString(code, vendorId, getDecodedAvps());
   }
 
   protected byte[][] getAvpsAsOctetString(int code) {
-    return AvpUtilities.getAvpsAsOctetString(code, avpSet);
+    return AvpUtilities.getAvpsAsOctetString(code, getDecodedAvps());
   }
 
   protected byte[][] getAvpsAsOctetString(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsOctetString(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsOctetString(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsOctetString(int code, long vendorId, String value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsOctetString(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsOctetString(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected byte[] getAvpAsRaw(int code) {
-    return AvpUtilities.getAvpAsRaw(code, avpSet);
+    return AvpUtilities.getAvpAsRaw(code, getDecodedAvps());
   }
 
   protected byte[] getAvpAsRaw(int code, long vendorId) {
-    return AvpUtilities.getAvpAsRaw(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsRaw(code, vendorId, getDecodedAvps());
   }
 
   protected byte[][] getAvpsAsRaw(int code) {
-    return AvpUtilities.getAvpsAsRaw(code, avpSet);
+    return AvpUtilities.getAvpsAsRaw(code, getDecodedAvps());
   }
 
   protected byte[][] getAvpsAsRaw(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsRaw(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsRaw(code, vendorId, getDecodedAvps());
   }
 
   protected void setAvpAsRaw(int code, long vendorId, byte[] value, boolean isMandatory, boolean isProtected) {
-    AvpUtilities.setAvpAsRaw(this, code, vendorId, avpSet, isMandatory, isProtected, value);
+    AvpUtilities.setAvpAsRaw(this, code, vendorId, getMutableAvps(), isMandatory, isProtected, value);
   }
 
   protected Object getAvpAsCustom(int code, Class clazz) {
-    return AvpUtilities.getAvpAsCustom(code, avpSet, clazz);
+    return AvpUtilities.getAvpAsCustom(code, getDecodedAvps(), clazz);
   }
 
   protected Object getAvpAsCustom(int code, long vendorId, Class clazz) {
-    return AvpUtilities.getAvpAsCustom(code, vendorId, avpSet, clazz);
+    return AvpUtilities.getAvpAsCustom(code, vendorId, getDecodedAvps(), clazz);
   }
 
   protected Object[] getAvpsAsCustom(int code, Class clazz) {
-    return AvpUtilities.getAvpsAsCustom(code, avpSet, clazz);
+    return AvpUtilities.getAvpsAsCustom(code, getDecodedAvps(), clazz);
   }
 
   protected Object[] getAvpsAsCustom(int code, long vendorId, Class clazz) {
-    return AvpUtilities.getAvpsAsCustom(code, vendorId, avpSet, clazz);
+    return AvpUtilities.getAvpsAsCustom(code, vendorId, getDecodedAvps(), clazz);
   }
 
   protected DiameterIdentity getAvpAsDiameterIdentity(int code) {
-    return AvpUtilities.getAvpAsDiameterIdentity(code, avpSet);
+    return AvpUtilities.getAvpAsDiameterIdentity(code, getDecodedAvps());
   }
 
   protected DiameterIdentity getAvpAsDiameterIdentity(int code, long vendorId) {
-    return AvpUtilities.getAvpAsDiameterIdentity(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsDiameterIdentity(code, vendorId, getDecodedAvps());
   }
 
   protected DiameterIdentity[] getAvpsAsDiameterIdentity(int code) {
-    return AvpUtilities.getAvpsAsDiameterIdentity(code, avpSet);
+    return AvpUtilities.getAvpsAsDiameterIdentity(code, getDecodedAvps());
   }
 
   protected DiameterIdentity[] getAvpsAsDiameterIdentity(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsDiameterIdentity(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsDiameterIdentity(code, vendorId, getDecodedAvps());
   }
 
   protected DiameterURI getAvpAsDiameterURI(int code) {
-    return AvpUtilities.getAvpAsDiameterURI(code, avpSet);
+    return AvpUtilities.getAvpAsDiameterURI(code, getDecodedAvps());
   }
 
   protected DiameterURI getAvpAsDiameterURI(int code, long vendorId) {
-    return AvpUtilities.getAvpAsDiameterURI(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsDiameterURI(code, vendorId, getDecodedAvps());
   }
 
   protected DiameterURI[] getAvpsAsDiameterURI(int code) {
-    return AvpUtilities.getAvpsAsDiameterURI(code, avpSet);
+    return AvpUtilities.getAvpsAsDiameterURI(code, getDecodedAvps());
   }
 
   protected DiameterURI[] getAvpsAsDiameterURI(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsDiameterURI(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsDiameterURI(code, vendorId, getDecodedAvps());
   }
 
   protected Address getAvpAsAddress(int code) {
-    return AvpUtilities.getAvpAsAddress(code, avpSet);
+    return AvpUtilities.getAvpAsAddress(code, getDecodedAvps());
   }
 
   protected Address getAvpAsAddress(int code, long vendorId) {
-    return AvpUtilities.getAvpAsAddress(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsAddress(code, vendorId, getDecodedAvps());
   }
 
   protected Address[] getAvpsAsAddress(int code) {
-    return AvpUtilities.getAvpsAsAddress(code, avpSet);
+    return AvpUtilities.getAvpsAsAddress(code, getDecodedAvps());
   }
 
   protected Address[] getAvpsAsAddress(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsAddress(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsAddress(code, vendorId, getDecodedAvps());
   }
 
   protected Object getAvpAsEnumerated(int code, Class clazz) {
-    return AvpUtilities.getAvpAsEnumerated(code, avpSet, clazz);
+    return AvpUtilities.getAvpAsEnumerated(code, getDecodedAvps(), clazz);
   }
 
   protected Object getAvpAsEnumerated(int code, long vendorId, Class clazz) {
-    return AvpUtilities.getAvpAsEnumerated(code, vendorId, avpSet, clazz);
+    return AvpUtilities.getAvpAsEnumerated(code, vendorId, getDecodedAvps(), clazz);
   }
 
   protected Object[] getAvpsAsEnumerated(int code, Class clazz) {
-    return AvpUtilities.getAvpsAsEnumerated(code, avpSet, clazz);
+    return AvpUtilities.getAvpsAsEnumerated(code, getDecodedAvps(), clazz);
   }
 
   protected Object[] getAvpsAsEnumerated(int code, long vendorId, Class clazz) {
-    return AvpUtilities.getAvpsAsEnumerated(code, vendorId, avpSet, clazz);
+    return AvpUtilities.getAvpsAsEnumerated(code, vendorId, getDecodedAvps(), clazz);
   }
 
   protected IPFilterRule getAvpAsIPFilterRule(int code) {
-    return AvpUtilities.getAvpAsIPFilterRule(code, avpSet);
+    return AvpUtilities.getAvpAsIPFilterRule(code, getDecodedAvps());
   }
 
   protected IPFilterRule getAvpAsIPFilterRule(int code, long vendorId) {
-    return AvpUtilities.getAvpAsIPFilterRule(code, vendorId, avpSet);
+    return AvpUtilities.getAvpAsIPFilterRule(code, vendorId, getDecodedAvps());
   }
 
   protected IPFilterRule[] getAvpsAsIPFilterRule(int code) {
-    return AvpUtilities.getAvpsAsIPFilterRule(code, avpSet);
+    return AvpUtilities.getAvpsAsIPFilterRule(code, getDecodedAvps());
   }
 
   protected IPFilterRule[] getAvpsAsIPFilterRule(int code, long vendorId) {
-    return AvpUtilities.getAvpsAsIPFilterRule(code, vendorId, avpSet);
+    return AvpUtilities.getAvpsAsIPFilterRule(code, vendorId, getDecodedAvps());
   }
 
   protected void addAvp(String avpName, Object avp) {
-    AvpUtilities.addAvp(this, avpName, avpSet, avp);
+    AvpUtilities.addAvp(this, avpName, getMutableAvps(), avp);
   }
 
   protected void addAvp(int avpCode, Object avp) {
-    AvpUtilities.addAvp(this, avpCode, 0L, avpSet, avp);
+    AvpUtilities.addAvp(this, avpCode, 0L, getMutableAvps(), avp);
   }
 
   protected void addAvp(int avpCode, long vendorId, Object avp) {
-    AvpUtilities.addAvp(this, avpCode, vendorId, avpSet, avp);
+    AvpUtilities.addAvp(this, avpCode, vendorId, getMutableAvps(), avp);
   }
 
   protected boolean hasAvp(int code) {
-    return AvpUtilities.hasAvp(code, 0L, avpSet);
+    return AvpUtilities.hasAvp(code, 0L, getDecodedAvps());
   }
 
   protected boolean hasAvp(int code, long vendorId) {
-    return AvpUtilities.hasAvp(code, vendorId, avpSet);
+    return AvpUtilities.hasAvp(code, vendorId, getDecodedAvps());
   }
 
   protected Object getAvp(int avpCode) {
@@ -535,7 +566,7 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
   }
 
   protected Object getAvp(String avpName) {
-    AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpName);
+    AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpName);
 
     if(avpRep != null) {
       return getAvp(avpRep.getCode(), avpRep.getVendorId());
@@ -546,11 +577,11 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
 
   protected Object getAvp(int avpCode, long vendorId)
   {
-    AvpRepresentation avpRep = AvpDictionary.INSTANCE.getAvp(avpCode, vendorId);
+    AvpMetadataIndex.Entry avpRep = AvpMetadataIndex.get(avpCode, vendorId);
 
     if(avpRep != null)
     {
-      int avpType = AvpRepresentation.Type.valueOf(avpRep.getType()).ordinal();
+      int avpType = avpRep.getRepresentationType();
 
       switch (avpType)
       {
@@ -589,7 +620,7 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
   }
 
   public void addAvp(DiameterAvp avp) {
-    AvpUtilities.addAvp(avp, avpSet);
+    AvpUtilities.addAvp(avp, getMutableAvps());
   }
 
   @Override
@@ -604,6 +635,11 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
       return false;
     }
 
+    // same encoding, no need to decode and compare children
+    if(Arrays.equals(this.byteArrayValue(), that.byteArrayValue())) {
+      return true;
+    }
+
     List<DiameterAvp> thisArray = Arrays.asList(this.getExtensionAvps());
     List<DiameterAvp> thatArray = Arrays.asList(that.getExtensionAvps());
 
@@ -624,16 +660,12 @@ public class GroupedAvpImpl extends DiameterAvpImpl implements GroupedAvp , Exte
   // methods for set/get value. Overwrite default from DiameterAvpImpl. 
   //This will ensure proper byte[] is encoded via Externalize methods
   protected byte[] getValue() {
-		return AvpUtilities.getParser().encodeAvpSet(this.avpSet);
-	}
-
-	protected void setValue(byte[] readValue) {
-		//decode avpset
-		try {
-			this.avpSet = AvpUtilities.getParser().decodeAvpSet(readValue);
-		} catch (Exception e) {
-			throw new RuntimeException("Failed to decode AvpSet. ",e);
-		} 
-		
-	}
+    return byteArrayValue();
+  }
+
+  protected void setValue(byte[] readValue) {
+    // children are decoded when first accessed
+    this.value = readValue;
+    this.avpSet = null;
+  }
 }
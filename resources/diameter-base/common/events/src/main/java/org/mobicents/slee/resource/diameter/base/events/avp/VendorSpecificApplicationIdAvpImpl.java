@@ -80,7 +80,7 @@ public class VendorSpecificApplicationIdAvpImpl extends GroupedAvpImpl implement
       values[index] = AvpUtilities.createAvp(Avp.VENDOR_ID, vendorIds[index]);
     }
 
-    avpSet.removeAvp(Avp.VENDOR_ID);
+    getGenericData().removeAvp(Avp.VENDOR_ID);
     this.setExtensionAvps(values);
   }
 
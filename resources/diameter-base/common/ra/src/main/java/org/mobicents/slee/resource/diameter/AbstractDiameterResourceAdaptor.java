@@ -0,0 +1,713 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ObjectName;
+import javax.slee.Address;
+import javax.slee.facilities.EventLookupFacility;
+import javax.slee.facilities.Tracer;
+import javax.slee.resource.ActivityFlags;
+import javax.slee.resource.ActivityHandle;
+import javax.slee.resource.ConfigProperties;
+import javax.slee.resource.EventFlags;
+import javax.slee.resource.FailureReason;
+import javax.slee.resource.FireableEventType;
+import javax.slee.resource.InvalidConfigurationException;
+import javax.slee.resource.ReceivableService;
+import javax.slee.resource.ResourceAdaptor;
+import javax.slee.resource.ResourceAdaptorContext;
+import javax.slee.resource.SleeEndpoint;
+
+import net.java.slee.resource.diameter.Validator;
+import net.java.slee.resource.diameter.base.DiameterActivity;
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
+
+import org.jboss.mx.util.MBeanServerLocator;
+import org.jdiameter.api.Answer;
+import org.jdiameter.api.Message;
+import org.jdiameter.api.Peer;
+import org.jdiameter.api.PeerTable;
+import org.jdiameter.api.Request;
+import org.jdiameter.api.Stack;
+import org.mobicents.diameter.stack.DiameterListener;
+import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
+import org.mobicents.slee.resource.diameter.base.AsyncRequestManager;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
+import org.mobicents.slee.resource.diameter.base.EventIDFilter;
+import org.mobicents.slee.resource.diameter.base.IngressQueue;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
+import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
+
+/**
+ * Core of the Diameter Resource Adaptors: event dispatch, activity lifecycle,
+ * request timeouts, event filtering, metrics, ingress queue and lookup of the
+ * Diameter Stack Multiplexer, shared by all RAs.
+ *
+ * Concrete RAs provide the stack initialization, the events for the messages
+ * of their application and the activities for their sessions.
+ */
+public abstract class AbstractDiameterResourceAdaptor implements ResourceAdaptor, DiameterListener, DiameterRAInterface {
+
+  /**
+   * for all events we are interested in knowing when the event failed to be processed
+   */
+  protected static final int EVENT_FLAGS = getEventFlags();
+
+  private static int getEventFlags() {
+    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
+    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
+    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
+    return eventFlags;
+  }
+
+  protected static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.REQUEST_ENDED_CALLBACK;
+  protected static final int MARSHALABLE_ACTIVITY_FLAGS = ActivityFlags.setSleeMayMarshal(DEFAULT_ACTIVITY_FLAGS);
+
+  private static final String DIAMETER_MULTIPLEXER_OBJECT_NAME = "diameter.mobicents:service=DiameterStackMultiplexer";
+
+  /**
+   * name of the RA tracer, eg: DiameterBaseResourceAdaptor
+   */
+  private final String tracerName;
+
+  /**
+   * prefix of the RA log messages, eg: Diameter Base RA
+   */
+  protected final String raName;
+
+  /**
+   * caches the eventIDs, avoiding lookup in container
+   */
+  protected final FireableEventTypeResolver eventIdCache;
+
+  /**
+   * tells the RA if an event with a specified ID should be filtered or not
+   */
+  protected final EventIDFilter eventIDFilter = new EventIDFilter();
+
+  protected ResourceAdaptorContext raContext;
+  protected transient SleeEndpoint sleeEndpoint;
+  protected Tracer tracer;
+  protected DiameterMessageTracer messageTracer;
+
+  /**
+   * the EventLookupFacility is used to look up the event id of incoming
+   * events
+   */
+  protected transient EventLookupFacility eventLookup;
+
+  // Diameter Specific Properties ----------------------------------------
+
+  protected Stack stack;
+  protected long activityRemoveDelay = 30000;
+  protected String activityManagementType = DiameterActivityManagementFactory.LOCAL;
+  protected final DiameterMetrics metrics = new DiameterMetrics();
+  protected AsyncRequestManager asyncRequestManager = AsyncRequestManager.DEFAULT;
+  protected IngressQueue ingressQueue;
+  protected volatile PeerSnapshot peerSnapshot;
+
+  /**
+   * creates the messages of all the message factories of this RA entity, the
+   * ones built for each session included
+   */
+  protected RawMessageCreator rawMessageCreator;
+
+  /**
+   * the validator handed to the SBBs through the provider, configured with the
+   * validation level and sample rate of this RA
+   */
+  protected Validator validator = new ValidatorImpl();
+  private final IngressQueue.RequestProcessor ingressProcessor = new IngressQueue.RequestProcessor() {
+    public void processRequest(Request request) {
+      doProcessRequest(request);
+    }
+  };
+
+  protected ObjectName diameterMultiplexerObjectName = null;
+  protected DiameterStackMultiplexerMBean diameterMux = null;
+
+  /**
+   * The list of activites stored in this resource adaptor. If this resource
+   * adaptor were a distributed and highly available solution, this storage
+   * were one of the candidates for distribution.
+   */
+  protected transient DiameterActivityManagement activities;
+
+  /**
+   * @param tracerName the name of the RA tracer
+   * @param raName the prefix of the RA log messages
+   * @param eventIdCache the resolver of the event types to fire
+   */
+  protected AbstractDiameterResourceAdaptor(String tracerName, String raName, FireableEventTypeResolver eventIdCache) {
+    this.tracerName = tracerName;
+    this.raName = raName;
+    this.eventIdCache = eventIdCache;
+  }
+
+  // Lifecycle methods ---------------------------------------------------
+
+  public void setResourceAdaptorContext(ResourceAdaptorContext context) {
+    this.raContext = context;
+
+    this.tracer = context.getTracer(tracerName);
+
+    this.messageTracer = new DiameterMessageTracer(context, tracerName, raName);
+
+    this.sleeEndpoint = context.getSleeEndpoint();
+    this.eventLookup = context.getEventLookupFacility();
+  }
+
+  public void unsetResourceAdaptorContext() {
+    this.raContext = null;
+
+    this.tracer = null;
+
+    this.messageTracer = null;
+
+    this.sleeEndpoint = null;
+    this.eventLookup = null;
+  }
+
+  /**
+   * Configures the activity management, the asynchronous request manager, the
+   * ingress queue and the validator. RAs parse their own properties after
+   * calling this.
+   */
+  public void raConfigure(ConfigProperties properties) {
+    activityManagementType = DiameterActivityManagementFactory.getType(properties);
+
+    asyncRequestManager = AsyncRequestManager.create(properties, metrics);
+    ingressQueue = IngressQueue.create(properties);
+    metrics.setIngressQueue(ingressQueue);
+    validator = ValidatorImpl.create(properties);
+  }
+
+  public void raUnconfigure() {
+    // Clean up!
+    this.activities = null;
+    this.raContext = null;
+    this.eventLookup = null;
+    this.sleeEndpoint = null;
+    this.stack = null;
+    this.rawMessageCreator = null;
+  }
+
+  /**
+   * Looks up the Diameter Stack Multiplexer, exports the metrics MBean and
+   * starts the ingress queue workers, if enabled. To be called on raActive,
+   * before the stack is initialized.
+   *
+   * @throws Exception
+   */
+  protected void activateCore() throws Exception {
+    this.diameterMultiplexerObjectName = new ObjectName(DIAMETER_MULTIPLEXER_OBJECT_NAME);
+    Object object = null;
+
+    if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
+      // trying to get via MBeanServer
+      object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
+      if (tracer.isInfoEnabled()) {
+        tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
+      }
+    }
+    else {
+      // trying to get via locateJBoss
+      object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
+      if (tracer.isInfoEnabled()) {
+        tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
+      }
+    }
+
+    if (object instanceof DiameterStackMultiplexerMBean) {
+      this.diameterMux = (DiameterStackMultiplexerMBean) object;
+    }
+
+    // Export the metrics MBean
+    metrics.register(raContext.getEntityName());
+
+    // Start the ingress queue workers, if enabled
+    if (ingressQueue != null) {
+      ingressQueue.start(raContext.getEntityName(), ingressProcessor);
+    }
+  }
+
+  /**
+   * Keys the per-peer metrics on the peers configured in the stack, and starts
+   * tracking which peers are connected. To be called on raActive, once the
+   * stack is initialized.
+   */
+  protected void initPeers() {
+    try {
+      PeerTable peerTable = stack.unwrap(PeerTable.class);
+
+      List<String> peerNames = new ArrayList<String>();
+      for (Peer peer : peerTable.getPeerTable()) {
+        peerNames.add(peer.getUri().getFQDN());
+      }
+      metrics.setPeers(peerNames);
+
+      peerSnapshot = new PeerSnapshot(peerTable);
+    }
+    catch (Exception e) {
+      tracer.warning("Failed to get the configured peers, messages will only be counted for all peers.", e);
+    }
+  }
+
+  /**
+   * Creates the raw message creator to be shared by all the message factories
+   * of this RA entity. To be called on raActive, once the stack is initialized
+   * and before any message factory is created.
+   */
+  protected void initMessageCreator() {
+    rawMessageCreator = new RawMessageCreator(stack);
+  }
+
+  public void raStopping() {
+    if (tracer.isFineEnabled()) {
+      tracer.fine(raName + " :: raStopping.");
+    }
+
+    try {
+      diameterMux.unregisterListener(this);
+    }
+    catch (Exception e) {
+      tracer.severe("Failed to unregister " + raName + " from Diameter Mux.", e);
+    }
+
+    if (tracer.isInfoEnabled()) {
+      tracer.info(raName + " :: raStopping completed.");
+    }
+  }
+
+  public void raInactive() {
+    if (tracer.isFineEnabled()) {
+      tracer.fine(raName + " :: raInactive.");
+    }
+
+    if (ingressQueue != null) {
+      ingressQueue.stop();
+    }
+    metrics.unregister();
+
+    PeerSnapshot snapshot = peerSnapshot;
+    if (snapshot != null) {
+      snapshot.close();
+      peerSnapshot = null;
+    }
+
+    DiameterActivityManagementFactory.dispose(activities);
+    activities = null;
+
+    if (tracer.isInfoEnabled()) {
+      tracer.info(raName + " :: raInactive completed.");
+    }
+  }
+
+  // Configuration management methods ------------------------------------
+
+  public void raVerifyConfiguration(ConfigProperties properties) throws InvalidConfigurationException {
+    try {
+      DiameterActivityManagementFactory.getType(properties);
+    }
+    catch (IllegalArgumentException e) {
+      throw new InvalidConfigurationException("Invalid activity management configuration: " + e.getMessage(), e);
+    }
+    try {
+      AsyncRequestManager.create(properties, null);
+    }
+    catch (IllegalArgumentException e) {
+      throw new InvalidConfigurationException("Invalid asynchronous request configuration: " + e.getMessage(), e);
+    }
+    try {
+      IngressQueue.create(properties);
+    }
+    catch (IllegalArgumentException e) {
+      throw new InvalidConfigurationException("Invalid ingress queue configuration: " + e.getMessage(), e);
+    }
+    try {
+      ValidatorImpl.create(properties);
+    }
+    catch (IllegalArgumentException e) {
+      throw new InvalidConfigurationException("Invalid validation configuration: " + e.getMessage(), e);
+    }
+    // TODO Verify remaining configuration!
+  }
+
+  public void raConfigurationUpdate(ConfigProperties properties) {
+    // this ra does not support config update while entity is active
+  }
+
+  // Event filtering methods ---------------------------------------------
+
+  public void serviceActive(ReceivableService serviceInfo) {
+    eventIDFilter.serviceActive(serviceInfo);
+  }
+
+  public void serviceStopping(ReceivableService serviceInfo) {
+    eventIDFilter.serviceStopping(serviceInfo);
+  }
+
+  public void serviceInactive(ReceivableService serviceInfo) {
+    eventIDFilter.serviceInactive(serviceInfo);
+  }
+
+  // Mandatory callback methods ------------------------------------------
+
+  public void queryLiveness(ActivityHandle handle) {
+    if (tracer.isInfoEnabled()) {
+      tracer.info(raName + " :: queryLiveness :: handle[" + handle + "].");
+    }
+
+    if (!(handle instanceof DiameterActivityHandle)) {
+      return;
+    }
+
+    DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle) handle);
+
+    if (activity != null && !activity.isValid()) {
+      try {
+        sleeEndpoint.endActivity(handle);
+      }
+      catch (Exception e) {
+        tracer.severe("Failure ending non-live activity.", e);
+      }
+    }
+  }
+
+  public Object getActivity(ActivityHandle handle) {
+    if (tracer.isFineEnabled()) {
+      tracer.fine(raName + " :: getActivity :: handle[" + handle + "].");
+    }
+
+    if (!(handle instanceof DiameterActivityHandle)) {
+      return null;
+    }
+
+    return this.activities.get((DiameterActivityHandle) handle);
+  }
+
+  public ActivityHandle getActivityHandle(Object activity) {
+    if (tracer.isFineEnabled()) {
+      tracer.fine(raName + " :: getActivityHandle :: activity[" + activity + "].");
+    }
+
+    if (!(activity instanceof DiameterActivityImpl)) {
+      return null;
+    }
+
+    return ((DiameterActivityImpl) activity).getActivityHandle();
+  }
+
+  public void administrativeRemove(ActivityHandle handle) {
+    // TODO what to do here?
+  }
+
+  // Optional callback methods -------------------------------------------
+
+  public void eventProcessingFailed(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags, FailureReason reason) {
+    messageTracer.eventProcessingFailed(handle, event, reason);
+
+    processAfterEventDelivery(handle);
+  }
+
+  public void eventProcessingSuccessful(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
+    messageTracer.eventProcessingSuccessful(handle, event);
+
+    processAfterEventDelivery(handle);
+  }
+
+  public void eventUnreferenced(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
+    if (tracer.isFineEnabled()) {
+      tracer.fine(raName + " :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], service[" + service + "], flags[" + flags + "].");
+    }
+
+    processAfterEventDelivery(handle);
+  }
+
+  private void processAfterEventDelivery(ActivityHandle handle) {
+    if (!(handle instanceof DiameterActivityHandle)) {
+      return;
+    }
+
+    DiameterActivityManagement mgmt = this.activities;
+    DiameterActivityImpl activity = mgmt != null ? (DiameterActivityImpl) mgmt.get((DiameterActivityHandle) handle) : null;
+    if (activity != null) {
+      activity.endIfTerminateAfterProcessing();
+    }
+  }
+
+  public void activityEnded(ActivityHandle handle) {
+    messageTracer.activityEnded(handle);
+    metrics.activityEnded();
+
+    if (!(handle instanceof DiameterActivityHandle)) {
+      return;
+    }
+
+    if (this.activities != null) {
+      this.activities.remove((DiameterActivityHandle) handle);
+    }
+  }
+
+  public void activityUnreferenced(ActivityHandle handle) {
+    if (tracer.isFineEnabled()) {
+      tracer.fine(raName + " :: activityUnreferenced :: handle[" + handle + "].");
+    }
+
+    if (handle instanceof DiameterActivityHandle) {
+      this.endActivity((DiameterActivityHandle) handle);
+    }
+  }
+
+  // Event and Activities management -------------------------------------
+
+  public boolean fireEvent(Object event, ActivityHandle handle, FireableEventType eventID, Address address, boolean useFiltering, boolean transacted) {
+    if (eventID == null) {
+      tracer.severe("Event ID for " + event + " is unknown, unable to fire.");
+    }
+    else if (useFiltering && eventIDFilter.filterEvent(eventID)) {
+      metrics.eventFiltered();
+      if (tracer.isFineEnabled()) {
+        tracer.fine("Event " + eventID + " filtered");
+      }
+    }
+    else {
+      if (tracer.isFineEnabled()) {
+        tracer.fine("Firing event " + event + " on handle " + handle);
+      }
+      try {
+        beforeFireEvent(handle, event);
+
+        // TODO: Support transacted fire of events when in cluster
+        sleeEndpoint.fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
+
+        return true;
+      }
+      catch (Exception e) {
+        tracer.severe("Error firing event.", e);
+      }
+    }
+
+    return false;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface#fireEvent(java.lang.String, org.jdiameter.api.Message)
+   */
+  public void fireEvent(String sessionId, Message message) {
+    metrics.messageReceived(message);
+
+    FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
+
+    // filter before creating the event, no point in wrapping a message no service will receive
+    if (eventId != null && eventIDFilter.filterEvent(eventId)) {
+      metrics.eventFiltered();
+      if (tracer.isFineEnabled()) {
+        tracer.fine("Event " + eventId + " filtered");
+      }
+      return;
+    }
+
+    this.fireEvent(createEvent(message), getActivityHandle(sessionId), eventId, null, false, message.isRequest());
+  }
+
+  /**
+   * Called right before an event is fired on an activity, to allow server
+   * activities to fetch the session state needed to answer the event. Lookups
+   * needed for that should be guarded by the event type, as this is called
+   * for every event. Does nothing by default.
+   *
+   * @param handle the handle of the activity the event is fired on
+   * @param event the event to fire
+   */
+  protected void beforeFireEvent(ActivityHandle handle, Object event) {
+    // nothing to do by default
+  }
+
+  /**
+   * Create Event object from a JDiameter message (request or answer)
+   *
+   * @return a DiameterMessage object wrapping the request/answer
+   */
+  protected abstract DiameterMessage createEvent(Message message);
+
+  /**
+   * Informs the SLEE of a created activity and stores it, along with setting
+   * this RA as its session listener and handing it the asynchronous request
+   * manager.
+   *
+   * @param activity the activity that has been created
+   * @param suspended true to start the activity suspended
+   * @param flags the activity flags, eg: {@link #MARSHALABLE_ACTIVITY_FLAGS}
+   */
+  protected void addActivity(DiameterActivity activity, boolean suspended, int flags) {
+    DiameterActivityImpl activityImpl = (DiameterActivityImpl) activity;
+    DiameterActivityHandle handle = activityImpl.getActivityHandle();
+
+    try {
+      // Inform SLEE that Activity Started
+      if (suspended) {
+        sleeEndpoint.startActivitySuspended(handle, activityImpl, flags);
+      }
+      else {
+        sleeEndpoint.startActivity(handle, activityImpl, flags);
+      }
+
+      // Set the listener
+      activityImpl.setSessionListener(this);
+
+      activityImpl.setAsyncRequestManager(asyncRequestManager);
+
+      // Put it into our activities map
+      activities.put(handle, activityImpl);
+
+      messageTracer.activityStarted(handle);
+      metrics.activityStarted();
+    }
+    catch (Exception e) {
+      tracer.severe("Error creating activity", e);
+
+      throw new RuntimeException("Error creating activity", e);
+    }
+  }
+
+  /**
+   * Initializes the activity storage, as configured.
+   */
+  protected void initActivitiesMgmt() {
+    this.activities = DiameterActivityManagementFactory.create(this.raContext, activityRemoveDelay, activityManagementType);
+  }
+
+  /**
+   * Create the Diameter Activity Handle for an given session id
+   *
+   * @param sessionId the session identifier to create the activity handle from
+   * @return a DiameterActivityHandle for the provided sessionId
+   */
+  protected DiameterActivityHandle getActivityHandle(String sessionId) {
+    // reuse the handle of the live activity, if any
+    DiameterActivityManagement mgmt = this.activities;
+    return mgmt != null ? mgmt.getActivityHandle(sessionId) : new DiameterActivityHandle(sessionId);
+  }
+
+  public void endActivity(DiameterActivityHandle handle) {
+    sleeEndpoint.endActivity(handle);
+  }
+
+  public void update(DiameterActivityHandle handle, DiameterActivity activity) {
+    activities.update(handle, activity);
+  }
+
+  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
+    try {
+      this.activities.startActivityRemoveTimer(handle);
+    }
+    catch (Exception e) {
+      tracer.warning("Failed to start activity remove timer.", e);
+    }
+  }
+
+  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
+    try {
+      this.activities.stopActivityRemoveTimer(handle);
+    }
+    catch (Exception e) {
+      tracer.warning("Failed to stop activity remove timer.", e);
+    }
+  }
+
+  // Event Listener ------------------------------------------------------
+
+  /*
+   * (non-Javadoc)
+   * @see org.jdiameter.api.EventListener#timeoutExpired(org.jdiameter.api.Message)
+   */
+  public void timeoutExpired(Request request) {
+    messageTracer.requestTimedOut(request);
+    metrics.requestTimedOut(request);
+
+    try {
+      // Message delivery timed out - we have to remove activity
+      DiameterActivity activity = (DiameterActivity) getActivity(getActivityHandle(request.getSessionId()));
+      if (activity != null) {
+        activity.endActivity();
+      }
+    }
+    catch (Exception e) {
+      tracer.severe("Failure processing timeout message.", e);
+    }
+  }
+
+  // Network Req Listener ------------------------------------------------
+
+  /*
+   * (non-Javadoc)
+   * @see org.jdiameter.api.NetworkReqListener#processRequest(org.jdiameter.api.Request)
+   */
+  public Answer processRequest(Request request) {
+    if (ingressQueue != null) {
+      // queued for a worker, or answered right away with 3004 if overloaded
+      return ingressQueue.submit(request, activities);
+    }
+
+    return doProcessRequest(request);
+  }
+
+  /**
+   * Processes a request received from the network, in the stack thread or in
+   * an ingress queue worker.
+   *
+   * @param request the request
+   * @return the answer to send right away, or null to answer later
+   */
+  protected abstract Answer doProcessRequest(Request request);
+
+  // Others --------------------------------------------------------------
+
+  /**
+   * Retrieves the RA context
+   */
+  public ResourceAdaptorContext getRaContext() {
+    return raContext;
+  }
+
+  public DiameterIdentity[] getConnectedPeers() {
+    PeerSnapshot snapshot = peerSnapshot;
+
+    return snapshot != null ? snapshot.getConnectedPeers() : new DiameterIdentity[0];
+  }
+
+  public int getPeerCount() {
+    PeerSnapshot snapshot = peerSnapshot;
+
+    return snapshot != null ? snapshot.getPeerCount() : 0;
+  }
+
+}
@@ -63,4 +63,13 @@ public interface DiameterActivityManagement {
   public void startActivityRemoveTimer(DiameterActivityHandle handle);
 
   public void stopActivityRemoveTimer(DiameterActivityHandle handle);
+
+  /**
+   * Retrieves the handle of the stored activity for the given Session-Id, so
+   * that looking activities up does not create a new handle each time.
+   * 
+   * @param sessionId
+   * @return the handle of the stored activity, or a new handle if there is none
+   */
+  public DiameterActivityHandle getActivityHandle(String sessionId);
 }
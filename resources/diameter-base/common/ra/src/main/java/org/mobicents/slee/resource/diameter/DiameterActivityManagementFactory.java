@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import javax.slee.resource.ConfigProperties;
+import javax.slee.resource.ConfigProperties.Property;
+import javax.slee.resource.ResourceAdaptorContext;
+
+/**
+ * Creates the {@link DiameterActivityManagement} selected by the RA
+ * configuration property {@link #ACTIVITY_MANAGEMENT}.
+ */
+public final class DiameterActivityManagementFactory {
+
+  /**
+   * Name of the RA config property selecting the activity management.
+   */
+  public static final String ACTIVITY_MANAGEMENT = "activityManagement";
+
+  /**
+   * Local activity management, with activity remove timers on the SLEE timer. This is the default.
+   */
+  public static final String LOCAL = "local";
+
+  /**
+   * Local activity management, with activity remove timers on a hashed timing wheel.
+   */
+  public static final String LOCAL_TIMING_WHEEL = "local-timing-wheel";
+
+  private DiameterActivityManagementFactory() {
+  }
+
+  /**
+   * Returns the activity management type set in the RA configuration. Without
+   * the property, {@link #LOCAL} is used.
+   *
+   * @param properties the RA configuration properties
+   * @return the activity management type
+   * @throws IllegalArgumentException if the type is unknown
+   */
+  public static String getType(ConfigProperties properties) {
+    Property amProp = properties.getProperty(ACTIVITY_MANAGEMENT);
+    String type = amProp != null && amProp.getValue() != null ? ((String) amProp.getValue()).trim() : LOCAL;
+
+    if (!LOCAL.equalsIgnoreCase(type) && !LOCAL_TIMING_WHEEL.equalsIgnoreCase(type)) {
+      throw new IllegalArgumentException("Unknown activity management '" + type + "', must be '" + LOCAL + "' or '" + LOCAL_TIMING_WHEEL + "'");
+    }
+
+    return type;
+  }
+
+  /**
+   * Creates the activity management of the given type.
+   *
+   * @param raContext the RA context
+   * @param activityRemoveDelay the delay, in milliseconds, of the activity remove timer
+   * @param type the activity management type, as returned by {@link #getType(ConfigProperties)}
+   * @return the activity management
+   * @throws IllegalArgumentException if the type is unknown
+   */
+  public static DiameterActivityManagement create(ResourceAdaptorContext raContext, long activityRemoveDelay, String type) {
+    if (LOCAL_TIMING_WHEEL.equalsIgnoreCase(type)) {
+      return new TimingWheelDiameterActivityManagement(raContext, activityRemoveDelay);
+    }
+    else if (LOCAL.equalsIgnoreCase(type)) {
+      return new LocalDiameterActivityManagement(raContext, activityRemoveDelay);
+    }
+
+    throw new IllegalArgumentException("Unknown activity management '" + type + "'");
+  }
+
+  /**
+   * Releases any resources held by the given activity management, to be called
+   * when the RA entity is deactivated.
+   *
+   * @param activityManagement the activity management, may be null
+   */
+  public static void dispose(DiameterActivityManagement activityManagement) {
+    if (activityManagement instanceof TimingWheelDiameterActivityManagement) {
+      ((TimingWheelDiameterActivityManagement) activityManagement).stop();
+    }
+  }
+
+}
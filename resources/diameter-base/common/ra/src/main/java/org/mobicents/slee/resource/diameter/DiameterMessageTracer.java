@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.resource.diameter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.slee.facilities.Tracer;
+import javax.slee.resource.ActivityHandle;
+import javax.slee.resource.FailureReason;
+import javax.slee.resource.ResourceAdaptorContext;
+
+import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+
+/**
+ * Per-message diagnostics of a Diameter RA, written at FINE level to a tracer
+ * of its own (the RA tracer name with a ".messages" suffix), as one line per
+ * message with command, Session-Id, Result-Code and latency.
+ * 
+ * Nothing is built unless that tracer is enabled for FINE, and at most
+ * a configured number of lines is written per second, the rest being counted
+ * and reported as suppressed.
+ */
+public class DiameterMessageTracer {
+
+  public static final String TRACER_NAME_SUFFIX = ".messages";
+
+  private static final int DEFAULT_MAX_LINES_PER_SECOND = 100;
+
+  private final Tracer tracer;
+  private final String prefix;
+  private final int maxLinesPerSecond;
+
+  private final AtomicLong currentSecond = new AtomicLong();
+  private final AtomicInteger linesInSecond = new AtomicInteger();
+  private final AtomicInteger suppressedLines = new AtomicInteger();
+
+  /**
+   * @param raContext the RA context
+   * @param raTracerName the name of the RA tracer
+   * @param prefix the prefix for each line, as the RA logs, eg "Diameter Base RA"
+   */
+  public DiameterMessageTracer(ResourceAdaptorContext raContext, String raTracerName, String prefix) {
+    this(raContext, raTracerName, prefix, DEFAULT_MAX_LINES_PER_SECOND);
+  }
+
+  public DiameterMessageTracer(ResourceAdaptorContext raContext, String raTracerName, String prefix, int maxLinesPerSecond) {
+    this.tracer = raContext.getTracer(raTracerName + TRACER_NAME_SUFFIX);
+    this.prefix = prefix;
+    this.maxLinesPerSecond = maxLinesPerSecond;
+  }
+
+  public boolean isEnabled() {
+    return tracer.isFineEnabled();
+  }
+
+  public void eventProcessingSuccessful(ActivityHandle handle, Object event) {
+    if (isEnabled() && acquire()) {
+      trace(line("eventProcessingSuccessful", handle).append(' '), event, null);
+    }
+  }
+
+  public void eventProcessingFailed(ActivityHandle handle, Object event, FailureReason reason) {
+    if (isEnabled() && acquire()) {
+      trace(line("eventProcessingFailed", handle).append(' '), event, reason);
+    }
+  }
+
+  public void activityStarted(ActivityHandle handle) {
+    if (isEnabled() && acquire()) {
+      tracer.fine(line("activityStarted", handle).toString());
+    }
+  }
+
+  public void activityEnded(ActivityHandle handle) {
+    if (isEnabled() && acquire()) {
+      tracer.fine(line("activityEnded", handle).toString());
+    }
+  }
+
+  public void requestReceived(Message request) {
+    if (isEnabled() && acquire()) {
+      tracer.fine(summary(line("requestReceived", null).append(' '), request, 0).toString());
+    }
+  }
+
+  public void answerReceived(Message request, Message answer) {
+    if (isEnabled() && acquire()) {
+      tracer.fine(summary(line("answerReceived", null).append(' '), answer, 0).toString());
+    }
+  }
+
+  public void requestTimedOut(Message request) {
+    if (isEnabled() && acquire()) {
+      tracer.fine(summary(line("timeoutExpired", null).append(' '), request, 0).toString());
+    }
+  }
+
+  private StringBuilder line(String callback, ActivityHandle handle) {
+    StringBuilder sb = new StringBuilder(160).append(prefix).append(" :: ").append(callback);
+    if (handle != null) {
+      sb.append(" :: handle[").append(handle).append(']');
+    }
+
+    return sb;
+  }
+
+  private void trace(StringBuilder sb, Object event, FailureReason reason) {
+    if (event instanceof DiameterMessageImpl) {
+      DiameterMessageImpl message = (DiameterMessageImpl) event;
+      summary(sb, message.getGenericData(), message.getCreationTime());
+    }
+    else {
+      sb.append("event[").append(event).append(']');
+    }
+    if (reason != null) {
+      sb.append(" reason=").append(reason);
+    }
+
+    tracer.fine(sb.toString());
+  }
+
+  private StringBuilder summary(StringBuilder sb, Message message, long creationTime) {
+    sb.append("command=").append(message.getCommandCode()).append(message.isRequest() ? 'R' : 'A');
+    if (message.isError()) {
+      sb.append('E');
+    }
+    sb.append(" session=").append(message.getSessionId());
+
+    if (!message.isRequest()) {
+      long resultCode = DiameterMetrics.getResultCode(message);
+      sb.append(" result=").append(resultCode >= 0 ? String.valueOf(resultCode) : "-");
+    }
+
+    if (creationTime != 0) {
+      sb.append(" latency=").append((System.nanoTime() - creationTime) / 1000).append("us");
+    }
+
+    return sb;
+  }
+
+  private boolean acquire() {
+    long second = System.currentTimeMillis() / 1000;
+    long current = currentSecond.get();
+    if (second != current && currentSecond.compareAndSet(current, second)) {
+      linesInSecond.set(0);
+      int suppressed = suppressedLines.getAndSet(0);
+      if (suppressed > 0) {
+        tracer.fine(prefix + " :: " + suppressed + " message traces suppressed, over " + maxLinesPerSecond + " per second.");
+      }
+    }
+
+    if (linesInSecond.incrementAndGet() <= maxLinesPerSecond) {
+      return true;
+    }
+
+    suppressedLines.incrementAndGet();
+    return false;
+  }
+
+}
@@ -0,0 +1,475 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+import org.jdiameter.api.Avp;
+import org.jdiameter.api.AvpSet;
+import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.base.IngressQueue;
+
+/**
+ * Operational metrics of a Diameter RA entity: message counts by command code
+ * and by peer, Result-Code distributions, timeouts, filtered events, live
+ * activities and request latencies, exported as a {@link DiameterMetricsMBean}.
+ *
+ * Counters are {@link StripedCounter}s, so updating them from the stack and
+ * event router threads does not contend, and totals are only summed when read.
+ *
+ * Messages are counted by peer only for the peers configured in the stack,
+ * given by {@link #setPeers(Collection)}, and under {@link #OTHER_PEERS} for
+ * any other or unknown peer, so that the peer counters stay bounded. Received
+ * messages are counted by Origin-Host, and sent requests by Destination-Host.
+ *
+ * Received messages are counted as they are fired to the SLEE. Sent messages and latencies are recorded for
+ * the requests and answers sent through the RA activities and the
+ * {@link org.mobicents.slee.resource.diameter.base.AsyncRequestManager}.
+ */
+public class DiameterMetrics implements DiameterMetricsMBean {
+
+  private static final Logger logger = Logger.getLogger(DiameterMetrics.class);
+
+  public static final String OBJECT_NAME_PREFIX = "diameter.mobicents:service=DiameterRAMetrics,name=";
+
+  /**
+   * Key of the counters of messages from or to peers not configured in the stack, or unknown.
+   */
+  public static final String OTHER_PEERS = "other";
+
+  private final ConcurrentHashMap<Integer, CommandCounters> commands = new ConcurrentHashMap<Integer, CommandCounters>();
+  // by peer FQDN, replaced as a whole when the configured peers change
+  private volatile Map<String, PeerCounters> peers = Collections.emptyMap();
+  private final PeerCounters otherPeers = new PeerCounters();
+  private final ConcurrentHashMap<Long, StripedCounter> resultCodesReceived = new ConcurrentHashMap<Long, StripedCounter>();
+  private final ConcurrentHashMap<Long, StripedCounter> resultCodesSent = new ConcurrentHashMap<Long, StripedCounter>();
+
+  private final StripedCounter filteredEvents = new StripedCounter();
+  private final StripedCounter activitiesStarted = new StripedCounter();
+  private final StripedCounter activitiesEnded = new StripedCounter();
+
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  private volatile IngressQueue ingressQueue;
+
+  private ObjectName objectName;
+
+  /**
+   * Gets the Result-Code of an answer, or its Experimental-Result-Code if it has none.
+   *
+   * @param answer the answer
+   * @return the result code, or -1 if none or not decodable
+   */
+  public static long getResultCode(Message answer) {
+    try {
+      AvpSet avps = answer.getAvps();
+      Avp resultCode = avps.getAvp(Avp.RESULT_CODE);
+      if (resultCode == null) {
+        Avp experimentalResult = avps.getAvp(Avp.EXPERIMENTAL_RESULT);
+        resultCode = experimentalResult != null ? experimentalResult.getGrouped().getAvp(Avp.EXPERIMENTAL_RESULT_CODE) : null;
+      }
+
+      return resultCode != null ? resultCode.getUnsigned32() : -1;
+    }
+    catch (Exception e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Registers the MBean for this RA entity in the platform MBean server.
+   *
+   * @param entityName the name of the RA entity
+   */
+  public synchronized void register(String entityName) {
+    if (objectName != null) {
+      return;
+    }
+
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(entityName));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(this, name);
+      objectName = name;
+    }
+    catch (Exception e) {
+      logger.warn("Failed to register metrics MBean for RA entity " + entityName, e);
+    }
+  }
+
+  public synchronized void unregister() {
+    if (objectName == null) {
+      return;
+    }
+
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+    catch (Exception e) {
+      logger.warn("Failed to unregister metrics MBean " + objectName, e);
+    }
+    objectName = null;
+  }
+
+  /**
+   * @param ingressQueue the ingress queue of the RA entity, whose metrics are exported too, or null if none
+   */
+  public void setIngressQueue(IngressQueue ingressQueue) {
+    this.ingressQueue = ingressQueue;
+  }
+
+  /**
+   * Sets the peers to count messages for, those configured in the stack. The
+   * counters of peers still configured are kept.
+   *
+   * @param peerNames the FQDNs of the peers
+   */
+  public synchronized void setPeers(Collection<String> peerNames) {
+    Map<String, PeerCounters> current = peers;
+    Map<String, PeerCounters> updated = new HashMap<String, PeerCounters>();
+    for (String peerName : peerNames) {
+      PeerCounters counters = current.get(peerName);
+      updated.put(peerName, counters != null ? counters : new PeerCounters());
+    }
+
+    peers = updated;
+  }
+
+  // Recording -----------------------------------------------------------
+
+  public void messageReceived(Message message) {
+    CommandCounters command = getCommandCounters(message.getCommandCode());
+    PeerCounters peer = getPeerCounters(getIdentity(message, Avp.ORIGIN_HOST));
+
+    if (message.isRequest()) {
+      command.requestsReceived.increment();
+      peer.requestsReceived.increment();
+    }
+    else {
+      command.answersReceived.increment();
+      peer.answersReceived.increment();
+      increment(resultCodesReceived, getResultCode(message));
+    }
+  }
+
+  public void messageSent(Message message) {
+    CommandCounters command = getCommandCounters(message.getCommandCode());
+
+    if (message.isRequest()) {
+      command.requestsSent.increment();
+      getPeerCounters(getIdentity(message, Avp.DESTINATION_HOST)).requestsSent.increment();
+    }
+    else {
+      command.answersSent.increment();
+      increment(resultCodesSent, getResultCode(message));
+    }
+  }
+
+  /**
+   * @param sendTime the System.nanoTime() when the request was sent
+   */
+  public void requestAnswered(long sendTime) {
+    latency.record((System.nanoTime() - sendTime) / 1000);
+  }
+
+  public void requestTimedOut(Message request) {
+    getCommandCounters(request.getCommandCode()).timeouts.increment();
+  }
+
+  public void eventFiltered() {
+    filteredEvents.increment();
+  }
+
+  public void activityStarted() {
+    activitiesStarted.increment();
+  }
+
+  public void activityEnded() {
+    activitiesEnded.increment();
+  }
+
+  private CommandCounters getCommandCounters(int commandCode) {
+    Integer key = commandCode;
+    CommandCounters counters = commands.get(key);
+    if (counters == null) {
+      CommandCounters newCounters = new CommandCounters();
+      counters = commands.putIfAbsent(key, newCounters);
+      if (counters == null) {
+        counters = newCounters;
+      }
+    }
+
+    return counters;
+  }
+
+  private PeerCounters getPeerCounters(String peer) {
+    PeerCounters counters = peer != null ? peers.get(peer) : null;
+
+    return counters != null ? counters : otherPeers;
+  }
+
+  private static void increment(ConcurrentHashMap<Long, StripedCounter> counters, long key) {
+    StripedCounter counter = counters.get(key);
+    if (counter == null) {
+      StripedCounter newCounter = new StripedCounter();
+      counter = counters.putIfAbsent(key, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+
+    counter.increment();
+  }
+
+  private static String getIdentity(Message message, int avpCode) {
+    try {
+      Avp identity = message.getAvps().getAvp(avpCode);
+      if (identity != null) {
+        return identity.getDiameterIdentity();
+      }
+    }
+    catch (Exception e) {
+      // counted as other
+    }
+
+    return null;
+  }
+
+  // DiameterMetricsMBean ------------------------------------------------
+
+  public long getRequestsReceived() {
+    long sum = 0;
+    for (CommandCounters counters : commands.values()) {
+      sum += counters.requestsReceived.sum();
+    }
+
+    return sum;
+  }
+
+  public long getAnswersReceived() {
+    long sum = 0;
+    for (CommandCounters counters : commands.values()) {
+      sum += counters.answersReceived.sum();
+    }
+
+    return sum;
+  }
+
+  public long getRequestsSent() {
+    long sum = 0;
+    for (CommandCounters counters : commands.values()) {
+      sum += counters.requestsSent.sum();
+    }
+
+    return sum;
+  }
+
+  public long getAnswersSent() {
+    long sum = 0;
+    for (CommandCounters counters : commands.values()) {
+      sum += counters.answersSent.sum();
+    }
+
+    return sum;
+  }
+
+  public long getTimeouts() {
+    long sum = 0;
+    for (CommandCounters counters : commands.values()) {
+      sum += counters.timeouts.sum();
+    }
+
+    return sum;
+  }
+
+  public long getFilteredEvents() {
+    return filteredEvents.sum();
+  }
+
+  public long getActivitiesStarted() {
+    return activitiesStarted.sum();
+  }
+
+  public long getActivitiesEnded() {
+    return activitiesEnded.sum();
+  }
+
+  public long getLiveActivities() {
+    // ended first, so that a concurrent start does not make it negative
+    long ended = activitiesEnded.sum();
+    return Math.max(0, activitiesStarted.sum() - ended);
+  }
+
+  public Map<String, Long> getCommandCounts() {
+    Map<String, Long> result = new HashMap<String, Long>();
+    for (Map.Entry<Integer, CommandCounters> entry : commands.entrySet()) {
+      String prefix = entry.getKey() + ".";
+      CommandCounters counters = entry.getValue();
+      result.put(prefix + "requestsReceived", counters.requestsReceived.sum());
+      result.put(prefix + "answersReceived", counters.answersReceived.sum());
+      result.put(prefix + "requestsSent", counters.requestsSent.sum());
+      result.put(prefix + "answersSent", counters.answersSent.sum());
+      result.put(prefix + "timeouts", counters.timeouts.sum());
+    }
+
+    return result;
+  }
+
+  public Map<String, Long> getPeerCounts() {
+    Map<String, Long> result = new HashMap<String, Long>();
+    for (Map.Entry<String, PeerCounters> entry : peers.entrySet()) {
+      putPeerCounts(result, entry.getKey(), entry.getValue());
+    }
+    putPeerCounts(result, OTHER_PEERS, otherPeers);
+
+    return result;
+  }
+
+  private static void putPeerCounts(Map<String, Long> result, String peer, PeerCounters counters) {
+    String prefix = peer + ".";
+    result.put(prefix + "requestsReceived", counters.requestsReceived.sum());
+    result.put(prefix + "answersReceived", counters.answersReceived.sum());
+    result.put(prefix + "requestsSent", counters.requestsSent.sum());
+  }
+
+  public Map<Long, Long> getResultCodesReceived() {
+    return sums(resultCodesReceived);
+  }
+
+  public Map<Long, Long> getResultCodesSent() {
+    return sums(resultCodesSent);
+  }
+
+  private static Map<Long, Long> sums(ConcurrentHashMap<Long, StripedCounter> counters) {
+    Map<Long, Long> result = new HashMap<Long, Long>();
+    for (Map.Entry<Long, StripedCounter> entry : counters.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().sum());
+    }
+
+    return result;
+  }
+
+  public long getLatencyCount() {
+    return latency.getCount();
+  }
+
+  public double getLatencyMean() {
+    return latency.getMean();
+  }
+
+  public long getLatencyMax() {
+    return latency.getMax();
+  }
+
+  public long getLatency50() {
+    return latency.getPercentile(50);
+  }
+
+  public long getLatency90() {
+    return latency.getPercentile(90);
+  }
+
+  public long getLatency99() {
+    return latency.getPercentile(99);
+  }
+
+  public long getLatency999() {
+    return latency.getPercentile(99.9);
+  }
+
+  public long getLatencyPercentile(double percentile) {
+    return latency.getPercentile(percentile);
+  }
+
+  public String getLatencyHistogram() {
+    return latency.toString();
+  }
+
+  public int getIngressQueuedRequests() {
+    IngressQueue queue = ingressQueue;
+    return queue != null ? queue.getQueuedRequests() : 0;
+  }
+
+  public long getIngressRejectedRequests() {
+    IngressQueue queue = ingressQueue;
+    return queue != null ? queue.getRejectedRequests() : 0;
+  }
+
+  public long getIngressMaxQueueWaitTime() {
+    IngressQueue queue = ingressQueue;
+    return queue != null ? queue.getMaxQueueWaitTime() : 0;
+  }
+
+  public double getIngressAverageQueueWaitTime() {
+    IngressQueue queue = ingressQueue;
+    return queue != null ? queue.getAverageQueueWaitTime() : 0;
+  }
+
+  public void reset() {
+    commands.clear();
+    for (PeerCounters counters : peers.values()) {
+      counters.reset();
+    }
+    otherPeers.reset();
+    resultCodesReceived.clear();
+    resultCodesSent.clear();
+    filteredEvents.reset();
+    latency.reset();
+    // activity counters are not reset, live activities are derived from them
+  }
+
+  private static final class CommandCounters {
+
+    private final StripedCounter requestsReceived = new StripedCounter();
+    private final StripedCounter answersReceived = new StripedCounter();
+    private final StripedCounter requestsSent = new StripedCounter();
+    private final StripedCounter answersSent = new StripedCounter();
+    private final StripedCounter timeouts = new StripedCounter();
+  }
+
+  private static final class PeerCounters {
+
+    private final StripedCounter requestsReceived = new StripedCounter();
+    private final StripedCounter answersReceived = new StripedCounter();
+    private final StripedCounter requestsSent = new StripedCounter();
+
+    private void reset() {
+      requestsReceived.reset();
+      answersReceived.reset();
+      requestsSent.reset();
+    }
+  }
+
+}
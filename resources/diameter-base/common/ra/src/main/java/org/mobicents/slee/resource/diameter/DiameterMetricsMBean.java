@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.util.Map;
+
+/**
+ * Management interface of the metrics of a Diameter RA entity. Latencies are
+ * in microseconds, from sending a request to receiving its answer.
+ */
+public interface DiameterMetricsMBean {
+
+  public long getRequestsReceived();
+
+  public long getAnswersReceived();
+
+  public long getRequestsSent();
+
+  public long getAnswersSent();
+
+  public long getTimeouts();
+
+  /**
+   * @return the number of events not fired because no active service is interested in them
+   */
+  public long getFilteredEvents();
+
+  public long getActivitiesStarted();
+
+  public long getActivitiesEnded();
+
+  public long getLiveActivities();
+
+  /**
+   * @return the counts by command code, keyed as "&lt;command code&gt;.&lt;counter&gt;", eg "272.requestsReceived"
+   */
+  public Map<String, Long> getCommandCounts();
+
+  /**
+   * @return the counts of received messages by Origin-Host and of sent requests by Destination-Host, for
+   *         the peers configured in the stack and "other", keyed as "&lt;peer&gt;.&lt;counter&gt;"
+   */
+  public Map<String, Long> getPeerCounts();
+
+  /**
+   * @return the counts of received answers by Result-Code, or Experimental-Result-Code
+   */
+  public Map<Long, Long> getResultCodesReceived();
+
+  /**
+   * @return the counts of sent answers by Result-Code, or Experimental-Result-Code
+   */
+  public Map<Long, Long> getResultCodesSent();
+
+  public long getLatencyCount();
+
+  public double getLatencyMean();
+
+  public long getLatencyMax();
+
+  public long getLatency50();
+
+  public long getLatency90();
+
+  public long getLatency99();
+
+  public long getLatency999();
+
+  /**
+   * @param percentile the percentile, between 0 and 100
+   * @return the latency at or under which the given percentage of answers were received
+   */
+  public long getLatencyPercentile(double percentile);
+
+  /**
+   * @return the latency histogram, one line per non empty bucket
+   */
+  public String getLatencyHistogram();
+
+  public int getIngressQueuedRequests();
+
+  public long getIngressRejectedRequests();
+
+  /**
+   * @return the longest time, in milliseconds, a received request has been queued
+   */
+  public long getIngressMaxQueueWaitTime();
+
+  /**
+   * @return the average time, in milliseconds, received requests have been queued
+   */
+  public double getIngressAverageQueueWaitTime();
+
+  /**
+   * Sets all counters and the latency histogram back to 0.
+   */
+  public void reset();
+
+}
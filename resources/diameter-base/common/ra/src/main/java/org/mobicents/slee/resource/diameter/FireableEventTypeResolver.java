@@ -0,0 +1,245 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.slee.EventTypeID;
+import javax.slee.UnrecognizedEventException;
+import javax.slee.facilities.EventLookupFacility;
+import javax.slee.facilities.Tracer;
+import javax.slee.resource.FireableEventType;
+
+import org.jdiameter.api.Message;
+
+/**
+ * Resolves the {@link FireableEventType} to fire for a Diameter message, based
+ * on its command code, request flag and error flag.
+ *
+ * Event types are kept in arrays indexed by command code, so resolving does
+ * not allocate nor look up any map. They are resolved upfront by calling
+ * {@link #init(EventLookupFacility, Tracer)} on RA activation, or otherwise on
+ * first use. Only the event types declared by the RA type are looked up, any
+ * other message resolves to no event type.
+ */
+public class FireableEventTypeResolver {
+
+  protected static final String VENDOR  = "java.net";
+  protected static final String VERSION = "0.8";
+
+  // above this range of command codes, binary search is used instead of direct indexing
+  private static final int MAX_DIRECT_RANGE = 4096;
+
+  private final int minCommandCode;
+  private final boolean direct;
+  private final int[] commandCodes;
+
+  // command codes with an event name, even if not declared by the RA type
+  private final boolean[] known;
+
+  // names are null for event types not declared by the RA type
+  private final String[] requestEventNames;
+  private final String[] answerEventNames;
+  private final FireableEventType[] requestEventTypes;
+  private final FireableEventType[] answerEventTypes;
+
+  private final String errorEventName;
+  private final String extensionEventName;
+  private volatile FireableEventType errorEventType;
+  private volatile FireableEventType extensionEventType;
+
+  private volatile Tracer tracer;
+
+  /**
+   * @param eventNames the event name prefix (without Request/Answer suffix) for each command code
+   * @param errorEventName the event name for error answers, null if these are not fired
+   * @param extensionEventName the event name for messages with unknown command code, null if these are not fired
+   */
+  public FireableEventTypeResolver(Map<Integer, String> eventNames, String errorEventName, String extensionEventName) {
+    this(eventNames, errorEventName, extensionEventName, null);
+  }
+
+  /**
+   * @param eventNames the event name prefix (without Request/Answer suffix) for each command code
+   * @param errorEventName the event name for error answers, null if these are not fired
+   * @param extensionEventName the event name for messages with unknown command code, null if these are not fired
+   * @param declaredEventNames the event names declared by the RA type, null if all of the above are declared
+   */
+  public FireableEventTypeResolver(Map<Integer, String> eventNames, String errorEventName, String extensionEventName, Set<String> declaredEventNames) {
+    this.errorEventName = declared(declaredEventNames, errorEventName);
+    this.extensionEventName = declared(declaredEventNames, extensionEventName);
+
+    int[] codes = new int[eventNames.size()];
+    int i = 0;
+    for (Integer commandCode : eventNames.keySet()) {
+      codes[i++] = commandCode;
+    }
+    Arrays.sort(codes);
+
+    int min = codes.length > 0 ? codes[0] : 0;
+    int max = codes.length > 0 ? codes[codes.length - 1] : -1;
+    this.direct = max - min < MAX_DIRECT_RANGE;
+    this.minCommandCode = min;
+    this.commandCodes = codes;
+
+    int size = direct ? max - min + 1 : codes.length;
+    this.known = new boolean[size];
+    this.requestEventNames = new String[size];
+    this.answerEventNames = new String[size];
+    this.requestEventTypes = new FireableEventType[size];
+    this.answerEventTypes = new FireableEventType[size];
+
+    for (int commandCode : codes) {
+      String eventName = eventNames.get(commandCode);
+      int index = index(commandCode);
+      known[index] = true;
+      requestEventNames[index] = declared(declaredEventNames, eventName + "Request");
+      answerEventNames[index] = declared(declaredEventNames, eventName + "Answer");
+    }
+  }
+
+  private static String declared(Set<String> declaredEventNames, String eventName) {
+    return declaredEventNames == null || declaredEventNames.contains(eventName) ? eventName : null;
+  }
+
+  /**
+   * Creates the set of event names declared by an RA type.
+   *
+   * @param eventNames the declared event names
+   * @return an unmodifiable set with the given event names
+   */
+  protected static Set<String> declaredEventNames(String... eventNames) {
+    return Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(eventNames)));
+  }
+
+  private int index(int commandCode) {
+    if (direct) {
+      int index = commandCode - minCommandCode;
+      return index >= 0 && index < known.length ? index : -1;
+    }
+    else {
+      int index = Arrays.binarySearch(commandCodes, commandCode);
+      return index >= 0 ? index : -1;
+    }
+  }
+
+  /**
+   * Resolves all known event types, so that the first message of each type
+   * does not go to the event lookup facility.
+   *
+   * @param eventLookupFacility the facility to look event types up
+   * @param tracer the RA tracer, to report event types failing to resolve
+   */
+  public void init(EventLookupFacility eventLookupFacility, Tracer tracer) {
+    this.tracer = tracer;
+
+    for (int index = 0; index < known.length; index++) {
+      if (requestEventNames[index] != null) {
+        requestEventTypes[index] = lookup(eventLookupFacility, requestEventNames[index]);
+      }
+      if (answerEventNames[index] != null) {
+        answerEventTypes[index] = lookup(eventLookupFacility, answerEventNames[index]);
+      }
+    }
+
+    if (errorEventName != null) {
+      errorEventType = lookup(eventLookupFacility, errorEventName);
+    }
+    if (extensionEventName != null) {
+      extensionEventType = lookup(eventLookupFacility, extensionEventName);
+    }
+  }
+
+  /**
+   *
+   * @param eventLookupFacility
+   * @param message
+   * @return the event type for the message, or null if none
+   */
+  public FireableEventType getEventId(EventLookupFacility eventLookupFacility, Message message) {
+    return getEventId(eventLookupFacility, message.getCommandCode(), message.isRequest(), message.isError());
+  }
+
+  /**
+   *
+   * @param eventLookupFacility
+   * @param commandCode
+   * @param isRequest
+   * @param isError
+   * @return the event type for the message, or null if none
+   */
+  public FireableEventType getEventId(EventLookupFacility eventLookupFacility, int commandCode, boolean isRequest, boolean isError) {
+    // Error is always the same.
+    if (isError) {
+      FireableEventType eventType = errorEventType;
+      if (eventType == null && errorEventName != null) {
+        eventType = errorEventType = lookup(eventLookupFacility, errorEventName);
+      }
+      return eventType;
+    }
+
+    int index = index(commandCode);
+    if (index >= 0 && known[index]) {
+      FireableEventType[] eventTypes = isRequest ? requestEventTypes : answerEventTypes;
+      FireableEventType eventType = eventTypes[index];
+      if (eventType == null) {
+        String eventName = isRequest ? requestEventNames[index] : answerEventNames[index];
+        if (eventName != null) {
+          eventType = eventTypes[index] = lookup(eventLookupFacility, eventName);
+        }
+      }
+      return eventType;
+    }
+
+    FireableEventType eventType = extensionEventType;
+    if (eventType == null && extensionEventName != null) {
+      eventType = extensionEventType = lookup(eventLookupFacility, extensionEventName);
+    }
+    return eventType;
+  }
+
+  private FireableEventType lookup(EventLookupFacility eventLookupFacility, String eventName) {
+    try {
+      return eventLookupFacility.getFireableEventType(new EventTypeID(eventName, VENDOR, VERSION));
+    }
+    catch (UnrecognizedEventException e) {
+      Tracer tracer = this.tracer;
+      if (tracer != null) {
+        tracer.warning("Event type " + eventName + " is not recognized, messages of this type will not be fired.");
+      }
+      return null;
+    }
+    catch (Exception e) {
+      Tracer tracer = this.tracer;
+      if (tracer != null) {
+        tracer.severe("Failed to look up event type " + eventName, e);
+      }
+      return null;
+    }
+  }
+
+}
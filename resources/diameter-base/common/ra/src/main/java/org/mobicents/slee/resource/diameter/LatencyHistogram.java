@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, in microseconds, with log-linear buckets as in
+ * HdrHistogram: each power of 2 range is split in 16 linear sub buckets, so
+ * any recorded value is within 1/16 (6.25%) of its bucket bounds, for the
+ * whole range of positive long values. Recording is a bucket index
+ * computation and an atomic increment, with no allocation nor locking.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  // values below SUB_BUCKETS are indexed directly, then one group of sub buckets per power of 2
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final StripedCounter count = new StripedCounter();
+  private final StripedCounter total = new StripedCounter();
+  private final AtomicLong max = new AtomicLong();
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    // shift leaving the highest bit and the sub bucket bits under it
+    int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> exponent) - SUB_BUCKETS;
+
+    return (exponent + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return the highest value which falls in the bucket with the given index
+   */
+  static long highestValue(int index) {
+    if (index < 2 * SUB_BUCKETS) {
+      return index;
+    }
+
+    int exponent = index / SUB_BUCKETS - 1;
+    long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+
+    return ((subBucket + 1) << exponent) - 1;
+  }
+
+  /**
+   * @param micros the latency, in microseconds, negative values are recorded as 0
+   */
+  public void record(long micros) {
+    if (micros < 0) {
+      micros = 0;
+    }
+
+    buckets.getAndIncrement(index(micros));
+    count.increment();
+    total.add(micros);
+
+    long current;
+    while (micros > (current = max.get())) {
+      if (max.compareAndSet(current, micros)) {
+        break;
+      }
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * @return the mean latency, in microseconds
+   */
+  public double getMean() {
+    long n = count.sum();
+    return n > 0 ? (double) total.sum() / n : 0;
+  }
+
+  /**
+   * @return the highest latency recorded, in microseconds
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param percentile the percentile, between 0 and 100
+   * @return the latency, in microseconds, at or under which the given percentage of values fall, within bucket precision
+   */
+  public long getPercentile(double percentile) {
+    long[] snapshot = snapshot();
+    long n = 0;
+    for (long c : snapshot) {
+      n += c;
+    }
+    if (n == 0) {
+      return 0;
+    }
+
+    long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * n));
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= target) {
+        return Math.min(highestValue(i), max.get());
+      }
+    }
+
+    return max.get();
+  }
+
+  /**
+   * @return one line per non empty bucket, with its highest value, in microseconds, and count
+   */
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    long[] snapshot = snapshot();
+    for (int i = 0; i < snapshot.length; i++) {
+      if (snapshot[i] != 0) {
+        sb.append("<=").append(highestValue(i)).append("us: ").append(snapshot[i]).append('\n');
+      }
+    }
+
+    return sb.toString();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    total.reset();
+    max.set(0);
+  }
+
+  private long[] snapshot() {
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+    }
+
+    return snapshot;
+  }
+
+}
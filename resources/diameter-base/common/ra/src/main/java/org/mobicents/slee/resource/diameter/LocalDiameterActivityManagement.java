@@ -41,6 +41,8 @@ import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
 public class LocalDiameterActivityManagement implements DiameterActivityManagement{
 
   private ConcurrentHashMap<DiameterActivityHandle,DiameterActivity> activities = new ConcurrentHashMap<DiameterActivityHandle, DiameterActivity>();
+  // handles of stored activities, by Session-Id
+  private ConcurrentHashMap<String,DiameterActivityHandle> handles = new ConcurrentHashMap<String, DiameterActivityHandle>();
   private Timer timer;
   private long delay;
   private ConcurrentHashMap<DiameterActivityHandle,TimerTask> removeMap = new ConcurrentHashMap<DiameterActivityHandle, TimerTask>();
@@ -62,10 +64,20 @@ public class LocalDiameterActivityManagement implements DiameterActivityManageme
     if(existingActivity != null) {
       throw new IllegalArgumentException("There is already activity for '" + handle + "': " + existingActivity);
     }
+    this.handles.put(handle.getId(), handle);
   }
 
   public DiameterActivity remove(DiameterActivityHandle handle) {
-    return this.activities.remove(handle);
+    DiameterActivity activity = this.activities.remove(handle);
+    if(activity != null) {
+      this.handles.remove(handle.getId());
+    }
+    return activity;
+  }
+
+  public DiameterActivityHandle getActivityHandle(String sessionId) {
+    DiameterActivityHandle handle = this.handles.get(sessionId);
+    return handle != null ? handle : new DiameterActivityHandle(sessionId);
   }
 
   public boolean containsKey(DiameterActivityHandle activityHandle) {
@@ -84,10 +96,13 @@ public class LocalDiameterActivityManagement implements DiameterActivityManageme
    * (org.mobicents.slee.resource.diameter.base.DiameterActivityHandle)
    */
   public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    if(this.activities.contains(handle)) {
+    if(this.activities.containsKey(handle)) {
       ActivityRemoveTimerTask task = new ActivityRemoveTimerTask(handle);
-      this.removeMap.put(handle, task);
-      this.timer.schedule(new ActivityRemoveTimerTask(handle), delay);
+      TimerTask previous = this.removeMap.put(handle, task);
+      if(previous != null) {
+        previous.cancel();
+      }
+      this.timer.schedule(task, delay);
     }
   }
 
@@ -99,14 +114,9 @@ public class LocalDiameterActivityManagement implements DiameterActivityManageme
    * (org.mobicents.slee.resource.diameter.base.DiameterActivityHandle)
    */
   public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    DiameterActivity da = this.activities.get(handle);
-    if(da != null) {
-      synchronized (da) {
-        TimerTask tt = this.removeMap.remove(handle);
-        if(tt != null) {
-          tt.cancel();
-        }
-      }
+    TimerTask tt = this.removeMap.remove(handle);
+    if(tt != null) {
+      tt.cancel();
     }
   }
 
@@ -131,12 +141,7 @@ public class LocalDiameterActivityManagement implements DiameterActivityManageme
       try {
         DiameterActivityImpl da = (DiameterActivityImpl) get(handle);
         if (da != null) {
-          synchronized (da) {
-            if(da.isTerminateAfterProcessing()) {
-              da.setTerminateAfterProcessing(false);
-              da.endActivity();
-            }
-          }
+          da.endIfTerminateAfterProcessing();
         }
 
       }
@@ -144,7 +149,7 @@ public class LocalDiameterActivityManagement implements DiameterActivityManageme
         e.printStackTrace();
       }
       finally {
-        removeMap.remove(handle);
+        removeMap.remove(handle, this);
       }
     }
   }
@@ -0,0 +1,215 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
+
+import org.apache.log4j.Logger;
+import org.jdiameter.api.Peer;
+import org.jdiameter.api.PeerState;
+import org.jdiameter.api.PeerStateListener;
+import org.jdiameter.api.PeerTable;
+
+/**
+ * Snapshot of the peers of a stack which are connected, ie, in OKAY state,
+ * created by an RA entity when it is activated and closed when it is
+ * deactivated.
+ *
+ * The snapshot is kept up to date by a state listener on each peer, and is
+ * published as an immutable array, so that reading it does not go through the
+ * peer table nor build any identity. The peer table itself is only scanned
+ * again, for peers added or removed, at most once per second, when read.
+ */
+public class PeerSnapshot {
+
+  private static final Logger logger = Logger.getLogger(PeerSnapshot.class);
+
+  // time, in milliseconds, between scans of the peer table for added or removed peers
+  private static final long RESCAN_INTERVAL = 1000;
+
+  private static final DiameterIdentity[] NO_PEERS = new DiameterIdentity[0];
+
+  private final PeerTable peerTable;
+
+  // listened peers, by URI, only changed while scanning
+  private final Map<String, ListenedPeer> peers = new HashMap<String, ListenedPeer>();
+  private final ConcurrentHashMap<String, DiameterIdentity> connected = new ConcurrentHashMap<String, DiameterIdentity>();
+  // not the instance monitor, held while scanning, as listeners are called from stack threads
+  private final Object publishLock = new Object();
+
+  private volatile DiameterIdentity[] connectedPeers = NO_PEERS;
+  private volatile long nextScan;
+  private volatile boolean closed;
+
+  /**
+   * Starts listening to the state of the peers in the given table.
+   *
+   * @param peerTable the peer table of the stack
+   */
+  public PeerSnapshot(PeerTable peerTable) {
+    this.peerTable = peerTable;
+    scan();
+  }
+
+  /**
+   * Stops listening to the state of the peers. The snapshot is empty from then on.
+   */
+  public synchronized void close() {
+    closed = true;
+
+    for (ListenedPeer listened : peers.values()) {
+      listened.stopListening();
+    }
+    peers.clear();
+  }
+
+  /**
+   * @return the identities of the connected peers, as a copy of the snapshot
+   */
+  public DiameterIdentity[] getConnectedPeers() {
+    checkScan();
+    DiameterIdentity[] snapshot = connectedPeers;
+
+    return snapshot.length == 0 ? snapshot : snapshot.clone();
+  }
+
+  /**
+   * @return the number of connected peers
+   */
+  public int getPeerCount() {
+    checkScan();
+
+    return connectedPeers.length;
+  }
+
+  private void checkScan() {
+    if (!closed && System.currentTimeMillis() >= nextScan) {
+      scan();
+    }
+  }
+
+  private synchronized void scan() {
+    long now = System.currentTimeMillis();
+    if (closed || now < nextScan) {
+      // closed or done by another thread meanwhile
+      return;
+    }
+
+    try {
+      List<Peer> tablePeers = peerTable.getPeerTable();
+      Set<String> uris = new HashSet<String>();
+
+      for (Peer peer : tablePeers) {
+        String uri = peer.getUri().toString();
+        uris.add(uri);
+
+        ListenedPeer listened = peers.get(uri);
+        if (listened == null || listened.peer != peer) {
+          if (listened != null) {
+            listened.stopListening();
+          }
+          listened = new ListenedPeer(peer, uri);
+          peers.put(uri, listened);
+          peer.addPeerStateListener(listened);
+        }
+
+        // also fixes up a change missed while starting to listen
+        stateChanged(listened, peer.getState(PeerState.class) == PeerState.OKAY);
+      }
+
+      for (Iterator<Map.Entry<String, ListenedPeer>> it = peers.entrySet().iterator(); it.hasNext();) {
+        Map.Entry<String, ListenedPeer> entry = it.next();
+        if (!uris.contains(entry.getKey())) {
+          entry.getValue().stopListening();
+          it.remove();
+        }
+      }
+    }
+    catch (Exception e) {
+      logger.error("Failure scanning peer table.", e);
+    }
+
+    nextScan = now + RESCAN_INTERVAL;
+  }
+
+  private void stateChanged(ListenedPeer listened, boolean isConnected) {
+    boolean changed;
+    if (isConnected) {
+      if (closed) {
+        // late notification, the peer is no longer listened
+        return;
+      }
+      changed = connected.put(listened.uri, listened.identity) == null;
+    }
+    else {
+      changed = connected.remove(listened.uri) != null;
+    }
+
+    if (changed) {
+      publish();
+    }
+  }
+
+  private void publish() {
+    synchronized (publishLock) {
+      DiameterIdentity[] snapshot = connected.values().toArray(NO_PEERS);
+      connectedPeers = snapshot.length == 0 ? NO_PEERS : snapshot;
+    }
+  }
+
+  private final class ListenedPeer implements PeerStateListener {
+
+    private final Peer peer;
+    private final String uri;
+    private final DiameterIdentity identity;
+
+    private ListenedPeer(Peer peer, String uri) {
+      this.peer = peer;
+      this.uri = uri;
+      this.identity = new DiameterIdentity(uri);
+    }
+
+    private void stopListening() {
+      peer.removePeerStateListener(this);
+      PeerSnapshot.this.stateChanged(this, false);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jdiameter.api.PeerStateListener#stateChanged(java.lang.Enum, java.lang.Enum)
+     */
+    @SuppressWarnings("rawtypes")
+    public void stateChanged(Enum oldState, Enum newState) {
+      PeerSnapshot.this.stateChanged(this, newState == PeerState.OKAY);
+    }
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter spread over a number of cells, each on a cache line of its own, so
+ * that threads incrementing it concurrently do not contend on a single value.
+ * The cell is picked by thread id. Reading sums all cells, so it is meant for
+ * counters that are updated much more often than read, such as metrics.
+ */
+public final class StripedCounter {
+
+  // longs per cell, so that each cell takes a 64 byte cache line
+  private static final int PADDING = 8;
+
+  private static final int STRIPES;
+
+  static {
+    int stripes = 1;
+    int processors = Runtime.getRuntime().availableProcessors();
+    while (stripes < processors && stripes < 64) {
+      stripes <<= 1;
+    }
+    STRIPES = stripes;
+  }
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  private static int cell() {
+    long id = Thread.currentThread().getId();
+    int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+    return ((h >>> 16) & (STRIPES - 1)) * PADDING;
+  }
+
+  public void increment() {
+    cells.getAndIncrement(cell());
+  }
+
+  public void add(long value) {
+    cells.getAndAdd(cell(), value);
+  }
+
+  /**
+   * @return the sum of all cells, not an atomic snapshot if updated concurrently
+   */
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * PADDING);
+    }
+
+    return sum;
+  }
+
+  public void reset() {
+    for (int i = 0; i < STRIPES; i++) {
+      cells.set(i * PADDING, 0);
+    }
+  }
+
+}
@@ -0,0 +1,315 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.slee.facilities.Tracer;
+import javax.slee.resource.ResourceAdaptorContext;
+
+import net.java.slee.resource.diameter.base.DiameterActivity;
+
+import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
+
+/**
+ * Local activity management which schedules the activity remove timers on a
+ * hashed timing wheel, instead of one {@link java.util.TimerTask} per activity
+ * on the SLEE timer. Scheduling and cancelling a timer are O(1), and expired
+ * timers are processed in batches, one wheel slot per tick, by a dedicated thread.
+ */
+public class TimingWheelDiameterActivityManagement implements DiameterActivityManagement {
+
+  private static final long DEFAULT_TICK_DURATION = 100;
+  private static final int DEFAULT_WHEEL_SIZE = 512;
+
+  private final Tracer tracer;
+
+  private final ConcurrentHashMap<DiameterActivityHandle, DiameterActivity> activities = new ConcurrentHashMap<DiameterActivityHandle, DiameterActivity>();
+  // handles of stored activities, by Session-Id
+  private final ConcurrentHashMap<String, DiameterActivityHandle> handles = new ConcurrentHashMap<String, DiameterActivityHandle>();
+  private final ConcurrentHashMap<DiameterActivityHandle, RemoveTimeout> removeMap = new ConcurrentHashMap<DiameterActivityHandle, RemoveTimeout>();
+
+  private final long delay;
+  private final long tickDuration;
+
+  // timeouts scheduled since the last tick, moved to the wheel by the worker
+  private final ConcurrentLinkedQueue<RemoveTimeout> pendingTimeouts = new ConcurrentLinkedQueue<RemoveTimeout>();
+
+  // only accessed by the worker thread
+  private final Bucket[] wheel;
+  private final int mask;
+
+  private final long startTime;
+  private final Thread workerThread;
+  private volatile boolean running = true;
+
+  public TimingWheelDiameterActivityManagement(ResourceAdaptorContext raCtx, long delay) {
+    this(raCtx, delay, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+  }
+
+  /**
+   * @param raCtx the RA context
+   * @param delay the delay, in milliseconds, of the activity remove timer
+   * @param tickDuration the duration, in milliseconds, of a wheel tick
+   * @param wheelSize the number of slots in the wheel, rounded up to a power of 2
+   */
+  public TimingWheelDiameterActivityManagement(ResourceAdaptorContext raCtx, long delay, long tickDuration, int wheelSize) {
+    super();
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("Tick duration must be greater than 0: " + tickDuration);
+    }
+    if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+      throw new IllegalArgumentException("Wheel size must be between 1 and 2^30: " + wheelSize);
+    }
+
+    this.tracer = raCtx.getTracer(TimingWheelDiameterActivityManagement.class.getSimpleName());
+    this.delay = delay;
+    this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+
+    int size = 1;
+    while (size < wheelSize) {
+      size <<= 1;
+    }
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new Bucket();
+    }
+    this.mask = size - 1;
+
+    this.startTime = System.nanoTime();
+    this.workerThread = new Thread(new Worker(), "DiameterActivityRemoveTimer-" + raCtx.getEntityName());
+    this.workerThread.setDaemon(true);
+    this.workerThread.start();
+  }
+
+  public DiameterActivity get(DiameterActivityHandle handle) {
+    return activities.get(handle);
+  }
+
+  public void put(DiameterActivityHandle handle, DiameterActivity activity) {
+    DiameterActivity existingActivity = this.activities.putIfAbsent(handle, activity);
+    if(existingActivity != null) {
+      throw new IllegalArgumentException("There is already activity for '" + handle + "': " + existingActivity);
+    }
+    this.handles.put(handle.getId(), handle);
+  }
+
+  public DiameterActivity remove(DiameterActivityHandle handle) {
+    DiameterActivity activity = this.activities.remove(handle);
+    if(activity != null) {
+      this.handles.remove(handle.getId());
+    }
+    return activity;
+  }
+
+  public DiameterActivityHandle getActivityHandle(String sessionId) {
+    DiameterActivityHandle handle = this.handles.get(sessionId);
+    return handle != null ? handle : new DiameterActivityHandle(sessionId);
+  }
+
+  public boolean containsKey(DiameterActivityHandle activityHandle) {
+    return this.activities.containsKey(activityHandle);
+  }
+
+  public void update(DiameterActivityHandle handle, DiameterActivity activity) {
+    //here we don't do a thing
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.mobicents.slee.resource.diameter.DiameterActivityManagement#
+   * startActivityRemoveTimer
+   * (org.mobicents.slee.resource.diameter.base.DiameterActivityHandle)
+   */
+  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
+    if(this.activities.containsKey(handle)) {
+      RemoveTimeout timeout = new RemoveTimeout(handle, System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delay));
+      RemoveTimeout previous = this.removeMap.put(handle, timeout);
+      if(previous != null) {
+        previous.cancelled = true;
+      }
+      this.pendingTimeouts.add(timeout);
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.mobicents.slee.resource.diameter.DiameterActivityManagement#
+   * stopActivityRemoveTimer
+   * (org.mobicents.slee.resource.diameter.base.DiameterActivityHandle)
+   */
+  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
+    RemoveTimeout timeout = this.removeMap.remove(handle);
+    if(timeout != null) {
+      // it stays in the wheel until its slot is next visited
+      timeout.cancelled = true;
+    }
+  }
+
+  /**
+   * Stops the worker thread. Pending activity remove timers will not expire.
+   */
+  public void stop() {
+    running = false;
+    workerThread.interrupt();
+  }
+
+  private void expire(RemoveTimeout timeout) {
+    // only if not cancelled or rescheduled meanwhile
+    if(!removeMap.remove(timeout.handle, timeout)) {
+      return;
+    }
+
+    try {
+      DiameterActivityImpl da = (DiameterActivityImpl) get(timeout.handle);
+      if (da != null) {
+        da.endIfTerminateAfterProcessing();
+      }
+    }
+    catch(Exception e) {
+      tracer.warning("Failed to end activity for '" + timeout.handle + "' on remove timer expiry.", e);
+    }
+  }
+
+  private static final class RemoveTimeout {
+
+    private final DiameterActivityHandle handle;
+    // relative to startTime, in nanoseconds
+    private final long deadline;
+
+    private volatile boolean cancelled;
+
+    // managed by the worker thread
+    private long remainingRounds;
+    private RemoveTimeout next;
+    private RemoveTimeout prev;
+
+    private RemoveTimeout(DiameterActivityHandle handle, long deadline) {
+      this.handle = handle;
+      this.deadline = deadline;
+    }
+  }
+
+  private static final class Bucket {
+
+    private RemoveTimeout head;
+    private RemoveTimeout tail;
+
+    private void add(RemoveTimeout timeout) {
+      if (head == null) {
+        head = tail = timeout;
+      }
+      else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    private RemoveTimeout unlink(RemoveTimeout timeout) {
+      RemoveTimeout next = timeout.next;
+      if (timeout.prev != null) {
+        timeout.prev.next = next;
+      }
+      if (next != null) {
+        next.prev = timeout.prev;
+      }
+      if (timeout == head) {
+        head = next;
+      }
+      if (timeout == tail) {
+        tail = timeout.prev;
+      }
+      timeout.prev = timeout.next = null;
+
+      return next;
+    }
+  }
+
+  private final class Worker implements Runnable {
+
+    private long tick;
+
+    public void run() {
+      while (running) {
+        long deadline = tickDuration * (tick + 1);
+        long sleepTime = deadline - (System.nanoTime() - startTime);
+        if (sleepTime > 0) {
+          try {
+            TimeUnit.NANOSECONDS.sleep(sleepTime);
+          }
+          catch (InterruptedException e) {
+            if (!running) {
+              break;
+            }
+            continue;
+          }
+        }
+
+        transferPendingTimeouts();
+        expireTimeouts(wheel[(int) (tick & mask)]);
+        tick++;
+      }
+    }
+
+    private void transferPendingTimeouts() {
+      RemoveTimeout timeout;
+      while ((timeout = pendingTimeouts.poll()) != null) {
+        if (timeout.cancelled) {
+          continue;
+        }
+
+        long calculated = timeout.deadline / tickDuration;
+        timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+        // do not schedule into the past
+        long ticks = Math.max(calculated, tick);
+        wheel[(int) (ticks & mask)].add(timeout);
+      }
+    }
+
+    private void expireTimeouts(Bucket bucket) {
+      RemoveTimeout timeout = bucket.head;
+      while (timeout != null) {
+        if (timeout.cancelled) {
+          timeout = bucket.unlink(timeout);
+        }
+        else if (timeout.remainingRounds <= 0) {
+          RemoveTimeout next = bucket.unlink(timeout);
+          expire(timeout);
+          timeout = next;
+        }
+        else {
+          timeout.remainingRounds--;
+          timeout = timeout.next;
+        }
+      }
+    }
+  }
+
+}
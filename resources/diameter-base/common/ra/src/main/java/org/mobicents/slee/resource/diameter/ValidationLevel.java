@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+/**
+ * How much of a message is checked against the dictionary by
+ * {@link ValidatorImpl}.
+ */
+public enum ValidationLevel {
+
+  /**
+   * Messages are not validated.
+   */
+  OFF,
+
+  /**
+   * Only the AVPs with a fixed position after the header, such as Session-Id,
+   * are checked.
+   */
+  HEADER,
+
+  /**
+   * The AVPs of the message are checked, but not the content of its Grouped
+   * AVPs.
+   */
+  TOP_LEVEL,
+
+  /**
+   * The AVPs of the message and, recursively, those of its Grouped AVPs are
+   * checked.
+   */
+  FULL;
+
+  /**
+   * @param value the level name, case insensitive
+   * @return the level with the given name
+   * @throws IllegalArgumentException if there is no level with that name
+   */
+  public static ValidationLevel parse(String value) {
+    return valueOf(value.trim().toUpperCase());
+  }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+
+import org.jdiameter.api.Avp;
+import org.jdiameter.api.AvpDataException;
+import org.jdiameter.api.AvpSet;
+import org.jdiameter.api.validation.AvpRepresentation;
+import org.jdiameter.api.validation.Dictionary;
+import org.jdiameter.api.validation.MessageRepresentation;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpMetadataIndex;
+
+/**
+ * The dictionary rules of a message, or of a Grouped AVP, compiled into a table
+ * sorted by AVP code and Vendor-Id, with the minimum and maximum count and the
+ * fixed position, if any, of each AVP. The AVPs are then validated in a single
+ * pass, instead of walking the dictionary representation for every message.
+ *
+ * AVPs not present in the table are allowed, as they are by the dictionary.
+ * Instances are immutable once compiled and can be shared between threads.
+ */
+final class ValidationRules {
+
+  private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  private static final Comparator<AvpRepresentation> BY_KEY = new Comparator<AvpRepresentation>() {
+    public int compare(AvpRepresentation a, AvpRepresentation b) {
+      long ka = AvpMetadataIndex.key(a.getCode(), a.getVendorId());
+      long kb = AvpMetadataIndex.key(b.getCode(), b.getVendorId());
+      return ka < kb ? -1 : (ka == kb ? 0 : 1);
+    }
+  };
+
+  private final long[] keys;
+  private final int[] minCounts;
+  private final int[] maxCounts;
+  private final String[] multiplicities;
+
+  // representations to check the count with, for the multiplicities which could not be compiled
+  private final AvpRepresentation[] fallbacks;
+
+  // rules of the Grouped AVPs, null for the other AVPs
+  private final ValidationRules[] children;
+
+  // indexes of the rules of the AVPs with a fixed position, and those positions
+  private final int[] fixedRules;
+  private final int[] fixedPositions;
+
+  private ValidationRules(AvpRepresentation[] avps) {
+    int size = avps.length;
+    this.keys = new long[size];
+    this.minCounts = new int[size];
+    this.maxCounts = new int[size];
+    this.multiplicities = new String[size];
+    this.fallbacks = new AvpRepresentation[size];
+    this.children = new ValidationRules[size];
+
+    int[] fixed = new int[size];
+    int[] positions = new int[size];
+    int fixedCount = 0;
+
+    for (int i = 0; i < size; i++) {
+      AvpRepresentation avp = avps[i];
+      keys[i] = AvpMetadataIndex.key(avp.getCode(), avp.getVendorId());
+      multiplicities[i] = avp.getMultiplicityIndicator();
+
+      if (!parseMultiplicity(multiplicities[i], i)) {
+        fallbacks[i] = avp;
+      }
+
+      int position = avp.getPositionIndex();
+      if (position >= 0) {
+        fixed[fixedCount] = i;
+        positions[fixedCount++] = position;
+      }
+    }
+
+    this.fixedRules = Arrays.copyOf(fixed, fixedCount);
+    this.fixedPositions = Arrays.copyOf(positions, fixedCount);
+  }
+
+  /**
+   * Compiles the rules of a message, along with those of the Grouped AVPs it
+   * may contain.
+   *
+   * @param message the message representation
+   * @param dictionary the dictionary to look up the Grouped AVPs in
+   * @return the compiled rules
+   */
+  static ValidationRules compile(MessageRepresentation message, Dictionary dictionary) {
+    return compile(message.getMessageAvps().values(), dictionary, new HashMap<Long, ValidationRules>(), null);
+  }
+
+  /**
+   * Compiles the rules of the children of a Grouped AVP, along with those of
+   * the Grouped AVPs it may contain.
+   *
+   * @param grouped the Grouped AVP representation
+   * @param dictionary the dictionary to look up the Grouped AVPs in
+   * @return the compiled rules
+   */
+  static ValidationRules compile(AvpRepresentation grouped, Dictionary dictionary) {
+    Map<Long, ValidationRules> compiled = new HashMap<Long, ValidationRules>();
+    return compile(grouped.getChildren(), dictionary, compiled, AvpMetadataIndex.key(grouped.getCode(), grouped.getVendorId()));
+  }
+
+  private static ValidationRules compile(Collection<AvpRepresentation> avps, Dictionary dictionary, Map<Long, ValidationRules> compiled, Long key) {
+    // a Grouped AVP defined without children allows any
+    AvpRepresentation[] sorted = avps != null ? avps.toArray(new AvpRepresentation[avps.size()]) : new AvpRepresentation[0];
+    Arrays.sort(sorted, BY_KEY);
+
+    ValidationRules rules = new ValidationRules(sorted);
+    if (key != null) {
+      // before the children, as a Grouped AVP may (indirectly) contain itself
+      compiled.put(key, rules);
+    }
+
+    for (int i = 0; i < sorted.length; i++) {
+      AvpRepresentation definition = dictionary.getAvp(sorted[i].getCode(), sorted[i].getVendorId());
+      if (definition != null && definition.isGrouped()) {
+        ValidationRules grouped = compiled.get(rules.keys[i]);
+        rules.children[i] = grouped != null ? grouped : compile(definition.getChildren(), dictionary, compiled, rules.keys[i]);
+      }
+    }
+
+    return rules;
+  }
+
+  // parses "n", "n+" and "n-m", as used by the dictionary, into the minimum and maximum counts
+  private boolean parseMultiplicity(String multiplicity, int i) {
+    if (multiplicity == null) {
+      return false;
+    }
+
+    try {
+      int dash = multiplicity.indexOf('-');
+      if (multiplicity.endsWith("+")) {
+        minCounts[i] = Integer.parseInt(multiplicity.substring(0, multiplicity.length() - 1));
+        maxCounts[i] = UNBOUNDED;
+      }
+      else if (dash > 0) {
+        minCounts[i] = Integer.parseInt(multiplicity.substring(0, dash));
+        maxCounts[i] = Integer.parseInt(multiplicity.substring(dash + 1));
+      }
+      else {
+        minCounts[i] = maxCounts[i] = Integer.parseInt(multiplicity);
+      }
+
+      return minCounts[i] >= 0 && minCounts[i] <= maxCounts[i];
+    }
+    catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Validates the AVPs of a message or Grouped AVP.
+   *
+   * @param set the AVPs to validate
+   * @param level how much to validate, other than {@link ValidationLevel#OFF}
+   * @throws AvpNotAllowedException if an AVP is not where it should be, or its count is not valid
+   */
+  void validate(AvpSet set, ValidationLevel level) throws AvpNotAllowedException {
+    for (int f = 0; f < fixedRules.length; f++) {
+      validatePosition(set, fixedRules[f], fixedPositions[f]);
+    }
+
+    if (level == ValidationLevel.HEADER) {
+      return;
+    }
+
+    int[] counts = new int[keys.length];
+    for (Avp avp : set) {
+      int i = Arrays.binarySearch(keys, AvpMetadataIndex.key(avp.getCode(), avp.getVendorId()));
+      if (i < 0) {
+        continue;
+      }
+
+      counts[i]++;
+      if (level == ValidationLevel.FULL && children[i] != null) {
+        AvpSet grouped;
+        try {
+          grouped = avp.getGrouped();
+        }
+        catch (AvpDataException e) {
+          throw new AvpNotAllowedException("Failed to decode Grouped AVP.", e, avp.getCode(), avp.getVendorId());
+        }
+        children[i].validate(grouped, level);
+      }
+    }
+
+    for (int i = 0; i < keys.length; i++) {
+      boolean valid = fallbacks[i] != null ? fallbacks[i].isCountValidForMultiplicity(counts[i]) : counts[i] >= minCounts[i] && counts[i] <= maxCounts[i];
+      if (!valid) {
+        throw new AvpNotAllowedException("AVP count of " + counts[i] + " does not match multiplicity " + multiplicities[i] + ".", (int) keys[i], keys[i] >>> 32);
+      }
+    }
+  }
+
+  private void validatePosition(AvpSet set, int i, int position) throws AvpNotAllowedException {
+    Avp avp = position < set.size() ? set.getAvpByIndex(position) : null;
+    if (avp != null && AvpMetadataIndex.key(avp.getCode(), avp.getVendorId()) == keys[i]) {
+      return;
+    }
+
+    int code = (int) keys[i];
+    long vendorId = keys[i] >>> 32;
+    if (minCounts[i] > 0 || set.getAvp(code, vendorId) != null) {
+      throw new AvpNotAllowedException("AVP must be at position " + position + ".", code, vendorId);
+    }
+  }
+
+}
@@ -22,6 +22,12 @@
 
 package org.mobicents.slee.resource.diameter;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.slee.resource.ConfigProperties;
+import javax.slee.resource.ConfigProperties.Property;
+
 import net.java.slee.resource.diameter.Validator;
 import net.java.slee.resource.diameter.base.events.DiameterCommand;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
@@ -31,22 +37,85 @@ import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import org.jdiameter.api.validation.AvpRepresentation;
 import org.jdiameter.api.validation.Dictionary;
 import org.jdiameter.api.validation.MessageRepresentation;
-import org.jdiameter.api.validation.ValidatorLevel;
 import org.jdiameter.client.impl.DictionarySingleton;
 import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpMetadataIndex;
 import org.mobicents.slee.resource.diameter.base.events.avp.GroupedAvpImpl;
 
 /**
+ * Validates messages and Grouped AVPs against the dictionary, through rules
+ * compiled once per message (command code, Application-Id and request flag) or
+ * Grouped AVP, and shared by all instances. Rules are compiled again if the
+ * dictionary is reconfigured.
+ * 
+ * The validation level and the rate at which messages are sampled for
+ * validation are configured per RA, with the {@link #VALIDATION_LEVEL} and
+ * {@link #VALIDATION_SAMPLE_RATE} properties.
  * 
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a>
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  */
 public class ValidatorImpl implements Validator {
 
+  public static final String VALIDATION_LEVEL = "validationLevel";
+  public static final String VALIDATION_SAMPLE_RATE = "validationSampleRate";
+
+  private static final ConcurrentHashMap<Long, CompiledRules> messageRules = new ConcurrentHashMap<Long, CompiledRules>();
+  private static final ConcurrentHashMap<Long, CompiledRules> groupedAvpRules = new ConcurrentHashMap<Long, CompiledRules>();
 
   //NOTE: this class possibly should be Singleton, however some impl may use something more to perform validation
   //hence, its not static, each RA provides instance through RA Sbb Interface.
 
+  private final ValidationLevel level;
+  private final int sampleRate;
+  private final AtomicLong sampled = new AtomicLong();
+
+  /**
+   * Creates a validator which fully validates every message.
+   */
+  public ValidatorImpl() {
+    this(ValidationLevel.FULL, 1);
+  }
+
+  /**
+   * @param level how much of each message to validate
+   * @param sampleRate validate one message out of this many, 1 to validate all
+   */
+  public ValidatorImpl(ValidationLevel level, int sampleRate) {
+    if (sampleRate < 1) {
+      throw new IllegalArgumentException("Sample rate must be at least 1, was " + sampleRate);
+    }
+
+    this.level = level;
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Creates the validator of an RA from its configuration. Without the
+   * properties, or their values, every message is fully validated.
+   * 
+   * @param properties the RA configuration properties
+   * @return the validator
+   * @throws IllegalArgumentException if the level is unknown or the sample rate below 1
+   */
+  public static ValidatorImpl create(ConfigProperties properties) {
+    Property levelProp = properties.getProperty(VALIDATION_LEVEL);
+    Property rateProp = properties.getProperty(VALIDATION_SAMPLE_RATE);
+
+    ValidationLevel level = levelProp != null && levelProp.getValue() != null ? ValidationLevel.parse((String) levelProp.getValue()) : ValidationLevel.FULL;
+    int rate = rateProp != null && rateProp.getValue() != null ? (Integer) rateProp.getValue() : 1;
+
+    return new ValidatorImpl(level, rate);
+  }
+
+  public ValidationLevel getLevel() {
+    return level;
+  }
+
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -56,18 +125,17 @@ public class ValidatorImpl implements Validator {
    */
   @Override
   public void validate(DiameterMessage msg) throws AvpNotAllowedException {
+    if (level == ValidationLevel.OFF || !isSampled()) {
+      return;
+    }
+
     Dictionary dictionary = DictionarySingleton.getDictionary();
     if (dictionary.isConfigured() && dictionary.isEnabled()) {
       DiameterCommand com = msg.getCommand();
       MessageRepresentation rep = dictionary.getMessage(com.getCode(), com.getApplicationId(), com.isRequest());
       if (rep != null) {
         DiameterMessageImpl impl = (DiameterMessageImpl) msg;
-        try {
-          rep.validate(impl.getGenericData(), ValidatorLevel.ALL);
-        }
-        catch (org.jdiameter.api.validation.AvpNotAllowedException e) {
-          throw new AvpNotAllowedException("Failed to validate message.", e, e.getAvpCode(), e.getVendorId());
-        }
+        getMessageRules(com, rep, dictionary).validate(impl.getGenericData().getAvps(), level);
       }
     }
   }
@@ -80,6 +148,11 @@ public class ValidatorImpl implements Validator {
    */
   @Override
   public void validate(DiameterAvp avp) throws AvpNotAllowedException {
+    // there is no header to check in an AVP
+    if (level == ValidationLevel.OFF || level == ValidationLevel.HEADER) {
+      return;
+    }
+
     Dictionary dictionary = DictionarySingleton.getDictionary();
     if (dictionary.isConfigured() && dictionary.isEnabled()) {
       AvpRepresentation rep = dictionary.getAvp(avp.getCode(), avp.getVendorId());
@@ -87,7 +160,7 @@ public class ValidatorImpl implements Validator {
       if (rep != null && rep.isGrouped()) {
         try {
           GroupedAvpImpl impl = (GroupedAvpImpl) avp;
-          rep.validate(impl.getGenericData());
+          getGroupedAvpRules(rep, dictionary).validate(impl.getGenericData(), level);
         }
         catch (ClassCastException cce) {
           throw new AvpNotAllowedException("Failed to validate avp, its not grouped!", cce, avp.getCode(), avp.getVendorId());
@@ -96,4 +169,48 @@ public class ValidatorImpl implements Validator {
     }
   }
 
+  private boolean isSampled() {
+    return sampleRate == 1 || sampled.getAndIncrement() % sampleRate == 0;
+  }
+
+  private static ValidationRules getMessageRules(DiameterCommand com, MessageRepresentation rep, Dictionary dictionary) {
+    long key = (com.getApplicationId() << 32) | ((long) com.getCode() << 1) | (com.isRequest() ? 1 : 0);
+
+    CompiledRules compiled = messageRules.get(key);
+    if (compiled == null || compiled.representation != rep) {
+      // first use, or the dictionary has been reconfigured since
+      compiled = new CompiledRules(rep, ValidationRules.compile(rep, dictionary));
+      messageRules.put(key, compiled);
+    }
+
+    return compiled.rules;
+  }
+
+  private static ValidationRules getGroupedAvpRules(AvpRepresentation rep, Dictionary dictionary) {
+    long key = AvpMetadataIndex.key(rep.getCode(), rep.getVendorId());
+
+    CompiledRules compiled = groupedAvpRules.get(key);
+    if (compiled == null || compiled.representation != rep) {
+      compiled = new CompiledRules(rep, ValidationRules.compile(rep, dictionary));
+      groupedAvpRules.put(key, compiled);
+    }
+
+    return compiled.rules;
+  }
+
+  /**
+   * Rules compiled from a dictionary representation, which is kept to tell if
+   * they are still current.
+   */
+  private static final class CompiledRules {
+
+    private final Object representation;
+    private final ValidationRules rules;
+
+    private CompiledRules(Object representation, ValidationRules rules) {
+      this.representation = representation;
+      this.rules = rules;
+    }
+  }
+
 }
@@ -84,7 +84,7 @@ public class AccountingClientSessionActivityImpl extends AccountingSessionActivi
       if(logger.isDebugEnabled()) {
         logger.debug("Failed to send message, due to: ", e);
       }
-      throw new IOException("Failed to send message, due to: " + e);
+      throw new IOException("Failed to send message, due to: " + e, e);
     }
   }
 
@@ -60,6 +60,9 @@ public class AccountingServerSessionActivityImpl extends AccountingSessionActivi
 
   private static final long serialVersionUID = 1L;
 
+  // AVPs copied from the request into the answer
+  private static final AnswerTemplate answerTemplate = new AnswerTemplate(Avp.ACC_RECORD_NUMBER, Avp.ACC_RECORD_TYPE, Avp.ACCT_APPLICATION_ID, Avp.VENDOR_SPECIFIC_APPLICATION_ID);
+
   protected transient ServerAccSession serverSession = null;
 
   //FIXME: These are default values, should be overriden by stack.
@@ -91,13 +94,6 @@ public class AccountingServerSessionActivityImpl extends AccountingSessionActivi
       copyAvps.add(avpFactory.createAvp(Avp.ORIGIN_HOST, this.originHost.getBytes()));
       copyAvps.add(avpFactory.createAvp(Avp.ORIGIN_REALM, this.originRealm.getBytes()));
 
-      for(DiameterAvp avp : request.getAvps()) {
-        if(avp.getCode() == Avp.ACC_RECORD_NUMBER || avp.getCode() == Avp.ACC_RECORD_TYPE || 
-            avp.getCode() == Avp.ACCT_APPLICATION_ID || avp.getCode() == Avp.VENDOR_SPECIFIC_APPLICATION_ID) {
-          copyAvps.add((DiameterAvp) avp.clone());
-        }
-      }
-
       DiameterMessageImpl answer = (DiameterMessageImpl) messageFactory.createMessage(implRequest.getHeader(), copyAvps.toArray(new DiameterAvp[copyAvps.size()]));
 
       // This is an answer.
@@ -105,6 +101,9 @@ public class AccountingServerSessionActivityImpl extends AccountingSessionActivi
       rawAnswer.setRequest(false);
       rawAnswer.setReTransmitted(false); // just in case. answers never have T flag set
 
+      // Copy the interesting AVPs from the request
+      answerTemplate.copy(implRequest.getGenericData(), rawAnswer);
+
       return new AccountingAnswerImpl(rawAnswer);
     }
     catch (Exception e) {
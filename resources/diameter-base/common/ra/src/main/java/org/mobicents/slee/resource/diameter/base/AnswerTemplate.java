@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base;
+
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+
+import org.apache.log4j.Logger;
+import org.jdiameter.api.Avp;
+import org.jdiameter.api.AvpDataException;
+import org.jdiameter.api.AvpSet;
+import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+
+/**
+ * Set of AVPs, by code and Vendor-Id, to be copied from a request into its
+ * answer.
+ *
+ * AVPs are copied as raw bytes straight from the request {@link AvpSet}, so
+ * building an answer does not decode the request AVPs (and their grouped
+ * children) into DiameterAvp objects. Templates are immutable and meant to be
+ * kept in static fields of the message factories.
+ */
+public final class AnswerTemplate {
+
+  private static final Logger logger = Logger.getLogger(AnswerTemplate.class);
+
+  private final int[] codes;
+  private final long[] vendorIds;
+
+  /**
+   * @param codes the codes of the AVPs to copy, all with Vendor-Id 0
+   */
+  public AnswerTemplate(int... codes) {
+    this(codes, new long[codes.length]);
+  }
+
+  /**
+   * @param codes the codes of the AVPs to copy
+   * @param vendorIds the Vendor-Ids of the AVPs to copy, at the same positions as their codes
+   */
+  public AnswerTemplate(int[] codes, long[] vendorIds) {
+    if (codes.length != vendorIds.length) {
+      throw new IllegalArgumentException("AVP codes and Vendor-Ids do not match: " + codes.length + " codes, " + vendorIds.length + " Vendor-Ids");
+    }
+
+    this.codes = codes.clone();
+    this.vendorIds = vendorIds.clone();
+  }
+
+  /**
+   * @param code the AVP code
+   * @param vendorId the AVP Vendor-Id
+   * @return true if the AVP is to be copied
+   */
+  public boolean contains(int code, long vendorId) {
+    // templates are a handful of AVPs, a scan beats hashing
+    for (int i = 0; i < codes.length; i++) {
+      if (codes[i] == code && vendorIds[i] == vendorId) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Copies the AVPs of this template present in the request into the answer,
+   * in the order they appear in the request. A Session-Id is placed first.
+   *
+   * @param request the request
+   * @param answer the answer
+   */
+  public void copy(DiameterMessage request, DiameterMessage answer) {
+    copy(((DiameterMessageImpl) request).getGenericData(), ((DiameterMessageImpl) answer).getGenericData());
+  }
+
+  /**
+   * Copies the AVPs of this template present in the request into the answer,
+   * in the order they appear in the request. A Session-Id is placed first.
+   *
+   * @param request the request
+   * @param answer the answer
+   */
+  public void copy(Message request, Message answer) {
+    AvpSet answerAvps = answer.getAvps();
+
+    for (Avp avp : request.getAvps()) {
+      int code = avp.getCode();
+      long vendorId = avp.getVendorId();
+      if (!contains(code, vendorId)) {
+        continue;
+      }
+
+      try {
+        if (code == Avp.SESSION_ID && vendorId == 0) {
+          answerAvps.removeAvp(Avp.SESSION_ID);
+          answerAvps.insertAvp(0, code, avp.getRaw(), vendorId, avp.isMandatory(), avp.isEncrypted());
+        }
+        else {
+          answerAvps.addAvp(code, avp.getRaw(), vendorId, avp.isMandatory(), avp.isEncrypted());
+        }
+      }
+      catch (AvpDataException e) {
+        logger.error("Failed to add AVP to answer. Code[" + code + "]", e);
+      }
+    }
+  }
+
+}
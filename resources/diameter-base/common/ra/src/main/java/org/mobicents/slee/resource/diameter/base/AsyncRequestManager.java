@@ -0,0 +1,362 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.slee.resource.ConfigProperties;
+import javax.slee.resource.ConfigProperties.Property;
+
+import net.java.slee.resource.diameter.base.DiameterRequestHandle;
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+
+import org.apache.log4j.Logger;
+import org.jdiameter.api.Answer;
+import org.jdiameter.api.EventListener;
+import org.jdiameter.api.IllegalDiameterStateException;
+import org.jdiameter.api.InternalException;
+import org.jdiameter.api.Message;
+import org.jdiameter.api.OverloadException;
+import org.jdiameter.api.Request;
+import org.jdiameter.api.RouteException;
+import org.jdiameter.api.Session;
+import org.mobicents.slee.resource.diameter.DiameterMetrics;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+
+/**
+ * Sends the requests of the activities of an RA entity with a deadline for
+ * their answer, and caps the number of requests waiting for answer, so that a
+ * slow peer can neither park SLEE event router threads for good nor pile up
+ * pending requests.
+ *
+ * The deadline and cap are set by the RA configuration properties
+ * {@link #REQUEST_TIMEOUT} and {@link #MAX_IN_FLIGHT_REQUESTS}.
+ *
+ * The answers and timeouts of requests sent without blocking are passed, on
+ * the stack thread, to the event listener of the activity, which fires them to
+ * the SLEE as for any other request sent on the activity. No SBB code runs on
+ * the stack threads.
+ */
+public class AsyncRequestManager {
+
+  private static final Logger logger = Logger.getLogger(AsyncRequestManager.class);
+
+  /**
+   * Name of the RA config property with the default time, in milliseconds, to wait for an answer.
+   */
+  public static final String REQUEST_TIMEOUT = "requestTimeout";
+
+  /**
+   * Name of the RA config property with the maximum number of requests waiting for answer, 0 for no limit.
+   */
+  public static final String MAX_IN_FLIGHT_REQUESTS = "maxInFlightRequests";
+
+  public static final long DEFAULT_REQUEST_TIMEOUT = 60000;
+
+  /**
+   * Used by activities not bound to an RA entity yet, such as replicated ones. Has no limit.
+   */
+  public static final AsyncRequestManager DEFAULT = new AsyncRequestManager(DEFAULT_REQUEST_TIMEOUT, 0);
+
+  private final long requestTimeout;
+  private final int maxInFlightRequests;
+  private final DiameterMetrics metrics;
+
+  private final AtomicInteger inFlightRequests = new AtomicInteger();
+
+  /**
+   * @param requestTimeout the default time, in milliseconds, to wait for an answer
+   * @param maxInFlightRequests the maximum number of requests waiting for answer, 0 for no limit
+   */
+  public AsyncRequestManager(long requestTimeout, int maxInFlightRequests) {
+    this(requestTimeout, maxInFlightRequests, null);
+  }
+
+  /**
+   * @param requestTimeout the default time, in milliseconds, to wait for an answer
+   * @param maxInFlightRequests the maximum number of requests waiting for answer, 0 for no limit
+   * @param metrics the metrics of the RA entity, to record sent requests, answers and latencies, or null
+   */
+  public AsyncRequestManager(long requestTimeout, int maxInFlightRequests, DiameterMetrics metrics) {
+    if (requestTimeout <= 0) {
+      throw new IllegalArgumentException("Request timeout must be greater than 0: " + requestTimeout);
+    }
+    if (maxInFlightRequests < 0) {
+      throw new IllegalArgumentException("Maximum in-flight requests must not be negative: " + maxInFlightRequests);
+    }
+
+    this.requestTimeout = requestTimeout;
+    this.maxInFlightRequests = maxInFlightRequests;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Creates the manager configured by the given RA config properties. Missing
+   * properties take the default values.
+   *
+   * @param properties the RA config properties
+   * @param metrics the metrics of the RA entity, or null
+   * @return the manager
+   */
+  public static AsyncRequestManager create(ConfigProperties properties, DiameterMetrics metrics) {
+    Property timeoutProp = properties.getProperty(REQUEST_TIMEOUT);
+    Property maxProp = properties.getProperty(MAX_IN_FLIGHT_REQUESTS);
+
+    long timeout = timeoutProp != null ? (Long) timeoutProp.getValue() : DEFAULT_REQUEST_TIMEOUT;
+    int max = maxProp != null ? (Integer) maxProp.getValue() : 0;
+
+    return new AsyncRequestManager(timeout, max, metrics);
+  }
+
+  public long getRequestTimeout() {
+    return requestTimeout;
+  }
+
+  public int getMaxInFlightRequests() {
+    return maxInFlightRequests;
+  }
+
+  /**
+   * @return the metrics of the RA entity, or null if not recorded
+   */
+  public DiameterMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return the number of requests currently waiting for answer
+   */
+  public int getInFlightRequests() {
+    return inFlightRequests.get();
+  }
+
+  /**
+   * Sends a request on the session of the given activity, without blocking.
+   * The answer, or the expiry of the deadline, is fired on the activity.
+   *
+   * @param activity the activity to send the request on
+   * @param request the request
+   * @param timeout the time, in milliseconds, to wait for the answer, or 0 for the default
+   * @return the handle of the request
+   * @throws OverloadException if the limit of requests waiting for answer is reached
+   */
+  public DiameterRequestHandle send(DiameterActivityImpl activity, DiameterMessageImpl request, long timeout)
+      throws InternalException, IllegalDiameterStateException, RouteException, OverloadException {
+    acquire();
+
+    RequestHandle handle = new RequestHandle(activity, request);
+    boolean sent = false;
+    try {
+      activity.session.send(request.getGenericData(), handle, timeout > 0 ? timeout : requestTimeout, TimeUnit.MILLISECONDS);
+      sent = true;
+      if (metrics != null) {
+        metrics.messageSent(request.getGenericData());
+      }
+    }
+    finally {
+      if (!sent) {
+        handle.complete(RequestHandle.FAILED);
+        handle.release();
+      }
+    }
+
+    return handle;
+  }
+
+  /**
+   * Sends a request on the given session and waits for its answer, up to the default timeout.
+   *
+   * @param session the session to send the request on
+   * @param request the request
+   * @return the answer
+   * @throws TimeoutException if no answer is received within the default timeout
+   * @throws OverloadException if the limit of requests waiting for answer is reached
+   */
+  public Message sendSync(Session session, Message request)
+      throws InternalException, IllegalDiameterStateException, RouteException, OverloadException, InterruptedException, ExecutionException, TimeoutException {
+    acquire();
+
+    try {
+      long sendTime = System.nanoTime();
+      Future<Message> future = session.send(request, requestTimeout, TimeUnit.MILLISECONDS);
+      if (metrics != null) {
+        metrics.messageSent(request);
+      }
+      try {
+        Message answer = future.get(requestTimeout, TimeUnit.MILLISECONDS);
+        if (metrics != null && answer != null) {
+          metrics.requestAnswered(sendTime);
+          metrics.messageReceived(answer);
+        }
+        return answer;
+      }
+      catch (TimeoutException e) {
+        future.cancel(true);
+        if (metrics != null) {
+          metrics.requestTimedOut(request);
+        }
+        throw e;
+      }
+    }
+    finally {
+      inFlightRequests.decrementAndGet();
+    }
+  }
+
+  private void acquire() throws OverloadException {
+    if (maxInFlightRequests == 0) {
+      inFlightRequests.incrementAndGet();
+      return;
+    }
+
+    int current;
+    do {
+      current = inFlightRequests.get();
+      if (current >= maxInFlightRequests) {
+        throw new OverloadException("Too many requests waiting for answer: " + current);
+      }
+    }
+    while (!inFlightRequests.compareAndSet(current, current + 1));
+  }
+
+  private final class RequestHandle implements DiameterRequestHandle, EventListener<Request, Answer> {
+
+    private static final int PENDING = 0;
+    private static final int ANSWERED = 1;
+    private static final int TIMED_OUT = 2;
+    private static final int CANCELLED = 3;
+    private static final int FAILED = 4;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    // set once the stack is done with the request, so its in-flight slot is freed once
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private final DiameterActivityImpl activity;
+    private final DiameterMessage request;
+    // System.nanoTime() when sent
+    private final long sendTime = System.nanoTime();
+
+    private volatile DiameterMessage answer;
+
+    private RequestHandle(DiameterActivityImpl activity, DiameterMessage request) {
+      this.activity = activity;
+      this.request = request;
+    }
+
+    public DiameterMessage getRequest() {
+      return request;
+    }
+
+    public boolean isDone() {
+      return state.get() != PENDING;
+    }
+
+    public boolean isTimedOut() {
+      return state.get() == TIMED_OUT;
+    }
+
+    public boolean isCancelled() {
+      return state.get() == CANCELLED;
+    }
+
+    public DiameterMessage getAnswer() {
+      return answer;
+    }
+
+    public boolean cancel() {
+      // the jDiameter session API has no way to withdraw a sent request, so
+      // it stays pending in the stack, and in the in-flight count, until it
+      // is answered or its deadline expires; only the delivery is dropped
+      return complete(CANCELLED);
+    }
+
+    private boolean complete(int newState) {
+      return state.compareAndSet(PENDING, newState);
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        inFlightRequests.decrementAndGet();
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jdiameter.api.EventListener#receivedSuccessMessage(org.jdiameter.api.Message, org.jdiameter.api.Message)
+     */
+    public void receivedSuccessMessage(Request req, Answer ans) {
+      release();
+      if (state.get() != PENDING) {
+        return;
+      }
+
+      try {
+        // set before completing, so that it is there once the handle is done
+        answer = activity.createAnswer(ans);
+        if (!complete(ANSWERED)) {
+          return;
+        }
+
+        if (metrics != null) {
+          // the answer itself is counted by the RA as it is fired
+          metrics.requestAnswered(sendTime);
+        }
+
+        if (activity.eventListener != null) {
+          activity.eventListener.receivedSuccessMessage(req, ans);
+        }
+      }
+      catch (Exception e) {
+        complete(FAILED);
+        logger.error("Failure delivering answer for session " + activity.getSessionId(), e);
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jdiameter.api.EventListener#timeoutExpired(org.jdiameter.api.Message)
+     */
+    public void timeoutExpired(Request req) {
+      release();
+      if (!complete(TIMED_OUT)) {
+        return;
+      }
+
+      try {
+        // counted by the RA, as the activity event listener
+        if (activity.eventListener != null) {
+          activity.eventListener.timeoutExpired(req);
+        }
+      }
+      catch (Exception e) {
+        logger.error("Failure delivering timeout for session " + activity.getSessionId(), e);
+      }
+    }
+  }
+
+}
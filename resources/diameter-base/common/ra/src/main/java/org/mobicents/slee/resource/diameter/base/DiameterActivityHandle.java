@@ -22,46 +22,137 @@
 
 package org.mobicents.slee.resource.diameter.base;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
 import javax.slee.resource.ActivityHandle;
 
 /**
  * Activity handle wrapper for DiameterSession activity with given unique session ID
  * 
+ * The hash is computed once, when the handle is created. Handles can also be
+ * built from the UTF-8 bytes of the Session-Id (as when unmarshalled), in which
+ * case the String form is only decoded if asked for.
+ * 
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a> 
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a> 
  * @author Erick Svenson
  */
 public class DiameterActivityHandle implements ActivityHandle
 {
-  private String handle;
-  
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // at least one of these is set, the other is filled lazily
+  private volatile String handle;
+  private volatile byte[] bytes;
+
+  // same as handle.hashCode()
+  private final int hash;
+
   public DiameterActivityHandle(String id) {
     this.handle = id;
+    this.hash = id.hashCode();
   }
-  
+
+  private DiameterActivityHandle(byte[] bytes, int hash) {
+    this.bytes = bytes;
+    this.hash = hash;
+  }
+
+  /**
+   * Creates a handle from the UTF-8 encoded Session-Id, as in the Session-Id AVP.
+   * 
+   * @param bytes the encoded Session-Id, not copied
+   * @return the handle
+   */
+  public static DiameterActivityHandle fromBytes(byte[] bytes) {
+    int h = 0;
+    for (byte b : bytes) {
+      if (b < 0) {
+        // not plain ASCII, let String do the decoding and hashing
+        return new DiameterActivityHandle(new String(bytes, UTF_8));
+      }
+      h = 31 * h + b;
+    }
+
+    return new DiameterActivityHandle(bytes, h);
+  }
+
   public boolean equals(Object o)
   {
+    if (o == this) {
+      return true;
+    }
     if (o != null && o.getClass() == this.getClass()) {
-      return ((DiameterActivityHandle)o).handle.equals(this.handle);
+      DiameterActivityHandle other = (DiameterActivityHandle) o;
+      if (other.hash != this.hash) {
+        return false;
+      }
+
+      String id = this.handle;
+      String otherId = other.handle;
+      if (id != null && otherId != null) {
+        return id.equals(otherId);
+      }
+
+      byte[] b = this.bytes;
+      byte[] otherB = other.bytes;
+      if (b != null && otherB != null) {
+        return Arrays.equals(b, otherB);
+      }
+
+      // one of them only has (ASCII) bytes, the other only the String
+      return id != null ? asciiEquals(id, otherB) : asciiEquals(otherId, b);
     }
     else {
       return false;
     }
   }
-  
+
+  private static boolean asciiEquals(String s, byte[] b) {
+    int length = s.length();
+    if (length != b.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (s.charAt(i) != b[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   public String toString() {
-      return "Diameter Session ID[" + handle + "]";
+      return "Diameter Session ID[" + getId() + "]";
   }
   
   public int hashCode() {
-    return handle.hashCode();
+    return hash;
   }
 
   /**
    * @return the id
    */
   public String getId() {
-    return handle;
+    String id = handle;
+    if (id == null) {
+      handle = id = new String(bytes, UTF_8);
+    }
+
+    return id;
+  }
+
+  /**
+   * @return the id, UTF-8 encoded. Must not be modified.
+   */
+  byte[] getBytes() {
+    byte[] b = bytes;
+    if (b == null) {
+      bytes = b = handle.getBytes(UTF_8);
+    }
+
+    return b;
   }
 
 }
@@ -23,13 +23,15 @@
 package org.mobicents.slee.resource.diameter.base;
 
 import java.io.IOException;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import javax.naming.OperationNotSupportedException;
 
 import net.java.slee.resource.diameter.base.DiameterActivity;
 import net.java.slee.resource.diameter.base.DiameterAvpFactory;
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
+import net.java.slee.resource.diameter.base.DiameterRequestHandle;
 import net.java.slee.resource.diameter.base.events.AbortSessionAnswer;
 import net.java.slee.resource.diameter.base.events.AccountingAnswer;
 import net.java.slee.resource.diameter.base.events.CapabilitiesExchangeAnswer;
@@ -47,6 +49,8 @@ import org.jdiameter.api.EventListener;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.Session;
+import org.jdiameter.api.app.AppSession;
+import org.mobicents.slee.resource.diameter.DiameterMetrics;
 import org.mobicents.slee.resource.diameter.base.events.AbortSessionAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.AccountingAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.CapabilitiesExchangeAnswerImpl;
@@ -76,7 +80,14 @@ public class DiameterActivityImpl implements DiameterActivity {
   protected DiameterIdentity destinationHost = null;
   protected DiameterIdentity destinationRealm = null;
 
-  protected boolean terminateAfterProcessing = false;
+  // Activity lifecycle states, transitions are done with CAS so no lock is needed
+  protected static final int STATE_ACTIVE = 0;
+  protected static final int STATE_TERMINATE_AFTER_PROCESSING = 1;
+  protected static final int STATE_ENDED = 2;
+
+  private static final AtomicIntegerFieldUpdater<DiameterActivityImpl> stateUpdater = AtomicIntegerFieldUpdater.newUpdater(DiameterActivityImpl.class, "state");
+
+  private volatile int state = STATE_ACTIVE;
 
   //base session used by this activity
   protected transient Session session = null;
@@ -88,6 +99,7 @@ public class DiameterActivityImpl implements DiameterActivity {
   protected transient DiameterMessageFactory messageFactory = null;
   protected transient DiameterAvpFactory avpFactory = null;
   protected transient DiameterActivityHandle handle = null;
+  protected transient AsyncRequestManager asyncRequestManager = null;
 
   public DiameterActivityImpl(DiameterMessageFactory messageFactory, DiameterAvpFactory avpFactory, Session session, EventListener<Request, Answer> raEventListener, DiameterIdentity destinationHost, DiameterIdentity destinationRealm) {
     super();
@@ -140,9 +152,20 @@ public class DiameterActivityImpl implements DiameterActivity {
     this.avpFactory = avpFactory;
   }
 
+  /**
+   * @param asyncRequestManager
+   *            the asyncRequestManager to set
+   */
+  public void setAsyncRequestManager(AsyncRequestManager asyncRequestManager) {
+    this.asyncRequestManager = asyncRequestManager;
+  }
+
+  protected AsyncRequestManager getAsyncRequestManager() {
+    return this.asyncRequestManager != null ? this.asyncRequestManager : AsyncRequestManager.DEFAULT;
+  }
+
   public void endActivity() {
-	 //TODO: check if this should be synced to ensure calls from SBBs work properly.
-	this.setTerminateAfterProcessing(false);
+    this.state = STATE_ENDED;
     this.baseListener.stopActivityRemoveTimer((DiameterActivityHandle) handle);
     if(session != null) {
       session.release();
@@ -174,6 +197,11 @@ public class DiameterActivityImpl implements DiameterActivity {
       if (message instanceof DiameterMessageImpl) {
         DiameterMessageImpl msg = (DiameterMessageImpl) message;
         this.session.send(msg.getGenericData(), this.eventListener);
+
+        DiameterMetrics metrics = getAsyncRequestManager().getMetrics();
+        if (metrics != null) {
+          metrics.messageSent(msg.getGenericData());
+        }
       }
       else {
         throw new OperationNotSupportedException("Trying to send wrong type of message? [" + message.getClass() + "] \n" + message);
@@ -187,8 +215,42 @@ public class DiameterActivityImpl implements DiameterActivity {
     }
   }
 
+  public DiameterRequestHandle sendAsyncMessage(DiameterMessage message, long timeout) throws IOException {
+    if (!isAsyncRequestSupported()) {
+      throw new UnsupportedOperationException("Asynchronous requests are not supported on application session activities [" + getClass().getSimpleName() + "], session " + sessionId + ".");
+    }
+
+    try {
+      if (message instanceof DiameterMessageImpl) {
+        return getAsyncRequestManager().send(this, (DiameterMessageImpl) message, timeout);
+      }
+      else {
+        throw new OperationNotSupportedException("Trying to send wrong type of message? [" + message.getClass() + "] \n" + message);
+      }
+    }
+    catch (org.jdiameter.api.validation.AvpNotAllowedException e) {
+      throw new AvpNotAllowedException("Message validation failed.", e, e.getAvpCode(), e.getVendorId());
+    }
+    catch (Exception e) {
+      throw new IOException("Failed to send message, due to: " + e, e);
+    }
+  }
+
   // ============= IMPL methods
 
+  /**
+   * Activities of jDiameter application sessions, such as the Credit-Control,
+   * Sh or Accounting ones, send their requests through the application session,
+   * whose state machine takes the answers. A request sent around it would
+   * leave that state machine behind, so only activities of plain Diameter
+   * sessions support {@link #sendAsyncMessage(DiameterMessage, long)}.
+   * 
+   * @return true if requests can be sent on this activity without blocking
+   */
+  protected boolean isAsyncRequestSupported() {
+    return this.session != null && !(this.eventListener instanceof AppSession);
+  }
+
   public DiameterActivityHandle getActivityHandle() {
     if (this.handle == null) {
       this.handle = new DiameterActivityHandle(this.sessionId);
@@ -200,9 +262,7 @@ public class DiameterActivityImpl implements DiameterActivity {
     Message receivedMessage = null;
     try {
       if (message instanceof DiameterMessageImpl) {
-        Future<Message> future = this.session.send(((DiameterMessageImpl) message).getGenericData());
-  
-        receivedMessage = future.get(); 
+        receivedMessage = getAsyncRequestManager().sendSync(this.session, ((DiameterMessageImpl) message).getGenericData());
       }
       else {
         throw new OperationNotSupportedException("Trying to send wrong type of message? [" + message.getClass() + "] \n" + message);
@@ -211,6 +271,9 @@ public class DiameterActivityImpl implements DiameterActivity {
     catch (org.jdiameter.api.validation.AvpNotAllowedException e) {
       throw new AvpNotAllowedException("Message validation failed.", e, e.getAvpCode(), e.getVendorId());
     }
+    catch (TimeoutException e) {
+      logger.warn("No answer received within " + getAsyncRequestManager().getRequestTimeout() + "ms for sync request on session " + sessionId + ".");
+    }
     catch (Exception e) {
       logger.error("Failure sending sync request.", e);
     }
@@ -219,9 +282,18 @@ public class DiameterActivityImpl implements DiameterActivity {
   }
   
   public DiameterMessage sendSyncMessage(DiameterMessage message) {
-    DiameterMessage answer = null;
+    return createAnswer(doSendMessage(message));
+  }
 
-    Message receivedMessage = doSendMessage(message);
+  /**
+   * Creates the answer event for a message received as answer to a request
+   * sent on this activity.
+   * 
+   * @param receivedMessage the received message, may be null
+   * @return the answer event, or null if there is no (valid) answer
+   */
+  protected DiameterMessage createAnswer(Message receivedMessage) {
+    DiameterMessage answer = null;
 
     if(receivedMessage != null) {
       if (!receivedMessage.isRequest()) {
@@ -280,12 +352,39 @@ public class DiameterActivityImpl implements DiameterActivity {
     this.baseListener = (DiameterRAInterface) ra;
   }
 
+  /**
+   * Marks (or unmarks) this activity to be ended once the event being processed
+   * has been delivered. Has no effect if the activity has already ended.
+   *
+   * @param terminateAfterProcessing
+   */
   public void setTerminateAfterProcessing(boolean terminateAfterProcessing) {
-    this.terminateAfterProcessing = terminateAfterProcessing;
+    if (terminateAfterProcessing) {
+      stateUpdater.compareAndSet(this, STATE_ACTIVE, STATE_TERMINATE_AFTER_PROCESSING);
+    }
+    else {
+      stateUpdater.compareAndSet(this, STATE_TERMINATE_AFTER_PROCESSING, STATE_ACTIVE);
+    }
   }
 
   public boolean isTerminateAfterProcessing() {
-    return terminateAfterProcessing;
+    return state == STATE_TERMINATE_AFTER_PROCESSING;
+  }
+
+  /**
+   * Ends this activity if it is marked to terminate after processing. Only one
+   * of concurrent callers (event delivery callbacks, activity remove timer)
+   * gets to end it.
+   *
+   * @return true if the activity was ended by this call
+   */
+  public boolean endIfTerminateAfterProcessing() {
+    if (stateUpdater.compareAndSet(this, STATE_TERMINATE_AFTER_PROCESSING, STATE_ENDED)) {
+      endActivity();
+      return true;
+    }
+
+    return false;
   }
 
   @Override
@@ -295,7 +394,7 @@ public class DiameterActivityImpl implements DiameterActivity {
     result = prime * result + ((destinationHost == null) ? 0 : destinationHost.hashCode());
     result = prime * result + ((destinationRealm == null) ? 0 : destinationRealm.hashCode());
     result = prime * result + ((sessionId == null) ? 0 : sessionId.hashCode());
-    result = prime * result + (terminateAfterProcessing ? 1231 : 1237);
+    result = prime * result + (isTerminateAfterProcessing() ? 1231 : 1237);
     return result;
   }
 
@@ -335,7 +434,7 @@ public class DiameterActivityImpl implements DiameterActivity {
     else if (!sessionId.equals(other.sessionId)) {
       return false;
     }
-    if (terminateAfterProcessing != other.terminateAfterProcessing) {
+    if (isTerminateAfterProcessing() != other.isTerminateAfterProcessing()) {
       return false;
     }
 
@@ -25,24 +25,80 @@ package org.mobicents.slee.resource.diameter.base;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 
 import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.FireableEventType;
 
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+import net.java.slee.resource.diameter.base.events.avp.AvpUtilities;
+
+import org.jdiameter.api.Message;
+import org.jdiameter.client.api.IMessage;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.base.events.ErrorAnswerImpl;
+import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
+
 /**
+ * Marshaler for Diameter activity handles and events.
+ * 
+ * Events are marshalled as the Diameter wire form of the message they wrap,
+ * so no extra framing is needed: the message length is in its header. On
+ * unmarshalling, the event class is chosen by the {@link EventFactory} of the RA,
+ * from the command code of the message.
  * 
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a>
  */
 public class DiameterBaseMarshaler implements javax.slee.resource.Marshaler {
 
+  /**
+   * Creates the event object for a Diameter message, as the RA does when the
+   * message is received.
+   */
+  public interface EventFactory {
+
+    DiameterMessage createEvent(Message message);
+  }
+
+  // version (1 byte) and message length (3 bytes)
+  private static final int HEADER_LENGTH_FIELD_SIZE = 4;
+  private static final int MIN_MESSAGE_LENGTH = 20;
+
+  private final EventFactory eventFactory;
+
+  // the last event encoded by each thread, so that size estimate, buffer and
+  // marshalling share one encoding. The event is only weakly referenced, and
+  // the entry is dropped once the event is written or its buffer released.
+  private final ThreadLocal<EncodedEvent> encodedEvent = new ThreadLocal<EncodedEvent>();
+
+  /**
+   * Creates a marshaler which unmarshals events as {@link ExtensionDiameterMessageImpl}
+   * (or {@link ErrorAnswerImpl} for error answers).
+   */
+  public DiameterBaseMarshaler() {
+    this(null);
+  }
+
+  /**
+   * @param eventFactory the factory for unmarshalled events, null to use the generic event classes
+   */
+  public DiameterBaseMarshaler(EventFactory eventFactory) {
+    this.eventFactory = eventFactory;
+  }
+
   /*
    * (non-Javadoc)
    * @see javax.slee.resource.Marshaler#getEstimatedEventSize(javax.slee.resource.FireableEventType, java.lang.Object)
    */
   public int getEstimatedEventSize(FireableEventType eventType, Object event) {
-    throw new UnsupportedOperationException();
+    try {
+      return encode(event).remaining();
+    }
+    catch (IOException e) {
+      throw new IllegalArgumentException("Failed to encode event " + event, e);
+    }
   }
 
   /*
@@ -50,7 +106,7 @@ public class DiameterBaseMarshaler implements javax.slee.resource.Marshaler {
    * @see javax.slee.resource.Marshaler#getEstimatedHandleSize(javax.slee.resource.ActivityHandle)
    */
   public int getEstimatedHandleSize(ActivityHandle handle) {
-    return ((DiameterActivityHandle) handle).getId().length();
+    return 2 + ((DiameterActivityHandle) handle).getBytes().length;
   }
 
   /*
@@ -58,7 +114,13 @@ public class DiameterBaseMarshaler implements javax.slee.resource.Marshaler {
    * @see javax.slee.resource.Marshaler#getEventBuffer(javax.slee.resource.FireableEventType, java.lang.Object)
    */
   public ByteBuffer getEventBuffer(FireableEventType eventType, Object event) {
-    throw new UnsupportedOperationException();
+    try {
+      // the encoded message itself, not a copy
+      return encode(event).duplicate();
+    }
+    catch (IOException e) {
+      throw new IllegalArgumentException("Failed to encode event " + event, e);
+    }
   }
 
   /*
@@ -66,17 +128,53 @@ public class DiameterBaseMarshaler implements javax.slee.resource.Marshaler {
    * @see javax.slee.resource.Marshaler#marshalEvent(javax.slee.resource.FireableEventType, java.lang.Object, java.io.DataOutput)
    */
   public void marshalEvent(FireableEventType eventType, Object event, DataOutput out) throws IOException {
-    throw new UnsupportedOperationException();
+    try {
+      ByteBuffer buffer = encode(event);
+      if (buffer.hasArray()) {
+        out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      }
+      else {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        out.write(bytes);
+      }
+    }
+    finally {
+      encodedEvent.remove();
+    }
   }
 
+  private ByteBuffer encode(Object event) throws IOException {
+    EncodedEvent encoded = encodedEvent.get();
+    if (encoded != null && encoded.event.get() == event) {
+      return encoded.buffer;
+    }
+
+    Message message = ((DiameterMessageImpl) event).getGenericData();
+    ByteBuffer buffer;
+    try {
+      buffer = AvpUtilities.getParser().encodeMessage((IMessage) message);
+    }
+    catch (Exception e) {
+      throw new IOException("Failed to encode Diameter message: " + e.getMessage(), e);
+    }
+
+    encodedEvent.set(new EncodedEvent(event, buffer));
+    return buffer;
+  }
 
   /*
    * (non-Javadoc)
    * @see javax.slee.resource.Marshaler#marshalHandle(javax.slee.resource.ActivityHandle, java.io.DataOutput)
    */
   public void marshalHandle(ActivityHandle handle, DataOutput out) throws IOException {
-    DiameterActivityHandle dah = (DiameterActivityHandle)handle;
-    out.writeUTF(dah.getId());
+    // unsigned short length followed by the UTF-8 encoded Session-Id
+    byte[] bytes = ((DiameterActivityHandle) handle).getBytes();
+    if (bytes.length > 0xFFFF) {
+      throw new IOException("Session-Id too long to marshal: " + bytes.length + " bytes");
+    }
+    out.writeShort(bytes.length);
+    out.write(bytes);
   }
 
   /*
@@ -84,7 +182,10 @@ public class DiameterBaseMarshaler implements javax.slee.resource.Marshaler {
    * @see javax.slee.resource.Marshaler#releaseEventBuffer(javax.slee.resource.FireableEventType, java.lang.Object, java.nio.ByteBuffer)
    */
   public void releaseEventBuffer(FireableEventType eventType, Object event, ByteBuffer buffer) {
-    throw new UnsupportedOperationException();
+    EncodedEvent encoded = encodedEvent.get();
+    if (encoded != null && encoded.event.get() == event) {
+      encodedEvent.remove();
+    }
   }
 
   /*
@@ -92,7 +193,32 @@ public class DiameterBaseMarshaler implements javax.slee.resource.Marshaler {
    * @see javax.slee.resource.Marshaler#unmarshalEvent(javax.slee.resource.FireableEventType, java.io.DataInput)
    */
   public Object unmarshalEvent(FireableEventType eventType, DataInput in) throws IOException {
-    throw new UnsupportedOperationException();
+    int versionAndLength = in.readInt();
+    int length = versionAndLength & 0xFFFFFF;
+    if (length < MIN_MESSAGE_LENGTH) {
+      throw new IOException("Invalid Diameter message length: " + length);
+    }
+
+    byte[] bytes = new byte[length];
+    bytes[0] = (byte) (versionAndLength >>> 24);
+    bytes[1] = (byte) (versionAndLength >>> 16);
+    bytes[2] = (byte) (versionAndLength >>> 8);
+    bytes[3] = (byte) versionAndLength;
+    in.readFully(bytes, HEADER_LENGTH_FIELD_SIZE, length - HEADER_LENGTH_FIELD_SIZE);
+
+    Message message;
+    try {
+      message = AvpUtilities.getParser().createMessage(bytes);
+    }
+    catch (Exception e) {
+      throw new IOException("Failed to decode Diameter message: " + e.getMessage(), e);
+    }
+
+    if (eventFactory != null) {
+      return eventFactory.createEvent(message);
+    }
+
+    return message.isError() ? new ErrorAnswerImpl(message) : new ExtensionDiameterMessageImpl(message);
   }
 
   /*
@@ -100,8 +226,20 @@ public class DiameterBaseMarshaler implements javax.slee.resource.Marshaler {
    * @see javax.slee.resource.Marshaler#unmarshalHandle(java.io.DataInput)
    */
   public ActivityHandle unmarshalHandle(DataInput in) throws IOException {
-    String id = in.readUTF();
-    return new DiameterActivityHandle(id);
+    byte[] bytes = new byte[in.readUnsignedShort()];
+    in.readFully(bytes);
+    return DiameterActivityHandle.fromBytes(bytes);
+  }
+
+  private static final class EncodedEvent {
+
+    private final WeakReference<Object> event;
+    private final ByteBuffer buffer;
+
+    private EncodedEvent(Object event, ByteBuffer buffer) {
+      this.event = new WeakReference<Object>(event);
+      this.buffer = buffer;
+    }
   }
 
-}
\ No newline at end of file
+}
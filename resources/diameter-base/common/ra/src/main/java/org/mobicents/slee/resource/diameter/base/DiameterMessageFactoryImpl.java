@@ -42,6 +42,7 @@ import net.java.slee.resource.diameter.base.events.ReAuthRequest;
 import net.java.slee.resource.diameter.base.events.SessionTerminationAnswer;
 import net.java.slee.resource.diameter.base.events.SessionTerminationRequest;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.AvpUtilities;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
@@ -84,17 +85,31 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
 
   protected Session session;
   protected Stack stack;
+  protected final RawMessageCreator rawMessageCreator;
 
   private static final ApplicationId BASE_AUTH_APP_ID = ApplicationId.createByAuthAppId(0, 0);
   private static final ApplicationId BASE_ACCT_APP_ID = ApplicationId.createByAccAppId(0, 3);
 
   public DiameterMessageFactoryImpl(Session session, Stack stack, DiameterIdentity... avps) {
-    this.session = session;
-    this.stack = stack;
+    this(session, new RawMessageCreator(stack));
   }
 
   public DiameterMessageFactoryImpl(Stack stack) {
-    this.stack = stack;
+    this(null, new RawMessageCreator(stack));
+  }
+
+  /**
+   * @param session the session of the messages, if any
+   * @param rawMessageCreator the creator shared by the factories of the RA entity
+   */
+  public DiameterMessageFactoryImpl(Session session, RawMessageCreator rawMessageCreator) {
+    this.session = session;
+    this.stack = rawMessageCreator.getStack();
+    this.rawMessageCreator = rawMessageCreator;
+  }
+
+  public DiameterMessageFactoryImpl(RawMessageCreator rawMessageCreator) {
+    this(null, rawMessageCreator);
   }
 
   public AbortSessionAnswer createAbortSessionAnswer(AbortSessionRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
@@ -138,6 +153,10 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
     return null;
   }
 
+  public AbortSessionRequest createAbortSessionRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    return (AbortSessionRequest) this.createDiameterMessage(avps, Message.ABORT_SESSION_REQUEST, BASE_AUTH_APP_ID);
+  }
+
   public AccountingAnswer createAccountingAnswer(AccountingRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
     AccountingAnswer msg = (AccountingAnswer) this.createDiameterMessage(request.getHeader(), avps, Message.ACCOUNTING_ANSWER, getApplicationId(request));
 
@@ -180,6 +199,10 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
     return null;
   }
 
+  public AccountingRequest createAccountingRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    return (AccountingRequest) this.createDiameterMessage(avps, Message.ACCOUNTING_REQUEST, BASE_ACCT_APP_ID);
+  }
+
   public CapabilitiesExchangeAnswer createCapabilitiesExchangeAnswer(CapabilitiesExchangeRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
     CapabilitiesExchangeAnswer msg = (CapabilitiesExchangeAnswer) this.createDiameterMessage(request.getHeader(), avps, Message.CAPABILITIES_EXCHANGE_ANSWER, getApplicationId(request));
 
@@ -220,6 +243,10 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
     return null;
   }
 
+  public CapabilitiesExchangeRequest createCapabilitiesExchangeRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    return (CapabilitiesExchangeRequest) this.createDiameterMessage(avps, Message.CAPABILITIES_EXCHANGE_REQUEST, BASE_AUTH_APP_ID);
+  }
+
   public DeviceWatchdogAnswer createDeviceWatchdogAnswer(DeviceWatchdogRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
     DeviceWatchdogAnswer msg = (DeviceWatchdogAnswer) this.createDiameterMessage(request.getHeader(), avps, Message.DEVICE_WATCHDOG_ANSWER, getApplicationId(request));
 
@@ -259,6 +286,10 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
     return null;
   }
 
+  public DeviceWatchdogRequest createDeviceWatchdogRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    return (DeviceWatchdogRequest) this.createDiameterMessage(avps, Message.DEVICE_WATCHDOG_REQUEST, BASE_AUTH_APP_ID);
+  }
+
   public DisconnectPeerAnswer createDisconnectPeerAnswer(DisconnectPeerRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
     DisconnectPeerAnswer msg = (DisconnectPeerAnswer) this.createDiameterMessage(request.getHeader(), avps, Message.DISCONNECT_PEER_ANSWER, getApplicationId(request));
 
@@ -297,6 +328,10 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
     return null;
   }
 
+  public DisconnectPeerRequest createDisconnectPeerRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    return (DisconnectPeerRequest) this.createDiameterMessage(avps, Message.DISCONNECT_PEER_REQUEST, BASE_AUTH_APP_ID);
+  }
+
   public ExtensionDiameterMessage createMessage(DiameterCommand command, DiameterAvp[] avps) throws AvpNotAllowedException {
     ApplicationId aid = command.getCode() == AccountingRequest.commandCode ? 
         ApplicationId.createByAccAppId(0, command.getApplicationId()) : ApplicationId.createByAuthAppId(0, command.getApplicationId());
@@ -312,6 +347,26 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
         return msg;
   }
 
+  public ExtensionDiameterMessage createMessage(DiameterCommand command, AvpSetBuilder avps) throws AvpNotAllowedException {
+    ApplicationId aid = command.getCode() == AccountingRequest.commandCode ? 
+        ApplicationId.createByAccAppId(0, command.getApplicationId()) : ApplicationId.createByAuthAppId(0, command.getApplicationId());
+
+    Message raw = createRawMessage(null, command.getCode(), aid);
+    raw.setRequest(command.isRequest());
+    raw.setProxiable(command.isProxiable());
+    if(!command.isRequest()) {
+      // just in case. answers never have T flag set
+      raw.setReTransmitted(false);
+    }
+
+    withoutApplicationIds(avps.getAvps()).build(raw);
+
+    ExtensionDiameterMessageImpl msg = new ExtensionDiameterMessageImpl(raw);
+    addOriginHostAndRealm(msg);
+
+    return msg;
+  }
+
   public ReAuthAnswer createReAuthAnswer(ReAuthRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
     ReAuthAnswer msg = (ReAuthAnswer) this.createDiameterMessage(request.getHeader(), avps, Message.RE_AUTH_ANSWER, getApplicationId(request));
 
@@ -352,6 +407,10 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
     return null;
   }
 
+  public ReAuthRequest createReAuthRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    return (ReAuthRequest) this.createDiameterMessage(avps, Message.RE_AUTH_REQUEST, BASE_AUTH_APP_ID);
+  }
+
   public SessionTerminationAnswer createSessionTerminationAnswer(SessionTerminationRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
     SessionTerminationAnswer msg = (SessionTerminationAnswer) this.createDiameterMessage(request.getHeader(), avps, Message.SESSION_TERMINATION_REQUEST, getApplicationId(request));
 
@@ -391,6 +450,10 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
     }
   }
 
+  public SessionTerminationRequest createSessionTerminationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    return (SessionTerminationRequest) this.createDiameterMessage(avps, Message.SESSION_TERMINATION_REQUEST, BASE_AUTH_APP_ID);
+  }
+
   protected DiameterMessage createDiameterMessage(DiameterHeader diameterHeader, DiameterAvp[] avps, int _commandCode, ApplicationId appId) throws IllegalArgumentException {
 
     boolean creatingRequest = diameterHeader == null;
@@ -412,6 +475,34 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
     }
 
     int commandCode = creatingRequest ? _commandCode : diameterHeader.getCommandCode();
+
+    return createDiameterMessage(msg, commandCode, creatingRequest);
+  }
+
+  /**
+   * Creates a request with the AVPs collected by the builder, validated against the dictionary at once. The
+   * Application-Id is taken from the Application-Id AVPs collected, if any, otherwise the given default is used.
+   */
+  protected DiameterMessage createDiameterMessage(AvpSetBuilder avps, int commandCode, ApplicationId defaultAppId) throws AvpNotAllowedException {
+    DiameterAvp[] array = avps.getAvps();
+    ApplicationId appId = getApplicationId(array);
+
+    Message raw = createRawMessage(null, commandCode, appId != null ? appId : defaultAppId);
+    boolean isPeerManagementMessage = commandCode == CapabilitiesExchangeRequest.commandCode || commandCode == DeviceWatchdogRequest.commandCode || commandCode == DisconnectPeerRequest.commandCode;
+    raw.setProxiable(!isPeerManagementMessage);
+    raw.setRequest(true);
+
+    withoutApplicationIds(array).build(raw);
+
+    DiameterMessage msg = createDiameterMessage(raw, commandCode, true);
+
+    // Add Session-Id AVP if not present
+    addSessionIdAvp(msg);
+
+    return msg;
+  }
+
+  private DiameterMessage createDiameterMessage(Message msg, int commandCode, boolean creatingRequest) {
     DiameterMessage diamMessage = null;
 
     switch (commandCode) {
@@ -495,7 +586,7 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
       commandCode = _commandCode;
     }
     try {
-      Message msg = stack.getSessionFactory().getNewRawSession().createMessage(commandCode, appId, hopByHopId, endToEndId);
+      Message msg = rawMessageCreator.createMessage(commandCode, appId, hopByHopId, endToEndId);
 
       // Set the message flags from header (or default)
       msg.setRequest(isRequest);
@@ -531,12 +622,7 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
   }
 
   private void addOriginHostAndRealm(DiameterMessage msg) {
-    if(!msg.hasOriginHost()) {
-      msg.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
-    }
-    if(!msg.hasOriginRealm()) {
-      msg.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-    }
+    rawMessageCreator.addOriginHostAndRealm(msg);
   }
 
   private ApplicationId getApplicationId(DiameterMessage msg) {
@@ -584,6 +670,18 @@ public class DiameterMessageFactoryImpl implements DiameterMessageFactory {
   //       ApplicationId.createByAccAppId(header.getApplicationId()) : ApplicationId.createByAuthAppId(header.getApplicationId());
   // }
 
+  private AvpSetBuilder withoutApplicationIds(DiameterAvp[] avps) {
+    // Application-Id AVPs are set when creating the raw message
+    AvpSetBuilder builder = new AvpSetBuilder(avps.length);
+    for (DiameterAvp avp : avps) {
+      if(avp.getCode() != DiameterAvpCodes.VENDOR_SPECIFIC_APPLICATION_ID && avp.getCode() != DiameterAvpCodes.ACCT_APPLICATION_ID && avp.getCode() != DiameterAvpCodes.AUTH_APPLICATION_ID) {
+        builder.add(avp);
+      }
+    }
+
+    return builder;
+  }
+
   private void addSessionIdAvp(DiameterMessage msg) {
     if(!msg.hasSessionId() && session != null) {
       msg.setSessionId(session.getSessionId());
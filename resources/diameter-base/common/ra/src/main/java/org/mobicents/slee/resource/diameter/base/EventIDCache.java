@@ -27,10 +27,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.slee.EventTypeID;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.resource.FireableEventType;
-
 import net.java.slee.resource.diameter.base.events.AbortSessionRequest;
 import net.java.slee.resource.diameter.base.events.AccountingRequest;
 import net.java.slee.resource.diameter.base.events.CapabilitiesExchangeRequest;
@@ -39,7 +35,7 @@ import net.java.slee.resource.diameter.base.events.DisconnectPeerRequest;
 import net.java.slee.resource.diameter.base.events.ReAuthRequest;
 import net.java.slee.resource.diameter.base.events.SessionTerminationRequest;
 
-import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.FireableEventTypeResolver;
 
 /**
  * 
@@ -48,7 +44,7 @@ import org.jdiameter.api.Message;
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a>
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  */
-public class EventIDCache {
+public class EventIDCache extends FireableEventTypeResolver {
 
   private static final String PACKAGE_PREFIX = "net.java.slee.resource.diameter.base.events.";
 
@@ -71,66 +67,8 @@ public class EventIDCache {
   public static final String ERROR_ANSWER                = PACKAGE_PREFIX + "ErrorAnswer";
   public static final String EXTENSION_DIAMETER_MESSAGE  = PACKAGE_PREFIX + "ExtensionDiameterMessage";
 
-  private static final String VENDOR  = "java.net";
-  private static final String VERSION = "0.8";
-
-  private ConcurrentHashMap<String, FireableEventType> eventIds = new ConcurrentHashMap<String, FireableEventType>();
-
   public EventIDCache() {
-  }
-
-  /**
-   * 
-   * @param eventLookupFacility
-   * @param message
-   * @return
-   */
-  public FireableEventType getEventId(EventLookupFacility eventLookupFacility, Message message) {
-
-    FireableEventType eventID = null;
-
-    // Error is always the same.
-    if (message.isError()) {
-      eventID = getEventId(eventLookupFacility, ERROR_ANSWER);
-    }
-    else {
-      final int commandCode = message.getCommandCode();
-      final boolean isRequest = message.isRequest();
-
-      String eventName = eventNames.get(commandCode);
-
-      if(eventName != null) {
-        eventID = getEventId(eventLookupFacility, eventName + (isRequest ? "Request" : "Answer"));
-      }
-      else {
-        eventID = getEventId(eventLookupFacility, EXTENSION_DIAMETER_MESSAGE);
-      }
-    }
-
-    return eventID;
-  }
-
-  /**
-   * 
-   * @param eventLookupFacility
-   * @param eventName
-   * @return
-   */
-  private FireableEventType getEventId(EventLookupFacility eventLookupFacility, String eventName) {
-
-    FireableEventType eventType = eventIds.get(eventName);
-    if (eventType == null) {
-      try {
-        eventType = eventLookupFacility.getFireableEventType(new EventTypeID(eventName,VENDOR,VERSION));
-      }
-      catch (Throwable e) {
-        e.printStackTrace();
-      }
-      if (eventType != null) {
-        eventIds.put(eventName, eventType);
-      }
-    }
-    return eventType;
+    super(eventNames, ERROR_ANSWER, EXTENSION_DIAMETER_MESSAGE);
   }
 
 }
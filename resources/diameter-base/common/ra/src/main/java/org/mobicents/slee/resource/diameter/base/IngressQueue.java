@@ -0,0 +1,540 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.slee.resource.ConfigProperties;
+import javax.slee.resource.ConfigProperties.Property;
+
+import org.apache.log4j.Logger;
+import org.jdiameter.api.Answer;
+import org.jdiameter.api.Avp;
+import org.jdiameter.api.Request;
+import org.jdiameter.api.ResultCode;
+import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
+
+/**
+ * Optional ingress stage between the stack and the SLEE endpoint. Requests
+ * received by an RA entity are queued per peer (by Origin-Host) and handed to
+ * the RA by a pool of worker threads, so that the stack I/O threads do not
+ * fire events into the SLEE themselves.
+ *
+ * Peers with queued requests are served round-robin, a few requests at a time,
+ * so a burst from one peer does not starve the others. A peer is only served
+ * by one worker at a time, which keeps its requests in order.
+ *
+ * Queues are bounded. Once a peer queue is filled over the overload threshold,
+ * or its oldest request has waited longer than the maximum queue wait, new
+ * session initiating requests from that peer are answered right away with
+ * 3004 (DIAMETER_TOO_BUSY), while requests for existing sessions are still
+ * queued until the queue is full.
+ *
+ * The Origin-Host is set by the sending peer, so the number of peer queues is
+ * bounded too: requests from peers over {@link #INGRESS_MAX_PEERS} share one
+ * queue with the requests without Origin-Host.
+ *
+ * Enabled by setting the RA configuration property {@link #INGRESS_WORKERS}
+ * to a value greater than 0.
+ */
+public class IngressQueue {
+
+  private static final Logger logger = Logger.getLogger(IngressQueue.class);
+
+  /**
+   * Name of the RA config property with the number of worker threads, 0 to disable the ingress queue.
+   */
+  public static final String INGRESS_WORKERS = "ingressWorkers";
+
+  /**
+   * Name of the RA config property with the maximum number of queued requests per peer.
+   */
+  public static final String INGRESS_PEER_QUEUE_SIZE = "ingressPeerQueueSize";
+
+  /**
+   * Name of the RA config property with the percentage of the peer queue size
+   * over which new session initiating requests are answered with 3004.
+   */
+  public static final String INGRESS_OVERLOAD_THRESHOLD = "ingressOverloadThreshold";
+
+  /**
+   * Name of the RA config property with the maximum time, in milliseconds, the
+   * oldest request of a peer may have been queued before new session initiating
+   * requests are answered with 3004, 0 for no limit.
+   */
+  public static final String INGRESS_MAX_QUEUE_WAIT = "ingressMaxQueueWait";
+
+  /**
+   * Name of the RA config property with the maximum number of peers queued
+   * apart, requests from further peers share one queue.
+   */
+  public static final String INGRESS_MAX_PEERS = "ingressMaxPeers";
+
+  public static final int DEFAULT_PEER_QUEUE_SIZE = 1000;
+  public static final int DEFAULT_OVERLOAD_THRESHOLD = 80;
+  public static final int DEFAULT_MAX_PEERS = 256;
+
+  // requests processed from a peer before moving to the next one
+  private static final int PEER_BATCH_SIZE = 16;
+
+  // time for the workers to process the queued requests on stop
+  private static final long DRAIN_TIMEOUT = 5000;
+
+  // requests without Origin-Host, or from peers over the maximum
+  private static final String OTHER_PEERS = "";
+
+  /**
+   * Processes the requests taken from the queue, in a worker thread.
+   */
+  public interface RequestProcessor {
+
+    void processRequest(Request request);
+  }
+
+  private final int workers;
+  private final int peerQueueSize;
+  private final int overloadLimit;
+  // in nanoseconds, 0 for no limit
+  private final long maxQueueWait;
+  private final int maxPeers;
+
+  private final ConcurrentHashMap<String, PeerQueue> peerQueues = new ConcurrentHashMap<String, PeerQueue>();
+  // peers with queued requests, not being served by a worker
+  private final BlockingQueue<PeerQueue> readyPeers = new LinkedBlockingQueue<PeerQueue>();
+
+  private final AtomicInteger queuedRequests = new AtomicInteger();
+  private final AtomicLong processedRequests = new AtomicLong();
+  private final AtomicLong rejectedRequests = new AtomicLong();
+  // in nanoseconds
+  private final AtomicLong totalQueueWait = new AtomicLong();
+  private final AtomicLong maxQueueWaitSeen = new AtomicLong();
+
+  private volatile RequestProcessor processor;
+  private volatile boolean running;
+  private Thread[] workerThreads;
+
+  /**
+   * @param workers the number of worker threads
+   * @param peerQueueSize the maximum number of queued requests per peer
+   * @param overloadThreshold the percentage of the peer queue size over which new session initiating requests are rejected
+   * @param maxQueueWait the maximum time, in milliseconds, the oldest request of a peer may have been queued before new session initiating requests are rejected, 0 for no limit
+   */
+  public IngressQueue(int workers, int peerQueueSize, int overloadThreshold, long maxQueueWait) {
+    this(workers, peerQueueSize, overloadThreshold, maxQueueWait, DEFAULT_MAX_PEERS);
+  }
+
+  /**
+   * @param workers the number of worker threads
+   * @param peerQueueSize the maximum number of queued requests per peer
+   * @param overloadThreshold the percentage of the peer queue size over which new session initiating requests are rejected
+   * @param maxQueueWait the maximum time, in milliseconds, the oldest request of a peer may have been queued before new session initiating requests are rejected, 0 for no limit
+   * @param maxPeers the maximum number of peers queued apart
+   */
+  public IngressQueue(int workers, int peerQueueSize, int overloadThreshold, long maxQueueWait, int maxPeers) {
+    if (workers <= 0) {
+      throw new IllegalArgumentException("Number of workers must be greater than 0: " + workers);
+    }
+    if (peerQueueSize <= 0) {
+      throw new IllegalArgumentException("Peer queue size must be greater than 0: " + peerQueueSize);
+    }
+    if (overloadThreshold <= 0 || overloadThreshold > 100) {
+      throw new IllegalArgumentException("Overload threshold must be between 1 and 100: " + overloadThreshold);
+    }
+    if (maxQueueWait < 0) {
+      throw new IllegalArgumentException("Maximum queue wait must not be negative: " + maxQueueWait);
+    }
+    if (maxPeers <= 0) {
+      throw new IllegalArgumentException("Maximum number of peers must be greater than 0: " + maxPeers);
+    }
+
+    this.workers = workers;
+    this.peerQueueSize = peerQueueSize;
+    this.overloadLimit = Math.max(1, (int) ((long) peerQueueSize * overloadThreshold / 100));
+    this.maxQueueWait = TimeUnit.MILLISECONDS.toNanos(maxQueueWait);
+    this.maxPeers = maxPeers;
+  }
+
+  /**
+   * Creates the queue configured by the given RA config properties. Missing
+   * properties take the default values.
+   *
+   * @param properties the RA config properties
+   * @return the queue, or null if the ingress queue is disabled
+   */
+  public static IngressQueue create(ConfigProperties properties) {
+    Property workersProp = properties.getProperty(INGRESS_WORKERS);
+    Property sizeProp = properties.getProperty(INGRESS_PEER_QUEUE_SIZE);
+    Property thresholdProp = properties.getProperty(INGRESS_OVERLOAD_THRESHOLD);
+    Property waitProp = properties.getProperty(INGRESS_MAX_QUEUE_WAIT);
+    Property peersProp = properties.getProperty(INGRESS_MAX_PEERS);
+
+    int workers = workersProp != null ? (Integer) workersProp.getValue() : 0;
+    if (workers <= 0) {
+      return null;
+    }
+
+    int size = sizeProp != null ? (Integer) sizeProp.getValue() : DEFAULT_PEER_QUEUE_SIZE;
+    int threshold = thresholdProp != null ? (Integer) thresholdProp.getValue() : DEFAULT_OVERLOAD_THRESHOLD;
+    long wait = waitProp != null ? (Long) waitProp.getValue() : 0;
+    int peers = peersProp != null ? (Integer) peersProp.getValue() : DEFAULT_MAX_PEERS;
+
+    return new IngressQueue(workers, size, threshold, wait, peers);
+  }
+
+  /**
+   * Starts the worker threads.
+   *
+   * @param name the name of the RA entity, for the worker thread names
+   * @param processor the processor of the queued requests
+   */
+  public synchronized void start(String name, RequestProcessor processor) {
+    if (running) {
+      return;
+    }
+
+    this.processor = processor;
+    this.running = true;
+
+    workerThreads = new Thread[workers];
+    for (int i = 0; i < workers; i++) {
+      workerThreads[i] = new Thread(new Worker(), "DiameterIngress-" + name + "-" + i);
+      workerThreads[i].setDaemon(true);
+      workerThreads[i].start();
+    }
+  }
+
+  /**
+   * Stops the worker threads, after giving them some time to process the
+   * requests already queued. Requests still queued after that are dropped.
+   */
+  public synchronized void stop() {
+    if (!running) {
+      return;
+    }
+
+    running = false;
+
+    long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+    for (Thread workerThread : workerThreads) {
+      try {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining > 0) {
+          workerThread.join(remaining);
+        }
+        workerThread.interrupt();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    workerThreads = null;
+
+    int dropped = 0;
+    for (PeerQueue queue : peerQueues.values()) {
+      Entry entry;
+      while ((entry = queue.entries.poll()) != null) {
+        queue.size.decrementAndGet();
+        queuedRequests.decrementAndGet();
+        dropped++;
+      }
+    }
+    readyPeers.clear();
+
+    if (dropped > 0) {
+      logger.warn("Dropped " + dropped + " queued requests on stop.");
+    }
+  }
+
+  /**
+   * Queues a request received from the stack, or rejects it if the queue of
+   * its peer is overloaded.
+   *
+   * @param request the request
+   * @param activities the activities of the RA entity, to tell requests for existing sessions apart
+   * @return null if the request was queued, or else the 3004 answer for it, to be sent by the stack
+   */
+  public Answer submit(Request request, DiameterActivityManagement activities) {
+    PeerQueue queue = getPeerQueue(getPeer(request));
+
+    boolean initiating = activities == null || !activities.containsKey(activities.getActivityHandle(request.getSessionId()));
+    if (!running || !reserve(queue, initiating)) {
+      rejectedRequests.incrementAndGet();
+      if (logger.isDebugEnabled()) {
+        logger.debug("Rejecting request from '" + queue.peer + "' with " + queue.size.get() + " requests queued, Session-Id: " + request.getSessionId());
+      }
+      return createTooBusyAnswer(request);
+    }
+
+    queue.entries.add(new Entry(request, System.nanoTime()));
+    queuedRequests.incrementAndGet();
+    schedule(queue);
+
+    return null;
+  }
+
+  private boolean reserve(PeerQueue queue, boolean initiating) {
+    int size = queue.size.incrementAndGet();
+
+    boolean admitted;
+    if (size > peerQueueSize) {
+      admitted = false;
+    }
+    else if (initiating) {
+      admitted = size <= overloadLimit && !isQueueWaitExceeded(queue);
+    }
+    else {
+      admitted = true;
+    }
+
+    if (!admitted) {
+      queue.size.decrementAndGet();
+    }
+
+    return admitted;
+  }
+
+  private boolean isQueueWaitExceeded(PeerQueue queue) {
+    if (maxQueueWait == 0) {
+      return false;
+    }
+
+    Entry oldest = queue.entries.peek();
+    return oldest != null && System.nanoTime() - oldest.queueTime > maxQueueWait;
+  }
+
+  private Answer createTooBusyAnswer(Request request) {
+    Answer answer = request.createAnswer(ResultCode.TOO_BUSY);
+    // protocol error, as per RFC 6733 section 7.1.3
+    answer.setError(true);
+
+    return answer;
+  }
+
+  private PeerQueue getPeerQueue(String peer) {
+    PeerQueue queue = peerQueues.get(peer);
+    if (queue == null) {
+      // the shared queue does not count, concurrent new peers may go slightly over
+      int peers = peerQueues.size() - (peerQueues.containsKey(OTHER_PEERS) ? 1 : 0);
+      if (peers >= maxPeers) {
+        peer = OTHER_PEERS;
+        queue = peerQueues.get(peer);
+        if (queue != null) {
+          return queue;
+        }
+      }
+
+      PeerQueue newQueue = new PeerQueue(peer);
+      queue = peerQueues.putIfAbsent(peer, newQueue);
+      if (queue == null) {
+        queue = newQueue;
+      }
+    }
+
+    return queue;
+  }
+
+  private String getPeer(Request request) {
+    try {
+      Avp originHost = request.getAvps().getAvp(Avp.ORIGIN_HOST);
+      if (originHost != null) {
+        return originHost.getDiameterIdentity();
+      }
+    }
+    catch (Exception e) {
+      // malformed, queued with the others without Origin-Host
+    }
+
+    return OTHER_PEERS;
+  }
+
+  private void schedule(PeerQueue queue) {
+    if (queue.scheduled.compareAndSet(false, true)) {
+      readyPeers.add(queue);
+    }
+  }
+
+  private void serve(PeerQueue queue) {
+    try {
+      Entry entry;
+      for (int i = 0; i < PEER_BATCH_SIZE && (entry = queue.entries.poll()) != null; i++) {
+        queue.size.decrementAndGet();
+        queuedRequests.decrementAndGet();
+        recordQueueWait(System.nanoTime() - entry.queueTime);
+
+        try {
+          processor.processRequest(entry.request);
+        }
+        catch (Throwable t) {
+          logger.error("Failed to process request from '" + queue.peer + "'.", t);
+        }
+        processedRequests.incrementAndGet();
+      }
+    }
+    finally {
+      // requests added meanwhile could not schedule the peer, as it was still being served
+      queue.scheduled.set(false);
+      if (!queue.entries.isEmpty()) {
+        schedule(queue);
+      }
+    }
+  }
+
+  private void recordQueueWait(long wait) {
+    totalQueueWait.addAndGet(wait);
+
+    long max;
+    while (wait > (max = maxQueueWaitSeen.get())) {
+      if (maxQueueWaitSeen.compareAndSet(max, wait)) {
+        break;
+      }
+    }
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public int getPeerQueueSize() {
+    return peerQueueSize;
+  }
+
+  /**
+   * @return the number of queued requests of a peer over which new session initiating requests are rejected
+   */
+  public int getOverloadLimit() {
+    return overloadLimit;
+  }
+
+  public int getMaxPeers() {
+    return maxPeers;
+  }
+
+  /**
+   * @return the number of requests currently queued, for all peers
+   */
+  public int getQueuedRequests() {
+    return queuedRequests.get();
+  }
+
+  /**
+   * @return the number of requests currently queued, by Origin-Host, with an
+   *         empty one for those without Origin-Host or from peers over the maximum
+   */
+  public Map<String, Integer> getPeerQueuedRequests() {
+    Map<String, Integer> result = new HashMap<String, Integer>();
+    for (PeerQueue queue : peerQueues.values()) {
+      result.put(queue.peer, queue.size.get());
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the number of requests taken from the queue and processed
+   */
+  public long getProcessedRequests() {
+    return processedRequests.get();
+  }
+
+  /**
+   * @return the number of requests answered with 3004
+   */
+  public long getRejectedRequests() {
+    return rejectedRequests.get();
+  }
+
+  /**
+   * @return the longest time, in milliseconds, a request has been queued
+   */
+  public long getMaxQueueWaitTime() {
+    return TimeUnit.NANOSECONDS.toMillis(maxQueueWaitSeen.get());
+  }
+
+  /**
+   * @return the average time, in milliseconds, requests have been queued
+   */
+  public double getAverageQueueWaitTime() {
+    long processed = processedRequests.get();
+    return processed > 0 ? totalQueueWait.get() / 1000000.0 / processed : 0;
+  }
+
+  private static final class Entry {
+
+    private final Request request;
+    // System.nanoTime() when queued
+    private final long queueTime;
+
+    private Entry(Request request, long queueTime) {
+      this.request = request;
+      this.queueTime = queueTime;
+    }
+  }
+
+  private static final class PeerQueue {
+
+    private final String peer;
+    private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<Entry>();
+    // queued plus reserved entries, ConcurrentLinkedQueue.size() is not constant time
+    private final AtomicInteger size = new AtomicInteger();
+    // true while in the ready queue or being served by a worker
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private PeerQueue(String peer) {
+      this.peer = peer;
+    }
+  }
+
+  private final class Worker implements Runnable {
+
+    public void run() {
+      while (true) {
+        PeerQueue queue;
+        try {
+          queue = readyPeers.poll(100, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+          break;
+        }
+
+        if (queue != null) {
+          serve(queue);
+        }
+        else if (!running) {
+          // stopped and drained
+          break;
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base;
+
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
+
+import org.jdiameter.api.ApplicationId;
+import org.jdiameter.api.IllegalDiameterStateException;
+import org.jdiameter.api.InternalException;
+import org.jdiameter.api.Message;
+import org.jdiameter.api.RawSession;
+import org.jdiameter.api.Stack;
+
+/**
+ * Creates the jDiameter messages built by the message factories out of a single,
+ * long-lived, raw session instead of a new raw session per message, as these
+ * messages are stateless and only the raw session message builder is needed.
+ *
+ * It also keeps the local Origin-Host and Origin-Realm, as read from the stack
+ * metadata on first use. Each RA entity creates one when its stack is
+ * initialized and hands it to all of its message factories, including the
+ * ones built for each session. Factories built out of a stack alone create
+ * their own.
+ */
+public class RawMessageCreator {
+
+  private final Stack stack;
+
+  private volatile RawSession rawSession;
+  private volatile DiameterIdentity originHost;
+  private volatile DiameterIdentity originRealm;
+
+  public RawMessageCreator(Stack stack) {
+    this.stack = stack;
+  }
+
+  /**
+   * @return the stack the messages are created on
+   */
+  public Stack getStack() {
+    return stack;
+  }
+
+  public Message createMessage(int commandCode, ApplicationId appId) throws IllegalDiameterStateException, InternalException {
+    return getRawSession().createMessage(commandCode, appId);
+  }
+
+  public Message createMessage(int commandCode, ApplicationId appId, long hopByHopId, long endToEndId) throws IllegalDiameterStateException, InternalException {
+    return getRawSession().createMessage(commandCode, appId, hopByHopId, endToEndId);
+  }
+
+  private RawSession getRawSession() throws IllegalDiameterStateException, InternalException {
+    RawSession session = rawSession;
+    if (session == null || !session.isValid()) {
+      // concurrent callers may each get one, only the last is kept
+      rawSession = session = stack.getSessionFactory().getNewRawSession();
+    }
+
+    return session;
+  }
+
+  /**
+   * @return the local peer FQDN, as Origin-Host
+   */
+  public DiameterIdentity getOriginHost() {
+    DiameterIdentity identity = originHost;
+    if (identity == null) {
+      originHost = identity = new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString());
+    }
+
+    return identity;
+  }
+
+  /**
+   * @return the local peer realm, as Origin-Realm
+   */
+  public DiameterIdentity getOriginRealm() {
+    DiameterIdentity identity = originRealm;
+    if (identity == null) {
+      originRealm = identity = new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName());
+    }
+
+    return identity;
+  }
+
+  /**
+   * Sets the local Origin-Host and Origin-Realm in the message, if not present.
+   * 
+   * @param msg the message
+   */
+  public void addOriginHostAndRealm(DiameterMessage msg) {
+    if (!msg.hasOriginHost()) {
+      msg.setOriginHost(getOriginHost());
+    }
+    if (!msg.hasOriginRealm()) {
+      msg.setOriginRealm(getOriginRealm());
+    }
+  }
+
+}
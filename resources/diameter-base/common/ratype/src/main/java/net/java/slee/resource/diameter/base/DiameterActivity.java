@@ -64,6 +64,21 @@ public interface DiameterActivity extends Serializable {
    */
   void sendMessage(DiameterMessage message) throws IOException;
 
+  /**
+   * Sends the given Diameter request on the DiameterActivity without waiting
+   * for its answer. The answer, or the expiry of the request deadline, is
+   * fired on this activity as with {@link #sendMessage(DiameterMessage)}.
+   * 
+   * @param message the Diameter request to send
+   * @param timeout the time, in milliseconds, to wait for the answer, or 0 for the RA default
+   * @return the handle of the request
+   * @throws IOException if the request could not be sent. If the RA has reached its limit of requests
+   *         waiting for answer, its cause is an org.jdiameter.api.OverloadException
+   * @throws UnsupportedOperationException if this is the activity of an application session, such as
+   *         a Credit-Control, Sh or Accounting one, whose requests must go through the session state machine
+   */
+  DiameterRequestHandle sendAsyncMessage(DiameterMessage message, long timeout) throws IOException;
+
   /**
    * Return the Session ID for this activity.
    * 
@@ -42,6 +42,7 @@ import net.java.slee.resource.diameter.base.events.ReAuthRequest;
 import net.java.slee.resource.diameter.base.events.SessionTerminationAnswer;
 import net.java.slee.resource.diameter.base.events.SessionTerminationRequest;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 
 /**
@@ -80,6 +81,17 @@ public interface DiameterMessageFactory {
    */
   DiameterMessage createMessage(DiameterHeader header, DiameterAvp[] avps) throws AvpNotAllowedException;
 
+  /**
+   * Creates a message for the given command with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param command the command of the message
+   * @param avps the AVPs to add to the message
+   * @return a new ExtensionDiameterMessage
+   * @throws AvpNotAllowedException if an AVP is not allowed in the message or occurs too often
+   */
+  ExtensionDiameterMessage createMessage(DiameterCommand command, AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a AbortSessionRequest DiameterMessage for a ASR command containing the given AVPs.
    *
@@ -98,6 +110,16 @@ public interface DiameterMessageFactory {
    */
   AbortSessionRequest createAbortSessionRequest();
 
+  /**
+   * Creates a {@link AbortSessionRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new AbortSessionRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  AbortSessionRequest createAbortSessionRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a AbortSessionAnswer DiameterMessage for a ASA command containing the given AVPs.
    *
@@ -134,6 +156,16 @@ public interface DiameterMessageFactory {
    */
   AccountingRequest createAccountingRequest();
 
+  /**
+   * Creates a {@link AccountingRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new AccountingRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  AccountingRequest createAccountingRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a AccountingAnswer DiameterMessage for a ACA command containing the given AVPs.
    *
@@ -170,6 +202,16 @@ public interface DiameterMessageFactory {
    */
   CapabilitiesExchangeRequest createCapabilitiesExchangeRequest();
 
+  /**
+   * Creates a {@link CapabilitiesExchangeRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new CapabilitiesExchangeRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  CapabilitiesExchangeRequest createCapabilitiesExchangeRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a CapabilitiesExchangeAnswer DiameterMessage for a CEA command containing the given AVPs.
    *
@@ -206,6 +248,16 @@ public interface DiameterMessageFactory {
    */
   DeviceWatchdogRequest createDeviceWatchdogRequest();
 
+  /**
+   * Creates a {@link DeviceWatchdogRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new DeviceWatchdogRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  DeviceWatchdogRequest createDeviceWatchdogRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a DeviceWatchdogAnswer DiameterMessage for a DWA command containing the given AVPs.
    *
@@ -242,6 +294,16 @@ public interface DiameterMessageFactory {
    */
   DisconnectPeerRequest createDisconnectPeerRequest();
 
+  /**
+   * Creates a {@link DisconnectPeerRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new DisconnectPeerRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  DisconnectPeerRequest createDisconnectPeerRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a DisconnectPeerAnswer DiameterMessage for a DPA command containing the given AVPs.
    *
@@ -278,6 +340,16 @@ public interface DiameterMessageFactory {
    */
   ReAuthRequest createReAuthRequest();
 
+  /**
+   * Creates a {@link ReAuthRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new ReAuthRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  ReAuthRequest createReAuthRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a ReAuthAnswer DiameterMessage for a RAA command containing the given AVPs.
    *
@@ -314,6 +386,16 @@ public interface DiameterMessageFactory {
    */
   SessionTerminationRequest createSessionTerminationRequest();
 
+  /**
+   * Creates a {@link SessionTerminationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new SessionTerminationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  SessionTerminationRequest createSessionTerminationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a SessionTerminationAnswer DiameterMessage for a STA command containing the given AVPs.
    *
@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package net.java.slee.resource.diameter.base;
+
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+
+/**
+ * Handle of a request sent with
+ * {@link DiameterActivity#sendAsyncMessage(DiameterMessage, long)}.
+ * None of its methods block.
+ */
+public interface DiameterRequestHandle {
+
+  /**
+   * @return the request sent
+   */
+  DiameterMessage getRequest();
+
+  /**
+   * @return true if the request was answered, timed out or was cancelled
+   */
+  boolean isDone();
+
+  /**
+   * @return true if no answer was received within the request deadline
+   */
+  boolean isTimedOut();
+
+  /**
+   * @return true if the request was cancelled
+   */
+  boolean isCancelled();
+
+  /**
+   * @return the answer received, or null if the request is not answered (yet)
+   */
+  DiameterMessage getAnswer();
+
+  /**
+   * Stops waiting for the answer, which will not be fired if received later.
+   * The request itself is not withdrawn from the Diameter stack: it still
+   * counts for the RA limit of requests waiting for answer until it is
+   * answered or its deadline expires.
+   * 
+   * @return false if the request was already answered, timed out or cancelled
+   */
+  boolean cancel();
+
+}
@@ -25,26 +25,13 @@ package org.mobicents.slee.resource.diameter.base;
 import static org.jdiameter.client.impl.helpers.Parameters.MessageTimeOut;
 
 import java.io.IOException;
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.management.ObjectName;
-import javax.slee.Address;
-import javax.slee.facilities.EventLookupFacility;
 import javax.slee.facilities.Tracer;
-import javax.slee.resource.ActivityFlags;
-import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.ConfigProperties;
-import javax.slee.resource.EventFlags;
-import javax.slee.resource.FailureReason;
-import javax.slee.resource.FireableEventType;
-import javax.slee.resource.InvalidConfigurationException;
 import javax.slee.resource.Marshaler;
-import javax.slee.resource.ReceivableService;
-import javax.slee.resource.ResourceAdaptor;
 import javax.slee.resource.ResourceAdaptorContext;
-import javax.slee.resource.SleeEndpoint;
 
 import net.java.slee.resource.diameter.Validator;
 import net.java.slee.resource.diameter.base.AccountingClientSessionActivity;
@@ -56,6 +43,7 @@ import net.java.slee.resource.diameter.base.DiameterActivity;
 import net.java.slee.resource.diameter.base.DiameterAvpFactory;
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.DiameterProvider;
+import net.java.slee.resource.diameter.base.DiameterRequestHandle;
 import net.java.slee.resource.diameter.base.events.AbortSessionRequest;
 import net.java.slee.resource.diameter.base.events.AccountingRequest;
 import net.java.slee.resource.diameter.base.events.CapabilitiesExchangeRequest;
@@ -69,7 +57,6 @@ import net.java.slee.resource.diameter.base.events.avp.AvpUtilities;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
 import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 
-import org.jboss.mx.util.MBeanServerLocator;
 import org.jdiameter.api.Answer;
 import org.jdiameter.api.ApplicationId;
 import org.jdiameter.api.Avp;
@@ -78,13 +65,10 @@ import org.jdiameter.api.AvpSet;
 import org.jdiameter.api.IllegalDiameterStateException;
 import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
-import org.jdiameter.api.Peer;
-import org.jdiameter.api.PeerTable;
 import org.jdiameter.api.RawSession;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.SessionFactory;
-import org.jdiameter.api.Stack;
 import org.jdiameter.api.acc.ClientAccSession;
 import org.jdiameter.api.acc.ServerAccSession;
 import org.jdiameter.api.app.AppSession;
@@ -97,11 +81,7 @@ import org.jdiameter.client.impl.app.auth.ClientAuthSessionImpl;
 import org.jdiameter.client.impl.parser.MessageParser;
 import org.jdiameter.server.impl.app.acc.ServerAccSessionImpl;
 import org.jdiameter.server.impl.app.auth.ServerAuthSessionImpl;
-import org.mobicents.diameter.stack.DiameterListener;
-import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
-import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.LocalDiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.ValidatorImpl;
+import org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor;
 import org.mobicents.slee.resource.diameter.base.events.AbortSessionAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.AbortSessionRequestImpl;
 import org.mobicents.slee.resource.diameter.base.events.AccountingAnswerImpl;
@@ -121,7 +101,6 @@ import org.mobicents.slee.resource.diameter.base.events.SessionTerminationAnswer
 import org.mobicents.slee.resource.diameter.base.events.SessionTerminationRequestImpl;
 import org.mobicents.slee.resource.diameter.base.handlers.AccountingSessionFactory;
 import org.mobicents.slee.resource.diameter.base.handlers.AuthorizationSessionFactory;
-import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
 
 /**
  * Diameter Base Resource Adaptor
@@ -134,7 +113,7 @@ import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  * @author Erick Svenson
  */
-public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterListener, DiameterRAInterface {
+public class DiameterBaseResourceAdaptor extends AbstractDiameterResourceAdaptor {
 
   private static final long serialVersionUID = 1L;
 
@@ -150,75 +129,21 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
 
   private List<ApplicationId> acctApplicationIds;
 
-  /**
-   * caches the eventIDs, avoiding lookup in container
-   */
-  public final EventIDCache eventIdCache = new EventIDCache();
-
-  /**
-   * tells the RA if an event with a specified ID should be filtered or not
-   */
-  private final EventIDFilter eventIDFilter = new EventIDFilter();
-
-  /**
-   * The ResourceAdaptorContext interface is implemented by the SLEE. It provides the Resource
-   * Adaptor with the required capabilities in the SLEE to execute its work. The ResourceAdaptorCon-
-   * text object holds references to a number of objects that are of interest to many Resource Adaptors. A
-   * resource adaptor object is provided with a ResourceAdaptorContext object when the setResour-
-   * ceAdaptorContext method of the ResourceAdaptor interface is invoked on the resource adaptor
-   * object. 
-   */
-  private ResourceAdaptorContext raContext;
-
-  /**
-   * The SLEE endpoint defines the contract between the SLEE and the resource
-   * adaptor that enables the resource adaptor to deliver events
-   * asynchronously to SLEE endpoints residing in the SLEE. This contract
-   * serves as a generic contract that allows a wide range of resources to be
-   * plugged into a SLEE environment via the resource adaptor architecture.
-   * For further information see JSLEE v1.1 Specification Page 307 The
-   * sleeEndpoint will be initialized in entityCreated() method.
-   */
-  private transient SleeEndpoint sleeEndpoint = null;
-
-  /**
-   * A tracer is represented in the SLEE by the Tracer interface. Notification sources access the Tracer Facil-
-   * ity through a Tracer object that implements the Tracer interface. A Tracer object can be obtained by
-   * SBBs via the SbbContext interface, by resource adaptor entities via the ResourceAdaptorContext
-   * interface, and by profiles via the ProfileContext interface. 
-   */
-  private Tracer tracer;
-
-  private DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
+  private DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler(new DiameterBaseMarshaler.EventFactory() {
+    public DiameterMessage createEvent(Message message) {
+      return DiameterBaseResourceAdaptor.this.createEvent(message);
+    }
+  });
 
   // Diameter Specific Properties ----------------------------------------
 
-  private Stack stack;
   private SessionFactory sessionFactory = null;
   private long messageTimeout = 5000;
-  private long activityRemoveDelay = 30000;
-
-  private ObjectName diameterMultiplexerObjectName = null;
-  private DiameterStackMultiplexerMBean diameterMux = null;
 
   private DiameterAvpFactory avpFactory = null;
 
   private DiameterMessageFactory messageFactory = null;
 
-  /**
-   * the EventLookupFacility is used to look up the event id of incoming
-   * events
-   */
-  private transient EventLookupFacility eventLookup = null;
-
-  /**
-   * The list of activites stored in this resource adaptor. If this resource
-   * adaptor were a distributed and highly available solution, this storage
-   * were one of the candidates for distribution.
-   */
-  //private transient ConcurrentHashMap<ActivityHandle, DiameterActivity> activities = null;
-  private DiameterActivityManagement activities;
-
   /**
    * A link to the DiameterProvider which then will be exposed to Sbbs
    */
@@ -228,46 +153,19 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
   protected transient AccountingSessionFactory accSessionFactory = null;
   protected transient SessionFactory proxySessionFactory = null;
 
-  /**
-   * for all events we are interested in knowing when the event failed to be processed
-   */
-  private static final int EVENT_FLAGS = getEventFlags();
-
-  private static int getEventFlags() {
-    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
-    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
-    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
-    return eventFlags;
-  }
-
-  private static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.REQUEST_ENDED_CALLBACK;
-  private static final int MARSHALABLE_ACTIVITY_FLAGS = ActivityFlags.setSleeMayMarshal(DEFAULT_ACTIVITY_FLAGS);
   public DiameterBaseResourceAdaptor() {
-    // TODO: Initialize any default values.
+    super("DiameterBaseResourceAdaptor", "Diameter Base RA", new EventIDCache());
   }
 
   // Lifecycle methods ---------------------------------------------------
 
   public void setResourceAdaptorContext(ResourceAdaptorContext context) {
-    this.raContext = context;
+    super.setResourceAdaptorContext(context);
 
-    this.tracer = context.getTracer("DiameterBaseResourceAdaptor");
-
-    this.sleeEndpoint = context.getSleeEndpoint();
-    this.eventLookup = context.getEventLookupFacility();
     this.raProvider = new DiameterProviderImpl(this);
 
   }
 
-  public void unsetResourceAdaptorContext() {
-    this.raContext = null;
-
-    this.tracer = null;
-
-    this.sleeEndpoint = null;
-    this.eventLookup = null;
-  }
-
   public void raActive() {
     if(tracer.isFineEnabled()) {
       tracer.fine("Diameter Base RA :: raActive.");
@@ -278,37 +176,25 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
         tracer.info("Activating Diameter Base RA Entity");
       }
 
-      this.diameterMultiplexerObjectName = new ObjectName("diameter.mobicents:service=DiameterStackMultiplexer");
-      Object object = null;
-
-      if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
-        // trying to get via MBeanServer
-        object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      } else {
-        // trying to get via locateJBoss
-        object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      }
-
-      if (object != null && object instanceof DiameterStackMultiplexerMBean) {
-        this.diameterMux = (DiameterStackMultiplexerMBean) object;
-      }
-
-      // this.activities = new ConcurrentHashMap<ActivityHandle, DiameterActivity>();
+      activateCore();
 
       // Initialize the protocol stack
       initStack();
 
+      // Track the configured peers
+      initPeers();
+
+      // Share one raw message creator among all message factories
+      initMessageCreator();
+
       // Initialize activity storage
       initActivitiesMgmt();
 
+      // Resolve event types to fire
+      eventIdCache.init(eventLookup, tracer);
+
       // Initialize factories
-      this.messageFactory = new DiameterMessageFactoryImpl(stack);
+      this.messageFactory = new DiameterMessageFactoryImpl(rawMessageCreator);
       this.avpFactory = new DiameterAvpFactoryImpl();
 
       // Setup session factories
@@ -371,53 +257,6 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
     }
   }
 
-  public void raStopping() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: raStopping.");
-    }
-
-    try{
-      diameterMux.unregisterListener(this);
-    }
-    catch (Exception e) {
-      tracer.severe("Failed to unregister Base RA from Diameter Mux.", e);
-    }
-    //FIXME: check for last cluster member?
-    //    synchronized (this.activities) {
-    //      for (ActivityHandle activityHandle : activities.keySet()) {
-    //        try {
-    //          if(tracer.isInfoEnabled()) {
-    //            tracer.info("Ending activity [" + activityHandle + "]");
-    //          }
-    //
-    //          activities.get((DiameterActivityHandle)activityHandle).endActivity();
-    //        }
-    //        catch (Exception e) {
-    //          tracer.severe("Error Deactivating Activity", e);
-    //        }
-    //      }
-    //    }
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Base RA :: STOPPING completed.");
-    }
-  }
-
-  public void raInactive() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: raInactive.");
-    }
-
-    //    synchronized (this.activities) {
-    //      activities.clear();
-    //    }
-    activities = null;
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Base RA :: INACTIVE completed.");
-    }
-  }
-
   public void raConfigure(ConfigProperties properties) {
     if (tracer.isFineEnabled()) {
       tracer.fine("Diameter Base RA :: raConfigure");
@@ -427,6 +266,8 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
 
     parseApplicationIds((String) properties.getProperty(ACCT_APPLICATION_IDS).getValue(), false);
 
+    super.raConfigure(properties);
+
     if(tracer.isInfoEnabled()) {
       tracer.info("RA supporting " + authApplicationIds + " " + acctApplicationIds);
     }
@@ -456,23 +297,9 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
   }
 
   public void raUnconfigure() {
-    // Clean up!
-    this.activities = null;
-    this.raContext = null;
-    this.eventLookup = null;
-    this.raProvider = null;
-    this.sleeEndpoint = null;
-    this.stack = null;
-  }
-
-  // Configuration management methods ------------------------------------
+    super.raUnconfigure();
 
-  public void raVerifyConfiguration(ConfigProperties properties) throws InvalidConfigurationException {
-    // TODO Verify configuration!
-  }
-
-  public void raConfigurationUpdate(ConfigProperties properties) {
-    // this ra does not support config update while entity is active
+    this.raProvider = null;
   }
 
   // Interface access methods -------------------------------------------- 
@@ -490,183 +317,14 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
     return marshaler;
   }
 
-  // Event filtering methods ---------------------------------------------
-
-  public void serviceActive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceActive(serviceInfo);   
-  }
-
-  public void serviceStopping(ReceivableService serviceInfo) {
-    eventIDFilter.serviceStopping(serviceInfo);
-  }
-
-  public void serviceInactive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceInactive(serviceInfo); 
-  }
-
-  // Mandatory callback methods ------------------------------------------
-
-  public void queryLiveness(ActivityHandle handle) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Base RA :: queryLiveness :: handle[" + handle + "].");
-    }
-
-    DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle) handle);
-
-    if (activity != null && !activity.isValid()) {
-      try {
-        sleeEndpoint.endActivity(handle);
-      }
-      catch (Exception e) {
-        tracer.severe("Failure ending non-live activity.", e);
-      }
-    }
-  }
-
-  public Object getActivity(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: getActivity :: handle[" + handle + "].");
-    }
-
-    return this.activities.get((DiameterActivityHandle) handle);
-  }
-
-  public ActivityHandle getActivityHandle(Object activity) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: getActivityHandle :: activity[" + activity + "].");
-    }
-
-    if (!(activity instanceof DiameterActivity)) {
-      return null;
-    }
-
-    DiameterActivity inActivity = (DiameterActivity) activity;
-
-    //for (Map.Entry<ActivityHandle, DiameterActivity> activityInfo : this.activities.entrySet()) {
-    //  Object curActivity = activityInfo.getValue();
-    //
-    //  if (curActivity.equals(inActivity)) {
-    //    return activityInfo.getKey();
-    //  }
-    //}
-    return ((DiameterActivityImpl)inActivity).getActivityHandle();
-  }
-
-  public void administrativeRemove(ActivityHandle handle) {
-    // TODO what to do here?
-  }
-
-  // Optional callback methods -------------------------------------------
-
-  public void eventProcessingFailed(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags, FailureReason reason) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Base RA :: eventProcessingFailed :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "], reason[" + reason + "].");
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventProcessingSuccessful(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Base RA :: eventProcessingSuccessful :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "].");
-    }
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventUnreferenced(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], service[" + service + "], flags[" + flags + "].");
-    }
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-	private void processAfterEventDelivery(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service,
-			int flags) {
-		DiameterActivityImpl activity = (DiameterActivityImpl) getActivity(handle);
-		if (activity != null) {
-			synchronized (activity) {
-				if (activity.isTerminateAfterProcessing()) {
-					activity.endActivity();
-				}
-			}
-		}
-	}
-  
-  public void activityEnded(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: activityEnded :: handle[" + handle + ".");
-    }
-
-    if(this.activities != null) {
-      synchronized (this.activities) {
-        this.activities.remove((DiameterActivityHandle)handle);
-      }
-    }
-  }
-
-  public void activityUnreferenced(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: activityUnreferenced :: handle[" + handle + "].");
-    }
-
-    //this.activityEnded(handle);
-    if(handle instanceof DiameterActivityHandle) {
-      this.endActivity((DiameterActivityHandle) handle);
-    }
-  }
-
   // Event and Activities management -------------------------------------
 
-  public boolean fireEvent(Object event, ActivityHandle handle, FireableEventType eventID, Address address, boolean useFiltering, boolean transacted) {
-
-    if (useFiltering && eventIDFilter.filterEvent(eventID)) {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Event " + eventID + " filtered");
-      }
-    }
-    else if (eventID == null) {
-      tracer.severe("Event ID for " + eventID + " is unknown, unable to fire.");
-    }
-    else {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Firing event " + event + " on handle " + handle);
-      }
-      try {
-        /* TODO: Support transacted fire of events when in cluster
-        if (transacted){
-          this.raContext.getSleeEndpoint().fireEventTransacted(handle, eventID, event, address, null, EVENT_FLAGS);
-        }
-        else */{
-          this.raContext.getSleeEndpoint().fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
-        }       
-        return true;
-      }
-      catch (Exception e) {
-        tracer.severe("Error firing event.", e);
-      }
-    }
-
-    return false;
-  }
-
-  /*
-   * (non-Javadoc)
-   * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#fireEvent(java.lang.String, org.jdiameter.api.Request, org.jdiameter.api.Answer)
-   */
-  public void fireEvent(String sessionId, Message message) {
-    DiameterMessage event = (DiameterMessage) createEvent(message);
-
-    FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
-
-    this.fireEvent(event, getActivityHandle(sessionId), eventId, null, true, message.isRequest());
-  }
-
   /**
    * Create Event object from a JDiameter message (request or answer)
    * 
    * @return a DiameterMessage object wrapping the request/answer
    */
-  private DiameterMessage createEvent(Message message) {
+  protected DiameterMessage createEvent(Message message) {
     if (message == null) {
       throw new NullPointerException("Message argument cannot be null while creating event.");
     }
@@ -697,48 +355,6 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
     }
   }
 
-  // Session Management --------------------------------------------------
-
-  /**
-   * Method for performing tasks when activity is created, such as informing SLEE about it and storing into internal map.
-   * 
-   * @param ac the activity that has been created
-   */
-  private void addActivity(DiameterActivity ac, boolean suspended) {
-    try {
-      // Inform SLEE that Activity Started
-      DiameterActivityImpl activity = (DiameterActivityImpl) ac;
-
-      if (suspended) {
-        sleeEndpoint.startActivitySuspended(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-      else {
-        sleeEndpoint.startActivity(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-
-      // Put it into our activites map
-      activities.put(activity.getActivityHandle(), activity);
-
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Activity started [" + activity.getActivityHandle() + "]");
-      }
-    }
-    catch (Exception e) {
-      tracer.severe("Error creating activity", e);
-      //FIXME: invalidate session?
-      throw new RuntimeException("Error creating activity", e);
-    }
-  }
-
-  // Others --------------------------------------------------------------
-
-  /**
-   * Retrieves the RA context
-   */
-  public ResourceAdaptorContext getRaContext() {
-    return raContext;
-  }
-
   // Private Methods -----------------------------------------------------
 
   /**
@@ -767,27 +383,10 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
       tracer.info("Diameter Base RA :: Successfully initialized stack.");
     }
   }
-  private void initActivitiesMgmt() {
-	  this.activities = new LocalDiameterActivityManagement(this.raContext, activityRemoveDelay);
-  }
-
-  /**
-   * Create the Diameter Activity Handle for an given session id
-   * 
-   * @param sessionId the session identifier to create the activity handle from
-   * @return a DiameterActivityHandle for the provided sessionId
-   */
-  protected DiameterActivityHandle getActivityHandle(String sessionId) {
-    return new DiameterActivityHandle(sessionId);
-  }
 
   // Network Req Listener ------------------------------------------------
 
-  /*
-   * (non-Javadoc)
-   * @see org.jdiameter.api.NetworkReqListener#processRequest(org.jdiameter.api.Request)
-   */
-  public Answer processRequest(Request request) {
+  protected Answer doProcessRequest(Request request) {
     try {
       DiameterActivityImpl activity = (DiameterActivityImpl) raProvider.createActivity(request);
 
@@ -834,37 +433,7 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.jdiameter.api.EventListener#receivedSuccessMessage(org.jdiameter.api.Message, org.jdiameter.api.Message)
    */
   public void receivedSuccessMessage(Request req, Answer ans) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: receivedSuccessMessage :: " + "Request[" + req + "], Answer[" + ans + "].");
-    }
-
-    try {
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Received Message Result-Code: " + ans.getResultCode().getUnsigned32());
-      }
-    }
-    catch (AvpDataException ignore) {
-      // ignore, this was just for informational purposes...
-    }
-  }
-
-  /*
-   * (non-Javadoc)
-   * 
-   * @see org.jdiameter.api.EventListener#timeoutExpired(org.jdiameter.api.Message)
-   */
-  public void timeoutExpired(Request req) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Base RA :: timeoutExpired :: " + "Request[" + req + "].");
-    }
-
-    // Message delivery timed out - we have to remove activity
-    try {
-      activities.get(getActivityHandle(req.getSessionId())).endActivity();
-    }
-    catch (Exception e) {
-      tracer.severe("Failure processing timeout message.", e);
-    }
+    messageTracer.answerReceived(req, ans);
   }
 
   // Base Session Creation Listener --------------------------------------
@@ -874,13 +443,13 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#sessionCreated(org.jdiameter.api.acc.ServerAccSession)
    */
   public void sessionCreated(ServerAccSession session) {
-    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), stack, new DiameterIdentity[]{});
+    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), rawMessageCreator);
 
     AccountingServerSessionActivityImpl activity = new AccountingServerSessionActivityImpl(msgFactory, avpFactory, session, null, null, stack);
 
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false);
+    addActivity(activity, false, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   /*
@@ -888,13 +457,13 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#sessionCreated(org.jdiameter.api.auth.ServerAuthSession)
    */
   public void sessionCreated(ServerAuthSession session) {
-    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), stack, new DiameterIdentity[]{});
+    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), rawMessageCreator);
 
     AuthServerSessionActivityImpl activity = new AuthServerSessionActivityImpl(msgFactory, avpFactory, session, null, null);
 
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false);
+    addActivity(activity, false, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   /*
@@ -902,13 +471,13 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#sessionCreated(org.jdiameter.api.auth.ClientAuthSession)
    */
   public void sessionCreated(ClientAuthSession session) {
-    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), stack, new DiameterIdentity[]{});
+    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), rawMessageCreator);
 
     AuthClientSessionActivityImpl activity = new AuthClientSessionActivityImpl(msgFactory, avpFactory, session, null, null);
 
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false /*true*/);
+    addActivity(activity, false /*true*/, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   /*
@@ -916,13 +485,13 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#sessionCreated(org.jdiameter.api.acc.ClientAccSession)
    */
   public void sessionCreated(ClientAccSession session) {
-    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(stack);
+    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(rawMessageCreator);
 
     AccountingClientSessionActivityImpl activity = new AccountingClientSessionActivityImpl(msgFactory, avpFactory, session, null, null);
 
     activity.setSessionListener(this);
     // session.addStateChangeNotification(activity);
-    addActivity(activity, false /*true*/);
+    addActivity(activity, false /*true*/, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   /*
@@ -930,7 +499,7 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#sessionCreated(org.jdiameter.api.Session)
    */
   public void sessionCreated(Session session) {
-    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(session, stack, null, null);
+    DiameterMessageFactoryImpl msgFactory = new DiameterMessageFactoryImpl(session, rawMessageCreator);
 
     DiameterActivityImpl activity = new DiameterActivityImpl(msgFactory, avpFactory, session, this, null, null);
 
@@ -938,7 +507,7 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
     // false, since we can't know if it comes from SBB or RA callback
-    addActivity(activity, false);
+    addActivity(activity, false, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   //  /*
@@ -986,42 +555,6 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
 
   // Handle for session state change -------------------------------------
 
-  /*
-   * (non-Javadoc)
-   * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener
-   *   #endActivity(org.mobicents.slee.resource.diameter.base.DiameterActivityHandle)
-   */
-  public void endActivity(DiameterActivityHandle activityHandle) {
-    if(this.activities.containsKey(activityHandle)) {
-      this.sleeEndpoint.endActivity(activityHandle);
-    }
-    else {
-
-    }
-  }
-
-  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.startActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to start activity remove timer.", e);
-    }
-  }
-
-  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.stopActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to stop activity remove timer.", e);
-    }
-  }
-
-  public void update(DiameterActivityHandle activityHandle,DiameterActivity da) {
-    this.activities.update(activityHandle,da);
-  }
-
   public void stateChanged(AppSession source, Enum oldState, Enum newState) {
     if(source instanceof ServerAuthSession || source instanceof ClientAuthSession) {
       AuthSessionActivityImpl activity = (AuthSessionActivityImpl) this.getActivity(this.getActivityHandle(source.getSessionId()));
@@ -1044,7 +577,6 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
     protected final Tracer tracer = getRaContext().getTracer("DiameterProvider");;
 
     protected DiameterBaseResourceAdaptor ra;
-    protected final Validator validator = new ValidatorImpl();
 
     /**
      * Constructor.
@@ -1303,32 +835,35 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
 
     /*
      * (non-Javadoc)
-     * @see net.java.slee.resource.diameter.base.DiameterProvider#getConnectedPeers()
+     * @see net.java.slee.resource.diameter.base.DiameterProvider#sendAsyncRequest(net.java.slee.resource.diameter.base.events.DiameterMessage, long)
      */
-    public DiameterIdentity[] getConnectedPeers() {
-      if (ra.stack != null) {
-        try {
-          // Get the list of peers from the stack
-          List<Peer> peers = ra.stack.unwrap(PeerTable.class).getPeerTable();
-
-          DiameterIdentity[] result = new DiameterIdentity[peers.size()];
-
-          int i = 0;
+    public DiameterRequestHandle sendAsyncRequest(DiameterMessage message, long timeout) throws IOException {
+      if (!(message instanceof DiameterMessageImpl)) {
+        throw new IOException("Trying to send wrong type of message? [" + message.getClass() + "]");
+      }
 
-          // Get each peer from the list and make a DiameterIdentity
-          for (Peer peer : peers) {
-            DiameterIdentity identity = new DiameterIdentity(peer.getUri().toString());
-            result[i++] = identity;
-          }
+      DiameterActivityImpl activity;
+      try {
+        DiameterActivityHandle handle = getActivityHandle(message.getSessionId());
 
-          return result;
-        }
-        catch (Exception e) {
-          tracer.severe("Failure getting peer list.", e);
+        activity = (DiameterActivityImpl) getActivity(handle);
+        if (activity == null) {
+          activity = (DiameterActivityImpl) createActivity(((DiameterMessageImpl) message).getGenericData());
         }
       }
+      catch (Exception e) {
+        throw new IOException("Failed to send message, due to: " + e.getMessage(), e);
+      }
 
-      return null;
+      return activity.sendAsyncMessage(message, timeout);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see net.java.slee.resource.diameter.base.DiameterProvider#getConnectedPeers()
+     */
+    public DiameterIdentity[] getConnectedPeers() {
+      return ra.getConnectedPeers();
     }
 
     /*
@@ -1336,7 +871,7 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
      * @see net.java.slee.resource.diameter.base.DiameterProvider#getPeerCount()
      */
     public int getPeerCount() {
-      return getConnectedPeers().length;
+      return ra.getPeerCount();
     }
 
     /**
@@ -1373,7 +908,7 @@ public class DiameterBaseResourceAdaptor implements ResourceAdaptor, DiameterLis
      */
     @Override
     public Validator getValidator() {
-      return this.validator;
+      return validator;
     }
   }
 }
\ No newline at end of file
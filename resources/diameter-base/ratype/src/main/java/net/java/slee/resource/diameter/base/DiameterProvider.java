@@ -95,14 +95,30 @@ public interface DiameterProvider {
 
   /**
    * Synchronously send a Diameter request and block until a response is
-   * received.
+   * received, or the RA request timeout expires.
    * 
    * @param message
    *            the Diameter message to send
-   * @return the Diameter message containing the response
+   * @return the Diameter message containing the response, or null if none was received
    */
   DiameterMessage sendSyncRequest(DiameterMessage message) throws IOException;
 
+  /**
+   * Send a Diameter request without blocking. The answer is fired on the
+   * activity for the request Session-Id, as with
+   * {@link DiameterActivity#sendAsyncMessage(DiameterMessage, long)}.
+   * 
+   * @param message
+   *            the Diameter message to send
+   * @param timeout
+   *            the time, in milliseconds, to wait for the answer, or 0 for the RA default
+   * @return the handle of the request
+   * @throws UnsupportedOperationException
+   *            if the activity for the request Session-Id is the one of an Accounting or
+   *            Authorization session, whose requests must go through the session state machine
+   */
+  DiameterRequestHandle sendAsyncRequest(DiameterMessage message, long timeout) throws IOException;
+
   /**
    * Return the number of peers this Diameter resource adaptor is connected
    * to.
@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.resource.diameter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.slee.EventTypeID;
+import javax.slee.UnrecognizedEventException;
+import javax.slee.facilities.EventLookupFacility;
+import javax.slee.facilities.Tracer;
+import javax.slee.resource.FireableEventType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that {@link FireableEventTypeResolver} only looks up the event types
+ * declared by the RA type and copes with event types the SLEE does not know.
+ */
+public class FireableEventTypeResolverTest {
+
+  private static final String PREFIX = "net.java.slee.resource.diameter.test.events.";
+
+  private static final String ERROR_ANSWER = PREFIX + "ErrorAnswer";
+
+  private final List<String> lookedUp = new ArrayList<String>();
+  private final List<String> warnings = new ArrayList<String>();
+
+  private FireableEventTypeResolver createResolver(String... declaredEventNames) {
+    Map<Integer, String> eventNames = new HashMap<Integer, String>();
+    eventNames.put(272, PREFIX + "CreditControl");
+    eventNames.put(274, PREFIX + "AbortSession");
+
+    return new FireableEventTypeResolver(eventNames, ERROR_ANSWER, null,
+        declaredEventNames.length > 0 ? new HashSet<String>(Arrays.asList(declaredEventNames)) : null);
+  }
+
+  private EventLookupFacility eventLookup(final String... unrecognized) {
+    return (EventLookupFacility) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { EventLookupFacility.class }, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String eventName = ((EventTypeID) args[0]).getName();
+        lookedUp.add(eventName);
+        for (String name : unrecognized) {
+          if (name.equals(eventName)) {
+            throw new UnrecognizedEventException(eventName);
+          }
+        }
+        return eventType(eventName);
+      }
+    });
+  }
+
+  private Tracer tracer() {
+    return (Tracer) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Tracer.class }, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("warning".equals(method.getName())) {
+          warnings.add((String) args[0]);
+        }
+        return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+      }
+    });
+  }
+
+  private static FireableEventType eventType(final String eventName) {
+    return (FireableEventType) Proxy.newProxyInstance(FireableEventTypeResolverTest.class.getClassLoader(), new Class<?>[] { FireableEventType.class }, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        return "toString".equals(method.getName()) ? eventName : null;
+      }
+    });
+  }
+
+  @Test
+  public void testAllEventTypesDeclared() {
+    FireableEventTypeResolver resolver = createResolver();
+    EventLookupFacility eventLookup = eventLookup();
+    resolver.init(eventLookup, tracer());
+
+    // 2 command codes, request and answer each, plus the error answer
+    Assert.assertEquals(5, lookedUp.size());
+
+    Assert.assertEquals(PREFIX + "CreditControlRequest", resolver.getEventId(eventLookup, 272, true, false).toString());
+    Assert.assertEquals(PREFIX + "AbortSessionAnswer", resolver.getEventId(eventLookup, 274, false, false).toString());
+    Assert.assertEquals(ERROR_ANSWER, resolver.getEventId(eventLookup, 272, false, true).toString());
+
+    // resolved on init, no more lookups
+    Assert.assertEquals(5, lookedUp.size());
+  }
+
+  @Test
+  public void testOnlyDeclaredEventTypesLookedUp() {
+    FireableEventTypeResolver resolver = createResolver(PREFIX + "CreditControlRequest", PREFIX + "CreditControlAnswer");
+    EventLookupFacility eventLookup = eventLookup();
+    resolver.init(eventLookup, tracer());
+
+    Assert.assertEquals(2, lookedUp.size());
+    Assert.assertTrue(lookedUp.containsAll(Arrays.asList(PREFIX + "CreditControlRequest", PREFIX + "CreditControlAnswer")));
+
+    Assert.assertNotNull(resolver.getEventId(eventLookup, 272, false, false));
+    Assert.assertNull(resolver.getEventId(eventLookup, 274, true, false));
+    Assert.assertNull(resolver.getEventId(eventLookup, 272, false, true));
+    Assert.assertEquals(2, lookedUp.size());
+  }
+
+  @Test
+  public void testUnrecognizedEventType() {
+    FireableEventTypeResolver resolver = createResolver();
+    EventLookupFacility eventLookup = eventLookup(PREFIX + "AbortSessionRequest");
+    resolver.init(eventLookup, tracer());
+
+    Assert.assertEquals(Collections.singletonList("Event type " + PREFIX + "AbortSessionRequest is not recognized, messages of this type will not be fired."), warnings);
+    Assert.assertNull(resolver.getEventId(eventLookup, 274, true, false));
+    Assert.assertNotNull(resolver.getEventId(eventLookup, 274, false, false));
+  }
+
+  @Test
+  public void testUnknownCommandCode() {
+    FireableEventTypeResolver resolver = createResolver();
+    EventLookupFacility eventLookup = eventLookup();
+    resolver.init(eventLookup, tracer());
+
+    // no extension event type configured
+    Assert.assertNull(resolver.getEventId(eventLookup, 999, true, false));
+  }
+
+}
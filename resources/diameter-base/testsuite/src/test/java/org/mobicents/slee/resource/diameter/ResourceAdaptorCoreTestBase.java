@@ -0,0 +1,371 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+
+import javax.slee.EventTypeID;
+import javax.slee.ServiceID;
+import javax.slee.facilities.EventLookupFacility;
+import javax.slee.facilities.Tracer;
+import javax.slee.resource.ActivityHandle;
+import javax.slee.resource.FireableEventType;
+import javax.slee.resource.ReceivableService;
+import javax.slee.resource.ReceivableService.ReceivableEvent;
+import javax.slee.resource.ResourceAdaptorContext;
+import javax.slee.resource.SleeEndpoint;
+
+import org.jdiameter.api.Request;
+import org.jdiameter.api.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
+
+/**
+ * Checks the event dispatch and activity lifecycle shared by all RAs through
+ * {@link AbstractDiameterResourceAdaptor}. Each RA testsuite runs it against its
+ * own RA, with the SLEE side stubbed.
+ */
+public abstract class ResourceAdaptorCoreTestBase {
+
+  private static final String SESSION_ID = "aaa.mobicents.org;1096298391;1;core";
+  private static final int COMMAND_CODE = 258;
+
+  private static final EventTypeID EVENT_TYPE_ID = new EventTypeID("net.java.slee.resource.diameter.core.TestEvent", "java.net", "0.8");
+  private static final ServiceID SERVICE_ID = new ServiceID("CoreTestService", "org.mobicents", "1.0");
+
+  private final List<Object[]> firedEvents = new ArrayList<Object[]>();
+  private final List<Object[]> startedActivities = new ArrayList<Object[]>();
+  private final List<Object> endedActivities = new ArrayList<Object>();
+
+  private Timer timer;
+  private AbstractDiameterResourceAdaptor ra;
+
+  /**
+   * @return a new, not yet configured, instance of the RA to test
+   */
+  protected abstract AbstractDiameterResourceAdaptor createResourceAdaptor();
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new Timer(true);
+
+    ra = createResourceAdaptor();
+    ra.setResourceAdaptorContext(stub(ResourceAdaptorContext.class, new Stub() {
+      public Object invoke(String name, Object[] args) {
+        if ("getTracer".equals(name)) {
+          return stub(Tracer.class, null);
+        }
+        else if ("getSleeEndpoint".equals(name)) {
+          return stub(SleeEndpoint.class, new Stub() {
+            public Object invoke(String name, Object[] args) {
+              if ("fireEvent".equals(name)) {
+                firedEvents.add(args);
+              }
+              else if ("endActivity".equals(name)) {
+                endedActivities.add(args[0]);
+              }
+              else if (name.startsWith("startActivity")) {
+                startedActivities.add(new Object[] { name, args[0], args[1], args[2] });
+              }
+              return null;
+            }
+          });
+        }
+        else if ("getEventLookupFacility".equals(name)) {
+          return stub(EventLookupFacility.class, null);
+        }
+        else if ("getTimer".equals(name)) {
+          return timer;
+        }
+        return null;
+      }
+    }));
+    ra.initActivitiesMgmt();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ra.raUnconfigure();
+    ra.unsetResourceAdaptorContext();
+    timer.cancel();
+  }
+
+  @Test
+  public void testEventFilteredWithoutService() throws Exception {
+    Assert.assertFalse(ra.fireEvent(new Object(), new DiameterActivityHandle(SESSION_ID), eventType(), null, true, true));
+    Assert.assertTrue(firedEvents.isEmpty());
+  }
+
+  @Test
+  public void testEventWithoutTypeNotFired() throws Exception {
+    ra.serviceActive(service());
+
+    Assert.assertFalse(ra.fireEvent(new Object(), new DiameterActivityHandle(SESSION_ID), null, null, true, true));
+    Assert.assertFalse(ra.fireEvent(new Object(), new DiameterActivityHandle(SESSION_ID), null, null, false, true));
+    Assert.assertTrue(firedEvents.isEmpty());
+  }
+
+  @Test
+  public void testEventFiredForActiveService() throws Exception {
+    ra.serviceActive(service());
+
+    Object event = new Object();
+    DiameterActivityHandle handle = new DiameterActivityHandle(SESSION_ID);
+    Assert.assertTrue(ra.fireEvent(event, handle, eventType(), null, true, true));
+
+    Assert.assertEquals(1, firedEvents.size());
+    Object[] fired = firedEvents.get(0);
+    Assert.assertEquals(handle, fired[0]);
+    Assert.assertSame(event, fired[2]);
+    Assert.assertEquals(AbstractDiameterResourceAdaptor.EVENT_FLAGS, fired[fired.length - 1]);
+  }
+
+  @Test
+  public void testEventFilteredAfterServiceInactive() throws Exception {
+    ReceivableService service = service();
+    ra.serviceActive(service);
+    ra.serviceStopping(service);
+    Assert.assertTrue(ra.fireEvent(new Object(), new DiameterActivityHandle(SESSION_ID), eventType(), null, true, true));
+
+    ra.serviceInactive(service);
+    Assert.assertFalse(ra.fireEvent(new Object(), new DiameterActivityHandle(SESSION_ID), eventType(), null, true, true));
+    Assert.assertEquals(1, firedEvents.size());
+  }
+
+  @Test
+  public void testActivityEndedRemovesActivity() throws Exception {
+    DiameterActivityImpl activity = activity();
+    DiameterActivityHandle handle = activity.getActivityHandle();
+
+    Assert.assertSame(activity, ra.getActivity(new DiameterActivityHandle(SESSION_ID)));
+    Assert.assertEquals(handle, ra.getActivityHandle(activity));
+    Assert.assertSame(handle, ra.getActivityHandle(SESSION_ID));
+
+    ra.activityEnded(handle);
+    Assert.assertNull(ra.getActivity(handle));
+  }
+
+  @Test
+  public void testActivityEndedAfterSuccessfulProcessing() throws Exception {
+    DiameterActivityImpl activity = activity();
+    activity.setTerminateAfterProcessing(true);
+
+    ra.eventProcessingSuccessful(activity.getActivityHandle(), eventType(), new Object(), null, null, 0);
+
+    Assert.assertEquals(1, endedActivities.size());
+    Assert.assertEquals(activity.getActivityHandle(), endedActivities.get(0));
+  }
+
+  @Test
+  public void testActivityEndedAfterFailedProcessing() throws Exception {
+    DiameterActivityImpl activity = activity();
+    activity.setTerminateAfterProcessing(true);
+
+    ra.eventProcessingFailed(activity.getActivityHandle(), eventType(), new Object(), null, null, 0, null);
+
+    Assert.assertEquals(1, endedActivities.size());
+    Assert.assertEquals(activity.getActivityHandle(), endedActivities.get(0));
+  }
+
+  @Test
+  public void testActivityKeptAfterProcessing() throws Exception {
+    DiameterActivityImpl activity = activity();
+
+    ra.eventProcessingSuccessful(activity.getActivityHandle(), eventType(), new Object(), null, null, 0);
+    ra.eventUnreferenced(activity.getActivityHandle(), eventType(), new Object(), null, null, 0);
+
+    Assert.assertTrue(endedActivities.isEmpty());
+    Assert.assertSame(activity, ra.getActivity(activity.getActivityHandle()));
+  }
+
+  @Test
+  public void testAddActivity() throws Exception {
+    DiameterActivityImpl activity = new DiameterActivityImpl(null, null, session(), null, null, null);
+    ra.addActivity(activity, false, AbstractDiameterResourceAdaptor.MARSHALABLE_ACTIVITY_FLAGS);
+
+    Assert.assertEquals(1, startedActivities.size());
+    Object[] started = startedActivities.get(0);
+    Assert.assertEquals("startActivity", started[0]);
+    Assert.assertEquals(activity.getActivityHandle(), started[1]);
+    Assert.assertSame(activity, started[2]);
+    Assert.assertEquals(AbstractDiameterResourceAdaptor.MARSHALABLE_ACTIVITY_FLAGS, started[3]);
+    Assert.assertSame(activity, ra.getActivity(activity.getActivityHandle()));
+    Assert.assertEquals(1, ra.metrics.getActivitiesStarted());
+
+    // the RA is the session listener, ending goes through the SLEE
+    activity.endActivity();
+    Assert.assertEquals(1, endedActivities.size());
+    Assert.assertEquals(activity.getActivityHandle(), endedActivities.get(0));
+  }
+
+  @Test
+  public void testAddActivitySuspended() throws Exception {
+    DiameterActivityImpl activity = new DiameterActivityImpl(null, null, session(), null, null, null);
+    ra.addActivity(activity, true, AbstractDiameterResourceAdaptor.DEFAULT_ACTIVITY_FLAGS);
+
+    Assert.assertEquals(1, startedActivities.size());
+    Assert.assertEquals("startActivitySuspended", startedActivities.get(0)[0]);
+    Assert.assertEquals(AbstractDiameterResourceAdaptor.DEFAULT_ACTIVITY_FLAGS, startedActivities.get(0)[3]);
+    Assert.assertSame(activity, ra.getActivity(activity.getActivityHandle()));
+  }
+
+  @Test
+  public void testTimeoutEndsActivity() throws Exception {
+    DiameterActivityImpl activity = activity();
+
+    ra.timeoutExpired(request(SESSION_ID));
+    Assert.assertEquals(1, endedActivities.size());
+    Assert.assertEquals(activity.getActivityHandle(), endedActivities.get(0));
+    Assert.assertEquals(Long.valueOf(1), ra.metrics.getCommandCounts().get(COMMAND_CODE + ".timeouts"));
+
+    // no activity for the session, only counted
+    ra.timeoutExpired(request("aaa.mobicents.org;1096298391;2;core"));
+    Assert.assertEquals(1, endedActivities.size());
+    Assert.assertEquals(Long.valueOf(2), ra.metrics.getCommandCounts().get(COMMAND_CODE + ".timeouts"));
+  }
+
+  @Test
+  public void testForeignHandlesIgnored() throws Exception {
+    ActivityHandle handle = stub(ActivityHandle.class, null);
+
+    Assert.assertNull(ra.getActivity(handle));
+    Assert.assertNull(ra.getActivityHandle(new Object()));
+
+    ra.queryLiveness(handle);
+    ra.eventProcessingSuccessful(handle, eventType(), new Object(), null, null, 0);
+    ra.eventProcessingFailed(handle, eventType(), new Object(), null, null, 0, null);
+    ra.eventUnreferenced(handle, eventType(), new Object(), null, null, 0);
+    ra.activityEnded(handle);
+    ra.activityUnreferenced(handle);
+
+    Assert.assertTrue(endedActivities.isEmpty());
+  }
+
+  private DiameterActivityImpl activity() {
+    DiameterActivityImpl activity = new DiameterActivityImpl(null, null, session(), null, null, null);
+    activity.setSessionListener(ra);
+    ra.activities.put(activity.getActivityHandle(), activity);
+
+    return activity;
+  }
+
+  private static Session session() {
+    return stub(Session.class, new Stub() {
+      public Object invoke(String name, Object[] args) {
+        return "getSessionId".equals(name) ? SESSION_ID : null;
+      }
+    });
+  }
+
+  private static Request request(final String sessionId) {
+    return stub(Request.class, new Stub() {
+      public Object invoke(String name, Object[] args) {
+        if ("getSessionId".equals(name)) {
+          return sessionId;
+        }
+        else if ("getCommandCode".equals(name)) {
+          return COMMAND_CODE;
+        }
+        return null;
+      }
+    });
+  }
+
+  private static FireableEventType eventType() {
+    return stub(FireableEventType.class, new Stub() {
+      public Object invoke(String name, Object[] args) {
+        return "getEventType".equals(name) ? EVENT_TYPE_ID : null;
+      }
+    });
+  }
+
+  private static ReceivableService service() {
+    final ReceivableEvent receivableEvent = stub(ReceivableEvent.class, new Stub() {
+      public Object invoke(String name, Object[] args) {
+        return "getEventType".equals(name) ? EVENT_TYPE_ID : null;
+      }
+    });
+
+    return stub(ReceivableService.class, new Stub() {
+      public Object invoke(String name, Object[] args) {
+        if ("getService".equals(name)) {
+          return SERVICE_ID;
+        }
+        else if ("getReceivableEvents".equals(name)) {
+          return new ReceivableEvent[] { receivableEvent };
+        }
+        return null;
+      }
+    });
+  }
+
+  private interface Stub {
+
+    /**
+     * @return the result of the call, or null for the default value of the method return type
+     */
+    Object invoke(String name, Object[] args);
+  }
+
+  private static <T> T stub(final Class<T> type, final Stub stub) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+          if ("equals".equals(name)) {
+            return proxy == args[0];
+          }
+          else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+          }
+          return type.getSimpleName() + "Stub";
+        }
+
+        Object result = stub != null ? stub.invoke(name, args) : null;
+        if (result == null && method.getReturnType().isPrimitive()) {
+          Class<?> returnType = method.getReturnType();
+          if (returnType == boolean.class) {
+            return Boolean.FALSE;
+          }
+          else if (returnType == int.class) {
+            return Integer.valueOf(0);
+          }
+          else if (returnType == long.class) {
+            return Long.valueOf(0);
+          }
+        }
+        return result;
+      }
+    }));
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.resource.diameter.base.tests.activities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
+import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
+
+/**
+ * Checks that handles built from a Session-Id String and from its bytes are
+ * interchangeable, and that they survive marshalling.
+ */
+public class DiameterActivityHandleTest {
+
+  private static final String SESSION_ID = "aaa.mobicents.org;1096298391;1;opt";
+
+  @Test
+  public void testHandleFromBytesEqualsHandleFromString() throws Exception {
+    DiameterActivityHandle fromString = new DiameterActivityHandle(SESSION_ID);
+    DiameterActivityHandle fromBytes = DiameterActivityHandle.fromBytes(SESSION_ID.getBytes("UTF-8"));
+
+    Assert.assertEquals(fromString, fromBytes);
+    Assert.assertEquals(fromBytes, fromString);
+    Assert.assertEquals(fromString.hashCode(), fromBytes.hashCode());
+    Assert.assertEquals(SESSION_ID.hashCode(), fromBytes.hashCode());
+    Assert.assertEquals(SESSION_ID, fromBytes.getId());
+  }
+
+  @Test
+  public void testHandleFromNonAsciiBytes() throws Exception {
+    String sessionId = SESSION_ID + ";\u00e7\u00e3o";
+    DiameterActivityHandle fromBytes = DiameterActivityHandle.fromBytes(sessionId.getBytes("UTF-8"));
+
+    Assert.assertEquals(new DiameterActivityHandle(sessionId), fromBytes);
+    Assert.assertEquals(sessionId, fromBytes.getId());
+  }
+
+  @Test
+  public void testDifferentHandles() throws Exception {
+    DiameterActivityHandle handle = new DiameterActivityHandle(SESSION_ID);
+
+    Assert.assertFalse(handle.equals(DiameterActivityHandle.fromBytes((SESSION_ID + "2").getBytes("UTF-8"))));
+    Assert.assertFalse(handle.equals(new DiameterActivityHandle(SESSION_ID + "2")));
+  }
+
+  @Test
+  public void testMarshalHandle() throws Exception {
+    DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
+    DiameterActivityHandle handle = new DiameterActivityHandle(SESSION_ID);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    marshaler.marshalHandle(handle, new DataOutputStream(baos));
+    Assert.assertEquals(marshaler.getEstimatedHandleSize(handle), baos.size());
+
+    Object unmarshalled = marshaler.unmarshalHandle(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+    Assert.assertEquals(handle, unmarshalled);
+    Assert.assertEquals(SESSION_ID, ((DiameterActivityHandle) unmarshalled).getId());
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.resource.diameter.base.tests.activities;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.slee.facilities.Tracer;
+import javax.slee.resource.ResourceAdaptorContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.TimingWheelDiameterActivityManagement;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
+
+/**
+ * Checks the activity remove timers of {@link TimingWheelDiameterActivityManagement}:
+ * expiry, cancelling, re-scheduling and delays longer than a wheel round.
+ */
+public class TimingWheelDiameterActivityManagementTest {
+
+  private static final long TICK_DURATION = 10;
+
+  private TimingWheelDiameterActivityManagement activities;
+
+  @After
+  public void tearDown() {
+    if (activities != null) {
+      activities.stop();
+    }
+  }
+
+  private static ResourceAdaptorContext raContext() {
+    return (ResourceAdaptorContext) Proxy.newProxyInstance(ResourceAdaptorContext.class.getClassLoader(), new Class<?>[] { ResourceAdaptorContext.class }, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("getTracer".equals(method.getName())) {
+          return Proxy.newProxyInstance(Tracer.class.getClassLoader(), new Class<?>[] { Tracer.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+              return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+            }
+          });
+        }
+        return "getEntityName".equals(method.getName()) ? "TimingWheelTest" : null;
+      }
+    });
+  }
+
+  /**
+   * Activity counting how many times it was ended by its remove timer.
+   */
+  private static class TestActivity extends DiameterActivityImpl {
+
+    private final AtomicInteger ended = new AtomicInteger();
+    private final CountDownLatch endedLatch = new CountDownLatch(1);
+
+    private TestActivity() {
+      super(null, null, null, null, null, null);
+    }
+
+    @Override
+    public boolean endIfTerminateAfterProcessing() {
+      ended.incrementAndGet();
+      endedLatch.countDown();
+      return true;
+    }
+  }
+
+  private TestActivity putActivity(String sessionId) {
+    TestActivity activity = new TestActivity();
+    activities.put(new DiameterActivityHandle(sessionId), activity);
+
+    return activity;
+  }
+
+  @Test
+  public void testScheduledRemoval() throws Exception {
+    activities = new TimingWheelDiameterActivityManagement(raContext(), 50, TICK_DURATION, 8);
+    DiameterActivityHandle handle = new DiameterActivityHandle("removal");
+    TestActivity activity = putActivity("removal");
+
+    long start = System.nanoTime();
+    activities.startActivityRemoveTimer(handle);
+
+    Assert.assertTrue("Activity remove timer did not expire", activity.endedLatch.await(2, TimeUnit.SECONDS));
+    // expiry may happen up to a tick early, as deadlines are rounded down to ticks
+    Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50 - TICK_DURATION);
+
+    Thread.sleep(100);
+    Assert.assertEquals(1, activity.ended.get());
+  }
+
+  @Test
+  public void testTimerNotStartedForUnknownActivity() throws Exception {
+    activities = new TimingWheelDiameterActivityManagement(raContext(), 20, TICK_DURATION, 8);
+    TestActivity activity = new TestActivity();
+
+    activities.startActivityRemoveTimer(new DiameterActivityHandle("unknown"));
+
+    Assert.assertFalse(activity.endedLatch.await(200, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    activities = new TimingWheelDiameterActivityManagement(raContext(), 50, TICK_DURATION, 8);
+    DiameterActivityHandle handle = new DiameterActivityHandle("cancel");
+    TestActivity activity = putActivity("cancel");
+
+    activities.startActivityRemoveTimer(handle);
+    activities.stopActivityRemoveTimer(handle);
+
+    Assert.assertFalse("Cancelled activity remove timer expired", activity.endedLatch.await(300, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(0, activity.ended.get());
+  }
+
+  @Test
+  public void testReschedule() throws Exception {
+    activities = new TimingWheelDiameterActivityManagement(raContext(), 100, TICK_DURATION, 8);
+    DiameterActivityHandle handle = new DiameterActivityHandle("reschedule");
+    TestActivity activity = putActivity("reschedule");
+
+    activities.startActivityRemoveTimer(handle);
+    Thread.sleep(60);
+
+    // the new timer replaces the first one, which must not expire
+    long restart = System.nanoTime();
+    activities.startActivityRemoveTimer(handle);
+
+    Assert.assertTrue("Activity remove timer did not expire", activity.endedLatch.await(2, TimeUnit.SECONDS));
+    Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - restart) >= 100 - TICK_DURATION);
+
+    Thread.sleep(150);
+    Assert.assertEquals(1, activity.ended.get());
+  }
+
+  @Test
+  public void testWrapAround() throws Exception {
+    // 4 slots of 10ms, a 150ms delay needs several rounds of the wheel and
+    // must not expire when its slot is first visited
+    activities = new TimingWheelDiameterActivityManagement(raContext(), 150, TICK_DURATION, 4);
+    DiameterActivityHandle handle = new DiameterActivityHandle("wrap");
+    TestActivity activity = putActivity("wrap");
+
+    long start = System.nanoTime();
+    activities.startActivityRemoveTimer(handle);
+
+    Assert.assertTrue("Activity remove timer did not expire", activity.endedLatch.await(2, TimeUnit.SECONDS));
+    Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150 - TICK_DURATION);
+    Assert.assertEquals(1, activity.ended.get());
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.resource.diameter.base.tests.avp;
+
+import net.java.slee.resource.diameter.base.events.avp.AuthSessionStateType;
+import net.java.slee.resource.diameter.base.events.avp.AvpUtilities;
+import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
+import net.java.slee.resource.diameter.base.events.avp.ProxyInfoAvp;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.ProxyInfoAvpImpl;
+
+/**
+ * Checks that the Base AVP types are registered in the codec registry and that
+ * the registered factories behave as the reflective path did.
+ */
+public class AvpCodecRegistryTest {
+
+  static {
+    // loading AvpUtilities registers the Base codec table
+    AvpUtilities.getParser();
+  }
+
+  @Test
+  public void testEnumeratedFactory() {
+    EnumeratedFactory factory = AvpCodecRegistry.getEnumeratedFactory(AuthSessionStateType.class);
+    Assert.assertNotNull("No factory registered for AuthSessionStateType", factory);
+
+    Assert.assertSame(AuthSessionStateType.NO_STATE_MAINTAINED, factory.fromInt(AuthSessionStateType._NO_STATE_MAINTAINED));
+    Assert.assertTrue(factory.newArray(2) instanceof AuthSessionStateType[]);
+    Assert.assertEquals(2, factory.newArray(2).length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEnumeratedFactoryInvalidValue() {
+    AvpCodecRegistry.getEnumeratedFactory(AuthSessionStateType.class).fromInt(-1);
+  }
+
+  @Test
+  public void testGroupedFactory() {
+    GroupedAvpFactory factory = AvpCodecRegistry.getGroupedFactory(ProxyInfoAvpImpl.class);
+    Assert.assertNotNull("No factory registered for ProxyInfoAvpImpl", factory);
+
+    Object avp = factory.newInstance(DiameterAvpCodes.PROXY_INFO, 0L, 0, 0, new byte[]{});
+    Assert.assertTrue(avp instanceof ProxyInfoAvpImpl);
+    Assert.assertEquals(DiameterAvpCodes.PROXY_INFO, ((ProxyInfoAvp) avp).getCode());
+    Assert.assertTrue(factory.newArray(1) instanceof ProxyInfoAvp[]);
+  }
+
+  @Test
+  public void testUnregisteredClass() {
+    Assert.assertNull(AvpCodecRegistry.getGroupedFactory(String.class));
+    Assert.assertNull(AvpCodecRegistry.getEnumeratedFactory(String.class));
+  }
+
+}
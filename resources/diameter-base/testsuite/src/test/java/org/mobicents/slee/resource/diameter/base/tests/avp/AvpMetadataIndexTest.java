@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.resource.diameter.base.tests.avp;
+
+import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
+import net.java.slee.resource.diameter.base.events.avp.DiameterAvpType;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.diameter.dictionary.AvpDictionary;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpMetadataIndex;
+
+/**
+ * Checks that the AVP metadata index resolves entries by AVP code and
+ * Vendor-Id, as defined in the dictionary.
+ */
+public class AvpMetadataIndexTest {
+
+  private static final long TGPP_VENDOR_ID = 10415L;
+
+  // Service-Information, defined by 3GPP
+  private static final int SERVICE_INFORMATION = 873;
+
+  static {
+    try {
+      AvpDictionary.INSTANCE.parseDictionary(AvpMetadataIndexTest.class.getClassLoader().getResourceAsStream("dictionary.xml"));
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Failed to parse dictionary file.", e);
+    }
+  }
+
+  @Test
+  public void testKeyIncludesVendorId() {
+    Assert.assertFalse(AvpMetadataIndex.key(SERVICE_INFORMATION, 0L) == AvpMetadataIndex.key(SERVICE_INFORMATION, TGPP_VENDOR_ID));
+    Assert.assertFalse(AvpMetadataIndex.key(1, 2L) == AvpMetadataIndex.key(2, 1L));
+  }
+
+  @Test
+  public void testBaseAvpLookup() {
+    AvpMetadataIndex.Entry entry = AvpMetadataIndex.get(DiameterAvpCodes.SESSION_ID, 0L);
+    Assert.assertNotNull("Session-Id not found in index", entry);
+
+    Assert.assertEquals(DiameterAvpCodes.SESSION_ID, entry.getCode());
+    Assert.assertEquals(0L, entry.getVendorId());
+    Assert.assertEquals("Session-Id", entry.getName());
+    Assert.assertEquals(DiameterAvpType.UTF8_STRING, entry.getType());
+    Assert.assertTrue(entry.isMandatoryBit());
+    Assert.assertFalse(entry.isGrouped());
+
+    // resolved once, then served from the index
+    Assert.assertSame(entry, AvpMetadataIndex.get(DiameterAvpCodes.SESSION_ID, 0L));
+    Assert.assertSame(entry, AvpMetadataIndex.get("Session-Id"));
+  }
+
+  @Test
+  public void testLookupByVendorId() {
+    AvpMetadataIndex.Entry entry = AvpMetadataIndex.get(SERVICE_INFORMATION, TGPP_VENDOR_ID);
+    Assert.assertNotNull("Service-Information not found in index", entry);
+
+    Assert.assertEquals(TGPP_VENDOR_ID, entry.getVendorId());
+    Assert.assertTrue(entry.isGrouped());
+
+    // same code with another Vendor-Id is a different AVP
+    Assert.assertNull(AvpMetadataIndex.get(SERVICE_INFORMATION, 0L));
+  }
+
+  @Test
+  public void testUnknownAvp() {
+    Assert.assertNull(AvpMetadataIndex.get(Integer.MAX_VALUE, 0L));
+    Assert.assertNull(AvpMetadataIndex.get("No-Such-Avp"));
+  }
+
+  @Test
+  public void testClear() {
+    AvpMetadataIndex.Entry entry = AvpMetadataIndex.get(DiameterAvpCodes.SESSION_ID, 0L);
+    AvpMetadataIndex.clear();
+
+    AvpMetadataIndex.Entry reloaded = AvpMetadataIndex.get(DiameterAvpCodes.SESSION_ID, 0L);
+    Assert.assertNotSame(entry, reloaded);
+    Assert.assertEquals(entry.getName(), reloaded.getName());
+  }
+
+}
@@ -3,6 +3,7 @@ package org.mobicents.slee.resource.diameter.base.tests.avp;
 import static org.jdiameter.client.impl.helpers.Parameters.*;
 import static org.jdiameter.server.impl.helpers.Parameters.*;
 
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import java.io.InputStream;
@@ -11,6 +12,7 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.AvpUtilities;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpType;
 
@@ -416,6 +418,91 @@ public class AvpUtilitiesTest {
 	    testPresentAvps(request.getGenericData().getAvps(), expectedAvps);
 	  }
 
+	  @Test
+	  public void testBuilderWithValidatorOn() throws Exception {
+	    instance.configure(this.getClass().getClassLoader().getResourceAsStream(validatorOnFile));
+	    instance.setEnabled(true);
+
+	    AvpSetBuilder builder = new AvpSetBuilder();
+	    // <avp name="Session-Id" code="263" vendor="0" multiplicity="1" index="0"/>
+	    builder.add(AvpUtilities.createAvp(263, "1346ferg5y"));
+	    // <avp name="Destination-Realm" code="283" vendor="0" multiplicity="1" index="-1"/>
+	    builder.add(AvpUtilities.createAvp(283, realmName));
+	    // <avp name="Destination-Host" code="293" vendor="0" multiplicity="0-1" index="-1"/>
+	    builder.add(AvpUtilities.createAvp(293, serverHost));
+	    // <avp name="Accounting-Record-Type" code="480" vendor="0" multiplicity="1" index="-1"/>
+	    builder.add(AvpUtilities.createAvp(480, 1));
+	    // <avp name="Accounting-Record-Number" code="485" vendor="0" multiplicity="1" index="-1"/>
+	    builder.add(AvpUtilities.createAvp(485, 1L));
+
+	    AccountingRequestImpl request = (AccountingRequestImpl) baseFactory.createAccountingRequest(builder);
+
+	    Map<ExpectedAvp, ExpectedAvp> expectedAvps = new HashMap<ExpectedAvp, ExpectedAvp>();
+	    for (int code : new int[] { 263, 264, 296, 283, 293, 480, 485, 259 }) {
+	      ExpectedAvp a = new ExpectedAvp();
+	      a.code = code;
+	      a.count = 1;
+	      expectedAvps.put(a, a);
+	    }
+
+	    testPresentAvps(request.getGenericData().getAvps(), expectedAvps);
+	  }
+
+	  @Test
+	  public void testBuilderWithValidatorOnAndMultiplicityExceeded() throws Exception {
+	    instance.configure(this.getClass().getClassLoader().getResourceAsStream(validatorOnFile));
+	    instance.setEnabled(true);
+
+	    AccountingRequestImpl request = (AccountingRequestImpl) baseFactory.createAccountingRequest(new AvpSetBuilder().add(AvpUtilities.createAvp(263, "1346ferg5y")));
+
+	    AvpSetBuilder builder = new AvpSetBuilder();
+	    builder.add(AvpUtilities.createAvp(485, 1L));
+	    // <avp name="Destination-Realm" code="283" vendor="0" multiplicity="1" index="-1"/>
+	    builder.add(AvpUtilities.createAvp(283, realmName));
+	    builder.add(AvpUtilities.createAvp(283, realmName));
+
+	    try {
+	      builder.build(request);
+	      fail("Destination-Realm can not be present twice.");
+	    }
+	    catch (AvpNotAllowedException e) {
+	      if (e.getAvpCode() != 283 || e.getVendorId() != 0) {
+	        fail("Message Validation failed with wrong AVP Code/Vendor-Id in Exception. Expected (283:0), Received (" + e.getAvpCode() + ":" + e.getVendorId()
+	            + ").");
+	      }
+	    }
+
+	    // nothing is added when validation fails
+	    assertNull("Accounting-Record-Number should not have been added.", request.getGenericData().getAvps().getAvp(485));
+	    assertNull("Destination-Realm should not have been added.", request.getGenericData().getAvps().getAvp(283));
+	  }
+
+	  @Test
+	  public void testBuilderWithValidatorOnAndAvpNotAllowed() throws Exception {
+	    instance.configure(this.getClass().getClassLoader().getResourceAsStream(validatorOnFile));
+	    instance.setEnabled(true);
+
+	    AccountingRequestImpl request = (AccountingRequestImpl) baseFactory.createAccountingRequest(new AvpSetBuilder().add(AvpUtilities.createAvp(263, "1346ferg5y")));
+
+	    AvpSetBuilder builder = new AvpSetBuilder();
+	    builder.add(AvpUtilities.createAvp(283, realmName));
+	    // <avp name="Result-Code" code="268" vendor="0"/> is only allowed in answers
+	    builder.add(AvpUtilities.createAvp(268, 2001L));
+
+	    try {
+	      builder.build(request);
+	      fail("Result-Code is not allowed in Accounting-Request.");
+	    }
+	    catch (AvpNotAllowedException e) {
+	      if (e.getAvpCode() != 268 || e.getVendorId() != 0) {
+	        fail("Message Validation failed with wrong AVP Code/Vendor-Id in Exception. Expected (268:0), Received (" + e.getAvpCode() + ":" + e.getVendorId()
+	            + ").");
+	      }
+	    }
+
+	    assertNull("Destination-Realm should not have been added.", request.getGenericData().getAvps().getAvp(283));
+	  }
+
 	  /* ammendonca: removal allowed is gone...
 	  @Test
 	  public void testOperationsAddWithValidatorOffAndRemovalAllowed() {
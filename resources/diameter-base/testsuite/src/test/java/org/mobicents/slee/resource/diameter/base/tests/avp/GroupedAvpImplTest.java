@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.resource.diameter.base.tests.avp;
+
+import java.util.Arrays;
+
+import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
+import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.diameter.dictionary.AvpDictionary;
+import org.mobicents.slee.resource.diameter.base.events.avp.ProxyInfoAvpImpl;
+
+/**
+ * Checks that Grouped AVPs decode their children lazily, keep their encoded
+ * value until changed and do not share children with their clones.
+ */
+public class GroupedAvpImplTest {
+
+  static {
+    try {
+      AvpDictionary.INSTANCE.parseDictionary(GroupedAvpImplTest.class.getClassLoader().getResourceAsStream("dictionary.xml"));
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Failed to parse dictionary file.", e);
+    }
+  }
+
+  private static ProxyInfoAvpImpl createProxyInfo(String host, byte[] state) {
+    ProxyInfoAvpImpl proxyInfo = new ProxyInfoAvpImpl(DiameterAvpCodes.PROXY_INFO, 0L, 1, 0, new byte[]{});
+    proxyInfo.setProxyHost(new DiameterIdentity(host));
+    if (state != null) {
+      proxyInfo.setProxyState(state);
+    }
+
+    return proxyInfo;
+  }
+
+  @Test
+  public void testDecodeFromEncodedValue() {
+    byte[] encoded = createProxyInfo("proxy.mobicents.org", new byte[]{1, 2, 3}).byteArrayValue();
+
+    ProxyInfoAvpImpl decoded = new ProxyInfoAvpImpl(DiameterAvpCodes.PROXY_INFO, 0L, 1, 0, encoded);
+    Assert.assertEquals("proxy.mobicents.org", decoded.getProxyHost().toString());
+    Assert.assertTrue(Arrays.equals(new byte[]{1, 2, 3}, decoded.getProxyState()));
+  }
+
+  @Test
+  public void testEncodedValueKeptWhenNotChanged() {
+    byte[] encoded = createProxyInfo("proxy.mobicents.org", new byte[]{1, 2, 3}).byteArrayValue();
+
+    ProxyInfoAvpImpl proxyInfo = new ProxyInfoAvpImpl(DiameterAvpCodes.PROXY_INFO, 0L, 1, 0, encoded);
+    // reading children must not drop the received encoding
+    proxyInfo.getProxyHost();
+    Assert.assertSame(encoded, proxyInfo.byteArrayValue());
+  }
+
+  @Test
+  public void testEncodedValueUpdatedWhenChanged() {
+    ProxyInfoAvpImpl proxyInfo = createProxyInfo("proxy.mobicents.org", null);
+    byte[] before = proxyInfo.byteArrayValue();
+
+    proxyInfo.setProxyState(new byte[]{4});
+    byte[] after = proxyInfo.byteArrayValue();
+    Assert.assertFalse(Arrays.equals(before, after));
+
+    ProxyInfoAvpImpl decoded = new ProxyInfoAvpImpl(DiameterAvpCodes.PROXY_INFO, 0L, 1, 0, after);
+    Assert.assertTrue(decoded.hasProxyState());
+    Assert.assertTrue(Arrays.equals(new byte[]{4}, decoded.getProxyState()));
+  }
+
+  @Test
+  public void testCloneDoesNotShareChildren() {
+    ProxyInfoAvpImpl proxyInfo = createProxyInfo("proxy.mobicents.org", null);
+    byte[] encoded = proxyInfo.byteArrayValue();
+
+    ProxyInfoAvpImpl clone = (ProxyInfoAvpImpl) proxyInfo.clone();
+    Assert.assertTrue(Arrays.equals(encoded, clone.byteArrayValue()));
+    Assert.assertEquals(proxyInfo, clone);
+
+    clone.setProxyState(new byte[]{4});
+    Assert.assertTrue(clone.hasProxyState());
+    Assert.assertFalse(proxyInfo.hasProxyState());
+    Assert.assertTrue(Arrays.equals(encoded, proxyInfo.byteArrayValue()));
+  }
+
+}
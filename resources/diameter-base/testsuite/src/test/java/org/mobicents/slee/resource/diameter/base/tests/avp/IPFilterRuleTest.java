@@ -22,6 +22,7 @@
 
 package org.mobicents.slee.resource.diameter.base.tests.avp;
 
+import java.net.InetAddress;
 import java.util.Arrays;
 
 import net.java.slee.resource.diameter.base.events.avp.IPFilterRule;
@@ -206,4 +207,60 @@ public class IPFilterRuleTest {
 		Assert.assertTrue("Wrong opoptions option", Arrays.equals(rule.getIpOptions(), EMPTY_STRING_ARRAY));
 	}
 
+	@Test
+	public void testOptionBits() {
+		IPFilterRule rule = new IPFilterRule("deny in ip from !assigned to 192.1.1.1/0 6,3 tcpflags fin,!syn,ack ipoptions !rr,ts tcpoptions mss,!sack");
+		Assert.assertEquals("Wrong required tcpflags", IPFilterRule.TCP_FLAG_FIN | IPFilterRule.TCP_FLAG_ACK, rule.getRequiredTcpFlags());
+		Assert.assertEquals("Wrong absent tcpflags", IPFilterRule.TCP_FLAG_SYN, rule.getAbsentTcpFlags());
+		Assert.assertEquals("Wrong required ipoptions", IPFilterRule.IP_OPTION_TS, rule.getRequiredIpOptions());
+		Assert.assertEquals("Wrong absent ipoptions", IPFilterRule.IP_OPTION_RR, rule.getAbsentIpOptions());
+		Assert.assertEquals("Wrong required tcpoptions", IPFilterRule.TCP_OPTION_MSS, rule.getRequiredTcpOptions());
+		Assert.assertEquals("Wrong absent tcpoptions", IPFilterRule.TCP_OPTION_SACK, rule.getAbsentTcpOptions());
+
+		Assert.assertTrue("Flags should match", rule.matchesTcpFlags(IPFilterRule.TCP_FLAG_FIN | IPFilterRule.TCP_FLAG_ACK | IPFilterRule.TCP_FLAG_PSH));
+		Assert.assertFalse("Flags should not match, SYN is set", rule.matchesTcpFlags(IPFilterRule.TCP_FLAG_FIN | IPFilterRule.TCP_FLAG_ACK | IPFilterRule.TCP_FLAG_SYN));
+		Assert.assertFalse("Flags should not match, ACK is not set", rule.matchesTcpFlags(IPFilterRule.TCP_FLAG_FIN));
+
+		rule = new IPFilterRule("permit in 6 from any to any setup");
+		Assert.assertTrue("Flags should match setup", rule.matchesTcpFlags(IPFilterRule.TCP_FLAG_SYN));
+		Assert.assertFalse("Flags should not match setup", rule.matchesTcpFlags(IPFilterRule.TCP_FLAG_SYN | IPFilterRule.TCP_FLAG_ACK));
+	}
+
+	@Test
+	public void testMatchesIPv4() throws Exception {
+		IPFilterRule rule = new IPFilterRule("permit in 17 from 10.0.0.0/8 1000-2000,3000 to any");
+		Assert.assertTrue("Should match", rule.matches(17, InetAddress.getByName("10.1.2.3"), 1500, InetAddress.getByName("192.168.0.1"), 5060));
+		Assert.assertTrue("Should match", rule.matches(17, InetAddress.getByName("10.1.2.3"), 3000, InetAddress.getByName("192.168.0.1"), 5060));
+		Assert.assertTrue("Should match", rule.matches(17, 0x0A010203, 3000, 0xC0A80001, 5060));
+		Assert.assertFalse("Should not match, address out of mask", rule.matches(17, InetAddress.getByName("11.1.2.3"), 1500, InetAddress.getByName("192.168.0.1"), 5060));
+		Assert.assertFalse("Should not match, port out of ranges", rule.matches(17, InetAddress.getByName("10.1.2.3"), 2500, InetAddress.getByName("192.168.0.1"), 5060));
+		Assert.assertFalse("Should not match, different protocol", rule.matches(6, InetAddress.getByName("10.1.2.3"), 1500, InetAddress.getByName("192.168.0.1"), 5060));
+		Assert.assertFalse("Should not match, different IP version", rule.matches(17, InetAddress.getByName("::1"), 1500, InetAddress.getByName("192.168.0.1"), 5060));
+
+		rule = new IPFilterRule("deny out ip from !assigned to !192.168.1.0/24");
+		Assert.assertTrue("Should match", rule.matches(1, InetAddress.getByName("10.1.2.3"), -1, InetAddress.getByName("192.168.0.1"), -1));
+		Assert.assertFalse("Should not match, inverted destination", rule.matches(1, InetAddress.getByName("10.1.2.3"), -1, InetAddress.getByName("192.168.1.1"), -1));
+	}
+
+	@Test
+	public void testMatchesIPv6() throws Exception {
+		IPFilterRule rule = new IPFilterRule("permit out 2 from 2001:0db8:85a3:0000:0000:8a2e:0370:7334/32 to fe80:0:0:0:202:b3ff:fe1e:8329 2345");
+		Assert.assertTrue("Should match", rule.matches(2, InetAddress.getByName("2001:db8::1"), -1, InetAddress.getByName("fe80::202:b3ff:fe1e:8329"), 2345));
+		Assert.assertFalse("Should not match, address out of mask", rule.matches(2, InetAddress.getByName("2001:db9::1"), -1,
+				InetAddress.getByName("fe80::202:b3ff:fe1e:8329"), 2345));
+		Assert.assertFalse("Should not match, different address", rule.matches(2, InetAddress.getByName("2001:db8::1"), -1, InetAddress.getByName("fe80::1"), 2345));
+	}
+
+	@Test
+	public void testValueOf() {
+		String ruleString = "permit out 17 from any to 172.20.20.54 6557";
+		IPFilterRule rule = IPFilterRule.valueOf(ruleString);
+		Assert.assertSame("Parsed rule should be shared", rule, IPFilterRule.valueOf(ruleString));
+		Assert.assertEquals("Rule string does not match", new IPFilterRule(ruleString).getRuleString(), rule.getRuleString());
+
+		// returned ports must not change the shared rule
+		rule.getDestPorts()[0][0] = 1;
+		Assert.assertEquals("Shared rule was changed", 6557, IPFilterRule.valueOf(ruleString).getDestPorts()[0][0]);
+	}
+
 }
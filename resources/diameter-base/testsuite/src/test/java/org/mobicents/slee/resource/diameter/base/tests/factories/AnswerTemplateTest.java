@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.tests.factories;
+
+import org.jdiameter.api.Avp;
+import org.jdiameter.api.AvpSet;
+import org.jdiameter.api.Message;
+import org.jdiameter.client.impl.StackImpl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
+import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.base.tests.factories.BaseFactoriesTest.MyConfiguration;
+
+/**
+ * Checks that answer templates copy only their AVPs, matched on code and
+ * Vendor-Id, and keep the Session-Id first.
+ */
+public class AnswerTemplateTest {
+
+  private static final String SESSION_ID = "aaa.mobicents.org;1096298391;1;template";
+
+  private static final long VENDOR_3GPP = 10415L;
+
+  private static DiameterMessageFactoryImpl baseMessageFactory;
+
+  static {
+    StackImpl stack = new StackImpl();
+    try {
+      stack.init(new MyConfiguration());
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Failed to initialize the stack.", e);
+    }
+
+    baseMessageFactory = new DiameterMessageFactoryImpl(stack);
+  }
+
+  private static Message createMessage() {
+    Message message = ((DiameterMessageImpl) baseMessageFactory.createAccountingRequest()).getGenericData();
+    message.getAvps().removeAvp(Avp.SESSION_ID);
+
+    return message;
+  }
+
+  private static Message createRequest() {
+    Message request = createMessage();
+    AvpSet avps = request.getAvps();
+    avps.insertAvp(0, Avp.SESSION_ID, SESSION_ID, true, false, false);
+    avps.addAvp(Avp.USER_NAME, "alice", true, false, false);
+    avps.addAvp(Avp.ACC_RECORD_TYPE, 2, true, false, true);
+    avps.addAvp(Avp.ACC_RECORD_NUMBER, 7, true, false, true);
+    // same code as Acct-Record-Number, other vendor
+    avps.addAvp(Avp.ACC_RECORD_NUMBER, 9, VENDOR_3GPP, true, false, true);
+
+    return request;
+  }
+
+  private static Message createAnswer() {
+    Message answer = createMessage();
+    answer.setRequest(false);
+    answer.getAvps().addAvp(Avp.RESULT_CODE, 2001, true, false, true);
+
+    return answer;
+  }
+
+  @Test
+  public void testSessionIdPlacedFirst() throws Exception {
+    Message answer = createAnswer();
+    answer.getAvps().addAvp(Avp.SESSION_ID, "stale;session", true, false, false);
+
+    new AnswerTemplate(Avp.SESSION_ID).copy(createRequest(), answer);
+
+    AvpSet avps = answer.getAvps();
+    Assert.assertEquals(Avp.SESSION_ID, avps.getAvpByIndex(0).getCode());
+    Assert.assertEquals(SESSION_ID, avps.getAvpByIndex(0).getUTF8String());
+    Assert.assertEquals(1, avps.getAvps(Avp.SESSION_ID).size());
+    Assert.assertNotNull(avps.getAvp(Avp.RESULT_CODE));
+  }
+
+  @Test
+  public void testCopiesOnlyTemplateAvps() throws Exception {
+    Message answer = createAnswer();
+    int size = answer.getAvps().size();
+
+    new AnswerTemplate(Avp.SESSION_ID, Avp.ACC_RECORD_TYPE, Avp.ACC_RECORD_NUMBER).copy(createRequest(), answer);
+
+    AvpSet avps = answer.getAvps();
+    Assert.assertEquals(size + 3, avps.size());
+    Assert.assertNull(avps.getAvp(Avp.USER_NAME));
+    Assert.assertEquals(2, avps.getAvp(Avp.ACC_RECORD_TYPE).getUnsigned32());
+    Assert.assertEquals(7, avps.getAvp(Avp.ACC_RECORD_NUMBER).getUnsigned32());
+
+    // copied in the order they appear in the request
+    Assert.assertEquals(Avp.ACC_RECORD_TYPE, avps.getAvpByIndex(avps.size() - 2).getCode());
+    Assert.assertEquals(Avp.ACC_RECORD_NUMBER, avps.getAvpByIndex(avps.size() - 1).getCode());
+  }
+
+  @Test
+  public void testMatchesOnVendorId() throws Exception {
+    AnswerTemplate template = new AnswerTemplate(Avp.ACC_RECORD_NUMBER);
+    Assert.assertTrue(template.contains(Avp.ACC_RECORD_NUMBER, 0));
+    Assert.assertFalse(template.contains(Avp.ACC_RECORD_NUMBER, VENDOR_3GPP));
+
+    Message answer = createAnswer();
+    template.copy(createRequest(), answer);
+
+    AvpSet avps = answer.getAvps();
+    Assert.assertEquals(1, avps.getAvps(Avp.ACC_RECORD_NUMBER).size());
+    Assert.assertEquals(7, avps.getAvp(Avp.ACC_RECORD_NUMBER).getUnsigned32());
+    Assert.assertNull(avps.getAvp(Avp.ACC_RECORD_NUMBER, VENDOR_3GPP));
+  }
+
+  @Test
+  public void testCopiesVendorSpecificAvps() throws Exception {
+    AnswerTemplate template = new AnswerTemplate(new int[] {Avp.ACC_RECORD_NUMBER}, new long[] {VENDOR_3GPP});
+
+    Message answer = createAnswer();
+    template.copy(createRequest(), answer);
+
+    AvpSet avps = answer.getAvps();
+    Assert.assertNull(avps.getAvp(Avp.ACC_RECORD_NUMBER));
+    Assert.assertEquals(9, avps.getAvp(Avp.ACC_RECORD_NUMBER, VENDOR_3GPP).getUnsigned32());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchedVendorIds() {
+    new AnswerTemplate(new int[] {Avp.SESSION_ID, Avp.USER_NAME}, new long[] {0});
+  }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.tests.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jdiameter.api.Avp;
+import org.jdiameter.api.AvpSet;
+import org.jdiameter.api.Message;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.DiameterMetrics;
+
+/**
+ * Checks that the metrics count messages by command, Result-Code and
+ * configured peer, and that they can be reset.
+ */
+public class DiameterMetricsTest {
+
+  private static final String PEER_A = "a.mobicents.org";
+  private static final String PEER_B = "b.mobicents.org";
+  private static final String UNCONFIGURED_PEER = "c.mobicents.org";
+
+  @Test
+  public void testCommandCounts() {
+    DiameterMetrics metrics = new DiameterMetrics();
+    metrics.messageReceived(message(272, true, PEER_A, null, -1));
+    metrics.messageReceived(message(272, true, PEER_A, null, -1));
+    metrics.messageSent(message(272, false, null, null, 2001));
+    metrics.messageSent(message(274, true, null, PEER_A, -1));
+    metrics.messageReceived(message(274, false, PEER_A, null, 2001));
+    metrics.requestTimedOut(message(274, true, null, PEER_A, -1));
+
+    Assert.assertEquals(2, metrics.getRequestsReceived());
+    Assert.assertEquals(1, metrics.getAnswersReceived());
+    Assert.assertEquals(1, metrics.getRequestsSent());
+    Assert.assertEquals(1, metrics.getAnswersSent());
+    Assert.assertEquals(1, metrics.getTimeouts());
+
+    Map<String, Long> counts = metrics.getCommandCounts();
+    Assert.assertEquals(Long.valueOf(2), counts.get("272.requestsReceived"));
+    Assert.assertEquals(Long.valueOf(1), counts.get("272.answersSent"));
+    Assert.assertEquals(Long.valueOf(1), counts.get("274.requestsSent"));
+    Assert.assertEquals(Long.valueOf(1), counts.get("274.timeouts"));
+
+    Assert.assertEquals(Long.valueOf(1), metrics.getResultCodesSent().get(2001L));
+    Assert.assertEquals(Long.valueOf(1), metrics.getResultCodesReceived().get(2001L));
+  }
+
+  @Test
+  public void testPeerCounts() {
+    DiameterMetrics metrics = new DiameterMetrics();
+    metrics.setPeers(Arrays.asList(PEER_A, PEER_B));
+
+    metrics.messageReceived(message(272, true, PEER_A, null, -1));
+    metrics.messageReceived(message(272, false, PEER_B, null, 2001));
+    metrics.messageSent(message(272, true, null, PEER_B, -1));
+    metrics.messageSent(message(272, true, null, PEER_B, -1));
+
+    // unconfigured and unknown peers share a single entry
+    metrics.messageReceived(message(272, true, UNCONFIGURED_PEER, null, -1));
+    metrics.messageReceived(message(272, true, null, null, -1));
+    metrics.messageSent(message(272, true, null, null, -1));
+
+    Map<String, Long> counts = metrics.getPeerCounts();
+    Assert.assertEquals(Long.valueOf(1), counts.get(PEER_A + ".requestsReceived"));
+    Assert.assertEquals(Long.valueOf(1), counts.get(PEER_B + ".answersReceived"));
+    Assert.assertEquals(Long.valueOf(2), counts.get(PEER_B + ".requestsSent"));
+    Assert.assertEquals(Long.valueOf(2), counts.get(DiameterMetrics.OTHER_PEERS + ".requestsReceived"));
+    Assert.assertEquals(Long.valueOf(1), counts.get(DiameterMetrics.OTHER_PEERS + ".requestsSent"));
+    Assert.assertNull(counts.get(UNCONFIGURED_PEER + ".requestsReceived"));
+    Assert.assertEquals(9, counts.size());
+  }
+
+  @Test
+  public void testPeerCountsKeptForConfiguredPeers() {
+    DiameterMetrics metrics = new DiameterMetrics();
+    metrics.setPeers(Arrays.asList(PEER_A, PEER_B));
+    metrics.messageReceived(message(272, true, PEER_A, null, -1));
+
+    metrics.setPeers(Arrays.asList(PEER_A));
+
+    Map<String, Long> counts = metrics.getPeerCounts();
+    Assert.assertEquals(Long.valueOf(1), counts.get(PEER_A + ".requestsReceived"));
+    Assert.assertNull(counts.get(PEER_B + ".requestsReceived"));
+  }
+
+  @Test
+  public void testActivitiesAndReset() {
+    DiameterMetrics metrics = new DiameterMetrics();
+    metrics.setPeers(Arrays.asList(PEER_A));
+    metrics.activityStarted();
+    metrics.activityStarted();
+    metrics.activityEnded();
+    metrics.eventFiltered();
+    metrics.messageReceived(message(272, true, PEER_A, null, -1));
+    metrics.requestAnswered(System.nanoTime());
+
+    Assert.assertEquals(1, metrics.getLiveActivities());
+    Assert.assertEquals(1, metrics.getFilteredEvents());
+    Assert.assertEquals(1, metrics.getLatencyCount());
+
+    metrics.reset();
+
+    Assert.assertEquals(0, metrics.getRequestsReceived());
+    Assert.assertEquals(0, metrics.getFilteredEvents());
+    Assert.assertEquals(0, metrics.getLatencyCount());
+    Assert.assertEquals(Long.valueOf(0), metrics.getPeerCounts().get(PEER_A + ".requestsReceived"));
+    // live activities are not reset
+    Assert.assertEquals(1, metrics.getLiveActivities());
+  }
+
+  @Test
+  public void testResultCode() {
+    Assert.assertEquals(-1, DiameterMetrics.getResultCode(message(316, false, PEER_A, null, -1)));
+    Assert.assertEquals(2001, DiameterMetrics.getResultCode(message(316, false, PEER_A, null, 2001)));
+  }
+
+  private static Object proxy(Class<?> type, InvocationHandler handler) {
+    return Proxy.newProxyInstance(DiameterMetricsTest.class.getClassLoader(), new Class<?>[] { type }, handler);
+  }
+
+  private static Avp avp(final Object value) {
+    return (Avp) proxy(Avp.class, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        return value;
+      }
+    });
+  }
+
+  private static Message message(final int commandCode, final boolean request, String originHost, String destinationHost, long resultCode) {
+    final Map<Integer, Avp> avps = new HashMap<Integer, Avp>();
+    if (originHost != null) {
+      avps.put(Avp.ORIGIN_HOST, avp(originHost));
+    }
+    if (destinationHost != null) {
+      avps.put(Avp.DESTINATION_HOST, avp(destinationHost));
+    }
+    if (resultCode >= 0) {
+      avps.put(Avp.RESULT_CODE, avp(resultCode));
+    }
+
+    final AvpSet avpSet = (AvpSet) proxy(AvpSet.class, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("getAvp") ? avps.get(args[0]) : null;
+      }
+    });
+
+    return (Message) proxy(Message.class, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("getCommandCode")) {
+          return commandCode;
+        }
+        if (method.getName().equals("isRequest")) {
+          return request;
+        }
+        if (method.getName().equals("getAvps")) {
+          return avpSet;
+        }
+
+        return null;
+      }
+    });
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.tests.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.LatencyHistogram;
+import org.mobicents.slee.resource.diameter.StripedCounter;
+
+/**
+ * Checks the precision of the latency histogram buckets and percentiles, and
+ * that striped counters add up across threads.
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+
+    Assert.assertEquals(1000, histogram.getCount());
+    Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+    Assert.assertEquals(1000, histogram.getMax());
+    assertWithinPrecision(500, histogram.getPercentile(50));
+    assertWithinPrecision(990, histogram.getPercentile(99));
+    Assert.assertEquals(1000, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 32; i++) {
+      histogram.record(i);
+    }
+
+    for (int i = 1; i <= 32; i++) {
+      Assert.assertEquals(i - 1, histogram.getPercentile(i * 100.0 / 32));
+    }
+  }
+
+  @Test
+  public void testLargeValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(Long.MAX_VALUE);
+    histogram.record(-1);
+
+    Assert.assertEquals(2, histogram.getCount());
+    Assert.assertEquals(0, histogram.getPercentile(50));
+    Assert.assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void testReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    histogram.reset();
+
+    Assert.assertEquals(0, histogram.getCount());
+    Assert.assertEquals(0, histogram.getMax());
+    Assert.assertEquals(0, histogram.getPercentile(50));
+    Assert.assertEquals("", histogram.toString());
+  }
+
+  @Test
+  public void testStripedCounter() throws Exception {
+    final StripedCounter counter = new StripedCounter();
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            counter.increment();
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(80000, counter.sum());
+    counter.reset();
+    Assert.assertEquals(0, counter.sum());
+  }
+
+  private void assertWithinPrecision(long expected, long actual) {
+    Assert.assertTrue("Expected " + expected + " within 1/16, was " + actual, Math.abs(actual - expected) <= expected / 16 + 1);
+  }
+
+}
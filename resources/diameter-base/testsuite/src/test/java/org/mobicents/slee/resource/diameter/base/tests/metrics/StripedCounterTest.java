@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.tests.metrics;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.StripedCounter;
+
+/**
+ * Checks that striped counters add up increments and additions made
+ * concurrently, and that they can be reset.
+ */
+public class StripedCounterTest {
+
+  @Test
+  public void testIncrementAndAdd() {
+    StripedCounter counter = new StripedCounter();
+    Assert.assertEquals(0, counter.sum());
+
+    counter.increment();
+    counter.add(41);
+    counter.add(-2);
+
+    Assert.assertEquals(40, counter.sum());
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    final StripedCounter counter = new StripedCounter();
+    final CountDownLatch start = new CountDownLatch(1);
+
+    Thread[] threads = new Thread[16];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          try {
+            start.await();
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0; i < 10000; i++) {
+            counter.increment();
+            counter.add(2);
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(16 * 10000 * 3, counter.sum());
+  }
+
+  @Test
+  public void testReset() {
+    StripedCounter counter = new StripedCounter();
+    counter.add(100);
+    counter.reset();
+    Assert.assertEquals(0, counter.sum());
+
+    counter.increment();
+    Assert.assertEquals(1, counter.sum());
+  }
+
+}
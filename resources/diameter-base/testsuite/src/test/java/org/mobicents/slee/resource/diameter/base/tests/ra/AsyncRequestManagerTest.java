@@ -0,0 +1,223 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.tests.ra;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.java.slee.resource.diameter.base.DiameterRequestHandle;
+import net.java.slee.resource.diameter.base.events.ReAuthAnswer;
+
+import org.jdiameter.api.Answer;
+import org.jdiameter.api.EventListener;
+import org.jdiameter.api.Message;
+import org.jdiameter.api.OverloadException;
+import org.jdiameter.api.Request;
+import org.jdiameter.api.Session;
+import org.jdiameter.api.app.AppSession;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.base.AsyncRequestManager;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
+import org.mobicents.slee.resource.diameter.base.events.ReAuthRequestImpl;
+
+/**
+ * Checks that requests sent without blocking get the deadline, are capped by
+ * the in-flight limit and have their answer or timeout delivered once.
+ */
+public class AsyncRequestManagerTest {
+
+  private final TestSession session = new TestSession();
+  private final TestListener listener = new TestListener();
+
+  private DiameterActivityImpl activity(AsyncRequestManager manager, EventListener<Request, Answer> eventListener) {
+    DiameterActivityImpl activity = new DiameterActivityImpl(null, null, (Session) proxy(session, Session.class), eventListener, null, null);
+    activity.setAsyncRequestManager(manager);
+
+    return activity;
+  }
+
+  @Test
+  public void testAnswerDelivered() throws Exception {
+    AsyncRequestManager manager = new AsyncRequestManager(60000, 0);
+    DiameterRequestHandle handle = activity(manager, listener).sendAsyncMessage(new ReAuthRequestImpl(message(true)), 0);
+
+    // the default deadline is handed to the stack
+    Assert.assertEquals(60000, session.timeouts.get(0).longValue());
+    Assert.assertEquals(1, manager.getInFlightRequests());
+    Assert.assertFalse(handle.isDone());
+
+    session.listeners.get(0).receivedSuccessMessage(null, (Answer) message(false));
+
+    Assert.assertTrue(handle.isDone());
+    Assert.assertFalse(handle.isTimedOut());
+    Assert.assertTrue(handle.getAnswer() instanceof ReAuthAnswer);
+    Assert.assertEquals(1, listener.answers);
+    Assert.assertEquals(0, manager.getInFlightRequests());
+  }
+
+  @Test
+  public void testDeadlineExpired() throws Exception {
+    AsyncRequestManager manager = new AsyncRequestManager(60000, 0);
+    DiameterRequestHandle handle = activity(manager, listener).sendAsyncMessage(new ReAuthRequestImpl(message(true)), 500);
+
+    Assert.assertEquals(500, session.timeouts.get(0).longValue());
+
+    session.listeners.get(0).timeoutExpired(null);
+
+    Assert.assertTrue(handle.isDone());
+    Assert.assertTrue(handle.isTimedOut());
+    Assert.assertNull(handle.getAnswer());
+    Assert.assertEquals(1, listener.timeouts);
+    Assert.assertEquals(0, manager.getInFlightRequests());
+
+    // an answer after the deadline is dropped, and frees no other slot
+    session.listeners.get(0).receivedSuccessMessage(null, (Answer) message(false));
+    Assert.assertNull(handle.getAnswer());
+    Assert.assertEquals(0, listener.answers);
+    Assert.assertEquals(0, manager.getInFlightRequests());
+  }
+
+  @Test
+  public void testInFlightCap() throws Exception {
+    AsyncRequestManager manager = new AsyncRequestManager(60000, 2);
+    DiameterActivityImpl activity = activity(manager, listener);
+
+    activity.sendAsyncMessage(new ReAuthRequestImpl(message(true)), 0);
+    DiameterRequestHandle cancelled = activity.sendAsyncMessage(new ReAuthRequestImpl(message(true)), 0);
+    Assert.assertEquals(2, manager.getInFlightRequests());
+
+    try {
+      activity.sendAsyncMessage(new ReAuthRequestImpl(message(true)), 0);
+      Assert.fail("Request over the in-flight cap should be refused.");
+    }
+    catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof OverloadException);
+    }
+    Assert.assertEquals(2, session.listeners.size());
+
+    // a cancelled request keeps its slot until the stack is done with it
+    Assert.assertTrue(cancelled.cancel());
+    Assert.assertEquals(2, manager.getInFlightRequests());
+    session.listeners.get(1).receivedSuccessMessage(null, (Answer) message(false));
+    Assert.assertEquals(1, manager.getInFlightRequests());
+    Assert.assertTrue(cancelled.isCancelled());
+    Assert.assertEquals(0, listener.answers);
+
+    activity.sendAsyncMessage(new ReAuthRequestImpl(message(true)), 0);
+    Assert.assertEquals(2, manager.getInFlightRequests());
+  }
+
+  @Test
+  public void testAppSessionActivityRejected() throws Exception {
+    AsyncRequestManager manager = new AsyncRequestManager(60000, 0);
+    @SuppressWarnings("unchecked")
+    EventListener<Request, Answer> appSession = (EventListener<Request, Answer>) proxy(new TestSession(), EventListener.class, AppSession.class);
+
+    try {
+      activity(manager, appSession).sendAsyncMessage(new ReAuthRequestImpl(message(true)), 0);
+      Assert.fail("Application session activities should not send around their session.");
+    }
+    catch (UnsupportedOperationException e) {
+      // expected
+    }
+    Assert.assertTrue(session.listeners.isEmpty());
+    Assert.assertEquals(0, manager.getInFlightRequests());
+  }
+
+  private static Object proxy(InvocationHandler handler, Class<?>... types) {
+    return Proxy.newProxyInstance(AsyncRequestManagerTest.class.getClassLoader(), types, handler);
+  }
+
+  private static Object objectMethod(Object proxy, Method method, Object[] args) {
+    if (method.getName().equals("equals")) {
+      return proxy == args[0];
+    }
+    if (method.getName().equals("hashCode")) {
+      return System.identityHashCode(proxy);
+    }
+    if (method.getName().equals("toString")) {
+      return proxy.getClass().getName();
+    }
+
+    return null;
+  }
+
+  private static Message message(final boolean request) {
+    return (Message) proxy(new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("isRequest")) {
+          return request;
+        }
+        if (method.getName().equals("isError")) {
+          return false;
+        }
+        if (method.getName().equals("getCommandCode")) {
+          return Message.RE_AUTH_REQUEST;
+        }
+
+        return objectMethod(proxy, method, args);
+      }
+    }, request ? Request.class : Answer.class);
+  }
+
+  private static final class TestSession implements InvocationHandler {
+
+    private final List<EventListener<Request, Answer>> listeners = new ArrayList<EventListener<Request, Answer>>();
+    private final List<Long> timeouts = new ArrayList<Long>();
+
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if (method.getName().equals("getSessionId")) {
+        return "async;1";
+      }
+      if (method.getName().equals("send") && args.length == 4) {
+        listeners.add((EventListener<Request, Answer>) args[1]);
+        timeouts.add(((TimeUnit) args[3]).toMillis((Long) args[2]));
+        return null;
+      }
+
+      return objectMethod(proxy, method, args);
+    }
+  }
+
+  private static final class TestListener implements EventListener<Request, Answer> {
+
+    private int answers;
+    private int timeouts;
+
+    public void receivedSuccessMessage(Request request, Answer answer) {
+      answers++;
+    }
+
+    public void timeoutExpired(Request request) {
+      timeouts++;
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.resource.diameter.base.tests.ra;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.java.slee.resource.diameter.base.events.AccountingRequest;
+import net.java.slee.resource.diameter.base.events.DiameterMessage;
+import net.java.slee.resource.diameter.base.events.avp.AccountingRecordType;
+
+import org.jdiameter.api.Message;
+import org.jdiameter.client.impl.StackImpl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
+import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.events.AccountingRequestImpl;
+import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.base.tests.factories.BaseFactoriesTest.MyConfiguration;
+
+/**
+ * Checks that events survive marshalling as their Diameter wire form.
+ */
+public class DiameterBaseMarshalerTest {
+
+  private static final String SESSION_ID = "aaa.mobicents.org;1096298391;1;marshal";
+
+  private static DiameterMessageFactoryImpl baseMessageFactory;
+
+  static {
+    StackImpl stack = new StackImpl();
+    try {
+      stack.init(new MyConfiguration());
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Failed to initialize the stack.", e);
+    }
+
+    baseMessageFactory = new DiameterMessageFactoryImpl(stack);
+  }
+
+  private static AccountingRequest createEvent() {
+    AccountingRequest acr = baseMessageFactory.createAccountingRequest();
+    acr.setSessionId(SESSION_ID);
+    acr.setAccountingRecordType(AccountingRecordType.EVENT_RECORD);
+    acr.setAccountingRecordNumber(7);
+
+    return acr;
+  }
+
+  private static byte[] marshal(DiameterBaseMarshaler marshaler, Object event) throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    marshaler.marshalEvent(null, event, out);
+    out.flush();
+
+    return baos.toByteArray();
+  }
+
+  @Test
+  public void testEventRoundTrip() throws Exception {
+    DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
+    AccountingRequest acr = createEvent();
+
+    int estimatedSize = marshaler.getEstimatedEventSize(null, acr);
+    byte[] bytes = marshal(marshaler, acr);
+    Assert.assertEquals(estimatedSize, bytes.length);
+
+    Object event = marshaler.unmarshalEvent(null, new DataInputStream(new ByteArrayInputStream(bytes)));
+    Assert.assertTrue(event instanceof ExtensionDiameterMessageImpl);
+
+    DiameterMessage message = (DiameterMessage) event;
+    Assert.assertEquals(AccountingRequest.commandCode, message.getCommand().getCode());
+    Assert.assertTrue(message.getCommand().isRequest());
+    Assert.assertEquals(SESSION_ID, message.getSessionId());
+
+    // marshalling again gives the same wire form
+    Assert.assertTrue(Arrays.equals(bytes, marshal(marshaler, event)));
+  }
+
+  @Test
+  public void testEventRoundTripWithEventFactory() throws Exception {
+    DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler(new DiameterBaseMarshaler.EventFactory() {
+      public DiameterMessage createEvent(Message message) {
+        return new AccountingRequestImpl(message);
+      }
+    });
+
+    byte[] bytes = marshal(marshaler, createEvent());
+    Object event = marshaler.unmarshalEvent(null, new DataInputStream(new ByteArrayInputStream(bytes)));
+
+    Assert.assertTrue(event instanceof AccountingRequest);
+    AccountingRequest acr = (AccountingRequest) event;
+    Assert.assertEquals(SESSION_ID, acr.getSessionId());
+    Assert.assertEquals(AccountingRecordType.EVENT_RECORD, acr.getAccountingRecordType());
+    Assert.assertEquals(7, acr.getAccountingRecordNumber());
+  }
+
+  @Test
+  public void testEventBufferMatchesMarshalledEvent() throws Exception {
+    DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
+    AccountingRequest acr = createEvent();
+
+    ByteBuffer buffer = marshaler.getEventBuffer(null, acr);
+    byte[] fromBuffer = new byte[buffer.remaining()];
+    buffer.get(fromBuffer);
+    marshaler.releaseEventBuffer(null, acr, buffer);
+
+    Assert.assertTrue(Arrays.equals(fromBuffer, marshal(marshaler, acr)));
+  }
+
+}
@@ -0,0 +1,315 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.tests.ra;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jdiameter.api.Answer;
+import org.jdiameter.api.Avp;
+import org.jdiameter.api.AvpSet;
+import org.jdiameter.api.Request;
+import org.jdiameter.api.ResultCode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
+import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
+import org.mobicents.slee.resource.diameter.base.IngressQueue;
+
+/**
+ * Checks that the ingress queue serves peers round-robin and answers new
+ * sessions with 3004 once a peer is overloaded.
+ */
+public class IngressQueueTest {
+
+  private static final String PEER_A = "a.mobicents.org";
+  private static final String PEER_B = "b.mobicents.org";
+
+  private final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+
+  // released to let the worker go past the first request
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final CountDownLatch blocked = new CountDownLatch(1);
+
+  private IngressQueue queue;
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    if (queue != null) {
+      queue.stop();
+    }
+  }
+
+  private IngressQueue start(int peerQueueSize, int overloadThreshold, long maxQueueWait) {
+    queue = new IngressQueue(1, peerQueueSize, overloadThreshold, maxQueueWait);
+    queue.start("test", new IngressQueue.RequestProcessor() {
+      public void processRequest(Request request) {
+        if (processed.isEmpty()) {
+          blocked.countDown();
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        processed.add(request.getSessionId());
+      }
+    });
+
+    return queue;
+  }
+
+  // keeps the single worker busy with a first request from PEER_A
+  private void blockWorker() throws InterruptedException {
+    Assert.assertNull(queue.submit(request(PEER_A, "blocker"), null));
+    Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+  }
+
+  private void awaitProcessed(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (processed.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(count, processed.size());
+  }
+
+  @Test
+  public void testPeersServedRoundRobin() throws Exception {
+    start(100, 100, 0);
+    blockWorker();
+
+    for (int i = 0; i < 20; i++) {
+      Assert.assertNull(queue.submit(request(PEER_A, "a" + i), null));
+    }
+    Assert.assertNull(queue.submit(request(PEER_B, "b0"), null));
+    Assert.assertNull(queue.submit(request(PEER_B, "b1"), null));
+    Assert.assertEquals(22, queue.getQueuedRequests());
+
+    release.countDown();
+    awaitProcessed(23);
+
+    // peer B is served before the burst of peer A is done
+    int b0 = processed.indexOf("b0");
+    Assert.assertEquals(b0 + 1, processed.indexOf("b1"));
+    Assert.assertTrue(b0 < processed.indexOf("a19"));
+
+    // and the requests of each peer stay in order
+    int last = -1;
+    for (int i = 0; i < 20; i++) {
+      int index = processed.indexOf("a" + i);
+      Assert.assertTrue(index > last);
+      last = index;
+    }
+
+    Assert.assertEquals(0, queue.getQueuedRequests());
+    Assert.assertEquals(23, queue.getProcessedRequests());
+  }
+
+  @Test
+  public void testOverloadThreshold() throws Exception {
+    start(10, 50, 0);
+    Assert.assertEquals(5, queue.getOverloadLimit());
+    blockWorker();
+
+    for (int i = 0; i < 5; i++) {
+      Assert.assertNull(queue.submit(request(PEER_A, "new" + i), null));
+    }
+
+    // over the threshold, new sessions are answered with 3004 and the E-bit
+    assertTooBusy(queue.submit(request(PEER_A, "new5"), null));
+    Assert.assertEquals(1, queue.getRejectedRequests());
+
+    // other peers are not affected
+    Assert.assertNull(queue.submit(request(PEER_B, "other"), null));
+
+    // requests for existing sessions are queued until the queue is full
+    DiameterActivityManagement activities = activities(true);
+    for (int i = 0; i < 5; i++) {
+      Assert.assertNull(queue.submit(request(PEER_A, "existing" + i), activities));
+    }
+    assertTooBusy(queue.submit(request(PEER_A, "existing5"), activities));
+    Assert.assertEquals(2, queue.getRejectedRequests());
+    Assert.assertEquals(Integer.valueOf(10), queue.getPeerQueuedRequests().get(PEER_A));
+
+    release.countDown();
+    awaitProcessed(12);
+    Assert.assertFalse(processed.contains("new5"));
+    Assert.assertFalse(processed.contains("existing5"));
+  }
+
+  @Test
+  public void testMaxQueueWait() throws Exception {
+    start(100, 100, 50);
+    blockWorker();
+
+    Assert.assertNull(queue.submit(request(PEER_A, "queued"), null));
+    Thread.sleep(100);
+
+    // the oldest request of the peer has waited too long
+    assertTooBusy(queue.submit(request(PEER_A, "new"), null));
+    Assert.assertNull(queue.submit(request(PEER_A, "existing"), activities(true)));
+    Assert.assertNull(queue.submit(request(PEER_B, "other"), null));
+
+    release.countDown();
+    awaitProcessed(4);
+    Assert.assertTrue(queue.getMaxQueueWaitTime() >= 100);
+
+    // drained, new sessions are accepted again
+    Assert.assertNull(queue.submit(request(PEER_A, "new"), null));
+  }
+
+  @Test
+  public void testMaxPeers() throws Exception {
+    queue = new IngressQueue(1, 100, 100, 0, 2);
+    queue.start("test", new IngressQueue.RequestProcessor() {
+      public void processRequest(Request request) {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        processed.add(request.getSessionId());
+      }
+    });
+
+    Assert.assertNull(queue.submit(request(PEER_A, "a"), null));
+    Assert.assertNull(queue.submit(request(PEER_B, "b"), null));
+    for (int i = 0; i < 10; i++) {
+      Assert.assertNull(queue.submit(request("peer" + i + ".mobicents.org", "other" + i), null));
+    }
+
+    // peers over the maximum share one queue
+    Map<String, Integer> queued = queue.getPeerQueuedRequests();
+    Assert.assertEquals(3, queued.size());
+    Assert.assertEquals(Integer.valueOf(10), queued.get(""));
+
+    release.countDown();
+    awaitProcessed(12);
+  }
+
+  @Test
+  public void testRejectedWhenStopped() {
+    queue = new IngressQueue(1, 10, 80, 0);
+    assertTooBusy(queue.submit(request(PEER_A, "stopped"), null));
+  }
+
+  private static void assertTooBusy(Answer answer) {
+    Assert.assertNotNull(answer);
+    TestAnswer testAnswer = (TestAnswer) Proxy.getInvocationHandler(answer);
+    Assert.assertEquals(ResultCode.TOO_BUSY, testAnswer.resultCode);
+    Assert.assertTrue(testAnswer.error);
+  }
+
+  private static Object proxy(Class<?> type, InvocationHandler handler) {
+    return Proxy.newProxyInstance(IngressQueueTest.class.getClassLoader(), new Class<?>[] { type }, handler);
+  }
+
+  private static Object objectMethod(Object proxy, Method method, Object[] args) {
+    if (method.getName().equals("equals")) {
+      return proxy == args[0];
+    }
+    if (method.getName().equals("hashCode")) {
+      return System.identityHashCode(proxy);
+    }
+    if (method.getName().equals("toString")) {
+      return proxy.getClass().getName();
+    }
+
+    return null;
+  }
+
+  private static Request request(final String originHost, final String sessionId) {
+    final Avp originHostAvp = (Avp) proxy(Avp.class, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("getDiameterIdentity") ? originHost : objectMethod(proxy, method, args);
+      }
+    });
+    final AvpSet avps = (AvpSet) proxy(AvpSet.class, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("getAvp") ? originHostAvp : objectMethod(proxy, method, args);
+      }
+    });
+
+    return (Request) proxy(Request.class, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("getSessionId")) {
+          return sessionId;
+        }
+        if (method.getName().equals("getAvps")) {
+          return avps;
+        }
+        if (method.getName().equals("createAnswer")) {
+          return proxy(Answer.class, new TestAnswer((Long) args[0]));
+        }
+
+        return objectMethod(proxy, method, args);
+      }
+    });
+  }
+
+  private static DiameterActivityManagement activities(final boolean existing) {
+    return (DiameterActivityManagement) proxy(DiameterActivityManagement.class, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("getActivityHandle")) {
+          return new DiameterActivityHandle((String) args[0]);
+        }
+        if (method.getName().equals("containsKey")) {
+          return existing;
+        }
+
+        return objectMethod(proxy, method, args);
+      }
+    });
+  }
+
+  private static final class TestAnswer implements InvocationHandler {
+
+    private final long resultCode;
+    private boolean error;
+
+    private TestAnswer(long resultCode) {
+      this.resultCode = resultCode;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if (method.getName().equals("setError")) {
+        error = (Boolean) args[0];
+        return null;
+      }
+
+      return objectMethod(proxy, method, args);
+    }
+  }
+
+}
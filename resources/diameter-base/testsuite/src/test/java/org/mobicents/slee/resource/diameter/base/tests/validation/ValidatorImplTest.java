@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.base.tests.validation;
+
+import java.io.InputStream;
+
+import javax.slee.resource.ConfigProperties;
+
+import net.java.slee.resource.diameter.base.events.AccountingRequest;
+import net.java.slee.resource.diameter.base.events.avp.AccountingRecordType;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
+
+import org.jdiameter.api.AvpSet;
+import org.jdiameter.api.Stack;
+import org.jdiameter.api.validation.Dictionary;
+import org.jdiameter.client.impl.DictionarySingleton;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.ValidationLevel;
+import org.mobicents.slee.resource.diameter.ValidatorImpl;
+import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
+import org.mobicents.slee.resource.diameter.base.tests.factories.BaseFactoriesTest;
+
+/**
+ * Checks the validation levels and sampling of the validator against the
+ * Accounting-Request rules of the dictionary.
+ */
+public class ValidatorImplTest {
+
+  private static final int ACCOUNTING_RECORD_NUMBER = 485;
+  private static final int PROXY_INFO = 284;
+  private static final int PROXY_HOST = 280;
+  private static final int PROXY_STATE = 33;
+
+  private static DiameterMessageFactoryImpl messageFactory;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    Stack stack = new org.jdiameter.client.impl.StackImpl();
+    stack.init(new BaseFactoriesTest.MyConfiguration());
+    messageFactory = new DiameterMessageFactoryImpl(stack);
+
+    InputStream is = ValidatorImplTest.class.getClassLoader().getResourceAsStream("dictionary.xml");
+    try {
+      Dictionary dictionary = DictionarySingleton.getDictionary();
+      dictionary.configure(is);
+      dictionary.setEnabled(true);
+    }
+    finally {
+      is.close();
+    }
+  }
+
+  @Test
+  public void testValidMessage() throws Exception {
+    new ValidatorImpl(ValidationLevel.FULL, 1).validate(createRequest(true));
+  }
+
+  @Test
+  public void testMissingAvp() throws Exception {
+    AccountingRequest request = createRequest(false);
+
+    assertNotValid(new ValidatorImpl(ValidationLevel.FULL, 1), request, ACCOUNTING_RECORD_NUMBER);
+    assertNotValid(new ValidatorImpl(ValidationLevel.TOP_LEVEL, 1), request, ACCOUNTING_RECORD_NUMBER);
+
+    // Session-Id is in place, which is all that is checked
+    new ValidatorImpl(ValidationLevel.HEADER, 1).validate(request);
+    new ValidatorImpl(ValidationLevel.OFF, 1).validate(request);
+  }
+
+  @Test
+  public void testGroupedAvpContent() throws Exception {
+    AccountingRequest request = createRequest(true);
+
+    // Proxy-Info without Proxy-State, added raw as the setters would refuse it
+    AvpSet proxyInfo = ((DiameterMessageImpl) request).getGenericData().getAvps().addGroupedAvp(PROXY_INFO);
+    proxyInfo.addAvp(PROXY_HOST, "proxy.mobicents.org".getBytes(), true, false);
+
+    new ValidatorImpl(ValidationLevel.TOP_LEVEL, 1).validate(request);
+    assertNotValid(new ValidatorImpl(ValidationLevel.FULL, 1), request, PROXY_STATE);
+  }
+
+  @Test
+  public void testSampling() throws Exception {
+    AccountingRequest request = createRequest(false);
+    ValidatorImpl validator = new ValidatorImpl(ValidationLevel.FULL, 3);
+
+    int failures = 0;
+    for (int i = 0; i < 9; i++) {
+      try {
+        validator.validate(request);
+      }
+      catch (AvpNotAllowedException e) {
+        failures++;
+      }
+    }
+
+    Assert.assertEquals("One message out of three should have been validated.", 3, failures);
+  }
+
+  @Test
+  public void testCreateWithoutValues() {
+    ConfigProperties properties = new ConfigProperties();
+    properties.addProperty(new ConfigProperties.Property(ValidatorImpl.VALIDATION_LEVEL, String.class.getName(), null));
+    properties.addProperty(new ConfigProperties.Property(ValidatorImpl.VALIDATION_SAMPLE_RATE, Integer.class.getName(), null));
+
+    ValidatorImpl validator = ValidatorImpl.create(properties);
+    Assert.assertEquals(ValidationLevel.FULL, validator.getLevel());
+    Assert.assertEquals(1, validator.getSampleRate());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSampleRate() {
+    new ValidatorImpl(ValidationLevel.FULL, 0);
+  }
+
+  private static AccountingRequest createRequest(boolean complete) {
+    AccountingRequest request = messageFactory.createAccountingRequest();
+    request.setSessionId("mobicents.org;1096298391;1;validation");
+    request.setDestinationRealm(new DiameterIdentity("mobicents.org"));
+    request.setAccountingRecordType(AccountingRecordType.EVENT_RECORD);
+    if (complete) {
+      request.setAccountingRecordNumber(0);
+    }
+
+    return request;
+  }
+
+  private static void assertNotValid(ValidatorImpl validator, AccountingRequest request, int avpCode) {
+    try {
+      validator.validate(request);
+      Assert.fail("Message should not be valid at level " + validator.getLevel() + ".");
+    }
+    catch (AvpNotAllowedException e) {
+      Assert.assertEquals(avpCode, e.getAvpCode());
+    }
+  }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.cca.events.avp;
+
+import net.java.slee.resource.diameter.cca.events.avp.CcRequestType;
+import net.java.slee.resource.diameter.cca.events.avp.CcSessionFailoverType;
+import net.java.slee.resource.diameter.cca.events.avp.CcUnitType;
+import net.java.slee.resource.diameter.cca.events.avp.CheckBalanceResultType;
+import net.java.slee.resource.diameter.cca.events.avp.CreditControlFailureHandlingType;
+import net.java.slee.resource.diameter.cca.events.avp.DirectDebitingFailureHandlingType;
+import net.java.slee.resource.diameter.cca.events.avp.FinalUnitActionType;
+import net.java.slee.resource.diameter.cca.events.avp.MultipleServicesIndicatorType;
+import net.java.slee.resource.diameter.cca.events.avp.RedirectAddressType;
+import net.java.slee.resource.diameter.cca.events.avp.RequestedActionType;
+import net.java.slee.resource.diameter.cca.events.avp.SubscriptionIdType;
+import net.java.slee.resource.diameter.cca.events.avp.TariffChangeUsageType;
+import net.java.slee.resource.diameter.cca.events.avp.UserEquipmentInfoType;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+
+/**
+ * Codec table for the Diameter Credit-Control AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class CreditControlAvpCodecs {
+
+  static {
+    AvpCodecRegistry.registerEnumerated(CcRequestType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CcRequestType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CcRequestType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CcSessionFailoverType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CcSessionFailoverType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CcSessionFailoverType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CcUnitType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CcUnitType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CcUnitType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CheckBalanceResultType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CheckBalanceResultType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CheckBalanceResultType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CreditControlFailureHandlingType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CreditControlFailureHandlingType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CreditControlFailureHandlingType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(DirectDebitingFailureHandlingType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return DirectDebitingFailureHandlingType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new DirectDebitingFailureHandlingType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(FinalUnitActionType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return FinalUnitActionType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FinalUnitActionType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MultipleServicesIndicatorType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MultipleServicesIndicatorType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MultipleServicesIndicatorType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RedirectAddressType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RedirectAddressType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RedirectAddressType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RequestedActionType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RequestedActionType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RequestedActionType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SubscriptionIdType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SubscriptionIdType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SubscriptionIdType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(TariffChangeUsageType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return TariffChangeUsageType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TariffChangeUsageType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(UserEquipmentInfoType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return UserEquipmentInfoType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UserEquipmentInfoType[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(CcMoneyAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new CcMoneyAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CcMoneyAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(CostInformationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new CostInformationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CostInformationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(FinalUnitIndicationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new FinalUnitIndicationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FinalUnitIndicationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(GSUPoolReferenceAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new GSUPoolReferenceAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new GSUPoolReferenceAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(GrantedServiceUnitAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new GrantedServiceUnitAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new GrantedServiceUnitAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MoneyLikeAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MoneyLikeAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MoneyLikeAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MultipleServicesCreditControlAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MultipleServicesCreditControlAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MultipleServicesCreditControlAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(RedirectServerAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new RedirectServerAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RedirectServerAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(RequestedServiceUnitAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new RequestedServiceUnitAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RequestedServiceUnitAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ServiceParameterInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ServiceParameterInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ServiceParameterInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ServiceUnitAvpTypeImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ServiceUnitAvpTypeImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ServiceUnitAvpTypeImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SubscriptionIdAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SubscriptionIdAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SubscriptionIdAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(UnitValueAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new UnitValueAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UnitValueAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(UsedServiceUnitAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new UsedServiceUnitAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UsedServiceUnitAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(UserEquipmentInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new UserEquipmentInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UserEquipmentInfoAvpImpl[size];
+      }
+    });
+  }
+
+  private CreditControlAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
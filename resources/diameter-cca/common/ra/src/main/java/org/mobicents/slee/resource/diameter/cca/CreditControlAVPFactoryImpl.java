@@ -47,6 +47,7 @@ import net.java.slee.resource.diameter.cca.events.avp.UserEquipmentInfoType;
 
 import org.mobicents.slee.resource.diameter.cca.events.avp.CcMoneyAvpImpl;
 import org.mobicents.slee.resource.diameter.cca.events.avp.CostInformationAvpImpl;
+import org.mobicents.slee.resource.diameter.cca.events.avp.CreditControlAvpCodecs;
 import org.mobicents.slee.resource.diameter.cca.events.avp.FinalUnitIndicationAvpImpl;
 import org.mobicents.slee.resource.diameter.cca.events.avp.GSUPoolReferenceAvpImpl;
 import org.mobicents.slee.resource.diameter.cca.events.avp.GrantedServiceUnitAvpImpl;
@@ -67,6 +68,10 @@ import org.mobicents.slee.resource.diameter.cca.events.avp.UserEquipmentInfoAvpI
  */
 public class CreditControlAVPFactoryImpl implements CreditControlAVPFactory {
 
+  static {
+    CreditControlAvpCodecs.register();
+  }
+
   protected DiameterAvpFactory baseAvpFactory = null;
 
   public CreditControlAVPFactoryImpl(DiameterAvpFactory baseAvpFactory) {
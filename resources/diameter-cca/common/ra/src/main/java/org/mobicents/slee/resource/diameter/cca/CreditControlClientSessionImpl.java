@@ -372,7 +372,7 @@ public class CreditControlClientSessionImpl extends CreditControlSessionImpl imp
       return false;
     }
     CreditControlClientSessionImpl other = (CreditControlClientSessionImpl) obj;
-    if (terminateAfterProcessing != other.terminateAfterProcessing) {
+    if (isTerminateAfterProcessing() != other.isTerminateAfterProcessing()) {
       return false;
     }
 
@@ -23,20 +23,17 @@
 package org.mobicents.slee.resource.diameter.cca;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.NoSuchAvpException;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
-import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.base.events.avp.GroupedAvp;
 import net.java.slee.resource.diameter.cca.CreditControlAVPFactory;
 import net.java.slee.resource.diameter.cca.CreditControlMessageFactory;
@@ -54,6 +51,8 @@ import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.cca.events.CreditControlAnswerImpl;
 import org.mobicents.slee.resource.diameter.cca.events.CreditControlRequestImpl;
 
@@ -70,18 +69,23 @@ public class CreditControlMessageFactoryImpl implements CreditControlMessageFact
 
   protected Session session;
   protected Stack stack;
+  protected final RawMessageCreator rawMessageCreator;
   protected Logger logger = Logger.getLogger(this.getClass());
   protected CreditControlAVPFactory creditControlAvpFactory = null;
 
   protected ArrayList<DiameterAvp> avpList = new ArrayList<DiameterAvp>();
 
   public CreditControlMessageFactoryImpl(DiameterMessageFactory baseFactory, Session session, Stack stack, CreditControlAVPFactory creditControlAvpFactory) {
+    this(baseFactory, session, new RawMessageCreator(stack), creditControlAvpFactory);
+  }
+
+  public CreditControlMessageFactoryImpl(DiameterMessageFactory baseFactory, Session session, RawMessageCreator rawMessageCreator, CreditControlAVPFactory creditControlAvpFactory) {
     super();
     if(baseFactory == null) {
       throw new NullPointerException("BaseFactory is null");
     }
     //no check for session, it can be null for provider factory.
-    if(stack == null) {
+    if(rawMessageCreator.getStack() == null) {
       throw new NullPointerException("Stack is null");
     }
     if(creditControlAvpFactory == null) {
@@ -89,46 +93,28 @@ public class CreditControlMessageFactoryImpl implements CreditControlMessageFact
     }
     this.baseFactory = baseFactory;
     this.session = session;
-    this.stack = stack;
+    this.stack = rawMessageCreator.getStack();
+    this.rawMessageCreator = rawMessageCreator;
     this.creditControlAvpFactory = creditControlAvpFactory;
   }
 
-  protected final static Set<Integer> ids;
-
-  static
-  {
-    Set<Integer> _ids = new HashSet<Integer>();
-
-    //SessionId
-    //_ids.add(Avp.SESSION_ID);
-    //Sub-Session-Id
-    _ids.add(CreditControlAVPCodes.CC_Sub_Session_Id);
-    //{ Origin-Host }
-    //_ids.add(Avp.ORIGIN_HOST);
-    //{ Origin-Realm }
-    // _ids.add(Avp.ORIGIN_REALM);
-    //{ Destination-Realm }
-    // _ids.add(Avp.DESTINATION_REALM);
-    //_ids.add(Avp.DESTINATION_HOST);
-    //{ Auth-Application-Id }
-    //_ids.add(Avp.AUTH_APPLICATION_ID);
-    //{ Service-Context-Id } // NOT TO BE INCLUDED IN Credit-Control-Answer
-    //_ids.add(CreditControlAVPCodes.Service_Context_Id);
-    //{ CC-Request-Type }
-    _ids.add(CreditControlAVPCodes.CC_Request_Type);
-    //{ CC-Request-Number }
-    _ids.add(CreditControlAVPCodes.CC_Request_Number);
-    //[ Acct-Multi-Session-Id ]
-    _ids.add(Avp.ACC_MULTI_SESSION_ID);
-    //[ Origin-State-Id ]
-    _ids.add(Avp.ORIGIN_STATE_ID);
-    //[ Event-Timestamp ]
-    _ids.add(Avp.EVENT_TIMESTAMP);
-    //xx*[ Proxy-Info ]
-    //xx*[ Route-Record ]
-
-    ids = Collections.unmodifiableSet(_ids);
-  }
+  // AVPs copied from the request into the answer. Origin-Host and Origin-Realm
+  // are set locally, Service-Context-Id is not to be included in Credit-Control-Answer
+  protected final static AnswerTemplate answerTemplate = new AnswerTemplate(
+      // Session-Id
+      Avp.SESSION_ID,
+      // Sub-Session-Id
+      CreditControlAVPCodes.CC_Sub_Session_Id,
+      // { CC-Request-Type }
+      CreditControlAVPCodes.CC_Request_Type,
+      // { CC-Request-Number }
+      CreditControlAVPCodes.CC_Request_Number,
+      // [ Acct-Multi-Session-Id ]
+      Avp.ACC_MULTI_SESSION_ID,
+      // [ Origin-State-Id ]
+      Avp.ORIGIN_STATE_ID,
+      // [ Event-Timestamp ]
+      Avp.EVENT_TIMESTAMP);
 
   /*
    * (non-Javadoc)
@@ -154,22 +140,8 @@ public class CreditControlMessageFactoryImpl implements CreditControlMessageFact
     msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
     msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
     msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-    msg.setSessionId(request.getSessionId());
     // Now copy the needed AVPs
-
-    DiameterAvp[] messageAvps = request.getAvps();
-    if (messageAvps != null) {
-      for (DiameterAvp a : messageAvps) {
-        try {
-          if (ids.contains(a.getCode())) {
-            msg.addAvp(a);
-          }
-        }
-        catch (Exception e) {
-          logger.error("Failed to add AVP to answer. Code[" + a.getCode() + "]", e);
-        }
-      }
-    }
+    answerTemplate.copy(request, msg);
     addOrigin(msg);
     return msg;
   }
@@ -181,14 +153,24 @@ public class CreditControlMessageFactoryImpl implements CreditControlMessageFact
    */
   public CreditControlRequest createCreditControlRequest() {
     CreditControlRequest req = (CreditControlRequest) createCreditControlMessage( null, new DiameterAvp[0] );
-    req.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-    req.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
+    req.setOriginRealm(rawMessageCreator.getOriginRealm());
+    req.setOriginHost(rawMessageCreator.getOriginHost());
     if(session != null) {
       req.setSessionId(session.getSessionId());
     }
     return req;
   }
 
+  /**
+   * Creates a {@link CreditControlRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public CreditControlRequest createCreditControlRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    CreditControlRequest msg = createCreditControlRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -293,10 +275,10 @@ public class CreditControlMessageFactoryImpl implements CreditControlMessageFact
 
     try {
       if(header != null) {
-        return stack.getSessionFactory().getNewRawSession().createMessage(commandCode, aid, hopByHopId, endToEndId);
+        return rawMessageCreator.createMessage(commandCode, aid, hopByHopId, endToEndId);
       }
       else {
-        return stack.getSessionFactory().getNewRawSession().createMessage(commandCode, aid);
+        return rawMessageCreator.createMessage(commandCode, aid);
       }
     }
     catch (IllegalDiameterStateException e) {
@@ -326,11 +308,6 @@ public class CreditControlMessageFactoryImpl implements CreditControlMessageFact
   }
 
   private void addOrigin(DiameterMessage msg) {
-    if(!msg.hasOriginHost()) {
-      msg.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
-    }
-    if(!msg.hasOriginRealm()) {
-      msg.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-    }
+    rawMessageCreator.addOriginHostAndRealm(msg);
   }
 }
@@ -85,10 +85,9 @@ public abstract class CreditControlSessionImpl extends DiameterActivityImpl impl
   }
 
   @Override
-  public DiameterMessage sendSyncMessage(DiameterMessage message) {
+  protected DiameterMessage createAnswer(Message receivedMessage) {
     DiameterMessage answer = null;
 
-    Message receivedMessage = doSendMessage(message);
 
     if(receivedMessage != null) {
       if (!receivedMessage.isRequest()) {
@@ -23,6 +23,8 @@
 package net.java.slee.resource.diameter.cca;
 
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.cca.events.CreditControlAnswer;
 import net.java.slee.resource.diameter.cca.events.CreditControlRequest;
 
@@ -70,6 +72,16 @@ public interface CreditControlMessageFactory {
    */
   CreditControlRequest createCreditControlRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link CreditControlRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new CreditControlRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  CreditControlRequest createCreditControlRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
 
   /**
    * Create a CreditControlAnswer instance, populating it with the internal
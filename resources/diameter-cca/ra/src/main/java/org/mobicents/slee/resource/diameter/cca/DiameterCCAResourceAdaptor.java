@@ -24,27 +24,14 @@ package org.mobicents.slee.resource.diameter.cca;
 
 import static org.jdiameter.client.impl.helpers.Parameters.MessageTimeOut;
 
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.management.ObjectName;
-import javax.slee.Address;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.facilities.Tracer;
-import javax.slee.resource.ActivityFlags;
 import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.ConfigProperties;
 import javax.slee.resource.ConfigProperties.Property;
-import javax.slee.resource.EventFlags;
-import javax.slee.resource.FailureReason;
-import javax.slee.resource.FireableEventType;
-import javax.slee.resource.InvalidConfigurationException;
 import javax.slee.resource.Marshaler;
-import javax.slee.resource.ReceivableService;
-import javax.slee.resource.ResourceAdaptor;
 import javax.slee.resource.ResourceAdaptorContext;
-import javax.slee.resource.SleeEndpoint;
 import javax.transaction.InvalidTransactionException;
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
@@ -64,33 +51,21 @@ import net.java.slee.resource.diameter.cca.CreditControlServerSession;
 import net.java.slee.resource.diameter.cca.events.CreditControlMessage;
 import net.java.slee.resource.diameter.cca.events.CreditControlRequest;
 
-import org.jboss.mx.util.MBeanServerLocator;
 import org.jdiameter.api.Answer;
 import org.jdiameter.api.ApplicationId;
 import org.jdiameter.api.Message;
-import org.jdiameter.api.Peer;
-import org.jdiameter.api.PeerTable;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.SessionFactory;
-import org.jdiameter.api.Stack;
 import org.jdiameter.api.cca.ClientCCASession;
 import org.jdiameter.api.cca.ServerCCASession;
 import org.jdiameter.client.api.ISessionFactory;
 import org.jdiameter.server.impl.app.cca.ServerCCASessionImpl;
-import org.mobicents.diameter.stack.DiameterListener;
-import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
-import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.LocalDiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.ValidatorImpl;
-import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
-import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
+import org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
-import org.mobicents.slee.resource.diameter.base.EventIDFilter;
 import org.mobicents.slee.resource.diameter.base.events.ErrorAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
-import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
 import org.mobicents.slee.resource.diameter.cca.events.CreditControlAnswerImpl;
 import org.mobicents.slee.resource.diameter.cca.events.CreditControlRequestImpl;
 import org.mobicents.slee.resource.diameter.cca.handlers.CreditControlSessionFactory;
@@ -101,7 +76,7 @@ import org.mobicents.slee.resource.diameter.cca.handlers.CreditControlSessionFac
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a> 
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a> 
  */
-public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterListener,DiameterRAInterface {
+public class DiameterCCAResourceAdaptor extends AbstractDiameterResourceAdaptor {
 
   private static final long serialVersionUID = 1L;
 
@@ -119,54 +94,10 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
   protected long defaultValidityTime = 30;
   protected long defaultTxTimerValue = 10;
 
-  /**
-   * caches the eventIDs, avoiding lookup in container
-   */
-  public final EventIDCache eventIdCache = new EventIDCache();
-
-  /**
-   * tells the RA if an event with a specified ID should be filtered or not
-   */
-  private final EventIDFilter eventIDFilter = new EventIDFilter();
-
-  /**
-   * The ResourceAdaptorContext interface is implemented by the SLEE. It provides the Resource
-   * Adaptor with the required capabilities in the SLEE to execute its work. The ResourceAdaptorCon-
-   * text object holds references to a number of objects that are of interest to many Resource Adaptors. A
-   * resource adaptor object is provided with a ResourceAdaptorContext object when the setResour-
-   * ceAdaptorContext method of the ResourceAdaptor interface is invoked on the resource adaptor
-   * object. 
-   */
-  private ResourceAdaptorContext raContext;
-
-  /**
-   * The SLEE endpoint defines the contract between the SLEE and the resource
-   * adaptor that enables the resource adaptor to deliver events
-   * asynchronously to SLEE endpoints residing in the SLEE. This contract
-   * serves as a generic contract that allows a wide range of resources to be
-   * plugged into a SLEE environment via the resource adaptor architecture.
-   * For further information see JSLEE v1.1 Specification Page 307 The
-   * sleeEndpoint will be initialized in entityCreated() method.
-   */
-  private transient SleeEndpoint sleeEndpoint = null;
-
-  /**
-   * A tracer is represented in the SLEE by the Tracer interface. Notification sources access the Tracer Facil-
-   * ity through a Tracer object that implements the Tracer interface. A Tracer object can be obtained by
-   * SBBs via the SbbContext interface, by resource adaptor entities via the ResourceAdaptorContext
-   * interface, and by profiles via the ProfileContext interface. 
-   */
-  private Tracer tracer;
-
   // Diameter Specific Properties ----------------------------------------
 
-  private Stack stack;
   private SessionFactory sessionFactory = null;
   private long messageTimeout = 5000;
-  private long activityRemoveDelay = 30000;
-
-  private ObjectName diameterMultiplexerObjectName = null;
-  private DiameterStackMultiplexerMBean diameterMux = null;
 
   private DiameterAvpFactory baseAvpFactory = null;
   private CreditControlAVPFactory ccaAvpFactory = null;
@@ -176,71 +107,34 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
 
   protected CreditControlSessionFactory ccaSessionFactory = null;
 
-  protected DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
-
-  /**
-   * The EventLookupFacility is used to look up the event id of incoming events
-   */
-  private transient EventLookupFacility eventLookup = null;
-
-  /**
-   * The list of activities stored in this resource adaptor. If this resource
-   * adaptor were a distributed and highly available solution, this storage
-   * were one of the candidates for distribution.
-   */
-  //private transient ConcurrentHashMap<ActivityHandle, DiameterActivity> activities = null;
-  private DiameterActivityManagement activities;
+  protected DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler(new DiameterBaseMarshaler.EventFactory() {
+    public DiameterMessage createEvent(Message message) {
+      return DiameterCCAResourceAdaptor.this.createEvent(message);
+    }
+  });
 
   /**
    * A link to the CreditControlProvider which then will be exposed to Sbbs
    */
   protected transient CreditControlProviderImpl raProvider = null;
 
-  /**
-   * for all events we are interested in knowing when the event failed to be processed
-   */
-  private static final int EVENT_FLAGS = getEventFlags();
-
-  private static int getEventFlags() {
-    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
-    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
-    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
-    return eventFlags;
-  }
-
-  private static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.REQUEST_ENDED_CALLBACK;
-  private static final int MARSHALABLE_ACTIVITY_FLAGS = ActivityFlags.setSleeMayMarshal(DEFAULT_ACTIVITY_FLAGS);
-
   // Aux vars ------------------------------------------------------------
 
   private static final Object[] EMPTY_OBJECT_ARRAY = new Object[]{};
   private static final String[] EMPTY_STRING_ARRAY = new String[]{};
 
   public DiameterCCAResourceAdaptor() {
-    // TODO: Initialize any default values.
+    super("DiameterCCAResourceAdaptor", "Diameter CCA RA", new EventIDCache());
   }
 
   // Lifecycle methods ---------------------------------------------------
 
   public void setResourceAdaptorContext(ResourceAdaptorContext context) {
-    this.raContext = context;
-
-    this.tracer = context.getTracer("DiameterCCAResourceAdaptor");
+    super.setResourceAdaptorContext(context);
 
-    this.sleeEndpoint = context.getSleeEndpoint();
-    this.eventLookup = context.getEventLookupFacility();
     this.raProvider = new CreditControlProviderImpl(this);
   }
 
-  public void unsetResourceAdaptorContext() {
-    this.raContext = null;
-
-    this.tracer = null;
-
-    this.sleeEndpoint = null;
-    this.eventLookup = null;
-  }
-
   // Lifecycle again
   public void raActive() {
     if(tracer.isFineEnabled()) {
@@ -252,40 +146,29 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
         tracer.info("Activating Diameter CCA RA Entity");
       }
 
-      this.diameterMultiplexerObjectName = new ObjectName("diameter.mobicents:service=DiameterStackMultiplexer");
-
-      Object object = null;
-
-      if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
-        // trying to get via MBeanServer
-        object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      } else {
-        // trying to get via locateJBoss
-        object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      }
-
-      if (object != null && object instanceof DiameterStackMultiplexerMBean) {
-        this.diameterMux = (DiameterStackMultiplexerMBean) object;
-      }
+      activateCore();
 
       // Initialize stack
       initStack();
 
+      // Track the configured peers
+      initPeers();
+
+      // Share one raw message creator among all message factories
+      initMessageCreator();
+
       // Initialize activities mgmt
       initActivitiesMgmt();
 
+      // Resolve event types to fire
+      eventIdCache.init(eventLookup, tracer);
+
       // Initialize factories
       this.baseAvpFactory = new DiameterAvpFactoryImpl();
       this.ccaAvpFactory = new CreditControlAVPFactoryImpl(baseAvpFactory);
 
-      this.baseMessageFactory = new DiameterMessageFactoryImpl(stack);
-      this.ccaMessageFactory = new CreditControlMessageFactoryImpl(baseMessageFactory, null, stack, ccaAvpFactory);
+      this.baseMessageFactory = new DiameterMessageFactoryImpl(rawMessageCreator);
+      this.ccaMessageFactory = new CreditControlMessageFactoryImpl(baseMessageFactory, null, rawMessageCreator, ccaAvpFactory);
 
       // Setup session factories
       this.sessionFactory = this.stack.getSessionFactory();
@@ -302,53 +185,6 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
     }
   }
 
-  public void raStopping() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: raStopping.");
-    }
-
-    try {
-      diameterMux.unregisterListener(this);
-    }
-    catch (Exception e) {
-      tracer.severe("Failed to unregister CCA RA from Diameter Mux.", e);
-    }
-
-    //synchronized (this.activities) {
-    //  for (ActivityHandle activityHandle : activities.keySet()) {
-    //    try {
-    //      if(tracer.isInfoEnabled()) {
-    //        tracer.info("Ending activity [" + activityHandle + "]");
-    //      }
-    //
-    //      activities.get(activityHandle).endActivity();
-    //    }
-    //    catch (Exception e) {
-    //      tracer.severe("Error Deactivating Activity", e);
-    //    }
-    //  }
-    //}
-
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: entityDeactivating completed.");
-    }
-  }
-
-  public void raInactive() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: entityDeactivated.");
-    }
-
-    //synchronized (this.activities) {
-    //  activities.clear();
-    //}
-    activities = null;
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter CCA RA :: INACTIVE completed.");
-    }
-  }
-
   public void raConfigure(ConfigProperties properties) {
     if (tracer.isFineEnabled()) {
       tracer.fine("Diameter CCA RA :: raConfigure");
@@ -362,6 +198,8 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
     Property dttProp = properties.getProperty(DEFAULT_TX_TIMER_VALUE);
     defaultTxTimerValue = (Long) (dttProp != null ? dttProp.getValue() : defaultTxTimerValue);
 
+    super.raConfigure(properties);
+
     if(tracer.isInfoEnabled()) {
       tracer.info("Resource Adaptor Configured. Supported Applications: " + authApplicationIds);
     }
@@ -383,23 +221,9 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
   }
 
   public void raUnconfigure() {
-    // Clean up!
-    this.activities = null;
-    this.raContext = null;
-    this.eventLookup = null;
-    this.raProvider = null;
-    this.sleeEndpoint = null;
-    this.stack = null;
-  }
-
-  // Configuration management methods ------------------------------------
-
-  public void raVerifyConfiguration(ConfigProperties properties) throws InvalidConfigurationException {
-    // TODO Auto-generated method stub
-  }
+    super.raUnconfigure();
 
-  public void raConfigurationUpdate(ConfigProperties properties) {
-    // this ra does not support config update while entity is active    
+    this.raProvider = null;
   }
 
   // Interface access methods -------------------------------------------- 
@@ -417,243 +241,34 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
     return marshaler;
   }
 
-  // Event filtering methods ---------------------------------------------
-
-  public void serviceActive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceActive(serviceInfo);   
-  }
-
-  public void serviceStopping(ReceivableService serviceInfo) {
-    eventIDFilter.serviceStopping(serviceInfo);
-  }
-
-  public void serviceInactive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceInactive(serviceInfo); 
-  }
-
-  // Mandatory callback methods ------------------------------------------
-
-  public void queryLiveness(ActivityHandle handle) {
-    tracer.info("Diameter CCA RA :: queryLiveness :: handle[" + handle + "].");
-
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle)handle);
-
-    if (activity != null && !activity.isValid()) {
-      try {
-        sleeEndpoint.endActivity(handle);
-      }
-      catch (Exception e) {
-        tracer.severe("Failure ending non-live activity.", e);
-      }
-    }
-  }
-
-  public Object getActivity(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: getActivity :: handle[" + handle + "].");
-    }
-
-    if(!(handle instanceof DiameterActivityHandle)){
-      return null;
-    }
-
-    return this.activities.get((DiameterActivityHandle)handle);
-  }
-
-  public ActivityHandle getActivityHandle(Object activity) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: getActivityHandle :: activity[" + activity + "].");
-    }
-
-    if (!(activity instanceof DiameterActivity)) {
-      return null;
-    }
-
-    DiameterActivityImpl inActivity = (DiameterActivityImpl) activity;
-
-    return inActivity.getActivityHandle();
-  }
-
-  public void administrativeRemove(ActivityHandle handle) {
-    // TODO what to do here?
-  }
-
-  // Optional callback methods -------------------------------------------
-
-  public void eventProcessingFailed(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags, FailureReason reason) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: eventProcessingFailed :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "], reason[" + reason + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventProcessingSuccessful(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: eventProcessingSuccessful :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "].");
-    }
-
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventUnreferenced(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], service[" + service + "], flags[" + flags + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  private void processAfterEventDelivery(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    DiameterActivityImpl activity = (DiameterActivityImpl) getActivity(handle);
-    if (activity != null) {
-      synchronized (activity) {
-        if (activity.isTerminateAfterProcessing()) {
-          activity.endActivity();
-        }
-      }
-    }
-  }
-
-  public void activityEnded(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: activityEnded :: handle[" + handle + ".");
-    }
-
-    if(!(handle instanceof DiameterActivityHandle)){
-      return;
-    }
-
-    if(this.activities != null) {
-      synchronized (this.activities) {
-        this.activities.remove((DiameterActivityHandle)handle);
-      }
-    }
-  }
-
-  public void activityUnreferenced(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter CCA RA :: activityUnreferenced :: handle[" + handle + "].");
-    }
-
-    if(!(handle instanceof DiameterActivityHandle)){
-      return;
-    }
-
-    this.activityEnded(handle);
-  }
-
   // Event and Activities management -------------------------------------
 
-  public boolean fireEvent(Object event, ActivityHandle handle, FireableEventType eventID, Address address, boolean useFiltering, boolean transacted) {
-    if (useFiltering && eventIDFilter.filterEvent(eventID)) {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Event " + eventID + " filtered");
-      }
-    }
-    else if (eventID == null) {
-      tracer.severe("Event ID for " + eventID + " is unknown, unable to fire.");
-    }
-    else {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Firing event " + event + " on handle " + handle);
-      }
-      try {
-        Object o = getActivity(handle);
-        if(o == null) {
-          Transaction t = raContext.getSleeTransactionManager().getTransaction();
-          throw new IllegalStateException("TX[ "+t+" ] No activity for handle: "+handle);
-        }
-        if(o instanceof CreditControlServerSessionImpl && event instanceof CreditControlRequest) {
-          ((CreditControlServerSessionImpl)o).fetchCurrentState((CreditControlRequest)event);
-        }
-        this.raContext.getSleeEndpoint().fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
-
-        return true;
-      }
-      catch (Exception e) {
-        tracer.severe("Error firing event.", e);
-      }
-    }
-
-    return false;
-  }
-
-  public void fireEvent(String sessionId, Message message) {
-    DiameterMessage event = (DiameterMessage) createEvent(message);
-
-    FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
-
-    this.fireEvent(event, getActivityHandle(sessionId), eventId, null, true, message.isRequest());
-  }
-
-  /**
-   * {@inheritDoc}
-   */
   @Override
-  public void endActivity(DiameterActivityHandle handle) {
-    sleeEndpoint.endActivity(handle);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.startActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to start activity remove timer.", e);
-    }
+  public ApplicationId[] getSupportedApplications() {
+    // not used
+    return null;
   }
-
-  /**
-   * {@inheritDoc}
+  /*
+   * (non-Javadoc)
+   * @see org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor#beforeFireEvent(javax.slee.resource.ActivityHandle, java.lang.Object)
    */
   @Override
-  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.stopActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to stop activity remove timer.", e);
+  protected void beforeFireEvent(ActivityHandle handle, Object event) {
+    // fetch state for server activities
+    if (event instanceof CreditControlRequest) {
+      Object activity = getActivity(handle);
+      if (activity instanceof CreditControlServerSessionImpl) {
+        ((CreditControlServerSessionImpl) activity).fetchCurrentState((CreditControlRequest) event);
+      }
     }
   }
 
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void update(DiameterActivityHandle handle, DiameterActivity activity) {
-    activities.update(handle, activity);
-  }
-
-  @Override
-  public ApplicationId[] getSupportedApplications() {
-    // not used
-    return null;
-  }
   /**
    * Create Event object from a JDiameter message (request or answer)
    * 
    * @return a DiameterMessage object wrapping the request/answer
    */
-  private DiameterMessage createEvent(Message message) {
+  protected DiameterMessage createEvent(Message message) {
     if (message == null) {
       throw new NullPointerException("Message argument cannot be null while creating event.");
     }
@@ -670,45 +285,6 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
     }
   }
 
-  // Session Management --------------------------------------------------
-
-  /**
-   * Method for performing tasks when activity is created, such as informing SLEE about it and storing into internal map.
-   * 
-   * @param ac the activity that has been created
-   */
-  private void activityCreated(DiameterActivity ac, boolean suspended) {
-    try {
-      // Inform SLEE that Activity Started
-      DiameterActivityImpl activity = (DiameterActivityImpl) ac;
-      if (suspended) {
-        sleeEndpoint.startActivitySuspended(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);        
-      }
-      else {
-        sleeEndpoint.startActivity(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-
-      // Put it into our activites map
-      activities.put(activity.getActivityHandle(), activity);
-
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Activity started [" + activity.getActivityHandle() + "]");
-      }
-    }
-    catch (Exception e) {
-      tracer.severe("Error creating/starting activity.", e);
-    }
-  }
-
-  // Others --------------------------------------------------------------
-
-  /**
-   * Retrieves the RA context
-   */
-  public ResourceAdaptorContext getRaContext() {
-    return raContext;
-  }
-
   // Private Methods -----------------------------------------------------
 
   /**
@@ -729,26 +305,9 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
     }
   }
 
-  private void initActivitiesMgmt() {
-	  if(tracer.isInfoEnabled()) {
-        tracer.info(raContext.getEntityName() + " -- running in local mode.");
-      }
-      this.activities = new LocalDiameterActivityManagement(this.raContext, activityRemoveDelay);
-  }
-
-  /**
-   * Create the Diameter Activity Handle for an given session id
-   * 
-   * @param sessionId the session identifier to create the activity handle from
-   * @return a DiameterActivityHandle for the provided sessionId
-   */
-  protected DiameterActivityHandle getActivityHandle(String sessionId) {
-    return new DiameterActivityHandle(sessionId);
-  }
-
   // NetworkReqListener Implementation -----------------------------------
 
-  public Answer processRequest(Request request) {
+  protected Answer doProcessRequest(Request request) {
     // Here we receive initial request for which session does not exist!
     // Valid messages are:
     // * CCR - if we act as server, this is the message we receive
@@ -791,6 +350,8 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
   public void timeoutExpired(Request request) {
     // No timeout should make it here, session should exist. It's an error, report it. 
     tracer.severe("Diameter CCA RA :: Received Timeout Message - RA should not get this, session should exist to handle it. Command-Code: " + request.getCommandCode() + ", Session-Id: " + request.getSessionId());
+
+    super.timeoutExpired(request);
   }
 
   // CCA Session Creation Listener --------------------------------------
@@ -803,15 +364,15 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
     }
 
     // Get Message Factories (for Base and CCA)
-    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(ccClientSession.getSessions().get(0),this.stack);
-    CreditControlMessageFactory ccaMsgFactory = new CreditControlMessageFactoryImpl(baseMsgFactory, ccClientSession.getSessions().get(0), this.stack, this.ccaAvpFactory);
+    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(ccClientSession.getSessions().get(0),rawMessageCreator);
+    CreditControlMessageFactory ccaMsgFactory = new CreditControlMessageFactoryImpl(baseMsgFactory, ccClientSession.getSessions().get(0), rawMessageCreator, this.ccaAvpFactory);
 
     // Create Client Activity
     CreditControlClientSessionImpl activity = new CreditControlClientSessionImpl(ccaMsgFactory, this.ccaAvpFactory, ccClientSession, null, null);
 
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    activityCreated(activity, false /*true*/);
+    addActivity(activity, false /*true*/, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   private void sessionCreated(ServerCCASession ccServerSession) {
@@ -822,14 +383,14 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
     }
 
     // Get Message Factories (for Base and CCA)
-    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(ccServerSession.getSessions().get(0),this.stack);
-    CreditControlMessageFactory ccaMsgFactory = new CreditControlMessageFactoryImpl(baseMsgFactory, ccServerSession.getSessions().get(0), this.stack, this.ccaAvpFactory);
+    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(ccServerSession.getSessions().get(0),rawMessageCreator);
+    CreditControlMessageFactory ccaMsgFactory = new CreditControlMessageFactoryImpl(baseMsgFactory, ccServerSession.getSessions().get(0), rawMessageCreator, this.ccaAvpFactory);
 
     // Create Server Activity
     CreditControlServerSessionImpl activity = new CreditControlServerSessionImpl(ccaMsgFactory,this.ccaAvpFactory,ccServerSession,null,null);
 
     activity.setSessionListener(this);
-    activityCreated(activity, false);
+    addActivity(activity, false, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   // Credit Control Provider Implementation ------------------------------------
@@ -837,7 +398,6 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
   private class CreditControlProviderImpl implements CreditControlProvider {
 
     protected DiameterCCAResourceAdaptor ra = null;
-    protected Validator validator = new ValidatorImpl();
     public CreditControlProviderImpl(DiameterCCAResourceAdaptor ra) {
       super();
       this.ra = ra;
@@ -923,34 +483,11 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
     }
 
     public DiameterIdentity[] getConnectedPeers() {
-      if (ra.stack != null) {
-        try {
-          // Get the list of peers from the stack
-          List<Peer> peers = ra.stack.unwrap(PeerTable.class).getPeerTable();
-
-          DiameterIdentity[] result = new DiameterIdentity[peers.size()];
-
-          int i = 0;
-
-          // Get each peer from the list and make a DiameterIdentity
-          for (Peer peer : peers) {
-            DiameterIdentity identity = new DiameterIdentity(peer.getUri().toString());
-            result[i++] = identity;
-          }
-
-          return result;
-        }
-        catch (Exception e) {
-          tracer.severe("Failure getting peer list.", e);
-        }
-      }
-
-      return null;
+      return ra.getConnectedPeers();
     }
 
     public int getPeerCount() {
-      DiameterIdentity[] connectedPeers = getConnectedPeers();
-      return connectedPeers != null ? getConnectedPeers().length : -1;
+      return ra.getPeerCount();
     }
 
     /* (non-Javadoc)
@@ -958,7 +495,7 @@ public class DiameterCCAResourceAdaptor implements ResourceAdaptor, DiameterList
      */
     @Override
     public Validator getValidator() {
-      return this.validator;
+      return validator;
     }
   }
 
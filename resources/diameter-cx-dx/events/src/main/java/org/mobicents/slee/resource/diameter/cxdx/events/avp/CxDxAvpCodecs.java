@@ -0,0 +1,285 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.cxdx.events.avp;
+
+import net.java.slee.resource.diameter.cxdx.events.avp.LooseRouteIndication;
+import net.java.slee.resource.diameter.cxdx.events.avp.MultipleRegistrationIndication;
+import net.java.slee.resource.diameter.cxdx.events.avp.OriginatingRequest;
+import net.java.slee.resource.diameter.cxdx.events.avp.PriviledgedSenderIndication;
+import net.java.slee.resource.diameter.cxdx.events.avp.ReasonCode;
+import net.java.slee.resource.diameter.cxdx.events.avp.ServerAssignmentType;
+import net.java.slee.resource.diameter.cxdx.events.avp.SessionPriority;
+import net.java.slee.resource.diameter.cxdx.events.avp.UserAuthorizationType;
+import net.java.slee.resource.diameter.cxdx.events.avp.UserDataAlreadyAvailable;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+
+/**
+ * Codec table for the Diameter Cx/Dx AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class CxDxAvpCodecs {
+
+  static {
+    AvpCodecRegistry.registerEnumerated(LooseRouteIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return LooseRouteIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LooseRouteIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MultipleRegistrationIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MultipleRegistrationIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MultipleRegistrationIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(OriginatingRequest.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return OriginatingRequest.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new OriginatingRequest[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PriviledgedSenderIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PriviledgedSenderIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PriviledgedSenderIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReasonCode.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReasonCode.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReasonCode[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ServerAssignmentType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ServerAssignmentType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ServerAssignmentType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SessionPriority.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SessionPriority.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SessionPriority[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(UserAuthorizationType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return UserAuthorizationType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UserAuthorizationType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(UserDataAlreadyAvailable.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return UserDataAlreadyAvailable.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UserDataAlreadyAvailable[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AssociatedIdentitiesImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AssociatedIdentitiesImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AssociatedIdentitiesImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AssociatedRegisteredIdentitiesImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AssociatedRegisteredIdentitiesImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AssociatedRegisteredIdentitiesImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(CableLabsSIPDigestAuthenticateImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new CableLabsSIPDigestAuthenticateImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CableLabsSIPDigestAuthenticateImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ChargingInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ChargingInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ChargingInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(DeregistrationReasonImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new DeregistrationReasonImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new DeregistrationReasonImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EtsiSIPAuthenticateImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EtsiSIPAuthenticateImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EtsiSIPAuthenticateImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EtsiSIPAuthenticationInfoImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EtsiSIPAuthenticationInfoImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EtsiSIPAuthenticationInfoImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EtsiSIPAuthorizationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EtsiSIPAuthorizationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EtsiSIPAuthorizationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(IdentitywithEmergencyRegistrationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new IdentitywithEmergencyRegistrationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new IdentitywithEmergencyRegistrationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(RestorationInfoImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new RestorationInfoImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RestorationInfoImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SCSCFRestorationInfoImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SCSCFRestorationInfoImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SCSCFRestorationInfoImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SIPAuthDataItemImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SIPAuthDataItemImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SIPAuthDataItemImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SIPDigestAuthenticateImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SIPDigestAuthenticateImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SIPDigestAuthenticateImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ServerCapabilitiesImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ServerCapabilitiesImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ServerCapabilitiesImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SubscriptionInfoImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SubscriptionInfoImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SubscriptionInfoImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SupportedFeaturesAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SupportedFeaturesAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SupportedFeaturesAvpImpl[size];
+      }
+    });
+  }
+
+  private CxDxAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
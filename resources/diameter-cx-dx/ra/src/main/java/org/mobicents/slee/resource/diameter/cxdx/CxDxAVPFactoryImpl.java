@@ -43,6 +43,7 @@ import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.avp.AssociatedIdentitiesImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.avp.AssociatedRegisteredIdentitiesImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.avp.ChargingInformationImpl;
+import org.mobicents.slee.resource.diameter.cxdx.events.avp.CxDxAvpCodecs;
 import org.mobicents.slee.resource.diameter.cxdx.events.avp.DeregistrationReasonImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.avp.RestorationInfoImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.avp.SCSCFRestorationInfoImpl;
@@ -60,6 +61,10 @@ import org.mobicents.slee.resource.diameter.cxdx.events.avp.ServerCapabilitiesIm
  */
 public class CxDxAVPFactoryImpl extends DiameterAvpFactoryImpl implements CxDxAVPFactory {
 
+  static {
+    CxDxAvpCodecs.register();
+  }
+
   DiameterAvpFactory baseAvpFactory;
   /**
    * 
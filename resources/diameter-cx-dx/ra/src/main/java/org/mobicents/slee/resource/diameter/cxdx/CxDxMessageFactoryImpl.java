@@ -28,6 +28,8 @@ import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.NoSuchAvpException;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.cxdx.CxDxMessageFactory;
@@ -48,6 +50,7 @@ import org.jdiameter.api.Session;
 import org.jdiameter.api.Stack;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.LocationInfoAnswerImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.LocationInfoRequestImpl;
@@ -102,6 +105,27 @@ public class CxDxMessageFactoryImpl extends DiameterMessageFactoryImpl implement
     this.baseFactory = baseFactory;
   }
 
+  /**
+   * @param session
+   * @param rawMessageCreator
+   */
+  public CxDxMessageFactoryImpl(DiameterMessageFactory baseFactory, Session session, RawMessageCreator rawMessageCreator) {
+    super(session, rawMessageCreator);
+
+    this.baseAvpFactory = new DiameterAvpFactoryImpl();
+    this.baseFactory = baseFactory;
+  }
+
+  /**
+   * @param rawMessageCreator
+   */
+  public CxDxMessageFactoryImpl(DiameterMessageFactory baseFactory, RawMessageCreator rawMessageCreator) {
+    super(rawMessageCreator);
+
+    this.baseAvpFactory = new DiameterAvpFactoryImpl();
+    this.baseFactory = baseFactory;
+  }
+
   public void setApplicationId(long vendorId, long applicationId) {
     this.cxdxAppId = ApplicationId.createByAuthAppId(vendorId, applicationId);      
   }
@@ -124,6 +148,16 @@ public class CxDxMessageFactoryImpl extends DiameterMessageFactoryImpl implement
     return null;
   }
 
+  /**
+   * Creates a {@link LocationInfoRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public LocationInfoRequest createLocationInfoRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    LocationInfoRequest msg = createLocationInfoRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   /* (non-Javadoc)
    * @see net.java.slee.resource.diameter.cxdx.CxDxMessageFactory#createLocationInfoRequest(java.lang.String)
    */
@@ -148,6 +182,16 @@ public class CxDxMessageFactoryImpl extends DiameterMessageFactoryImpl implement
     return null;
   }
 
+  /**
+   * Creates a {@link MultimediaAuthenticationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public MultimediaAuthenticationRequest createMultimediaAuthenticationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    MultimediaAuthenticationRequest msg = createMultimediaAuthenticationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   /* (non-Javadoc)
    * @see net.java.slee.resource.diameter.cxdx.CxDxMessageFactory#createMultimediaAuthenticationRequest(java.lang.String)
    */
@@ -172,6 +216,16 @@ public class CxDxMessageFactoryImpl extends DiameterMessageFactoryImpl implement
     return null;
   }
 
+  /**
+   * Creates a {@link PushProfileRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public PushProfileRequest createPushProfileRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    PushProfileRequest msg = createPushProfileRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   /* (non-Javadoc)
    * @see net.java.slee.resource.diameter.cxdx.CxDxMessageFactory#createPushProfileRequest(java.lang.String)
    */
@@ -196,6 +250,16 @@ public class CxDxMessageFactoryImpl extends DiameterMessageFactoryImpl implement
     return null;
   }
 
+  /**
+   * Creates a {@link RegistrationTerminationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public RegistrationTerminationRequest createRegistrationTerminationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    RegistrationTerminationRequest msg = createRegistrationTerminationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   /* (non-Javadoc)
    * @see net.java.slee.resource.diameter.cxdx.CxDxMessageFactory#createRegistrationTerminationRequest(java.lang.String)
    */
@@ -220,6 +284,16 @@ public class CxDxMessageFactoryImpl extends DiameterMessageFactoryImpl implement
     return null;
   }
 
+  /**
+   * Creates a {@link ServerAssignmentRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public ServerAssignmentRequest createServerAssignmentRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    ServerAssignmentRequest msg = createServerAssignmentRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   /* (non-Javadoc)
    * @see net.java.slee.resource.diameter.cxdx.CxDxMessageFactory#createServerAssignmentRequest(java.lang.String)
    */
@@ -244,6 +318,16 @@ public class CxDxMessageFactoryImpl extends DiameterMessageFactoryImpl implement
     return null;
   }
 
+  /**
+   * Creates a {@link UserAuthorizationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public UserAuthorizationRequest createUserAuthorizationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    UserAuthorizationRequest msg = createUserAuthorizationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   /* (non-Javadoc)
    * @see net.java.slee.resource.diameter.cxdx.CxDxMessageFactory#createUserAuthorizationRequest(java.lang.String)
    */
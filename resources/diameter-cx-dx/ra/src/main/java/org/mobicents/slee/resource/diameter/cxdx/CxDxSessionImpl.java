@@ -101,6 +101,12 @@ public abstract class CxDxSessionImpl extends DiameterActivityImpl implements Cx
     this.lastRequest = cxdxRequest;
   }
 
+  @Override
+  protected boolean isAsyncRequestSupported() {
+    // requests go through the CxDx application session, even when the RA listens to the activity
+    return false;
+  }
+
   /**
    * Fills message with session AVPs if present and/or needed.
    * 
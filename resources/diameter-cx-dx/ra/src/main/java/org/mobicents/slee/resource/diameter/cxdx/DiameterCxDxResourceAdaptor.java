@@ -24,27 +24,13 @@ package org.mobicents.slee.resource.diameter.cxdx;
 
 import static org.jdiameter.client.impl.helpers.Parameters.MessageTimeOut;
 
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.management.ObjectName;
 import javax.naming.OperationNotSupportedException;
-import javax.slee.Address;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.facilities.Tracer;
-import javax.slee.resource.ActivityFlags;
-import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.ConfigProperties;
-import javax.slee.resource.EventFlags;
-import javax.slee.resource.FailureReason;
-import javax.slee.resource.FireableEventType;
-import javax.slee.resource.InvalidConfigurationException;
 import javax.slee.resource.Marshaler;
-import javax.slee.resource.ReceivableService;
-import javax.slee.resource.ResourceAdaptor;
 import javax.slee.resource.ResourceAdaptorContext;
-import javax.slee.resource.SleeEndpoint;
 
 import net.java.slee.resource.diameter.Validator;
 import net.java.slee.resource.diameter.base.CreateActivityException;
@@ -65,42 +51,31 @@ import net.java.slee.resource.diameter.cxdx.events.ServerAssignmentRequest;
 import net.java.slee.resource.diameter.cxdx.events.UserAuthorizationRequest;
 import net.java.slee.resource.diameter.cxdx.events.avp.DiameterCxDxAvpCodes;
 
-import org.jboss.mx.util.MBeanServerLocator;
 import org.jdiameter.api.Answer;
 import org.jdiameter.api.ApplicationId;
-import org.jdiameter.api.AvpDataException;
 import org.jdiameter.api.EventListener;
 import org.jdiameter.api.IllegalDiameterStateException;
 import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
-import org.jdiameter.api.Peer;
-import org.jdiameter.api.PeerTable;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.SessionFactory;
-import org.jdiameter.api.Stack;
 import org.jdiameter.api.app.AppSession;
 import org.jdiameter.api.app.StateChangeListener;
 import org.jdiameter.api.cxdx.ClientCxDxSession;
 import org.jdiameter.api.cxdx.ServerCxDxSession;
 import org.jdiameter.api.sh.ServerShSession;
 import org.jdiameter.client.api.ISessionFactory;
-import org.mobicents.diameter.stack.DiameterListener;
-import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
-import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.LocalDiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.ValidatorImpl;
+import org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
-import org.mobicents.slee.resource.diameter.base.EventIDFilter;
 import org.mobicents.slee.resource.diameter.base.events.ErrorAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.base.handlers.AccountingSessionFactory;
 import org.mobicents.slee.resource.diameter.base.handlers.AuthorizationSessionFactory;
-import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
 import org.mobicents.slee.resource.diameter.cxdx.events.LocationInfoAnswerImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.LocationInfoRequestImpl;
 import org.mobicents.slee.resource.diameter.cxdx.events.MultimediaAuthenticationAnswerImpl;
@@ -121,7 +96,7 @@ import org.mobicents.slee.resource.diameter.cxdx.handlers.CxDxSessionFactory;
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a>
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  */
-public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterListener, DiameterRAInterface {
+public class DiameterCxDxResourceAdaptor extends AbstractDiameterResourceAdaptor {
 
   private static final long serialVersionUID = 1L;
 
@@ -133,55 +108,10 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
 
   private List<ApplicationId> authApplicationIds;
 
-  /**
-   * caches the eventIDs, avoiding lookup in container
-   */
-  public final EventIDCache eventIdCache = new EventIDCache();
-
-  /**
-   * tells the RA if an event with a specified ID should be filtered or not
-   */
-  private final EventIDFilter eventIDFilter = new EventIDFilter();
-
-  /**
-   * The ResourceAdaptorContext interface is implemented by the SLEE. It provides the Resource
-   * Adaptor with the required capabilities in the SLEE to execute its work. The ResourceAdaptorCon-
-   * text object holds references to a number of objects that are of interest to many Resource Adaptors. A
-   * resource adaptor object is provided with a ResourceAdaptorContext object when the setResour-
-   * ceAdaptorContext method of the ResourceAdaptor interface is invoked on the resource adaptor
-   * object. 
-   */
-  private ResourceAdaptorContext raContext;
-
-  /**
-   * The SLEE endpoint defines the contract between the SLEE and the resource
-   * adaptor that enables the resource adaptor to deliver events
-   * asynchronously to SLEE endpoints residing in the SLEE. This contract
-   * serves as a generic contract that allows a wide range of resources to be
-   * plugged into a SLEE environment via the resource adaptor architecture.
-   * For further information see JSLEE v1.1 Specification Page 307 The
-   * sleeEndpoint will be initialized in entityCreated() method.
-   */
-  private transient SleeEndpoint sleeEndpoint = null;
-
-  /**
-   * A tracer is represented in the SLEE by the Tracer interface. Notification sources access the Tracer Facil-
-   * ity through a Tracer object that implements the Tracer interface. A Tracer object can be obtained by
-   * SBBs via the SbbContext interface, by resource adaptor entities via the ResourceAdaptorContext
-   * interface, and by profiles via the ProfileContext interface. 
-   */
-  private Tracer tracer;
-
   private DiameterBaseMarshaler marshaler/*= new DiameterBaseMarshaler()*/;
   // Diameter Specific Properties ----------------------------------------
 
-  private Stack stack;
-
   private long messageTimeout = 5000;
-  private long activityRemoveDelay = 30000;
-
-  private ObjectName diameterMultiplexerObjectName = null;
-  private DiameterStackMultiplexerMBean diameterMux = null;
 
   // Base Factories
   private DiameterAvpFactory baseAvpFactory = null;
@@ -195,20 +125,6 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
 
   private CxDxSessionFactory cxdxSessionFactory = null;
 
-  /**
-   * the EventLookupFacility is used to look up the event id of incoming
-   * events
-   */
-  private transient EventLookupFacility eventLookup = null;
-
-  /**
-   * The list of activities stored in this resource adaptor. If this resource
-   * adaptor were a distributed and highly available solution, this storage
-   * were one of the candidates for distribution.
-   */
-  //private transient ConcurrentHashMap<ActivityHandle, DiameterActivity> activities = null;
-  private transient DiameterActivityManagement activities = null;
-
   /**
    * A link to the DiameterProvider which then will be exposed to Sbbs
    */
@@ -218,46 +134,19 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
   protected transient AccountingSessionFactory accSessionFactory = null;
   protected transient SessionFactory proxySessionFactory = null;
 
-  /**
-   * for all events we are interested in knowing when the event failed to be processed
-   */
-  private static final int EVENT_FLAGS = getEventFlags();
-
-  private static int getEventFlags() {
-    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
-    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
-    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
-    return eventFlags;
-  }
-
-  private static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.setRequestSleeActivityGCCallback(ActivityFlags.REQUEST_ENDED_CALLBACK);
-
   public DiameterCxDxResourceAdaptor() {
-    // TODO: Initialize any default values.
+    super("DiameterCxDxResourceAdaptor", "Diameter Cx/Dx RA", new EventIDCache());
   }
 
   // Lifecycle methods ---------------------------------------------------
 
   public void setResourceAdaptorContext(ResourceAdaptorContext context) {
-    this.raContext = context;
-
-    this.tracer = context.getTracer("DiameterCxDxResourceAdaptor");
+    super.setResourceAdaptorContext(context);
 
-    this.sleeEndpoint = context.getSleeEndpoint();
-    this.eventLookup = context.getEventLookupFacility();
     this.raProvider = new CxDxProviderImpl(this);
 
   }
 
-  public void unsetResourceAdaptorContext() {
-    this.raContext = null;
-
-    this.tracer = null;
-
-    this.sleeEndpoint = null;
-    this.eventLookup = null;
-  }
-
   public void raActive() {
     if(tracer.isFineEnabled()) {
       tracer.fine("Diameter Cx/Dx RA :: raActive.");
@@ -268,42 +157,29 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
         tracer.info("Activating Diameter Cx/Dx RA Entity");
       }
 
-      this.diameterMultiplexerObjectName = new ObjectName("diameter.mobicents:service=DiameterStackMultiplexer");
-
-      Object object = null;
-
-      if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
-        // trying to get via MBeanServer
-        object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      } else {
-        // trying to get via locateJBoss
-        object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      }
-
-      if (object != null && object instanceof DiameterStackMultiplexerMBean) {
-        this.diameterMux = (DiameterStackMultiplexerMBean) object;
-      }
-
-      //this.activities = new ConcurrentHashMap<ActivityHandle, DiameterActivity>();
+      activateCore();
 
       // Initialize the protocol stack
       initStack();
 
+      // Track the configured peers
+      initPeers();
+
+      // Share one raw message creator among all message factories
+      initMessageCreator();
+
       // Initialize activities mgmt
       initActivitiesMgmt();
 
+      // Resolve event types to fire
+      eventIdCache.init(eventLookup, tracer);
+
       // Initialize factories
       this.baseAvpFactory = new DiameterAvpFactoryImpl();
-      this.baseMessageFactory = new DiameterMessageFactoryImpl(stack);
+      this.baseMessageFactory = new DiameterMessageFactoryImpl(rawMessageCreator);
 	   
       this.cxdxAvpFactory = new CxDxAVPFactoryImpl(baseAvpFactory);
-      this.cxdxMessageFactory = new CxDxMessageFactoryImpl(baseMessageFactory,stack);
+      this.cxdxMessageFactory = new CxDxMessageFactoryImpl(baseMessageFactory,rawMessageCreator);
 
       // Set the first configured Application-Id as default for message factory
       ApplicationId firstAppId = authApplicationIds.get(0);
@@ -321,55 +197,10 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
     }
   }
 
-  public void raStopping() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Cx/Dx RA :: raStopping.");
-    }
-
-    try {
-      diameterMux.unregisterListener(this);
-    }
-    catch (Exception e) {
-      tracer.severe("Failed to unregister Cx/Dx RA from Diameter Mux.", e);
-    }
-
-    //synchronized (this.activities) {
-    //  for (ActivityHandle activityHandle : activities.keySet()) {
-    //    try {
-    //      if(tracer.isInfoEnabled()) {
-    //        tracer.info("Ending activity [" + activityHandle + "]");
-    //      }
-    //
-    //      activities.get(activityHandle).endActivity();
-    //    }
-    //    catch (Exception e) {
-    //      tracer.severe("Error Deactivating Activity", e);
-    //    }
-    //  }
-    //}
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Cx/Dx RA :: raStopping completed.");
-    }
-  }
-
-  public void raInactive() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Cx/Dx RA :: raInactive.");
-    }
-
-    //synchronized (this.activities) {
-    //  activities.clear();
-    //}
-    activities = null;
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Cx/Dx RA :: raInactive completed.");
-    }
-  }
-
   public void raConfigure(ConfigProperties properties) {
     parseApplicationIds((String) properties.getProperty(AUTH_APPLICATION_IDS).getValue());
+
+    super.raConfigure(properties);
   }
 
   private void parseApplicationIds(String appIdsStr) {
@@ -390,23 +221,9 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
   }
 
   public void raUnconfigure() {
-    // Clean up!
-    this.activities = null;
-    this.raContext = null;
-    this.eventLookup = null;
-    this.raProvider = null;
-    this.sleeEndpoint = null;
-    this.stack = null;
-  }
-
-  // Configuration management methods ------------------------------------
-
-  public void raVerifyConfiguration(ConfigProperties properties) throws InvalidConfigurationException {
-    // TODO Auto-generated method stub
-  }
+    super.raUnconfigure();
 
-  public void raConfigurationUpdate(ConfigProperties properties) {
-    // this ra does not support config update while entity is active    
+    this.raProvider = null;
   }
 
   // Interface access methods -------------------------------------------- 
@@ -424,215 +241,15 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
     return this.marshaler;
   }
 
-  // Event filtering methods ---------------------------------------------
-
-  public void serviceActive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceActive(serviceInfo);   
-  }
-
-  public void serviceStopping(ReceivableService serviceInfo) {
-    eventIDFilter.serviceStopping(serviceInfo);
-  }
-
-  public void serviceInactive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceInactive(serviceInfo); 
-  }
-
-  // Mandatory callback methods ------------------------------------------
-
-  public void queryLiveness(ActivityHandle handle) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Cx/Dx RA :: queryLiveness :: handle[" + handle + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)){
-      return;
-    }
-
-    DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle)handle);
-
-    if (activity != null && !activity.isValid()) {
-      try {
-        sleeEndpoint.endActivity(handle);
-      }
-      catch (Exception e) {
-        tracer.severe("Failure ending non-live activity.", e);
-      }
-    }
-  }
-
-  public Object getActivity(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Cx/Dx RA :: getActivity :: handle[" + handle + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)){
-      return null;
-    }
-    return this.activities.get((DiameterActivityHandle)handle);
-  }
-
-  public ActivityHandle getActivityHandle(Object activity) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Cx/Dx RA :: getActivityHandle :: activity[" + activity + "].");
-    }
-
-    if (!(activity instanceof DiameterActivity)) {
-      return null;
-    }
-
-    DiameterActivityImpl inActivity = (DiameterActivityImpl) activity;
-
-    return inActivity.getActivityHandle();
-  }
-
-  public void administrativeRemove(ActivityHandle handle) {
-    // TODO what to do here?
-  }
-
-  // Optional callback methods -------------------------------------------
-
-  public void eventProcessingFailed(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags, FailureReason reason) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Cx/Dx RA :: eventProcessingFailed :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "], reason[" + reason + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventProcessingSuccessful(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Cx/Dx RA :: eventProcessingSuccessful :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventUnreferenced(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Cx/Dx RA :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], service[" + service + "], flags[" + flags + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  private void processAfterEventDelivery(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    DiameterActivityImpl activity = (DiameterActivityImpl) getActivity(handle);
-    if (activity != null) {
-      synchronized (activity) {
-        if (activity.isTerminateAfterProcessing()) {
-          activity.endActivity();
-        }
-      }
-    }
-  }
-
-  public void activityEnded(ActivityHandle handle) {
-    tracer.info("Diameter Cx/Dx RA :: activityEnded :: handle[" + handle + ".");
-
-    if(this.activities != null) {
-      synchronized (this.activities) {
-        this.activities.remove((DiameterActivityHandle)handle);
-      }
-    }
-  }
-
-  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.startActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to start activity remove timer.", e);
-    }
-  }
-
-  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.stopActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to stop activity remove timer.", e);
-    }
-  }
-	
-  public void activityUnreferenced(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Cx/Dx RA :: activityUnreferenced :: handle[" + handle + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-    this.activityEnded(handle);
-  }
-
   // Event and Activities management -------------------------------------
 
-  public boolean fireEvent(Object event, ActivityHandle handle, FireableEventType eventID, Address address, boolean useFiltering, boolean transacted) {
-    if (useFiltering && eventIDFilter.filterEvent(eventID)) {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Event " + eventID + " filtered");
-      }
-    }
-    else if (eventID == null) {
-      tracer.severe("Event ID for " + eventID + " is unknown, unable to fire.");
-    }
-    else {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Firing event " + event + " on handle " + handle);
-      }
-      try {
-        /* TODO: Support transacted fire of events when in cluster
-        if (transacted){
-          this.raContext.getSleeEndpoint().fireEventTransacted(handle, eventID, event, address, null, EVENT_FLAGS);
-        }
-        else */{
-          this.raContext.getSleeEndpoint().fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
-        }       
-        return true;
-      }
-      catch (Exception e) {
-        tracer.severe("Error firing event.", e);
-      }
-    }
-
-    return false;
-  }
-
-  /*
-   * (non-Javadoc)
-   * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#fireEvent(java.lang.String, org.jdiameter.api.Request, org.jdiameter.api.Answer)
-   */
-  public void fireEvent(String sessionId, Message message) {
-    DiameterMessage event = (DiameterMessage) createEvent(message);
-
-    FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
-
-    this.fireEvent(event, getActivityHandle(sessionId), eventId, null, true, message.isRequest());
-  }
-
-  @Override
-  public void endActivity(DiameterActivityHandle handle) {
-    sleeEndpoint.endActivity(handle);
-  }
-
-  @Override
-  public void update(DiameterActivityHandle handle, DiameterActivity activity) {
-    activities.update(handle, activity);
-  }
   /**
    * Create Event object from a JDiameter message (request or answer)
    * 
    * @return a DiameterMessage object wrapping the request/answer
    * @throws OperationNotSupportedException
    */
-  private DiameterMessage createEvent(Message message) {
+  protected DiameterMessage createEvent(Message message) {
     if (message == null) {
       throw new NullPointerException("Message argument cannot be null while creating event.");
     }
@@ -664,42 +281,6 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
     }
   }
 
-  // Session Management --------------------------------------------------
-
-  /**
-   * Method for performing tasks when activity is created, such as informing SLEE about it and storing into internal map.
-   * 
-   * @param ac the activity that has been created
-   */
-  private void addActivity(DiameterActivity ac, boolean suspended) {
-    try {
-      // Inform SLEE that Activity Started
-      DiameterActivityImpl activity = (DiameterActivityImpl) ac;
-
-      if (suspended) {
-        sleeEndpoint.startActivitySuspended(activity.getActivityHandle(), activity, DEFAULT_ACTIVITY_FLAGS);
-      }
-      else {
-        sleeEndpoint.startActivity(activity.getActivityHandle(), activity, DEFAULT_ACTIVITY_FLAGS);
-      }
-
-      // Set the listener
-      activity.setSessionListener(this);
-
-      // Put it into our activites map
-      activities.put(activity.getActivityHandle(), activity);
-
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Activity started [" + activity.getActivityHandle() + "]");
-      }
-    }
-    catch (Exception e) {
-      tracer.severe("Error creating activity", e);
-
-      throw new RuntimeException("Error creating activity", e);
-    }
-  }
-
   // Private Methods -----------------------------------------------------
 
   /**
@@ -719,27 +300,10 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
       tracer.info("Diameter Cx/Dx RA :: Successfully initialized stack.");
     }
   }
-  private void initActivitiesMgmt() {
-    this.activities = new LocalDiameterActivityManagement(this.raContext, this.activityRemoveDelay);
-  }
-
-  /**
-   * Create the Diameter Activity Handle for an given session id
-   * 
-   * @param sessionId the session identifier to create the activity handle from
-   * @return a DiameterActivityHandle for the provided sessionId
-   */
-  protected DiameterActivityHandle getActivityHandle(String sessionId) {
-    return new DiameterActivityHandle(sessionId);
-  }
 
   // NetworkReqListener Implementation -----------------------------------
 
-  /*
-   * (non-Javadoc)
-   * @see org.jdiameter.api.NetworkReqListener#processRequest(org.jdiameter.api.Request)
-   */
-  public Answer processRequest(Request request) {
+  protected Answer doProcessRequest(Request request) {
     try {
       raProvider.createActivity(request);
     }
@@ -756,36 +320,7 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.jdiameter.api.EventListener#receivedSuccessMessage(org.jdiameter.api.Message, org.jdiameter.api.Message)
    */
   public void receivedSuccessMessage(Request request, Answer answer) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Cx/Dx RA :: receivedSuccessMessage :: " + "Request[" + request + "], Answer[" + answer + "].");
-    }
-
-    try {
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Received Message Result-Code: " + answer.getResultCode().getUnsigned32());
-      }
-    }
-    catch (AvpDataException ignore) {
-      // ignore, this was just for informational purposes...
-    }
-  }
-
-  /*
-   * (non-Javadoc)
-   * @see org.jdiameter.api.EventListener#timeoutExpired(org.jdiameter.api.Message)
-   */
-  public void timeoutExpired(Request request) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Cx/Dx RA :: timeoutExpired :: " + "Request[" + request + "].");
-    }
-
-    try {
-      // Message delivery timed out - we have to remove activity
-      ((DiameterActivity) getActivity(getActivityHandle(request.getSessionId()))).endActivity();
-    }
-    catch (Exception e) {
-      tracer.severe("Failure processing timeout message.", e);
-    }
+    messageTracer.answerReceived(request, answer);
   }
 
   // CxDx Session Creation Listener --------------------------------------
@@ -795,8 +330,8 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.mobicents.slee.resource.diameter.cxdx.handlers.CxDxSessionCreationListener#sessionCreated(org.jdiameter.api.cxdx.ServerCxDxSession)
    */
   public void sessionCreated(ServerCxDxSession session) {
-    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), stack);
-    CxDxMessageFactoryImpl sessionMsgFactory = new CxDxMessageFactoryImpl(baseMsgFactory,session.getSessions().get(0), stack, new DiameterIdentity[]{});
+    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), rawMessageCreator);
+    CxDxMessageFactoryImpl sessionMsgFactory = new CxDxMessageFactoryImpl(baseMsgFactory,session.getSessions().get(0), rawMessageCreator);
 
     // Set the first configured Application-Id as default for message factory
     ApplicationId firstAppId = authApplicationIds.get(0);
@@ -813,8 +348,8 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.mobicents.slee.resource.diameter.cxdx.handlers.CxDxSessionCreationListener#sessionCreated(org.jdiameter.api.cxdx.ClientCxDxSession)
    */
   public void sessionCreated(ClientCxDxSession session) {
-    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), stack);
-    CxDxMessageFactoryImpl sessionMsgFactory = new CxDxMessageFactoryImpl(baseMsgFactory,session.getSessions().get(0), stack, new DiameterIdentity[]{});
+    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(session.getSessions().get(0), rawMessageCreator);
+    CxDxMessageFactoryImpl sessionMsgFactory = new CxDxMessageFactoryImpl(baseMsgFactory,session.getSessions().get(0), rawMessageCreator);
 
     // Set the first configured Application-Id as default for message factory
     ApplicationId firstAppId = authApplicationIds.get(0);
@@ -831,13 +366,13 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
    * @see org.mobicents.slee.resource.diameter.cxdx.handlers.CxDxSessionCreationListener#sessionCreated(org.jdiameter.api.Session)
    */
   public void sessionCreated(Session session) {
-    DiameterMessageFactoryImpl sessionMsgFactory = new DiameterMessageFactoryImpl(session, stack, null, null);
+    DiameterMessageFactoryImpl sessionMsgFactory = new DiameterMessageFactoryImpl(session, rawMessageCreator);
     DiameterActivityImpl activity = new DiameterActivityImpl(sessionMsgFactory, baseAvpFactory, session, this, null, null);
 
     // TODO: Do we need to manage session?
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false);
+    addActivity(activity, false, DEFAULT_ACTIVITY_FLAGS);
   }
 
   /*
@@ -876,7 +411,6 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
   private class CxDxProviderImpl implements CxDxProvider {
 
     protected DiameterCxDxResourceAdaptor ra;
-    protected Validator validator = new ValidatorImpl();
 
     /**
      * Constructor.
@@ -925,7 +459,7 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
       }
 
       CxDxServerSessionImpl activity = new CxDxServerSessionImpl(ra.cxdxMessageFactory, ra.cxdxAvpFactory, session, (EventListener<Request, Answer>) session, (DiameterIdentity)null, (DiameterIdentity)null,stack);
-      addActivity(activity, false);
+      addActivity(activity, false, DEFAULT_ACTIVITY_FLAGS);
 
       if(request != null) {
         if(request.getCommandCode() == LocationInfoRequest.COMMAND_CODE) {
@@ -957,7 +491,7 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
       try {
         ServerCxDxSession session = ((ISessionFactory) stack.getSessionFactory()).getNewAppSession(null, ApplicationId.createByAuthAppId(DiameterCxDxAvpCodes.CXDX_VENDOR_ID, DiameterCxDxAvpCodes.CXDX_AUTH_APP_ID), ServerCxDxSession.class);
         CxDxServerSessionImpl activity = new CxDxServerSessionImpl(ra.cxdxMessageFactory, ra.cxdxAvpFactory, session, (EventListener<Request, Answer>) session, destinationHost, destinationRealm, stack);
-        addActivity(activity, false);
+        addActivity(activity, false, DEFAULT_ACTIVITY_FLAGS);
         return activity;
       }
       catch (Exception e) {
@@ -972,14 +506,14 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
       try {
 
     	ClientCxDxSession session = ((ISessionFactory) stack.getSessionFactory()).getNewAppSession(null, ApplicationId.createByAuthAppId(DiameterCxDxAvpCodes.CXDX_VENDOR_ID, DiameterCxDxAvpCodes.CXDX_AUTH_APP_ID), ClientCxDxSession.class);
-      CxDxMessageFactoryImpl sessionMsgFactory = new CxDxMessageFactoryImpl(this.ra.baseMessageFactory,session.getSessions().get(0), stack, new DiameterIdentity[]{});
+      CxDxMessageFactoryImpl sessionMsgFactory = new CxDxMessageFactoryImpl(this.ra.baseMessageFactory,session.getSessions().get(0), rawMessageCreator);
 
       // Set the first configured Application-Id as default for message factory
       ApplicationId firstAppId = authApplicationIds.get(0);
       sessionMsgFactory.setApplicationId(firstAppId.getVendorId(), firstAppId.getAuthAppId());
 
         CxDxClientSessionImpl activity = new CxDxClientSessionImpl(sessionMsgFactory, ra.cxdxAvpFactory, session, (EventListener<Request, Answer>) session, destinationHost, destinationRealm, ra.sleeEndpoint);
-        addActivity(activity, false /*true*/);
+        addActivity(activity, false /*true*/, DEFAULT_ACTIVITY_FLAGS);
         return activity;
       }
       catch (Exception e) {
@@ -991,14 +525,14 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
       try {
         String sessionId = request == null? null: request.getSessionId();
         ClientCxDxSession session = ((ISessionFactory) stack.getSessionFactory()).getNewAppSession(sessionId, ApplicationId.createByAuthAppId(DiameterCxDxAvpCodes.CXDX_VENDOR_ID, DiameterCxDxAvpCodes.CXDX_AUTH_APP_ID), ClientCxDxSession.class);
-        CxDxMessageFactoryImpl sessionMsgFactory = new CxDxMessageFactoryImpl(this.ra.baseMessageFactory,session.getSessions().get(0), stack, new DiameterIdentity[]{});
+        CxDxMessageFactoryImpl sessionMsgFactory = new CxDxMessageFactoryImpl(this.ra.baseMessageFactory,session.getSessions().get(0), rawMessageCreator);
 
         // Set the first configured Application-Id as default for message factory
         ApplicationId firstAppId = authApplicationIds.get(0);
         sessionMsgFactory.setApplicationId(firstAppId.getVendorId(), firstAppId.getAuthAppId());
 
         CxDxClientSessionImpl activity = new CxDxClientSessionImpl(sessionMsgFactory, ra.cxdxAvpFactory, session, (EventListener<Request, Answer>) session, null, null, ra.sleeEndpoint);
-        addActivity(activity, suspend);
+        addActivity(activity, suspend, DEFAULT_ACTIVITY_FLAGS);
 
         if(request != null) {
           if(request.getCommandCode() == PushProfileRequest.COMMAND_CODE) {
@@ -1031,7 +565,7 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
     }
 
     public int getPeerCount() {
-      return ra.getConnectedPeers().length;
+      return ra.getPeerCount();
     }
 
     public CxDxServerSessionActivity createCxDxServerSessionActivity() throws CreateActivityException {
@@ -1043,35 +577,8 @@ public class DiameterCxDxResourceAdaptor implements ResourceAdaptor, DiameterLis
      */
     @Override
     public Validator getValidator() {
-      return this.validator;
+      return validator;
     }
   }
 
-  public DiameterIdentity[] getConnectedPeers() {
-    if (this.stack != null) {
-      try {
-        // Get the list of peers from the stack
-        List<Peer> peers = stack.unwrap(PeerTable.class).getPeerTable();
-
-        DiameterIdentity[] result = new DiameterIdentity[peers.size()];
-
-        int i = 0;
-
-        // Get each peer from the list and make a DiameterIdentity
-        for (Peer peer : peers) {
-          DiameterIdentity identity = new DiameterIdentity(peer.getUri().toString());
-
-          result[i++] = identity;
-        }
-
-        return result;
-      }
-      catch (Exception e) {
-        tracer.severe("Failure getting peer list.", e);
-      }
-    }
-
-    return new DiameterIdentity[0];
-  }
-
 }
@@ -24,6 +24,8 @@ package net.java.slee.resource.diameter.cxdx;
 
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.cxdx.events.LocationInfoRequest;
 import net.java.slee.resource.diameter.cxdx.events.MultimediaAuthenticationRequest;
 import net.java.slee.resource.diameter.cxdx.events.PushProfileRequest;
@@ -60,6 +62,16 @@ public interface CxDxMessageFactory {
    */
   UserAuthorizationRequest createUserAuthorizationRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link UserAuthorizationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new UserAuthorizationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  UserAuthorizationRequest createUserAuthorizationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a ServerAssignmentRequest instance, populating it with the internal
    * AVPs not known or needed by the application.
@@ -80,6 +92,16 @@ public interface CxDxMessageFactory {
    */
   ServerAssignmentRequest createServerAssignmentRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link ServerAssignmentRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new ServerAssignmentRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  ServerAssignmentRequest createServerAssignmentRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a LocationInfoRequest instance, populating it with the internal
    * AVPs not known or needed by the application.
@@ -100,6 +122,16 @@ public interface CxDxMessageFactory {
    */
   LocationInfoRequest createLocationInfoRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link LocationInfoRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new LocationInfoRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  LocationInfoRequest createLocationInfoRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a MultimediaAuthenticationRequest instance, populating it with the internal
    * AVPs not known or needed by the application.
@@ -120,6 +152,16 @@ public interface CxDxMessageFactory {
    */
   MultimediaAuthenticationRequest createMultimediaAuthenticationRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link MultimediaAuthenticationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new MultimediaAuthenticationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  MultimediaAuthenticationRequest createMultimediaAuthenticationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a RegistrationTerminationRequest instance, populating it with the internal
    * AVPs not known or needed by the application.
@@ -140,6 +182,16 @@ public interface CxDxMessageFactory {
    */
   RegistrationTerminationRequest createRegistrationTerminationRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link RegistrationTerminationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new RegistrationTerminationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  RegistrationTerminationRequest createRegistrationTerminationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a PushProfileRequest instance, populating it with the internal
    * AVPs not known or needed by the application.
@@ -160,6 +212,16 @@ public interface CxDxMessageFactory {
    */
   PushProfileRequest createPushProfileRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link PushProfileRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new PushProfileRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  PushProfileRequest createPushProfileRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * 
    * @return Base Diameter message factory
@@ -0,0 +1,231 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.gq.events.avp;
+
+import net.java.slee.resource.diameter.gq.events.avp.AbortCause;
+import net.java.slee.resource.diameter.gq.events.avp.FlowStatus;
+import net.java.slee.resource.diameter.gq.events.avp.FlowUsage;
+import net.java.slee.resource.diameter.gq.events.avp.LatchingIndication;
+import net.java.slee.resource.diameter.gq.events.avp.MediaType;
+import net.java.slee.resource.diameter.gq.events.avp.OverbookingIndicator;
+import net.java.slee.resource.diameter.gq.events.avp.ReservationPriority;
+import net.java.slee.resource.diameter.gq.events.avp.SIPForkingIndication;
+import net.java.slee.resource.diameter.gq.events.avp.SpecificAction;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+
+/**
+ * Codec table for the Diameter Gq AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class GqAvpCodecs {
+
+  static {
+    AvpCodecRegistry.registerEnumerated(AbortCause.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AbortCause.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AbortCause[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(FlowStatus.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return FlowStatus.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FlowStatus[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(FlowUsage.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return FlowUsage.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FlowUsage[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(LatchingIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return LatchingIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LatchingIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MediaType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MediaType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MediaType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(OverbookingIndicator.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return OverbookingIndicator.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new OverbookingIndicator[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReservationPriority.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReservationPriority.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReservationPriority[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SIPForkingIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SIPForkingIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SIPForkingIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SpecificAction.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SpecificAction.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SpecificAction[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(BindingInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new BindingInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new BindingInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(BindingInputListImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new BindingInputListImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new BindingInputListImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(BindingOutputListImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new BindingOutputListImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new BindingOutputListImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(FlowGroupingImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new FlowGroupingImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FlowGroupingImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(FlowsImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new FlowsImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FlowsImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(GloballyUniqueAddressImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new GloballyUniqueAddressImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new GloballyUniqueAddressImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MediaComponentDescriptionImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MediaComponentDescriptionImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MediaComponentDescriptionImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MediaSubComponentImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MediaSubComponentImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MediaSubComponentImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(V4TransportAddressImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new V4TransportAddressImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new V4TransportAddressImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(V6TransportAddressImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new V6TransportAddressImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new V6TransportAddressImpl[size];
+      }
+    });
+  }
+
+  private GqAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
@@ -0,0 +1,668 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.gq;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sdp.SdpParseException;
+
+import net.java.slee.resource.diameter.base.events.avp.AvpUtilities;
+import net.java.slee.resource.diameter.gq.GqAvpFactory;
+import net.java.slee.resource.diameter.gq.GqProvider;
+import net.java.slee.resource.diameter.gq.events.avp.FlowStatus;
+import net.java.slee.resource.diameter.gq.events.avp.FlowUsage;
+import net.java.slee.resource.diameter.gq.events.avp.MediaComponentDescription;
+import net.java.slee.resource.diameter.gq.events.avp.MediaSubComponent;
+import net.java.slee.resource.diameter.gq.events.avp.MediaType;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.GroupedAvpImpl;
+import org.mobicents.slee.resource.diameter.gq.events.avp.DiameterGqAvpCodes;
+
+/**
+ * Converts SDP to Gq' Media-Component-Description AVP, as {@link SDPConverter},
+ * without going through javax.sdp.<br>
+ * <br>
+ * The SDP is read in a single pass over its lines, keeping only the fields used
+ * by the conversion, and the Flow-Description rules are written directly as
+ * strings. The result of a conversion is kept, in an immutable form, in a
+ * bounded cache keyed by the SHA-1 digest of the SDP, so that re-INVITEs and
+ * UPDATEs carrying the same offer/answer only build the AVPs again.<br>
+ * <br>
+ * Where {@link SDPConverter} fails on valid input (sub-components are only
+ * allocated for RTP/AVP, and the answer is applied to the sub-components at the
+ * index of the answer media rather than the matching offer media), this
+ * converter applies the answer to the matching offer media and skips flows
+ * which do not exist.
+ */
+public class CompiledSDPConverter {
+
+  private static final int MAX_CACHE_SIZE = 256;
+
+  private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String MODE_RECVONLY = "recvonly";
+  private static final String MODE_SENDONLY = "sendonly";
+  private static final String MODE_SENDRECV = "sendrecv";
+  private static final String MODE_INACTIVE = "inactive";
+
+  private static final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+    @Override
+    protected MessageDigest initialValue() {
+      try {
+        return MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-1 not available", e);
+      }
+    }
+  };
+
+  private static final Map<ByteBuffer, Component[]> cache = new LinkedHashMap<ByteBuffer, Component[]>(MAX_CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Component[]> eldest) {
+      return size() > MAX_CACHE_SIZE;
+    }
+  };
+
+  /**
+   * Returns the value of the Media-Component-Description[] AVP, of type Grouped.
+   */
+  public static MediaComponentDescription[] convertSDP(GqProvider gqProvider, String sourceSDP, String destinationSDP) throws SdpParseException {
+    return convertSDP(gqProvider.getGqAvpFactory(), sourceSDP, destinationSDP);
+  }
+
+  /**
+   * Returns the value of the Media-Component-Description[] AVP, of type Grouped.
+   */
+  public static MediaComponentDescription[] convertSDP(GqProvider gqProvider, String sourceSDP) throws SdpParseException {
+    return convertSDP(gqProvider.getGqAvpFactory(), sourceSDP);
+  }
+
+  /**
+   * Returns the value of the Media-Component-Description[] AVP, of type Grouped.
+   */
+  public static MediaComponentDescription[] convertSDP(GqAvpFactory avpFactory, String sourceSDP, String destinationSDP) throws SdpParseException {
+    ByteBuffer key = digest(sourceSDP, destinationSDP);
+    Component[] components = get(key);
+    if (components == null) {
+      components = compile(parse(sourceSDP, "no source media found"), parse(destinationSDP, "no destination media found"));
+      put(key, components);
+    }
+
+    return build(avpFactory, components, false);
+  }
+
+  /**
+   * Returns the value of the Media-Component-Description[] AVP, of type Grouped.
+   */
+  public static MediaComponentDescription[] convertSDP(GqAvpFactory avpFactory, String sourceSDP) throws SdpParseException {
+    ByteBuffer key = digest(sourceSDP, null);
+    Component[] components = get(key);
+    if (components == null) {
+      components = compile(parse(sourceSDP, "no source media found"), null);
+      put(key, components);
+    }
+
+    return build(avpFactory, components, true);
+  }
+
+  /**
+   * Drops all cached conversions.
+   */
+  public static void clearCache() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  private static Component[] get(ByteBuffer key) {
+    synchronized (cache) {
+      return cache.get(key);
+    }
+  }
+
+  private static void put(ByteBuffer key, Component[] components) {
+    synchronized (cache) {
+      cache.put(key, components);
+    }
+  }
+
+  private static ByteBuffer digest(String sourceSDP, String destinationSDP) {
+    MessageDigest md = digests.get();
+    md.reset();
+    md.update(sourceSDP.getBytes(UTF8));
+    if (destinationSDP != null) {
+      // so that offer "ab"/answer "c" does not collide with offer "a"/answer "bc"
+      md.update((byte) 0);
+      md.update(destinationSDP.getBytes(UTF8));
+    }
+    else {
+      md.update((byte) 1);
+    }
+
+    return ByteBuffer.wrap(md.digest());
+  }
+
+  // --------- Parsing
+
+  private static final class Media {
+
+    private String type;
+    private int port;
+    private int portCount;
+    private String protocol;
+    // as encoded by javax.sdp, ie, "m=...\r\n"
+    private String mediaLine;
+
+    private String address;
+    private String mode = "";
+    private int rtcpPort;
+    private String rtcpAddress;
+    private int step = 2;
+
+    private long bandwidthAS = -1;
+    private long bandwidthRR = -1;
+    private long bandwidthRS = -1;
+
+    // attribute and bandwidth lines copied to Codec-Data
+    private final StringBuilder attributeLines = new StringBuilder();
+    private final StringBuilder bandwidthLines = new StringBuilder();
+
+    private int ports() {
+      return portCount > 0 ? portCount : 1;
+    }
+  }
+
+  private static List<Media> parse(String sdp, String noMediaMessage) throws SdpParseException {
+    List<Media> media = new ArrayList<Media>(4);
+    String sessionAddress = null;
+    Media current = null;
+
+    int lineNumber = 0;
+    int length = sdp.length();
+    int start = 0;
+    while (start < length) {
+      int end = sdp.indexOf('\n', start);
+      if (end < 0) {
+        end = length;
+      }
+      int next = end + 1;
+      if (end > start && sdp.charAt(end - 1) == '\r') {
+        end--;
+      }
+      lineNumber++;
+
+      if (end - start > 2 && sdp.charAt(start + 1) == '=') {
+        String value = sdp.substring(start + 2, end).trim();
+        switch (sdp.charAt(start)) {
+          case 'm':
+            current = parseMedia(value, lineNumber);
+            media.add(current);
+            break;
+          case 'c':
+            String address = parseConnectionAddress(value, lineNumber);
+            if (current == null) {
+              sessionAddress = address;
+            }
+            else {
+              current.address = address;
+            }
+            break;
+          case 'a':
+            if (current != null) {
+              parseAttribute(current, value, lineNumber);
+            }
+            break;
+          case 'b':
+            if (current != null) {
+              parseBandwidth(current, value, lineNumber);
+            }
+            break;
+          default:
+            // not relevant for the conversion
+            break;
+        }
+      }
+
+      start = next;
+    }
+
+    if (media.isEmpty()) {
+      throw new SdpParseException(0, 0, noMediaMessage);
+    }
+
+    for (Media m : media) {
+      if (m.address == null) {
+        if (sessionAddress == null) {
+          throw new SdpParseException(0, 0, "no connection address for media " + m.type);
+        }
+        m.address = sessionAddress;
+      }
+      if (m.rtcpAddress == null) {
+        m.rtcpAddress = m.address;
+      }
+    }
+
+    return media;
+  }
+
+  private static Media parseMedia(String value, int lineNumber) throws SdpParseException {
+    String[] tokens = tokenize(value);
+    if (tokens.length < 3) {
+      throw new SdpParseException(lineNumber, 0, "invalid media field: " + value);
+    }
+
+    Media media = new Media();
+    media.type = tokens[0].toLowerCase();
+
+    String port = tokens[1];
+    int slash = port.indexOf('/');
+    media.port = parseInt(slash < 0 ? port : port.substring(0, slash), lineNumber);
+    if (slash >= 0) {
+      media.portCount = parseInt(port.substring(slash + 1), lineNumber);
+    }
+    media.rtcpPort = media.port + 1;
+    media.protocol = tokens[2].toLowerCase();
+
+    StringBuilder mediaLine = new StringBuilder(value.length() + 4);
+    mediaLine.append("m=").append(tokens[0]).append(' ').append(media.port);
+    if (media.portCount > 1) {
+      mediaLine.append('/').append(media.portCount);
+    }
+    mediaLine.append(' ').append(tokens[2]);
+    for (int i = 3; i < tokens.length; i++) {
+      mediaLine.append(' ').append(tokens[i]);
+    }
+    media.mediaLine = mediaLine.append("\r\n").toString();
+
+    return media;
+  }
+
+  private static String parseConnectionAddress(String value, int lineNumber) throws SdpParseException {
+    String[] tokens = tokenize(value);
+    if (tokens.length < 3) {
+      throw new SdpParseException(lineNumber, 0, "invalid connection field: " + value);
+    }
+
+    // strip TTL and number of addresses, if any
+    String address = tokens[2];
+    int slash = address.indexOf('/');
+    return slash < 0 ? address : address.substring(0, slash);
+  }
+
+  private static void parseAttribute(Media media, String value, int lineNumber) throws SdpParseException {
+    int colon = value.indexOf(':');
+    String name = colon < 0 ? value : value.substring(0, colon);
+
+    if (name.equals(MODE_RECVONLY) || name.equals(MODE_SENDONLY) || name.equals(MODE_SENDRECV) || name.equals(MODE_INACTIVE)) {
+      media.mode = name;
+    }
+    else if (name.equals("rtcp")) {
+      String[] rtcpValues = tokenize(colon < 0 ? "" : value.substring(colon + 1));
+      if (rtcpValues.length == 0) {
+        throw new SdpParseException(lineNumber, 0, "invalid rtcp attribute: " + value);
+      }
+      media.rtcpPort = parseInt(rtcpValues[0], lineNumber);
+      if (media.rtcpPort != media.port + 1) {
+        media.step = 1;
+      }
+      // as SDPConverter, only "port nettype address" carries an address
+      if (rtcpValues.length == 3) {
+        media.rtcpAddress = rtcpValues[2];
+      }
+    }
+    else {
+      media.attributeLines.append("a=").append(value).append("\r\n").append(LINE_SEPARATOR);
+    }
+  }
+
+  private static void parseBandwidth(Media media, String value, int lineNumber) throws SdpParseException {
+    int colon = value.indexOf(':');
+    if (colon < 0) {
+      throw new SdpParseException(lineNumber, 0, "invalid bandwidth field: " + value);
+    }
+
+    String type = value.substring(0, colon);
+    int bandwidth = parseInt(value.substring(colon + 1).trim(), lineNumber);
+    if (type.equals("AS")) {
+      media.bandwidthAS = bandwidth;
+    }
+    else if (type.equals("RR")) {
+      media.bandwidthRR = bandwidth;
+    }
+    else if (type.equals("RS")) {
+      media.bandwidthRS = bandwidth;
+    }
+    else {
+      media.bandwidthLines.append("b=").append(type).append(':').append(bandwidth).append("\r\n").append(LINE_SEPARATOR);
+    }
+  }
+
+  private static int parseInt(String value, int lineNumber) throws SdpParseException {
+    try {
+      return Integer.parseInt(value);
+    }
+    catch (NumberFormatException e) {
+      throw new SdpParseException(lineNumber, 0, "invalid number: " + value);
+    }
+  }
+
+  private static String[] tokenize(String value) {
+    List<String> tokens = new ArrayList<String>(8);
+    int length = value.length();
+    int start = -1;
+    for (int i = 0; i < length; i++) {
+      if (value.charAt(i) == ' ') {
+        if (start >= 0) {
+          tokens.add(value.substring(start, i));
+          start = -1;
+        }
+      }
+      else if (start < 0) {
+        start = i;
+      }
+    }
+    if (start >= 0) {
+      tokens.add(value.substring(start));
+    }
+
+    return tokens.toArray(new String[tokens.size()]);
+  }
+
+  // --------- Conversion
+
+  /**
+   * A Media-Sub-Component to build, immutable once compiled.
+   */
+  private static final class SubComponent {
+
+    private final int flowNumber;
+    private final boolean rtcp;
+    private final List<String> flowDescriptions = new ArrayList<String>(2);
+
+    private SubComponent(int flowNumber, boolean rtcp) {
+      this.flowNumber = flowNumber;
+      this.rtcp = rtcp;
+    }
+  }
+
+  /**
+   * A Media-Component-Description to build, immutable once compiled.
+   */
+  private static final class Component {
+
+    private final Media offer;
+    private final int number;
+    private final MediaType mediaType;
+    private final String mediaTypeName;
+    private final FlowStatus flowStatus;
+    private final byte[] offerCodecData;
+
+    private SubComponent[] subComponents;
+    private boolean answered;
+    private final List<byte[]> answerCodecData = new ArrayList<byte[]>(1);
+    private long maxRequestedBandwidthUL = -1;
+
+    private Component(Media offer, int number) {
+      this.offer = offer;
+      this.number = number;
+      this.mediaType = toMediaType(offer.type);
+      this.mediaTypeName = mediaType.toString().toLowerCase();
+      this.flowStatus = toFlowStatus(offer);
+      this.offerCodecData = codecData("downlink", "offer", offer);
+    }
+  }
+
+  private static Component[] compile(List<Media> offer, List<Media> answer) throws SdpParseException {
+    Component[] components = new Component[offer.size()];
+    for (int i = 0; i < components.length; i++) {
+      Media media = offer.get(i);
+      Component component = components[i] = new Component(media, i + 1);
+      int protocol = protocol(media.protocol);
+      boolean rtp = isRtp(media.protocol);
+      int ports = media.ports();
+
+      List<SubComponent> subComponents = new ArrayList<SubComponent>(ports * 2);
+      if (answer == null) {
+        // flows numbered by step, data flows first
+        if (!media.mode.equals(MODE_RECVONLY)) {
+          for (int j = 0; j < ports; j++) {
+            SubComponent subComponent = new SubComponent(1 + j * media.step, false);
+            subComponent.flowDescriptions.add(inRule(protocol, media.address, media.port + j * media.step));
+            subComponents.add(subComponent);
+          }
+        }
+        if (rtp) {
+          for (int j = 0; j < ports; j++) {
+            SubComponent subComponent = new SubComponent(2 + j * media.step, true);
+            subComponent.flowDescriptions.add(inRule(protocol, media.rtcpAddress, media.rtcpPort + j * media.step));
+            subComponents.add(subComponent);
+          }
+        }
+        component.subComponents = subComponents.toArray(new SubComponent[subComponents.size()]);
+      }
+      else {
+        // flows numbered and indexed by port count, completed by the answer
+        SubComponent[] indexed = new SubComponent[(ports - 1) * ports + 2];
+        if (!media.mode.equals(MODE_RECVONLY)) {
+          for (int j = 0; j < ports; j++) {
+            SubComponent subComponent = indexed[j * ports] = new SubComponent(1 + j * ports, false);
+            subComponent.flowDescriptions.add(inRule(protocol, media.address, media.port + j * media.step));
+          }
+        }
+        if (rtp) {
+          for (int j = 0; j < ports; j++) {
+            SubComponent subComponent = indexed[1 + j * ports] = new SubComponent(2 + j * ports, true);
+            subComponent.flowDescriptions.add(inRule(protocol, media.rtcpAddress, media.rtcpPort + j * media.step));
+          }
+        }
+        component.subComponents = indexed;
+      }
+    }
+
+    if (answer != null) {
+      for (Media media : answer) {
+        Component component = null;
+        for (Component c : components) {
+          if (c.mediaTypeName.equals(media.type)) {
+            component = c;
+            break;
+          }
+        }
+        if (component == null) {
+          continue;
+        }
+
+        int protocol = protocol(media.protocol);
+        int ports = media.ports();
+        SubComponent[] indexed = component.subComponents;
+        if (!media.mode.equals(MODE_SENDONLY)) {
+          for (int j = 0; j < ports; j++) {
+            addOutRule(indexed, j * ports, protocol, media.address, media.port + j * media.step);
+          }
+        }
+        if (isRtp(media.protocol)) {
+          for (int j = 0; j < ports; j++) {
+            addOutRule(indexed, 1 + j * ports, protocol, media.rtcpAddress, media.rtcpPort + j * media.step);
+          }
+        }
+
+        if (media.bandwidthAS >= 0) {
+          component.maxRequestedBandwidthUL = media.bandwidthAS;
+        }
+        component.answered = true;
+        component.answerCodecData.add(codecData("uplink", "answer", media));
+      }
+    }
+
+    return components;
+  }
+
+  private static void addOutRule(SubComponent[] subComponents, int index, int protocol, String address, int port) {
+    if (index < subComponents.length && subComponents[index] != null) {
+      subComponents[index].flowDescriptions.add(outRule(protocol, address, port));
+    }
+  }
+
+  // same as IPFilterRule.getRuleString() for the parsed rule
+  private static String inRule(int protocol, String address, int port) {
+    return new StringBuilder(48).append("permit in ").append(protocol).append(" from ").append(address).append(' ').append(port)
+        .append(" to any ").toString();
+  }
+
+  private static String outRule(int protocol, String address, int port) {
+    return new StringBuilder(48).append("permit out ").append(protocol).append(" from any to ").append(address).append(' ').append(port)
+        .append(' ').toString();
+  }
+
+  private static int protocol(String protocol) throws SdpParseException {
+    if (protocol.equals("rtp/avp") || protocol.equals("udp")) {
+      return 17;
+    }
+    else if (protocol.equals("rtp/avp-tcp") || protocol.equals("tcp/rtp/avp") || protocol.equals("tcp")) {
+      return 6;
+    }
+    else if (protocol.equals("rtp/avp-dccp") || protocol.equals("dccp/rtp/avp") || protocol.equals("dccp")) {
+      return 33;
+    }
+
+    throw new SdpParseException(0, 0, "protocol not supported " + protocol);
+  }
+
+  private static boolean isRtp(String protocol) {
+    return !(protocol.equals("udp") || protocol.equals("tcp") || protocol.equals("dccp"));
+  }
+
+  private static MediaType toMediaType(String type) {
+    if (type.equals("audio"))
+      return MediaType.AUDIO;
+    else if (type.equals("video"))
+      return MediaType.VIDEO;
+    else if (type.equals("control"))
+      return MediaType.CONTROL;
+    else if (type.equals("application"))
+      return MediaType.APPLICATION;
+    else if (type.equals("message"))
+      return MediaType.MESSAGE;
+    else if (type.equals("data"))
+      return MediaType.DATA;
+    else if (type.equals("text"))
+      return MediaType.TEXT;
+    else
+      return MediaType.OTHER;
+  }
+
+  private static FlowStatus toFlowStatus(Media media) {
+    if (media.port == 0)
+      return FlowStatus.REMOVED;
+    else if (media.mode.equals(MODE_RECVONLY))
+      return FlowStatus.ENABLED_DOWNLINK;
+    else if (media.mode.equals(MODE_SENDONLY))
+      return FlowStatus.ENABLED_UPLINK;
+    else if (media.mode.equals(MODE_INACTIVE))
+      return FlowStatus.DISABLED;
+    else
+      return FlowStatus.ENABLED;
+  }
+
+  private static byte[] codecData(String direction, String description, Media media) {
+    StringBuilder codecLine = new StringBuilder(256);
+    codecLine.append(direction).append(LINE_SEPARATOR);
+    codecLine.append(description).append(LINE_SEPARATOR);
+    codecLine.append(media.mediaLine).append(LINE_SEPARATOR);
+    codecLine.append(media.attributeLines);
+    codecLine.append(media.bandwidthLines);
+
+    return codecLine.toString().getBytes();
+  }
+
+  // --------- AVP building
+
+  private static MediaComponentDescription[] build(GqAvpFactory avpFactory, Component[] components, boolean offerOnly) {
+    MediaComponentDescription[] descriptions = new MediaComponentDescription[components.length];
+    for (int i = 0; i < components.length; i++) {
+      Component component = components[i];
+      Media offer = component.offer;
+
+      MediaComponentDescription description = descriptions[i] = avpFactory.createMediaComponentDescription();
+      description.setMediaType(component.mediaType);
+      if (offerOnly) {
+        addSubComponents(avpFactory, description, component.subComponents);
+      }
+      if (offer.bandwidthAS >= 0) {
+        description.setMaxRequestedBandwidthDL(offer.bandwidthAS);
+      }
+      if (offer.bandwidthRR >= 0) {
+        description.setRRBandwidth(offer.bandwidthRR);
+      }
+      if (offer.bandwidthRS >= 0) {
+        description.setRSBandwidth(offer.bandwidthRS);
+      }
+      description.setCodecData(component.offerCodecData);
+      description.setFlowStatus(component.flowStatus);
+      description.setMediaComponentNumber(component.number);
+
+      if (component.answered) {
+        if (component.maxRequestedBandwidthUL >= 0) {
+          description.setMaxRequestedBandwidthUL(component.maxRequestedBandwidthUL);
+        }
+        addSubComponents(avpFactory, description, component.subComponents);
+        for (byte[] codecData : component.answerCodecData) {
+          description.setCodecData(codecData);
+        }
+      }
+    }
+
+    return descriptions;
+  }
+
+  private static void addSubComponents(GqAvpFactory avpFactory, MediaComponentDescription description, SubComponent[] subComponents) {
+    for (SubComponent subComponent : subComponents) {
+      if (subComponent == null) {
+        continue;
+      }
+
+      MediaSubComponent avp = avpFactory.createMediaSubComponent();
+      avp.setFlowNumber(subComponent.flowNumber);
+      if (subComponent.rtcp) {
+        avp.setFlowUsage(FlowUsage.RTCP);
+      }
+      for (String flowDescription : subComponent.flowDescriptions) {
+        ((GroupedAvpImpl) avp).addAvp(AvpUtilities.createAvp(DiameterGqAvpCodes.TGPP_FLOW_DESCRIPTION, DiameterGqAvpCodes.TGPP_VENDOR_ID,
+            flowDescription));
+      }
+      description.setMediaSubComponent(avp);
+    }
+  }
+
+}
@@ -23,27 +23,13 @@
 package org.mobicents.slee.resource.diameter.gq;
 
 import java.io.IOException;
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.management.ObjectName;
 import javax.naming.OperationNotSupportedException;
-import javax.slee.Address;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.facilities.Tracer;
-import javax.slee.resource.ActivityFlags;
-import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.ConfigProperties;
-import javax.slee.resource.EventFlags;
-import javax.slee.resource.FailureReason;
-import javax.slee.resource.FireableEventType;
-import javax.slee.resource.InvalidConfigurationException;
 import javax.slee.resource.Marshaler;
-import javax.slee.resource.ReceivableService;
-import javax.slee.resource.ResourceAdaptor;
 import javax.slee.resource.ResourceAdaptorContext;
-import javax.slee.resource.SleeEndpoint;
 
 import net.java.slee.resource.diameter.Validator;
 import net.java.slee.resource.diameter.base.CreateActivityException;
@@ -64,37 +50,27 @@ import net.java.slee.resource.diameter.gq.events.GqReAuthAnswer;
 import net.java.slee.resource.diameter.gq.events.GqReAuthRequest;
 import net.java.slee.resource.diameter.gq.events.GqSessionTerminationRequest;
 
-import org.jboss.mx.util.MBeanServerLocator;
 import org.jdiameter.api.Answer;
 import org.jdiameter.api.ApplicationId;
 import org.jdiameter.api.Avp;
 import org.jdiameter.api.AvpDataException;
 import org.jdiameter.api.AvpSet;
 import org.jdiameter.api.Message;
-import org.jdiameter.api.Peer;
-import org.jdiameter.api.PeerTable;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.SessionFactory;
-import org.jdiameter.api.Stack;
 import org.jdiameter.api.gq.GqClientSession;
 import org.jdiameter.api.gq.GqServerSession;
 import org.jdiameter.client.api.ISessionFactory;
 import org.jdiameter.server.impl.app.gq.GqServerSessionImpl;
-import org.mobicents.diameter.stack.DiameterListener;
-import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
-import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.LocalDiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.ValidatorImpl;
+import org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
-import org.mobicents.slee.resource.diameter.base.EventIDFilter;
 import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.base.events.ErrorAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
-import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
 import org.mobicents.slee.resource.diameter.gq.events.GqAAAnswerImpl;
 import org.mobicents.slee.resource.diameter.gq.events.GqAARequestImpl;
 import org.mobicents.slee.resource.diameter.gq.events.GqAbortSessionAnswerImpl;
@@ -111,7 +87,7 @@ import org.mobicents.slee.resource.diameter.gq.handlers.GqSessionFactory;
  *
  * @author <a href="mailto:webdev@web-ukraine.info"> Yulian Oifa </a>
  */
-public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListener, DiameterRAInterface {
+public class DiameterGqResourceAdaptor extends AbstractDiameterResourceAdaptor {
 
   private static final long serialVersionUID = 1L;
 
@@ -122,47 +98,13 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
 
   private List<ApplicationId> authApplicationIds;
 
-  /**
-   * caches the eventIDs, avoiding lookup in container
-   */
-  public final EventIDCache eventIdCache = new EventIDCache();
-
-  /**
-   * tells the RA if an event with a specified ID should be filtered or not
-   */
-  private final EventIDFilter eventIDFilter = new EventIDFilter();
-
-  /**
-   * The ResourceAdaptorContext interface is implemented by the SLEE. It provides the Resource Adaptor with the required capabilities in the
-   * SLEE to execute its work. The ResourceAdaptorCon- text object holds references to a number of objects that are of interest to many
-   * Resource Adaptors. A resource adaptor object is provided with a ResourceAdaptorContext object when the setResour- ceAdaptorContext
-   * method of the ResourceAdaptor interface is invoked on the resource adaptor object.
-   */
-  private ResourceAdaptorContext raContext;
-
-  /**
-   * The SLEE endpoint defines the contract between the SLEE and the resource adaptor that enables the resource adaptor to deliver events
-   * asynchronously to SLEE endpoints residing in the SLEE. This contract serves as a generic contract that allows a wide range of resources
-   * to be plugged into a SLEE environment via the resource adaptor architecture. For further information see JSLEE v1.1 Specification Page
-   * 307 The sleeEndpoint will be initialized in entityCreated() method.
-   */
-  private transient SleeEndpoint sleeEndpoint = null;
-
-  /**
-   * A tracer is represented in the SLEE by the Tracer interface. Notification sources access the Tracer Facil- ity through a Tracer object
-   * that implements the Tracer interface. A Tracer object can be obtained by SBBs via the SbbContext interface, by resource adaptor
-   * entities via the ResourceAdaptorContext interface, and by profiles via the ProfileContext interface.
-   */
-  private Tracer tracer;
-
-  protected DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
+  protected DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler(new DiameterBaseMarshaler.EventFactory() {
+    public DiameterMessage createEvent(Message message) {
+      return DiameterGqResourceAdaptor.this.createEvent(message);
+    }
+  });
   // Diameter Specific Properties ----------------------------------------
 
-  private Stack stack;
-
-  private ObjectName diameterMultiplexerObjectName = null;
-  private DiameterStackMultiplexerMBean diameterMux = null;
-
   // Default Failure Handling
   protected int defaultDirectDebitingFailureHandling = 0;
   protected int defaultCreditControlFailureHandling = 0;
@@ -171,9 +113,6 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
   protected long defaultValidityTime = 30;
   protected long defaultTxTimerValue = 10;
 
-  // activity stuff
-  protected long activityRemoveDelay = 30000;
-
   // Base Factories
   private DiameterAvpFactory baseAvpFactory = null;
   private DiameterMessageFactoryImpl baseMessageFactory;
@@ -187,63 +126,28 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
 
   protected GqMessageFactory gqMessageFactory;
 
-  /**
-   * the EventLookupFacility is used to look up the event id of incoming events
-   */
-  private transient EventLookupFacility eventLookup = null;
-
-  /**
-   * The list of activities stored in this resource adaptor. If this resource adaptor were a distributed and highly available solution, this
-   * storage were one of the candidates for distribution.
-   */
-  // private transient ConcurrentHashMap<ActivityHandle, DiameterActivity> activities = null;
-  private transient DiameterActivityManagement activities = null;
-
   /**
    * A link to the DiameterProvider which then will be exposed to Sbbs
    */
   protected transient GqProviderImpl raProvider = null;
 
-  /**
-   * for all events we are interested in knowing when the event failed to be processed
-   */
-  private static final int EVENT_FLAGS = getEventFlags();
-
-  private static int getEventFlags() {
-    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
-    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
-    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
-    return eventFlags;
-  }
-
-  private static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.REQUEST_ENDED_CALLBACK;
-  private static final int MARSHALABLE_ACTIVITY_FLAGS = ActivityFlags.setSleeMayMarshal(DEFAULT_ACTIVITY_FLAGS);
-
   public DiameterGqResourceAdaptor() {
-    // TODO: Initialize any default values.
+    super("DiameterGqResourceAdaptor", "Diameter Gq RA", new EventIDCache());
   }
 
   // Lifecycle methods ---------------------------------------------------
 
   @Override
   public void setResourceAdaptorContext(ResourceAdaptorContext context) {
-    this.raContext = context;
+    super.setResourceAdaptorContext(context);
 
-    this.tracer = context.getTracer("DiameterGqResourceAdaptor");
-
-    this.sleeEndpoint = context.getSleeEndpoint();
-    this.eventLookup = context.getEventLookupFacility();
     this.raProvider = new GqProviderImpl(this);
   }
 
   @Override
   public void unsetResourceAdaptorContext() {
-    this.raContext = null;
-
-    this.tracer = null;
+    super.unsetResourceAdaptorContext();
 
-    this.sleeEndpoint = null;
-    this.eventLookup = null;
     this.raProvider = null;
   }
 
@@ -263,41 +167,29 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
         tracer.info("Activating Diameter Gq RA Entity");
       }
 
-      this.diameterMultiplexerObjectName = new ObjectName("diameter.mobicents:service=DiameterStackMultiplexer");
-      Object object = null;
-
-      if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
-        // trying to get via MBeanServer
-        object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      } else {
-        // trying to get via locateJBoss
-        object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      }
-
-      if (object != null && object instanceof DiameterStackMultiplexerMBean) {
-        this.diameterMux = (DiameterStackMultiplexerMBean) object;
-      }
-
-      // this.activities = new ConcurrentHashMap<ActivityHandle, DiameterActivity>();
+      activateCore();
 
       // Initialize the protocol stack
       initStack();
 
+      // Track the configured peers
+      initPeers();
+
+      // Share one raw message creator among all message factories
+      initMessageCreator();
+
       // Initialize activities mgmt
       initActivitiesMgmt();
 
+      // Resolve event types to fire
+      eventIdCache.init(eventLookup, tracer);
+
       // Initialize factories
       this.baseAvpFactory = new DiameterAvpFactoryImpl();
-      this.baseMessageFactory = new DiameterMessageFactoryImpl(stack);
+      this.baseMessageFactory = new DiameterMessageFactoryImpl(rawMessageCreator);
 
       this.gqAvpFactory = new GqAvpFactoryImpl(baseAvpFactory);
-      this.gqMessageFactory = new GqMessageFactoryImpl(baseMessageFactory, null, stack);
+      this.gqMessageFactory = new GqMessageFactoryImpl(baseMessageFactory, null, rawMessageCreator);
 
       // Set the first configured Application-Id as default for message factory
       ApplicationId firstAppId = authApplicationIds.get(0);
@@ -315,58 +207,11 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  @Override
-  public void raStopping() {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: raStopping.");
-    }
-
-    try {
-      diameterMux.unregisterListener(this);
-    }
-    catch (Exception e) {
-      tracer.severe("Failed to unregister Gq RA from Diameter Mux.", e);
-    }
-
-    // synchronized (this.activities) {
-    // for (ActivityHandle activityHandle : activities.keySet()) {
-    // try {
-    // if(tracer.isInfoEnabled()) {
-    // tracer.info("Ending activity [" + activityHandle + "]");
-    // }
-    //
-    // activities.get(activityHandle).endActivity();
-    // }
-    // catch (Exception e) {
-    // tracer.severe("Error Deactivating Activity", e);
-    // }
-    // }
-    // }
-
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Gq RA :: raStopping completed.");
-    }
-  }
-
-  @Override
-  public void raInactive() {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Gq RA :: raInactive.");
-    }
-
-    // synchronized (this.activities) {
-    // activities.clear();
-    // }
-    activities = null;
-
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Gq RA :: raInactive completed.");
-    }
-  }
-
   @Override
   public void raConfigure(ConfigProperties properties) {
     parseApplicationIds((String) properties.getProperty(AUTH_APPLICATION_IDS).getValue());
+
+    super.raConfigure(properties);
   }
 
   private void parseApplicationIds(final String appIdsStr) {
@@ -386,23 +231,9 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
 
   @Override
   public void raUnconfigure() {
-    // Clean up!
-    this.activities = null;
-    this.raContext = null;
-    this.eventLookup = null;
-    this.raProvider = null;
-    this.sleeEndpoint = null;
-    this.stack = null;
-  }
-
-  // Configuration management methods ------------------------------------
+    super.raUnconfigure();
 
-  @Override
-  public void raVerifyConfiguration(ConfigProperties arg0) throws InvalidConfigurationException {
-  }
-
-  @Override
-  public void raConfigurationUpdate(ConfigProperties arg0) {
+    this.raProvider = null;
   }
 
   // Interface access methods --------------------------------------------
@@ -416,220 +247,13 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     return marshaler;
   }
 
-  // Event filtering methods ---------------------------------------------
-  @Override
-  public void serviceActive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceActive(serviceInfo);
-  }
-
-  @Override
-  public void serviceStopping(ReceivableService serviceInfo) {
-    eventIDFilter.serviceStopping(serviceInfo);
-  }
-
-  @Override
-  public void serviceInactive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceInactive(serviceInfo);
-  }
-
-  // Mandatory callback methods ------------------------------------------
-  @Override
-  public void queryLiveness(ActivityHandle handle) {
-    tracer.info("Diameter Ro RA :: queryLiveness :: handle[" + handle + "].");
-
-    DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle) handle);
-
-    if (activity != null && !activity.isValid()) {
-      try {
-        sleeEndpoint.endActivity(handle);
-      }
-      catch (Exception e) {
-        tracer.severe("Failure ending non-live activity.", e);
-      }
-    }
-  }
-
-  @Override
-  public Object getActivity(ActivityHandle handle) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Gq RA :: getActivity :: handle[" + handle + "].");
-    }
-
-    return this.activities.get((DiameterActivityHandle) handle);
-  }
-
-  @Override
-  public ActivityHandle getActivityHandle(Object activity) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Gq RA :: getActivityHandle :: activity[" + activity + "].");
-    }
-
-    if (!(activity instanceof DiameterActivity)) {
-      return null;
-    }
-
-    DiameterActivityImpl inActivity = (DiameterActivityImpl) activity;
-    return inActivity.getActivityHandle();
-  }
-
-  @Override
-  public void administrativeRemove(ActivityHandle handle) {
-    // TODO what to do here?
-  }
-
-  // Optional callback methods -------------------------------------------
-  @Override
-  public void eventProcessingFailed(ActivityHandle handle, FireableEventType eventType, Object event, Address address,
-      ReceivableService service, int flags, FailureReason reason) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Gq RA :: eventProcessingFailed :: handle[" + handle + "], eventType[" + eventType + "], event[" + event
-          + "], address[" + address + "], flags[" + flags + "], reason[" + reason + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  @Override
-  public void eventProcessingSuccessful(ActivityHandle handle, FireableEventType eventType, Object event, Address address,
-      ReceivableService service, int flags) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Gq RA :: eventProcessingSuccessful :: handle[" + handle + "], eventType[" + eventType + "], event[" + event
-          + "], address[" + address + "], flags[" + flags + "].");
-    }
-
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  @Override
-  public void eventUnreferenced(ActivityHandle handle, FireableEventType eventType, Object event, Address address,
-      ReceivableService service, int flags) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Gq RA :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event
-          + "], address[" + address + "], service[" + service + "], flags[" + flags + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  private void processAfterEventDelivery(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    DiameterActivityImpl activity = (DiameterActivityImpl) getActivity(handle);
-    if (activity != null) {
-      synchronized (activity) {
-        if (activity.isTerminateAfterProcessing()) {
-          activity.endActivity();
-        }
-      }
-    }
-  }
-
-  @Override
-  public void activityEnded(ActivityHandle handle) {
-    tracer.info("Diameter Gq RA :: activityEnded :: handle[" + handle + ".");
-
-    if (this.activities != null) {
-      synchronized (this.activities) {
-        this.activities.remove((DiameterActivityHandle) handle);
-      }
-    }
-  }
-
-  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.startActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to start activity remove timer.", e);
-    }
-  }
-
-  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.stopActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to stop activity remove timer.", e);
-    }
-  }
-
-  @Override
-  public void activityUnreferenced(ActivityHandle handle) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Gq RA :: activityUnreferenced :: handle[" + handle + "].");
-    }
-
-    // this.activityEnded(handle);
-    if (handle instanceof DiameterActivityHandle) {
-      this.endActivity((DiameterActivityHandle) handle);
-    }
-  }
-
-  // Event and Activities management -------------------------------------
-  public boolean fireEvent(Object event, ActivityHandle handle, FireableEventType eventID, Address address, boolean useFiltering,
-      boolean transacted) {
-    if (useFiltering && eventIDFilter.filterEvent(eventID)) {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Event " + eventID + " filtered");
-      }
-    }
-    else if (eventID == null) {
-      tracer.severe("Event ID for " + eventID + " is unknown, unable to fire.");
-    }
-    else {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Firing event " + event + " on handle " + handle);
-      }
-      try {
-        Object o = getActivity(handle);
-        if (o == null) {
-          throw new IllegalStateException("No activity for handle: " + handle);
-        }
-
-        this.raContext.getSleeEndpoint().fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
-
-        return true;
-      }
-      catch (Exception e) {
-        tracer.severe("Error firing event.", e);
-      }
-    }
-
-    return false;
-  }
-
-  @Override
-  public void fireEvent(String sessionId, Message message) {
-    DiameterMessage event = (DiameterMessage) createEvent(message);
-    FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
-    this.fireEvent(event, getActivityHandle(sessionId), eventId, null, true, message.isRequest());
-  }
-
-  @Override
-  public void endActivity(DiameterActivityHandle arg0) {
-    this.sleeEndpoint.endActivity(arg0);
-  }
-
-  @Override
-  public void update(DiameterActivityHandle arg0, DiameterActivity arg1) {
-    this.activities.update(arg0, arg1);
-  }
-
   /**
    * Create Event object from a JDiameter message (request or answer)
    * 
    * @return a DiameterMessage object wrapping the request/answer
    * @throws OperationNotSupportedException
    */
-  private DiameterMessage createEvent(Message message) {
+  protected DiameterMessage createEvent(Message message) {
     if (message == null) {
       throw new NullPointerException("Message argument cannot be null while creating event.");
     }
@@ -657,41 +281,6 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  // Session Management --------------------------------------------------
-  /**
-   * Method for performing tasks when activity is created, such as informing SLEE about it and storing into internal map.
-   * 
-   * @param ac
-   *          the activity that has been created
-   */
-  private void addActivity(final DiameterActivity ac, final boolean suspend ) {
-    try {
-      // Inform SLEE that Activity Started
-      DiameterActivityImpl activity = (DiameterActivityImpl) ac;
-      if(suspend) {
-        sleeEndpoint.startActivitySuspended(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-      else {
-        sleeEndpoint.startActivity(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-
-      // Set the listener
-      activity.setSessionListener(this);
-
-      // Put it into our activities map
-      activities.put(activity.getActivityHandle(), activity);
-
-      if (tracer.isInfoEnabled()) {
-        tracer.info("Activity started [" + activity.getActivityHandle() + "]");
-      }
-    }
-    catch (Exception e) {
-      tracer.severe("Error creating activity", e);
-
-      throw new RuntimeException("Error creating activity", e);
-    }
-  }
-
   // Private Methods -----------------------------------------------------
   /**
    * Initializes the RA Diameter Stack.
@@ -710,28 +299,10 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  private void initActivitiesMgmt() {
-	this.activities = new LocalDiameterActivityManagement(this.raContext, this.activityRemoveDelay);
-  }
-
-  /**
-   * Create the Diameter Activity Handle for an given session id
-   * 
-   * @param sessionId
-   *          the session identifier to create the activity handle from
-   * @return a DiameterActivityHandle for the provided sessionId
-   */
-  protected DiameterActivityHandle getActivityHandle(String sessionId) {
-    return new DiameterActivityHandle(sessionId);
-  }
-
   // NetworkReqListener Implementation -----------------------------------
 
-  @Override
-  public Answer processRequest(Request request) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Gq RA :: Got Request. Command-Code[" + request.getCommandCode() + "]");
-    }
+  protected Answer doProcessRequest(Request request) {
+    messageTracer.requestReceived(request);
 
     // Here we receive initial request for which session does not exist!
     // Valid messages are:
@@ -775,37 +346,16 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
 
   @Override
   public void receivedSuccessMessage(Request request, Answer answer) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Gq RA :: receivedSuccessMessage :: " + "Request[" + request + "], Answer[" + answer + "].");
-    }
+    messageTracer.answerReceived(request, answer);
 
     tracer.warning("Resource Adaptor should not receive this (receivedSuccessMessage), a session should exist to handle it.");
-
-    try {
-      if (tracer.isInfoEnabled()) {
-        tracer.info("Received Message Result-Code: " + answer.getResultCode().getUnsigned32());
-      }
-    }
-    catch (AvpDataException ignore) {
-      // ignore, this was just for informational purposes...
-    }
   }
 
   @Override
   public void timeoutExpired(Request request) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Gq RA :: timeoutExpired :: " + "Request[" + request + "].");
-    }
-
     tracer.warning("Resource Adaptor should not receive this (timeoutExpired), a session should exist to handle it.");
 
-    try {
-      // Message delivery timed out - we have to remove activity
-      ((DiameterActivity) getActivity(getActivityHandle(request.getSessionId()))).endActivity();
-    }
-    catch (Exception e) {
-      tracer.severe("Failure processing timeout message.", e);
-    }
+    super.timeoutExpired(request);
   }
 
   // Gq/Auth Session Creation Listener --------------------------------------
@@ -818,17 +368,17 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
 
     // Get Message Factories (for Base and Gq)
-    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(clientSession.getSessions().get(0), this.stack);
+    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(clientSession.getSessions().get(0), rawMessageCreator);
     // RoMessageFactoryImpl ccaMsgFactory = new RoMessageFactoryImpl(baseMsgFactory, ccClientSession.getSessionId(), this.stack);
 
     // Create Client Activity
     GqClientSessionActivityImpl activity = new GqClientSessionActivityImpl(baseMsgFactory, this.baseAvpFactory, clientSession, null, null,
-        stack);
+        rawMessageCreator);
 
     // Update Session Activity FSM to allow correct requests/responses
     clientSession.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false /*true*/);
+    addActivity(activity, false /*true*/, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   public void sessionCreated(GqServerSession serverSession) {
@@ -839,21 +389,21 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
 
     // Get Message Factories (for Base and Gq)
-    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(serverSession.getSessions().get(0), this.stack);
+    DiameterMessageFactoryImpl baseMsgFactory = new DiameterMessageFactoryImpl(serverSession.getSessions().get(0), rawMessageCreator);
     // RoMessageFactoryImpl ccaMsgFactory = new RoMessageFactoryImpl(baseMsgFactory, ccClientSession.getSessionId(), this.stack);
 
     // Create Server Activity
     GqServerSessionActivityImpl activity = new GqServerSessionActivityImpl(baseMsgFactory, this.baseAvpFactory, serverSession, null, null,
-        stack);
+        rawMessageCreator);
 
     // Update Session Activity FSM to allow correct requests/responses
     serverSession.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false);
+    addActivity(activity, false, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   public boolean sessionExists(String sessionId) {
-    return this.activities.containsKey(new DiameterActivityHandle(sessionId));
+    return this.activities.containsKey(getActivityHandle(sessionId));
   }
 
   public void sessionDestroyed(String sessionId, Object appSession) {
@@ -868,7 +418,6 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
   private class GqProviderImpl implements GqProvider {
 
     private DiameterGqResourceAdaptor ra;
-    private Validator validator = new ValidatorImpl();
 
     public GqProviderImpl(DiameterGqResourceAdaptor ra) {
       this.ra = ra;
@@ -916,7 +465,7 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     public GqAAAnswer sendGqAARequest(GqAARequest aar) throws IOException {
       try {
         String sessionId = aar.getSessionId();
-        DiameterActivityHandle handle = new DiameterActivityHandle(sessionId);
+        DiameterActivityHandle handle = getActivityHandle(sessionId);
 
         if (!activities.containsKey(handle)) {
           createActivity(((DiameterMessageImpl) aar).getGenericData());
@@ -937,7 +486,7 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     public GqAbortSessionAnswer sendGqAbortSessionRequest(GqAbortSessionRequest asr) throws IOException {
       try {
         String sessionId = asr.getSessionId();
-        DiameterActivityHandle handle = new DiameterActivityHandle(sessionId);
+        DiameterActivityHandle handle = getActivityHandle(sessionId);
 
         if (!activities.containsKey(handle)) {
           createActivity(((DiameterMessageImpl) asr).getGenericData());
@@ -958,7 +507,7 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     public GqReAuthAnswer sendGqReAuthRequest(GqReAuthRequest rar) throws IOException {
       try {
         String sessionId = rar.getSessionId();
-        DiameterActivityHandle handle = new DiameterActivityHandle(sessionId);
+        DiameterActivityHandle handle = getActivityHandle(sessionId);
 
         if (!activities.containsKey(handle)) {
           createActivity(((DiameterMessageImpl) rar).getGenericData());
@@ -978,7 +527,7 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
 
     private DiameterActivity createActivity(Message message) throws CreateActivityException {
       String sessionId = message.getSessionId();
-      DiameterActivityHandle handle = new DiameterActivityHandle(sessionId);
+      DiameterActivityHandle handle = getActivityHandle(sessionId);
 
       if (activities.containsKey(handle)) {
         return activities.get(handle);
@@ -1039,7 +588,7 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
 
     public int getPeerCount() {
-      return ra.getConnectedPeers().length;
+      return ra.getPeerCount();
     }
 
     /*
@@ -1049,34 +598,8 @@ public class DiameterGqResourceAdaptor implements ResourceAdaptor, DiameterListe
      */
     @Override
     public Validator getValidator() {
-      return this.validator;
+      return validator;
     }
   }
 
-  public DiameterIdentity[] getConnectedPeers() {
-    if (this.stack != null) {
-      try {
-        // Get the list of peers from the stack
-        List<Peer> peers = stack.unwrap(PeerTable.class).getPeerTable();
-
-        DiameterIdentity[] result = new DiameterIdentity[peers.size()];
-
-        int i = 0;
-
-        // Get each peer from the list and make a DiameterIdentity
-        for (Peer peer : peers) {
-          DiameterIdentity identity = new DiameterIdentity(peer.getUri().toString());
-
-          result[i++] = identity;
-        }
-
-        return result;
-      }
-      catch (Exception e) {
-        tracer.severe("Failure getting peer list.", e);
-      }
-    }
-
-    return new DiameterIdentity[0];
-  }
 }
@@ -44,6 +44,7 @@ import org.mobicents.slee.resource.diameter.gq.events.avp.DiameterGqAvpCodes;
 import org.mobicents.slee.resource.diameter.gq.events.avp.FlowGroupingImpl;
 import org.mobicents.slee.resource.diameter.gq.events.avp.FlowsImpl;
 import org.mobicents.slee.resource.diameter.gq.events.avp.GloballyUniqueAddressImpl;
+import org.mobicents.slee.resource.diameter.gq.events.avp.GqAvpCodecs;
 import org.mobicents.slee.resource.diameter.gq.events.avp.MediaComponentDescriptionImpl;
 import org.mobicents.slee.resource.diameter.gq.events.avp.MediaSubComponentImpl;
 import org.mobicents.slee.resource.diameter.gq.events.avp.V4TransportAddressImpl;
@@ -58,6 +59,10 @@ import org.mobicents.slee.resource.diameter.gq.events.avp.V6TransportAddressImpl
  */
 public class GqAvpFactoryImpl extends DiameterAvpFactoryImpl implements GqAvpFactory {
 
+  static {
+    GqAvpCodecs.register();
+  }
+
   DiameterAvpFactory baseAvpFactory;
 
   public GqAvpFactoryImpl(DiameterAvpFactory baseAvpFactory) {
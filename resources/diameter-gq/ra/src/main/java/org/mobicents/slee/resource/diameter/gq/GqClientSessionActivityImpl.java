@@ -50,6 +50,7 @@ import org.jdiameter.common.impl.app.AppRequestEventImpl;
 import org.jdiameter.common.impl.app.auth.AbortSessionAnswerImpl;
 import org.jdiameter.common.impl.app.auth.ReAuthAnswerImpl;
 import org.jdiameter.common.impl.app.auth.SessionTermRequestImpl;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
 
 
@@ -77,10 +78,24 @@ public class GqClientSessionActivityImpl extends GqSessionActivityImpl implement
    */
   public GqClientSessionActivityImpl(DiameterMessageFactory messageFactory, DiameterAvpFactory avpFactory, ClientAuthSession session,
       DiameterIdentity destinationHost, DiameterIdentity destinationRealm, Stack stack) {
+    this(messageFactory, avpFactory, session, destinationHost, destinationRealm, new RawMessageCreator(stack));
+  }
+
+  /**
+   * 
+   * @param messageFactory
+   * @param avpFactory
+   * @param session
+   * @param destinationHost
+   * @param destinationRealm
+   * @param rawMessageCreator the creator shared by the message factories of the RA entity
+   */
+  public GqClientSessionActivityImpl(DiameterMessageFactory messageFactory, DiameterAvpFactory avpFactory, ClientAuthSession session,
+      DiameterIdentity destinationHost, DiameterIdentity destinationRealm, RawMessageCreator rawMessageCreator) {
     super(messageFactory, avpFactory, null, (EventListener<Request, Answer>) session, destinationRealm, destinationRealm);
     setSession(session);
     super.setCurrentWorkingSession(session.getSessions().get(0));
-    super.setGqMessageFactory(new GqMessageFactoryImpl(messageFactory, session.getSessionId(), stack));
+    super.setGqMessageFactory(new GqMessageFactoryImpl(messageFactory, session.getSessionId(), rawMessageCreator));
   }
 
   public void setSession(ClientAuthSession session2) {
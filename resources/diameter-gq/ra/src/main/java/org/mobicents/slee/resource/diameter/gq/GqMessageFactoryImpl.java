@@ -28,6 +28,8 @@ import org.jdiameter.api.IllegalDiameterStateException;
 import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.gq.events.GqAAAnswerImpl;
 import org.mobicents.slee.resource.diameter.gq.events.GqAARequestImpl;
 import org.mobicents.slee.resource.diameter.gq.events.GqAbortSessionAnswerImpl;
@@ -42,9 +44,9 @@ import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
-import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.base.events.avp.GroupedAvp;
 import net.java.slee.resource.diameter.gq.GqMessageFactory;
 import net.java.slee.resource.diameter.gq.events.GqAAAnswer;
@@ -68,16 +70,25 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
 
   protected String sessionId;
   protected Stack stack;
+  protected final RawMessageCreator rawMessageCreator;
   protected Logger logger = Logger.getLogger(GqMessageFactoryImpl.class);
 
+  // AVPs copied from the request into the answer
+  protected final static AnswerTemplate answerTemplate = new AnswerTemplate(DiameterAvpCodes.SESSION_ID);
+
   private ApplicationId gqAppId = ApplicationId.createByAuthAppId(0L, _GQ_AUTH_APP_ID);
 
   public GqMessageFactoryImpl(DiameterMessageFactory baseFactory, String sessionId, Stack stack) {
+    this(baseFactory, sessionId, new RawMessageCreator(stack));
+  }
+
+  public GqMessageFactoryImpl(DiameterMessageFactory baseFactory, String sessionId, RawMessageCreator rawMessageCreator) {
     super();
 
     this.baseFactory = baseFactory;
     this.sessionId = sessionId;
-    this.stack = stack;
+    this.stack = rawMessageCreator.getStack();
+    this.rawMessageCreator = rawMessageCreator;
   }
 
   public void setApplicationId(long vendorId, long applicationId) {
@@ -101,6 +112,16 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     return aar;
   }
 
+  /**
+   * Creates a {@link GqAARequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public GqAARequest createGqAARequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    GqAARequest msg = createGqAARequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   @Override
   public GqAARequest createGqAARequest(String sessionId) {
     Message raw = createRequest(GqAARequest.COMMAND_CODE, new DiameterAvp[] {});
@@ -121,7 +142,7 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     aaa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
     aaa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
     aaa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-    aaa.setSessionId(aar.getSessionId());
+    answerTemplate.copy(aar, aaa);
 
     addOrigin(aaa);
     return aaa;
@@ -140,6 +161,16 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     return asr;
   }
 
+  /**
+   * Creates a {@link GqAbortSessionRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public GqAbortSessionRequest createGqAbortSessionRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    GqAbortSessionRequest msg = createGqAbortSessionRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   @Override
   public GqAbortSessionRequest createGqAbortSessionRequest(String sessionId) {
     Message raw = createRequest(GqAbortSessionRequest.COMMAND_CODE, new DiameterAvp[] {});
@@ -159,7 +190,7 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     asa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
     asa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
     asa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-    asa.setSessionId(asr.getSessionId());
+    answerTemplate.copy(asr, asa);
 
     addOrigin(asa);
     return asa;
@@ -178,6 +209,16 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     return rar;
   }
 
+  /**
+   * Creates a {@link GqReAuthRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public GqReAuthRequest createGqReAuthRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    GqReAuthRequest msg = createGqReAuthRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   @Override
   public GqReAuthRequest createGqReAuthRequest(String sessionId) {
     Message raw = createRequest(GqReAuthRequest.COMMAND_CODE, new DiameterAvp[] {});
@@ -198,7 +239,7 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     raa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
     raa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
     raa.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-    raa.setSessionId(rar.getSessionId());
+    answerTemplate.copy(rar, raa);
 
     addOrigin(raa);
     return raa;
@@ -217,6 +258,16 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     return str;
   }
 
+  /**
+   * Creates a {@link GqSessionTerminationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public GqSessionTerminationRequest createGqSessionTerminationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    GqSessionTerminationRequest msg = createGqSessionTerminationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   @Override
   public GqSessionTerminationRequest createGqSessionTerminationRequest(String sessionId) {
     Message raw = createRequest(GqSessionTerminationRequest.COMMAND_CODE, new DiameterAvp[] {});
@@ -237,7 +288,7 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     sta.getGenericData().getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
     sta.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
     sta.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-    sta.setSessionId(str.getSessionId());
+    answerTemplate.copy(str, sta);
 
     addOrigin(sta);
     return sta;
@@ -303,7 +354,7 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
     Message msg = null;
 
     try {
-      msg = stack.getSessionFactory().getNewRawSession().createMessage(commandCode, gqAppId, hopByHopId, endToEndId);
+      msg = rawMessageCreator.createMessage(commandCode, gqAppId, hopByHopId, endToEndId);
 
       // Set the message flags from header (or default)
       msg.setRequest(isRequest);
@@ -323,7 +374,7 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
 
   protected Message createRawMessage(int commandCode) {
     try {
-      return stack.getSessionFactory().getNewRawSession().createMessage(commandCode, gqAppId);
+      return rawMessageCreator.createMessage(commandCode, gqAppId);
     }
     catch (IllegalDiameterStateException e) {
       logger.error("Failed to get session factory for message creation.", e);
@@ -349,11 +400,6 @@ public class GqMessageFactoryImpl implements GqMessageFactory {
   }
 
   private void addOrigin(DiameterMessage msg) {
-    if (!msg.hasOriginHost()) {
-      msg.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
-    }
-    if (!msg.hasOriginRealm()) {
-      msg.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-    }
+    rawMessageCreator.addOriginHostAndRealm(msg);
   }
 }
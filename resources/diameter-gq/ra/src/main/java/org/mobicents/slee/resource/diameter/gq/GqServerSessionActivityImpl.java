@@ -51,6 +51,7 @@ import org.jdiameter.common.api.app.auth.ServerAuthSessionState;
 import org.jdiameter.common.impl.app.auth.ReAuthRequestImpl;
 import org.jdiameter.common.impl.app.auth.SessionTermAnswerImpl;
 import org.jdiameter.common.impl.app.auth.AbortSessionRequestImpl;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
 
 
@@ -70,12 +71,17 @@ public class GqServerSessionActivityImpl extends GqSessionActivityImpl implement
 
   public GqServerSessionActivityImpl(DiameterMessageFactory messageFactory, DiameterAvpFactory avpFactory, ServerAuthSession session,
       DiameterIdentity destinationHost, DiameterIdentity destinationRealm, Stack stack) {
+    this(messageFactory, avpFactory, session, destinationHost, destinationRealm, new RawMessageCreator(stack));
+  }
+
+  public GqServerSessionActivityImpl(DiameterMessageFactory messageFactory, DiameterAvpFactory avpFactory, ServerAuthSession session,
+      DiameterIdentity destinationHost, DiameterIdentity destinationRealm, RawMessageCreator rawMessageCreator) {
     super(messageFactory, avpFactory, null, (EventListener<Request, Answer>) session, destinationRealm, destinationRealm);
 
     setSession(session);
     super.setCurrentWorkingSession(session.getSessions().get(0));
 
-    super.setGqMessageFactory(new GqMessageFactoryImpl(messageFactory, session.getSessionId(), stack));
+    super.setGqMessageFactory(new GqMessageFactoryImpl(messageFactory, session.getSessionId(), rawMessageCreator));
   }
 
   public ServerAuthSession getSession() {
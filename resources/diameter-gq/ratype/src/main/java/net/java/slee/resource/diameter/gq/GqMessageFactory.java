@@ -23,6 +23,8 @@
 package net.java.slee.resource.diameter.gq;
 
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.gq.events.GqAAAnswer;
 import net.java.slee.resource.diameter.gq.events.GqAARequest;
 import net.java.slee.resource.diameter.gq.events.GqAbortSessionAnswer;
@@ -58,6 +60,16 @@ public interface GqMessageFactory {
    */
   public GqAARequest createGqAARequest(String sessionId);
 
+  /**
+   * Creates a {@link GqAARequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new GqAARequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public GqAARequest createGqAARequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Creates a Gq AA Answer message based on request
    * 
@@ -81,6 +93,16 @@ public interface GqMessageFactory {
    */
   public GqAbortSessionRequest createGqAbortSessionRequest(String sessionId);
 
+  /**
+   * Creates a {@link GqAbortSessionRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new GqAbortSessionRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public GqAbortSessionRequest createGqAbortSessionRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Creates a Gq Abort Session Answer message based on request
    * 
@@ -104,6 +126,16 @@ public interface GqMessageFactory {
    */
   public GqReAuthRequest createGqReAuthRequest(String sessionId);
 
+  /**
+   * Creates a {@link GqReAuthRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new GqReAuthRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public GqReAuthRequest createGqReAuthRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Creates a Gq Re Auth Answer message based on request
    * 
@@ -127,6 +159,16 @@ public interface GqMessageFactory {
    */
   public GqSessionTerminationRequest createGqSessionTerminationRequest(String sessionId);
 
+  /**
+   * Creates a {@link GqSessionTerminationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new GqSessionTerminationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public GqSessionTerminationRequest createGqSessionTerminationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Creates a Gq Session Termination Answer message based on request
    * 
@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.gq.tests.sdp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.sdp.SdpParseException;
+
+import net.java.slee.resource.diameter.gq.GqAvpFactory;
+import net.java.slee.resource.diameter.gq.GqProvider;
+import net.java.slee.resource.diameter.gq.events.avp.FlowStatus;
+import net.java.slee.resource.diameter.gq.events.avp.MediaComponentDescription;
+import net.java.slee.resource.diameter.gq.events.avp.MediaSubComponent;
+
+import org.junit.Test;
+import org.mobicents.diameter.dictionary.AvpDictionary;
+import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.gq.CompiledSDPConverter;
+import org.mobicents.slee.resource.diameter.gq.GqAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.gq.SDPConverter;
+
+/**
+ * Checks {@link CompiledSDPConverter} against the javax.sdp based {@link SDPConverter}.
+ */
+public class CompiledSDPConverterTest {
+
+	private static final String OFFER =
+			"v=0\r\n" +
+			"o=alice 2890844526 2890844526 IN IP4 10.0.0.1\r\n" +
+			"s=-\r\n" +
+			"c=IN IP4 10.0.0.1\r\n" +
+			"t=0 0\r\n" +
+			"m=audio 49170 RTP/AVP 0 8 101\r\n" +
+			"b=AS:64\r\n" +
+			"b=RS:800\r\n" +
+			"b=RR:2400\r\n" +
+			"a=rtpmap:0 PCMU/8000\r\n" +
+			"a=rtpmap:8 PCMA/8000\r\n" +
+			"a=rtpmap:101 telephone-event/8000\r\n" +
+			"a=sendrecv\r\n" +
+			"m=video 51372 RTP/AVP 99\r\n" +
+			"c=IN IP4 10.0.0.3\r\n" +
+			"b=AS:384\r\n" +
+			"a=rtpmap:99 H264/90000\r\n" +
+			"a=rtcp:51380\r\n";
+
+	private static final String ANSWER =
+			"v=0\r\n" +
+			"o=bob 2808844564 2808844564 IN IP4 10.0.0.2\r\n" +
+			"s=-\r\n" +
+			"c=IN IP4 10.0.0.2\r\n" +
+			"t=0 0\r\n" +
+			"m=audio 3456 RTP/AVP 0 101\r\n" +
+			"b=AS:64\r\n" +
+			"a=rtpmap:0 PCMU/8000\r\n" +
+			"a=rtpmap:101 telephone-event/8000\r\n" +
+			"m=video 3458 RTP/AVP 99\r\n" +
+			"b=AS:384\r\n" +
+			"a=rtpmap:99 H264/90000\r\n" +
+			"a=sendonly\r\n";
+
+	private static GqAvpFactory gqAvpFactory;
+	private static GqProvider gqProvider;
+
+	static {
+		try {
+			AvpDictionary.INSTANCE.parseDictionary(CompiledSDPConverterTest.class.getClassLoader().getResourceAsStream("dictionary.xml"));
+		}
+		catch (Exception e) {
+			throw new RuntimeException("Failed to parse dictionary file.");
+		}
+
+		gqAvpFactory = new GqAvpFactoryImpl(new DiameterAvpFactoryImpl());
+		gqProvider = (GqProvider) Proxy.newProxyInstance(GqProvider.class.getClassLoader(), new Class<?>[] {GqProvider.class},
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getGqAvpFactory")) {
+							return gqAvpFactory;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Test
+	public void testOfferAnswerSameAsSDPConverter() throws Exception {
+		MediaComponentDescription[] expected = SDPConverter.convertSDP(gqProvider, OFFER, ANSWER);
+		MediaComponentDescription[] actual = CompiledSDPConverter.convertSDP(gqProvider, OFFER, ANSWER);
+
+		assertSameAvps(expected, actual);
+	}
+
+	@Test
+	public void testOfferSameAsSDPConverter() throws Exception {
+		MediaComponentDescription[] expected = SDPConverter.convertSDP(gqProvider, OFFER);
+		MediaComponentDescription[] actual = CompiledSDPConverter.convertSDP(gqProvider, OFFER);
+
+		assertSameAvps(expected, actual);
+	}
+
+	@Test
+	public void testCachedConversionBuildsNewAvps() throws Exception {
+		MediaComponentDescription[] first = CompiledSDPConverter.convertSDP(gqProvider, OFFER, ANSWER);
+		MediaComponentDescription[] second = CompiledSDPConverter.convertSDP(gqProvider, OFFER, ANSWER);
+
+		assertSameAvps(first, second);
+		for (int i = 0; i < first.length; i++) {
+			assertNotSame("Cached conversion should not return the same AVP instances.", first[i], second[i]);
+		}
+
+		// changing a returned AVP must not change the cached result
+		first[0].setFlowStatus(FlowStatus.DISABLED);
+		assertSameAvps(second, CompiledSDPConverter.convertSDP(gqProvider, OFFER, ANSWER));
+	}
+
+	@Test
+	public void testRecvOnlyOfferHasOnlyRtcpFlow() throws Exception {
+		// video is the last media of the offer
+		MediaComponentDescription video = CompiledSDPConverter.convertSDP(gqProvider, OFFER + "a=recvonly\r\n", ANSWER)[1];
+
+		assertEquals("Unexpected Flow-Status for recvonly media.", FlowStatus.ENABLED_DOWNLINK, video.getFlowStatus());
+		MediaSubComponent[] subComponents = video.getMediaSubComponents();
+		assertEquals("Unexpected number of Media-Sub-Component AVPs.", 1, subComponents.length);
+		assertEquals("Unexpected Flow-Number.", 2, subComponents[0].getFlowNumber());
+		assertEquals("Unexpected Flow-Description in offer direction.", "permit in 17 from 10.0.0.3 51380 to any ",
+				subComponents[0].getFlowDescriptions()[0].getRuleString());
+	}
+
+	@Test
+	public void testUnsupportedProtocol() throws Exception {
+		try {
+			CompiledSDPConverter.convertSDP(gqProvider, OFFER.replace("m=audio 49170 RTP/AVP", "m=audio 49170 RTP/SAVP"));
+			fail("Conversion of unsupported protocol should fail.");
+		}
+		catch (SdpParseException e) {
+			// expected
+		}
+	}
+
+	private void assertSameAvps(MediaComponentDescription[] expected, MediaComponentDescription[] actual) {
+		assertEquals("Unexpected number of Media-Component-Description AVPs.", expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertArrayEquals("Media-Component-Description #" + i + " differs.", expected[i].byteArrayValue(), actual[i].byteArrayValue());
+		}
+	}
+
+}
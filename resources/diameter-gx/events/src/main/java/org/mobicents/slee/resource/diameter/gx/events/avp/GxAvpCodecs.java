@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.gx.events.avp;
+
+import net.java.slee.resource.diameter.gx.events.avp.BearerUsage;
+import net.java.slee.resource.diameter.gx.events.avp.EventTrigger;
+import net.java.slee.resource.diameter.gx.events.avp.MeteringMethod;
+import net.java.slee.resource.diameter.gx.events.avp.Offline;
+import net.java.slee.resource.diameter.gx.events.avp.Online;
+import net.java.slee.resource.diameter.gx.events.avp.PDPSessionOperation;
+import net.java.slee.resource.diameter.gx.events.avp.ReportingLevel;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+import org.mobicents.slee.resource.diameter.cca.events.avp.CreditControlAvpCodecs;
+
+/**
+ * Codec table for the Diameter Gx AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class GxAvpCodecs {
+
+  static {
+    // Diameter Credit-Control AVP types are also used by this application
+    CreditControlAvpCodecs.register();
+
+    AvpCodecRegistry.registerEnumerated(BearerUsage.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return BearerUsage.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new BearerUsage[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(EventTrigger.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return EventTrigger.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EventTrigger[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MeteringMethod.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MeteringMethod.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MeteringMethod[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(Offline.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return Offline.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new Offline[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(Online.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return Online.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new Online[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PDPSessionOperation.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PDPSessionOperation.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PDPSessionOperation[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReportingLevel.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReportingLevel.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReportingLevel[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ChargingInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ChargingInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ChargingInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ChargingRuleDefinitionImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ChargingRuleDefinitionImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ChargingRuleDefinitionImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ChargingRuleInstallImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ChargingRuleInstallImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ChargingRuleInstallImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ChargingRuleRemoveImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ChargingRuleRemoveImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ChargingRuleRemoveImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(FlowsImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new FlowsImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FlowsImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(TFTPacketFilterInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new TFTPacketFilterInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TFTPacketFilterInformationImpl[size];
+      }
+    });
+  }
+
+  private GxAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
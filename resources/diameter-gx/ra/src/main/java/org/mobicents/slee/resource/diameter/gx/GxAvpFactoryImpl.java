@@ -46,6 +46,7 @@ import org.mobicents.slee.resource.diameter.gx.events.avp.ChargingRuleInstallImp
 import org.mobicents.slee.resource.diameter.gx.events.avp.ChargingRuleRemoveImpl;
 import org.mobicents.slee.resource.diameter.gx.events.avp.DiameterGxAvpCodes;
 import org.mobicents.slee.resource.diameter.gx.events.avp.FlowsImpl;
+import org.mobicents.slee.resource.diameter.gx.events.avp.GxAvpCodecs;
 import org.mobicents.slee.resource.diameter.gx.events.avp.TFTPacketFilterInformationImpl;
 
 /**
@@ -56,6 +57,10 @@ import org.mobicents.slee.resource.diameter.gx.events.avp.TFTPacketFilterInforma
  */
 public class GxAvpFactoryImpl extends CreditControlAVPFactoryImpl implements GxAvpFactory {
 
+  static {
+    GxAvpCodecs.register();
+  }
+
     // TODO: Add helper create methods for the composite AVPs
 
     public GxAvpFactoryImpl(final DiameterAvpFactory baseAvpFactory) {
@@ -342,7 +342,7 @@ public class GxClientSessionActivityImpl extends GxSessionActivityImpl implement
       return false;
     }
     final GxClientSessionActivityImpl other = (GxClientSessionActivityImpl) obj;
-    if (terminateAfterProcessing != other.isTerminateAfterProcessing()) {
+    if (isTerminateAfterProcessing() != other.isTerminateAfterProcessing()) {
       return false;
     }
 
@@ -21,17 +21,13 @@
  */
 package org.mobicents.slee.resource.diameter.gx;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
-import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.base.events.avp.GroupedAvp;
 import net.java.slee.resource.diameter.cca.events.avp.CreditControlAVPCodes;
 import net.java.slee.resource.diameter.gx.GxMessageFactory;
@@ -50,6 +46,8 @@ import org.jdiameter.api.IllegalDiameterStateException;
 import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.gx.events.GxCreditControlAnswerImpl;
 import org.mobicents.slee.resource.diameter.gx.events.GxCreditControlRequestImpl;
 
@@ -66,29 +64,30 @@ public class GxMessageFactoryImpl implements GxMessageFactory {
 
     protected Logger logger = Logger.getLogger(this.getClass());
 
-    protected final static Set<Integer> ids;
-
-    static {
-        final Set<Integer> _ids = new HashSet<Integer>();
-
-        _ids.add(CreditControlAVPCodes.CC_Request_Type);
-        _ids.add(CreditControlAVPCodes.CC_Request_Number);
-
-        ids = Collections.unmodifiableSet(_ids);
-    }
+    // AVPs copied from the request into the answer
+    protected final static AnswerTemplate answerTemplate = new AnswerTemplate(
+            DiameterAvpCodes.SESSION_ID,
+            CreditControlAVPCodes.CC_Request_Type,
+            CreditControlAVPCodes.CC_Request_Number);
     protected DiameterMessageFactory baseFactory = null;
     protected String sessionId;
     protected Stack stack;
+    protected final RawMessageCreator rawMessageCreator;
 
     private ApplicationId gxAppId = ApplicationId.createByAuthAppId(0L, _GX_AUTH_APP_ID);
 
     // protected RfAVPFactory rfAvpFactory = null;
     public GxMessageFactoryImpl(final DiameterMessageFactory baseFactory, final String sessionId, final Stack stack) {
+        this(baseFactory, sessionId, new RawMessageCreator(stack));
+    }
+
+    public GxMessageFactoryImpl(final DiameterMessageFactory baseFactory, final String sessionId, final RawMessageCreator rawMessageCreator) {
         super();
 
         this.baseFactory = baseFactory;
         this.sessionId = sessionId;
-        this.stack = stack;
+        this.stack = rawMessageCreator.getStack();
+        this.rawMessageCreator = rawMessageCreator;
     }
 
     public void setApplicationId(long vendorId, long applicationId) {
@@ -112,6 +111,16 @@ public class GxMessageFactoryImpl implements GxMessageFactory {
         return gx;
     }
 
+    /**
+     * Creates a {@link GxCreditControlRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+     */
+    public GxCreditControlRequest createGxCreditControlRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+        GxCreditControlRequest msg = createGxCreditControlRequest();
+        avps.build(msg);
+
+        return msg;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -125,6 +134,16 @@ public class GxMessageFactoryImpl implements GxMessageFactory {
         return gxRAR;
     }
 
+    /**
+     * Creates a {@link GxReAuthRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+     */
+    public GxReAuthRequest createGxReAuthRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+        GxReAuthRequest msg = createGxReAuthRequest();
+        avps.build(msg);
+
+        return msg;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -158,21 +177,8 @@ public class GxMessageFactoryImpl implements GxMessageFactory {
         msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
         msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
         msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-        msg.setSessionId(request.getSessionId());
         // Now copy the needed AVPs
-
-        final DiameterAvp[] messageAvps = request.getAvps();
-        if (messageAvps != null) {
-            for (DiameterAvp a : messageAvps) {
-                try {
-                    if (ids.contains(a.getCode())) {
-                        msg.addAvp(a);
-                    }
-                } catch (Exception e) {
-                    logger.error("Failed to add AVP to answer. Code[" + a.getCode() + "]", e);
-                }
-            }
-        }
+        answerTemplate.copy(request, msg);
         addOrigin(msg);
         return msg;
     }
@@ -194,21 +200,8 @@ public class GxMessageFactoryImpl implements GxMessageFactory {
         msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
         msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
         msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-        msg.setSessionId(request.getSessionId());
         // Now copy the needed AVPs
-
-        final DiameterAvp[] messageAvps = request.getAvps();
-        if (messageAvps != null) {
-            for (DiameterAvp a : messageAvps) {
-                try {
-                    if (ids.contains(a.getCode())) {
-                        msg.addAvp(a);
-                    }
-                } catch (Exception e) {
-                    logger.error("Failed to add AVP to answer. Code[" + a.getCode() + "]", e);
-                }
-            }
-        }
+        answerTemplate.copy(request, msg);
         addOrigin(msg);
         return msg;
     }
@@ -293,9 +286,9 @@ public class GxMessageFactoryImpl implements GxMessageFactory {
 
         try {
             if (header != null) {
-                return stack.getSessionFactory().getNewRawSession().createMessage(commandCode, this.gxAppId, hopByHopId, endToEndId);
+                return rawMessageCreator.createMessage(commandCode, this.gxAppId, hopByHopId, endToEndId);
             } else {
-                return stack.getSessionFactory().getNewRawSession().createMessage(commandCode, this.gxAppId);
+                return rawMessageCreator.createMessage(commandCode, this.gxAppId);
             }
         } catch (IllegalDiameterStateException e) {
             logger.error("Failed to get session factory for message creation.", e);
@@ -321,11 +314,6 @@ public class GxMessageFactoryImpl implements GxMessageFactory {
     }
 
     private void addOrigin(final DiameterMessage msg) {
-        if (!msg.hasOriginHost()) {
-            msg.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
-        }
-        if (!msg.hasOriginRealm()) {
-            msg.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-        }
+        rawMessageCreator.addOriginHostAndRealm(msg);
     }
 }
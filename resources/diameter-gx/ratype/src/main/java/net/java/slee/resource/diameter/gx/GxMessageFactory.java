@@ -23,6 +23,8 @@
 package net.java.slee.resource.diameter.gx;
 
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.gx.events.GxCreditControlRequest;
 import net.java.slee.resource.diameter.gx.events.GxReAuthRequest;
 
@@ -55,9 +57,29 @@ public interface GxMessageFactory {
      * @return
      */
     public GxCreditControlRequest createGxCreditControlRequest(String sessionId);
+
+    /**
+     * Creates a {@link GxCreditControlRequest} with the AVPs collected by the given builder. All
+     * AVPs are validated against the dictionary in one pass before any is added.
+     *
+     * @param avps the AVPs to add to the request
+     * @return a new GxCreditControlRequest
+     * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+     */
+    public GxCreditControlRequest createGxCreditControlRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
     
     public GxReAuthRequest createGxReAuthRequest(String sessionId);
 
+    /**
+     * Creates a {@link GxReAuthRequest} with the AVPs collected by the given builder. All
+     * AVPs are validated against the dictionary in one pass before any is added.
+     *
+     * @param avps the AVPs to add to the request
+     * @return a new GxReAuthRequest
+     * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+     */
+    public GxReAuthRequest createGxReAuthRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
     /**
      * @return Base Diameter message factory
      */
@@ -80,6 +80,7 @@ import org.mobicents.slee.resource.diameter.rf.events.avp.PocInformationImpl;
 import org.mobicents.slee.resource.diameter.rf.events.avp.PsFurnishChargingInformationImpl;
 import org.mobicents.slee.resource.diameter.rf.events.avp.PsInformationImpl;
 import org.mobicents.slee.resource.diameter.rf.events.avp.RecipientAddressImpl;
+import org.mobicents.slee.resource.diameter.rf.events.avp.RfAvpCodecs;
 import org.mobicents.slee.resource.diameter.rf.events.avp.SdpMediaComponentImpl;
 import org.mobicents.slee.resource.diameter.rf.events.avp.ServiceInformationImpl;
 import org.mobicents.slee.resource.diameter.rf.events.avp.TalkBurstExchangeImpl;
@@ -96,6 +97,10 @@ import org.mobicents.slee.resource.diameter.rf.events.avp.WlanRadioContainerImpl
  */
 public class RfAvpFactoryImpl extends DiameterAvpFactoryImpl implements RfAvpFactory {
 
+  static {
+    RfAvpCodecs.register();
+  }
+
   public RfAvpFactoryImpl() {
     super();
 
@@ -26,6 +26,7 @@ import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.avp.AccountingRecordType;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.GroupedAvp;
 import net.java.slee.resource.diameter.rf.RfMessageFactory;
@@ -39,6 +40,7 @@ import org.jdiameter.api.IllegalDiameterStateException;
 import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.rf.events.RfAccountingAnswerImpl;
 import org.mobicents.slee.resource.diameter.rf.events.RfAccountingRequestImpl;
 
@@ -56,17 +58,23 @@ public class RfMessageFactoryImpl implements RfMessageFactory {
 
   protected String sessionId;
   protected Stack stack;
+  protected final RawMessageCreator rawMessageCreator;
 
   // Rf: Vendor-Specific-Application-Id is not permitted, only Acct-Application-Id;
   private ApplicationId rfAppId = ApplicationId.createByAccAppId(0L, _RF_ACC_APP_ID);
 
   // protected RfAVPFactory rfAvpFactory = null;
   public RfMessageFactoryImpl(DiameterMessageFactory baseFactory, String sessionId, Stack stack/*, RfAVPFactory creditControlAvpFactory*/) {
+    this(baseFactory, sessionId, new RawMessageCreator(stack));
+  }
+
+  public RfMessageFactoryImpl(DiameterMessageFactory baseFactory, String sessionId, RawMessageCreator rawMessageCreator) {
     super();
 
     this.baseFactory = baseFactory;
     this.sessionId = sessionId;
-    this.stack = stack;
+    this.stack = rawMessageCreator.getStack();
+    this.rawMessageCreator = rawMessageCreator;
   }
 
   public void setApplicationId(long vendorId, long applicationId) {
@@ -90,6 +98,16 @@ public class RfMessageFactoryImpl implements RfMessageFactory {
     return acr;
   }
 
+  /**
+   * Creates a {@link RfAccountingRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public RfAccountingRequest createRfAccountingRequest(AccountingRecordType accountingrecordtype, AvpSetBuilder avps) throws AvpNotAllowedException {
+    RfAccountingRequest msg = createRfAccountingRequest(accountingrecordtype);
+    avps.build(msg);
+
+    return msg;
+  }
+
   protected RfAccountingMessage createRfAccountingMessage(DiameterHeader diameterHeader, DiameterAvp[] avps) throws IllegalArgumentException {
     // List<DiameterAvp> list = (List<DiameterAvp>) this.avpList.clone();
     boolean isRequest = diameterHeader == null;
@@ -137,9 +155,9 @@ public class RfMessageFactoryImpl implements RfMessageFactory {
 
     try {
       if (header != null) {
-        return stack.getSessionFactory().getNewRawSession().createMessage(commandCode, rfAppId, hopByHopId, endToEndId);
+        return rawMessageCreator.createMessage(commandCode, rfAppId, hopByHopId, endToEndId);
       } else {
-        return stack.getSessionFactory().getNewRawSession().createMessage(commandCode, rfAppId);
+        return rawMessageCreator.createMessage(commandCode, rfAppId);
       }
     } catch (IllegalDiameterStateException e) {
       logger.error("Failed to get session factory for message creation.", e);
@@ -45,6 +45,7 @@ import org.jdiameter.api.Stack;
 import org.jdiameter.api.app.AppSession;
 import org.jdiameter.api.rf.ServerRfSession;
 import org.jdiameter.common.api.app.rf.ServerRfSessionState;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
 import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.rf.events.RfAccountingAnswerImpl;
 
@@ -58,6 +59,9 @@ public class RfServerSessionActivityImpl extends RfSessionActivityImpl implement
 
   private static final long serialVersionUID = -4463687722140594904L;
 
+  // AVPs copied from the request into the answer
+  private static final AnswerTemplate answerTemplate = new AnswerTemplate(Avp.ACC_RECORD_NUMBER, Avp.ACC_RECORD_TYPE);
+
   /**
    * Should contain requests, so we can create answer.
    */
@@ -92,13 +96,6 @@ public class RfServerSessionActivityImpl extends RfSessionActivityImpl implement
       copyAvps.add(avpFactory.createAvp(Avp.ORIGIN_HOST, this.originHost.getBytes()));
       copyAvps.add(avpFactory.createAvp(Avp.ORIGIN_REALM, this.originRealm.getBytes()));
 
-      for(DiameterAvp avp : request.getAvps()) {
-        if(avp.getCode() == Avp.ACC_RECORD_NUMBER || avp.getCode() == Avp.ACC_RECORD_TYPE /* || 
-            avp.getCode() == Avp.ACCT_APPLICATION_ID || avp.getCode() == Avp.VENDOR_SPECIFIC_APPLICATION_ID*/) {
-          copyAvps.add((DiameterAvp) avp.clone());
-        }
-      }
-
       RfAccountingAnswerImpl answer = (RfAccountingAnswerImpl) ((RfMessageFactoryImpl)rfMessageFactory).createRfAccountingMessage(request.getHeader(), copyAvps.toArray(new DiameterAvp[copyAvps.size()]));
 
       // Get the raw Answer
@@ -108,6 +105,9 @@ public class RfServerSessionActivityImpl extends RfSessionActivityImpl implement
       rawAnswer.setRequest(false);
       rawAnswer.setReTransmitted(false); // just in case. answers never have T flag set
 
+      // Copy the interesting AVPs from the request
+      answerTemplate.copy(request, answer);
+
       answer.setData(request);
 
       return answer;
@@ -134,8 +134,7 @@ public class RfServerSessionActivityImpl extends RfSessionActivityImpl implement
       this.serverSession.sendAccountAnswer(new org.jdiameter.common.impl.app.rf.RfAccountingAnswerImpl((Answer) aca.getGenericData()));
 
       // FIXME: check this?
-      if (isTerminateAfterProcessing()) {
-        endActivity();
+      if (endIfTerminateAfterProcessing()) {
         // this.serverSession.release();
         //
         // if(!serverSession.isValid()) {
@@ -24,6 +24,8 @@ package net.java.slee.resource.diameter.rf;
 
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.events.avp.AccountingRecordType;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.rf.events.RfAccountingRequest;
 
 /**
@@ -63,4 +65,15 @@ public interface RfMessageFactory {
    * @return
    */
   public RfAccountingRequest createRfAccountingRequest(String sessionId, AccountingRecordType accountingRecordType);
+
+  /**
+   * Creates a {@link RfAccountingRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param accountingRecordType the Accounting-Record-Type of the request
+   * @param avps the AVPs to add to the request
+   * @return a new RfAccountingRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public RfAccountingRequest createRfAccountingRequest(AccountingRecordType accountingRecordType, AvpSetBuilder avps) throws AvpNotAllowedException;
 }
@@ -0,0 +1,606 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.ro.events.avp;
+
+import net.java.slee.resource.diameter.ro.events.avp.Adaptations;
+import net.java.slee.resource.diameter.ro.events.avp.AddressType;
+import net.java.slee.resource.diameter.ro.events.avp.AddresseeType;
+import net.java.slee.resource.diameter.ro.events.avp.ClassIdentifier;
+import net.java.slee.resource.diameter.ro.events.avp.ContentClass;
+import net.java.slee.resource.diameter.ro.events.avp.DeliveryReportRequested;
+import net.java.slee.resource.diameter.ro.events.avp.DrmContent;
+import net.java.slee.resource.diameter.ro.events.avp.FileRepairSupported;
+import net.java.slee.resource.diameter.ro.events.avp.LcsClientType;
+import net.java.slee.resource.diameter.ro.events.avp.LcsFormatIndicator;
+import net.java.slee.resource.diameter.ro.events.avp.LocationEstimateType;
+import net.java.slee.resource.diameter.ro.events.avp.Mbms2g3gIndicator;
+import net.java.slee.resource.diameter.ro.events.avp.MbmsCountingInformation;
+import net.java.slee.resource.diameter.ro.events.avp.MbmsServiceType;
+import net.java.slee.resource.diameter.ro.events.avp.MbmsStartStopIndication;
+import net.java.slee.resource.diameter.ro.events.avp.MbmsUserDataModeIndication;
+import net.java.slee.resource.diameter.ro.events.avp.MbmsUserServiceType;
+import net.java.slee.resource.diameter.ro.events.avp.MediaInitiatorFlag;
+import net.java.slee.resource.diameter.ro.events.avp.MessageType;
+import net.java.slee.resource.diameter.ro.events.avp.NodeFunctionality;
+import net.java.slee.resource.diameter.ro.events.avp.Originator;
+import net.java.slee.resource.diameter.ro.events.avp.PocServerRole;
+import net.java.slee.resource.diameter.ro.events.avp.PocSessionType;
+import net.java.slee.resource.diameter.ro.events.avp.Priority;
+import net.java.slee.resource.diameter.ro.events.avp.PsAppendFreeFormatData;
+import net.java.slee.resource.diameter.ro.events.avp.ReadReplyReportRequested;
+import net.java.slee.resource.diameter.ro.events.avp.ReportingReason;
+import net.java.slee.resource.diameter.ro.events.avp.RoleOfNode;
+import net.java.slee.resource.diameter.ro.events.avp.TriggerType;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+import org.mobicents.slee.resource.diameter.cca.events.avp.CreditControlAvpCodecs;
+
+/**
+ * Codec table for the Diameter Ro AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class RoAvpCodecs {
+
+  static {
+    // Diameter Credit-Control AVP types are also used by this application
+    CreditControlAvpCodecs.register();
+
+    AvpCodecRegistry.registerEnumerated(Adaptations.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return Adaptations.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new Adaptations[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(AddressType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AddressType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AddressType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(AddresseeType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AddresseeType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AddresseeType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ClassIdentifier.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ClassIdentifier.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ClassIdentifier[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ContentClass.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ContentClass.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ContentClass[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(DeliveryReportRequested.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return DeliveryReportRequested.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new DeliveryReportRequested[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(DrmContent.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return DrmContent.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new DrmContent[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(FileRepairSupported.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return FileRepairSupported.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FileRepairSupported[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(LcsClientType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return LcsClientType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LcsClientType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(LcsFormatIndicator.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return LcsFormatIndicator.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LcsFormatIndicator[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(LocationEstimateType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return LocationEstimateType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LocationEstimateType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(Mbms2g3gIndicator.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return Mbms2g3gIndicator.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new Mbms2g3gIndicator[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MbmsCountingInformation.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MbmsCountingInformation.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MbmsCountingInformation[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MbmsServiceType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MbmsServiceType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MbmsServiceType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MbmsStartStopIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MbmsStartStopIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MbmsStartStopIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MbmsUserDataModeIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MbmsUserDataModeIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MbmsUserDataModeIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MbmsUserServiceType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MbmsUserServiceType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MbmsUserServiceType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MediaInitiatorFlag.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MediaInitiatorFlag.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MediaInitiatorFlag[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MessageType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MessageType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MessageType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(NodeFunctionality.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return NodeFunctionality.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new NodeFunctionality[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(Originator.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return Originator.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new Originator[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PocServerRole.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PocServerRole.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PocServerRole[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PocSessionType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PocSessionType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PocSessionType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(Priority.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return Priority.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new Priority[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PsAppendFreeFormatData.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PsAppendFreeFormatData.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PsAppendFreeFormatData[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReadReplyReportRequested.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReadReplyReportRequested.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReadReplyReportRequested[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReportingReason.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReportingReason.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReportingReason[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RoleOfNode.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RoleOfNode.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RoleOfNode[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(TriggerType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return TriggerType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TriggerType[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AdditionalContentInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AdditionalContentInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AdditionalContentInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AddressDomainImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AddressDomainImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AddressDomainImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ApplicationServerInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ApplicationServerInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ApplicationServerInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EventTypeImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EventTypeImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EventTypeImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ImsInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ImsInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ImsInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(InterOperatorIdentifierImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new InterOperatorIdentifierImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new InterOperatorIdentifierImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(LcsClientIdImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new LcsClientIdImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LcsClientIdImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(LcsClientNameImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new LcsClientNameImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LcsClientNameImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(LcsInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new LcsInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LcsInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(LcsRequestorIdImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new LcsRequestorIdImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LcsRequestorIdImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(LocationTypeImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new LocationTypeImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LocationTypeImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MbmsInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MbmsInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MbmsInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MessageBodyImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MessageBodyImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MessageBodyImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MessageClassImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MessageClassImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MessageClassImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MmContentTypeImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MmContentTypeImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MmContentTypeImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MmsInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MmsInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MmsInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(OriginatorAddressImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new OriginatorAddressImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new OriginatorAddressImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(PocInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new PocInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PocInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(PsFurnishChargingInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new PsFurnishChargingInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PsFurnishChargingInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(PsInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new PsInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PsInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(RecipientAddressImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new RecipientAddressImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RecipientAddressImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SdpMediaComponentImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SdpMediaComponentImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SdpMediaComponentImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ServerCapabilitiesImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ServerCapabilitiesImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ServerCapabilitiesImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ServiceInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ServiceInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ServiceInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(TalkBurstExchangeImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new TalkBurstExchangeImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TalkBurstExchangeImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(TimeStampsImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new TimeStampsImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TimeStampsImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(TrunkGroupIdImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new TrunkGroupIdImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TrunkGroupIdImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(WlanInformationImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new WlanInformationImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new WlanInformationImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(WlanRadioContainerImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new WlanRadioContainerImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new WlanRadioContainerImpl[size];
+      }
+    });
+  }
+
+  private RoAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
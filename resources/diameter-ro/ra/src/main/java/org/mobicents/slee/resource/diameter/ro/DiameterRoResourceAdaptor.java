@@ -23,27 +23,14 @@
 package org.mobicents.slee.resource.diameter.ro;
 
 import java.io.IOException;
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.management.ObjectName;
 import javax.naming.OperationNotSupportedException;
-import javax.slee.Address;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.facilities.Tracer;
-import javax.slee.resource.ActivityFlags;
 import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.ConfigProperties;
-import javax.slee.resource.EventFlags;
-import javax.slee.resource.FailureReason;
-import javax.slee.resource.FireableEventType;
-import javax.slee.resource.InvalidConfigurationException;
 import javax.slee.resource.Marshaler;
-import javax.slee.resource.ReceivableService;
-import javax.slee.resource.ResourceAdaptor;
 import javax.slee.resource.ResourceAdaptorContext;
-import javax.slee.resource.SleeEndpoint;
 
 import net.java.slee.resource.diameter.Validator;
 import net.java.slee.resource.diameter.base.CreateActivityException;
@@ -63,33 +50,23 @@ import net.java.slee.resource.diameter.ro.RoServerSessionActivity;
 import net.java.slee.resource.diameter.ro.events.RoCreditControlAnswer;
 import net.java.slee.resource.diameter.ro.events.RoCreditControlRequest;
 
-import org.jboss.mx.util.MBeanServerLocator;
 import org.jdiameter.api.Answer;
 import org.jdiameter.api.ApplicationId;
 import org.jdiameter.api.Avp;
 import org.jdiameter.api.AvpDataException;
 import org.jdiameter.api.AvpSet;
 import org.jdiameter.api.Message;
-import org.jdiameter.api.Peer;
-import org.jdiameter.api.PeerTable;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.SessionFactory;
-import org.jdiameter.api.Stack;
 import org.jdiameter.api.ro.ClientRoSession;
 import org.jdiameter.api.ro.ServerRoSession;
 import org.jdiameter.client.api.ISessionFactory;
 import org.jdiameter.server.impl.app.ro.ServerRoSessionImpl;
-import org.mobicents.diameter.stack.DiameterListener;
-import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
-import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.LocalDiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.ValidatorImpl;
-import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
+import org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
-import org.mobicents.slee.resource.diameter.base.EventIDFilter;
 import org.mobicents.slee.resource.diameter.base.events.AbortSessionAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.AbortSessionRequestImpl;
 import org.mobicents.slee.resource.diameter.base.events.AccountingAnswerImpl;
@@ -101,7 +78,6 @@ import org.mobicents.slee.resource.diameter.base.events.ReAuthAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.ReAuthRequestImpl;
 import org.mobicents.slee.resource.diameter.base.events.SessionTerminationAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.SessionTerminationRequestImpl;
-import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
 import org.mobicents.slee.resource.diameter.ro.events.RoCreditControlAnswerImpl;
 import org.mobicents.slee.resource.diameter.ro.events.RoCreditControlRequestImpl;
 import org.mobicents.slee.resource.diameter.ro.handlers.RoSessionFactory;
@@ -111,7 +87,7 @@ import org.mobicents.slee.resource.diameter.ro.handlers.RoSessionFactory;
  *
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a>
  */
-public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListener, DiameterRAInterface {
+public class DiameterRoResourceAdaptor extends AbstractDiameterResourceAdaptor {
 
   private static final long serialVersionUID = 1L;
 
@@ -123,53 +99,13 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
 
   private List<ApplicationId> authApplicationIds;
 
-  /**
-   * caches the eventIDs, avoiding lookup in container
-   */
-  public final EventIDCache eventIdCache = new EventIDCache();
-
-  /**
-   * tells the RA if an event with a specified ID should be filtered or not
-   */
-  private final EventIDFilter eventIDFilter = new EventIDFilter();
-
-  /**
-   * The ResourceAdaptorContext interface is implemented by the SLEE. It provides the Resource
-   * Adaptor with the required capabilities in the SLEE to execute its work. The ResourceAdaptorCon-
-   * text object holds references to a number of objects that are of interest to many Resource Adaptors. A
-   * resource adaptor object is provided with a ResourceAdaptorContext object when the setResour-
-   * ceAdaptorContext method of the ResourceAdaptor interface is invoked on the resource adaptor
-   * object. 
-   */
-  private ResourceAdaptorContext raContext;
-
-  /**
-   * The SLEE endpoint defines the contract between the SLEE and the resource
-   * adaptor that enables the resource adaptor to deliver events
-   * asynchronously to SLEE endpoints residing in the SLEE. This contract
-   * serves as a generic contract that allows a wide range of resources to be
-   * plugged into a SLEE environment via the resource adaptor architecture.
-   * For further information see JSLEE v1.1 Specification Page 307 The
-   * sleeEndpoint will be initialized in entityCreated() method.
-   */
-  private transient SleeEndpoint sleeEndpoint = null;
-
-  /**
-   * A tracer is represented in the SLEE by the Tracer interface. Notification sources access the Tracer Facil-
-   * ity through a Tracer object that implements the Tracer interface. A Tracer object can be obtained by
-   * SBBs via the SbbContext interface, by resource adaptor entities via the ResourceAdaptorContext
-   * interface, and by profiles via the ProfileContext interface. 
-   */
-  private Tracer tracer;
-
-  protected DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
+  protected DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler(new DiameterBaseMarshaler.EventFactory() {
+    public DiameterMessage createEvent(Message message) {
+      return DiameterRoResourceAdaptor.this.createEvent(message);
+    }
+  });
   // Diameter Specific Properties ----------------------------------------
 
-  private Stack stack;
-
-  private ObjectName diameterMultiplexerObjectName = null;
-  private DiameterStackMultiplexerMBean diameterMux = null;
-
   // Default Failure Handling
   protected int defaultDirectDebitingFailureHandling = 0;
   protected int defaultCreditControlFailureHandling = 0;
@@ -178,8 +114,6 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
   protected long defaultValidityTime = 30;
   protected long defaultTxTimerValue = 10;
 
-  protected long activityRemoveDelay = 30000;
-
   // Base Factories
   private DiameterAvpFactory baseAvpFactory = null;
   private DiameterMessageFactoryImpl baseMessageFactory;
@@ -193,59 +127,26 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
 
   protected RoMessageFactory roMessageFactory;
 
-  /**
-   * the EventLookupFacility is used to look up the event id of incoming
-   * events
-   */
-  private transient EventLookupFacility eventLookup = null;
-
-  /**
-   * The list of activities stored in this resource adaptor. If this resource
-   * adaptor were a distributed and highly available solution, this storage
-   * were one of the candidates for distribution.
-   */
-  //private transient ConcurrentHashMap<ActivityHandle, DiameterActivity> activities = null;
-  private transient DiameterActivityManagement activities = null;
-
   /**
    * A link to the DiameterProvider which then will be exposed to Sbbs
    */
   protected transient RoProviderImpl raProvider = null;
 
-  /**
-   * for all events we are interested in knowing when the event failed to be processed
-   */
-  private static final int EVENT_FLAGS = getEventFlags();
-
-  private static int getEventFlags() {
-    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
-    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
-    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
-    return eventFlags;
-  }
-
-  private static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.REQUEST_ENDED_CALLBACK;
-  private static final int MARSHALABLE_ACTIVITY_FLAGS = ActivityFlags.setSleeMayMarshal(DEFAULT_ACTIVITY_FLAGS);
-
   public DiameterRoResourceAdaptor() {
-    // TODO: Initialize any default values.
+    super("DiameterRoResourceAdaptor", "Diameter Ro RA", new EventIDCache());
   }
 
   // Lifecycle methods ---------------------------------------------------
 
   public void setResourceAdaptorContext(ResourceAdaptorContext context) {
-    this.raContext = context;
-    this.tracer = context.getTracer("DiameterRoResourceAdaptor");
-    this.sleeEndpoint = context.getSleeEndpoint();
-    this.eventLookup = context.getEventLookupFacility();
+    super.setResourceAdaptorContext(context);
+
     this.raProvider = new RoProviderImpl(this);
   }
 
   public void unsetResourceAdaptorContext() {
-    this.raContext = null;
-    this.tracer = null;
-    this.sleeEndpoint = null;
-    this.eventLookup = null;
+    super.unsetResourceAdaptorContext();
+
     this.raProvider = null;
   }
 
@@ -265,42 +166,29 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
         tracer.info("Activating Diameter Ro RA Entity");
       }
 
-      this.diameterMultiplexerObjectName = new ObjectName("diameter.mobicents:service=DiameterStackMultiplexer");
-
-      Object object = null;
-
-      if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
-        // trying to get via MBeanServer
-        object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      } else {
-        // trying to get via locateJBoss
-        object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      }
-
-      if (object != null && object instanceof DiameterStackMultiplexerMBean) {
-        this.diameterMux = (DiameterStackMultiplexerMBean) object;
-      }
-
-      //this.activities = new ConcurrentHashMap<ActivityHandle, DiameterActivity>();
+      activateCore();
 
       // Initialize the protocol stack
       initStack();
 
+      // Track the configured peers
+      initPeers();
+
+      // Share one raw message creator among all message factories
+      initMessageCreator();
+
       //Initialize activities mgmt
       initActivitiesMgmt();
 
+      // Resolve event types to fire
+      eventIdCache.init(eventLookup, tracer);
+
       // Initialize factories
       this.baseAvpFactory = new DiameterAvpFactoryImpl();
-      this.baseMessageFactory = new DiameterMessageFactoryImpl(stack);
+      this.baseMessageFactory = new DiameterMessageFactoryImpl(rawMessageCreator);
 
       this.roAvpFactory = new RoAvpFactoryImpl(baseAvpFactory);
-      this.roMessageFactory = new RoMessageFactoryImpl(baseMessageFactory, null, stack);
+      this.roMessageFactory = new RoMessageFactoryImpl(baseMessageFactory, null, rawMessageCreator);
 
       // Set the first configured Application-Id as default for message factory
       ApplicationId firstAppId = authApplicationIds.get(0);
@@ -318,55 +206,10 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  public void raStopping() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: raStopping.");
-    }
-
-    try {
-      diameterMux.unregisterListener(this);
-    }
-    catch (Exception e) {
-      tracer.severe("Failed to unregister Ro RA from Diameter Mux.", e);
-    }
-
-    //synchronized (this.activities) {
-    //  for (ActivityHandle activityHandle : activities.keySet()) {
-    //    try {
-    //      if(tracer.isInfoEnabled()) {
-    //        tracer.info("Ending activity [" + activityHandle + "]");
-    //      }
-    //
-    //      activities.get(activityHandle).endActivity();
-    //    }
-    //    catch (Exception e) {
-    //      tracer.severe("Error Deactivating Activity", e);
-    //    }
-    //  }
-    //}
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Ro RA :: raStopping completed.");
-    }
-  }
-
-  public void raInactive() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: raInactive.");
-    }
-
-    //synchronized (this.activities) {
-    //  activities.clear();
-    //}
-    activities = null;
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Ro RA :: raInactive completed.");
-    }
-  }
-
   public void raConfigure(ConfigProperties properties) {
     parseApplicationIds((String) properties.getProperty(AUTH_APPLICATION_IDS).getValue());
+
+    super.raConfigure(properties);
   }
 
   private void parseApplicationIds(String appIdsStr) {
@@ -385,23 +228,9 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
   }
 
   public void raUnconfigure() {
-    // Clean up!
-    this.activities = null;
-    this.raContext = null;
-    this.eventLookup = null;
-    this.raProvider = null;
-    this.sleeEndpoint = null;
-    this.stack = null;
-  }
-
-  // Configuration management methods ------------------------------------
-
-  public void raVerifyConfiguration(ConfigProperties properties) throws InvalidConfigurationException {
-    // TODO Auto-generated method stub
-  }
+    super.raUnconfigure();
 
-  public void raConfigurationUpdate(ConfigProperties properties) {
-    // this ra does not support config update while entity is active    
+    this.raProvider = null;
   }
 
   // Interface access methods -------------------------------------------- 
@@ -419,240 +248,30 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
     return marshaler;
   }
 
-  // Event filtering methods ---------------------------------------------
-
-  public void serviceActive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceActive(serviceInfo);   
-  }
-
-  public void serviceStopping(ReceivableService serviceInfo) {
-    eventIDFilter.serviceStopping(serviceInfo);
-  }
-
-  public void serviceInactive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceInactive(serviceInfo); 
-  }
-
-  // Mandatory callback methods ------------------------------------------
-
-  public void queryLiveness(ActivityHandle handle) {
-    tracer.info("Diameter Ro RA :: queryLiveness :: handle[" + handle + "].");
-
-    DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle)handle);
-
-    if (activity != null && !activity.isValid()) {
-      try {
-        sleeEndpoint.endActivity(handle);
-      }
-      catch (Exception e) {
-        tracer.severe("Failure ending non-live activity.", e);
-      }
-    }
-  }
-
-  public Object getActivity(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: getActivity :: handle[" + handle + "].");
-    }
-
-    return this.activities.get((DiameterActivityHandle)handle);
-  }
-
-  public ActivityHandle getActivityHandle(Object activity) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: getActivityHandle :: activity[" + activity + "].");
-    }
-
-    if (!(activity instanceof DiameterActivity)) {
-      return null;
-    }
-
-    DiameterActivityImpl inActivity = (DiameterActivityImpl) activity;
-
-    //for (Map.Entry<ActivityHandle, DiameterActivity> activityInfo : this.activities.entrySet()) {
-    //  Object curActivity = activityInfo.getValue();
-    //
-    //  if (curActivity.equals(inActivity)) {
-    //    return activityInfo.getKey();
-    //  }
-    //}
-    //
-    //return null;
-    return inActivity.getActivityHandle();
-  }
-
-  public void administrativeRemove(ActivityHandle handle) {
-    // TODO what to do here?
-  }
-
-  // Optional callback methods -------------------------------------------
-
-  public void eventProcessingFailed(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags, FailureReason reason) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: eventProcessingFailed :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "], reason[" + reason + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventProcessingSuccessful(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: eventProcessingSuccessful :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "].");
-    }
-
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventUnreferenced(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], service[" + service + "], flags[" + flags + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  private void processAfterEventDelivery(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    DiameterActivityImpl activity = (DiameterActivityImpl) getActivity(handle);
-    if (activity != null) {
-      synchronized (activity) {
-        if (activity.isTerminateAfterProcessing()) {
-          activity.endActivity();
-        }
-      }
-    }
-  }
-
-  public void activityEnded(ActivityHandle handle) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Ro RA :: activityEnded :: handle[" + handle + "].");
-    }
-
-    if(this.activities != null) {
-      synchronized (this.activities) {
-        this.activities.remove((DiameterActivityHandle)handle);
-      }
-    }
-  }
-
-  public void activityUnreferenced(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: activityUnreferenced :: handle[" + handle + "].");
-    }
-
-    //this.activityEnded(handle);
-    if(handle instanceof DiameterActivityHandle) {
-      this.endActivity((DiameterActivityHandle) handle);
-    }
-  }
-
   // Event and Activities management -------------------------------------
 
-  public boolean fireEvent(Object event, ActivityHandle handle, FireableEventType eventID, Address address, boolean useFiltering, boolean transacted) {
-
-    if (useFiltering && eventIDFilter.filterEvent(eventID)) {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Event " + eventID + " filtered");
-      }
-    }
-    else if (eventID == null) {
-      tracer.severe("Event ID for " + eventID + " is unknown, unable to fire.");
-    }
-    else {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Firing event " + event + " on handle " + handle);
-      }
-      try {
-        Object o = getActivity(handle);
-        if(o == null) {
-          throw new IllegalStateException("No activity for handle: "+handle);
-        }
-
-        if(o instanceof RoServerSessionActivityImpl && event instanceof RoCreditControlRequest) {
-          ((RoServerSessionActivityImpl)o).fetchCurrentState((RoCreditControlRequest)event);
-        }
-        this.raContext.getSleeEndpoint().fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
-
-        return true;
-      }
-      catch (Exception e) {
-        tracer.severe("Error firing event.", e);
-      }
-    }
-
-    return false;
-  }
-
   /*
    * (non-Javadoc)
-   * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#fireEvent(java.lang.String, org.jdiameter.api.Request, org.jdiameter.api.Answer)
-   */
-  public void fireEvent(String sessionId, Message message) {
-    DiameterMessage event = (DiameterMessage) createEvent(message);
-
-    FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
-
-    this.fireEvent(event, getActivityHandle(sessionId), eventId, null, true, message.isRequest());
-  }
-
-  /**
-   * {@inheritDoc}
+   * @see org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor#beforeFireEvent(javax.slee.resource.ActivityHandle, java.lang.Object)
    */
   @Override
-  public void endActivity(DiameterActivityHandle arg0) {
-    this.sleeEndpoint.endActivity(arg0);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.startActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to start activity remove timer.", e);
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.stopActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to stop activity remove timer.", e);
+  protected void beforeFireEvent(ActivityHandle handle, Object event) {
+    // fetch state for server activities
+    if (event instanceof RoCreditControlRequest) {
+      Object activity = getActivity(handle);
+      if (activity instanceof RoServerSessionActivityImpl) {
+        ((RoServerSessionActivityImpl) activity).fetchCurrentState((RoCreditControlRequest) event);
+      }
     }
   }
 
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void update(DiameterActivityHandle arg0, DiameterActivity arg1) {
-    this.activities.update(arg0, arg1);
-  }
-
   /**
    * Create Event object from a JDiameter message (request or answer)
    * 
    * @return a DiameterMessage object wrapping the request/answer
    * @throws OperationNotSupportedException
    */
-  private DiameterMessage createEvent(Message message) {
+  protected DiameterMessage createEvent(Message message) {
     if (message == null) {
       throw new NullPointerException("Message argument cannot be null while creating event.");
     }
@@ -682,42 +301,6 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  // Session Management --------------------------------------------------
-
-  /**
-   * Method for performing tasks when activity is created, such as informing SLEE about it and storing into internal map.
-   * 
-   * @param ac the activity that has been created
-   */
-  private void addActivity(DiameterActivity ac, boolean suspended) {
-    try {
-      // Inform SLEE that Activity Started
-      DiameterActivityImpl activity = (DiameterActivityImpl) ac;
-
-      if (suspended) {
-        sleeEndpoint.startActivitySuspended(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-      else {
-        sleeEndpoint.startActivity(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-
-      // Set the listener
-      activity.setSessionListener(this);
-
-      // Put it into our activities map
-      activities.put(activity.getActivityHandle(), activity);
-
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Activity started [" + activity.getActivityHandle() + "]");
-      }
-    }
-    catch (Exception e) {
-      tracer.severe("Error creating activity", e);
-
-      throw new RuntimeException("Error creating activity", e);
-    }
-  }
-
   // Private Methods -----------------------------------------------------
 
   /**
@@ -737,26 +320,10 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  private void initActivitiesMgmt() {
-	  this.activities = new LocalDiameterActivityManagement(this.raContext, activityRemoveDelay);
-  }
-
-  /**
-   * Create the Diameter Activity Handle for an given session id
-   * 
-   * @param sessionId the session identifier to create the activity handle from
-   * @return a DiameterActivityHandle for the provided sessionId
-   */
-  protected DiameterActivityHandle getActivityHandle(String sessionId) {
-    return new DiameterActivityHandle(sessionId);
-  }
-
   // NetworkReqListener Implementation -----------------------------------
 
-  public Answer processRequest(Request request) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Ro RA :: Got Request. Command-Code[" + request.getCommandCode() + "]");
-    }
+  protected Answer doProcessRequest(Request request) {
+    messageTracer.requestReceived(request);
 
     // Here we receive initial request for which session does not exist!
     // Valid messages are:
@@ -801,20 +368,9 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
    * @see org.jdiameter.api.EventListener#receivedSuccessMessage(org.jdiameter.api.Message, org.jdiameter.api.Message)
    */
   public void receivedSuccessMessage(Request request, Answer answer) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter Ro RA :: receivedSuccessMessage :: " + "Request[" + request + "], Answer[" + answer + "].");
-    }
+    messageTracer.answerReceived(request, answer);
 
     tracer.warning("Resource Adaptor should not receive this (receivedSuccessMessage), a session should exist to handle it.");
-
-    try {
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Received Message Result-Code: " + answer.getResultCode().getUnsigned32());
-      }
-    }
-    catch (AvpDataException ignore) {
-      // ignore, this was just for informational purposes...
-    }
   }
 
   /*
@@ -822,19 +378,9 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
    * @see org.jdiameter.api.EventListener#timeoutExpired(org.jdiameter.api.Message)
    */
   public void timeoutExpired(Request request) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter Ro RA :: timeoutExpired :: " + "Request[" + request + "].");
-    }
-
     tracer.warning("Resource Adaptor should not receive this (timeoutExpired), a session should exist to handle it.");
 
-    try {
-      // Message delivery timed out - we have to remove activity
-      ((DiameterActivity) getActivity(getActivityHandle(request.getSessionId()))).endActivity();
-    }
-    catch (Exception e) {
-      tracer.severe("Failure processing timeout message.", e);
-    }
+    super.timeoutExpired(request);
   }
 
   // Ro/CCA Session Creation Listener --------------------------------------
@@ -852,7 +398,7 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
     //FIXME: baranowb: add basic session mgmt for base? or do we rely on responses?
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false /*true*/);
+    addActivity(activity, false /*true*/, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   public void sessionCreated(ServerRoSession ccServerSession)
@@ -869,7 +415,7 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
     //FIXME: baranowb: add basic session mgmt for base? or do we rely on responses?
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false);
+    addActivity(activity, false, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   public boolean sessionExists(String sessionId) {
@@ -909,7 +455,6 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
   private class RoProviderImpl implements RoProvider {
 
     private DiameterRoResourceAdaptor ra;
-    private Validator validator = new ValidatorImpl();
 
     public RoProviderImpl(DiameterRoResourceAdaptor ra) {
       this.ra = ra;
@@ -1027,7 +572,7 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
 
     public int getPeerCount() {
-      return ra.getConnectedPeers().length;
+      return ra.getPeerCount();
     }
 
     /* (non-Javadoc)
@@ -1035,35 +580,8 @@ public class DiameterRoResourceAdaptor implements ResourceAdaptor, DiameterListe
      */
     @Override
     public Validator getValidator() {
-      return this.validator;
+      return validator;
     }
   }
 
-  public DiameterIdentity[] getConnectedPeers() {
-    if (this.stack != null) {
-      try {
-        // Get the list of peers from the stack
-        List<Peer> peers = stack.unwrap(PeerTable.class).getPeerTable();
-
-        DiameterIdentity[] result = new DiameterIdentity[peers.size()];
-
-        int i = 0;
-
-        // Get each peer from the list and make a DiameterIdentity
-        for (Peer peer : peers) {
-          DiameterIdentity identity = new DiameterIdentity(peer.getUri().toString());
-
-          result[i++] = identity;
-        }
-
-        return result;
-      }
-      catch (Exception e) {
-        tracer.severe("Failure getting peer list.", e);
-      }
-    }
-
-    return new DiameterIdentity[0];
-  }
-
 }
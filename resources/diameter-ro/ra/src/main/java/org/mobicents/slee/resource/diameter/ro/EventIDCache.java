@@ -25,12 +25,9 @@ package org.mobicents.slee.resource.diameter.ro;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.slee.EventTypeID;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.resource.FireableEventType;
-
 import net.java.slee.resource.diameter.base.events.AbortSessionRequest;
 import net.java.slee.resource.diameter.base.events.AccountingRequest;
 import net.java.slee.resource.diameter.base.events.CapabilitiesExchangeRequest;
@@ -40,7 +37,7 @@ import net.java.slee.resource.diameter.base.events.ReAuthRequest;
 import net.java.slee.resource.diameter.base.events.SessionTerminationRequest;
 import net.java.slee.resource.diameter.cca.events.CreditControlMessage;
 
-import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.FireableEventTypeResolver;
 
 /**
  * 
@@ -49,7 +46,7 @@ import org.jdiameter.api.Message;
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a>
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  */
-public class EventIDCache {
+public class EventIDCache extends FireableEventTypeResolver {
 
   private static final String BASE_PACKAGE_PREFIX = "net.java.slee.resource.diameter.base.events.";
 
@@ -77,66 +74,15 @@ public class EventIDCache {
   public static final String ERROR_ANSWER                = BASE_PACKAGE_PREFIX + "ErrorAnswer";
   public static final String EXTENSION_DIAMETER_MESSAGE  = BASE_PACKAGE_PREFIX + "ExtensionDiameterMessage";
 
-  private static final String VENDOR  = "java.net";
-  private static final String VERSION = "0.8";
-
-  private ConcurrentHashMap<String, FireableEventType> eventIds = new ConcurrentHashMap<String, FireableEventType>();
+  // event types declared by the Ro RA type, others are not fired
+  private static final Set<String> DECLARED_EVENT_NAMES = declaredEventNames(
+      RO_PACKAGE_PREFIX + "RoCreditControlRequest", RO_PACKAGE_PREFIX + "RoCreditControlAnswer",
+      BASE_PACKAGE_PREFIX + "AbortSessionRequest", BASE_PACKAGE_PREFIX + "AbortSessionAnswer",
+      BASE_PACKAGE_PREFIX + "ReAuthRequest", BASE_PACKAGE_PREFIX + "ReAuthAnswer",
+      ERROR_ANSWER, EXTENSION_DIAMETER_MESSAGE);
 
   public EventIDCache() {
-  }
-
-  /**
-   * 
-   * @param eventLookupFacility
-   * @param message
-   * @return
-   */
-  public FireableEventType getEventId(EventLookupFacility eventLookupFacility, Message message) {
-
-    FireableEventType eventID = null;
-
-    // Error is always the same.
-    if (message.isError()) {
-      eventID = getEventId(eventLookupFacility, ERROR_ANSWER);
-    }
-    else {
-      final int commandCode = message.getCommandCode();
-      final boolean isRequest = message.isRequest();
-
-      String eventName = eventNames.get(commandCode);
-
-      if(eventName != null) {
-        eventID = getEventId(eventLookupFacility, eventName + (isRequest ? "Request" : "Answer"));
-      }
-      else {
-        eventID = getEventId(eventLookupFacility, EXTENSION_DIAMETER_MESSAGE);
-      }
-    }
-
-    return eventID;
-  }
-
-  /**
-   * 
-   * @param eventLookupFacility
-   * @param eventName
-   * @return
-   */
-  private FireableEventType getEventId(EventLookupFacility eventLookupFacility, String eventName) {
-
-    FireableEventType eventType = eventIds.get(eventName);
-    if (eventType == null) {
-      try {
-        eventType = eventLookupFacility.getFireableEventType(new EventTypeID(eventName,VENDOR,VERSION));
-      }
-      catch (Throwable e) {
-        e.printStackTrace();
-      }
-      if (eventType != null) {
-        eventIds.put(eventName, eventType);
-      }
-    }
-    return eventType;
+    super(eventNames, ERROR_ANSWER, EXTENSION_DIAMETER_MESSAGE, DECLARED_EVENT_NAMES);
   }
 
 }
@@ -81,6 +81,7 @@ import org.mobicents.slee.resource.diameter.ro.events.avp.PocInformationImpl;
 import org.mobicents.slee.resource.diameter.ro.events.avp.PsFurnishChargingInformationImpl;
 import org.mobicents.slee.resource.diameter.ro.events.avp.PsInformationImpl;
 import org.mobicents.slee.resource.diameter.ro.events.avp.RecipientAddressImpl;
+import org.mobicents.slee.resource.diameter.ro.events.avp.RoAvpCodecs;
 import org.mobicents.slee.resource.diameter.ro.events.avp.SdpMediaComponentImpl;
 import org.mobicents.slee.resource.diameter.ro.events.avp.ServiceInformationImpl;
 import org.mobicents.slee.resource.diameter.ro.events.avp.TalkBurstExchangeImpl;
@@ -96,6 +97,10 @@ import org.mobicents.slee.resource.diameter.ro.events.avp.WlanRadioContainerImpl
  */
 public class RoAvpFactoryImpl extends CreditControlAVPFactoryImpl implements RoAvpFactory {
 
+  static {
+    RoAvpCodecs.register();
+  }
+
   public RoAvpFactoryImpl(DiameterAvpFactory baseAvpFactory) {
     super(baseAvpFactory);
 
@@ -335,7 +335,7 @@ public class RoClientSessionActivityImpl extends RoSessionActivityImpl implement
       return false;
     }
     RoClientSessionActivityImpl other = (RoClientSessionActivityImpl) obj;
-    if (terminateAfterProcessing != other.isTerminateAfterProcessing()) {
+    if (isTerminateAfterProcessing() != other.isTerminateAfterProcessing()) {
       return false;
     }
 
@@ -22,17 +22,13 @@
 
 package org.mobicents.slee.resource.diameter.ro;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
-import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.base.events.avp.GroupedAvp;
 import net.java.slee.resource.diameter.cca.events.avp.CreditControlAVPCodes;
 import net.java.slee.resource.diameter.ro.RoMessageFactory;
@@ -47,6 +43,8 @@ import org.jdiameter.api.IllegalDiameterStateException;
 import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.ro.events.RoCreditControlAnswerImpl;
 import org.mobicents.slee.resource.diameter.ro.events.RoCreditControlRequestImpl;
 
@@ -59,45 +57,20 @@ public class RoMessageFactoryImpl implements RoMessageFactory {
 
   protected Logger logger = Logger.getLogger(RoMessageFactoryImpl.class);
 
-  protected final static Set<Integer> ids;
-
-  static {
-    Set<Integer> _ids = new HashSet<Integer>();
-
-    // SessionId
-    // _ids.add(Avp.SESSION_ID);
-    // Sub-Session-Id
-    // _ids.add(CreditControlAVPCodes.CC_Sub_Session_Id);
-    // { Origin-Host }
-    // _ids.add(Avp.ORIGIN_HOST);
-    // { Origin-Realm }
-    // _ids.add(Avp.ORIGIN_REALM);
-    // { Destination-Realm }
-    // _ids.add(Avp.DESTINATION_REALM);
-    // _ids.add(Avp.DESTINATION_HOST);
-    // { Auth-Application-Id }
-    // _ids.add(Avp.AUTH_APPLICATION_ID);
-    // { Service-Context-Id }
-    // _ids.add(CreditControlAVPCodes.Service_Context_Id);
-    // { CC-Request-Type }
-    _ids.add(CreditControlAVPCodes.CC_Request_Type);
-    // { CC-Request-Number }
-    _ids.add(CreditControlAVPCodes.CC_Request_Number);
-    // [ Acct-Multi-Session-Id ]
-    // _ids.add(Avp.ACC_MULTI_SESSION_ID);
-    // [ Origin-State-Id ]
-    // _ids.add(Avp.ORIGIN_STATE_ID);
-    // [ Event-Timestamp ]
-    // _ids.add(Avp.EVENT_TIMESTAMP);
-    // xx*[ Proxy-Info ]
-    // xx*[ Route-Record ]
-
-    ids = Collections.unmodifiableSet(_ids);
-  }
+  // AVPs copied from the request into the answer
+  protected final static AnswerTemplate answerTemplate = new AnswerTemplate(
+      // Session-Id
+      DiameterAvpCodes.SESSION_ID,
+      // { CC-Request-Type }
+      CreditControlAVPCodes.CC_Request_Type,
+      // { CC-Request-Number }
+      CreditControlAVPCodes.CC_Request_Number);
+
   protected DiameterMessageFactory baseFactory = null;
 
   protected String sessionId;
   protected Stack stack;
+  protected final RawMessageCreator rawMessageCreator;
 
   private ApplicationId roAppId = ApplicationId.createByAuthAppId(0, _RO_AUTH_APP_ID);
 
@@ -107,11 +80,16 @@ public class RoMessageFactoryImpl implements RoMessageFactory {
    * RfAVPFactory
    * creditControlAvpFactory
    */) {
+    this(baseFactory, sessionId, new RawMessageCreator(stack));
+  }
+
+  public RoMessageFactoryImpl(DiameterMessageFactory baseFactory, String sessionId, RawMessageCreator rawMessageCreator) {
     super();
 
     this.baseFactory = baseFactory;
     this.sessionId = sessionId;
-    this.stack = stack;
+    this.stack = rawMessageCreator.getStack();
+    this.rawMessageCreator = rawMessageCreator;
   }
 
   public void setApplicationId(long vendorId, long applicationId) {
@@ -139,6 +117,16 @@ public class RoMessageFactoryImpl implements RoMessageFactory {
     return ro;
   }
 
+  /**
+   * Creates a {@link RoCreditControlRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public RoCreditControlRequest createRoCreditControlRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    RoCreditControlRequest msg = createRoCreditControlRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public RoCreditControlRequest createRoCreditControlRequest(String sessionId/*, CcRequestType type*/) {
     RoCreditControlRequest ro = this.createRoCreditControlRequest(/*type*/);
     ro.setSessionId(sessionId);
@@ -170,21 +158,8 @@ public class RoMessageFactoryImpl implements RoMessageFactory {
     raw.getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
     raw.getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
     raw.getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-    msg.setSessionId(request.getSessionId());
     // Now copy the needed AVPs
-
-    DiameterAvp[] messageAvps = request.getAvps();
-    if (messageAvps != null) {
-      for (DiameterAvp a : messageAvps) {
-        try {
-          if (ids.contains(a.getCode())) {
-            msg.addAvp(a);
-          }
-        } catch (Exception e) {
-          logger.error("Failed to add AVP to answer. Code[" + a.getCode() + "]", e);
-        }
-      }
-    }
+    answerTemplate.copy(request, msg);
     addOrigin(msg);
     return msg;
   }
@@ -261,9 +236,9 @@ public class RoMessageFactoryImpl implements RoMessageFactory {
     Message msg = null;
     try {
       if (header != null) {
-        msg = stack.getSessionFactory().getNewRawSession().createMessage(commandCode, roAppId, hopByHopId, endToEndId);
+        msg = rawMessageCreator.createMessage(commandCode, roAppId, hopByHopId, endToEndId);
       } else {
-        msg = stack.getSessionFactory().getNewRawSession().createMessage(commandCode, roAppId);
+        msg = rawMessageCreator.createMessage(commandCode, roAppId);
       }
     } catch (IllegalDiameterStateException e) {
       logger.error("Failed to get session factory for message creation.", e);
@@ -296,12 +271,7 @@ public class RoMessageFactoryImpl implements RoMessageFactory {
   }
 
   private void addOrigin(DiameterMessage msg) {
-    if (!msg.hasOriginHost()) {
-      msg.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
-    }
-    if (!msg.hasOriginRealm()) {
-      msg.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-    }
+    rawMessageCreator.addOriginHostAndRealm(msg);
   }
 
 }
@@ -81,10 +81,9 @@ public abstract class RoSessionActivityImpl extends DiameterActivityImpl impleme
   }
 
   @Override
-  public DiameterMessage sendSyncMessage(DiameterMessage message) {
+  protected DiameterMessage createAnswer(Message receivedMessage) {
     DiameterMessage answer = null;
 
-    Message receivedMessage = doSendMessage(message);
 
     if(receivedMessage != null) {
       if (!receivedMessage.isRequest()) {
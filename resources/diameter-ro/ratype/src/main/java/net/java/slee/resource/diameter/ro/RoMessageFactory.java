@@ -23,6 +23,8 @@
 package net.java.slee.resource.diameter.ro;
 
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.cca.events.avp.CcRequestType;
 import net.java.slee.resource.diameter.ro.events.RoCreditControlRequest;
 
@@ -53,6 +55,16 @@ public interface RoMessageFactory {
    */
   public RoCreditControlRequest createRoCreditControlRequest(String sessionId/*, CcRequestType type*/);
 
+  /**
+   * Creates a {@link RoCreditControlRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new RoCreditControlRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public RoCreditControlRequest createRoCreditControlRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * 
    * @return Base Diameter message factory
@@ -0,0 +1,238 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.rx.events.avp;
+
+import net.java.slee.resource.diameter.rx.events.avp.AFSignalingProtocol;
+import net.java.slee.resource.diameter.rx.events.avp.AbortCause;
+import net.java.slee.resource.diameter.rx.events.avp.FlowStatus;
+import net.java.slee.resource.diameter.rx.events.avp.FlowUsage;
+import net.java.slee.resource.diameter.rx.events.avp.IPCANType;
+import net.java.slee.resource.diameter.rx.events.avp.MediaType;
+import net.java.slee.resource.diameter.rx.events.avp.RATType;
+import net.java.slee.resource.diameter.rx.events.avp.ReservationPriority;
+import net.java.slee.resource.diameter.rx.events.avp.RxRequestType;
+import net.java.slee.resource.diameter.rx.events.avp.SIPForkingIndication;
+import net.java.slee.resource.diameter.rx.events.avp.ServiceInfoStatus;
+import net.java.slee.resource.diameter.rx.events.avp.SpecificAction;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+import org.mobicents.slee.resource.diameter.cca.events.avp.CreditControlAvpCodecs;
+
+/**
+ * Codec table for the Diameter Rx AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class RxAvpCodecs {
+
+  static {
+    // Diameter Credit-Control AVP types are also used by this application
+    CreditControlAvpCodecs.register();
+
+    AvpCodecRegistry.registerEnumerated(AFSignalingProtocol.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AFSignalingProtocol.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AFSignalingProtocol[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(AbortCause.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AbortCause.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AbortCause[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(FlowStatus.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return FlowStatus.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FlowStatus[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(FlowUsage.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return FlowUsage.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FlowUsage[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(IPCANType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return IPCANType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new IPCANType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MediaType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MediaType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MediaType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RATType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RATType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RATType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReservationPriority.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReservationPriority.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReservationPriority[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RxRequestType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RxRequestType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RxRequestType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SIPForkingIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SIPForkingIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SIPForkingIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ServiceInfoStatus.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ServiceInfoStatus.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ServiceInfoStatus[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SpecificAction.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SpecificAction.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SpecificAction[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AcceptableServiceInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AcceptableServiceInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AcceptableServiceInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AccessNetworkChargingIdentifierAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AccessNetworkChargingIdentifierAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AccessNetworkChargingIdentifierAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(FlowsAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new FlowsAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new FlowsAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MediaComponentDescriptionAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MediaComponentDescriptionAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MediaComponentDescriptionAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MediaSubComponentAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MediaSubComponentAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MediaSubComponentAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SponsoredConnectivityDataAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SponsoredConnectivityDataAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SponsoredConnectivityDataAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SupportedFeaturesAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SupportedFeaturesAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SupportedFeaturesAvpImpl[size];
+      }
+    });
+  }
+
+  private RxAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
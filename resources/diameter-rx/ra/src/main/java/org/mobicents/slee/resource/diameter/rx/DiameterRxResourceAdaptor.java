@@ -23,27 +23,14 @@
 package org.mobicents.slee.resource.diameter.rx;
 
 import java.io.IOException;
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.management.ObjectName;
 import javax.naming.OperationNotSupportedException;
-import javax.slee.Address;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.facilities.Tracer;
-import javax.slee.resource.ActivityFlags;
 import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.ConfigProperties;
-import javax.slee.resource.EventFlags;
-import javax.slee.resource.FailureReason;
-import javax.slee.resource.FireableEventType;
-import javax.slee.resource.InvalidConfigurationException;
 import javax.slee.resource.Marshaler;
-import javax.slee.resource.ReceivableService;
-import javax.slee.resource.ResourceAdaptor;
 import javax.slee.resource.ResourceAdaptorContext;
-import javax.slee.resource.SleeEndpoint;
 
 import net.java.slee.resource.diameter.Validator;
 import net.java.slee.resource.diameter.base.CreateActivityException;
@@ -65,37 +52,26 @@ import net.java.slee.resource.diameter.rx.events.ReAuthRequest;
 import net.java.slee.resource.diameter.rx.events.SessionTerminationAnswer;
 import net.java.slee.resource.diameter.rx.events.SessionTerminationRequest;
 
-import org.jboss.mx.util.MBeanServerLocator;
 import org.jdiameter.api.Answer;
 import org.jdiameter.api.ApplicationId;
 import org.jdiameter.api.Avp;
 import org.jdiameter.api.AvpDataException;
 import org.jdiameter.api.AvpSet;
 import org.jdiameter.api.Message;
-import org.jdiameter.api.Peer;
-import org.jdiameter.api.PeerTable;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.SessionFactory;
-import org.jdiameter.api.Stack;
 import org.jdiameter.api.rx.ClientRxSession;
 import org.jdiameter.api.rx.ServerRxSession;
 import org.jdiameter.client.api.ISessionFactory;
 import org.jdiameter.server.impl.app.rx.ServerRxSessionImpl;
-import org.mobicents.diameter.stack.DiameterListener;
-import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
-import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.LocalDiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.ValidatorImpl;
-import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
+import org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
-import org.mobicents.slee.resource.diameter.base.EventIDFilter;
 import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.base.events.ErrorAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
-import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
 import org.mobicents.slee.resource.diameter.rx.events.AAAnswerImpl;
 import org.mobicents.slee.resource.diameter.rx.events.AARequestImpl;
 import org.mobicents.slee.resource.diameter.rx.events.AbortSessionAnswerImpl;
@@ -113,20 +89,18 @@ import org.mobicents.slee.resource.diameter.rx.handlers.RxSessionFactory;
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  * @author <a href="mailto:richard.good@smilecoms.com"> Richard Good </a>
  */
-public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListener, DiameterRAInterface {
+public class DiameterRxResourceAdaptor extends AbstractDiameterResourceAdaptor {
 
   private static final long serialVersionUID = 1L;
 
   // Config Properties Names ---------------------------------------------
   private static final String AUTH_APPLICATION_IDS = "authApplicationIds";
-  private static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.REQUEST_ENDED_CALLBACK;
-  private static final int MARSHALABLE_ACTIVITY_FLAGS = ActivityFlags.setSleeMayMarshal(DEFAULT_ACTIVITY_FLAGS);
-  // for all events we are interested in knowing when the event failed to be processed
-  private static final int EVENT_FLAGS = getEventFlags();
-
-  // caches the eventIDs, avoiding lookup in container.
-  public final EventIDCache eventIdCache = new EventIDCache();
-  protected DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
+
+  protected DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler(new DiameterBaseMarshaler.EventFactory() {
+    public DiameterMessage createEvent(Message message) {
+      return DiameterRxResourceAdaptor.this.createEvent(message);
+    }
+  });
   protected int defaultDirectDebitingFailureHandling;
   protected int defaultCreditControlFailureHandling;
 
@@ -134,98 +108,30 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
   protected long defaultValidityTime = 30;
   protected long defaultTxTimerValue = 10;
 
-  // activity stuff
-  protected long activityRemoveDelay = 30000;
-
   // Rx RA Factories
   protected RxSessionFactory rxSessionFactory;
   protected RxAvpFactory rxAvpFactory;
   protected RxMessageFactory rxMessageFactory;
   protected transient RxProviderImpl raProvider;
 
-  // tells the RA if an event with a specified ID should be filtered or not.
-  private final EventIDFilter eventIDFilter = new EventIDFilter();
   private List<ApplicationId> authApplicationIds;
 
-  /**
-   * The ResourceAdaptorContext interface is implemented by the SLEE. It provides the Resource
-   * Adaptor with the required capabilities in the SLEE to execute its work. The ResourceAdaptorCon-
-   * text object holds references to a number of objects that are of interest to many Resource Adaptors. A
-   * resource adaptor object is provided with a ResourceAdaptorContext object when the setResour-
-   * ceAdaptorContext method of the ResourceAdaptor interface is invoked on the resource adaptor
-   * object.
-   */
-  private ResourceAdaptorContext raContext;
-
-  /**
-   * The SLEE endpoint defines the contract between the SLEE and the resource
-   * adaptor that enables the resource adaptor to deliver events
-   * asynchronously to SLEE endpoints residing in the SLEE. This contract
-   * serves as a generic contract that allows a wide range of resources to be
-   * plugged into a SLEE environment via the resource adaptor architecture.
-   * For further information see JSLEE v1.1 Specification Page 307 The
-   * sleeEndpoint will be initialized in entityCreated() method.
-   */
-  private transient SleeEndpoint sleeEndpoint;
-  private Tracer tracer;
-
-  // Diameter Specific Properties ----------------------------------------
-  private Stack stack;
-  private ObjectName diameterMultiplexerObjectName;
-  private DiameterStackMultiplexerMBean diameterMux;
-
   // Base Factories
   private DiameterAvpFactory baseAvpFactory;
   private DiameterMessageFactoryImpl baseMessageFactory;
   private SessionFactory sessionFactory;
-  // the EventLookupFacility is used to look up the event id of incoming events.
-  private transient EventLookupFacility eventLookup;
-
-  /**
-   * The list of activities stored in this resource adaptor. If this resource
-   * adaptor were a distributed and highly available solution, this storage
-   * were one of the candidates for distribution.
-   */
-  private transient DiameterActivityManagement activities;
-
-  /**
-   * Static method for constructing an event flags object for this RA.
-   * @return the generated event flags.
-   */
-  private static int getEventFlags() {
-    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
-    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
-    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
-    return eventFlags;
-  }
 
   public DiameterRxResourceAdaptor() {
-    // TODO: Initialize any default values.
+    super("DiameterRxResourceAdaptor", "Diameter Rx RA", new EventIDCache());
   }
 
   // Lifecycle methods ---------------------------------------------------
   public void setResourceAdaptorContext(final ResourceAdaptorContext context) {
-    this.raContext = context;
+    super.setResourceAdaptorContext(context);
 
-    this.tracer = context.getTracer("DiameterRxResourceAdaptor");
-
-    this.sleeEndpoint = context.getSleeEndpoint();
-    this.eventLookup = context.getEventLookupFacility();
     this.raProvider = new RxProviderImpl(this);
   }
 
-  /**
-   * Reset all context references.
-   */
-  public void unsetResourceAdaptorContext() {
-    this.raContext = null;
-
-    this.tracer = null;
-
-    this.sleeEndpoint = null;
-    this.eventLookup = null;
-  }
-
   /**
    * {@inheritDoc}
    */
@@ -249,40 +155,29 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
         tracer.info("Activating Diameter Rx RA Entity");
       }
 
-      this.diameterMultiplexerObjectName = new ObjectName("diameter.mobicents:service=DiameterStackMultiplexer");
-
-      Object object = null;
-
-      if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
-        // trying to get via MBeanServer
-        object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      } else {
-        // trying to get via locateJBoss
-        object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      }
-
-      if (object != null && object instanceof DiameterStackMultiplexerMBean) {
-        this.diameterMux = (DiameterStackMultiplexerMBean) object;
-      }
+      activateCore();
 
       // Initialize the protocol stack
       initStack();
 
+      // Track the configured peers
+      initPeers();
+
+      // Share one raw message creator among all message factories
+      initMessageCreator();
+
       //Initialize activities mgmt
       initActivitiesMgmt();
 
+      // Resolve event types to fire
+      eventIdCache.init(eventLookup, tracer);
+
       // Initialize factories
       this.baseAvpFactory = new DiameterAvpFactoryImpl();
-      this.baseMessageFactory = new DiameterMessageFactoryImpl(stack);
+      this.baseMessageFactory = new DiameterMessageFactoryImpl(rawMessageCreator);
 
       this.rxAvpFactory = new RxAvpFactoryImpl(baseAvpFactory);
-      this.rxMessageFactory = new RxMessageFactoryImpl(baseMessageFactory, null, stack);
+      this.rxMessageFactory = new RxMessageFactoryImpl(baseMessageFactory, null, rawMessageCreator);
 
       // Set the first configured Application-Id as default for message factory
       ApplicationId firstAppId = authApplicationIds.get(0);
@@ -300,49 +195,14 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void raStopping() {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Rx RA :: raStopping.");
-    }
-
-    try {
-      diameterMux.unregisterListener(this);
-    }
-    catch (Exception e) {
-      tracer.severe("Failed to unregister Rx RA from Diameter Mux.", e);
-    }
-
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Rx RA :: raStopping completed.");
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void raInactive() {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Rx RA :: raInactive.");
-    }
-
-    activities = null;
-
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Rx RA :: raInactive completed.");
-    }
-  }
-
   /**
    * {@inheritDoc}
    */
   @Override
   public void raConfigure(ConfigProperties properties) {
     parseApplicationIds((String) properties.getProperty(AUTH_APPLICATION_IDS).getValue());
+
+    super.raConfigure(properties);
   }
 
   private void parseApplicationIds(final String appIdsStr) {
@@ -365,27 +225,9 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
    */
   @Override
   public void raUnconfigure() {
-    // Clean up!
-    this.activities = null;
-    this.raContext = null;
-    this.eventLookup = null;
-    this.raProvider = null;
-    this.sleeEndpoint = null;
-    this.stack = null;
-  }
+    super.raUnconfigure();
 
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void raVerifyConfiguration(final ConfigProperties properties) throws InvalidConfigurationException {
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void raConfigurationUpdate(final ConfigProperties properties) {
+    this.raProvider = null;
   }
 
   // Interface access methods --------------------------------------------
@@ -401,281 +243,34 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
     return marshaler;
   }
 
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void serviceActive(final ReceivableService serviceInfo) {
-    eventIDFilter.serviceActive(serviceInfo);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void serviceStopping(final ReceivableService serviceInfo) {
-    eventIDFilter.serviceStopping(serviceInfo);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void serviceInactive(final ReceivableService serviceInfo) {
-    eventIDFilter.serviceInactive(serviceInfo);
-  }
-
-  /**
-   * {@inheritDoc}
+  /*
+   * (non-Javadoc)
+   * @see org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor#beforeFireEvent(javax.slee.resource.ActivityHandle, java.lang.Object)
    */
   @Override
-  public void queryLiveness(final ActivityHandle handle) {
-    tracer.info("Diameter Rx RA :: queryLiveness :: handle[" + handle + "].");
-
-    final DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle) handle);
-
-    if (activity != null && !activity.isValid()) {
-      try {
-        sleeEndpoint.endActivity(handle);
-      }
-      catch (Exception e) {
-        tracer.severe("Failure ending non-live activity.", e);
+  protected void beforeFireEvent(ActivityHandle handle, Object event) {
+    // fetch state for server activities
+    if (event instanceof AARequest) {
+      Object activity = getActivity(handle);
+      if (activity instanceof RxServerSessionActivityImpl) {
+        ((RxServerSessionActivityImpl) activity).fetchCurrentState((AARequest) event);
       }
     }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public Object getActivity(ActivityHandle handle) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Rx RA :: getActivity :: handle[" + handle + "].");
-    }
-
-    return this.activities.get((DiameterActivityHandle) handle);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public ActivityHandle getActivityHandle(final Object activity) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Rx RA :: getActivityHandle :: activity[" + activity + "].");
-    }
-
-    if (!(activity instanceof DiameterActivity)) {
-      return null;
-    }
-
-    final DiameterActivityImpl inActivity = (DiameterActivityImpl) activity;
-
-    return inActivity.getActivityHandle();
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void administrativeRemove(final ActivityHandle handle) {
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void eventProcessingFailed(final ActivityHandle handle, final FireableEventType eventType, final Object event, final Address address,
-      final ReceivableService service, final int flags, final FailureReason reason) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Rx RA :: eventProcessingFailed :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address["
-          + address + "], flags[" + flags + "], reason[" + reason + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void eventProcessingSuccessful(final ActivityHandle handle, final FireableEventType eventType, final Object event, final Address address,
-      final ReceivableService service, final int flags) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Rx RA :: eventProcessingSuccessful :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address["
-          + address + "], flags[" + flags + "].");
-    }
-
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void eventUnreferenced(final ActivityHandle handle, final FireableEventType eventType, final Object event, final Address address,
-      final ReceivableService service, final int flags) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Rx RA :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address["
-          + address + "], service[" + service + "], flags[" + flags + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  private void processAfterEventDelivery(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service,
-      int flags) {
-    DiameterActivityImpl activity = (DiameterActivityImpl) getActivity(handle);
-    if (activity != null) {
-      synchronized (activity) {
-        if (activity.isTerminateAfterProcessing()) {
-          activity.endActivity();
-        }
-      }
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void activityEnded(ActivityHandle handle) {
-    tracer.info("Diameter Rx RA :: activityEnded :: handle[" + handle + ".");
-
-    if (this.activities != null) {
-      synchronized (this.activities) {
-        this.activities.remove((DiameterActivityHandle) handle);
+    else if (event instanceof SessionTerminationRequest) {
+      Object activity = getActivity(handle);
+      if (activity instanceof RxServerSessionActivityImpl) {
+        ((RxServerSessionActivityImpl) activity).fetchCurrentState((SessionTerminationRequest) event);
       }
     }
   }
 
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void activityUnreferenced(final ActivityHandle handle) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Rx RA :: activityUnreferenced :: handle[" + handle + "].");
-    }
-
-    //this.activityEnded(handle);
-    if (handle instanceof DiameterActivityHandle) {
-      this.endActivity((DiameterActivityHandle) handle);
-    }
-  }
-
-  public boolean fireEvent(final Object event, final ActivityHandle handle, final FireableEventType eventID, final Address address,
-      final boolean useFiltering, final boolean transacted) {
-
-    if (useFiltering && eventIDFilter.filterEvent(eventID)) {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Event " + eventID + " filtered");
-      }
-    }
-    else if (eventID == null) {
-      tracer.severe("Event ID for " + eventID + " is unknown, unable to fire.");
-    }
-    else {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Firing event " + event + " on handle " + handle);
-      }
-      try {
-        final Object o = getActivity(handle);
-        if (o == null) {
-          throw new IllegalStateException("No activity for handle: " + handle);
-        }
-
-        if (o instanceof RxServerSessionActivityImpl && event instanceof AARequest) {
-          ((RxServerSessionActivityImpl) o).fetchCurrentState((AARequest) event);
-        }
-
-        if (o instanceof RxServerSessionActivityImpl && event instanceof SessionTerminationRequest) {
-          ((RxServerSessionActivityImpl) o).fetchCurrentState((SessionTerminationRequest) event);
-        }
-
-        this.raContext.getSleeEndpoint().fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
-
-        return true;
-      }
-      catch (Exception e) {
-        tracer.severe("Error firing event.", e);
-      }
-    }
-
-    return false;
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void fireEvent(final String sessionId, final Message message) {
-    final DiameterMessage event = (DiameterMessage) createEvent(message);
-
-    final FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
-
-    this.fireEvent(event, getActivityHandle(sessionId), eventId, null, true, message.isRequest());
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void endActivity(DiameterActivityHandle arg0) {
-    sleeEndpoint.endActivity(arg0);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.startActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to start activity remove timer.", e);
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.stopActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to stop activity remove timer.", e);
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void update(DiameterActivityHandle arg0, DiameterActivity arg1) {
-    activities.update(arg0, arg1);
-  }
-
   /**
    * Create Event object from a JDiameter message (request or answer).
    *
    * @return a DiameterMessage object wrapping the request/answer
    * @throws OperationNotSupportedException
    */
-  private DiameterMessage createEvent(final Message message) {
+  protected DiameterMessage createEvent(final Message message) {
     if (message == null) {
       throw new NullPointerException("Message argument cannot be null while creating event.");
     }
@@ -702,41 +297,6 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  // Session Management --------------------------------------------------
-  /**
-   * Method for performing tasks when activity is created, such as informing SLEE about it and storing into internal map.
-   *
-   * @param ac the activity that has been created
-   */
-  private void addActivity(final DiameterActivity ac, boolean suspended) {
-    try {
-      // Inform SLEE that Activity Started
-      final DiameterActivityImpl activity = (DiameterActivityImpl) ac;
-
-      if (suspended) {
-        sleeEndpoint.startActivitySuspended(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-      else {
-        sleeEndpoint.startActivity(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-
-      // Set the listener
-      activity.setSessionListener(this);
-
-      // Put it into our activities map
-      activities.put(activity.getActivityHandle(), activity);
-
-      if (tracer.isInfoEnabled()) {
-        tracer.info("Activity started [" + activity.getActivityHandle() + "]");
-      }
-    }
-    catch (Exception e) {
-      tracer.severe("Error creating activity", e);
-
-      throw new RuntimeException("Error creating activity", e);
-    }
-  }
-
   // Private Methods -----------------------------------------------------
   /**
    * Initializes the RA Diameter Stack.
@@ -755,25 +315,8 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
   }
 
-  private void initActivitiesMgmt() {
-	  this.activities = new LocalDiameterActivityManagement(this.raContext, activityRemoveDelay);
-  }
-
-  /**
-   * Create the Diameter Activity Handle for an given session id.
-   *
-   * @param sessionId the session identifier to create the activity handle from
-   * @return a DiameterActivityHandle for the provided sessionId
-   */
-  protected DiameterActivityHandle getActivityHandle(final String sessionId) {
-    return new DiameterActivityHandle(sessionId);
-  }
-
-  // NetworkReqListener Implementation -----------------------------------
-  public Answer processRequest(final Request request) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Rx RA :: Got Request. Command-Code[" + request.getCommandCode() + "]");
-    }
+  protected Answer doProcessRequest(final Request request) {
+    messageTracer.requestReceived(request);
 
     // Here we receive initial request for which session does not exist!
     // Valid messages are:
@@ -819,20 +362,9 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
    */
   @Override
   public void receivedSuccessMessage(final Request request, final Answer answer) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter Rx RA :: receivedSuccessMessage :: " + "Request[" + request + "], Answer[" + answer + "].");
-    }
+    messageTracer.answerReceived(request, answer);
 
     tracer.warning("Resource Adaptor should not receive this (receivedSuccessMessage), a session should exist to handle it.");
-
-    try {
-      if (tracer.isInfoEnabled()) {
-        tracer.info("Received Message Result-Code: " + answer.getResultCode().getUnsigned32());
-      }
-    }
-    catch (AvpDataException ignore) {
-      // ignore, this was just for informational purposes...
-    }
   }
 
   /**
@@ -840,19 +372,9 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
    */
   @Override
   public void timeoutExpired(final Request request) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter Rx RA :: timeoutExpired :: " + "Request[" + request + "].");
-    }
-
     tracer.warning("Resource Adaptor should not receive this (timeoutExpired), a session should exist to handle it.");
 
-    try {
-      // Message delivery timed out - we have to remove activity
-      ((DiameterActivity) getActivity(getActivityHandle(request.getSessionId()))).endActivity();
-    }
-    catch (Exception e) {
-      tracer.severe("Failure processing timeout message.", e);
-    }
+    super.timeoutExpired(request);
   }
 
   // Rx/CCA Session Creation Listener --------------------------------------
@@ -869,7 +391,7 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
     //FIXME: baranowb: add basic session mgmt for base? or do we relly on responses?
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false /*true*/);
+    addActivity(activity, false /*true*/, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   public void sessionCreated(final ServerRxSession rxServerSession) {
@@ -885,7 +407,7 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
     //FIXME: baranowb: add basic session mgmt for base? or do we relly on responses?
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false);
+    addActivity(activity, false, MARSHALABLE_ACTIVITY_FLAGS);
   }
 
   public boolean sessionExists(final String sessionId) {
@@ -905,7 +427,6 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
   private class RxProviderImpl implements RxProvider {
 
     private DiameterRxResourceAdaptor ra;
-    private Validator validator = new ValidatorImpl();
 
     public RxProviderImpl(final DiameterRxResourceAdaptor ra) {
       this.ra = ra;
@@ -1080,39 +601,13 @@ public class DiameterRxResourceAdaptor implements ResourceAdaptor, DiameterListe
     }
 
     public int getPeerCount() {
-      return ra.getConnectedPeers().length;
+      return ra.getPeerCount();
     }
 
     @Override
     public Validator getValidator() {
-      return this.validator;
+      return validator;
     }
   }
 
-  public DiameterIdentity[] getConnectedPeers() {
-    if (this.stack != null) {
-      try {
-        // Get the list of peers from the stack
-        final List<Peer> peers = stack.unwrap(PeerTable.class).getPeerTable();
-
-        final DiameterIdentity[] result = new DiameterIdentity[peers.size()];
-
-        int i = 0;
-
-        // Get each peer from the list and make a DiameterIdentity
-        for (Peer peer : peers) {
-          final DiameterIdentity identity = new DiameterIdentity(peer.getUri().toString());
-
-          result[i++] = identity;
-        }
-
-        return result;
-      }
-      catch (Exception e) {
-        tracer.severe("Failure getting peer list.", e);
-      }
-    }
-
-    return new DiameterIdentity[0];
-  }
 }
@@ -27,16 +27,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.slee.EventTypeID;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.resource.FireableEventType;
-
 import net.java.slee.resource.diameter.rx.events.AARequest;
 import net.java.slee.resource.diameter.rx.events.AbortSessionRequest;
 import net.java.slee.resource.diameter.rx.events.ReAuthRequest;
 import net.java.slee.resource.diameter.rx.events.SessionTerminationRequest;
 
-import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.FireableEventTypeResolver;
 
 /**
  * Caches event IDs for the Diameter Rx RA.
@@ -45,7 +41,7 @@ import org.jdiameter.api.Message;
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  * @author <a href="mailto:richard.good@smilecoms.com"> Richard Good </a>
  */
-public class EventIDCache {
+public class EventIDCache extends FireableEventTypeResolver {
 
   private static final String RX_PACKAGE_PREFIX = "net.java.slee.resource.diameter.rx.events.";
   private static final String BASE_PACKAGE_PREFIX = "net.java.slee.resource.diameter.base.events.";
@@ -66,63 +62,9 @@ public class EventIDCache {
 
   public static final String ERROR_ANSWER = BASE_PACKAGE_PREFIX + "ErrorAnswer";
   public static final String EXTENSION_DIAMETER_MESSAGE = BASE_PACKAGE_PREFIX + "ExtensionDiameterMessage";
-  private static final String VENDOR = "java.net";
-  private static final String VERSION = "0.8";
-  private ConcurrentHashMap<String, FireableEventType> eventIds = new ConcurrentHashMap<String, FireableEventType>();
 
   public EventIDCache() {
+    super(eventNames, ERROR_ANSWER, EXTENSION_DIAMETER_MESSAGE);
   }
 
-  /**
-   *
-   * @param eventLookupFacility
-   * @param message
-   * @return
-   */
-  public FireableEventType getEventId(final EventLookupFacility eventLookupFacility, final Message message) {
-    FireableEventType eventID;
-
-    // Error is always the same.
-    if (message.isError()) {
-      eventID = getEventId(eventLookupFacility, ERROR_ANSWER);
-    }
-    else {
-      final int commandCode = message.getCommandCode();
-      final boolean isRequest = message.isRequest();
-
-      final String eventName = eventNames.get(commandCode);
-
-      if (eventName != null) {
-        eventID = getEventId(eventLookupFacility, eventName + (isRequest ? "Request" : "Answer"));
-      }
-      else {
-        eventID = getEventId(eventLookupFacility, EXTENSION_DIAMETER_MESSAGE);
-      }
-    }
-
-    return eventID;
-  }
-
-  /**
-   *
-   * @param eventLookupFacility
-   * @param eventName
-   * @return
-   */
-  private FireableEventType getEventId(final EventLookupFacility eventLookupFacility, final String eventName) {
-
-    FireableEventType eventType = eventIds.get(eventName);
-    if (eventType == null) {
-      try {
-        eventType = eventLookupFacility.getFireableEventType(new EventTypeID(eventName, VENDOR, VERSION));
-      }
-      catch (Throwable e) {
-        e.printStackTrace();
-      }
-      if (eventType != null) {
-        eventIds.put(eventName, eventType);
-      }
-    }
-    return eventType;
-  }
 }
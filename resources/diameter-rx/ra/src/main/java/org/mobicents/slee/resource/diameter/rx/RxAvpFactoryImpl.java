@@ -39,6 +39,7 @@ import org.mobicents.slee.resource.diameter.rx.events.avp.DiameterRxAvpCodes;
 import org.mobicents.slee.resource.diameter.rx.events.avp.FlowsAvpImpl;
 import org.mobicents.slee.resource.diameter.rx.events.avp.MediaComponentDescriptionAvpImpl;
 import org.mobicents.slee.resource.diameter.rx.events.avp.MediaSubComponentAvpImpl;
+import org.mobicents.slee.resource.diameter.rx.events.avp.RxAvpCodecs;
 import org.mobicents.slee.resource.diameter.rx.events.avp.SponsoredConnectivityDataAvpImpl;
 import org.mobicents.slee.resource.diameter.rx.events.avp.SupportedFeaturesAvpImpl;
 
@@ -51,6 +52,10 @@ import org.mobicents.slee.resource.diameter.rx.events.avp.SupportedFeaturesAvpIm
  */
 public class RxAvpFactoryImpl implements RxAvpFactory {
 
+  static {
+    RxAvpCodecs.register();
+  }
+
   // TODO: Add helper create methods for the composite AVPs
   protected DiameterAvpFactory baseAvpFactory;
 
@@ -251,7 +251,7 @@ public class RxClientSessionActivityImpl extends RxSessionActivityImpl implement
       return false;
     }
     final RxClientSessionActivityImpl other = (RxClientSessionActivityImpl) obj;
-    if (terminateAfterProcessing != other.isTerminateAfterProcessing()) {
+    if (isTerminateAfterProcessing() != other.isTerminateAfterProcessing()) {
       return false;
     }
 
@@ -22,17 +22,13 @@
 
 package org.mobicents.slee.resource.diameter.rx;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
-import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.base.events.avp.GroupedAvp;
 import net.java.slee.resource.diameter.rx.RxMessageFactory;
 import net.java.slee.resource.diameter.rx.events.AAAnswer;
@@ -49,6 +45,8 @@ import org.jdiameter.api.ApplicationId;
 import org.jdiameter.api.AvpSet;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.rx.events.AAAnswerImpl;
 import org.mobicents.slee.resource.diameter.rx.events.AARequestImpl;
 import org.mobicents.slee.resource.diameter.rx.events.AbortSessionAnswerImpl;
@@ -71,29 +69,27 @@ public class RxMessageFactoryImpl implements RxMessageFactory {
   protected Logger logger = Logger.getLogger(RxMessageFactoryImpl.class);
 
   private static final DiameterAvp[] EMPTY_AVP_ARRAY = new DiameterAvp[]{};
-  protected final static Set<Integer> ids;
-
-  static {
-    final Set<Integer> _ids = new HashSet<Integer>();
-    //_ids.add(Avp.SESSION_ID);
-    //_ids.add(Avp.AUTH_APPLICATION_ID);
-    //_ids.add(Avp.VENDOR_SPECIFIC_APPLICATION_ID);
-
-    ids = Collections.unmodifiableSet(_ids);
-  }
+  // AVPs copied from the request into the answer
+  protected final static AnswerTemplate answerTemplate = new AnswerTemplate(DiameterAvpCodes.SESSION_ID);
 
   protected DiameterMessageFactory baseFactory = null;
   protected String sessionId;
   protected Stack stack;
+  protected final RawMessageCreator rawMessageCreator;
 
   private ApplicationId rxAppId = ApplicationId.createByAuthAppId(DiameterRxAvpCodes.RX_APPLICATION_ID);
 
   public RxMessageFactoryImpl(final DiameterMessageFactory baseFactory, final String sessionId, final Stack stack) {
+    this(baseFactory, sessionId, new RawMessageCreator(stack));
+  }
+
+  public RxMessageFactoryImpl(final DiameterMessageFactory baseFactory, final String sessionId, final RawMessageCreator rawMessageCreator) {
     super();
 
     this.baseFactory = baseFactory;
     this.sessionId = sessionId;
-    this.stack = stack;
+    this.stack = rawMessageCreator.getStack();
+    this.rawMessageCreator = rawMessageCreator;
   }
 
   public void setApplicationId(long vendorId, long applicationId) {
@@ -116,6 +112,16 @@ public class RxMessageFactoryImpl implements RxMessageFactory {
     return aar;
   }
 
+  /**
+   * Creates a {@link AARequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public AARequest createAARequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    AARequest msg = createAARequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -134,22 +140,8 @@ public class RxMessageFactoryImpl implements RxMessageFactory {
     msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.DESTINATION_REALM);
     msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_HOST);
     msg.getGenericData().getAvps().removeAvp(DiameterAvpCodes.ORIGIN_REALM);
-    msg.setSessionId(request.getSessionId());
-
     // Now copy the needed AVPs
-    final DiameterAvp[] messageAvps = request.getAvps();
-    if (messageAvps != null) {
-      for (DiameterAvp a : messageAvps) {
-        try {
-          if (ids.contains(a.getCode())) {
-            msg.addAvp(a);
-          }
-        }
-        catch (Exception e) {
-          logger.error("Failed to add AVP to answer. Code[" + a.getCode() + "]", e);
-        }
-      }
-    }
+    answerTemplate.copy(request, msg);
 
     return msg;
   }
@@ -205,6 +197,16 @@ public class RxMessageFactoryImpl implements RxMessageFactory {
 
     return null;
   }
+
+  /**
+   * Creates a {@link AbortSessionRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public AbortSessionRequest createAbortSessionRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    AbortSessionRequest msg = createAbortSessionRequest();
+    avps.build(msg);
+
+    return msg;
+  }
   public ReAuthAnswer createReAuthAnswer(ReAuthRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
     ReAuthAnswer msg = (ReAuthAnswer) this.createDiameterMessage(request.getHeader(), avps, Message.RE_AUTH_ANSWER, getApplicationId(request));
 
@@ -257,6 +259,16 @@ public class RxMessageFactoryImpl implements RxMessageFactory {
     return null;
   }
 
+  /**
+   * Creates a {@link ReAuthRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public ReAuthRequest createReAuthRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    ReAuthRequest msg = createReAuthRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public SessionTerminationAnswer createSessionTerminationAnswer(SessionTerminationRequest request, DiameterAvp[] avps) throws AvpNotAllowedException {
     SessionTerminationAnswer msg = (SessionTerminationAnswer) this.createDiameterMessage(request.getHeader(), avps, Message.SESSION_TERMINATION_REQUEST, rxAppId);
 
@@ -308,6 +320,16 @@ public class RxMessageFactoryImpl implements RxMessageFactory {
     }
   }
 
+  /**
+   * Creates a {@link SessionTerminationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public SessionTerminationRequest createSessionTerminationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    SessionTerminationRequest msg = createSessionTerminationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   protected DiameterMessage createDiameterMessage(DiameterHeader diameterHeader, DiameterAvp[] avps, int _commandCode, ApplicationId appId) throws IllegalArgumentException {
 
     boolean creatingRequest = diameterHeader == null;
@@ -407,7 +429,7 @@ public class RxMessageFactoryImpl implements RxMessageFactory {
       commandCode = _commandCode;
     }
     try {
-      Message msg = stack.getSessionFactory().getNewRawSession().createMessage(commandCode, appId != null ? appId : rxAppId, hopByHopId, endToEndId);
+      Message msg = rawMessageCreator.createMessage(commandCode, appId != null ? appId : rxAppId, hopByHopId, endToEndId);
 
       // Set the message flags from header (or default)
       msg.setRequest(isRequest);
@@ -453,12 +475,7 @@ public class RxMessageFactoryImpl implements RxMessageFactory {
   }
 
   private void addOriginHostAndRealm(DiameterMessage msg) {
-    if(!msg.hasOriginHost()) {
-      msg.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
-    }
-    if(!msg.hasOriginRealm()) {
-      msg.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-    }
+    rawMessageCreator.addOriginHostAndRealm(msg);
   }
 
   private ApplicationId getApplicationId(DiameterMessage msg) {
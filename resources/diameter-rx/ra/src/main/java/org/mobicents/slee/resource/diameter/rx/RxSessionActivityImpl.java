@@ -22,10 +22,6 @@
 
 package org.mobicents.slee.resource.diameter.rx;
 
-import java.util.concurrent.Future;
-
-import javax.naming.OperationNotSupportedException;
-
 import net.java.slee.resource.diameter.base.DiameterAvpFactory;
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
@@ -40,9 +36,7 @@ import org.jdiameter.api.EventListener;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.Session;
-import org.jdiameter.api.validation.AvpNotAllowedException;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
-import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.base.events.ErrorAnswerImpl;
 import org.mobicents.slee.resource.diameter.rx.events.*;
 
@@ -90,30 +84,8 @@ public abstract class RxSessionActivityImpl extends DiameterActivityImpl impleme
   }
   //some override from base
 
-  protected Message doSendMessage(DiameterMessage message) {
-    Message receivedMessage = null;
-    try {
-      if(message instanceof DiameterMessageImpl) {
-        Future<Message> future = session.send(((DiameterMessageImpl)message).getGenericData());
-        receivedMessage = future.get();
-      }
-      else {
-        throw new OperationNotSupportedException((new StringBuilder()).append("Trying to send wrong type of message? [").append(message.getClass()).append("] \n").append(message).toString());
-      }
-    }
-    catch(AvpNotAllowedException e) {
-      throw new net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException("Message validation failed.", e, e.getAvpCode(), e.getVendorId());
-    }
-    catch(Exception e) {
-      logger.error("Failure sending sync request.", e);
-    }
-
-    return receivedMessage;
-  }
-
-  public DiameterMessage sendSyncMessage(DiameterMessage message) {
+  protected DiameterMessage createAnswer(Message receivedMessage) {
     DiameterMessage answer = null;
-    Message receivedMessage = doSendMessage(message);
     if(receivedMessage != null) {
       if(!receivedMessage.isRequest()) {
         if(receivedMessage.isError()) {
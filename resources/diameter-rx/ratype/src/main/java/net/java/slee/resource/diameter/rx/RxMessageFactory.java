@@ -24,6 +24,7 @@ package net.java.slee.resource.diameter.rx;
 
 import net.java.slee.resource.diameter.base.DiameterMessageFactory;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.rx.events.*;
 
@@ -50,6 +51,16 @@ public interface RxMessageFactory {
    */
   public AARequest createAARequest(String sessionId);
 
+  /**
+   * Creates a {@link AARequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new AARequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public AARequest createAARequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   public AAAnswer createAAAnswer(AARequest request);
 
   public abstract AbortSessionRequest createAbortSessionRequest(DiameterAvp adiameteravp[]) throws AvpNotAllowedException;
@@ -80,4 +91,34 @@ public interface RxMessageFactory {
    * @return Base Diameter message factory
    */
   public DiameterMessageFactory getBaseMessageFactory();
+  /**
+   * Creates a {@link AbortSessionRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new AbortSessionRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public AbortSessionRequest createAbortSessionRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+  /**
+   * Creates a {@link ReAuthRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new ReAuthRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public ReAuthRequest createReAuthRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+  /**
+   * Creates a {@link SessionTerminationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new SessionTerminationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  public SessionTerminationRequest createSessionTerminationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
+
+
 }
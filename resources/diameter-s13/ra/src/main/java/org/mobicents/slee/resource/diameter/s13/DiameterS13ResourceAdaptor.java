@@ -24,27 +24,13 @@ package org.mobicents.slee.resource.diameter.s13;
 
 import static org.jdiameter.client.impl.helpers.Parameters.MessageTimeOut;
 
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.management.ObjectName;
 import javax.naming.OperationNotSupportedException;
-import javax.slee.Address;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.facilities.Tracer;
-import javax.slee.resource.ActivityFlags;
-import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.ConfigProperties;
-import javax.slee.resource.EventFlags;
-import javax.slee.resource.FailureReason;
-import javax.slee.resource.FireableEventType;
-import javax.slee.resource.InvalidConfigurationException;
 import javax.slee.resource.Marshaler;
-import javax.slee.resource.ReceivableService;
-import javax.slee.resource.ResourceAdaptor;
 import javax.slee.resource.ResourceAdaptorContext;
-import javax.slee.resource.SleeEndpoint;
 
 import net.java.slee.resource.diameter.Validator;
 import net.java.slee.resource.diameter.base.CreateActivityException;
@@ -59,41 +45,30 @@ import net.java.slee.resource.diameter.s13.S13Provider;
 import net.java.slee.resource.diameter.s13.S13ServerSessionActivity;
 import net.java.slee.resource.diameter.s13.events.MEIdentityCheckRequest;
 
-import org.jboss.mx.util.MBeanServerLocator;
 import org.jdiameter.api.Answer;
 import org.jdiameter.api.ApplicationId;
-import org.jdiameter.api.AvpDataException;
 import org.jdiameter.api.EventListener;
 import org.jdiameter.api.IllegalDiameterStateException;
 import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
-import org.jdiameter.api.Peer;
-import org.jdiameter.api.PeerTable;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.SessionFactory;
-import org.jdiameter.api.Stack;
 import org.jdiameter.api.app.AppSession;
 import org.jdiameter.api.app.StateChangeListener;
 import org.jdiameter.api.s13.ClientS13Session;
 import org.jdiameter.api.s13.ServerS13Session;
 import org.jdiameter.api.sh.ServerShSession;
 import org.jdiameter.client.api.ISessionFactory;
-import org.mobicents.diameter.stack.DiameterListener;
-import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
-import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.LocalDiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.ValidatorImpl;
+import org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
 import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
-import org.mobicents.slee.resource.diameter.base.EventIDFilter;
 import org.mobicents.slee.resource.diameter.base.events.ErrorAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.base.handlers.AuthorizationSessionFactory;
-import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
 import org.mobicents.slee.resource.diameter.s13.events.MEIdentityCheckAnswerImpl;
 import org.mobicents.slee.resource.diameter.s13.events.MEIdentityCheckRequestImpl;
 import org.mobicents.slee.resource.diameter.s13.handlers.S13SessionFactory;
@@ -106,7 +81,7 @@ import org.mobicents.slee.resource.diameter.s13.handlers.S13SessionFactory;
  * @author <a href="mailto:richard.good@smilecoms.com"> Richard Good </a>
  * @author <a href="mailto:paul.carter-brown@smilecoms.com"> Paul Carter-Brown </a>
  */
-public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterListener, DiameterRAInterface {
+public class DiameterS13ResourceAdaptor extends AbstractDiameterResourceAdaptor {
 
   private static final long serialVersionUID = 1L;
 
@@ -116,54 +91,9 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
   // Config Properties Values --------------------------------------------
   private List<ApplicationId> authApplicationIds;
 
-  /**
-   * caches the eventIDs, avoiding lookup in container
-   */
-  public final EventIDCache eventIdCache = new EventIDCache();
-
-  /**
-   * tells the RA if an event with a specified ID should be filtered or not
-   */
-  private final EventIDFilter eventIDFilter = new EventIDFilter();
-
-  /**
-   * The ResourceAdaptorContext interface is implemented by the SLEE. It provides the Resource
-   * Adaptor with the required capabilities in the SLEE to execute its work. The ResourceAdaptorCon-
-   * text object holds references to a number of objects that are of interest to many Resource Adaptors. A
-   * resource adaptor object is provided with a ResourceAdaptorContext object when the setResour-
-   * ceAdaptorContext method of the ResourceAdaptor interface is invoked on the resource adaptor
-   * object. 
-   */
-  private ResourceAdaptorContext raContext;
-
-  /**
-   * The SLEE endpoint defines the contract between the SLEE and the resource
-   * adaptor that enables the resource adaptor to deliver events
-   * asynchronously to SLEE endpoints residing in the SLEE. This contract
-   * serves as a generic contract that allows a wide range of resources to be
-   * plugged into a SLEE environment via the resource adaptor architecture.
-   * For further information see JSLEE v1.1 Specification Page 307 The
-   * sleeEndpoint will be initialized in entityCreated() method.
-   */
-  private transient SleeEndpoint sleeEndpoint = null;
-
-  /**
-   * A tracer is represented in the SLEE by the Tracer interface. Notification sources access the Tracer Facil-
-   * ity through a Tracer object that implements the Tracer interface. A Tracer object can be obtained by
-   * SBBs via the SbbContext interface, by resource adaptor entities via the ResourceAdaptorContext
-   * interface, and by profiles via the ProfileContext interface. 
-   */
-  private Tracer tracer;
-
   private DiameterBaseMarshaler marshaler/*= new DiameterBaseMarshaler()*/;
 
-  // Diameter Specific Properties ----------------------------------------
-  private Stack stack;
   private long messageTimeout = 5000;
-  private long activityRemoveDelay = 30000;
-
-  private ObjectName diameterMultiplexerObjectName = null;
-  private DiameterStackMultiplexerMBean diameterMux = null;
 
   // Base Factories
   private DiameterAvpFactory baseAvpFactory = null;
@@ -174,18 +104,6 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
   private S13MessageFactory s13MessageFactory;
   private S13SessionFactory s13SessionFactory = null;
 
-  /**
-   * The EventLookupFacility is used to look up the event id of incoming events
-   */
-  private transient EventLookupFacility eventLookup = null;
-
-  /**
-   * The list of activities stored in this resource adaptor. If this resource
-   * adaptor were a distributed and highly available solution, this storage
-   * were one of the candidates for distribution.
-   */
-  private transient DiameterActivityManagement activities = null;
-
   /**
    * A link to the DiameterProvider which then will be exposed to Sbbs
    */
@@ -194,37 +112,15 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
   protected transient AuthorizationSessionFactory authSessionFactory = null;
   protected transient SessionFactory proxySessionFactory = null;
 
-  /**
-   * For all events we are interested in knowing when the event failed to be processed
-   */
-  private static final int EVENT_FLAGS = getEventFlags();
-
-  private static int getEventFlags() {
-    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
-    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
-    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
-    return eventFlags;
-  }
-  private static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.setRequestSleeActivityGCCallback(ActivityFlags.REQUEST_ENDED_CALLBACK);
-
   public DiameterS13ResourceAdaptor() {
-    // TODO: Initialize any default values.
+    super("DiameterS13ResourceAdaptor", "Diameter S13 RA", new EventIDCache());
   }
 
   // Lifecycle methods ---------------------------------------------------
   public void setResourceAdaptorContext(ResourceAdaptorContext context) {
-    this.raContext = context;
-    this.tracer = context.getTracer("DiameterS13ResourceAdaptor");
-    this.sleeEndpoint = context.getSleeEndpoint();
-    this.eventLookup = context.getEventLookupFacility();
-    this.raProvider = new S13ProviderImpl(this);
-  }
+    super.setResourceAdaptorContext(context);
 
-  public void unsetResourceAdaptorContext() {
-    this.raContext = null;
-    this.tracer = null;
-    this.sleeEndpoint = null;
-    this.eventLookup = null;
+    this.raProvider = new S13ProviderImpl(this);
   }
 
   public void raActive() {
@@ -237,39 +133,28 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
         tracer.info("Activating Diameter S13 RA Entity");
       }
 
-      this.diameterMultiplexerObjectName = new ObjectName("diameter.mobicents:service=DiameterStackMultiplexer");
-
-      Object object = null;
-
-      if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
-        // trying to get via MBeanServer
-        object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      } else {
-        // trying to get via locateJBoss
-        object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      }
-
-      if (object != null && object instanceof DiameterStackMultiplexerMBean) {
-        this.diameterMux = (DiameterStackMultiplexerMBean) object;
-      }
+      activateCore();
 
       // Initialize the protocol stack
       initStack();
 
+      // Track the configured peers
+      initPeers();
+
+      // Share one raw message creator among all message factories
+      initMessageCreator();
+
       // Initialize activities mgmt
       initActivitiesMgmt();
 
+      // Resolve event types to fire
+      eventIdCache.init(eventLookup, tracer);
+
       // Initialize factories
       this.baseAvpFactory = new DiameterAvpFactoryImpl();
 
       this.s13AvpFactory = new S13AVPFactoryImpl(baseAvpFactory);
-      this.s13MessageFactory = new S13MessageFactoryImpl(stack);
+      this.s13MessageFactory = new S13MessageFactoryImpl(rawMessageCreator);
 
       // Set the first configured Application-Id as default for message factory
       ApplicationId firstAppId = authApplicationIds.get(0);
@@ -287,37 +172,10 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
     }
   }
 
-  public void raStopping() {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter S13 RA :: raStopping.");
-    }
-
-    try {
-      diameterMux.unregisterListener(this);
-    }
-    catch (Exception e) {
-      tracer.severe("Failed to unregister S13 RA from Diameter Mux.", e);
-    }
-
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter S13 RA :: raStopping completed.");
-    }
-  }
-
-  public void raInactive() {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter S13 RA :: raInactive.");
-    }
-
-    activities = null;
-
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter S13 RA :: raInactive completed.");
-    }
-  }
-
   public void raConfigure(ConfigProperties properties) {
     parseApplicationIds((String) properties.getProperty(AUTH_APPLICATION_IDS).getValue());
+
+    super.raConfigure(properties);
   }
 
   private void parseApplicationIds(String appIdsStr) {
@@ -338,22 +196,9 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
   }
 
   public void raUnconfigure() {
-    // Clean up!
-    this.activities = null;
-    this.raContext = null;
-    this.eventLookup = null;
-    this.raProvider = null;
-    this.sleeEndpoint = null;
-    this.stack = null;
-  }
+    super.raUnconfigure();
 
-  // Configuration management methods ------------------------------------
-  public void raVerifyConfiguration(ConfigProperties properties) throws InvalidConfigurationException {
-    // NOP
-  }
-
-  public void raConfigurationUpdate(ConfigProperties properties) {
-    // this ra does not support config update while entity is active    
+    this.raProvider = null;
   }
 
   // Interface access methods -------------------------------------------- 
@@ -370,173 +215,13 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
     return this.marshaler;
   }
 
-  // Event filtering methods ---------------------------------------------
-  public void serviceActive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceActive(serviceInfo);
-  }
-
-  public void serviceStopping(ReceivableService serviceInfo) {
-    eventIDFilter.serviceStopping(serviceInfo);
-  }
-
-  public void serviceInactive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceInactive(serviceInfo);
-  }
-
-  // Mandatory callback methods ------------------------------------------
-  public void queryLiveness(ActivityHandle handle) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter S13 RA :: queryLiveness :: handle[" + handle + "].");
-    }
-    if (!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle) handle);
-
-    if (activity != null && !activity.isValid()) {
-      try {
-        sleeEndpoint.endActivity(handle);
-      }
-      catch (Exception e) {
-        tracer.severe("Failure ending non-live activity.", e);
-      }
-    }
-  }
-
-  public Object getActivity(ActivityHandle handle) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter S13 RA :: getActivity :: handle[" + handle + "].");
-    }
-    if (!(handle instanceof DiameterActivityHandle)) {
-      return null;
-    }
-    return this.activities.get((DiameterActivityHandle) handle);
-  }
-
-  public ActivityHandle getActivityHandle(Object activity) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter S13 RA :: getActivityHandle :: activity[" + activity + "].");
-    }
-
-    if (!(activity instanceof DiameterActivity)) {
-      return null;
-    }
-
-    DiameterActivityImpl inActivity = (DiameterActivityImpl) activity;
-
-    return inActivity.getActivityHandle();
-  }
-
-  public void administrativeRemove(ActivityHandle handle) {
-    // TODO what to do here?
-  }
-
-  // Optional callback methods -------------------------------------------
-  public void eventProcessingFailed(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags, FailureReason reason) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter S13 RA :: eventProcessingFailed :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "], reason[" + reason + "].");
-    }
-  }
-
-  public void eventProcessingSuccessful(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter S13 RA :: eventProcessingSuccessful :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "].");
-    }
-  }
-
-  public void eventUnreferenced(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter S13 RA :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], service[" + service + "], flags[" + flags + "].");
-    }
-  }
-
-  public void activityEnded(ActivityHandle handle) {
-    tracer.info("Diameter S13 RA :: activityEnded :: handle[" + handle + ".");
-    if (this.activities != null) {
-      synchronized (this.activities) {
-        this.activities.remove((DiameterActivityHandle) handle);
-      }
-    }
-  }
-
-  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    this.activities.startActivityRemoveTimer(handle);
-  }
-
-  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    this.activities.stopActivityRemoveTimer(handle);
-  }
-
-  public void activityUnreferenced(ActivityHandle handle) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter S13 RA :: activityUnreferenced :: handle[" + handle + "].");
-    }
-    if (!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-    this.activityEnded(handle);
-  }
-
-  // Event and Activities management -------------------------------------
-  public boolean fireEvent(Object event, ActivityHandle handle, FireableEventType eventID, Address address, boolean useFiltering, boolean transacted) {
-    if (useFiltering && eventIDFilter.filterEvent(eventID)) {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Event " + eventID + " filtered");
-      }
-    }
-    else if (eventID == null) {
-      tracer.severe("Event ID for " + eventID + " is unknown, unable to fire.");
-    }
-    else {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Firing event " + event + " on handle " + handle);
-      }
-      try {
-        /* TODO: Support transacted fire of events when in cluster
-        if (transacted){
-          this.raContext.getSleeEndpoint().fireEventTransacted(handle, eventID, event, address, null, EVENT_FLAGS);
-        }
-        else */ {
-          this.raContext.getSleeEndpoint().fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
-        }
-        return true;
-      }
-      catch (Exception e) {
-        tracer.severe("Error firing event.", e);
-      }
-    }
-
-    return false;
-  }
-
-  /*
-   * (non-Javadoc)
-   * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#fireEvent(java.lang.String, org.jdiameter.api.Request, org.jdiameter.api.Answer)
-   */
-  public void fireEvent(String sessionId, Message message) {
-    DiameterMessage event = (DiameterMessage) createEvent(message);
-
-    FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
-
-    this.fireEvent(event, getActivityHandle(sessionId), eventId, null, true, message.isRequest());
-  }
-
-  public void endActivity(DiameterActivityHandle handle) {
-    sleeEndpoint.endActivity(handle);
-  }
-
-  public void update(DiameterActivityHandle handle, DiameterActivity activity) {
-    activities.update(handle, activity);
-  }
-
   /**
    * Create Event object from a JDiameter message (request or answer)
    * 
    * @return a DiameterMessage object wrapping the request/answer
    * @throws OperationNotSupportedException
    */
-  private DiameterMessage createEvent(Message message) {
+  protected DiameterMessage createEvent(Message message) {
     if (message == null) {
       throw new NullPointerException("Message argument cannot be null while creating event.");
     }
@@ -557,41 +242,6 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
     }
   }
 
-  // Session Management --------------------------------------------------
-  /**
-   * Method for performing tasks when activity is created, such as informing SLEE about it and storing into internal map.
-   * 
-   * @param ac the activity that has been created
-   */
-  private void addActivity(DiameterActivity ac, boolean suspended) {
-    try {
-      // Inform SLEE that Activity Started
-      DiameterActivityImpl activity = (DiameterActivityImpl) ac;
-
-      if (suspended) {
-        sleeEndpoint.startActivitySuspended(activity.getActivityHandle(), activity, DEFAULT_ACTIVITY_FLAGS);
-      }
-      else {
-        sleeEndpoint.startActivity(activity.getActivityHandle(), activity, DEFAULT_ACTIVITY_FLAGS);
-      }
-
-      // Set the listener
-      activity.setSessionListener(this);
-
-      // Put it into our activites map
-      activities.put(activity.getActivityHandle(), activity);
-
-      if (tracer.isInfoEnabled()) {
-        tracer.info("Activity started [" + activity.getActivityHandle() + "]");
-      }
-    }
-    catch (Exception e) {
-      tracer.severe("Error creating activity", e);
-
-      throw new RuntimeException("Error creating activity", e);
-    }
-  }
-
   // Private Methods -----------------------------------------------------
 
   /**
@@ -612,27 +262,9 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
     }
   }
 
-  private void initActivitiesMgmt() {
-    this.activities = new LocalDiameterActivityManagement(this.raContext, activityRemoveDelay);
-  }
-
-  /**
-   * Create the Diameter Activity Handle for an given session id
-   * 
-   * @param sessionId the session identifier to create the activity handle from
-   * @return a DiameterActivityHandle for the provided sessionId
-   */
-  protected DiameterActivityHandle getActivityHandle(String sessionId) {
-    return new DiameterActivityHandle(sessionId);
-  }
-
   // NetworkReqListener Implementation -----------------------------------
 
-  /*
-   * (non-Javadoc)
-   * @see org.jdiameter.api.NetworkReqListener#processRequest(org.jdiameter.api.Request)
-   */
-  public Answer processRequest(Request request) {
+  protected Answer doProcessRequest(Request request) {
     try {
       if (request == null) {
         tracer.severe("Request is null");
@@ -655,42 +287,13 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
    * @see org.jdiameter.api.EventListener#receivedSuccessMessage(org.jdiameter.api.Message, org.jdiameter.api.Message)
    */
   public void receivedSuccessMessage(Request request, Answer answer) {
-    if (tracer.isFineEnabled()) {
-      tracer.fine("Diameter S13 RA :: receivedSuccessMessage :: " + "Request[" + request + "], Answer[" + answer + "].");
-    }
-
-    try {
-      if (tracer.isInfoEnabled()) {
-        tracer.info("Received Message Result-Code: " + answer.getResultCode().getUnsigned32());
-      }
-    }
-    catch (AvpDataException ignore) {
-      // ignore, this was just for informational purposes...
-    }
-  }
-
-  /*
-   * (non-Javadoc)
-   * @see org.jdiameter.api.EventListener#timeoutExpired(org.jdiameter.api.Message)
-   */
-  public void timeoutExpired(Request request) {
-    if (tracer.isInfoEnabled()) {
-      tracer.info("Diameter S13 RA :: timeoutExpired :: Request[" + request + "].");
-    }
-
-    try {
-      // Message delivery timed out - we have to remove activity
-      ((DiameterActivity) getActivity(getActivityHandle(request.getSessionId()))).endActivity();
-    }
-    catch (Exception e) {
-      tracer.severe("Failure processing timeout message.", e);
-    }
+    messageTracer.answerReceived(request, answer);
   }
 
   // S13 Session Creation Listener --------------------------------------
 
   public void sessionCreated(ServerS13Session session) {
-    S13MessageFactoryImpl sessionMsgFactory = new S13MessageFactoryImpl(session.getSessions().get(0), stack, new DiameterIdentity[]{});
+    S13MessageFactoryImpl sessionMsgFactory = new S13MessageFactoryImpl(session.getSessions().get(0), rawMessageCreator);
 
     // Set the first configured Application-Id as default for message factory
     ApplicationId firstAppId = authApplicationIds.get(0);
@@ -703,7 +306,7 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
   }
 
   public void sessionCreated(ClientS13Session session) {
-    S13MessageFactoryImpl sessionMsgFactory = new S13MessageFactoryImpl(session.getSessions().get(0), stack, new DiameterIdentity[]{});
+    S13MessageFactoryImpl sessionMsgFactory = new S13MessageFactoryImpl(session.getSessions().get(0), rawMessageCreator);
 
     // Set the first configured Application-Id as default for message factory
     ApplicationId firstAppId = authApplicationIds.get(0);
@@ -716,13 +319,13 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
   }
 
   public void sessionCreated(Session session) {
-    DiameterMessageFactoryImpl sessionMsgFactory = new DiameterMessageFactoryImpl(session, stack, null, null);
+    DiameterMessageFactoryImpl sessionMsgFactory = new DiameterMessageFactoryImpl(session, rawMessageCreator);
     DiameterActivityImpl activity = new DiameterActivityImpl(sessionMsgFactory, baseAvpFactory, session, this, null, null);
 
     // TODO: Do we need to manage session?
     //session.addStateChangeNotification(activity);
     activity.setSessionListener(this);
-    addActivity(activity, false /*true*/);
+    addActivity(activity, false /*true*/, DEFAULT_ACTIVITY_FLAGS);
   }
 
   /*
@@ -760,7 +363,6 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
   private class S13ProviderImpl implements S13Provider {
 
     protected DiameterS13ResourceAdaptor ra;
-    protected Validator validator = new ValidatorImpl();
 
     /**
      * Constructor.
@@ -810,7 +412,7 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
       }
 
       S13ServerSessionImpl activity = new S13ServerSessionImpl(ra.s13MessageFactory, ra.s13AvpFactory, session, (EventListener<Request, Answer>) session, (DiameterIdentity) null, (DiameterIdentity) null, stack);
-      addActivity(activity, false);
+      addActivity(activity, false, DEFAULT_ACTIVITY_FLAGS);
 
       if (request != null) {
         switch (request.getCommandCode()) {
@@ -847,7 +449,7 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
       }
 
       S13ClientSessionImpl activity = new S13ClientSessionImpl(ra.s13MessageFactory, ra.s13AvpFactory, session, (EventListener<Request, Answer>) session, (DiameterIdentity) null, (DiameterIdentity) null, stack);
-      addActivity(activity, false);
+      addActivity(activity, false, DEFAULT_ACTIVITY_FLAGS);
 
       if (request != null) {
         switch (request.getCommandCode()) {
@@ -866,7 +468,7 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
       try {
         ServerS13Session session = ((ISessionFactory) stack.getSessionFactory()).getNewAppSession(null, ApplicationId.createByAuthAppId(10415L, 16777251L), ServerS13Session.class);
         S13ServerSessionImpl activity = new S13ServerSessionImpl(ra.s13MessageFactory, ra.s13AvpFactory, session, (EventListener<Request, Answer>) session, destinationHost, destinationRealm, stack);
-        addActivity(activity, false);
+        addActivity(activity, false, DEFAULT_ACTIVITY_FLAGS);
         return activity;
       }
       catch (Exception e) {
@@ -878,7 +480,7 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
       try {
         ClientS13Session session = ((ISessionFactory) stack.getSessionFactory()).getNewAppSession(null, ApplicationId.createByAuthAppId(10415L, 16777251L), ClientS13Session.class);
         S13ClientSessionImpl activity = new S13ClientSessionImpl(ra.s13MessageFactory, ra.s13AvpFactory, session, (EventListener<Request, Answer>) session, destinationHost, destinationRealm, stack);
-        addActivity(activity, false);
+        addActivity(activity, false, DEFAULT_ACTIVITY_FLAGS);
         return activity;
       }
       catch (Exception e) {
@@ -899,7 +501,7 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
     }
 
     public int getPeerCount() {
-      return ra.getConnectedPeers().length;
+      return ra.getPeerCount();
     }
 
     public S13ServerSessionActivity createS13ServerSessionActivity() throws CreateActivityException {
@@ -914,34 +516,8 @@ public class DiameterS13ResourceAdaptor implements ResourceAdaptor, DiameterList
      * @see net.java.slee.resource.diameter.s13.S13Provider#getValidator()
      */
     public Validator getValidator() {
-      return this.validator;
+      return validator;
     }
   }
 
-  public DiameterIdentity[] getConnectedPeers() {
-    if (this.stack != null) {
-      try {
-        // Get the list of peers from the stack
-        List<Peer> peers = stack.unwrap(PeerTable.class).getPeerTable();
-
-        DiameterIdentity[] result = new DiameterIdentity[peers.size()];
-
-        int i = 0;
-
-        // Get each peer from the list and make a DiameterIdentity
-        for (Peer peer : peers) {
-          DiameterIdentity identity = new DiameterIdentity(peer.getUri().toString());
-
-          result[i++] = identity;
-        }
-
-        return result;
-      }
-      catch (Exception e) {
-        tracer.severe("Failure getting peer list.", e);
-      }
-    }
-
-    return new DiameterIdentity[0];
-  }
 }
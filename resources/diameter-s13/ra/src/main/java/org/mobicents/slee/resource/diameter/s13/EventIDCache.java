@@ -26,14 +26,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import javax.slee.EventTypeID;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.resource.FireableEventType;
 import net.java.slee.resource.diameter.s13.events.MEIdentityCheckRequest;
 
-import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.FireableEventTypeResolver;
 
-public class EventIDCache {
+public class EventIDCache extends FireableEventTypeResolver {
 
     private static final String BASE_PACKAGE_PREFIX = "net.java.slee.resource.diameter.base.events.";
     private static final String S13_PACKAGE_PREFIX = "net.java.slee.resource.diameter.s13.events.";
@@ -47,61 +44,10 @@ public class EventIDCache {
     }
     public static final String ERROR_ANSWER = BASE_PACKAGE_PREFIX + "ErrorAnswer";
     public static final String EXTENSION_DIAMETER_MESSAGE = BASE_PACKAGE_PREFIX + "ExtensionDiameterMessage";
-    private static final String VENDOR = "java.net";
-    private static final String VERSION = "0.8";
-    private ConcurrentHashMap<String, FireableEventType> eventIds = new ConcurrentHashMap<String, FireableEventType>();
 
     public EventIDCache() {
+        // error answers and extension messages are not declared by the S13 RA type
+        super(eventNames, null, null);
     }
 
-    /**
-     * 
-     * @param eventLookupFacility
-     * @param message
-     * @return
-     */
-    public FireableEventType getEventId(EventLookupFacility eventLookupFacility, Message message) {
-
-        FireableEventType eventID = null;
-
-        // Error is always the same.
-        if (message.isError()) {
-            eventID = getEventId(eventLookupFacility, ERROR_ANSWER);
-        } else {
-            final int commandCode = message.getCommandCode();
-            final boolean isRequest = message.isRequest();
-
-            String eventName = eventNames.get(commandCode);
-
-            if (eventName != null) {
-                eventID = getEventId(eventLookupFacility, eventName + (isRequest ? "Request" : "Answer"));
-            } else {
-                eventID = getEventId(eventLookupFacility, EXTENSION_DIAMETER_MESSAGE);
-            }
-        }
-
-        return eventID;
-    }
-
-    /**
-     * 
-     * @param eventLookupFacility
-     * @param eventName
-     * @return
-     */
-    private FireableEventType getEventId(EventLookupFacility eventLookupFacility, String eventName) {
-
-        FireableEventType eventType = eventIds.get(eventName);
-        if (eventType == null) {
-            try {
-                eventType = eventLookupFacility.getFireableEventType(new EventTypeID(eventName, VENDOR, VERSION));
-            } catch (Throwable e) {
-                e.printStackTrace();
-            }
-            if (eventType != null) {
-                eventIds.put(eventName, eventType);
-            }
-        }
-        return eventType;
-    }
 }
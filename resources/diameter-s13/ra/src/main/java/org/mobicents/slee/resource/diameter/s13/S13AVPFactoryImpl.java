@@ -29,6 +29,7 @@ import net.java.slee.resource.diameter.s13.S13AVPFactory;
 import net.java.slee.resource.diameter.s13.events.avp.TerminalInformationAvp;
 
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.s13.events.avp.S13AvpCodecs;
 import org.mobicents.slee.resource.diameter.s13.events.avp.TerminalInformationAvpImpl;
 
 /**
@@ -39,6 +40,10 @@ import org.mobicents.slee.resource.diameter.s13.events.avp.TerminalInformationAv
  */
 public class S13AVPFactoryImpl extends DiameterAvpFactoryImpl implements S13AVPFactory {
 
+  static {
+    S13AvpCodecs.register();
+  }
+
   // TODO: Add helper create methods for the composite AVPs
   protected DiameterAvpFactory baseAvpFactory;
 
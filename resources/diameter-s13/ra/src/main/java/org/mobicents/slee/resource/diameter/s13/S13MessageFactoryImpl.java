@@ -24,6 +24,8 @@ package org.mobicents.slee.resource.diameter.s13;
 
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.s13.S13MessageFactory;
@@ -36,6 +38,7 @@ import org.jdiameter.api.Message;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.Stack;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.s13.events.MEIdentityCheckAnswerImpl;
 import org.mobicents.slee.resource.diameter.s13.events.MEIdentityCheckRequestImpl;
@@ -73,6 +76,21 @@ public class S13MessageFactoryImpl extends DiameterMessageFactoryImpl implements
     super(stack);
   }
 
+  /**
+   * @param session
+   * @param rawMessageCreator
+   */
+  public S13MessageFactoryImpl(Session session, RawMessageCreator rawMessageCreator) {
+    super(session, rawMessageCreator);
+  }
+
+  /**
+   * @param rawMessageCreator
+   */
+  public S13MessageFactoryImpl(RawMessageCreator rawMessageCreator) {
+    super(rawMessageCreator);
+  }
+
   public void setApplicationId(long vendorId, long applicationId) {
     this.s13AppId = ApplicationId.createByAuthAppId(vendorId, applicationId);      
   }
@@ -144,6 +162,16 @@ public class S13MessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link MEIdentityCheckRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public MEIdentityCheckRequest createMEIdentityCheckRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    MEIdentityCheckRequest msg = createMEIdentityCheckRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public MEIdentityCheckRequest createMEIdentityCheckRequest(String sessionId) throws IllegalArgumentException {
     MEIdentityCheckRequest ecr = createMEIdentityCheckRequest();
     ecr.setSessionId(sessionId);
@@ -91,6 +91,12 @@ public abstract class S13SessionImpl extends DiameterActivityImpl implements S13
     this.lastRequest = s13Request;
   }
 
+  @Override
+  protected boolean isAsyncRequestSupported() {
+    // requests go through the S13 application session, even when the RA listens to the activity
+    return false;
+  }
+
   /**
    * Fills message with session AVPs if present and/or needed.
    * 
@@ -22,6 +22,8 @@
 
 package net.java.slee.resource.diameter.s13;
 
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.s13.events.MEIdentityCheckRequest;
 
 /**
@@ -49,4 +51,14 @@ public interface S13MessageFactory {
 
   MEIdentityCheckRequest createMEIdentityCheckRequest();
   MEIdentityCheckRequest createMEIdentityCheckRequest(String sessionId) throws IllegalArgumentException;
+
+  /**
+   * Creates a {@link MEIdentityCheckRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new MEIdentityCheckRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  MEIdentityCheckRequest createMEIdentityCheckRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
 }
@@ -0,0 +1,877 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.s6a.events.avp;
+
+import net.java.slee.resource.diameter.s6a.events.avp.AlertReason;
+import net.java.slee.resource.diameter.s6a.events.avp.AllAPNConfigurationsIncludedIndicator;
+import net.java.slee.resource.diameter.s6a.events.avp.CSGAccessMode;
+import net.java.slee.resource.diameter.s6a.events.avp.CSGMembershipIndication;
+import net.java.slee.resource.diameter.s6a.events.avp.CancellationType;
+import net.java.slee.resource.diameter.s6a.events.avp.CollectionPeriodRRMLTE;
+import net.java.slee.resource.diameter.s6a.events.avp.CollectionPeriodRRMUMTS;
+import net.java.slee.resource.diameter.s6a.events.avp.CompleteDataListIncludedIndicator;
+import net.java.slee.resource.diameter.s6a.events.avp.CurrentLocationRetrieved;
+import net.java.slee.resource.diameter.s6a.events.avp.DaylightSavingTime;
+import net.java.slee.resource.diameter.s6a.events.avp.ErrorDiagnostic;
+import net.java.slee.resource.diameter.s6a.events.avp.GMLCRestriction;
+import net.java.slee.resource.diameter.s6a.events.avp.HomogeneousSupportOfIMSVoiceOverPSSessions;
+import net.java.slee.resource.diameter.s6a.events.avp.ICSIndicator;
+import net.java.slee.resource.diameter.s6a.events.avp.IMSVoiceOverPSSessionsSupported;
+import net.java.slee.resource.diameter.s6a.events.avp.JobType;
+import net.java.slee.resource.diameter.s6a.events.avp.LIPAPermission;
+import net.java.slee.resource.diameter.s6a.events.avp.LoggingDuration;
+import net.java.slee.resource.diameter.s6a.events.avp.LoggingInterval;
+import net.java.slee.resource.diameter.s6a.events.avp.MDTUserConsent;
+import net.java.slee.resource.diameter.s6a.events.avp.MeasurementPeriodLTE;
+import net.java.slee.resource.diameter.s6a.events.avp.MeasurementPeriodUMTS;
+import net.java.slee.resource.diameter.s6a.events.avp.NetworkAccessMode;
+import net.java.slee.resource.diameter.s6a.events.avp.NotificationToUEUser;
+import net.java.slee.resource.diameter.s6a.events.avp.PDNGWAllocationType;
+import net.java.slee.resource.diameter.s6a.events.avp.PDNType;
+import net.java.slee.resource.diameter.s6a.events.avp.PLMNClient;
+import net.java.slee.resource.diameter.s6a.events.avp.PreEmptionCapability;
+import net.java.slee.resource.diameter.s6a.events.avp.PreEmptionVulnerability;
+import net.java.slee.resource.diameter.s6a.events.avp.QoSClassIdentifier;
+import net.java.slee.resource.diameter.s6a.events.avp.RATType;
+import net.java.slee.resource.diameter.s6a.events.avp.RelayNodeIndicator;
+import net.java.slee.resource.diameter.s6a.events.avp.ReportAmount;
+import net.java.slee.resource.diameter.s6a.events.avp.ReportInterval;
+import net.java.slee.resource.diameter.s6a.events.avp.RoamingRestrictedDueToUnsupportedFeature;
+import net.java.slee.resource.diameter.s6a.events.avp.SIPTOPermission;
+import net.java.slee.resource.diameter.s6a.events.avp.SMSRegisterRequest;
+import net.java.slee.resource.diameter.s6a.events.avp.SubscribedVSRVCC;
+import net.java.slee.resource.diameter.s6a.events.avp.SubscriberStatus;
+import net.java.slee.resource.diameter.s6a.events.avp.UESRVCCCapability;
+import net.java.slee.resource.diameter.s6a.events.avp.UserState;
+import net.java.slee.resource.diameter.s6a.events.avp.VPLMNDynamicAddressAllowed;
+import net.java.slee.resource.diameter.s6a.events.avp.VPLMNLIPAAllowed;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+
+/**
+ * Codec table for the Diameter S6a AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class S6aAvpCodecs {
+
+  static {
+    AvpCodecRegistry.registerEnumerated(AlertReason.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AlertReason.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AlertReason[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(AllAPNConfigurationsIncludedIndicator.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return AllAPNConfigurationsIncludedIndicator.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AllAPNConfigurationsIncludedIndicator[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CSGAccessMode.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CSGAccessMode.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CSGAccessMode[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CSGMembershipIndication.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CSGMembershipIndication.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CSGMembershipIndication[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CancellationType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CancellationType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CancellationType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CollectionPeriodRRMLTE.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CollectionPeriodRRMLTE.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CollectionPeriodRRMLTE[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CollectionPeriodRRMUMTS.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CollectionPeriodRRMUMTS.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CollectionPeriodRRMUMTS[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CompleteDataListIncludedIndicator.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CompleteDataListIncludedIndicator.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CompleteDataListIncludedIndicator[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(CurrentLocationRetrieved.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CurrentLocationRetrieved.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CurrentLocationRetrieved[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(DaylightSavingTime.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return DaylightSavingTime.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new DaylightSavingTime[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ErrorDiagnostic.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ErrorDiagnostic.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ErrorDiagnostic[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(GMLCRestriction.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return GMLCRestriction.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new GMLCRestriction[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(HomogeneousSupportOfIMSVoiceOverPSSessions.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return HomogeneousSupportOfIMSVoiceOverPSSessions.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new HomogeneousSupportOfIMSVoiceOverPSSessions[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ICSIndicator.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ICSIndicator.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ICSIndicator[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(IMSVoiceOverPSSessionsSupported.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return IMSVoiceOverPSSessionsSupported.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new IMSVoiceOverPSSessionsSupported[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(JobType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return JobType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new JobType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(LIPAPermission.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return LIPAPermission.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LIPAPermission[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(LoggingDuration.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return LoggingDuration.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LoggingDuration[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(LoggingInterval.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return LoggingInterval.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LoggingInterval[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MDTUserConsent.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MDTUserConsent.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MDTUserConsent[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MeasurementPeriodLTE.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MeasurementPeriodLTE.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MeasurementPeriodLTE[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(MeasurementPeriodUMTS.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return MeasurementPeriodUMTS.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MeasurementPeriodUMTS[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(NetworkAccessMode.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return NetworkAccessMode.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new NetworkAccessMode[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(NotificationToUEUser.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return NotificationToUEUser.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new NotificationToUEUser[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PDNGWAllocationType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PDNGWAllocationType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PDNGWAllocationType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PDNType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PDNType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PDNType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PLMNClient.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PLMNClient.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PLMNClient[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PreEmptionCapability.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PreEmptionCapability.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PreEmptionCapability[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(PreEmptionVulnerability.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return PreEmptionVulnerability.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PreEmptionVulnerability[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(QoSClassIdentifier.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return QoSClassIdentifier.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new QoSClassIdentifier[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RATType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RATType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RATType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RelayNodeIndicator.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RelayNodeIndicator.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RelayNodeIndicator[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReportAmount.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReportAmount.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReportAmount[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(ReportInterval.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return ReportInterval.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ReportInterval[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RoamingRestrictedDueToUnsupportedFeature.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RoamingRestrictedDueToUnsupportedFeature.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RoamingRestrictedDueToUnsupportedFeature[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SIPTOPermission.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SIPTOPermission.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SIPTOPermission[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SMSRegisterRequest.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SMSRegisterRequest.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SMSRegisterRequest[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SubscribedVSRVCC.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SubscribedVSRVCC.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SubscribedVSRVCC[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SubscriberStatus.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SubscriberStatus.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SubscriberStatus[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(UESRVCCCapability.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return UESRVCCCapability.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UESRVCCCapability[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(UserState.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return UserState.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UserState[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(VPLMNDynamicAddressAllowed.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return VPLMNDynamicAddressAllowed.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new VPLMNDynamicAddressAllowed[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(VPLMNLIPAAllowed.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return VPLMNLIPAAllowed.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new VPLMNLIPAAllowed[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AMBRAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AMBRAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AMBRAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(APNConfigurationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new APNConfigurationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new APNConfigurationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(APNConfigurationProfileAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new APNConfigurationProfileAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new APNConfigurationProfileAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ActiveAPNAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ActiveAPNAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ActiveAPNAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AllocationRetentionPriorityAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AllocationRetentionPriorityAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AllocationRetentionPriorityAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AreaScopeAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AreaScopeAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AreaScopeAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(AuthenticationInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new AuthenticationInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new AuthenticationInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(CSGSubscriptionDataAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new CSGSubscriptionDataAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CSGSubscriptionDataAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(CallBarringInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new CallBarringInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CallBarringInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EPSLocationInformationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EPSLocationInformationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EPSLocationInformationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EPSSubscribedQoSProfileAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EPSSubscribedQoSProfileAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EPSSubscribedQoSProfileAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EPSUserStateAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EPSUserStateAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EPSUserStateAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EUTRANVectorAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EUTRANVectorAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EUTRANVectorAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(EquivalentPLMNListAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new EquivalentPLMNListAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new EquivalentPLMNListAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ExternalClientAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ExternalClientAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ExternalClientAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(GERANVectorAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new GERANVectorAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new GERANVectorAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(GPRSSubscriptionDataAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new GPRSSubscriptionDataAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new GPRSSubscriptionDataAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(LCSInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new LCSInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LCSInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(LCSPrivacyExceptionAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new LCSPrivacyExceptionAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LCSPrivacyExceptionAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(LocalTimeZoneAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new LocalTimeZoneAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new LocalTimeZoneAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MDTConfigurationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MDTConfigurationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MDTConfigurationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MIP6AgentInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MIP6AgentInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MIP6AgentInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MIPHomeAgentHostAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MIPHomeAgentHostAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MIPHomeAgentHostAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MMELocationInformationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MMELocationInformationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MMELocationInformationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MMEUserStateAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MMEUserStateAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MMEUserStateAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(MOLRAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new MOLRAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new MOLRAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(PDPContextAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new PDPContextAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new PDPContextAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ProSeAllowedPLMNAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ProSeAllowedPLMNAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ProSeAllowedPLMNAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ProSeSubscriptionDataAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ProSeSubscriptionDataAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ProSeSubscriptionDataAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(RequestedEUTRANAuthenticationInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new RequestedEUTRANAuthenticationInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RequestedEUTRANAuthenticationInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(RequestedUTRANGERANAuthenticationInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new RequestedUTRANGERANAuthenticationInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RequestedUTRANGERANAuthenticationInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SGSNLocationInformationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SGSNLocationInformationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SGSNLocationInformationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SGSNUserStateAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SGSNUserStateAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SGSNUserStateAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(ServiceTypeAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new ServiceTypeAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new ServiceTypeAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SpecificAPNInfoAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SpecificAPNInfoAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SpecificAPNInfoAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SubscriptionDataAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SubscriptionDataAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SubscriptionDataAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SupportedFeaturesAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SupportedFeaturesAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SupportedFeaturesAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(TeleserviceListAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new TeleserviceListAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TeleserviceListAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(TerminalInformationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new TerminalInformationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TerminalInformationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(TraceDataAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new TraceDataAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new TraceDataAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(UTRANVectorAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new UTRANVectorAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UTRANVectorAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(UserCSGInformationAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new UserCSGInformationAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UserCSGInformationAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(VPLMNCSGSubscriptionDataAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new VPLMNCSGSubscriptionDataAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new VPLMNCSGSubscriptionDataAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(WLANoffloadabilityAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new WLANoffloadabilityAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new WLANoffloadabilityAvpImpl[size];
+      }
+    });
+  }
+
+  private S6aAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
@@ -27,10 +27,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.slee.EventTypeID;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.resource.FireableEventType;
-
 import net.java.slee.resource.diameter.s6a.events.AuthenticationInformationRequest;
 import net.java.slee.resource.diameter.s6a.events.CancelLocationRequest;
 import net.java.slee.resource.diameter.s6a.events.DeleteSubscriberDataRequest;
@@ -41,9 +37,9 @@ import net.java.slee.resource.diameter.s6a.events.ResetRequest;
 import net.java.slee.resource.diameter.s6a.events.UpdateLocationRequest;
 import net.java.slee.resource.diameter.s6a.events.NotifyRequest;
 
-import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.FireableEventTypeResolver;
 
-public class EventIDCache {
+public class EventIDCache extends FireableEventTypeResolver {
 
     private static final String BASE_PACKAGE_PREFIX = "net.java.slee.resource.diameter.base.events.";
     private static final String S6A_PACKAGE_PREFIX = "net.java.slee.resource.diameter.s6a.events.";
@@ -66,61 +62,9 @@ public class EventIDCache {
     }
     public static final String ERROR_ANSWER = BASE_PACKAGE_PREFIX + "ErrorAnswer";
     public static final String EXTENSION_DIAMETER_MESSAGE = BASE_PACKAGE_PREFIX + "ExtensionDiameterMessage";
-    private static final String VENDOR = "java.net";
-    private static final String VERSION = "0.8";
-    private ConcurrentHashMap<String, FireableEventType> eventIds = new ConcurrentHashMap<String, FireableEventType>();
 
     public EventIDCache() {
+        super(eventNames, ERROR_ANSWER, EXTENSION_DIAMETER_MESSAGE);
     }
 
-    /**
-     * 
-     * @param eventLookupFacility
-     * @param message
-     * @return
-     */
-    public FireableEventType getEventId(EventLookupFacility eventLookupFacility, Message message) {
-
-        FireableEventType eventID = null;
-
-        // Error is always the same.
-        if (message.isError()) {
-            eventID = getEventId(eventLookupFacility, ERROR_ANSWER);
-        } else {
-            final int commandCode = message.getCommandCode();
-            final boolean isRequest = message.isRequest();
-
-            String eventName = eventNames.get(commandCode);
-
-            if (eventName != null) {
-                eventID = getEventId(eventLookupFacility, eventName + (isRequest ? "Request" : "Answer"));
-            } else {
-                eventID = getEventId(eventLookupFacility, EXTENSION_DIAMETER_MESSAGE);
-            }
-        }
-
-        return eventID;
-    }
-
-    /**
-     * 
-     * @param eventLookupFacility
-     * @param eventName
-     * @return
-     */
-    private FireableEventType getEventId(EventLookupFacility eventLookupFacility, String eventName) {
-
-        FireableEventType eventType = eventIds.get(eventName);
-        if (eventType == null) {
-            try {
-                eventType = eventLookupFacility.getFireableEventType(new EventTypeID(eventName, VENDOR, VERSION));
-            } catch (Throwable e) {
-                e.printStackTrace();
-            }
-            if (eventType != null) {
-                eventIds.put(eventName, eventType);
-            }
-        }
-        return eventType;
-    }
 }
@@ -28,6 +28,7 @@ import net.java.slee.resource.diameter.s6a.S6aAVPFactory;
 import net.java.slee.resource.diameter.s6a.events.avp.*;
 
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
+import org.mobicents.slee.resource.diameter.s6a.events.avp.S6aAvpCodecs;
 import org.mobicents.slee.resource.diameter.s6a.events.avp.*;
 
 import static net.java.slee.resource.diameter.s6a.events.avp.DiameterS6aAvpCodes.*;
@@ -40,6 +41,10 @@ import static net.java.slee.resource.diameter.s6a.events.avp.DiameterS6aAvpCodes
  */
 public class S6aAVPFactoryImpl extends DiameterAvpFactoryImpl implements S6aAVPFactory {
 
+  static {
+    S6aAvpCodecs.register();
+  }
+
     // TODO: Add helper create methods for the composite AVPs
     protected DiameterAvpFactory baseAvpFactory;
 
@@ -24,6 +24,8 @@ package org.mobicents.slee.resource.diameter.s6a;
 
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.s6a.S6aMessageFactory;
@@ -43,6 +45,7 @@ import org.jdiameter.api.Message;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.Stack;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.s6a.events.AuthenticationInformationAnswerImpl;
 import org.mobicents.slee.resource.diameter.s6a.events.AuthenticationInformationRequestImpl;
@@ -94,6 +97,21 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     super(stack);
   }
 
+  /**
+   * @param session
+   * @param rawMessageCreator
+   */
+  public S6aMessageFactoryImpl(Session session, RawMessageCreator rawMessageCreator) {
+    super(session, rawMessageCreator);
+  }
+
+  /**
+   * @param rawMessageCreator
+   */
+  public S6aMessageFactoryImpl(RawMessageCreator rawMessageCreator) {
+    super(rawMessageCreator);
+  }
+
   public void setApplicationId(long vendorId, long applicationId) {
     this.s6aAppId = ApplicationId.createByAuthAppId(vendorId, applicationId);      
   }
@@ -186,6 +204,16 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link AuthenticationInformationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public AuthenticationInformationRequest createAuthenticationInformationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    AuthenticationInformationRequest msg = createAuthenticationInformationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public AuthenticationInformationRequest createAuthenticationInformationRequest(String sessionId) throws IllegalArgumentException {
     AuthenticationInformationRequest uar = createAuthenticationInformationRequest();
     uar.setSessionId(sessionId);
@@ -203,6 +231,16 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link CancelLocationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public CancelLocationRequest createCancelLocationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    CancelLocationRequest msg = createCancelLocationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public CancelLocationRequest createCancelLocationRequest(String sessionId) throws IllegalArgumentException {
     CancelLocationRequest clr = createCancelLocationRequest();
     clr.setSessionId(sessionId);
@@ -219,6 +257,16 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link PurgeUERequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public PurgeUERequest createPurgeUERequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    PurgeUERequest msg = createPurgeUERequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public PurgeUERequest createPurgeUERequest(String sessionId) throws IllegalArgumentException {
     PurgeUERequest uar = createPurgeUERequest();
     uar.setSessionId(sessionId);
@@ -235,6 +283,16 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link UpdateLocationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public UpdateLocationRequest createUpdateLocationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    UpdateLocationRequest msg = createUpdateLocationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public UpdateLocationRequest createUpdateLocationRequest(String sessionId) throws IllegalArgumentException {
     UpdateLocationRequest uar = createUpdateLocationRequest();
     uar.setSessionId(sessionId);
@@ -251,6 +309,16 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link InsertSubscriberDataRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public InsertSubscriberDataRequest createInsertSubscriberDataRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    InsertSubscriberDataRequest msg = createInsertSubscriberDataRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public InsertSubscriberDataRequest createInsertSubscriberDataRequest(String sessionId) throws IllegalArgumentException {
     InsertSubscriberDataRequest idr = createInsertSubscriberDataRequest();
     idr.setSessionId(sessionId);
@@ -267,6 +335,16 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link DeleteSubscriberDataRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public DeleteSubscriberDataRequest createDeleteSubscriberDataRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    DeleteSubscriberDataRequest msg = createDeleteSubscriberDataRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public DeleteSubscriberDataRequest createDeleteSubscriberDataRequest(String sessionId) throws IllegalArgumentException {
     DeleteSubscriberDataRequest dsr = createDeleteSubscriberDataRequest();
     dsr.setSessionId(sessionId);
@@ -283,6 +361,16 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link ResetRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public ResetRequest createResetRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    ResetRequest msg = createResetRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public ResetRequest createResetRequest(String sessionId) throws IllegalArgumentException {
     ResetRequest rsr = createResetRequest();
     rsr.setSessionId(sessionId);
@@ -299,6 +387,16 @@ public class S6aMessageFactoryImpl extends DiameterMessageFactoryImpl implements
     return null;
   }
 
+  /**
+   * Creates a {@link NotifyRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public NotifyRequest createNotifyRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    NotifyRequest msg = createNotifyRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public NotifyRequest createNotifyRequest(String sessionId) throws IllegalArgumentException {
     NotifyRequest nor = createNotifyRequest();
     nor.setSessionId(sessionId);
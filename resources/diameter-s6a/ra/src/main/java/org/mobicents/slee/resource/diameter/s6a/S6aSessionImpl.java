@@ -91,6 +91,12 @@ public abstract class S6aSessionImpl extends DiameterActivityImpl implements S6a
     this.lastRequest = s6aRequest;
   }
 
+  @Override
+  protected boolean isAsyncRequestSupported() {
+    // requests go through the S6a application session, even when the RA listens to the activity
+    return false;
+  }
+
   /**
    * Fills message with session AVPs if present and/or needed.
    * 
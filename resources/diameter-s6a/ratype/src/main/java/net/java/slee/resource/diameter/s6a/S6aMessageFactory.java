@@ -22,6 +22,8 @@
 
 package net.java.slee.resource.diameter.s6a;
 
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.s6a.events.AuthenticationInformationRequest;
 import net.java.slee.resource.diameter.s6a.events.CancelLocationRequest;
 import net.java.slee.resource.diameter.s6a.events.DeleteSubscriberDataRequest;
@@ -57,25 +59,105 @@ public interface S6aMessageFactory {
   UpdateLocationRequest createUpdateLocationRequest();
   UpdateLocationRequest createUpdateLocationRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link UpdateLocationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new UpdateLocationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  UpdateLocationRequest createUpdateLocationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   AuthenticationInformationRequest createAuthenticationInformationRequest();
   AuthenticationInformationRequest createAuthenticationInformationRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link AuthenticationInformationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new AuthenticationInformationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  AuthenticationInformationRequest createAuthenticationInformationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   CancelLocationRequest createCancelLocationRequest();
   CancelLocationRequest createCancelLocationRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link CancelLocationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new CancelLocationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  CancelLocationRequest createCancelLocationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   InsertSubscriberDataRequest createInsertSubscriberDataRequest();
   InsertSubscriberDataRequest createInsertSubscriberDataRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link InsertSubscriberDataRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new InsertSubscriberDataRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  InsertSubscriberDataRequest createInsertSubscriberDataRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   DeleteSubscriberDataRequest createDeleteSubscriberDataRequest();
   DeleteSubscriberDataRequest createDeleteSubscriberDataRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link DeleteSubscriberDataRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new DeleteSubscriberDataRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  DeleteSubscriberDataRequest createDeleteSubscriberDataRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   PurgeUERequest createPurgeUERequest();
   PurgeUERequest createPurgeUERequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link PurgeUERequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new PurgeUERequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  PurgeUERequest createPurgeUERequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   ResetRequest createResetRequest();
   ResetRequest createResetRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link ResetRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new ResetRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  ResetRequest createResetRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   NotifyRequest createNotifyRequest();
   NotifyRequest createNotifyRequest(String sessionId) throws IllegalArgumentException;
 
+  /**
+   * Creates a {@link NotifyRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new NotifyRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  NotifyRequest createNotifyRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
 }
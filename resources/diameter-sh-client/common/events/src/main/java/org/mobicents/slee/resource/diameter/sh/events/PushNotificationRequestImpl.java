@@ -22,26 +22,16 @@
 
 package org.mobicents.slee.resource.diameter.sh.events;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
-
 import net.java.slee.resource.diameter.sh.events.PushNotificationRequest;
 import net.java.slee.resource.diameter.sh.events.avp.DiameterShAvpCodes;
 import net.java.slee.resource.diameter.sh.events.avp.UserIdentityAvp;
 import net.java.slee.resource.diameter.sh.events.avp.userdata.ShData;
-import net.java.slee.resource.diameter.sh.events.avp.userdata.UserDataObjectFactory;
 
 import org.jdiameter.api.Message;
 import org.mobicents.slee.resource.diameter.sh.events.avp.UserIdentityAvpImpl;
-import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.ObjectFactory;
-import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.TShData;
-import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.UserDataObjectFactoryImpl;
+import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.ShDataMarshaller;
 
 /**
  * 
@@ -54,20 +44,6 @@ public class PushNotificationRequestImpl extends DiameterShMessageImpl implement
 
   private static final long serialVersionUID = 3454964740059530884L;
 
-  private static JAXBContext jaxbContext = initJAXBContext();
-  private static UserDataObjectFactory udof = new UserDataObjectFactoryImpl(new ObjectFactory());
-
-  private static JAXBContext initJAXBContext() {
-    try {
-      return JAXBContext.newInstance(org.mobicents.slee.resource.diameter.sh.events.avp.userdata.TShData.class);
-    }
-    catch (Exception e) {
-    	e.printStackTrace();
-      // we can't throw exception
-      return null;
-    }
-  }
-
   /**
    * 
    * @param msg
@@ -124,18 +100,13 @@ public class PushNotificationRequestImpl extends DiameterShMessageImpl implement
    * @see net.java.slee.resource.diameter.sh.events.PushNotificationRequest#getUserDataObject()
    */
   public ShData getUserDataObject() throws IOException {
-    ShData shDataObject = null;
     try {
-      Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-
       byte[] data = getAvpAsRaw(DiameterShAvpCodes.USER_DATA, DiameterShAvpCodes.SH_VENDOR_ID);
-      JAXBElement<TShData> jaxbElem = udof.createShData((TShData) unmarshaller.unmarshal(new ByteArrayInputStream(data)));
-      shDataObject = (ShData) jaxbElem.getValue();
+      return ShDataMarshaller.getInstance().unmarshal(data);
     }
     catch (Exception e) {
       throw new IOException("Failed to unmarshal User-Data AVP into JAXB Object", e);
     }
-    return shDataObject;
   }
 
   /*
@@ -152,11 +123,7 @@ public class PushNotificationRequestImpl extends DiameterShMessageImpl implement
    */
   public void setUserDataObject(ShData userData) throws IOException {
     try {
-      Marshaller marshaller = jaxbContext.createMarshaller();
-
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-      marshaller.marshal(userData, baos);
-      addAvp(DiameterShAvpCodes.USER_DATA, DiameterShAvpCodes.SH_VENDOR_ID, baos.toByteArray());
+      addAvp(DiameterShAvpCodes.USER_DATA, DiameterShAvpCodes.SH_VENDOR_ID, ShDataMarshaller.getInstance().marshal(userData));
     }
     catch (Exception e) {
       throw new IOException("Failed to marshal JAXB Object to User-Data AVP", e);
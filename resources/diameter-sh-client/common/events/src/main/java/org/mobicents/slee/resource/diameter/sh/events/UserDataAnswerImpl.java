@@ -22,28 +22,18 @@
 
 package org.mobicents.slee.resource.diameter.sh.events;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
-
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
 import net.java.slee.resource.diameter.base.events.avp.ExperimentalResultAvp;
 import net.java.slee.resource.diameter.sh.events.UserDataAnswer;
 import net.java.slee.resource.diameter.sh.events.avp.DiameterShAvpCodes;
 import net.java.slee.resource.diameter.sh.events.avp.userdata.ShData;
-import net.java.slee.resource.diameter.sh.events.avp.userdata.UserDataObjectFactory;
 
 import org.jdiameter.api.Avp;
 import org.jdiameter.api.Message;
 import org.mobicents.slee.resource.diameter.base.events.avp.ExperimentalResultAvpImpl;
-import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.ObjectFactory;
-import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.TShData;
-import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.UserDataObjectFactoryImpl;
+import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.ShDataMarshaller;
 
 /**
  * 
@@ -56,19 +46,6 @@ public class UserDataAnswerImpl extends DiameterShMessageImpl implements UserDat
 
   private static final long serialVersionUID = -6240588207973076841L;
 
-  private static JAXBContext jaxbContext = initJAXBContext();
-  private static UserDataObjectFactory udof = new UserDataObjectFactoryImpl(new ObjectFactory());
-
-  private static JAXBContext initJAXBContext() {
-    try {
-      return JAXBContext.newInstance(org.mobicents.slee.resource.diameter.sh.events.avp.userdata.TShData.class);
-    }
-    catch (Exception e) {
-      // we can't throw exception
-      return null;
-    }
-  }
-
   /**
    * 
    * @param msg
@@ -102,18 +79,13 @@ public class UserDataAnswerImpl extends DiameterShMessageImpl implements UserDat
    * @see net.java.slee.resource.diameter.sh.events.UserDataAnswer#getUserDataObject()
    */
   public ShData getUserDataObject() throws IOException {
-    ShData shDataObject = null;
     try {
-      Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-
       byte[] data = getAvpAsRaw(DiameterShAvpCodes.USER_DATA, DiameterShAvpCodes.SH_VENDOR_ID);
-      JAXBElement<TShData> jaxbElem = udof.createShData((TShData) unmarshaller.unmarshal(new ByteArrayInputStream(data)));
-      shDataObject = (ShData) jaxbElem.getValue();
+      return ShDataMarshaller.getInstance().unmarshal(data);
     }
     catch (Exception e) {
       throw new IOException("Failed to unmarshal User-Data AVP into JAXB Object", e);
     }
-    return shDataObject;
   }
 
   /*
@@ -130,11 +102,7 @@ public class UserDataAnswerImpl extends DiameterShMessageImpl implements UserDat
    */
   public void setUserDataObject(ShData userData) throws IOException {
     try {
-      Marshaller marshaller = jaxbContext.createMarshaller();
-
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-      marshaller.marshal(userData, baos);
-      addAvp(DiameterShAvpCodes.USER_DATA, DiameterShAvpCodes.SH_VENDOR_ID, baos.toByteArray());
+      addAvp(DiameterShAvpCodes.USER_DATA, DiameterShAvpCodes.SH_VENDOR_ID, ShDataMarshaller.getInstance().marshal(userData));
     }
     catch (Exception e) {
       throw new IOException("Failed to marshal JAXB Object to User-Data AVP", e);
@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.sh.events.avp;
+
+import net.java.slee.resource.diameter.sh.events.avp.CurrentLocationType;
+import net.java.slee.resource.diameter.sh.events.avp.DataReferenceType;
+import net.java.slee.resource.diameter.sh.events.avp.IdentitySetType;
+import net.java.slee.resource.diameter.sh.events.avp.OneTimeNotificationType;
+import net.java.slee.resource.diameter.sh.events.avp.RequestedDomainType;
+import net.java.slee.resource.diameter.sh.events.avp.SendDataIndicationType;
+import net.java.slee.resource.diameter.sh.events.avp.SessionPriorityType;
+import net.java.slee.resource.diameter.sh.events.avp.SubsReqType;
+
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.EnumeratedFactory;
+import org.mobicents.slee.resource.diameter.base.events.avp.AvpCodecRegistry.GroupedAvpFactory;
+
+/**
+ * Codec table for the Diameter Sh AVP types, registered in {@link AvpCodecRegistry} when
+ * this class is loaded. Keep it in sync when adding Grouped AVP implementations
+ * or Enumerated types to this module.
+ */
+public final class ShAvpCodecs {
+
+  static {
+    AvpCodecRegistry.registerEnumerated(CurrentLocationType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return CurrentLocationType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new CurrentLocationType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(DataReferenceType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return DataReferenceType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new DataReferenceType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(IdentitySetType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return IdentitySetType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new IdentitySetType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(OneTimeNotificationType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return OneTimeNotificationType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new OneTimeNotificationType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(RequestedDomainType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return RequestedDomainType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new RequestedDomainType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SendDataIndicationType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SendDataIndicationType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SendDataIndicationType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SessionPriorityType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SessionPriorityType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SessionPriorityType[size];
+      }
+    });
+    AvpCodecRegistry.registerEnumerated(SubsReqType.class, new EnumeratedFactory() {
+      public Object fromInt(int value) {
+        return SubsReqType.fromInt(value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SubsReqType[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SupportedApplicationsAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SupportedApplicationsAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SupportedApplicationsAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(SupportedFeaturesAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new SupportedFeaturesAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new SupportedFeaturesAvpImpl[size];
+      }
+    });
+    AvpCodecRegistry.registerGrouped(UserIdentityAvpImpl.class, new GroupedAvpFactory() {
+      public Object newInstance(int code, long vendorId, int mnd, int prt, byte[] value) {
+        return new UserIdentityAvpImpl(code, vendorId, mnd, prt, value);
+      }
+
+      public Object[] newArray(int size) {
+        return new UserIdentityAvpImpl[size];
+      }
+    });
+  }
+
+  private ShAvpCodecs() {
+  }
+
+  /**
+   * Makes sure this codec table has been registered. Registration itself is done
+   * once, by the static initializer.
+   */
+  public static void register() {
+    // nothing to do, loading the class is enough
+  }
+
+}
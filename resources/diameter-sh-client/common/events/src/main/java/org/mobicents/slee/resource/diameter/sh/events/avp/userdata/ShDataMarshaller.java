@@ -0,0 +1,234 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.sh.events.avp.userdata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamReader;
+
+import net.java.slee.resource.diameter.sh.events.avp.userdata.ShData;
+
+/**
+ * Marshals and unmarshals Sh User-Data (the {@link ShData} model) with a
+ * shared {@link JAXBContext}.
+ *
+ * The context is created once. {@link Marshaller} and {@link Unmarshaller}
+ * instances are not thread-safe, so they are kept in a bounded pool and each
+ * one is used by a single thread at a time. Instances are thread-safe.
+ */
+public final class ShDataMarshaller {
+
+  // the classes of the Sh User-Data model
+  private static final Class<?>[] SH_DATA_CLASSES = new Class<?>[] {
+    ObjectFactory.class, TIFCs.class, TSePoTri.class, TShIMSData.class, TApplicationServer.class, TISDNAddress.class,
+    TSePoTriExtension.class, TShIMSDataExtension.class, TCSLocationInformation.class, TInitialFilterCriteria.class,
+    TServiceData.class, TShIMSDataExtension2.class, TChargingInformation.class, TPSLocationInformation.class,
+    TSessionDescription.class, TShIMSDataExtension3.class, TDSAI.class, TPublicIdentity.class, TShData.class,
+    TTransparentData.class, TExtension.class, TPublicIdentityExtension.class, TShDataExtension.class, TTrigger.class,
+    THeader.class, TPublicIdentityExtension2.class, TShDataExtension2.class
+  };
+
+  // maximum number of idle marshallers and unmarshallers kept, each
+  private static final int MAX_POOL_SIZE = 64;
+
+  private static volatile ShDataMarshaller instance;
+
+  // instances with extra classes in the context, by those classes. They hang
+  // off the first extra class, so they go away with its class loader instead
+  // of pinning it
+  private static final ClassValue<ConcurrentHashMap<List<Class<?>>, ShDataMarshaller>> extendedInstances = new ClassValue<ConcurrentHashMap<List<Class<?>>, ShDataMarshaller>>() {
+    @Override
+    protected ConcurrentHashMap<List<Class<?>>, ShDataMarshaller> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<List<Class<?>>, ShDataMarshaller>();
+    }
+  };
+
+  private final JAXBContext context;
+
+  private final ConcurrentLinkedQueue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+  private final AtomicInteger idleUnmarshallers = new AtomicInteger();
+  private final ConcurrentLinkedQueue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+  private final AtomicInteger idleMarshallers = new AtomicInteger();
+
+  private ShDataMarshaller(Class<?>... extraClasses) throws JAXBException {
+    Class<?>[] classes = Arrays.copyOf(SH_DATA_CLASSES, SH_DATA_CLASSES.length + extraClasses.length);
+    System.arraycopy(extraClasses, 0, classes, SH_DATA_CLASSES.length, extraClasses.length);
+
+    this.context = JAXBContext.newInstance(classes);
+  }
+
+  /**
+   * @return the instance for the Sh User-Data model
+   * @throws JAXBException if the JAXB context could not be created
+   */
+  public static ShDataMarshaller getInstance() throws JAXBException {
+    ShDataMarshaller marshaller = instance;
+    if (marshaller == null) {
+      synchronized (ShDataMarshaller.class) {
+        marshaller = instance;
+        if (marshaller == null) {
+          marshaller = instance = new ShDataMarshaller();
+        }
+      }
+    }
+
+    return marshaller;
+  }
+
+  /**
+   * @param extraClasses custom classes to add to the JAXB context, eg, for extension elements
+   * @return the instance for the Sh User-Data model and the given classes
+   * @throws JAXBException if the JAXB context could not be created
+   */
+  public static ShDataMarshaller getInstance(Class<?>... extraClasses) throws JAXBException {
+    if (extraClasses == null || extraClasses.length == 0) {
+      return getInstance();
+    }
+
+    List<Class<?>> key = Arrays.asList(extraClasses.clone());
+    ConcurrentHashMap<List<Class<?>>, ShDataMarshaller> instances = extendedInstances.get(key.get(0));
+    ShDataMarshaller marshaller = instances.get(key);
+    if (marshaller == null) {
+      marshaller = new ShDataMarshaller(extraClasses);
+      ShDataMarshaller existing = instances.putIfAbsent(key, marshaller);
+      if (existing != null) {
+        marshaller = existing;
+      }
+    }
+
+    return marshaller;
+  }
+
+  public JAXBContext getContext() {
+    return context;
+  }
+
+  /**
+   * Unmarshals a complete User-Data document.
+   *
+   * @param userData the User-Data AVP value
+   * @return the User-Data object
+   * @throws JAXBException if the data can't be unmarshalled
+   */
+  public ShData unmarshal(byte[] userData) throws JAXBException {
+    Unmarshaller unmarshaller = borrowUnmarshaller();
+    try {
+      Object shData = unmarshaller.unmarshal(new ByteArrayInputStream(userData));
+      // the root element may be bound through the ObjectFactory
+      if (shData instanceof JAXBElement) {
+        shData = ((JAXBElement<?>) shData).getValue();
+      }
+
+      return (ShData) shData;
+    }
+    finally {
+      releaseUnmarshaller(unmarshaller);
+    }
+  }
+
+  /**
+   * Unmarshals the element the reader is positioned at, leaving the reader
+   * positioned after its end.
+   *
+   * @param reader the reader, positioned at a start element
+   * @param type the type to bind the element to
+   * @return the element value
+   * @throws JAXBException if the element can't be unmarshalled
+   */
+  public <T> T unmarshal(XMLStreamReader reader, Class<T> type) throws JAXBException {
+    Unmarshaller unmarshaller = borrowUnmarshaller();
+    try {
+      return unmarshaller.unmarshal(reader, type).getValue();
+    }
+    finally {
+      releaseUnmarshaller(unmarshaller);
+    }
+  }
+
+  /**
+   * @param userData the User-Data object
+   * @return the User-Data AVP value
+   * @throws JAXBException if the object can't be marshalled
+   */
+  public byte[] marshal(Object userData) throws JAXBException {
+    Marshaller marshaller = borrowMarshaller();
+    try {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      marshaller.marshal(userData, baos);
+      return baos.toByteArray();
+    }
+    finally {
+      releaseMarshaller(marshaller);
+    }
+  }
+
+  private Unmarshaller borrowUnmarshaller() throws JAXBException {
+    Unmarshaller unmarshaller = unmarshallers.poll();
+    if (unmarshaller != null) {
+      idleUnmarshallers.decrementAndGet();
+      return unmarshaller;
+    }
+
+    return context.createUnmarshaller();
+  }
+
+  private void releaseUnmarshaller(Unmarshaller unmarshaller) {
+    if (idleUnmarshallers.incrementAndGet() <= MAX_POOL_SIZE) {
+      unmarshallers.offer(unmarshaller);
+    }
+    else {
+      idleUnmarshallers.decrementAndGet();
+    }
+  }
+
+  private Marshaller borrowMarshaller() throws JAXBException {
+    Marshaller marshaller = marshallers.poll();
+    if (marshaller != null) {
+      idleMarshallers.decrementAndGet();
+      return marshaller;
+    }
+
+    return context.createMarshaller();
+  }
+
+  private void releaseMarshaller(Marshaller marshaller) {
+    if (idleMarshallers.incrementAndGet() <= MAX_POOL_SIZE) {
+      marshallers.offer(marshaller);
+    }
+    else {
+      idleMarshallers.decrementAndGet();
+    }
+  }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.sh.events.avp.userdata;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming reader for single sections of Sh User-Data.
+ *
+ * The document is scanned with StAX and only the requested elements are bound,
+ * so reading, for instance, the repository data of one service indication does
+ * not build the JAXB tree for the whole User-Data. To read the whole document,
+ * use {@link ShDataMarshaller#unmarshal(byte[])}.
+ */
+public final class ShDataReader {
+
+  public static final String REPOSITORY_DATA = "RepositoryData";
+  public static final String SH_IMS_DATA = "Sh-IMS-Data";
+  public static final String PUBLIC_IDENTIFIERS = "PublicIdentifiers";
+  public static final String IMS_USER_STATE = "IMSUserState";
+  public static final String CS_USER_STATE = "CSUserState";
+  public static final String PS_USER_STATE = "PSUserState";
+
+  private static final XMLInputFactory inputFactory = createInputFactory();
+
+  private ShDataReader() {
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    // User-Data comes from the network
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+    return factory;
+  }
+
+  /**
+   * @param userData the User-Data AVP value
+   * @param serviceIndication the Service-Indication of the repository data
+   * @return the repository data for the Service-Indication, or null if not present
+   * @throws IOException if the User-Data can't be read
+   */
+  public static TTransparentData readRepositoryData(byte[] userData, String serviceIndication) throws IOException {
+    XMLStreamReader reader = createReader(userData);
+    try {
+      ShDataMarshaller marshaller = ShDataMarshaller.getInstance();
+      while (nextElement(reader, REPOSITORY_DATA)) {
+        TTransparentData repositoryData = marshaller.unmarshal(reader, TTransparentData.class);
+        if (serviceIndication.equals(repositoryData.getServiceIndication())) {
+          return repositoryData;
+        }
+      }
+
+      return null;
+    }
+    catch (XMLStreamException e) {
+      throw new IOException("Failed to read " + REPOSITORY_DATA + " from User-Data", e);
+    }
+    catch (JAXBException e) {
+      throw new IOException("Failed to read " + REPOSITORY_DATA + " from User-Data", e);
+    }
+    finally {
+      close(reader);
+    }
+  }
+
+  /**
+   * @param userData the User-Data AVP value
+   * @return the first IMSUserState in the User-Data, or null if not present
+   * @throws IOException if the User-Data can't be read
+   */
+  public static Short readIMSUserState(byte[] userData) throws IOException {
+    String text = readText(userData, IMS_USER_STATE);
+
+    try {
+      return text != null ? Short.valueOf(text.trim()) : null;
+    }
+    catch (NumberFormatException e) {
+      throw new IOException("Invalid " + IMS_USER_STATE + " in User-Data: " + text, e);
+    }
+  }
+
+  /**
+   * Binds all the elements with the given name, at any depth.
+   *
+   * @param userData the User-Data AVP value
+   * @param localName the element name, eg, {@link #REPOSITORY_DATA}
+   * @param type the type to bind the elements to, eg, {@link TTransparentData}
+   * @return the elements found, in document order
+   * @throws IOException if the User-Data can't be read
+   */
+  public static <T> List<T> readElements(byte[] userData, String localName, Class<T> type) throws IOException {
+    XMLStreamReader reader = createReader(userData);
+    try {
+      ShDataMarshaller marshaller = ShDataMarshaller.getInstance();
+      List<T> elements = new ArrayList<T>();
+      while (nextElement(reader, localName)) {
+        elements.add(marshaller.unmarshal(reader, type));
+      }
+
+      return elements;
+    }
+    catch (XMLStreamException e) {
+      throw new IOException("Failed to read " + localName + " from User-Data", e);
+    }
+    catch (JAXBException e) {
+      throw new IOException("Failed to read " + localName + " from User-Data", e);
+    }
+    finally {
+      close(reader);
+    }
+  }
+
+  /**
+   * Binds the first element with the given name, at any depth.
+   *
+   * @param userData the User-Data AVP value
+   * @param localName the element name, eg, {@link #SH_IMS_DATA}
+   * @param type the type to bind the element to, eg, {@link TShIMSData}
+   * @return the element, or null if not present
+   * @throws IOException if the User-Data can't be read
+   */
+  public static <T> T readElement(byte[] userData, String localName, Class<T> type) throws IOException {
+    XMLStreamReader reader = createReader(userData);
+    try {
+      return nextElement(reader, localName) ? ShDataMarshaller.getInstance().unmarshal(reader, type) : null;
+    }
+    catch (XMLStreamException e) {
+      throw new IOException("Failed to read " + localName + " from User-Data", e);
+    }
+    catch (JAXBException e) {
+      throw new IOException("Failed to read " + localName + " from User-Data", e);
+    }
+    finally {
+      close(reader);
+    }
+  }
+
+  /**
+   * @param userData the User-Data AVP value
+   * @param localName the name of a simple element, eg, {@link #CS_USER_STATE}
+   * @return the text of the first element with the given name, or null if not present
+   * @throws IOException if the User-Data can't be read
+   */
+  public static String readText(byte[] userData, String localName) throws IOException {
+    XMLStreamReader reader = createReader(userData);
+    try {
+      return nextElement(reader, localName) ? reader.getElementText() : null;
+    }
+    catch (XMLStreamException e) {
+      throw new IOException("Failed to read " + localName + " from User-Data", e);
+    }
+    finally {
+      close(reader);
+    }
+  }
+
+  private static XMLStreamReader createReader(byte[] userData) throws IOException {
+    try {
+      return inputFactory.createXMLStreamReader(new ByteArrayInputStream(userData));
+    }
+    catch (XMLStreamException e) {
+      throw new IOException("Failed to read User-Data", e);
+    }
+  }
+
+  /**
+   * Moves the reader to the next start of an element with the given name. The
+   * current event is checked first, as binding an element leaves the reader
+   * right after it.
+   *
+   * @return true if such element was found, false if the document ended
+   */
+  private static boolean nextElement(XMLStreamReader reader, String localName) throws XMLStreamException {
+    while (true) {
+      if (reader.getEventType() == XMLStreamConstants.START_ELEMENT && localName.equals(reader.getLocalName())) {
+        return true;
+      }
+      if (!reader.hasNext()) {
+        return false;
+      }
+      reader.next();
+    }
+  }
+
+  private static void close(XMLStreamReader reader) {
+    try {
+      reader.close();
+    }
+    catch (XMLStreamException e) {
+      // nothing to release for in-memory data
+    }
+  }
+
+}
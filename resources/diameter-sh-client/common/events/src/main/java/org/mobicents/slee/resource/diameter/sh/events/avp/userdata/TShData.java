@@ -22,14 +22,11 @@
 
 package org.mobicents.slee.resource.diameter.sh.events.avp.userdata;
 
-import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAnyElement;
@@ -229,12 +226,8 @@ public class TShData implements ShData {
       if(obj != null && obj.getClass().equals(this.getClass())) {
         // ugly, but it works
         try {
-          Marshaller marshaller = JAXBContext.newInstance("org.mobicents.slee.resource.diameter.sh.events.avp.userdata", getClass().getClassLoader()).createMarshaller();
-          ByteArrayOutputStream baosThis = new ByteArrayOutputStream();
-          marshaller.marshal(this, baosThis);
-          ByteArrayOutputStream baosOther = new ByteArrayOutputStream();
-          marshaller.marshal(this, baosOther);
-          return Arrays.equals(baosThis.toByteArray(), baosOther.toByteArray());
+          ShDataMarshaller marshaller = ShDataMarshaller.getInstance();
+          return Arrays.equals(marshaller.marshal(this), marshaller.marshal(obj));
         }
         catch (JAXBException e) {
           return false;
@@ -40,6 +40,7 @@ import net.java.slee.resource.diameter.sh.events.avp.SupportedFeaturesAvp;
 import net.java.slee.resource.diameter.sh.events.avp.UserIdentityAvp;
 
 import org.apache.log4j.Logger;
+import org.mobicents.slee.resource.diameter.sh.events.avp.ShAvpCodecs;
 import org.mobicents.slee.resource.diameter.sh.events.avp.SupportedApplicationsAvpImpl;
 import org.mobicents.slee.resource.diameter.sh.events.avp.SupportedFeaturesAvpImpl;
 import org.mobicents.slee.resource.diameter.sh.events.avp.UserIdentityAvpImpl;
@@ -57,6 +58,10 @@ import org.xml.sax.SAXParseException;
  */
 public class DiameterShAvpFactoryImpl implements DiameterShAvpFactory {
 
+  static {
+    ShAvpCodecs.register();
+  }
+
   protected DiameterAvpFactory baseAvpFactory = null;
   private DocumentBuilder docBuilder = null;
   protected final transient Logger logger = Logger.getLogger(this.getClass());
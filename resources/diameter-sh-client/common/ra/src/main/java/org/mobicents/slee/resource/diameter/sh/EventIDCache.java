@@ -25,12 +25,9 @@ package org.mobicents.slee.resource.diameter.sh;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.slee.EventTypeID;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.resource.FireableEventType;
-
 import net.java.slee.resource.diameter.base.events.AbortSessionRequest;
 import net.java.slee.resource.diameter.base.events.AccountingRequest;
 import net.java.slee.resource.diameter.base.events.CapabilitiesExchangeRequest;
@@ -43,7 +40,7 @@ import net.java.slee.resource.diameter.sh.events.PushNotificationRequest;
 import net.java.slee.resource.diameter.sh.events.SubscribeNotificationsRequest;
 import net.java.slee.resource.diameter.sh.events.UserDataRequest;
 
-import org.jdiameter.api.Message;
+import org.mobicents.slee.resource.diameter.FireableEventTypeResolver;
 
 /**
  * 
@@ -52,7 +49,7 @@ import org.jdiameter.api.Message;
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a>
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  */
-public class EventIDCache {
+public class EventIDCache extends FireableEventTypeResolver {
 
   private static final String BASE_PACKAGE_PREFIX = "net.java.slee.resource.diameter.base.events.";
 
@@ -83,66 +80,24 @@ public class EventIDCache {
   public static final String ERROR_ANSWER                = BASE_PACKAGE_PREFIX + "ErrorAnswer";
   public static final String EXTENSION_DIAMETER_MESSAGE  = BASE_PACKAGE_PREFIX + "ExtensionDiameterMessage";
 
-  private static final String VENDOR  = "java.net";
-  private static final String VERSION = "0.8";
-
-  private ConcurrentHashMap<String, FireableEventType> eventIds = new ConcurrentHashMap<String, FireableEventType>();
-
-  public EventIDCache() {
-  }
-
-  /**
-   * 
-   * @param eventLookupFacility
-   * @param message
-   * @return
-   */
-  public FireableEventType getEventId(EventLookupFacility eventLookupFacility, Message message) {
-
-    FireableEventType eventID = null;
-
-    // Error is always the same.
-    if (message.isError()) {
-      eventID = getEventId(eventLookupFacility, ERROR_ANSWER);
-    }
-    else {
-      final int commandCode = message.getCommandCode();
-      final boolean isRequest = message.isRequest();
+  // event types declared by the Sh Client RA type
+  public static final Set<String> SH_CLIENT_EVENT_NAMES = declaredEventNames(
+      SH_PACKAGE_PREFIX + "UserDataAnswer", SH_PACKAGE_PREFIX + "ProfileUpdateAnswer",
+      SH_PACKAGE_PREFIX + "SubscribeNotificationsAnswer", SH_PACKAGE_PREFIX + "PushNotificationRequest",
+      ERROR_ANSWER, EXTENSION_DIAMETER_MESSAGE);
 
-      String eventName = eventNames.get(commandCode);
-
-      if(eventName != null) {
-        eventID = getEventId(eventLookupFacility, eventName + (isRequest ? "Request" : "Answer"));
-      }
-      else {
-        eventID = getEventId(eventLookupFacility, EXTENSION_DIAMETER_MESSAGE);
-      }
-    }
-
-    return eventID;
-  }
+  // event types declared by the Sh Server RA type
+  public static final Set<String> SH_SERVER_EVENT_NAMES = declaredEventNames(
+      SH_PACKAGE_PREFIX + "UserDataRequest", SH_PACKAGE_PREFIX + "ProfileUpdateRequest",
+      SH_PACKAGE_PREFIX + "SubscribeNotificationsRequest", SH_PACKAGE_PREFIX + "PushNotificationAnswer",
+      ERROR_ANSWER, EXTENSION_DIAMETER_MESSAGE);
 
   /**
-   * 
-   * @param eventLookupFacility
-   * @param eventName
-   * @return
+   * @param declaredEventNames the event types declared by the RA type, either
+   *  {@link #SH_CLIENT_EVENT_NAMES} or {@link #SH_SERVER_EVENT_NAMES}
    */
-  private FireableEventType getEventId(EventLookupFacility eventLookupFacility, String eventName) {
-
-    FireableEventType eventType = eventIds.get(eventName);
-    if (eventType == null) {
-      try {
-        eventType = eventLookupFacility.getFireableEventType(new EventTypeID(eventName,VENDOR,VERSION));
-      }
-      catch (Throwable e) {
-        e.printStackTrace();
-      }
-      if (eventType != null) {
-        eventIds.put(eventName, eventType);
-      }
-    }
-    return eventType;
+  public EventIDCache(Set<String> declaredEventNames) {
+    super(eventNames, ERROR_ANSWER, EXTENSION_DIAMETER_MESSAGE, declaredEventNames);
   }
 
 }
@@ -25,28 +25,13 @@ package org.mobicents.slee.resource.diameter.sh.client;
 import static org.jdiameter.client.impl.helpers.Parameters.MessageTimeOut;
 
 import java.io.IOException;
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Future;
 
-import javax.management.ObjectName;
 import javax.naming.OperationNotSupportedException;
-import javax.slee.Address;
-import javax.slee.facilities.EventLookupFacility;
-import javax.slee.facilities.Tracer;
-import javax.slee.resource.ActivityFlags;
-import javax.slee.resource.ActivityHandle;
 import javax.slee.resource.ConfigProperties;
-import javax.slee.resource.EventFlags;
-import javax.slee.resource.FailureReason;
-import javax.slee.resource.FireableEventType;
-import javax.slee.resource.InvalidConfigurationException;
 import javax.slee.resource.Marshaler;
-import javax.slee.resource.ReceivableService;
-import javax.slee.resource.ResourceAdaptor;
 import javax.slee.resource.ResourceAdaptorContext;
-import javax.slee.resource.SleeEndpoint;
 
 import net.java.slee.resource.diameter.Validator;
 import net.java.slee.resource.diameter.base.CreateActivityException;
@@ -64,21 +49,16 @@ import net.java.slee.resource.diameter.sh.events.ProfileUpdateRequest;
 import net.java.slee.resource.diameter.sh.events.SubscribeNotificationsAnswer;
 import net.java.slee.resource.diameter.sh.events.UserDataAnswer;
 
-import org.jboss.mx.util.MBeanServerLocator;
 import org.jdiameter.api.Answer;
 import org.jdiameter.api.ApplicationId;
-import org.jdiameter.api.AvpDataException;
 import org.jdiameter.api.IllegalDiameterStateException;
 import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.OverloadException;
-import org.jdiameter.api.Peer;
-import org.jdiameter.api.PeerTable;
 import org.jdiameter.api.Request;
 import org.jdiameter.api.RouteException;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.SessionFactory;
-import org.jdiameter.api.Stack;
 import org.jdiameter.api.app.AppAnswerEvent;
 import org.jdiameter.api.app.AppRequestEvent;
 import org.jdiameter.api.app.AppSession;
@@ -92,20 +72,12 @@ import org.jdiameter.client.impl.app.sh.ShClientSessionImpl;
 import org.jdiameter.common.impl.app.AppAnswerEventImpl;
 import org.jdiameter.common.impl.app.AppRequestEventImpl;
 import org.jdiameter.common.impl.app.sh.ShSessionFactoryImpl;
-import org.mobicents.diameter.stack.DiameterListener;
-import org.mobicents.diameter.stack.DiameterStackMultiplexerMBean;
-import org.mobicents.slee.resource.diameter.DiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.LocalDiameterActivityManagement;
-import org.mobicents.slee.resource.diameter.ValidatorImpl;
-import org.mobicents.slee.resource.diameter.base.DiameterActivityHandle;
-import org.mobicents.slee.resource.diameter.base.DiameterActivityImpl;
+import org.mobicents.slee.resource.diameter.AbstractDiameterResourceAdaptor;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterBaseMarshaler;
-import org.mobicents.slee.resource.diameter.base.EventIDFilter;
 import org.mobicents.slee.resource.diameter.base.events.DiameterMessageImpl;
 import org.mobicents.slee.resource.diameter.base.events.ErrorAnswerImpl;
 import org.mobicents.slee.resource.diameter.base.events.ExtensionDiameterMessageImpl;
-import org.mobicents.slee.resource.diameter.base.handlers.DiameterRAInterface;
 import org.mobicents.slee.resource.diameter.sh.DiameterShAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.sh.EventIDCache;
 import org.mobicents.slee.resource.diameter.sh.events.ProfileUpdateAnswerImpl;
@@ -128,7 +100,7 @@ import org.mobicents.slee.resource.diameter.sh.events.UserDataRequestImpl;
  * @author <a href="mailto:brainslog@gmail.com"> Alexandre Mendonca </a>
  * @author <a href="mailto:baranowb@gmail.com"> Bartosz Baranowski </a>
  */
-public class DiameterShClientResourceAdaptor implements ResourceAdaptor, DiameterListener , DiameterRAInterface {
+public class DiameterShClientResourceAdaptor extends AbstractDiameterResourceAdaptor {
 
   private static final long serialVersionUID = 1L;
 
@@ -140,118 +112,45 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
 
   private List<ApplicationId> authApplicationIds;
 
-  /**
-   * caches the eventIDs, avoiding lookup in container
-   */
-  public final EventIDCache eventIdCache = new EventIDCache();
-
-  /**
-   * tells the RA if an event with a specified ID should be filtered or not
-   */
-  private final EventIDFilter eventIDFilter = new EventIDFilter();
-
-  /**
-   * The ResourceAdaptorContext interface is implemented by the SLEE. It provides the Resource
-   * Adaptor with the required capabilities in the SLEE to execute its work. The ResourceAdaptorCon-
-   * text object holds references to a number of objects that are of interest to many Resource Adaptors. A
-   * resource adaptor object is provided with a ResourceAdaptorContext object when the setResour-
-   * ceAdaptorContext method of the ResourceAdaptor interface is invoked on the resource adaptor
-   * object. 
-   */
-  private ResourceAdaptorContext raContext;
-
-  /**
-   * The SLEE endpoint defines the contract between the SLEE and the resource
-   * adaptor that enables the resource adaptor to deliver events
-   * asynchronously to SLEE endpoints residing in the SLEE. This contract
-   * serves as a generic contract that allows a wide range of resources to be
-   * plugged into a SLEE environment via the resource adaptor architecture.
-   * For further information see JSLEE v1.1 Specification Page 307 The
-   * sleeEndpoint will be initialized in entityCreated() method.
-   */
-  private transient SleeEndpoint sleeEndpoint = null;
-
-  /**
-   * A tracer is represented in the SLEE by the Tracer interface. Notification sources access the Tracer Facil-
-   * ity through a Tracer object that implements the Tracer interface. A Tracer object can be obtained by
-   * SBBs via the SbbContext interface, by resource adaptor entities via the ResourceAdaptorContext
-   * interface, and by profiles via the ProfileContext interface. 
-   */
-  private Tracer tracer;
-  private DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler();
+  private DiameterBaseMarshaler marshaler = new DiameterBaseMarshaler(new DiameterBaseMarshaler.EventFactory() {
+    public DiameterMessage createEvent(Message message) {
+      return DiameterShClientResourceAdaptor.this.createEvent(message);
+    }
+  });
   // Diameter Specific Properties ----------------------------------------
 
-  private Stack stack;
   private SessionFactory sessionFactory = null;
   private long messageTimeout = 5000;
 
-  private long activityRemoveDelay = 30000;
-
-  private ObjectName diameterMultiplexerObjectName = null;
-  private DiameterStackMultiplexerMBean diameterMux = null;
-
   private DiameterAvpFactory baseAvpFactory = null;
   private DiameterShAvpFactory shAvpFactory = null;
   
   private ShClientMessageFactory shClientMessageFactory = null;
 
-  /**
-   * the EventLookupFacility is used to look up the event id of incoming
-   * events
-   */
-  private transient EventLookupFacility eventLookup = null;
-
-  /**
-   * The list of activites stored in this resource adaptor. If this resource
-   * adaptor were a distributed and highly available solution, this storage
-   * were one of the candidates for distribution.
-   */
-  //private transient ConcurrentHashMap<ActivityHandle, DiameterActivity> activities = null;
-  private transient DiameterActivityManagement activities = null;
-
   /**
    * A link to the DiameterProvider which then will be exposed to Sbbs
    */
   private transient ShClientProviderImpl raProvider = null;
 
-  /**
-   * for all events we are interested in knowing when the event failed to be processed
-   */
-  private static final int EVENT_FLAGS = getEventFlags();
-
-  private static int getEventFlags() {
-    int eventFlags = EventFlags.REQUEST_EVENT_UNREFERENCED_CALLBACK;
-    eventFlags = EventFlags.setRequestProcessingFailedCallback(eventFlags);
-    eventFlags = EventFlags.setRequestProcessingSuccessfulCallback(eventFlags);
-    return eventFlags;
-  }
-
-  private static final int DEFAULT_ACTIVITY_FLAGS = ActivityFlags.setRequestSleeActivityGCCallback(ActivityFlags.REQUEST_ENDED_CALLBACK);
-  private static final int MARSHALABLE_ACTIVITY_FLAGS = ActivityFlags.setSleeMayMarshal(DEFAULT_ACTIVITY_FLAGS);
-
   private static final Object[] EMPTY_OBJECT_ARRAY = new Object[]{};
 
   private static final String[] EMPTY_STRING_ARRAY = new String[]{};
 
   public DiameterShClientResourceAdaptor() {
-    // TODO: Initialize any default values.
+    super("DiameterShClientResourceAdaptor", "Diameter ShClient RA", new EventIDCache(EventIDCache.SH_CLIENT_EVENT_NAMES));
   }
 
   // Lifecycle methods ---------------------------------------------------
 
   public void setResourceAdaptorContext(ResourceAdaptorContext context) {
-    this.raContext = context;
-    this.tracer = context.getTracer("DiameterShClientResourceAdaptor");
-    this.sleeEndpoint = context.getSleeEndpoint();
-    this.eventLookup = context.getEventLookupFacility();
+    super.setResourceAdaptorContext(context);
+
     this.raProvider = new ShClientProviderImpl(this);
   }
 
   public void unsetResourceAdaptorContext() {
-    this.raContext = null;
-    this.tracer = null;
-    this.sleeEndpoint = null;
-    this.eventLookup = null;
+    super.unsetResourceAdaptorContext();
+
     this.raProvider = null;
   }
 
@@ -265,40 +164,27 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
         tracer.info("Activating Diameter ShClient RA Entity");
       }
 
-      this.diameterMultiplexerObjectName = new ObjectName("diameter.mobicents:service=DiameterStackMultiplexer");
-
-      Object object = null;
+      activateCore();
 
-      if (ManagementFactory.getPlatformMBeanServer().isRegistered(this.diameterMultiplexerObjectName)) {
-        // trying to get via MBeanServer
-        object = ManagementFactory.getPlatformMBeanServer().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via Platform MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      } else {
-        // trying to get via locateJBoss
-        object = MBeanServerLocator.locateJBoss().invoke(this.diameterMultiplexerObjectName, "getMultiplexerMBean", new Object[]{}, new String[]{});
-        if (tracer.isInfoEnabled()) {
-          tracer.info("Trying to get via JBoss MBeanServer: " + this.diameterMultiplexerObjectName + ", object: " + object);
-        }
-      }
+      initStack();
 
-      if (object != null && object instanceof DiameterStackMultiplexerMBean) {
-        this.diameterMux = (DiameterStackMultiplexerMBean) object;
-      }
+      // Track the configured peers
+      initPeers();
 
-      //this.activities = new ConcurrentHashMap<ActivityHandle, DiameterActivity>();
-
-      initStack();
+      // Share one raw message creator among all message factories
+      initMessageCreator();
 
       // Initialize activity mgmt
       initActivitiesMgmt();
 
+      // Resolve event types to fire
+      eventIdCache.init(eventLookup, tracer);
+
       // Initialize factories
       this.baseAvpFactory = new DiameterAvpFactoryImpl();
       this.shAvpFactory = new DiameterShAvpFactoryImpl(baseAvpFactory);
 
-      this.shClientMessageFactory = new ShClientMessageFactoryImpl(stack);
+      this.shClientMessageFactory = new ShClientMessageFactoryImpl(rawMessageCreator);
 
       // Set the first configured Application-Id as default for message factory
       ApplicationId firstAppId = authApplicationIds.get(0);
@@ -314,55 +200,10 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
     }
   }
 
-  public void raStopping() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter ShClient RA :: raStopping.");
-    }
-
-    try {
-      diameterMux.unregisterListener(this);
-    }
-    catch (Exception e) {
-      tracer.severe("Failed to unregister ShClient RA from Diameter Mux.", e);
-    }
-
-    //    synchronized (this.activities) {
-    //      for (ActivityHandle activityHandle : activities.keySet()) {
-    //        try {
-    //          if(tracer.isInfoEnabled()) {
-    //            tracer.info("Ending activity [" + activityHandle + "]");
-    //          }
-    //
-    //          activities.get(activityHandle).endActivity();
-    //        }
-    //        catch (Exception e) {
-    //          tracer.severe("Error Deactivating Activity", e);
-    //        }
-    //      }
-    //    }
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter ShClient RA :: entityDeactivating completed.");
-    }
-  }
-
-  public void raInactive() {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter ShClient RA :: entityDeactivated.");
-    }
-
-    //    synchronized (this.activities) {
-    //      activities.clear();
-    //    }
-    activities = null;
-
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter ShClient RA :: INACTIVE completed.");
-    }
-  }
-
   public void raConfigure(ConfigProperties properties) {
     parseApplicationIds((String) properties.getProperty(AUTH_APPLICATION_IDS).getValue());
+
+    super.raConfigure(properties);
   }
 
   private void parseApplicationIds(String appIdsStr) {
@@ -383,23 +224,9 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
   }
 
   public void raUnconfigure() {
-    // Clean up!
-    this.activities = null;
-    this.raContext = null;
-    this.eventLookup = null;
-    this.raProvider = null;
-    this.sleeEndpoint = null;
-    this.stack = null;
-  }
-
-  // Configuration management methods ------------------------------------
-
-  public void raVerifyConfiguration(ConfigProperties properties) throws InvalidConfigurationException {
-    // TODO Auto-generated method stub
-  }
+    super.raUnconfigure();
 
-  public void raConfigurationUpdate(ConfigProperties properties) {
-    // this ra does not support config update while entity is active    
+    this.raProvider = null;
   }
 
   // Interface access methods -------------------------------------------- 
@@ -417,220 +244,8 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
     return this.marshaler;
   }
 
-  // Event filtering methods ---------------------------------------------
-
-  public void serviceActive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceActive(serviceInfo);   
-  }
-
-  public void serviceStopping(ReceivableService serviceInfo) {
-    eventIDFilter.serviceStopping(serviceInfo);
-  }
-
-  public void serviceInactive(ReceivableService serviceInfo) {
-    eventIDFilter.serviceInactive(serviceInfo); 
-  }
-
-  // Mandatory callback methods ------------------------------------------
-
-  public void queryLiveness(ActivityHandle handle) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter ShClient RA :: queryLiveness :: handle[" + handle + "].");
-    }
-
-    DiameterActivityImpl activity = (DiameterActivityImpl) activities.get((DiameterActivityHandle)handle);
-
-    if (activity != null && !activity.isValid()) {
-      try {
-        sleeEndpoint.endActivity(handle);
-      }
-      catch (Exception e) {
-        tracer.severe("Failure ending non-live activity.", e);
-      }
-    }
-  }
-
-  public Object getActivity(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter ShClient RA :: getActivity :: handle[" + handle + "].");
-    }
-
-    return this.activities.get((DiameterActivityHandle)handle);
-  }
-
-  public ActivityHandle getActivityHandle(Object activity) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter ShClient RA :: getActivityHandle :: activity[" + activity + "].");
-    }
-
-    if (!(activity instanceof DiameterActivity)) {
-      return null;
-    }
-
-    DiameterActivityImpl inActivity = (DiameterActivityImpl) activity;
-
-    return inActivity.getActivityHandle();
-  }
-
-  public void administrativeRemove(ActivityHandle handle) {
-    // TODO what to do here?
-  }
-
-  // Optional callback methods -------------------------------------------
-
-  public void eventProcessingFailed(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags, FailureReason reason) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter ShClient RA :: eventProcessingFailed :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "], reason[" + reason + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-        return;
-      }
-
-      processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventProcessingSuccessful(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter ShClient RA :: eventProcessingSuccessful :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], flags[" + flags + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  public void eventUnreferenced(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter ShClient RA :: eventUnreferenced :: handle[" + handle + "], eventType[" + eventType + "], event[" + event + "], address[" + address + "], service[" + service + "], flags[" + flags + "].");
-    }
-    if(!(handle instanceof DiameterActivityHandle)) {
-      return;
-    }
-
-    processAfterEventDelivery(handle, eventType, event, address, service, flags);
-  }
-
-  private void processAfterEventDelivery(ActivityHandle handle, FireableEventType eventType, Object event, Address address, ReceivableService service, int flags) {
-    DiameterActivityImpl activity = (DiameterActivityImpl) getActivity(handle);
-    if (activity != null) {
-      synchronized (activity) {
-        if (activity.isTerminateAfterProcessing()) {
-          activity.endActivity();
-        }
-      }
-    }
-  }
-
-  public void activityEnded(ActivityHandle handle) {
-    tracer.info("Diameter ShClient RA :: activityEnded :: handle[" + handle + ".");
-
-    if(this.activities != null) {
-      synchronized (this.activities) {
-        this.activities.remove((DiameterActivityHandle)handle);
-      }
-    }
-  }
-
-  public void activityUnreferenced(ActivityHandle handle) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter ShClient RA :: activityUnreferenced :: handle[" + handle + "].");
-    }
-
-    //this.activityEnded(handle);
-    if(handle instanceof DiameterActivityHandle) {
-      this.endActivity((DiameterActivityHandle) handle);
-    }
-  }
-
   // Event and Activities management -------------------------------------
 
-  public boolean fireEvent(Object event, ActivityHandle handle, FireableEventType eventID, Address address, boolean useFiltering, boolean transacted) {
-
-    if (useFiltering && eventIDFilter.filterEvent(eventID)) {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Event " + eventID + " filtered");
-      }
-    }
-    else if (eventID == null) {
-      tracer.severe("Event ID for " + eventID + " is unknown, unable to fire.");
-    }
-    else {
-      if (tracer.isFineEnabled()) {
-        tracer.fine("Firing event " + event + " on handle " + handle);
-      }
-      try {
-        /* TODO: Support transacted fire of events when in cluster
-        if (transacted){
-          this.raContext.getSleeEndpoint().fireEventTransacted(handle, eventID, event, address, null, EVENT_FLAGS);
-        }
-        else */{
-          this.raContext.getSleeEndpoint().fireEvent(handle, eventID, event, address, null, EVENT_FLAGS);
-        }       
-        return true;
-      }
-      catch (Exception e) {
-        tracer.severe("Error firing event.", e);
-      }
-    }
-
-    return false;
-  }
-
-  /*
-   * (non-Javadoc)
-   * @see org.mobicents.slee.resource.diameter.base.handlers.BaseSessionCreationListener#fireEvent(java.lang.String, org.jdiameter.api.Request, org.jdiameter.api.Answer)
-   */
-  public void fireEvent(String sessionId, Message message) {
-    DiameterMessage event = (DiameterMessage) createEvent(message);
-
-    FireableEventType eventId = eventIdCache.getEventId(eventLookup, message);
-
-    this.fireEvent(event, getActivityHandle(sessionId), eventId, null, true, message.isRequest());
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void endActivity(DiameterActivityHandle handle) {
-    sleeEndpoint.endActivity(handle);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void startActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.startActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to start activity remove timer.", e);
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void stopActivityRemoveTimer(DiameterActivityHandle handle) {
-    try {
-      this.activities.stopActivityRemoveTimer(handle);
-    }
-    catch (Exception e) {
-      tracer.warning("Failed to stop activity remove timer.", e);
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public void update(DiameterActivityHandle handle, DiameterActivity activity) {
-    activities.update(handle, activity);
-  }
-
   @Override
   public ApplicationId[] getSupportedApplications() {
     // TODO Auto-generated method stub
@@ -643,7 +258,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
    * @return a DiameterMessage object wrapping the request/answer
    * @throws OperationNotSupportedException
    */
-  private DiameterMessage createEvent(Message message) {
+  protected DiameterMessage createEvent(Message message) {
     if (message == null) {
       throw new NullPointerException("Message argument cannot be null while creating event.");
     }
@@ -686,44 +301,6 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
     }
   }
 
-  /**
-   * Method for performing tasks when activity is created, such as informing SLEE about it and storing into internal map.
-   * 
-   * @param ac the activity that has been created
-   */
-  private void activityCreated(DiameterActivity ac, boolean suspended) {
-    try {
-      // Inform SLEE that Activity Started
-      DiameterActivityImpl activity = (DiameterActivityImpl) ac;
-
-      if (suspended) {
-        sleeEndpoint.startActivitySuspended(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-      else {
-        sleeEndpoint.startActivity(activity.getActivityHandle(), activity, MARSHALABLE_ACTIVITY_FLAGS);
-      }
-
-      // Put it into our activites map
-      activities.put(activity.getActivityHandle(), activity);
-
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Activity started [" + activity.getActivityHandle() + "]");
-      }
-    }
-    catch (Exception e) {
-      tracer.severe("Error creating/starting activity.", e);
-    }
-  }
-
-  // Others --------------------------------------------------------------
-
-  /**
-   * Retrieves the RA context
-   */
-  public ResourceAdaptorContext getRaContext() {
-    return raContext;
-  }
-
   // Private Methods -----------------------------------------------------
 
   /**
@@ -743,17 +320,10 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
       tracer.info("Diameter ShClient RA :: Successfully initialized stack.");
     }
   }
-  private void initActivitiesMgmt() {
-	  this.activities = new LocalDiameterActivityManagement(this.raContext, activityRemoveDelay);
-  }
-
-  protected DiameterActivityHandle getActivityHandle(String sessionId) {
-    return new DiameterActivityHandle(sessionId);
-  }
 
   // NetworkReqListener Implementation -----------------------------------
 
-  public Answer processRequest(Request request) {
+  protected Answer doProcessRequest(Request request) {
     try {
       raProvider.createActivity(request);
     }
@@ -766,32 +336,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
   }
 
   public void receivedSuccessMessage(Request req, Answer ans) {
-    if(tracer.isFineEnabled()) {
-      tracer.fine("Diameter ShClient RA :: receivedSuccessMessage :: " + "Request[" + req + "], Answer[" + ans + "].");
-    }
-
-    try {
-      if(tracer.isInfoEnabled()) {
-        tracer.info("Received Message Result-Code: " + ans.getResultCode().getUnsigned32());
-      }
-    }
-    catch (AvpDataException ignore) {
-      // ignore, this was just for informational purposes...
-    }
-  }
-
-  public void timeoutExpired(Request req) {
-    if(tracer.isInfoEnabled()) {
-      tracer.info("Diameter ShClient RA :: timeoutExpired :: " + "Request[" + req + "].");
-    }
-
-    try {
-      // Message delivery timed out - we have to remove activity
-      ((DiameterActivity) getActivity(getActivityHandle(req.getSessionId()))).endActivity();
-    }
-    catch (Exception e) {
-      tracer.severe("Failure processing timeout message.", e);
-    }
+    messageTracer.answerReceived(req, ans);
   }
 
   // Sh-Client Session Factory -------------------------------------------
@@ -945,7 +490,6 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
   private class ShClientProviderImpl implements ShClientProvider
   {
     protected DiameterShClientResourceAdaptor ra = null;
-    protected Validator validator = new ValidatorImpl();
 
     public ShClientProviderImpl(DiameterShClientResourceAdaptor ra) {
       super();
@@ -995,7 +539,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
       ShClientSubscriptionActivityImpl activity = new ShClientSubscriptionActivityImpl(getSessionShMessageFactory(session), shAvpFactory, session, null, null);
       activity.fetchSessionData(pushNotificationRequest,true);
       activity.setSessionListener(ra);
-      activityCreated(activity, false);
+      addActivity(activity, false, MARSHALABLE_ACTIVITY_FLAGS);
 
       //FIXME: baranowb: this is akward, jdiam has weird api
       //This is trick to trigger fire and state machine
@@ -1023,7 +567,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
       ShClientActivityImpl activity = new ShClientActivityImpl(getSessionShMessageFactory(session), shAvpFactory, session, null, null);
 
       activity.setSessionListener(ra);
-      activityCreated(activity, false /*true*/);
+      addActivity(activity, false /*true*/, MARSHALABLE_ACTIVITY_FLAGS);
 
       return activity;
     }
@@ -1045,8 +589,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
           throw new IllegalArgumentException("Session Id must not be null.");
         }
         Session session = stack.getSessionFactory().getNewSession(sessionID);
-        Future<Message> f = session.send(((DiameterMessageImpl) message).getGenericData());
-        return new ProfileUpdateAnswerImpl(f.get());
+        return new ProfileUpdateAnswerImpl(ra.asyncRequestManager.sendSync(session, ((DiameterMessageImpl) message).getGenericData()));
       }
       catch (AvpNotAllowedException e) {
         throw e;
@@ -1070,8 +613,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
           throw new IllegalArgumentException("Session Id must not be null.");
         }
         Session session = stack.getSessionFactory().getNewSession(sessionID);
-        Future<Message> f = session.send(((DiameterMessageImpl) message).getGenericData());
-        return new SubscribeNotificationsAnswerImpl(f.get());
+        return new SubscribeNotificationsAnswerImpl(ra.asyncRequestManager.sendSync(session, ((DiameterMessageImpl) message).getGenericData()));
       }
       catch (AvpNotAllowedException e) {
         throw e;
@@ -1094,9 +636,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
           throw new IllegalArgumentException("Session Id must not be null.");
         }
         Session session = stack.getSessionFactory().getNewSession(sessionID);
-        Future<Message> f = session.send(((DiameterMessageImpl) message).getGenericData());
-
-        return new UserDataAnswerImpl(f.get());
+        return new UserDataAnswerImpl(ra.asyncRequestManager.sendSync(session, ((DiameterMessageImpl) message).getGenericData()));
       }
       catch (AvpNotAllowedException e) {
         throw e;
@@ -1124,7 +664,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
 
       ShClientSubscriptionActivityImpl activity = new ShClientSubscriptionActivityImpl(getSessionShMessageFactory(session), shAvpFactory, session, null, null);
       activity.setSessionListener(ra);
-      activityCreated(activity, false /*true*/);
+      addActivity(activity, false /*true*/, MARSHALABLE_ACTIVITY_FLAGS);
 
       return activity;
     }
@@ -1134,37 +674,15 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
     }
 
     private ShClientMessageFactory getSessionShMessageFactory(AppSession session) {
-      return new ShClientMessageFactoryImpl(session.getSessions().get(0), stack);
+      return new ShClientMessageFactoryImpl(session.getSessions().get(0), rawMessageCreator);
     }
 
     public DiameterIdentity[] getConnectedPeers() {
-      if (ra.stack != null) {
-        try {
-          // Get the list of peers from the stack
-          List<Peer> peers = stack.unwrap(PeerTable.class).getPeerTable();
-
-          DiameterIdentity[] result = new DiameterIdentity[peers.size()];
-
-          int i = 0;
-
-          // Get each peer from the list and make a DiameterIdentity
-          for (Peer peer : peers) {
-            DiameterIdentity identity = new DiameterIdentity(peer.getUri().toString());
-            result[i++] = identity;
-          }
-
-          return result;
-        }
-        catch (Exception e) {
-          tracer.severe("Failure getting peer list.", e);
-        }
-      }
-
-      return null;
+      return ra.getConnectedPeers();
     }
 
     public int getPeerCount() {
-      return getConnectedPeers().length;
+      return ra.getPeerCount();
     }
 
     /* (non-Javadoc)
@@ -1172,7 +690,7 @@ public class DiameterShClientResourceAdaptor implements ResourceAdaptor, Diamete
      */
     @Override
     public Validator getValidator() {
-      return this.validator;
+      return validator;
     }
   }
 
@@ -28,9 +28,9 @@ import net.java.slee.resource.diameter.base.NoSuchAvpException;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
-import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.base.events.avp.GroupedAvp;
 import net.java.slee.resource.diameter.sh.client.ShClientMessageFactory;
 import net.java.slee.resource.diameter.sh.events.ProfileUpdateRequest;
@@ -51,8 +51,10 @@ import org.jdiameter.api.Message;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.Stack;
 import org.jdiameter.client.impl.helpers.UIDGenerator;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.sh.events.ProfileUpdateRequestImpl;
 import org.mobicents.slee.resource.diameter.sh.events.PushNotificationAnswerImpl;
 import org.mobicents.slee.resource.diameter.sh.events.SubscribeNotificationsRequestImpl;
@@ -68,8 +70,12 @@ public class ShClientMessageFactoryImpl implements ShClientMessageFactory {
 
   private static Logger logger = Logger.getLogger(ShClientMessageFactoryImpl.class);
 
+  // AVPs copied from the request into the answer
+  private static final AnswerTemplate answerTemplate = new AnswerTemplate(DiameterAvpCodes.SESSION_ID);
+
   protected Session session;
   protected Stack stack;
+  protected final RawMessageCreator rawMessageCreator;
   protected DiameterMessageFactoryImpl baseFactory = null;
   protected DiameterAvpFactory baseAvpFactory = null;
 
@@ -80,20 +86,26 @@ public class ShClientMessageFactoryImpl implements ShClientMessageFactory {
   protected static UIDGenerator uid = new UIDGenerator();
 
   public ShClientMessageFactoryImpl(Session session, Stack stack) {
-    super();
-    this.session = session;
-    this.stack = stack;
-    this.baseFactory = new DiameterMessageFactoryImpl(this.session, this.stack);
-    this.baseAvpFactory = new DiameterAvpFactoryImpl();
+    this(session, new RawMessageCreator(stack));
   }
 
   public ShClientMessageFactoryImpl(Stack stack) {
+    this(null, new RawMessageCreator(stack));
+  }
+
+  public ShClientMessageFactoryImpl(Session session, RawMessageCreator rawMessageCreator) {
     super();
-    this.stack = stack;
-    this.baseFactory = new DiameterMessageFactoryImpl(this.stack);
+    this.session = session;
+    this.stack = rawMessageCreator.getStack();
+    this.rawMessageCreator = rawMessageCreator;
+    this.baseFactory = new DiameterMessageFactoryImpl(this.session, rawMessageCreator);
     this.baseAvpFactory = new DiameterAvpFactoryImpl();
   }
 
+  public ShClientMessageFactoryImpl(RawMessageCreator rawMessageCreator) {
+    this(null, rawMessageCreator);
+  }
+
   public void setApplicationId(long vendorId, long applicationId) {
     this.shAppId = ApplicationId.createByAuthAppId(vendorId, applicationId);      
   }
@@ -133,6 +145,16 @@ public class ShClientMessageFactoryImpl implements ShClientMessageFactory {
     return pur;
   }
 
+  /**
+   * Creates a {@link ProfileUpdateRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public ProfileUpdateRequest createProfileUpdateRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    ProfileUpdateRequest msg = createProfileUpdateRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public PushNotificationAnswer createPushNotificationAnswer(PushNotificationRequest request,long resultCode, boolean isExperimentalResultCode) {
     PushNotificationAnswer pna = this.createPushNotificationAnswer(request);
 
@@ -147,19 +169,11 @@ public class ShClientMessageFactoryImpl implements ShClientMessageFactory {
   }
 
   public PushNotificationAnswer createPushNotificationAnswer(PushNotificationRequest request) {
-    DiameterAvp[] avps = new DiameterAvp[0];
-
-    try {
-      DiameterAvp sessionIdAvp = null;
-      sessionIdAvp = baseAvpFactory.createAvp(0, DiameterAvpCodes.SESSION_ID, request.getSessionId());
-      avps = new DiameterAvp[]{sessionIdAvp};
-    }
-    catch (NoSuchAvpException e) {
-      logger.error( "Unexpected failure trying to create Session-Id AVP.", e );
-    }
-
-    Message msg = createShMessage(request.getHeader(), avps, PushNotificationAnswer.commandCode);
+    Message msg = createShMessage(request.getHeader(), new DiameterAvp[0], PushNotificationAnswer.commandCode);
     PushNotificationAnswerImpl pna = new PushNotificationAnswerImpl(msg);
+
+    // Session-Id, as received
+    answerTemplate.copy(request, pna);
     addOrigin(pna);
 
     return pna;
@@ -195,6 +209,16 @@ public class ShClientMessageFactoryImpl implements ShClientMessageFactory {
     return snr;
   }
 
+  /**
+   * Creates a {@link SubscribeNotificationsRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public SubscribeNotificationsRequest createSubscribeNotificationsRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    SubscribeNotificationsRequest msg = createSubscribeNotificationsRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public UserDataRequest createUserDataRequest(UserIdentityAvp userIdentity, DataReferenceType reference) {
     UserDataRequest udr = this.createUserDataRequest();
     udr.setUserIdentity(userIdentity);
@@ -223,6 +247,16 @@ public class ShClientMessageFactoryImpl implements ShClientMessageFactory {
     return udr;
   }
 
+  /**
+   * Creates a {@link UserDataRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public UserDataRequest createUserDataRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    UserDataRequest msg = createUserDataRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   private Message createShMessage(DiameterHeader diameterHeader, DiameterAvp[] avps, int _commandCode) throws IllegalArgumentException {
 
     // List<DiameterAvp> list = (List<DiameterAvp>) this.avpList.clone();
@@ -278,8 +312,8 @@ public class ShClientMessageFactoryImpl implements ShClientMessageFactory {
       commandCode = _commandCode;
     }
     try {
-      return header != null ? stack.getSessionFactory().getNewRawSession().createMessage(commandCode, shAppId, hopByHopId, endToEndId) : 
-        stack.getSessionFactory().getNewRawSession().createMessage(commandCode, shAppId);
+      return header != null ? rawMessageCreator.createMessage(commandCode, shAppId, hopByHopId, endToEndId) : 
+        rawMessageCreator.createMessage(commandCode, shAppId);
     }
     catch (InternalException e) {
       logger.error("Unexpected failure trying to create Raw Message.", e);
@@ -303,12 +337,7 @@ public class ShClientMessageFactoryImpl implements ShClientMessageFactory {
   }
 
   private void addOrigin(DiameterMessage msg) {
-    if(!msg.hasOriginHost()) {
-      msg.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
-    }
-    if(!msg.hasOriginRealm()) {
-      msg.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-    }
+    rawMessageCreator.addOriginHostAndRealm(msg);
   }
 
   public DiameterMessageFactory getBaseMessageFactory() {
@@ -22,6 +22,8 @@
 
 package net.java.slee.resource.diameter.sh.client;
 
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.sh.MessageFactory;
 import net.java.slee.resource.diameter.sh.events.ProfileUpdateRequest;
 import net.java.slee.resource.diameter.sh.events.PushNotificationAnswer;
@@ -52,6 +54,16 @@ public interface ShClientMessageFactory extends MessageFactory {
    */
   UserDataRequest createUserDataRequest();
 
+  /**
+   * Creates a {@link UserDataRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new UserDataRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  UserDataRequest createUserDataRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a ProfileUpdateRequest using the given parameters to populate the User-Identity, Data-Reference and User-Data AVPs.
    * @return a ProfileUpdateRequest object that can be sent using {@link ShClientActivity#sendProfileUpdateRequest(net.java.slee.resource.diameter.sh.events.types.ProfileUpdateRequest)} 
@@ -65,6 +77,16 @@ public interface ShClientMessageFactory extends MessageFactory {
    */
   ProfileUpdateRequest createProfileUpdateRequest();
 
+  /**
+   * Creates a {@link ProfileUpdateRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new ProfileUpdateRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  ProfileUpdateRequest createProfileUpdateRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a SubscribeNotificationsRequest using the given parameters to populate the User-Identity, Data-Reference and Subs-Req-Type AVPs.
    * 
@@ -81,6 +103,16 @@ public interface ShClientMessageFactory extends MessageFactory {
    */
   SubscribeNotificationsRequest createSubscribeNotificationsRequest();
 
+  /**
+   * Creates a {@link SubscribeNotificationsRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new SubscribeNotificationsRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  SubscribeNotificationsRequest createSubscribeNotificationsRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
+
   /**
    * Create a PushNotificationAnswer containing a Result-Code or Experimental-Result AVP populated with the given value.
    * If <code>isExperimentalResultCode</code> is <code>true</code>, the <code>resultCode</code> parameter will be set
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.resource.diameter.sh.client.tests.userdata;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import net.java.slee.resource.diameter.sh.events.avp.userdata.ShData;
+
+import org.junit.Test;
+import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.ShDataMarshaller;
+import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.ShDataReader;
+import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.TShData;
+import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.TShIMSData;
+import org.mobicents.slee.resource.diameter.sh.events.avp.userdata.TTransparentData;
+
+/**
+ * Tests for the partial User-Data reader and the shared marshaller.
+ */
+public class ShDataReaderTest {
+
+	private static final byte[] USER_DATA = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<Sh-Data>"
+			+ "<RepositoryData><ServiceIndication>svc-a</ServiceIndication><SequenceNumber>1</SequenceNumber></RepositoryData>"
+			+ "<RepositoryData><ServiceIndication>svc-b</ServiceIndication><SequenceNumber>7</SequenceNumber></RepositoryData>"
+			+ "<Sh-IMS-Data><IMSUserState>1</IMSUserState></Sh-IMS-Data>"
+			+ "</Sh-Data>").getBytes();
+
+	@Test
+	public void testReadRepositoryData() throws Exception {
+		TTransparentData repositoryData = ShDataReader.readRepositoryData(USER_DATA, "svc-b");
+		assertNotNull("Repository data for svc-b should be found.", repositoryData);
+		assertEquals("svc-b", repositoryData.getServiceIndication());
+		assertEquals(7, repositoryData.getSequenceNumber());
+
+		assertNull("Repository data for svc-c should not be found.", ShDataReader.readRepositoryData(USER_DATA, "svc-c"));
+	}
+
+	@Test
+	public void testReadElements() throws Exception {
+		List<TTransparentData> repositoryData = ShDataReader.readElements(USER_DATA, ShDataReader.REPOSITORY_DATA, TTransparentData.class);
+		assertEquals(2, repositoryData.size());
+		assertEquals("svc-a", repositoryData.get(0).getServiceIndication());
+		assertEquals("svc-b", repositoryData.get(1).getServiceIndication());
+
+		TShIMSData imsData = ShDataReader.readElement(USER_DATA, ShDataReader.SH_IMS_DATA, TShIMSData.class);
+		assertNotNull(imsData);
+		assertEquals(Short.valueOf((short) 1), imsData.getIMSUserState());
+	}
+
+	@Test
+	public void testReadIMSUserState() throws Exception {
+		assertEquals(Short.valueOf((short) 1), ShDataReader.readIMSUserState(USER_DATA));
+		assertNull(ShDataReader.readText(USER_DATA, ShDataReader.CS_USER_STATE));
+	}
+
+	@Test
+	public void testMarshalRoundTrip() throws Exception {
+		ShDataMarshaller marshaller = ShDataMarshaller.getInstance();
+		ShData shData = marshaller.unmarshal(USER_DATA);
+		assertEquals(2, ((TShData) shData).getRepositoryData().size());
+
+		ShData again = marshaller.unmarshal(marshaller.marshal(shData));
+		assertEquals(shData, again);
+	}
+
+}
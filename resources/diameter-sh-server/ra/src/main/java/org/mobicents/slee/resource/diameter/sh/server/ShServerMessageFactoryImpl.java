@@ -31,9 +31,9 @@ import net.java.slee.resource.diameter.base.NoSuchAvpException;
 import net.java.slee.resource.diameter.base.events.DiameterHeader;
 import net.java.slee.resource.diameter.base.events.DiameterMessage;
 import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvp;
 import net.java.slee.resource.diameter.base.events.avp.DiameterAvpCodes;
-import net.java.slee.resource.diameter.base.events.avp.DiameterIdentity;
 import net.java.slee.resource.diameter.base.events.avp.GroupedAvp;
 import net.java.slee.resource.diameter.sh.DiameterShAvpFactory;
 import net.java.slee.resource.diameter.sh.events.ProfileUpdateAnswer;
@@ -43,6 +43,7 @@ import net.java.slee.resource.diameter.sh.events.SubscribeNotificationsAnswer;
 import net.java.slee.resource.diameter.sh.events.SubscribeNotificationsRequest;
 import net.java.slee.resource.diameter.sh.events.UserDataAnswer;
 import net.java.slee.resource.diameter.sh.events.UserDataRequest;
+import net.java.slee.resource.diameter.sh.events.avp.DiameterShAvpCodes;
 import net.java.slee.resource.diameter.sh.events.avp.UserIdentityAvp;
 import net.java.slee.resource.diameter.sh.server.ShServerMessageFactory;
 
@@ -54,8 +55,10 @@ import org.jdiameter.api.InternalException;
 import org.jdiameter.api.Message;
 import org.jdiameter.api.Session;
 import org.jdiameter.api.Stack;
+import org.mobicents.slee.resource.diameter.base.AnswerTemplate;
 import org.mobicents.slee.resource.diameter.base.DiameterAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.base.DiameterMessageFactoryImpl;
+import org.mobicents.slee.resource.diameter.base.RawMessageCreator;
 import org.mobicents.slee.resource.diameter.sh.DiameterShAvpFactoryImpl;
 import org.mobicents.slee.resource.diameter.sh.events.ProfileUpdateAnswerImpl;
 import org.mobicents.slee.resource.diameter.sh.events.PushNotificationRequestImpl;
@@ -73,34 +76,48 @@ public class ShServerMessageFactoryImpl implements ShServerMessageFactory {
 
   protected Session session;
   protected Stack stack;
+  protected final RawMessageCreator rawMessageCreator;
   protected DiameterMessageFactoryImpl baseFactory = null;
   protected DiameterShAvpFactoryImpl localFactory = null;
 
   private static Logger logger = Logger.getLogger(ShServerMessageFactoryImpl.class);
 
+  private static final DiameterAvp[] EMPTY_AVP_ARRAY = new DiameterAvp[0];
+
+  // AVPs copied from the request into the answer
+  private static final AnswerTemplate answerTemplate = new AnswerTemplate(
+      new int[] {DiameterAvpCodes.SESSION_ID, DiameterShAvpCodes.USER_IDENTITY},
+      new long[] {0, _SH_VENDOR_ID});
+
   protected ArrayList<DiameterAvp> avpList = new ArrayList<DiameterAvp>();
 
   // Sh: Vendor-Specific-Application-Id is mandatory;
   private ApplicationId shAppId = ApplicationId.createByAuthAppId(_SH_VENDOR_ID, _SH_APP_ID);
 
   public ShServerMessageFactoryImpl(Session session, Stack stack) {
-    super();
-    this.session = session;
-    this.stack = stack;
-    this.baseFactory = new DiameterMessageFactoryImpl(this.session, this.stack);
-    this.localFactory = new DiameterShAvpFactoryImpl(new DiameterAvpFactoryImpl());
+    this(session, new RawMessageCreator(stack));
   }
 
   public ShServerMessageFactoryImpl(Stack stack) {
-    super();
-    this.stack = stack;
-    this.baseFactory = new DiameterMessageFactoryImpl(this.stack);
-    this.localFactory = new DiameterShAvpFactoryImpl(new DiameterAvpFactoryImpl());
+    this(null, new RawMessageCreator(stack));
   }
 
   public ShServerMessageFactoryImpl(DiameterMessageFactoryImpl baseMsgFactory, Session session, Stack stack, DiameterShAvpFactory localFactory) {
+    this(baseMsgFactory, session, new RawMessageCreator(stack), localFactory);
+  }
+
+  public ShServerMessageFactoryImpl(Session session, RawMessageCreator rawMessageCreator) {
+    this(new DiameterMessageFactoryImpl(session, rawMessageCreator), session, rawMessageCreator, new DiameterShAvpFactoryImpl(new DiameterAvpFactoryImpl()));
+  }
+
+  public ShServerMessageFactoryImpl(RawMessageCreator rawMessageCreator) {
+    this(null, rawMessageCreator);
+  }
+
+  public ShServerMessageFactoryImpl(DiameterMessageFactoryImpl baseMsgFactory, Session session, RawMessageCreator rawMessageCreator, DiameterShAvpFactory localFactory) {
     this.session = session;
-    this.stack = stack;
+    this.stack = rawMessageCreator.getStack();
+    this.rawMessageCreator = rawMessageCreator;
     this.baseFactory = baseMsgFactory;
     this.localFactory = (DiameterShAvpFactoryImpl) localFactory;
   }
@@ -127,24 +144,12 @@ public class ShServerMessageFactoryImpl implements ShServerMessageFactory {
   }
 
   public ProfileUpdateAnswer createProfileUpdateAnswer(ProfileUpdateRequest request) {
-    List<DiameterAvp> avps = new ArrayList<DiameterAvp>();
-
-    DiameterAvp sessionIdAvp = null;
-    try {
-      sessionIdAvp = localFactory.getBaseFactory().createAvp(0, DiameterAvpCodes.SESSION_ID, request.getSessionId());
-      avps.add(sessionIdAvp);
-    }
-    catch (NoSuchAvpException e) {
-      logger.error("Unable to create Session-Id AVP.", e);
-    }
-
-    if (request.getUserIdentity() != null) {
-      avps.add(request.getUserIdentity());
-    }
-
-    Message msg = createShMessage(request.getHeader(), avps.toArray(new DiameterAvp[avps.size()]));
+    Message msg = createShMessage(request.getHeader(), EMPTY_AVP_ARRAY);
     ProfileUpdateAnswerImpl answer = new ProfileUpdateAnswerImpl(msg);
 
+    // Session-Id and User-Identity, as received
+    answerTemplate.copy(request, answer);
+
     answer.setRouteRecords(request.getRouteRecords());
 
     addOrigin(answer);
@@ -181,6 +186,16 @@ public class ShServerMessageFactoryImpl implements ShServerMessageFactory {
     return request;
   }
 
+  /**
+   * Creates a {@link PushNotificationRequest} with the AVPs collected by the given builder, validated against the dictionary at once.
+   */
+  public PushNotificationRequest createPushNotificationRequest(AvpSetBuilder avps) throws AvpNotAllowedException {
+    PushNotificationRequest msg = createPushNotificationRequest();
+    avps.build(msg);
+
+    return msg;
+  }
+
   public SubscribeNotificationsAnswer createSubscribeNotificationsAnswer(SubscribeNotificationsRequest request, long resultCode, boolean isExperimentalResult) {
     SubscribeNotificationsAnswer sna = this.createSubscribeNotificationsAnswer(request);
 
@@ -198,24 +213,12 @@ public class ShServerMessageFactoryImpl implements ShServerMessageFactory {
     // Message msg = createShMessage(UserDataAnswer.commandCode, session !=
     // null ? session.getSessionId() : null, false);
 
-    List<DiameterAvp> avps = new ArrayList<DiameterAvp>();
-
-    DiameterAvp sessionIdAvp = null;
-    try {
-      sessionIdAvp = localFactory.getBaseFactory().createAvp(0, DiameterAvpCodes.SESSION_ID, request.getSessionId());
-      avps.add(sessionIdAvp);
-    }
-    catch (NoSuchAvpException e) {
-      logger.error("Unable to create Session-Id AVP.", e);
-    }
-
-    if (request.getUserIdentity() != null) {
-      avps.add(request.getUserIdentity());
-    }
-
-    Message msg = createShMessage(request.getHeader(), avps.toArray(new DiameterAvp[avps.size()]));
+    Message msg = createShMessage(request.getHeader(), EMPTY_AVP_ARRAY);
     SubscribeNotificationsAnswerImpl answer = new SubscribeNotificationsAnswerImpl(msg);
 
+    // Session-Id and User-Identity, as received
+    answerTemplate.copy(request, answer);
+
     answer.setRouteRecords(request.getRouteRecords());
     // add more :) ?
 
@@ -248,23 +251,12 @@ public class ShServerMessageFactoryImpl implements ShServerMessageFactory {
     // Message msg = createShMessage(UserDataAnswer.commandCode, session !=
     // null ? session.getSessionId() : null, false);
 
-    List<DiameterAvp> avps = new ArrayList<DiameterAvp>();
-
-    DiameterAvp sessionIdAvp = null;
-    try {
-      sessionIdAvp = localFactory.getBaseFactory().createAvp(0, DiameterAvpCodes.SESSION_ID, request.getSessionId());
-      avps.add(sessionIdAvp);
-    }
-    catch (NoSuchAvpException e) {
-      logger.error("Unable to create Session-Id AVP.", e);
-    }
-
-    if (request.getUserIdentity() != null)
-      avps.add(request.getUserIdentity());
-
-    Message msg = createShMessage(request.getHeader(), avps.toArray(new DiameterAvp[avps.size()]));
+    Message msg = createShMessage(request.getHeader(), EMPTY_AVP_ARRAY);
     UserDataAnswerImpl answer = new UserDataAnswerImpl(msg);
 
+    // Session-Id and User-Identity, as received
+    answerTemplate.copy(request, answer);
+
     answer.setRouteRecords(request.getRouteRecords());
     // add more :) ?
 
@@ -358,7 +350,7 @@ public class ShServerMessageFactoryImpl implements ShServerMessageFactory {
       hopByHopId = (long) (Math.random()*1000000)+1;
     }
     try {
-      return stack.getSessionFactory().getNewRawSession().createMessage(commandCode, shAppId, hopByHopId, endToEndId);
+      return rawMessageCreator.createMessage(commandCode, shAppId, hopByHopId, endToEndId);
     }
     catch (InternalException e) {
       logger.error("Unable to create Raw Message.", e);
@@ -393,11 +385,6 @@ public class ShServerMessageFactoryImpl implements ShServerMessageFactory {
   }
 
   private void addOrigin(DiameterMessage msg) {
-    if(!msg.hasOriginHost()) {
-      msg.setOriginHost(new DiameterIdentity(stack.getMetaData().getLocalPeer().getUri().getFQDN().toString()));
-    }
-    if(!msg.hasOriginRealm()) {
-      msg.setOriginRealm(new DiameterIdentity(stack.getMetaData().getLocalPeer().getRealmName()));
-    }
+    rawMessageCreator.addOriginHostAndRealm(msg);
   }
 }
@@ -22,6 +22,8 @@
 
 package net.java.slee.resource.diameter.sh.server;
 
+import net.java.slee.resource.diameter.base.events.avp.AvpNotAllowedException;
+import net.java.slee.resource.diameter.base.events.avp.AvpSetBuilder;
 import net.java.slee.resource.diameter.sh.MessageFactory;
 import net.java.slee.resource.diameter.sh.events.ProfileUpdateAnswer;
 import net.java.slee.resource.diameter.sh.events.ProfileUpdateRequest;
@@ -133,4 +135,14 @@ public interface ShServerMessageFactory extends MessageFactory {
    *         {@link ShServerNotificationActivity#sendPushNotificationRequest(net.java.slee.resource.diameter.sh.types.PushNotificationRequest)}
    */
   PushNotificationRequest createPushNotificationRequest();
+
+  /**
+   * Creates a {@link PushNotificationRequest} with the AVPs collected by the given builder. All
+   * AVPs are validated against the dictionary in one pass before any is added.
+   *
+   * @param avps the AVPs to add to the request
+   * @return a new PushNotificationRequest
+   * @throws AvpNotAllowedException if an AVP is not allowed in the request or occurs too often
+   */
+  PushNotificationRequest createPushNotificationRequest(AvpSetBuilder avps) throws AvpNotAllowedException;
 }